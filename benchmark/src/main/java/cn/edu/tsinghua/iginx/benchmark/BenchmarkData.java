@@ -0,0 +1,133 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** 基准测试使用的合成数据。随机数使用固定的种子，保证多次运行以及不同版本之间的数据一致。 */
+public final class BenchmarkData {
+
+  private static final long SEED = 20240601L;
+
+  private BenchmarkData() {}
+
+  /**
+   * 生成带 key 的表，包含以下四列：
+   *
+   * <ul>
+   *   <li>{prefix}.id：LONG，第 i 行为 i * idStep，严格递增
+   *   <li>{prefix}.v：DOUBLE，[0, 1) 上均匀分布
+   *   <li>{prefix}.i：INTEGER，[0, 1000) 上均匀分布
+   *   <li>{prefix}.s：BINARY，共 cardinality 种取值，用于分组与去重
+   * </ul>
+   */
+  public static Table table(String prefix, int rowCount, int idStep, int cardinality) {
+    Header header =
+        new Header(
+            Field.KEY,
+            Arrays.asList(
+                new Field(prefix + ".id", DataType.LONG),
+                new Field(prefix + ".v", DataType.DOUBLE),
+                new Field(prefix + ".i", DataType.INTEGER),
+                new Field(prefix + ".s", DataType.BINARY)));
+    Random random = new Random(SEED);
+    byte[][] strings = new byte[cardinality][];
+    for (int i = 0; i < cardinality; i++) {
+      strings[i] = ("value" + i).getBytes();
+    }
+    List<Row> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      Object[] values =
+          new Object[] {
+            (long) i * idStep,
+            random.nextDouble(),
+            random.nextInt(1000),
+            strings[random.nextInt(cardinality)]
+          };
+      rows.add(new Row(header, i, values));
+    }
+    return new Table(header, rows);
+  }
+
+  /**
+   * 生成写入数据，路径按字典序排列，key 从 0 开始连续递增
+   *
+   * @param nullRatio 每个值为空的概率
+   */
+  public static RawData rawData(int pathCount, int keyCount, double nullRatio, RawDataType type) {
+    Random random = new Random(SEED);
+    List<String> paths = new ArrayList<>(pathCount);
+    List<Map<String, String>> tagsList = new ArrayList<>(pathCount);
+    List<DataType> dataTypeList = new ArrayList<>(pathCount);
+    for (int i = 0; i < pathCount; i++) {
+      paths.add(String.format("root.sg.d%06d.s", i));
+      tagsList.add(new HashMap<>());
+      dataTypeList.add(DataType.DOUBLE);
+    }
+    List<Long> keys = new ArrayList<>(keyCount);
+    for (int i = 0; i < keyCount; i++) {
+      keys.add((long) i);
+    }
+
+    boolean isRow = type == RawDataType.Row || type == RawDataType.NonAlignedRow;
+    int outer = isRow ? keyCount : pathCount;
+    int inner = isRow ? pathCount : keyCount;
+    Object[] valuesList = new Object[outer];
+    List<Bitmap> bitmaps = new ArrayList<>(outer);
+    for (int i = 0; i < outer; i++) {
+      Bitmap bitmap = new Bitmap(inner);
+      List<Object> values = new ArrayList<>(inner);
+      for (int j = 0; j < inner; j++) {
+        if (random.nextDouble() >= nullRatio) {
+          bitmap.mark(j);
+          values.add(random.nextDouble());
+        }
+      }
+      valuesList[i] = values.toArray();
+      bitmaps.add(bitmap);
+    }
+    return new RawData(paths, tagsList, keys, valuesList, dataTypeList, bitmaps, type);
+  }
+
+  /** 读取并消费行流中的全部数据 */
+  public static void consume(RowStream stream, Blackhole blackhole) throws PhysicalException {
+    blackhole.consume(stream.getHeader());
+    while (stream.hasNext()) {
+      blackhole.consume(stream.next());
+    }
+    stream.close();
+  }
+}
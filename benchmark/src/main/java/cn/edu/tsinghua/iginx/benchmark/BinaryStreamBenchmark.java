@@ -0,0 +1,186 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.StreamOperatorMemoryExecutor;
+import cn.edu.tsinghua.iginx.engine.shared.operator.BinaryOperator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.CrossJoin;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Except;
+import cn.edu.tsinghua.iginx.engine.shared.operator.InnerJoin;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Intersect;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Join;
+import cn.edu.tsinghua.iginx.engine.shared.operator.MarkJoin;
+import cn.edu.tsinghua.iginx.engine.shared.operator.OuterJoin;
+import cn.edu.tsinghua.iginx.engine.shared.operator.PathUnion;
+import cn.edu.tsinghua.iginx.engine.shared.operator.SingleJoin;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Union;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.PathFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.type.JoinAlgType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.type.OuterJoinType;
+import cn.edu.tsinghua.iginx.engine.shared.source.EmptySource;
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 双输入算子的基准测试，覆盖各类连接算法与集合运算。左表 a.id 为 0, 1, 2, ...，右表 b.id 为 0, 2, 4, ...，两表约有一半的行能够匹配。
+ *
+ * <p>CrossJoin 的结果大小为两表行数之积，因此其右表最多取 {@link #CROSS_JOIN_RIGHT_ROWS} 行。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryStreamBenchmark {
+
+  private static final Source SOURCE = EmptySource.EMPTY_SOURCE;
+
+  private static final int CROSS_JOIN_RIGHT_ROWS = 100;
+
+  @Param({
+    "Join",
+    "CrossJoin",
+    "NestedLoopInnerJoin",
+    "HashInnerJoin",
+    "SortedMergeInnerJoin",
+    "NestedLoopOuterJoin",
+    "HashOuterJoin",
+    "SortedMergeOuterJoin",
+    "NestedLoopSingleJoin",
+    "HashSingleJoin",
+    "NestedLoopMarkJoin",
+    "HashMarkJoin",
+    "PathUnion",
+    "UnionAll",
+    "UnionDistinct",
+    "Except",
+    "Intersect"
+  })
+  public String operator;
+
+  @Param({"1000", "10000"})
+  public int rowCount;
+
+  private final StreamOperatorMemoryExecutor executor = StreamOperatorMemoryExecutor.getInstance();
+
+  private Table tableA;
+
+  private Table tableB;
+
+  private BinaryOperator binaryOperator;
+
+  @Setup
+  public void setup() {
+    int rowCountB = operator.equals("CrossJoin") ? CROSS_JOIN_RIGHT_ROWS : rowCount;
+    tableA = BenchmarkData.table("a", rowCount, 1, 16);
+    tableB = BenchmarkData.table("b", rowCountB, 2, 16);
+    binaryOperator = createOperator(operator);
+  }
+
+  @Benchmark
+  public void execute(Blackhole blackhole) throws PhysicalException {
+    Table inputA = new Table(tableA.getHeader(), tableA.getRows());
+    Table inputB = new Table(tableB.getHeader(), tableB.getRows());
+    BenchmarkData.consume(
+        executor.executeBinaryOperator(binaryOperator, inputA, inputB, null), blackhole);
+  }
+
+  private static BinaryOperator createOperator(String operator) {
+    Filter filter = new PathFilter("a.id", Op.E, "b.id");
+    List<String> leftOrder = Arrays.asList("a.id", "a.v", "a.i", "a.s");
+    List<String> rightOrder = Arrays.asList("b.id", "b.v", "b.i", "b.s");
+    switch (operator) {
+      case "Join":
+        return new Join(SOURCE, SOURCE);
+      case "CrossJoin":
+        return new CrossJoin(SOURCE, SOURCE, "a", "b");
+      case "NestedLoopInnerJoin":
+        return innerJoin(filter, JoinAlgType.NestedLoopJoin);
+      case "HashInnerJoin":
+        return innerJoin(filter, JoinAlgType.HashJoin);
+      case "SortedMergeInnerJoin":
+        return innerJoin(filter, JoinAlgType.SortedMergeJoin);
+      case "NestedLoopOuterJoin":
+        return outerJoin(filter, JoinAlgType.NestedLoopJoin);
+      case "HashOuterJoin":
+        return outerJoin(filter, JoinAlgType.HashJoin);
+      case "SortedMergeOuterJoin":
+        return outerJoin(filter, JoinAlgType.SortedMergeJoin);
+      case "NestedLoopSingleJoin":
+        return new SingleJoin(SOURCE, SOURCE, filter, JoinAlgType.NestedLoopJoin);
+      case "HashSingleJoin":
+        return new SingleJoin(SOURCE, SOURCE, filter, JoinAlgType.HashJoin);
+      case "NestedLoopMarkJoin":
+        return new MarkJoin(SOURCE, SOURCE, filter, "&mark0", false, JoinAlgType.NestedLoopJoin);
+      case "HashMarkJoin":
+        return new MarkJoin(SOURCE, SOURCE, filter, "&mark0", false, JoinAlgType.HashJoin);
+      case "PathUnion":
+        return new PathUnion(SOURCE, SOURCE);
+      case "UnionAll":
+        return new Union(SOURCE, SOURCE, leftOrder, rightOrder, false);
+      case "UnionDistinct":
+        return new Union(SOURCE, SOURCE, leftOrder, rightOrder, true);
+      case "Except":
+        return new Except(SOURCE, SOURCE, leftOrder, rightOrder, true);
+      case "Intersect":
+        return new Intersect(SOURCE, SOURCE, leftOrder, rightOrder, true);
+      default:
+        throw new IllegalArgumentException("unknown binary operator: " + operator);
+    }
+  }
+
+  private static InnerJoin innerJoin(Filter filter, JoinAlgType joinAlgType) {
+    return new InnerJoin(
+        SOURCE, SOURCE, "a", "b", filter, Collections.emptyList(), false, joinAlgType);
+  }
+
+  private static OuterJoin outerJoin(Filter filter, JoinAlgType joinAlgType) {
+    return new OuterJoin(
+        SOURCE,
+        SOURCE,
+        "a",
+        "b",
+        OuterJoinType.LEFT,
+        filter,
+        Collections.emptyList(),
+        false,
+        joinAlgType);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import cn.edu.tsinghua.iginx.utils.ByteUtils;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 写入请求序列化路径的基准测试。客户端按行或按列将值编码为 ByteBuffer，服务端再按数据类型与位图解码，两者分别计时。
+ *
+ * <p>每行包含 LONG、DOUBLE、INTEGER、BINARY 四种类型的值，均不为空。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ByteUtilsBenchmark {
+
+  private static final List<DataType> TYPES =
+      Arrays.asList(DataType.LONG, DataType.DOUBLE, DataType.INTEGER, DataType.BINARY);
+
+  @Param({"10000", "100000"})
+  public int rowCount;
+
+  private Object[][] rowValues;
+
+  private Object[][] columnValues;
+
+  private List<ByteBuffer> rowBuffers;
+
+  private List<ByteBuffer> rowBitmaps;
+
+  private List<ByteBuffer> columnBuffers;
+
+  private List<ByteBuffer> columnBitmaps;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(20240601L);
+    int columnCount = TYPES.size();
+    rowValues = new Object[rowCount][];
+    columnValues = new Object[columnCount][rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      Object[] values =
+          new Object[] {
+            (long) i, random.nextDouble(), random.nextInt(), ("value" + i).getBytes()
+          };
+      rowValues[i] = values;
+      for (int j = 0; j < columnCount; j++) {
+        columnValues[j][i] = values[j];
+      }
+    }
+
+    rowBuffers = new ArrayList<>(rowCount);
+    rowBitmaps = new ArrayList<>(rowCount);
+    for (Object[] values : rowValues) {
+      rowBuffers.add(ByteUtils.getRowByteBuffer(values, TYPES));
+      rowBitmaps.add(ByteBuffer.wrap(fullBitmap(columnCount).getBytes()));
+    }
+    columnBuffers = new ArrayList<>(columnCount);
+    columnBitmaps = new ArrayList<>(columnCount);
+    for (int j = 0; j < columnCount; j++) {
+      columnBuffers.add(ByteUtils.getColumnByteBuffer(columnValues[j], TYPES.get(j)));
+      columnBitmaps.add(ByteBuffer.wrap(fullBitmap(rowCount).getBytes()));
+    }
+  }
+
+  @Benchmark
+  public void encodeRows(Blackhole blackhole) {
+    for (Object[] values : rowValues) {
+      blackhole.consume(ByteUtils.getRowByteBuffer(values, TYPES));
+    }
+  }
+
+  @Benchmark
+  public void encodeColumns(Blackhole blackhole) {
+    for (int j = 0; j < columnValues.length; j++) {
+      blackhole.consume(ByteUtils.getColumnByteBuffer(columnValues[j], TYPES.get(j)));
+    }
+  }
+
+  @Benchmark
+  public Object[] decodeRows() {
+    return ByteUtils.getRowValuesByDataType(duplicate(rowBuffers), TYPES, rowBitmaps);
+  }
+
+  @Benchmark
+  public Object[] decodeColumns() {
+    return ByteUtils.getColumnValuesByDataType(
+        duplicate(columnBuffers), TYPES, columnBitmaps, rowCount);
+  }
+
+  private static Bitmap fullBitmap(int size) {
+    Bitmap bitmap = new Bitmap(size);
+    for (int i = 0; i < size; i++) {
+      bitmap.mark(i);
+    }
+    return bitmap;
+  }
+
+  /** 解码会移动 ByteBuffer 的读指针，每次调用前复制一份视图，不拷贝底层数据 */
+  private static List<ByteBuffer> duplicate(List<ByteBuffer> buffers) {
+    List<ByteBuffer> result = new ArrayList<>(buffers.size());
+    for (ByteBuffer buffer : buffers) {
+      result.add(buffer.duplicate());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.ExprUtils;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BaseExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BinaryExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.ConstantExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Expression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Operator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** 逐行计算表达式的基准测试，用于衡量 ExprUtils 在算术表达式上的解释开销。 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExprUtilsBenchmark {
+
+  @Param({"Arithmetic", "NestedArithmetic", "Constant"})
+  public String expression;
+
+  @Param({"100000"})
+  public int rowCount;
+
+  private List<Row> rows;
+
+  private Expression expr;
+
+  @Setup
+  public void setup() {
+    rows = BenchmarkData.table("t", rowCount, 1, 16).getRows();
+    expr = createExpression(expression);
+  }
+
+  @Benchmark
+  public void calculateExpr(Blackhole blackhole) throws PhysicalException {
+    for (Row row : rows) {
+      blackhole.consume(ExprUtils.calculateExpr(row, expr));
+    }
+  }
+
+  private static Expression createExpression(String expression) {
+    switch (expression) {
+      case "Arithmetic": // t.v + t.i
+        return new BinaryExpression(
+            new BaseExpression("t.v"), new BaseExpression("t.i"), Operator.PLUS);
+      case "NestedArithmetic": // (t.v * 2 + t.i) / (t.id + 1)
+        return new BinaryExpression(
+            new BinaryExpression(
+                new BinaryExpression(
+                    new BaseExpression("t.v"), new ConstantExpression(2.0D), Operator.STAR),
+                new BaseExpression("t.i"),
+                Operator.PLUS),
+            new BinaryExpression(
+                new BaseExpression("t.id"), new ConstantExpression(1L), Operator.PLUS),
+            Operator.DIV);
+      case "Constant": // 1 + 2
+        return new BinaryExpression(
+            new ConstantExpression(1L), new ConstantExpression(2L), Operator.PLUS);
+      default:
+        throw new IllegalArgumentException("unknown expression: " + expression);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.engine.logical.generator.InsertGenerator;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 写入数据按分片切分的基准测试。路径与 key 分别被均匀地划分为 columnSplits 段与 keySplits 段，两两组合得到全部分片，每次调用对所有分片计算
+ * {@link InsertGenerator#getDataSection}。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertSplitBenchmark {
+
+  @Param({"Row", "Column"})
+  public RawDataType rawDataType;
+
+  @Param({"100"})
+  public int pathCount;
+
+  @Param({"10000"})
+  public int keyCount;
+
+  @Param({"0.0", "0.5"})
+  public double nullRatio;
+
+  @Param({"4"})
+  public int columnSplits;
+
+  @Param({"4"})
+  public int keySplits;
+
+  private RawData rawData;
+
+  private List<FragmentMeta> fragments;
+
+  @Setup
+  public void setup() {
+    rawData = BenchmarkData.rawData(pathCount, keyCount, nullRatio, rawDataType);
+    fragments = new ArrayList<>(columnSplits * keySplits);
+    for (int i = 0; i < columnSplits; i++) {
+      // 首尾分片的列区间不设边界
+      String startPrefix = i == 0 ? null : columnBoundary(i * pathCount / columnSplits);
+      String endPrefix =
+          i == columnSplits - 1 ? null : columnBoundary((i + 1) * pathCount / columnSplits);
+      for (int j = 0; j < keySplits; j++) {
+        long startKey = (long) j * keyCount / keySplits;
+        long endKey = j == keySplits - 1 ? Long.MAX_VALUE : (long) (j + 1) * keyCount / keySplits;
+        fragments.add(new FragmentMeta(startPrefix, endPrefix, startKey, endKey));
+      }
+    }
+  }
+
+  @Benchmark
+  public void getDataSection(Blackhole blackhole) {
+    for (FragmentMeta fragment : fragments) {
+      blackhole.consume(InsertGenerator.getDataSection(fragment, rawData));
+    }
+  }
+
+  private static String columnBoundary(int pathIndex) {
+    return String.format("root.sg.d%06d", pathIndex);
+  }
+}
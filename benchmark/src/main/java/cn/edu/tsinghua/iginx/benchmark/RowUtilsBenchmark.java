@@ -0,0 +1,108 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** RowUtils 与 FilterUtils 中行级工具方法的基准测试，包括多列排序、连接哈希表构建以及过滤条件计算。 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowUtilsBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rowCount;
+
+  @Param({"16", "1024"})
+  public int cardinality;
+
+  private List<Row> rows;
+
+  private Filter valueFilter;
+
+  private Filter andFilter;
+
+  @Setup
+  public void setup() {
+    rows = BenchmarkData.table("t", rowCount, 1, cardinality).getRows();
+    valueFilter = new ValueFilter("t.v", Op.GE, new Value(0.5D));
+    andFilter =
+        new AndFilter(
+            Arrays.asList(
+                new ValueFilter("t.v", Op.GE, new Value(0.5D)),
+                new ValueFilter("t.i", Op.L, new Value(500))));
+  }
+
+  /** 按 t.s 升序、t.v 降序排序，计时包含拷贝输入列表的开销 */
+  @Benchmark
+  public List<Row> sortRows() throws PhysicalException {
+    List<Row> copy = new ArrayList<>(rows);
+    RowUtils.sortRows(copy, Arrays.asList(true, false), Arrays.asList("t.s", "t.v"));
+    return copy;
+  }
+
+  @Benchmark
+  public Object establishHashTable() {
+    return RowUtils.establishHashTable(rows, "t.i", false);
+  }
+
+  @Benchmark
+  public void validateValueFilter(Blackhole blackhole) throws PhysicalException {
+    validate(valueFilter, blackhole);
+  }
+
+  @Benchmark
+  public void validateAndFilter(Blackhole blackhole) throws PhysicalException {
+    validate(andFilter, blackhole);
+  }
+
+  private void validate(Filter filter, Blackhole blackhole) throws PhysicalException {
+    for (Row row : rows) {
+      blackhole.consume(FilterUtils.validate(filter, row));
+    }
+  }
+}
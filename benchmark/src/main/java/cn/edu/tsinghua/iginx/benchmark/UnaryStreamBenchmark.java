@@ -0,0 +1,200 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.benchmark;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.StreamOperatorMemoryExecutor;
+import cn.edu.tsinghua.iginx.engine.shared.KeyRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BaseExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BinaryExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Expression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionParams;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.ArithmeticExpr;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Last;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Max;
+import cn.edu.tsinghua.iginx.engine.shared.operator.AddSchemaPrefix;
+import cn.edu.tsinghua.iginx.engine.shared.operator.AddSequence;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Distinct;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
+import cn.edu.tsinghua.iginx.engine.shared.operator.GroupBy;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Limit;
+import cn.edu.tsinghua.iginx.engine.shared.operator.MappingTransform;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Rename;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Reorder;
+import cn.edu.tsinghua.iginx.engine.shared.operator.RowTransform;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
+import cn.edu.tsinghua.iginx.engine.shared.operator.SetTransform;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Sort;
+import cn.edu.tsinghua.iginx.engine.shared.operator.UnaryOperator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.ValueToSelectedPath;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.KeyFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
+import cn.edu.tsinghua.iginx.engine.shared.source.EmptySource;
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** 单输入算子的基准测试，覆盖 StreamOperatorMemoryExecutor 支持的全部一元算子。每次调用读取完整的结果。 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UnaryStreamBenchmark {
+
+  private static final Source SOURCE = EmptySource.EMPTY_SOURCE;
+
+  @Param({
+    "Project",
+    "Select",
+    "Sort",
+    "Limit",
+    "Downsample",
+    "RowTransform",
+    "SetTransform",
+    "MappingTransform",
+    "Rename",
+    "Reorder",
+    "AddSchemaPrefix",
+    "GroupBy",
+    "Distinct",
+    "AddSequence",
+    "ValueToSelectedPath"
+  })
+  public String operator;
+
+  @Param({"10000", "100000"})
+  public int rowCount;
+
+  @Param({"16"})
+  public int cardinality;
+
+  private final StreamOperatorMemoryExecutor executor = StreamOperatorMemoryExecutor.getInstance();
+
+  private Table table;
+
+  private UnaryOperator unaryOperator;
+
+  @Setup
+  public void setup() {
+    table = BenchmarkData.table("t", rowCount, 1, cardinality);
+    unaryOperator = createOperator(operator, rowCount);
+  }
+
+  @Benchmark
+  public void execute(Blackhole blackhole) throws PhysicalException {
+    Table input = new Table(table.getHeader(), table.getRows());
+    BenchmarkData.consume(executor.executeUnaryOperator(unaryOperator, input, null), blackhole);
+  }
+
+  private static UnaryOperator createOperator(String operator, int rowCount) {
+    FunctionParams valueParams = new FunctionParams(new BaseExpression("t.v"));
+    switch (operator) {
+      case "Project":
+        return new Project(SOURCE, Arrays.asList("t.id", "t.v"), null);
+      case "Select":
+        return new Select(
+            SOURCE,
+            new AndFilter(
+                Arrays.asList(
+                    new KeyFilter(Op.GE, rowCount / 10),
+                    new ValueFilter("t.v", Op.G, new Value(0.5)))),
+            null);
+      case "Sort":
+        return new Sort(
+            SOURCE,
+            Collections.singletonList(new BaseExpression("t.v")),
+            Collections.singletonList(Sort.SortType.ASC));
+      case "Limit":
+        return new Limit(SOURCE, rowCount / 2, rowCount / 4);
+      case "Downsample":
+        return new Downsample(
+            SOURCE,
+            100,
+            100,
+            Collections.singletonList(new FunctionCall(Avg.getInstance(), valueParams)),
+            new KeyRange(0, rowCount));
+      case "RowTransform":
+        Expression expr =
+            new BinaryExpression(
+                new BaseExpression("t.v"),
+                new BinaryExpression(
+                    new BaseExpression("t.i"), new BaseExpression("t.id"), Operator.STAR),
+                Operator.PLUS);
+        return new RowTransform(
+            SOURCE,
+            Collections.singletonList(
+                new FunctionCall(ArithmeticExpr.getInstance(), new FunctionParams(expr))));
+      case "SetTransform":
+        return new SetTransform(
+            SOURCE, Collections.singletonList(new FunctionCall(Max.getInstance(), valueParams)));
+      case "MappingTransform":
+        return new MappingTransform(
+            SOURCE, Collections.singletonList(new FunctionCall(Last.getInstance(), valueParams)));
+      case "Rename":
+        return new Rename(
+            SOURCE, Arrays.asList(new Pair<>("t.id", "r.id"), new Pair<>("t.v", "r.v")));
+      case "Reorder":
+        return new Reorder(SOURCE, Arrays.asList("t.s", "t.v", "t.id"));
+      case "AddSchemaPrefix":
+        return new AddSchemaPrefix(SOURCE, "schema");
+      case "GroupBy":
+        return new GroupBy(
+            SOURCE,
+            Collections.singletonList(new BaseExpression("t.s")),
+            Collections.singletonList(new FunctionCall(Avg.getInstance(), valueParams)));
+      case "Distinct":
+        return new Distinct(SOURCE, Collections.singletonList("t.s"));
+      case "AddSequence":
+        return new AddSequence(
+            SOURCE,
+            Collections.singletonList(0L),
+            Collections.singletonList(1L),
+            Collections.singletonList("seq"));
+      case "ValueToSelectedPath":
+        return new ValueToSelectedPath(SOURCE, "t");
+      default:
+        throw new IllegalArgumentException("unknown unary operator: " + operator);
+    }
+  }
+}
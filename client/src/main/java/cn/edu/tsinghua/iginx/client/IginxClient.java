@@ -76,6 +76,12 @@ public class IginxClient {
   private static final String FETCH_SIZE_ARGS = "fs";
   private static final String FETCH_SIZE_NAME = "fetch_size";
 
+  private static final String FRAMED_TRANSPORT_ARGS = "ft";
+  private static final String FRAMED_TRANSPORT_NAME = "framed_transport";
+
+  private static final String COMPACT_PROTOCOL_ARGS = "cp";
+  private static final String COMPACT_PROTOCOL_NAME = "compact_protocol";
+
   private static final String HELP_ARGS = "help";
 
   private static final int MAX_HELP_CONSOLE_WIDTH = 88;
@@ -114,6 +120,16 @@ public class IginxClient {
     options.addOption(EXECUTE_ARGS, EXECUTE_NAME, true, "Execute (optional)");
     options.addOption(
         FETCH_SIZE_ARGS, FETCH_SIZE_NAME, true, "Fetch size per query (optional, default 1000)");
+    options.addOption(
+        FRAMED_TRANSPORT_ARGS,
+        FRAMED_TRANSPORT_NAME,
+        false,
+        "Use framed transport, required by non-blocking IGinX server (optional)");
+    options.addOption(
+        COMPACT_PROTOCOL_ARGS,
+        COMPACT_PROTOCOL_NAME,
+        false,
+        "Use compact protocol, must match the server's thriftProtocol (optional)");
 
     return options;
   }
@@ -204,6 +220,8 @@ public class IginxClient {
       fetchSize = parseArg(FETCH_SIZE_ARGS, FETCH_SIZE_NAME, false, "1000");
 
       session = new Session(host, port, username, password);
+      session.setUseFramedTransport(commandLine.hasOption(FRAMED_TRANSPORT_ARGS));
+      session.setUseCompactProtocol(commandLine.hasOption(COMPACT_PROTOCOL_ARGS));
       session.openSession();
 
       if (execute.equals("")) {
@@ -27,8 +27,13 @@ import cn.edu.tsinghua.iginx.rest.RestServer;
 import cn.edu.tsinghua.iginx.thrift.IService;
 import org.apache.thrift.TProcessor;
 import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.server.THsHaServer;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
@@ -56,17 +61,65 @@ public class Iginx {
 
   private void startServer() throws TTransportException {
     TProcessor processor = new IService.Processor<IService.Iface>(IginxWorker.getInstance());
-    TServerSocket serverTransport =
-        new TServerSocket(ConfigDescriptor.getInstance().getConfig().getPort());
-    TThreadPoolServer.Args args =
-        new TThreadPoolServer.Args(serverTransport)
-            .processor(processor)
-            .minWorkerThreads(config.getMinThriftWorkerThreadNum())
-            .maxWorkerThreads(config.getMaxThriftWrokerThreadNum());
-    args.protocolFactory(new TBinaryProtocol.Factory());
-    TServer server = new TThreadPoolServer(args);
+    TServer server = createServer(processor, config);
     LOGGER.info("iginx starts successfully!");
     System.out.print("\n\nIGinX is now in service......\n\n");
     server.serve();
   }
+
+  /** 按 thriftServerType、thriftProtocol 配置创建服务端，尚未开始服务 */
+  static TServer createServer(TProcessor processor, Config config) throws TTransportException {
+    TProtocolFactory protocolFactory;
+    switch (config.getThriftProtocol().toLowerCase()) {
+      case "binary":
+        protocolFactory = new TBinaryProtocol.Factory();
+        break;
+      case "compact":
+        protocolFactory = new TCompactProtocol.Factory();
+        break;
+      default:
+        throw new IllegalArgumentException(
+            "unknown thrift protocol: " + config.getThriftProtocol());
+    }
+    switch (config.getThriftServerType().toLowerCase()) {
+      case "threadpool":
+        TThreadPoolServer.Args args =
+            new TThreadPoolServer.Args(new TServerSocket(config.getPort()))
+                .processor(processor)
+                .minWorkerThreads(config.getMinThriftWorkerThreadNum())
+                .maxWorkerThreads(config.getMaxThriftWrokerThreadNum());
+        args.protocolFactory(protocolFactory);
+        return new TThreadPoolServer(args);
+      case "hsha":
+        THsHaServer.Args hshaArgs =
+            new THsHaServer.Args(createNonblockingServerSocket(config))
+                .minWorkerThreads(config.getThriftSelectorWorkerThreadNum())
+                .maxWorkerThreads(config.getThriftSelectorWorkerThreadNum());
+        hshaArgs.processor(processor).protocolFactory(protocolFactory);
+        hshaArgs.maxReadBufferBytes = config.getThriftMaxFrameSize();
+        return new THsHaServer(hshaArgs);
+      case "threadedselector":
+        TThreadedSelectorServer.Args selectorArgs =
+            new TThreadedSelectorServer.Args(createNonblockingServerSocket(config))
+                .selectorThreads(config.getThriftSelectorThreadNum())
+                .workerThreads(config.getThriftSelectorWorkerThreadNum());
+        selectorArgs.processor(processor).protocolFactory(protocolFactory);
+        selectorArgs.maxReadBufferBytes = config.getThriftMaxFrameSize();
+        return new TThreadedSelectorServer(selectorArgs);
+      default:
+        throw new IllegalArgumentException(
+            "unknown thrift server type: " + config.getThriftServerType());
+    }
+  }
+
+  /**
+   * 非阻塞模式下连接由选择器线程处理，不再为每个连接占用一个线程，客户端需要使用分帧传输。
+   *
+   * <p>thrift 0.16 的非阻塞套接字不接受帧长度参数，帧长度上限由服务端参数的 maxReadBufferBytes 限制
+   */
+  private static TNonblockingServerSocket createNonblockingServerSocket(Config config)
+      throws TTransportException {
+    return new TNonblockingServerSocket(
+        new TNonblockingServerSocket.NonblockingAbstractServerSocketArgs().port(config.getPort()));
+  }
 }
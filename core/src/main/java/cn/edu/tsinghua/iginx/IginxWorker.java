@@ -41,6 +41,7 @@ import cn.edu.tsinghua.iginx.engine.physical.PhysicalEngineImpl;
 import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
 import cn.edu.tsinghua.iginx.engine.physical.storage.StorageManager;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.cache.PlanCache;
 import cn.edu.tsinghua.iginx.engine.shared.function.manager.FunctionManager;
 import cn.edu.tsinghua.iginx.exception.StatusCode;
 import cn.edu.tsinghua.iginx.metadata.DefaultMetaManager;
@@ -151,12 +152,17 @@ public class IginxWorker implements IService.Iface {
     long sessionId = sessionManager.openSession(username);
     OpenSessionResp resp = new OpenSessionResp(RpcUtils.SUCCESS);
     resp.setSessionId(sessionId);
+    if (req.isEnableColumnarResult() && config.isEnableColumnarResult()) {
+      sessionManager.enableColumnarResult(sessionId);
+      resp.setColumnarResult(true);
+    }
     return resp;
   }
 
   @Override
   public Status closeSession(CloseSessionReq req) {
     sessionManager.closeSession(req.getSessionId());
+    queryManager.releaseSessionQueries(req.getSessionId());
     return RpcUtils.SUCCESS;
   }
 
@@ -662,7 +668,14 @@ public class IginxWorker implements IService.Iface {
     if (req.isSetRemoteSession()) {
       ctx.setRemoteSession(req.isRemoteSession());
     }
+    if (req.isSetFetchSize()) {
+      ctx.setFetchSize(req.getFetchSize());
+    }
+    ctx.setColumnarResult(sessionManager.isColumnarResultEnabled(req.getSessionId()));
     executor.execute(ctx);
+    if (ctx.getResult().isHasMoreResults()) {
+      queryManager.registerQuery(ctx.getId(), ctx);
+    }
     return ctx.getResult().getExecuteSqlResp();
   }
 
@@ -826,6 +839,7 @@ public class IginxWorker implements IService.Iface {
   public ExecuteStatementResp executeStatement(ExecuteStatementReq req) {
     StatementExecutor executor = StatementExecutor.getInstance();
     RequestContext ctx = contextBuilder.build(req);
+    ctx.setColumnarResult(sessionManager.isColumnarResultEnabled(req.getSessionId()));
     executor.execute(ctx);
     queryManager.registerQuery(ctx.getId(), ctx);
     return ctx.getResult().getExecuteStatementResp(req.getFetchSize());
@@ -837,7 +851,9 @@ public class IginxWorker implements IService.Iface {
     if (context == null) {
       return new FetchResultsResp(RpcUtils.SUCCESS, false);
     }
-    return context.getResult().fetch(req.getFetchSize());
+    synchronized (context) {
+      return context.getResult().fetch(req.getFetchSize());
+    }
   }
 
   @Override
@@ -1331,6 +1347,7 @@ public class IginxWorker implements IService.Iface {
     Map<String, Boolean> rulesChange = req.getRulesChange();
     try {
       getRuleCollection().setRules(rulesChange);
+      PlanCache.getInstance().invalidateAll();
       return RpcUtils.SUCCESS;
     } catch (Exception e) {
       LOGGER.error("set rules failed: ", e);
@@ -33,6 +33,7 @@ public class SessionManager {
 
   private final UserManager userManager;
   private final Set<Long> sessionIds = ConcurrentHashMap.newKeySet();
+  private final Set<Long> columnarResultSessionIds = ConcurrentHashMap.newKeySet();
 
   private SessionManager(UserManager userManager) {
     this.userManager = userManager;
@@ -76,6 +77,18 @@ public class SessionManager {
   public void closeSession(long sessionId) {
     LOGGER.info("session id {} is removed.", sessionId);
     sessionIds.remove(sessionId);
+    columnarResultSessionIds.remove(sessionId);
+  }
+
+  /** 标记该会话的查询结果使用列式编码（QueryDataSetV3）返回 */
+  public void enableColumnarResult(long sessionId) {
+    if (sessionIds.contains(sessionId)) {
+      columnarResultSessionIds.add(sessionId);
+    }
+  }
+
+  public boolean isColumnarResultEnabled(long sessionId) {
+    return columnarResultSessionIds.contains(sessionId);
   }
 
   public boolean isSessionClosed(long sessionId) {
@@ -131,6 +131,30 @@ public class Config {
 
   private int maxCachedPhysicalTaskPerStorage = 500;
 
+  private int storageTaskDispatcherPoolSize = 16;
+
+  private int storageTaskDispatchBatchSize = 16;
+
+  private boolean enableSharedScan = false;
+
+  private boolean enableInsertGroupCommit = false;
+
+  private long insertGroupCommitWindowMs = 5;
+
+  private int insertGroupCommitMaxPoints = 100000;
+
+  private boolean enableQueryResultCache = false;
+
+  private long queryResultCacheCapacity = 67108864L;
+
+  private long queryResultCacheTTL = 60000L;
+
+  private int queryResultCacheMaxRows = 10000;
+
+  private boolean enablePlanCache = false;
+
+  private int planCacheCapacity = 1024;
+
   private double cachedTimeseriesProb = 0.01;
 
   private int retryCount = 10;
@@ -185,6 +209,16 @@ public class Config {
 
   private int maxThriftWrokerThreadNum = 2147483647;
 
+  private String thriftServerType = "threadPool";
+
+  private String thriftProtocol = "binary";
+
+  private int thriftSelectorThreadNum = 4;
+
+  private int thriftSelectorWorkerThreadNum = 200;
+
+  private int thriftMaxFrameSize = 268435456;
+
   private String ruleBasedOptimizer =
       "NotFilterRemoveRule=on,FragmentPruningByFilterRule=on,ColumnPruningRule=on,FragmentPruningByPatternRule=on";
 
@@ -210,6 +244,24 @@ public class Config {
 
   private int streamParallelGroupByWorkerNum = 5;
 
+  private boolean enableVectorizedExecution = false;
+
+  private int vectorizedBatchSize = 4096;
+
+  private boolean enableSpill = true;
+
+  private long queryMemoryLimit = 536870912L;
+
+  private String spillDir = "spill";
+
+  private int spillPartitionNum = 16;
+
+  private int sqlResultPagingThreshold = 10000;
+
+  private long queryIdleTimeout = 600000;
+
+  private boolean enableColumnarResult = true;
+
   /////////////
 
   private int batchSizeImportCsv = 10000;
@@ -626,6 +678,102 @@ public class Config {
     this.maxCachedPhysicalTaskPerStorage = maxCachedPhysicalTaskPerStorage;
   }
 
+  public int getStorageTaskDispatcherPoolSize() {
+    return storageTaskDispatcherPoolSize;
+  }
+
+  public void setStorageTaskDispatcherPoolSize(int storageTaskDispatcherPoolSize) {
+    this.storageTaskDispatcherPoolSize = storageTaskDispatcherPoolSize;
+  }
+
+  public int getStorageTaskDispatchBatchSize() {
+    return storageTaskDispatchBatchSize;
+  }
+
+  public void setStorageTaskDispatchBatchSize(int storageTaskDispatchBatchSize) {
+    this.storageTaskDispatchBatchSize = storageTaskDispatchBatchSize;
+  }
+
+  public boolean isEnableSharedScan() {
+    return enableSharedScan;
+  }
+
+  public void setEnableSharedScan(boolean enableSharedScan) {
+    this.enableSharedScan = enableSharedScan;
+  }
+
+  public boolean isEnableInsertGroupCommit() {
+    return enableInsertGroupCommit;
+  }
+
+  public void setEnableInsertGroupCommit(boolean enableInsertGroupCommit) {
+    this.enableInsertGroupCommit = enableInsertGroupCommit;
+  }
+
+  public long getInsertGroupCommitWindowMs() {
+    return insertGroupCommitWindowMs;
+  }
+
+  public void setInsertGroupCommitWindowMs(long insertGroupCommitWindowMs) {
+    this.insertGroupCommitWindowMs = insertGroupCommitWindowMs;
+  }
+
+  public int getInsertGroupCommitMaxPoints() {
+    return insertGroupCommitMaxPoints;
+  }
+
+  public void setInsertGroupCommitMaxPoints(int insertGroupCommitMaxPoints) {
+    this.insertGroupCommitMaxPoints = insertGroupCommitMaxPoints;
+  }
+
+  public boolean isEnableQueryResultCache() {
+    return enableQueryResultCache;
+  }
+
+  public void setEnableQueryResultCache(boolean enableQueryResultCache) {
+    this.enableQueryResultCache = enableQueryResultCache;
+  }
+
+  public long getQueryResultCacheCapacity() {
+    return queryResultCacheCapacity;
+  }
+
+  public void setQueryResultCacheCapacity(long queryResultCacheCapacity) {
+    this.queryResultCacheCapacity = queryResultCacheCapacity;
+  }
+
+  public long getQueryResultCacheTTL() {
+    return queryResultCacheTTL;
+  }
+
+  public void setQueryResultCacheTTL(long queryResultCacheTTL) {
+    this.queryResultCacheTTL = queryResultCacheTTL;
+  }
+
+  public int getQueryResultCacheMaxRows() {
+    return queryResultCacheMaxRows;
+  }
+
+  public void setQueryResultCacheMaxRows(int queryResultCacheMaxRows) {
+    this.queryResultCacheMaxRows = queryResultCacheMaxRows;
+  }
+
+  public boolean isEnablePlanCache() {
+    return enablePlanCache;
+  }
+
+  public void setEnablePlanCache(boolean enablePlanCache) {
+    this.enablePlanCache = enablePlanCache;
+  }
+
+  public int getPlanCacheCapacity() {
+    return planCacheCapacity;
+  }
+
+  public void setPlanCacheCapacity(int planCacheCapacity) {
+    this.planCacheCapacity = planCacheCapacity;
+  }
+
   public double getCachedTimeseriesProb() {
     return cachedTimeseriesProb;
   }
@@ -834,6 +982,46 @@ public class Config {
     this.maxThriftWrokerThreadNum = maxThriftWrokerThreadNum;
   }
 
+  public String getThriftServerType() {
+    return thriftServerType;
+  }
+
+  public void setThriftServerType(String thriftServerType) {
+    this.thriftServerType = thriftServerType;
+  }
+
+  public String getThriftProtocol() {
+    return thriftProtocol;
+  }
+
+  public void setThriftProtocol(String thriftProtocol) {
+    this.thriftProtocol = thriftProtocol;
+  }
+
+  public int getThriftSelectorThreadNum() {
+    return thriftSelectorThreadNum;
+  }
+
+  public void setThriftSelectorThreadNum(int thriftSelectorThreadNum) {
+    this.thriftSelectorThreadNum = thriftSelectorThreadNum;
+  }
+
+  public int getThriftSelectorWorkerThreadNum() {
+    return thriftSelectorWorkerThreadNum;
+  }
+
+  public void setThriftSelectorWorkerThreadNum(int thriftSelectorWorkerThreadNum) {
+    this.thriftSelectorWorkerThreadNum = thriftSelectorWorkerThreadNum;
+  }
+
+  public int getThriftMaxFrameSize() {
+    return thriftMaxFrameSize;
+  }
+
+  public void setThriftMaxFrameSize(int thriftMaxFrameSize) {
+    this.thriftMaxFrameSize = thriftMaxFrameSize;
+  }
+
   public int getParallelFilterThreshold() {
     return parallelFilterThreshold;
   }
@@ -882,6 +1070,78 @@ public class Config {
     this.streamParallelGroupByWorkerNum = streamParallelGroupByWorkerNum;
   }
 
+  public boolean isEnableVectorizedExecution() {
+    return enableVectorizedExecution;
+  }
+
+  public void setEnableVectorizedExecution(boolean enableVectorizedExecution) {
+    this.enableVectorizedExecution = enableVectorizedExecution;
+  }
+
+  public int getVectorizedBatchSize() {
+    return vectorizedBatchSize;
+  }
+
+  public void setVectorizedBatchSize(int vectorizedBatchSize) {
+    this.vectorizedBatchSize = vectorizedBatchSize;
+  }
+
+  public boolean isEnableSpill() {
+    return enableSpill;
+  }
+
+  public void setEnableSpill(boolean enableSpill) {
+    this.enableSpill = enableSpill;
+  }
+
+  public long getQueryMemoryLimit() {
+    return queryMemoryLimit;
+  }
+
+  public void setQueryMemoryLimit(long queryMemoryLimit) {
+    this.queryMemoryLimit = queryMemoryLimit;
+  }
+
+  public String getSpillDir() {
+    return spillDir;
+  }
+
+  public void setSpillDir(String spillDir) {
+    this.spillDir = spillDir;
+  }
+
+  public int getSpillPartitionNum() {
+    return spillPartitionNum;
+  }
+
+  public void setSpillPartitionNum(int spillPartitionNum) {
+    this.spillPartitionNum = spillPartitionNum;
+  }
+
+  public int getSqlResultPagingThreshold() {
+    return sqlResultPagingThreshold;
+  }
+
+  public void setSqlResultPagingThreshold(int sqlResultPagingThreshold) {
+    this.sqlResultPagingThreshold = sqlResultPagingThreshold;
+  }
+
+  public long getQueryIdleTimeout() {
+    return queryIdleTimeout;
+  }
+
+  public void setQueryIdleTimeout(long queryIdleTimeout) {
+    this.queryIdleTimeout = queryIdleTimeout;
+  }
+
+  public boolean isEnableColumnarResult() {
+    return enableColumnarResult;
+  }
+
+  public void setEnableColumnarResult(boolean enableColumnarResult) {
+    this.enableColumnarResult = enableColumnarResult;
+  }
+
   public int getBatchSizeImportCsv() {
     return batchSizeImportCsv;
   }
@@ -166,6 +166,30 @@ public class ConfigDescriptor {
 
       config.setMaxCachedPhysicalTaskPerStorage(
           Integer.parseInt(properties.getProperty("maxCachedPhysicalTaskPerStorage", "500")));
+      config.setStorageTaskDispatcherPoolSize(
+          Integer.parseInt(properties.getProperty("storageTaskDispatcherPoolSize", "16")));
+      config.setStorageTaskDispatchBatchSize(
+          Integer.parseInt(properties.getProperty("storageTaskDispatchBatchSize", "16")));
+      config.setEnableSharedScan(
+          Boolean.parseBoolean(properties.getProperty("enableSharedScan", "false")));
+      config.setEnableInsertGroupCommit(
+          Boolean.parseBoolean(properties.getProperty("enableInsertGroupCommit", "false")));
+      config.setInsertGroupCommitWindowMs(
+          Long.parseLong(properties.getProperty("insertGroupCommitWindowMs", "5")));
+      config.setInsertGroupCommitMaxPoints(
+          Integer.parseInt(properties.getProperty("insertGroupCommitMaxPoints", "100000")));
+      config.setEnableQueryResultCache(
+          Boolean.parseBoolean(properties.getProperty("enableQueryResultCache", "false")));
+      config.setQueryResultCacheCapacity(
+          Long.parseLong(properties.getProperty("queryResultCacheCapacity", "67108864")));
+      config.setQueryResultCacheTTL(
+          Long.parseLong(properties.getProperty("queryResultCacheTTL", "60000")));
+      config.setQueryResultCacheMaxRows(
+          Integer.parseInt(properties.getProperty("queryResultCacheMaxRows", "10000")));
+      config.setEnablePlanCache(
+          Boolean.parseBoolean(properties.getProperty("enablePlanCache", "false")));
+      config.setPlanCacheCapacity(
+          Integer.parseInt(properties.getProperty("planCacheCapacity", "1024")));
 
       config.setCachedTimeseriesProb(
           Double.parseDouble(properties.getProperty("cachedTimeseriesProb", "0.01")));
@@ -216,6 +240,14 @@ public class ConfigDescriptor {
           Integer.parseInt(properties.getProperty("minThriftWorkerThreadNum", "20")));
       config.setMaxThriftWrokerThreadNum(
           Integer.parseInt(properties.getProperty("maxThriftWorkerThreadNum", "2147483647")));
+      config.setThriftServerType(properties.getProperty("thriftServerType", "threadPool"));
+      config.setThriftProtocol(properties.getProperty("thriftProtocol", "binary"));
+      config.setThriftSelectorThreadNum(
+          Integer.parseInt(properties.getProperty("thriftSelectorThreadNum", "4")));
+      config.setThriftSelectorWorkerThreadNum(
+          Integer.parseInt(properties.getProperty("thriftSelectorWorkerThreadNum", "200")));
+      config.setThriftMaxFrameSize(
+          Integer.parseInt(properties.getProperty("thriftMaxFrameSize", "268435456")));
       config.setParallelFilterThreshold(
           Integer.parseInt(properties.getProperty("parallelFilterThreshold", "10000")));
       config.setParallelGroupByRowsThreshold(
@@ -228,6 +260,22 @@ public class ConfigDescriptor {
           Integer.parseInt(properties.getProperty("parallelGroupByPoolNum", "5")));
       config.setStreamParallelGroupByWorkerNum(
           Integer.parseInt(properties.getProperty("streamParallelGroupByWorkerNum", "5")));
+      config.setEnableVectorizedExecution(
+          Boolean.parseBoolean(properties.getProperty("enableVectorizedExecution", "false")));
+      config.setVectorizedBatchSize(
+          Integer.parseInt(properties.getProperty("vectorizedBatchSize", "4096")));
+      config.setEnableSpill(Boolean.parseBoolean(properties.getProperty("enableSpill", "true")));
+      config.setQueryMemoryLimit(
+          Long.parseLong(properties.getProperty("queryMemoryLimit", "536870912")));
+      config.setSpillDir(properties.getProperty("spillDir", "spill"));
+      config.setSpillPartitionNum(
+          Integer.parseInt(properties.getProperty("spillPartitionNum", "16")));
+      config.setSqlResultPagingThreshold(
+          Integer.parseInt(properties.getProperty("sqlResultPagingThreshold", "10000")));
+      config.setQueryIdleTimeout(
+          Long.parseLong(properties.getProperty("queryIdleTimeout", "600000")));
+      config.setEnableColumnarResult(
+          Boolean.parseBoolean(properties.getProperty("enableColumnarResult", "true")));
       config.setBatchSizeImportCsv(
           Integer.parseInt(properties.getProperty("batchSizeImportCsv", "10000")));
       config.setRuleBasedOptimizer(
@@ -301,6 +349,29 @@ public class ConfigDescriptor {
     config.setMaxCachedPhysicalTaskPerStorage(
         EnvUtils.loadEnv(
             "maxCachedPhysicalTaskPerStorage", config.getMaxCachedPhysicalTaskPerStorage()));
+    config.setStorageTaskDispatcherPoolSize(
+        EnvUtils.loadEnv(
+            "storageTaskDispatcherPoolSize", config.getStorageTaskDispatcherPoolSize()));
+    config.setStorageTaskDispatchBatchSize(
+        EnvUtils.loadEnv("storageTaskDispatchBatchSize", config.getStorageTaskDispatchBatchSize()));
+    config.setEnableSharedScan(EnvUtils.loadEnv("enableSharedScan", config.isEnableSharedScan()));
+    config.setEnableInsertGroupCommit(
+        EnvUtils.loadEnv("enableInsertGroupCommit", config.isEnableInsertGroupCommit()));
+    config.setInsertGroupCommitWindowMs(
+        EnvUtils.loadEnv("insertGroupCommitWindowMs", config.getInsertGroupCommitWindowMs()));
+    config.setInsertGroupCommitMaxPoints(
+        EnvUtils.loadEnv("insertGroupCommitMaxPoints", config.getInsertGroupCommitMaxPoints()));
+    config.setEnableQueryResultCache(
+        EnvUtils.loadEnv("enableQueryResultCache", config.isEnableQueryResultCache()));
+    config.setQueryResultCacheCapacity(
+        EnvUtils.loadEnv("queryResultCacheCapacity", config.getQueryResultCacheCapacity()));
+    config.setQueryResultCacheTTL(
+        EnvUtils.loadEnv("queryResultCacheTTL", config.getQueryResultCacheTTL()));
+    config.setQueryResultCacheMaxRows(
+        EnvUtils.loadEnv("queryResultCacheMaxRows", config.getQueryResultCacheMaxRows()));
+    config.setEnablePlanCache(EnvUtils.loadEnv("enablePlanCache", config.isEnablePlanCache()));
+    config.setPlanCacheCapacity(
+        EnvUtils.loadEnv("planCacheCapacity", config.getPlanCacheCapacity()));
     config.setCachedTimeseriesProb(
         EnvUtils.loadEnv("cachedTimeseriesProb", config.getCachedTimeseriesProb()));
     config.setRetryCount(EnvUtils.loadEnv("retryCount", config.getRetryCount()));
@@ -358,6 +429,20 @@ public class ConfigDescriptor {
     config.setStreamParallelGroupByWorkerNum(
         EnvUtils.loadEnv(
             "streamParallelGroupByWorkerNum", config.getStreamParallelGroupByWorkerNum()));
+    config.setEnableVectorizedExecution(
+        EnvUtils.loadEnv("enableVectorizedExecution", config.isEnableVectorizedExecution()));
+    config.setVectorizedBatchSize(
+        EnvUtils.loadEnv("vectorizedBatchSize", config.getVectorizedBatchSize()));
+    config.setEnableSpill(EnvUtils.loadEnv("enableSpill", config.isEnableSpill()));
+    config.setQueryMemoryLimit(EnvUtils.loadEnv("queryMemoryLimit", config.getQueryMemoryLimit()));
+    config.setSpillDir(EnvUtils.loadEnv("spillDir", config.getSpillDir()));
+    config.setSpillPartitionNum(
+        EnvUtils.loadEnv("spillPartitionNum", config.getSpillPartitionNum()));
+    config.setSqlResultPagingThreshold(
+        EnvUtils.loadEnv("sqlResultPagingThreshold", config.getSqlResultPagingThreshold()));
+    config.setQueryIdleTimeout(EnvUtils.loadEnv("queryIdleTimeout", config.getQueryIdleTimeout()));
+    config.setEnableColumnarResult(
+        EnvUtils.loadEnv("enableColumnarResult", config.isEnableColumnarResult()));
     config.setBatchSizeImportCsv(
         EnvUtils.loadEnv("batchSizeImportCsv", config.getBatchSizeImportCsv()));
     config.setUTTestEnv(EnvUtils.loadEnv("utTestEnv", config.isUTTestEnv()));
@@ -31,6 +31,7 @@ import cn.edu.tsinghua.iginx.thrift.TagFilterType;
 import cn.edu.tsinghua.iginx.utils.Bitmap;
 import cn.edu.tsinghua.iginx.utils.ByteUtils;
 import cn.edu.tsinghua.iginx.utils.TimeUtils;
+import com.google.common.primitives.Longs;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -130,11 +131,11 @@ public class ContextBuilder {
       List<Map<String, String>> tagsList,
       TimePrecision timePrecision) {
     long[] timeArray = ByteUtils.getLongArrayFromByteArray(timestamps);
-    List<Long> times = new ArrayList<>();
     if (timePrecision == null) timePrecision = config.getTimePrecision();
-    for (long time : timeArray) {
-      times.add(TimeUtils.getTimeInNs(time, timePrecision));
+    for (int i = 0; i < timeArray.length; i++) {
+      timeArray[i] = TimeUtils.getTimeInNs(timeArray[i], timePrecision);
     }
+    List<Long> times = Longs.asList(timeArray); // 原地转换精度，不逐个装箱
 
     List<Bitmap> bitmaps;
     Object[] values;
@@ -20,6 +20,8 @@
 package cn.edu.tsinghua.iginx.engine;
 
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.cache.PlanCache;
+import cn.edu.tsinghua.iginx.engine.shared.cache.SqlTemplate;
 import cn.edu.tsinghua.iginx.sql.IginXSqlVisitor;
 import cn.edu.tsinghua.iginx.sql.SQLParseError;
 import cn.edu.tsinghua.iginx.sql.SqlLexer;
@@ -99,4 +101,22 @@ public class StatementBuilder {
     ctx.setStatement(statement);
     ctx.setSqlType(typeMap.get(statement.getType()));
   }
+
+  /** 从语句模板构造语句，语法树按模板缓存，模板相同的语句只需要绑定新的常量后重新生成语句 */
+  public void buildFromTemplate(RequestContext ctx, SqlTemplate template) {
+    PlanCache cache = PlanCache.getInstance();
+    ParseTree cached = cache.getParseTree(template.getTemplate());
+    if (cached == null) {
+      SqlParser parser = new SqlParser(new CommonTokenStream(template.newTokenSource()));
+      parser.removeErrorListeners();
+      parser.addErrorListener(SQLParseError.INSTANCE);
+      cached = parser.sqlStatement();
+      cache.putParseTree(template.getTemplate(), cached);
+    }
+
+    ParseTree tree = cached;
+    Statement statement = template.bind(() -> new IginXSqlVisitor().visit(tree));
+    ctx.setStatement(statement);
+    ctx.setSqlType(typeMap.get(statement.getType()));
+  }
 }
@@ -39,6 +39,9 @@ import cn.edu.tsinghua.iginx.engine.physical.task.PhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.visitor.TaskInfoVisitor;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
 import cn.edu.tsinghua.iginx.engine.shared.Result;
+import cn.edu.tsinghua.iginx.engine.shared.cache.PlanCache;
+import cn.edu.tsinghua.iginx.engine.shared.cache.QueryResultCache;
+import cn.edu.tsinghua.iginx.engine.shared.cache.SqlTemplate;
 import cn.edu.tsinghua.iginx.engine.shared.constraint.ConstraintManager;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
@@ -57,6 +60,7 @@ import cn.edu.tsinghua.iginx.engine.shared.processor.*;
 import cn.edu.tsinghua.iginx.exception.StatusCode;
 import cn.edu.tsinghua.iginx.metadata.DefaultMetaManager;
 import cn.edu.tsinghua.iginx.metadata.IMetaManager;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
 import cn.edu.tsinghua.iginx.resource.ResourceManager;
 import cn.edu.tsinghua.iginx.sql.exception.SQLParserException;
 import cn.edu.tsinghua.iginx.sql.statement.*;
@@ -254,7 +258,9 @@ public class StatementExecutor {
   public void executeSQL(RequestContext ctx) {
     try {
       before(ctx, preParseProcessors);
-      builder.buildFromSQL(ctx);
+      if (!buildWithPlanCache(ctx)) {
+        builder.buildFromSQL(ctx);
+      }
       after(ctx, postParseProcessors);
       executeStatement(ctx);
     } catch (SQLParserException | ParseCancellationException e) {
@@ -332,7 +338,15 @@ public class StatementExecutor {
     List<LogicalGenerator> generatorList = generatorMap.get(type);
     for (LogicalGenerator generator : generatorList) {
       before(ctx, preLogicalProcessors);
-      Operator root = generator.generate(ctx);
+      Operator root = ctx.getLogicalPlan();
+      if (root == null) {
+        long planVersion = PlanCache.getInstance().getVersion();
+        root = generator.generate(ctx);
+        if (root != null && type == StatementType.SELECT && ctx.getPlanCacheKey() != null) {
+          PlanCache.getInstance()
+              .put(ctx.getPlanCacheKey(), ctx.getStatement(), ctx.getSqlType(), root, planVersion);
+        }
+      }
       after(ctx, postLogicalProcessors);
       if (root == null && !metaManager.hasWritableStorageEngines()) {
         ctx.setResult(new Result(RpcUtils.SUCCESS));
@@ -340,17 +354,44 @@ public class StatementExecutor {
         return;
       }
       if (constraintManager.check(root) && checker.check(root)) {
+        String cacheKey = null;
         if (type == StatementType.SELECT) {
           SelectStatement selectStatement = (SelectStatement) ctx.getStatement();
           if (selectStatement.isNeedLogicalExplain()) {
             processExplainLogicalStatement(ctx, root);
             return;
           }
+          if (QueryResultCache.isEnabled() && !selectStatement.isNeedPhysicalExplain()) {
+            cacheKey = QueryResultCache.keyOf(root);
+          }
         }
 
-        before(ctx, prePhysicalProcessors);
-        RowStream stream = engine.execute(ctx, root);
-        after(ctx, postPhysicalProcessors);
+        long cacheVersion = 0;
+        List<FragmentMeta> cacheFragments = null;
+        RowStream stream = null;
+        try {
+          before(ctx, prePhysicalProcessors);
+          if (cacheKey != null) {
+            QueryResultCache resultCache = QueryResultCache.getInstance();
+            stream = resultCache.get(cacheKey);
+            if (stream == null) {
+              cacheVersion = resultCache.getVersion();
+              cacheFragments = QueryResultCache.fragmentsOf(root);
+            }
+          }
+          // 命中结果缓存时同样经过物理阶段的处理器，只是不必再放回缓存
+          if (stream != null) {
+            cacheKey = null;
+          } else {
+            stream = engine.execute(ctx, root);
+          }
+          after(ctx, postPhysicalProcessors);
+        } finally {
+          if (QueryResultCache.isEnabled()
+              && (type == StatementType.INSERT || type == StatementType.DELETE)) {
+            QueryResultCache.getInstance().invalidate(QueryResultCache.writtenFragmentsOf(root));
+          }
+        }
 
         if (type == StatementType.SELECT) {
           SelectStatement selectStatement = (SelectStatement) ctx.getStatement();
@@ -360,6 +401,10 @@ public class StatementExecutor {
           }
         }
 
+        if (cacheKey != null) {
+          stream =
+              QueryResultCache.getInstance().put(cacheKey, cacheFragments, cacheVersion, stream);
+        }
         setResult(ctx, stream);
         return;
       }
@@ -367,6 +412,36 @@ public class StatementExecutor {
     throw new StatementExecutionException("Execute Error: can not construct a legal logical tree.");
   }
 
+  /**
+   * 借助计划缓存构造语句：计划命中时直接使用缓存的语句与逻辑计划，否则将常量绑定到按模板缓存的语法树上生成语句
+   *
+   * @return 是否已经构造了语句，不是查询语句或者未开启缓存时返回 false
+   */
+  private boolean buildWithPlanCache(RequestContext ctx) {
+    if (!PlanCache.isEnabled()) {
+      return false;
+    }
+    SqlTemplate template = SqlTemplate.of(ctx.getSql());
+    if (template == null) {
+      return false;
+    }
+    if (!template.isPlanCacheable()) {
+      builder.buildFromTemplate(ctx, template);
+      return true;
+    }
+    String key = template.getKey();
+    PlanCache.CachedPlan plan = PlanCache.getInstance().get(key);
+    if (plan == null) {
+      builder.buildFromTemplate(ctx, template);
+      ctx.setPlanCacheKey(key);
+      return true;
+    }
+    ctx.setStatement(plan.getStatement());
+    ctx.setSqlType(plan.getSqlType());
+    ctx.setLogicalPlan(plan.getRoot());
+    return true;
+  }
+
   private void processExplainLogicalStatement(RequestContext ctx, Operator root)
       throws PhysicalException, StatementExecutionException {
     List<Field> fields =
@@ -808,12 +883,23 @@ public class StatementExecutor {
               }
             });
 
+    // 客户端支持分页时，只取出第一页，剩余的数据在客户端fetch时才从算子中拉取
+    int limit = Integer.MAX_VALUE;
+    if (ctx.getFetchSize() > 0 && config.getSqlResultPagingThreshold() > 0) {
+      limit = Math.min(ctx.getFetchSize(), config.getSqlResultPagingThreshold());
+    }
+
+    if (ctx.isColumnarResult()) {
+      setColumnarResultFromRowStream(ctx, stream, paths, tagsList, types, limit);
+      return;
+    }
+
     List<Long> timestampList = new ArrayList<>();
     List<ByteBuffer> valuesList = new ArrayList<>();
     List<ByteBuffer> bitmapList = new ArrayList<>();
 
     boolean hasTimestamp = stream.getHeader().hasKey();
-    while (stream.hasNext()) {
+    while (valuesList.size() < limit && stream.hasNext()) {
       Row row = stream.next();
 
       Object[] rowValues = row.getValues();
@@ -852,6 +938,51 @@ public class StatementExecutor {
     result.setPaths(paths);
     result.setTagsList(tagsList);
     result.setDataTypes(types);
+    if (stream.hasNext()) {
+      result.setResultStream(stream);
+      result.setHasMoreResults(true);
+      ctx.setResult(result);
+      return;
+    }
+    ctx.setResult(result);
+
+    stream.close();
+  }
+
+  private void setColumnarResultFromRowStream(
+      RequestContext ctx,
+      RowStream stream,
+      List<String> paths,
+      List<Map<String, String>> tagsList,
+      List<DataType> types,
+      int limit)
+      throws PhysicalException {
+    List<Row> rows = new ArrayList<>();
+    while (rows.size() < limit && stream.hasNext()) {
+      rows.add(stream.next());
+    }
+
+    if (rows.isEmpty()) { // empty result
+      setEmptyQueryResp(ctx, paths);
+      return;
+    }
+
+    Status status = RpcUtils.SUCCESS;
+    if (ctx.getWarningMsg() != null && !ctx.getWarningMsg().isEmpty()) {
+      status = new Status(StatusCode.PARTIAL_SUCCESS.getStatusCode());
+      status.setMessage(ctx.getWarningMsg());
+    }
+    Result result = new Result(status);
+    result.setQueryDataSetV3(Result.toQueryDataSetV3(stream.getHeader(), rows));
+    result.setPaths(paths);
+    result.setTagsList(tagsList);
+    result.setDataTypes(types);
+    if (stream.hasNext()) {
+      result.setResultStream(stream);
+      result.setHasMoreResults(true);
+      ctx.setResult(result);
+      return;
+    }
     ctx.setResult(result);
 
     stream.close();
@@ -47,18 +47,23 @@ import org.slf4j.LoggerFactory;
 public class InsertGenerator extends AbstractGenerator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(InsertGenerator.class);
-  private static final InsertGenerator instance = new InsertGenerator();
-  private static final IMetaManager metaManager = DefaultMetaManager.getInstance();
+  private final IMetaManager metaManager = DefaultMetaManager.getInstance();
   private final IPolicy policy =
       PolicyManager.getInstance()
           .getPolicy(ConfigDescriptor.getInstance().getConfig().getPolicyClassName());
 
+  // 实例在第一次使用时才创建，getDataSection 不依赖元数据，可以单独使用
+  private static class InsertGeneratorHolder {
+
+    private static final InsertGenerator INSTANCE = new InsertGenerator();
+  }
+
   private InsertGenerator() {
     this.type = GeneratorType.Insert;
   }
 
   public static InsertGenerator getInstance() {
-    return instance;
+    return InsertGeneratorHolder.INSTANCE;
   }
 
   @Override
@@ -112,49 +117,61 @@ public class InsertGenerator extends AbstractGenerator {
     return new CombineNonQuery(sources);
   }
 
-  private DataView getDataSection(FragmentMeta meta, RawData rawData) {
+  /** 取出写入数据中落在分片内的部分，数据与分片没有交集时返回 null。key与路径均有序，边界通过二分查找确定 */
+  public static DataView getDataSection(FragmentMeta meta, RawData rawData) {
     KeyInterval keyInterval = meta.getKeyInterval();
     ColumnsInterval columnsInterval = meta.getColumnsInterval();
-    List<Long> insertTimes = rawData.getKeys();
+    long[] keys = rawData.getKeyArray();
     List<String> paths = rawData.getPaths();
 
+    int startKeyIndex = lowerBound(keys, keyInterval.getStartKey());
+    int endKeyIndex = lowerBound(keys, keyInterval.getEndKey());
     // time overlap doesn't exist.
-    if (keyInterval.getStartKey() > insertTimes.get(insertTimes.size() - 1)
-        || keyInterval.getEndKey() <= insertTimes.get(0)) {
+    if (startKeyIndex >= endKeyIndex) {
       return null;
     }
 
+    String startColumn = columnsInterval.getStartColumn();
+    String endColumn = columnsInterval.getEndColumn();
+    int startPathIndex = startColumn == null ? 0 : lowerBound(paths, startColumn);
+    int endPathIndex = endColumn == null ? paths.size() : lowerBound(paths, endColumn);
     // path overlap doesn't exist.
-    if (columnsInterval.getStartColumn() != null
-        && columnsInterval.getStartColumn().compareTo(paths.get(paths.size() - 1)) > 0) return null;
-    if (columnsInterval.getEndColumn() != null
-        && columnsInterval.getEndColumn().compareTo(paths.get(0)) <= 0) {
+    if (startPathIndex >= endPathIndex) {
       return null;
     }
 
-    int startKeyIndex = 0;
-    while (keyInterval.getStartKey() > insertTimes.get(startKeyIndex)) startKeyIndex++;
-    int endKeyIndex = startKeyIndex;
-    while (endKeyIndex < insertTimes.size()
-        && keyInterval.getEndKey() > insertTimes.get(endKeyIndex)) endKeyIndex++;
-
-    int startPathIndex = 0;
-    if (columnsInterval.getStartColumn() != null) {
-      while (columnsInterval.getStartColumn().compareTo(paths.get(startPathIndex)) > 0)
-        startPathIndex++;
-    }
-    int endPathIndex = startPathIndex;
-    if (columnsInterval.getEndColumn() != null) {
-      while (endPathIndex < paths.size()
-          && columnsInterval.getEndColumn().compareTo(paths.get(endPathIndex)) > 0) endPathIndex++;
-    } else {
-      endPathIndex = paths.size();
-    }
-
     if (rawData.isRowData()) {
       return new RowDataView(rawData, startPathIndex, endPathIndex, startKeyIndex, endKeyIndex);
     } else {
       return new ColumnDataView(rawData, startPathIndex, endPathIndex, startKeyIndex, endKeyIndex);
     }
   }
+
+  /** 第一个不小于 key 的下标 */
+  private static int lowerBound(long[] keys, long key) {
+    int low = 0, high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** 第一个不小于 path 的下标 */
+  private static int lowerBound(List<String> paths, String path) {
+    int low = 0, high = paths.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (paths.get(mid).compareTo(path) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
 }
@@ -26,7 +26,7 @@ import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtil
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.checkNeedTypeCast;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.combineMultipleColumns;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.equalOnSpecificPaths;
-import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.establishHashMap;
+import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.establishHashTable;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.getSamePathWithSpecificPrefix;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.isValueEqualRow;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.removeDuplicateRows;
@@ -45,6 +45,7 @@ import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecut
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterUtils;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.JoinHashTable;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.Constants;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
@@ -926,8 +927,7 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
         checkNeedTypeCast(tableA.getRows(), tableB.getRows(), joinPathA, joinPathB);
 
     // 扫描右表建立哈希表
-    HashMap<Integer, List<Row>> rowsBHashMap =
-        establishHashMap(tableB.getRows(), joinPathB, needTypeCast);
+    JoinHashTable rowsBHashTable = establishHashTable(tableB.getRows(), joinPathB, needTypeCast);
 
     // 计算连接之后的header
     Header newHeader =
@@ -940,16 +940,15 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
             joinColumns,
             extraJoinPaths);
 
+    int indexA = tableA.getHeader().indexOf(joinPathA);
     List<Row> transformedRows = new ArrayList<>();
     for (Row rowA : tableA.getRows()) {
-      Value value = rowA.getAsValue(joinPathA);
-      if (value.isNull()) {
-        continue;
-      }
-      int hash = getHash(value, needTypeCast);
-
-      if (rowsBHashMap.containsKey(hash)) {
-        for (Row rowB : rowsBHashMap.get(hash)) {
+      int group = rowsBHashTable.probe(rowA, indexA);
+      if (group != -1) {
+        for (int rowId = rowsBHashTable.firstRow(group);
+            rowId != -1;
+            rowId = rowsBHashTable.nextRow(rowId)) {
+          Row rowB = rowsBHashTable.getRow(rowId);
           if (!equalOnSpecificPaths(rowA, rowB, extraJoinPaths)) {
             continue;
           } else if (!equalOnSpecificPaths(
@@ -1405,19 +1404,8 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
     Bitmap bitmapA = new Bitmap(rowsA.size());
     Bitmap bitmapB = new Bitmap(rowsB.size());
 
-    HashMap<Integer, List<Row>> rowsBHashMap = new HashMap<>();
-    HashMap<Integer, List<Integer>> indexOfRowBHashMap = new HashMap<>();
-    for (int indexB = 0; indexB < rowsB.size(); indexB++) {
-      Value value = rowsB.get(indexB).getAsValue(joinPathB);
-      if (value.isNull()) {
-        continue;
-      }
-      int hash = getHash(value, needTypeCast);
-      List<Row> l = rowsBHashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      List<Integer> il = indexOfRowBHashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      l.add(rowsB.get(indexB));
-      il.add(indexB);
-    }
+    // 哈希表中的行号与右表中行的下标一致
+    JoinHashTable rowsBHashTable = establishHashTable(rowsB, joinPathB, needTypeCast);
 
     boolean cutRight = !outerJoin.getOuterJoinType().equals(OuterJoinType.RIGHT);
 
@@ -1434,23 +1422,19 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
 
     List<Row> transformedRows = new ArrayList<>();
 
+    int joinIndexA = tableA.getHeader().indexOf(joinPathA);
     for (int indexA = 0; indexA < rowsA.size(); indexA++) {
-      Value value = rowsA.get(indexA).getAsValue(joinPathA);
-      if (value.isNull()) {
-        continue;
-      }
-      int hash = getHash(value, needTypeCast);
-
-      if (rowsBHashMap.containsKey(hash)) {
-        List<Row> hashRowsB = rowsBHashMap.get(hash);
-        List<Integer> hashIndexB = indexOfRowBHashMap.get(hash);
-        for (int i = 0; i < hashRowsB.size(); i++) {
-          int indexB = hashIndexB.get(i);
-          if (!equalOnSpecificPaths(rowsA.get(indexA), hashRowsB.get(i), extraJoinPaths)) {
+      int group = rowsBHashTable.probe(rowsA.get(indexA), joinIndexA);
+      if (group != -1) {
+        for (int indexB = rowsBHashTable.firstRow(group);
+            indexB != -1;
+            indexB = rowsBHashTable.nextRow(indexB)) {
+          Row rowB = rowsBHashTable.getRow(indexB);
+          if (!equalOnSpecificPaths(rowsA.get(indexA), rowB, extraJoinPaths)) {
             continue;
           } else if (!equalOnSpecificPaths(
               rowsA.get(indexA),
-              hashRowsB.get(i),
+              rowB,
               outerJoin.getPrefixA(),
               outerJoin.getPrefixB(),
               joinColumns)) {
@@ -1460,7 +1444,7 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
               RowUtils.constructNewRow(
                   newHeader,
                   rowsA.get(indexA),
-                  hashRowsB.get(i),
+                  rowB,
                   outerJoin.getPrefixA(),
                   outerJoin.getPrefixB(),
                   cutRight,
@@ -1907,24 +1891,26 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
         checkNeedTypeCast(tableA.getRows(), tableB.getRows(), joinPathA, joinPathB);
 
     // 扫描右表建立哈希表
-    HashMap<Integer, List<Row>> rowsBHashMap =
-        establishHashMap(tableB.getRows(), joinPathB, needTypeCast);
+    JoinHashTable rowsBHashTable = establishHashTable(tableB.getRows(), joinPathB, needTypeCast);
 
     Header newHeader =
         constructNewHead(tableA.getHeader(), tableB.getHeader(), true, extraJoinPaths);
 
+    int indexA = tableA.getHeader().indexOf(joinPathA);
     List<Row> transformedRows = new ArrayList<>();
     int anotherRowSize = tableB.getHeader().getFieldSize();
     for (Row rowA : tableA.getRows()) {
-      Value value = rowA.getAsValue(joinPathA);
-      if (value.isNull()) {
+      if (rowA.getValue(indexA) == null) {
         continue;
       }
-      int hash = getHash(value, needTypeCast);
+      int group = rowsBHashTable.probe(rowA, indexA);
 
       boolean matched = false;
-      if (rowsBHashMap.containsKey(hash)) {
-        for (Row rowB : rowsBHashMap.get(hash)) {
+      if (group != -1) {
+        for (int rowId = rowsBHashTable.firstRow(group);
+            rowId != -1;
+            rowId = rowsBHashTable.nextRow(rowId)) {
+          Row rowB = rowsBHashTable.getRow(rowId);
           if (!equalOnSpecificPaths(rowA, rowB, extraJoinPaths)) {
             continue;
           }
@@ -2030,24 +2016,26 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
         checkNeedTypeCast(tableA.getRows(), tableB.getRows(), joinPathA, joinPathB);
 
     // 扫描右表建立哈希表
-    HashMap<Integer, List<Row>> rowsBHashMap =
-        establishHashMap(tableB.getRows(), joinPathB, needTypeCast);
+    JoinHashTable rowsBHashTable = establishHashTable(tableB.getRows(), joinPathB, needTypeCast);
 
     // 计算连接之后的header
     Header newHeader = constructNewHead(tableA.getHeader(), markJoin.getMarkColumn());
     Header joinHeader = constructNewHead(tableA.getHeader(), tableB.getHeader(), true);
 
+    int indexA = tableA.getHeader().indexOf(joinPathA);
     List<Row> transformedRows = new ArrayList<>();
     tableScan:
     for (Row rowA : tableA.getRows()) {
-      Value value = rowA.getAsValue(joinPathA);
-      if (value.isNull()) {
+      if (rowA.getValue(indexA) == null) {
         continue;
       }
-      int hash = getHash(value, needTypeCast);
+      int group = rowsBHashTable.probe(rowA, indexA);
 
-      if (rowsBHashMap.containsKey(hash)) {
-        for (Row rowB : rowsBHashMap.get(hash)) {
+      if (group != -1) {
+        for (int rowId = rowsBHashTable.firstRow(group);
+            rowId != -1;
+            rowId = rowsBHashTable.nextRow(rowId)) {
+          Row rowB = rowsBHashTable.getRow(rowId);
           if (!equalOnSpecificPaths(rowA, rowB, extraJoinPaths)) {
             continue;
           }
@@ -0,0 +1,181 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 外排序。数据在内存预算之内时直接在内存中排序；超过预算后将已缓存的数据排序后作为一个有序段写入溢写文件，最后对所有有序段进行k路归并。
+ *
+ * <p>排序是稳定的：内存中使用稳定排序，归并时键相同的行按有序段产生的先后顺序输出。
+ */
+public class ExternalSorter implements AutoCloseable {
+
+  private final Header header;
+
+  private final Comparator<Row> comparator;
+
+  private final MemoryTracker memory;
+
+  private final List<SpillFile> runs = new ArrayList<>();
+
+  private List<Row> buffer = new ArrayList<>();
+
+  public ExternalSorter(Header header, Comparator<Row> comparator, MemoryTracker memory) {
+    this.header = header;
+    this.comparator = comparator;
+    this.memory = memory;
+  }
+
+  public void add(Row row) throws PhysicalException {
+    buffer.add(row);
+    if (!memory.tryReserve(row)) {
+      spillRun();
+    }
+  }
+
+  public int getSpilledRunCount() {
+    return runs.size();
+  }
+
+  private void spillRun() throws PhysicalException {
+    buffer.sort(comparator);
+    SpillFile run = SpillFile.create(header);
+    runs.add(run);
+    for (Row row : buffer) {
+      run.write(row);
+    }
+    buffer = new ArrayList<>();
+    memory.releaseAll();
+  }
+
+  /** 结束输入，返回有序的结果 */
+  public RowStream sort() throws PhysicalException {
+    buffer.sort(comparator);
+    Table inMemoryRun = new Table(header, buffer);
+    if (runs.isEmpty()) {
+      return inMemoryRun;
+    }
+    List<RowStream> streams = new ArrayList<>(runs.size() + 1);
+    for (SpillFile run : runs) {
+      streams.add(run.read());
+    }
+    streams.add(inMemoryRun);
+    runs.clear();
+    return new MergeSortedRowStream(header, streams, comparator);
+  }
+
+  @Override
+  public void close() {
+    for (SpillFile run : runs) {
+      run.close();
+    }
+    runs.clear();
+  }
+
+  /** 对若干有序流进行k路归并 */
+  private static class MergeSortedRowStream implements RowStream {
+
+    private final Header header;
+
+    private final List<RowStream> streams;
+
+    private final PriorityQueue<Cursor> queue;
+
+    private boolean initialized = false;
+
+    MergeSortedRowStream(Header header, List<RowStream> streams, Comparator<Row> comparator) {
+      this.header = header;
+      this.streams = streams;
+      this.queue =
+          new PriorityQueue<>(
+              streams.size(),
+              (a, b) -> {
+                int cmp = comparator.compare(a.row, b.row);
+                return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+              });
+    }
+
+    private void initialize() throws PhysicalException {
+      for (int i = 0; i < streams.size(); i++) {
+        RowStream stream = streams.get(i);
+        if (stream.hasNext()) {
+          queue.add(new Cursor(i, stream.next()));
+        }
+      }
+      initialized = true;
+    }
+
+    @Override
+    public Header getHeader() {
+      return header;
+    }
+
+    @Override
+    public boolean hasNext() throws PhysicalException {
+      if (!initialized) {
+        initialize();
+      }
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+      if (!hasNext()) {
+        throw new IllegalStateException("row stream doesn't have more data!");
+      }
+      Cursor cursor = queue.poll();
+      Row row = cursor.row;
+      RowStream stream = streams.get(cursor.index);
+      if (stream.hasNext()) {
+        cursor.row = stream.next();
+        queue.add(cursor);
+      }
+      return row;
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+      for (RowStream stream : streams) {
+        stream.close();
+      }
+    }
+  }
+
+  private static class Cursor {
+
+    private final int index;
+
+    private Row row;
+
+    Cursor(int index, Row row) {
+      this.index = index;
+      this.row = row;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.JoinHashTable;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import java.util.ArrayList;
+
+/**
+ * 哈希连接建表侧超过内存预算时使用的分区连接（grace hash join）。两侧按照连接列的哈希值分区写入溢写文件，键相同的行一定落在同一分区，
+ * 之后逐个分区使用原有的哈希连接算子在内存中完成连接，依次输出各分区的结果。
+ */
+public class GraceHashJoin {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private GraceHashJoin() {}
+
+  /** 对一个分区的两侧数据创建连接算子 */
+  @FunctionalInterface
+  public interface JoinStreamFactory {
+
+    RowStream create(RowStream streamA, RowStream streamB) throws PhysicalException;
+  }
+
+  /**
+   * 将建表侧已经放入哈希表的行、建表侧剩余的行以及探测侧的全部行分区溢写，返回逐个分区连接的结果
+   *
+   * @param header 连接结果的header
+   * @param table 建表侧已经读入的行，调用后不应再使用
+   * @param streamA 探测侧
+   * @param indexA 探测侧连接列的下标
+   * @param streamB 建表侧剩余的行
+   * @param indexB 建表侧连接列的下标
+   * @param factory 用于连接单个分区的算子
+   */
+  public static RowStream join(
+      Header header,
+      JoinHashTable table,
+      RowStream streamA,
+      int indexA,
+      RowStream streamB,
+      int indexB,
+      JoinStreamFactory factory)
+      throws PhysicalException {
+    int partitionNum = config.getSpillPartitionNum();
+    SpillPartitions partitionsB = new SpillPartitions(streamB.getHeader(), partitionNum);
+    SpillPartitions partitionsA = new SpillPartitions(streamA.getHeader(), partitionNum);
+    try {
+      for (int rowId = 0; rowId < table.getRowCount(); rowId++) {
+        Row row = table.getRow(rowId);
+        partitionsB.add(row, table.hash(row, indexB));
+      }
+      while (streamB.hasNext()) {
+        Row row = streamB.next();
+        partitionsB.add(row, table.hash(row, indexB));
+      }
+      while (streamA.hasNext()) {
+        Row row = streamA.next();
+        partitionsA.add(row, table.hash(row, indexA));
+      }
+    } catch (PhysicalException e) {
+      partitionsA.close();
+      partitionsB.close();
+      throw e;
+    }
+    return new PartitionedJoinStream(header, partitionsA, partitionsB, factory);
+  }
+
+  private static class PartitionedJoinStream implements RowStream {
+
+    private final Header header;
+
+    private final SpillPartitions partitionsA;
+
+    private final SpillPartitions partitionsB;
+
+    private final JoinStreamFactory factory;
+
+    private int nextPartition = 0;
+
+    private RowStream current;
+
+    PartitionedJoinStream(
+        Header header,
+        SpillPartitions partitionsA,
+        SpillPartitions partitionsB,
+        JoinStreamFactory factory) {
+      this.header = header;
+      this.partitionsA = partitionsA;
+      this.partitionsB = partitionsB;
+      this.factory = factory;
+    }
+
+    @Override
+    public Header getHeader() {
+      return header;
+    }
+
+    @Override
+    public boolean hasNext() throws PhysicalException {
+      while (current == null || !current.hasNext()) {
+        if (current != null) {
+          current.close();
+          current = null;
+        }
+        if (nextPartition == partitionsA.getPartitionNum()) {
+          return false;
+        }
+        RowStream streamA = partitionsA.read(nextPartition);
+        RowStream streamB = partitionsB.read(nextPartition);
+        nextPartition++;
+        if (streamA == null && streamB == null) {
+          continue;
+        }
+        current =
+            factory.create(
+                streamA != null ? streamA : emptyStream(partitionsA.getHeader()),
+                streamB != null ? streamB : emptyStream(partitionsB.getHeader()));
+      }
+      return true;
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+      if (!hasNext()) {
+        throw new IllegalStateException("row stream doesn't have more data!");
+      }
+      return current.next();
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+      if (current != null) {
+        current.close();
+      }
+      partitionsA.close();
+      partitionsB.close();
+    }
+  }
+
+  private static RowStream emptyStream(Header header) {
+    return new Table(header, new ArrayList<>());
+  }
+}
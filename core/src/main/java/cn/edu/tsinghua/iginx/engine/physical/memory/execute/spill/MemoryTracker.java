@@ -0,0 +1,122 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.resource.MemoryBudget;
+import cn.edu.tsinghua.iginx.resource.QueryResourceManager;
+
+/**
+ * 记录单个算子占用的内存，并向所属查询的内存预算申请。没有请求上下文或未开启溢写时不做任何限制。
+ *
+ * <p>算子在每缓存一行数据前调用tryReserve，返回false时应当将已缓存的数据溢写到磁盘并调用releaseAll。
+ */
+public class MemoryTracker implements AutoCloseable {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private static final MemoryTracker UNLIMITED = new MemoryTracker(null);
+
+  private final MemoryBudget budget;
+
+  private long reserved = 0;
+
+  private boolean closed = false;
+
+  public MemoryTracker(MemoryBudget budget) {
+    this.budget = budget;
+  }
+
+  /** 为请求上下文对应的查询创建内存记录，使用完毕后需要调用close */
+  public static MemoryTracker create(RequestContext context) {
+    if (context == null || !config.isEnableSpill()) {
+      return UNLIMITED;
+    }
+    MemoryBudget budget = QueryResourceManager.getInstance().acquireMemoryBudget(context.getId());
+    return new MemoryTracker(budget);
+  }
+
+  /** 创建共享同一预算的记录，供并行的工作线程各自使用。返回的记录只需调用 releaseAll，预算由当前记录在 close 时归还 */
+  public MemoryTracker fork() {
+    return budget == null ? UNLIMITED : new MemoryTracker(budget);
+  }
+
+  /** 是否可能需要溢写 */
+  public boolean isLimited() {
+    return budget != null;
+  }
+
+  public boolean tryReserve(Row row) {
+    return tryReserve(estimateSize(row));
+  }
+
+  public boolean tryReserve(long bytes) {
+    if (budget == null) {
+      return true;
+    }
+    if (!budget.tryReserve(bytes)) {
+      return false;
+    }
+    reserved += bytes;
+    return true;
+  }
+
+  /** 释放该算子占用的全部内存 */
+  public void releaseAll() {
+    if (budget != null && reserved > 0) {
+      budget.release(reserved);
+    }
+    reserved = 0;
+  }
+
+  public long getReserved() {
+    return reserved;
+  }
+
+  @Override
+  public void close() {
+    if (budget == null || closed) {
+      return;
+    }
+    releaseAll();
+    QueryResourceManager.getInstance().releaseMemoryBudget(budget);
+    closed = true;
+  }
+
+  /** 估算一行数据在堆上占用的字节数 */
+  public static long estimateSize(Row row) {
+    Object[] values = row.getValues();
+    long size = 40 + 8L * values.length; // Row对象、数组头与引用
+    for (Object value : values) {
+      if (value == null) {
+        continue;
+      }
+      if (value instanceof byte[]) {
+        size += 16 + ((byte[]) value).length;
+      } else {
+        size += 16;
+      }
+    }
+    return size;
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 溢写到本地磁盘的临时文件，按照紧凑的二进制格式顺序写入若干行，写完后只能顺序读取一次，读取结束或关闭后文件被删除。
+ *
+ * <p>每行的格式为：key（仅当header含有key时）、空值位图、按header中字段类型依次写入的非空值。header本身不写入文件。
+ */
+public class SpillFile implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillFile.class);
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Header header;
+
+  private final DataType[] types;
+
+  private final File file;
+
+  private DataOutputStream output;
+
+  private long rowCount = 0;
+
+  private SpillFile(Header header, File file) throws IOException {
+    this.header = header;
+    this.types = new DataType[header.getFieldSize()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = header.getField(i).getType();
+    }
+    this.file = file;
+    this.output =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE));
+  }
+
+  /** 在溢写目录下创建一个新的临时文件 */
+  public static SpillFile create(Header header) throws PhysicalException {
+    try {
+      Path dir = Paths.get(config.getSpillDir());
+      Files.createDirectories(dir);
+      File file = Files.createTempFile(dir, "spill-", ".tmp").toFile();
+      return new SpillFile(header, file);
+    } catch (IOException e) {
+      throw new PhysicalTaskExecuteFailureException("failed to create spill file: ", e);
+    }
+  }
+
+  public Header getHeader() {
+    return header;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public void write(Row row) throws PhysicalException {
+    try {
+      if (header.hasKey()) {
+        output.writeLong(row.getKey());
+      }
+      Object[] values = row.getValues();
+      byte[] nullBitmap = new byte[(types.length + 7) >>> 3];
+      for (int i = 0; i < types.length; i++) {
+        if (values[i] == null) {
+          nullBitmap[i >>> 3] |= (byte) (1 << (i & 7));
+        }
+      }
+      output.write(nullBitmap);
+      for (int i = 0; i < types.length; i++) {
+        if (values[i] != null) {
+          writeValue(types[i], values[i]);
+        }
+      }
+      rowCount++;
+    } catch (IOException e) {
+      throw new PhysicalTaskExecuteFailureException("failed to write spill file: ", e);
+    }
+  }
+
+  private void writeValue(DataType type, Object value) throws IOException {
+    switch (type) {
+      case BOOLEAN:
+        output.writeBoolean((Boolean) value);
+        break;
+      case INTEGER:
+        output.writeInt(((Number) value).intValue());
+        break;
+      case LONG:
+        output.writeLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        output.writeFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        output.writeDouble(((Number) value).doubleValue());
+        break;
+      case BINARY:
+        byte[] bytes = (byte[]) value;
+        output.writeInt(bytes.length);
+        output.write(bytes);
+        break;
+      default:
+        throw new IllegalStateException("unsupported data type: " + type);
+    }
+  }
+
+  /** 结束写入并打开文件用于读取，返回的流读取完毕或关闭时删除文件 */
+  public RowStream read() throws PhysicalException {
+    try {
+      finishWrite();
+      DataInputStream input =
+          new DataInputStream(
+              new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE));
+      return new SpillFileReader(input);
+    } catch (IOException e) {
+      throw new PhysicalTaskExecuteFailureException("failed to read spill file: ", e);
+    }
+  }
+
+  private void finishWrite() throws IOException {
+    if (output != null) {
+      output.close();
+      output = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      finishWrite();
+    } catch (IOException e) {
+      LOGGER.warn("failed to close spill file {}: ", file, e);
+    }
+    if (file.exists() && !file.delete()) {
+      LOGGER.warn("failed to delete spill file {}", file);
+    }
+  }
+
+  private class SpillFileReader implements RowStream {
+
+    private final DataInputStream input;
+
+    private long remaining = rowCount;
+
+    private SpillFileReader(DataInputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    public Header getHeader() {
+      return header;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (remaining == 0) {
+        SpillFile.this.close();
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+      if (!hasNext()) {
+        throw new IllegalStateException("row stream doesn't have more data!");
+      }
+      try {
+        long key = header.hasKey() ? input.readLong() : Row.NON_EXISTED_KEY;
+        byte[] nullBitmap = new byte[(types.length + 7) >>> 3];
+        input.readFully(nullBitmap);
+        Object[] values = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+          if ((nullBitmap[i >>> 3] & (1 << (i & 7))) == 0) {
+            values[i] = readValue(types[i]);
+          }
+        }
+        remaining--;
+        if (remaining == 0) {
+          input.close();
+        }
+        return new Row(header, key, values);
+      } catch (IOException e) {
+        throw new PhysicalTaskExecuteFailureException("failed to read spill file: ", e);
+      }
+    }
+
+    private Object readValue(DataType type) throws IOException {
+      switch (type) {
+        case BOOLEAN:
+          return input.readBoolean();
+        case INTEGER:
+          return input.readInt();
+        case LONG:
+          return input.readLong();
+        case FLOAT:
+          return input.readFloat();
+        case DOUBLE:
+          return input.readDouble();
+        case BINARY:
+          byte[] bytes = new byte[input.readInt()];
+          input.readFully(bytes);
+          return bytes;
+        default:
+          throw new IllegalStateException("unsupported data type: " + type);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        LOGGER.warn("failed to close spill file {}: ", file, e);
+      }
+      SpillFile.this.close();
+    }
+  }
+}
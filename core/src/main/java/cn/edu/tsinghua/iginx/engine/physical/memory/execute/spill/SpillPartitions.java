@@ -0,0 +1,100 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+/** 按照哈希值将行分散写入若干溢写文件，之后逐个分区读回处理。哈希值相同的行一定落在同一个分区。 */
+public class SpillPartitions implements AutoCloseable {
+
+  private final Header header;
+
+  private final SpillFile[] partitions;
+
+  public SpillPartitions(Header header, int partitionNum) {
+    this.header = header;
+    this.partitions = new SpillFile[partitionNum];
+  }
+
+  public Header getHeader() {
+    return header;
+  }
+
+  public int getPartitionNum() {
+    return partitions.length;
+  }
+
+  public void add(Row row, int hash) throws PhysicalException {
+    int index = partitionOf(hash, partitions.length);
+    if (partitions[index] == null) {
+      partitions[index] = SpillFile.create(header);
+    }
+    partitions[index].write(row);
+  }
+
+  /**
+   * 读取第i个分区，每个分区只能读取一次
+   *
+   * @return 分区中的行；分区为空时返回null
+   */
+  public RowStream read(int i) throws PhysicalException {
+    SpillFile partition = partitions[i];
+    if (partition == null) {
+      return null;
+    }
+    partitions[i] = null;
+    return partition.read();
+  }
+
+  @Override
+  public void close() {
+    for (int i = 0; i < partitions.length; i++) {
+      if (partitions[i] != null) {
+        partitions[i].close();
+        partitions[i] = null;
+      }
+    }
+  }
+
+  /** 计算哈希值所属的分区。分区使用哈希值的高位，避免与分区内哈希表使用的低位相关 */
+  public static int partitionOf(int hash, int partitionNum) {
+    return Math.floorMod(Integer.reverse(hash), partitionNum);
+  }
+
+  /** 计算一组值的哈希值，字节数组按内容计算 */
+  public static int hashValues(Object[] values) {
+    int hash = 1;
+    for (Object value : values) {
+      int h;
+      if (value instanceof byte[]) {
+        h = Arrays.hashCode((byte[]) value);
+      } else {
+        h = Objects.hashCode(value);
+      }
+      hash = 31 * hash + h;
+    }
+    return hash;
+  }
+}
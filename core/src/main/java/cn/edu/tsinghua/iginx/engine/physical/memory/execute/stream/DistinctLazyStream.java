@@ -21,12 +21,14 @@ package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.isEqualRow;
 
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.SpillPartitions;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
-import cn.edu.tsinghua.iginx.thrift.DataType;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -37,11 +39,20 @@ import java.util.List;
 
 public class DistinctLazyStream extends UnaryLazyStream {
 
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
   private final Deque<Row> cache;
 
   private final HashMap<Integer, List<Row>> rowsHashMap;
   private final List<Row> nullValueRows;
 
+  private MemoryTracker memory;
+
+  // 超过内存预算后，不在内存中的行按照整行的哈希值溢写到各分区，输入结束后逐个分区去重
+  private SpillPartitions spilledPartitions;
+
+  private int nextPartition = 0;
+
   public DistinctLazyStream(RowStream stream) {
     super(stream);
     this.cache = new LinkedList<>();
@@ -59,6 +70,11 @@ public class DistinctLazyStream extends UnaryLazyStream {
     while (cache.isEmpty() && (stream.hasNext())) {
       update();
     }
+    while (cache.isEmpty()
+        && spilledPartitions != null
+        && nextPartition < spilledPartitions.getPartitionNum()) {
+      distinctPartition(nextPartition++);
+    }
     return !cache.isEmpty();
   }
 
@@ -69,35 +85,77 @@ public class DistinctLazyStream extends UnaryLazyStream {
     } else {
       throw new IllegalStateException("row stream doesn't have more data!");
     }
-    Value value = row.getAsValue(row.getField(0).getName());
+    if (memory == null) {
+      memory = MemoryTracker.create(context);
+    }
+
+    if (contains(row, rowsHashMap, nullValueRows)) {
+      return;
+    }
+    if (spilledPartitions != null) {
+      spilledPartitions.add(row, SpillPartitions.hashValues(row.getValues()));
+      return;
+    }
+    if (!memory.tryReserve(row)) {
+      spilledPartitions = new SpillPartitions(stream.getHeader(), config.getSpillPartitionNum());
+      spilledPartitions.add(row, SpillPartitions.hashValues(row.getValues()));
+      return;
+    }
+    put(row, rowsHashMap, nullValueRows);
+    cache.addLast(row);
+  }
 
-    if (value.isNull()) {
-      for (Row nullValueRow : nullValueRows) {
-        if (isEqualRow(row, nullValueRow, false)) {
-          return;
-        }
+  /** 对一个溢写分区去重。分区中的行都不与内存中的行重复，且相同的行一定位于同一分区 */
+  private void distinctPartition(int index) throws PhysicalException {
+    RowStream partition = spilledPartitions.read(index);
+    if (partition == null) {
+      return;
+    }
+    HashMap<Integer, List<Row>> partitionHashMap = new HashMap<>();
+    List<Row> partitionNullValueRows = new ArrayList<>();
+    while (partition.hasNext()) {
+      Row row = partition.next();
+      if (!contains(row, partitionHashMap, partitionNullValueRows)) {
+        put(row, partitionHashMap, partitionNullValueRows);
+        cache.addLast(row);
       }
-      nullValueRows.add(row);
-      cache.addLast(row);
+    }
+  }
+
+  private static int hashFirstValue(Object value) {
+    if (value instanceof byte[]) {
+      return Arrays.hashCode((byte[]) value);
     } else {
-      int hash;
-      if (value.getDataType() == DataType.BINARY) {
-        hash = Arrays.hashCode(value.getBinaryV());
-      } else {
-        hash = value.getValue().hashCode();
-      }
-      if (rowsHashMap.containsKey(hash)) {
-        List<Row> rowsExist = rowsHashMap.get(hash);
-        for (Row rowExist : rowsExist) {
-          if (isEqualRow(row, rowExist, false)) {
-            return;
-          }
-        }
-        rowsExist.add(row);
-      } else {
-        rowsHashMap.put(hash, new ArrayList<>(Collections.singletonList(row)));
+      return value.hashCode();
+    }
+  }
+
+  private static boolean contains(
+      Row row, HashMap<Integer, List<Row>> hashMap, List<Row> nullValueRows) {
+    Object value = row.getValue(0);
+    List<Row> candidates = value == null ? nullValueRows : hashMap.get(hashFirstValue(value));
+    if (candidates == null) {
+      return false;
+    }
+    for (Row rowExist : candidates) {
+      if (isEqualRow(row, rowExist, false)) {
+        return true;
       }
-      cache.addLast(row);
+    }
+    return false;
+  }
+
+  private static void put(Row row, HashMap<Integer, List<Row>> hashMap, List<Row> nullValueRows) {
+    Object value = row.getValue(0);
+    if (value == null) {
+      nullValueRows.add(row);
+      return;
+    }
+    int hash = hashFirstValue(value);
+    if (hashMap.containsKey(hash)) {
+      hashMap.get(hash).add(row);
+    } else {
+      hashMap.put(hash, new ArrayList<>(Collections.singletonList(row)));
     }
   }
 
@@ -108,4 +166,15 @@ public class DistinctLazyStream extends UnaryLazyStream {
     }
     return cache.pollFirst();
   }
+
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    if (spilledPartitions != null) {
+      spilledPartitions.close();
+    }
+    if (memory != null) {
+      memory.close();
+    }
+  }
 }
@@ -24,6 +24,8 @@ import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.SpillPartitions;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.GroupByKey;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
@@ -39,6 +41,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +64,11 @@ public class GroupByLazyStream extends UnaryLazyStream {
 
   private Table resultTable;
 
+  private MemoryTracker memory;
+
+  /** 并行分组时各工作线程占用的内存，与 memory 共享同一预算 */
+  private final List<MemoryTracker> workerMemories = new ArrayList<>();
+
   public GroupByLazyStream(GroupBy groupBy, RowStream stream) {
     super(stream);
     this.groupBy = groupBy;
@@ -87,19 +95,19 @@ public class GroupByLazyStream extends UnaryLazyStream {
     return resultTable.next();
   }
 
-  private void cacheResult() throws PhysicalException {
-    List<Row> rows = new ArrayList<>();
-    while (stream.hasNext() && rows.size() < config.getParallelGroupByRowsThreshold()) {
-      rows.add(stream.next());
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    workerMemories.forEach(MemoryTracker::releaseAll);
+    workerMemories.clear();
+    if (memory != null) {
+      memory.close();
     }
+  }
 
-    List<Row> cache;
-    if (stream.hasNext()) {
-      // more than threshold, use parallel cache.
-      cache = parallelCache(rows);
-    } else {
-      cache = RowUtils.cacheGroupByResult(groupBy, new Table(stream.getHeader(), rows));
-    }
+  private void cacheResult() throws PhysicalException {
+    this.memory = MemoryTracker.create(context);
+    List<Row> cache = cacheWithinBudget();
 
     Header newHeader;
     if (cache.isEmpty()) {
@@ -110,6 +118,79 @@ public class GroupByLazyStream extends UnaryLazyStream {
     this.resultTable = new Table(newHeader, cache);
   }
 
+  /**
+   * 在内存预算内直接分组聚合，行数超过阈值后改为并行分组，并行时各工作线程同样向预算申请内存；超过预算后按照分组列的哈希值分区溢写，再逐个分区完成分组聚合
+   */
+  private List<Row> cacheWithinBudget() throws PhysicalException {
+    Header header = stream.getHeader();
+    List<Row> rows = new ArrayList<>();
+    while (stream.hasNext() && rows.size() < config.getParallelGroupByRowsThreshold()) {
+      Row row = stream.next();
+      rows.add(row);
+      if (!memory.tryReserve(row)) {
+        return partitionedCache(header, rows);
+      }
+    }
+    if (stream.hasNext()) {
+      // more than threshold, use parallel cache.
+      return parallelCache(rows);
+    }
+    return RowUtils.cacheGroupByResult(groupBy, new Table(header, rows));
+  }
+
+  private List<Row> partitionedCache(Header header, List<Row> cachedRows) throws PhysicalException {
+    List<String> cols = groupBy.getGroupByCols();
+    int[] colIndex = new int[cols.size()];
+    for (int i = 0; i < cols.size(); i++) {
+      colIndex[i] = header.indexOf(cols.get(i));
+      if (colIndex[i] == -1) {
+        throw new PhysicalTaskExecuteFailureException(
+            String.format("Group by col [%s] not exist.", cols.get(i)));
+      }
+    }
+
+    try (SpillPartitions partitions = new SpillPartitions(header, config.getSpillPartitionNum())) {
+      for (Row row : cachedRows) {
+        partitions.add(row, hashGroupByKey(row, colIndex));
+      }
+      cachedRows.clear();
+      memory.releaseAll();
+      while (stream.hasNext()) {
+        Row row = stream.next();
+        partitions.add(row, hashGroupByKey(row, colIndex));
+      }
+
+      // 同一分组的行一定位于同一分区，各分区的结果直接拼接
+      List<Row> result = new ArrayList<>();
+      for (int i = 0; i < partitions.getPartitionNum(); i++) {
+        RowStream partition = partitions.read(i);
+        if (partition == null) {
+          continue;
+        }
+        List<Row> partitionRows = new ArrayList<>();
+        while (partition.hasNext()) {
+          partitionRows.add(partition.next());
+        }
+        result.addAll(RowUtils.cacheGroupByResult(groupBy, new Table(header, partitionRows)));
+      }
+      return result;
+    }
+  }
+
+  /** 与GroupByKey的哈希值保持一致，字节数组按字符串计算 */
+  private static int hashGroupByKey(Row row, int[] colIndex) {
+    Object[] values = row.getValues();
+    List<Object> hashValues = new ArrayList<>(colIndex.length);
+    for (int index : colIndex) {
+      if (values[index] instanceof byte[]) {
+        hashValues.add(new String((byte[]) values[index]));
+      } else {
+        hashValues.add(values[index]);
+      }
+    }
+    return hashValues.hashCode();
+  }
+
   private List<Row> parallelCache(List<Row> firstPartialRows) throws PhysicalException {
     // search the required fields
     Header header = stream.getHeader();
@@ -139,23 +220,35 @@ public class GroupByLazyStream extends UnaryLazyStream {
 
     Map<GroupByKey, List<Row>> groups = new ConcurrentHashMap<>();
     CountDownLatch latch = new CountDownLatch(WORKER_NUM);
+    // 任一工作线程超出内存预算后，其余线程不再读取新的行，已读取的行转交给溢写处理
+    AtomicBoolean overBudget = new AtomicBoolean(false);
 
     for (int i = 0; i < WORKER_NUM; i++) {
       int workerIndex = i;
+      MemoryTracker workerMemory = memory.fork();
+      workerMemories.add(workerMemory);
       pool.submit(
           () -> {
             List<Row> list = partition.get(workerIndex);
             try {
-              while (true) {
+              while (!overBudget.get()) {
                 // 开启多个线程但是加速比率又比较低的情况。加锁部分执行时间可能会占大头。
                 // parallel get batch rows and then calculate hash value.
                 lock.lock();
                 int getRowCnt = 0;
-                while (getRowCnt < BATCH_SIZE && stream.hasNext()) {
-                  list.add(stream.next());
-                  getRowCnt++;
+                try {
+                  while (getRowCnt < BATCH_SIZE && stream.hasNext()) {
+                    Row row = stream.next();
+                    list.add(row);
+                    getRowCnt++;
+                    if (!workerMemory.tryReserve(row)) {
+                      overBudget.set(true);
+                      break;
+                    }
+                  }
+                } finally {
+                  lock.unlock();
                 }
-                lock.unlock();
 
                 if (list.isEmpty()) { // no more lines
                   break;
@@ -198,6 +291,17 @@ public class GroupByLazyStream extends UnaryLazyStream {
           "encounter error when wait for parallel build: ", e);
     }
 
+    if (overBudget.get()) {
+      // 未来得及处理的首批行仍留在各自的列表中
+      List<Row> cachedRows = new ArrayList<>();
+      partition.forEach(cachedRows::addAll);
+      groups.values().forEach(cachedRows::addAll);
+      groups.clear();
+      workerMemories.forEach(MemoryTracker::releaseAll);
+      workerMemories.clear();
+      return partitionedCache(header, cachedRows);
+    }
+
     try {
       return RowUtils.applyFunc(groupBy, fields, header, groups);
     } catch (PhysicalTaskExecuteFailureException e) {
@@ -22,13 +22,14 @@ package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderUtils.calculateHashJoinPath;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.checkJoinColumns;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.getSamePathWithSpecificPrefix;
-import static cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils.getHash;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.GraceHashJoin;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterUtils;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.JoinHashTable;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
@@ -38,7 +39,6 @@ import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -46,7 +46,11 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
 
   private final InnerJoin innerJoin;
 
-  private final HashMap<Integer, List<Row>> streamBHashMap;
+  private JoinHashTable streamBHashTable;
+
+  private MemoryTracker memory;
+
+  private RowStream spilledStream; // 建表侧超过内存预算时各分区连接的结果
 
   private final Deque<Row> cache;
 
@@ -54,6 +58,8 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
 
   private int index;
 
+  private int indexA;
+
   private boolean hasInitialized = false;
 
   private String joinPathA;
@@ -69,7 +75,6 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
   public HashInnerJoinLazyStream(InnerJoin innerJoin, RowStream streamA, RowStream streamB) {
     super(streamA, streamB);
     this.innerJoin = innerJoin;
-    this.streamBHashMap = new HashMap<>();
     this.cache = new LinkedList<>();
   }
 
@@ -107,25 +112,23 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
     this.joinPathB = pair.v;
 
     this.index = headerB.indexOf(joinPathB);
-    int indexA = headerA.indexOf(joinPathA);
+    this.indexA = headerA.indexOf(joinPathA);
     DataType dataTypeA = headerA.getField(indexA).getType();
     DataType dataTypeB = headerB.getField(index).getType();
     if (ValueUtils.isNumericType(dataTypeA) && ValueUtils.isNumericType(dataTypeB)) {
       this.needTypeCast = true;
     }
 
+    this.memory = MemoryTracker.create(context);
+    this.streamBHashTable = new JoinHashTable(needTypeCast);
+    boolean exceeded = false;
     while (streamB.hasNext()) {
       Row rowB = streamB.next();
-      Value value = rowB.getAsValue(joinPathB);
-      if (value.isNull()) {
-        continue;
-      }
-      if (needTypeCast) {
-        value = ValueUtils.transformToDouble(value);
+      streamBHashTable.put(rowB, index);
+      if (!memory.tryReserve(rowB)) {
+        exceeded = true;
+        break;
       }
-      int hash = getHash(value, needTypeCast);
-      List<Row> rows = streamBHashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      rows.add(rowB);
     }
 
     this.header =
@@ -138,6 +141,22 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
             joinColumns,
             extraJoinPaths);
 
+    // 建表侧超过内存预算，两侧分区溢写后逐个分区连接
+    if (exceeded) {
+      this.spilledStream =
+          GraceHashJoin.join(
+              header,
+              streamBHashTable,
+              streamA,
+              indexA,
+              streamB,
+              index,
+              (partitionA, partitionB) ->
+                  new HashInnerJoinLazyStream(innerJoin, partitionA, partitionB));
+      this.streamBHashTable = null;
+      memory.releaseAll();
+    }
+
     this.hasInitialized = true;
   }
 
@@ -154,6 +173,9 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
     if (!hasInitialized) {
       initialize();
     }
+    if (spilledStream != null) {
+      return spilledStream.hasNext();
+    }
     while (cache.isEmpty() && streamA.hasNext()) {
       tryMatch();
     }
@@ -163,14 +185,12 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
   private void tryMatch() throws PhysicalException {
     Row rowA = streamA.next();
 
-    Value value = rowA.getAsValue(joinPathA);
-    if (value.isNull()) {
-      return;
-    }
-    int hash = getHash(value, needTypeCast);
-
-    if (streamBHashMap.containsKey(hash)) {
-      for (Row rowB : streamBHashMap.get(hash)) {
+    int group = streamBHashTable.probe(rowA, indexA);
+    if (group != -1) {
+      for (int rowId = streamBHashTable.firstRow(group);
+          rowId != -1;
+          rowId = streamBHashTable.nextRow(rowId)) {
+        Row rowB = streamBHashTable.getRow(rowId);
         if (!RowUtils.equalOnSpecificPaths(rowA, rowB, extraJoinPaths)) {
           continue;
         } else if (!RowUtils.equalOnSpecificPaths(
@@ -202,6 +222,20 @@ public class HashInnerJoinLazyStream extends BinaryLazyStream {
     if (!hasNext()) {
       throw new IllegalStateException("row stream doesn't have more data!");
     }
+    if (spilledStream != null) {
+      return spilledStream.next();
+    }
     return cache.pollFirst();
   }
+
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    if (spilledStream != null) {
+      spilledStream.close();
+    }
+    if (memory != null) {
+      memory.close();
+    }
+  }
 }
@@ -23,8 +23,10 @@ import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterU
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderUtils.constructNewHead;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.GraceHashJoin;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.JoinHashTable;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
@@ -32,27 +34,25 @@ import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
 import cn.edu.tsinghua.iginx.engine.shared.operator.MarkJoin;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Pair;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.List;
 
 public class HashMarkJoinLazyStream extends BinaryLazyStream {
 
   private final MarkJoin markJoin;
-  private final HashMap<Integer, List<Row>> streamBHashMap;
+  private JoinHashTable streamBHashTable;
   private final Deque<Row> cache;
   private Header header;
   private boolean hasInitialized = false;
   private String joinPathA;
+  private int indexA;
   private boolean needTypeCast = false;
+  private MemoryTracker memory;
+  private RowStream spilledStream; // 建表侧超过内存预算时各分区连接的结果
 
   public HashMarkJoinLazyStream(MarkJoin markJoin, RowStream streamA, RowStream streamB) {
     super(streamA, streamB);
     this.markJoin = markJoin;
-    this.streamBHashMap = new HashMap<>();
     this.cache = new LinkedList<>();
   }
 
@@ -71,24 +71,35 @@ public class HashMarkJoinLazyStream extends BinaryLazyStream {
       this.needTypeCast = true;
     }
 
+    this.indexA = streamA.getHeader().indexOf(joinPathA);
+    int indexB = streamB.getHeader().indexOf(joinPathB);
+    this.memory = MemoryTracker.create(context);
+    this.streamBHashTable = new JoinHashTable(needTypeCast);
+    boolean exceeded = false;
     while (streamB.hasNext()) {
       Row rowB = streamB.next();
-      Value value = rowB.getAsValue(joinPathB);
-      if (value.isNull()) {
-        continue;
+      streamBHashTable.put(rowB, indexB);
+      if (!memory.tryReserve(rowB)) {
+        exceeded = true;
+        break;
       }
-      if (needTypeCast) {
-        value = ValueUtils.transformToDouble(value);
-      }
-      int hash;
-      if (value.getDataType() == DataType.BINARY) {
-        hash = Arrays.hashCode(value.getBinaryV());
-      } else {
-        hash = value.getValue().hashCode();
-      }
-      List<Row> rows = streamBHashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      rows.add(rowB);
     }
+    // 建表侧超过内存预算，两侧分区溢写后逐个分区连接
+    if (exceeded) {
+      this.spilledStream =
+          GraceHashJoin.join(
+              header,
+              streamBHashTable,
+              streamA,
+              indexA,
+              streamB,
+              indexB,
+              (partitionA, partitionB) ->
+                  new HashMarkJoinLazyStream(markJoin, partitionA, partitionB));
+      this.streamBHashTable = null;
+      memory.releaseAll();
+    }
+
     this.hasInitialized = true;
   }
 
@@ -105,6 +116,9 @@ public class HashMarkJoinLazyStream extends BinaryLazyStream {
     if (!hasInitialized) {
       initialize();
     }
+    if (spilledStream != null) {
+      return spilledStream.hasNext();
+    }
     while (cache.isEmpty() && streamA.hasNext()) {
       tryMatch();
     }
@@ -114,21 +128,12 @@ public class HashMarkJoinLazyStream extends BinaryLazyStream {
   private void tryMatch() throws PhysicalException {
     Row rowA = streamA.next();
 
-    Value value = rowA.getAsValue(joinPathA);
-    if (value.isNull()) {
+    if (rowA.getValue(indexA) == null) {
       return;
     }
-    if (needTypeCast) {
-      value = ValueUtils.transformToDouble(value);
-    }
-    int hash;
-    if (value.getDataType() == DataType.BINARY) {
-      hash = Arrays.hashCode(value.getBinaryV());
-    } else {
-      hash = value.getValue().hashCode();
-    }
+    int group = streamBHashTable.probe(rowA, indexA);
 
-    if (streamBHashMap.containsKey(hash)) {
+    if (group != -1) {
       Row returnRow = RowUtils.constructNewRowWithMark(header, rowA, !markJoin.isAntiJoin());
       cache.add(returnRow);
     } else {
@@ -142,6 +147,20 @@ public class HashMarkJoinLazyStream extends BinaryLazyStream {
     if (!hasNext()) {
       throw new IllegalStateException("row stream doesn't have more data!");
     }
+    if (spilledStream != null) {
+      return spilledStream.next();
+    }
     return cache.pollFirst();
   }
+
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    if (spilledStream != null) {
+      spilledStream.close();
+    }
+    if (memory != null) {
+      memory.close();
+    }
+  }
 }
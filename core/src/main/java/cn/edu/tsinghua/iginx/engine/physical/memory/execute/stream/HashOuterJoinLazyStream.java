@@ -24,12 +24,13 @@ import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderU
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.checkJoinColumns;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.equalOnSpecificPaths;
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.getSamePathWithSpecificPrefix;
-import static cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils.getHash;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.GraceHashJoin;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.JoinHashTable;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
@@ -39,24 +40,24 @@ import cn.edu.tsinghua.iginx.engine.shared.operator.type.OuterJoinType;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
 public class HashOuterJoinLazyStream extends BinaryLazyStream {
 
   private final OuterJoin outerJoin;
 
-  private final HashMap<Integer, List<Row>> streamBHashMap;
+  private JoinHashTable streamBHashTable;
 
-  private final List<Integer> streamBHashPutOrder;
+  private MemoryTracker memory;
+
+  private RowStream spilledStream; // 建表侧超过内存预算时各分区连接的结果
 
   private final List<Row> unmatchedStreamARows; // 未被匹配过的StreamA的行
 
-  private final Set<Integer> matchedStreamBRowHashSet; // 已被匹配过的StreamB的行
+  private final BitSet matchedStreamBGroups; // 已被匹配过的StreamB的行所在的组
 
   private final Deque<Row> cache;
 
@@ -70,6 +71,8 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
 
   private int index;
 
+  private int indexA;
+
   private boolean hasInitialized = false;
 
   private boolean lastPartHasInitialized = false; // 外连接未匹配部分是否被初始化
@@ -83,10 +86,8 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
   public HashOuterJoinLazyStream(OuterJoin outerJoin, RowStream streamA, RowStream streamB) {
     super(streamA, streamB);
     this.outerJoin = outerJoin;
-    this.streamBHashMap = new HashMap<>();
-    this.streamBHashPutOrder = new LinkedList<>();
     this.unmatchedStreamARows = new ArrayList<>();
-    this.matchedStreamBRowHashSet = new HashSet<>();
+    this.matchedStreamBGroups = new BitSet();
     this.cache = new LinkedList<>();
   }
 
@@ -147,20 +148,17 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
       this.needTypeCast = true;
     }
 
+    this.indexA = headerA.indexOf(joinPathA);
+    int indexB = headerB.indexOf(joinPathB);
+    this.memory = MemoryTracker.create(context);
+    this.streamBHashTable = new JoinHashTable(needTypeCast);
+    boolean exceeded = false;
     while (streamB.hasNext()) {
       Row rowB = streamB.next();
-      Value value = rowB.getAsValue(joinPathB);
-      if (value.isNull()) {
-        continue;
-      }
-      if (needTypeCast) {
-        value = ValueUtils.transformToDouble(value);
-      }
-      int hash = getHash(value, needTypeCast);
-      List<Row> rows = streamBHashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      rows.add(rowB);
-      if (rows.size() == 1) {
-        streamBHashPutOrder.add(hash);
+      streamBHashTable.put(rowB, indexB);
+      if (!memory.tryReserve(rowB)) {
+        exceeded = true;
+        break;
       }
     }
 
@@ -175,6 +173,22 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
             joinColumns,
             extraJoinPaths);
 
+    // 建表侧超过内存预算，两侧分区溢写后逐个分区连接
+    if (exceeded) {
+      this.spilledStream =
+          GraceHashJoin.join(
+              header,
+              streamBHashTable,
+              streamA,
+              indexA,
+              streamB,
+              indexB,
+              (partitionA, partitionB) ->
+                  new HashOuterJoinLazyStream(outerJoin, partitionA, partitionB));
+      this.streamBHashTable = null;
+      memory.releaseAll();
+    }
+
     this.hasInitialized = true;
   }
 
@@ -206,15 +220,22 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
       anotherRowSize -= joinColumns.size();
       anotherRowSize -= extraJoinPaths.size();
 
-      for (int hash : streamBHashPutOrder) {
-        if (!matchedStreamBRowHashSet.contains(hash)) {
-          List<Row> unmatchedRows = streamBHashMap.get(hash);
-          for (Row halfRow : unmatchedRows) {
-            Row unmatchedRow =
-                RowUtils.constructUnmatchedRow(
-                    header, halfRow, outerJoin.getPrefixB(), anotherRowSize, false);
-            cache.add(unmatchedRow);
-          }
+      // 组号按照键首次出现的顺序分配，按组号遍历与StreamB的原始顺序一致
+      for (int group = 0; group < streamBHashTable.getGroupCount(); group++) {
+        if (matchedStreamBGroups.get(group)) {
+          continue;
+        }
+        for (int rowId = streamBHashTable.firstRow(group);
+            rowId != -1;
+            rowId = streamBHashTable.nextRow(rowId)) {
+          Row unmatchedRow =
+              RowUtils.constructUnmatchedRow(
+                  header,
+                  streamBHashTable.getRow(rowId),
+                  outerJoin.getPrefixB(),
+                  anotherRowSize,
+                  false);
+          cache.add(unmatchedRow);
         }
       }
     }
@@ -234,6 +255,9 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
     if (!hasInitialized) {
       initialize();
     }
+    if (spilledStream != null) {
+      return spilledStream.hasNext();
+    }
     while (cache.isEmpty() && streamA.hasNext()) {
       tryMatch();
     }
@@ -246,18 +270,15 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
   private void tryMatch() throws PhysicalException {
     Row rowA = streamA.next();
 
-    Value value = rowA.getAsValue(joinPathA);
-    if (value.isNull()) {
+    if (rowA.getValue(indexA) == null) {
       return;
     }
-    if (needTypeCast) {
-      value = ValueUtils.transformToDouble(value);
-    }
-    int hash = getHash(value, needTypeCast);
-
-    if (streamBHashMap.containsKey(hash)) {
-      List<Row> rowsB = streamBHashMap.get(hash);
-      for (Row rowB : rowsB) {
+    int group = streamBHashTable.probe(rowA, indexA);
+    if (group != -1) {
+      for (int rowId = streamBHashTable.firstRow(group);
+          rowId != -1;
+          rowId = streamBHashTable.nextRow(rowId)) {
+        Row rowB = streamBHashTable.getRow(rowId);
         if (!equalOnSpecificPaths(rowA, rowB, extraJoinPaths)) {
           continue;
         } else if (!equalOnSpecificPaths(
@@ -281,7 +302,7 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
         }
         cache.addLast(joinedRow);
       }
-      matchedStreamBRowHashSet.add(hash);
+      matchedStreamBGroups.set(group);
     } else {
       unmatchedStreamARows.add(rowA);
     }
@@ -292,6 +313,20 @@ public class HashOuterJoinLazyStream extends BinaryLazyStream {
     if (!hasNext()) {
       throw new IllegalStateException("row stream doesn't have more data!");
     }
+    if (spilledStream != null) {
+      return spilledStream.next();
+    }
     return cache.pollFirst();
   }
+
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    if (spilledStream != null) {
+      spilledStream.close();
+    }
+    if (memory != null) {
+      memory.close();
+    }
+  }
 }
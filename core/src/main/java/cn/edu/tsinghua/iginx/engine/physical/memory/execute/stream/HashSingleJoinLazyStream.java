@@ -20,10 +20,12 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.GraceHashJoin;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterUtils;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.JoinHashTable;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
@@ -31,27 +33,25 @@ import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
 import cn.edu.tsinghua.iginx.engine.shared.operator.SingleJoin;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Pair;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.List;
 
 public class HashSingleJoinLazyStream extends BinaryLazyStream {
 
   private final SingleJoin singleJoin;
-  private final HashMap<Integer, List<Row>> streamBHashMap;
+  private JoinHashTable streamBHashTable;
   private final Deque<Row> cache;
   private Header header;
   private boolean hasInitialized = false;
   private String joinPathA;
+  private int indexA;
   private boolean needTypeCast = false;
+  private MemoryTracker memory;
+  private RowStream spilledStream; // 建表侧超过内存预算时各分区连接的结果
 
   public HashSingleJoinLazyStream(SingleJoin singleJoin, RowStream streamA, RowStream streamB) {
     super(streamA, streamB);
     this.singleJoin = singleJoin;
-    this.streamBHashMap = new HashMap<>();
     this.cache = new LinkedList<>();
   }
 
@@ -71,23 +71,34 @@ public class HashSingleJoinLazyStream extends BinaryLazyStream {
       this.needTypeCast = true;
     }
 
+    this.indexA = streamA.getHeader().indexOf(joinPathA);
+    int indexB = streamB.getHeader().indexOf(joinPathB);
+    this.memory = MemoryTracker.create(context);
+    this.streamBHashTable = new JoinHashTable(needTypeCast);
+    boolean exceeded = false;
     while (streamB.hasNext()) {
       Row rowB = streamB.next();
-      Value value = rowB.getAsValue(joinPathB);
-      if (value.isNull()) {
-        continue;
+      streamBHashTable.put(rowB, indexB);
+      if (!memory.tryReserve(rowB)) {
+        exceeded = true;
+        break;
       }
-      if (needTypeCast) {
-        value = ValueUtils.transformToDouble(value);
-      }
-      int hash;
-      if (value.getDataType() == DataType.BINARY) {
-        hash = Arrays.hashCode(value.getBinaryV());
-      } else {
-        hash = value.getValue().hashCode();
-      }
-      List<Row> rows = streamBHashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      rows.add(rowB);
+    }
+
+    // 建表侧超过内存预算，两侧分区溢写后逐个分区连接
+    if (exceeded) {
+      this.spilledStream =
+          GraceHashJoin.join(
+              header,
+              streamBHashTable,
+              streamA,
+              indexA,
+              streamB,
+              indexB,
+              (partitionA, partitionB) ->
+                  new HashSingleJoinLazyStream(singleJoin, partitionA, partitionB));
+      this.streamBHashTable = null;
+      memory.releaseAll();
     }
 
     this.hasInitialized = true;
@@ -106,6 +117,9 @@ public class HashSingleJoinLazyStream extends BinaryLazyStream {
     if (!hasInitialized) {
       initialize();
     }
+    if (spilledStream != null) {
+      return spilledStream.hasNext();
+    }
     while (cache.isEmpty() && streamA.hasNext()) {
       tryMatch();
     }
@@ -115,24 +129,15 @@ public class HashSingleJoinLazyStream extends BinaryLazyStream {
   private void tryMatch() throws PhysicalException {
     Row rowA = streamA.next();
 
-    Value value = rowA.getAsValue(joinPathA);
-    if (value.isNull()) {
+    if (rowA.getValue(indexA) == null) {
       return;
     }
-    if (needTypeCast) {
-      value = ValueUtils.transformToDouble(value);
-    }
-    int hash;
-    if (value.getDataType() == DataType.BINARY) {
-      hash = Arrays.hashCode(value.getBinaryV());
-    } else {
-      hash = value.getValue().hashCode();
-    }
+    int group = streamBHashTable.probe(rowA, indexA);
 
-    if (streamBHashMap.containsKey(hash)) {
-      List<Row> hashRowsB = streamBHashMap.get(hash);
-      if (hashRowsB.size() == 1) {
-        Row joinedRow = RowUtils.constructNewRow(header, rowA, hashRowsB.get(0), true);
+    if (group != -1) {
+      if (streamBHashTable.getGroupSize(group) == 1) {
+        Row rowB = streamBHashTable.getRow(streamBHashTable.firstRow(group));
+        Row joinedRow = RowUtils.constructNewRow(header, rowA, rowB, true);
         cache.add(joinedRow);
       } else {
         throw new PhysicalException("the return value of sub-query has more than one rows");
@@ -151,6 +156,20 @@ public class HashSingleJoinLazyStream extends BinaryLazyStream {
     if (!hasNext()) {
       throw new IllegalStateException("row stream doesn't have more data!");
     }
+    if (spilledStream != null) {
+      return spilledStream.next();
+    }
     return cache.pollFirst();
   }
+
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    if (spilledStream != null) {
+      spilledStream.close();
+    }
+    if (memory != null) {
+      memory.close();
+    }
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+
+/** ProjectLazyStream的向量化版本，投影本身不拷贝数据，只在需要去除全空行时重新组织列。 */
+public class ProjectBatchStream extends UnaryBatchStream {
+
+  private final Project project;
+
+  private Header header;
+
+  private int[] indices; // 输出列在输入表头中的下标
+
+  public ProjectBatchStream(Project project, BatchStream stream) {
+    super(stream);
+    this.project = project;
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    if (header == null) {
+      Header inputHeader = stream.getHeader();
+      header = ProjectLazyStream.projectHeader(project, inputHeader);
+      indices = new int[header.getFieldSize()];
+      for (int i = 0; i < indices.length; i++) {
+        indices[i] = inputHeader.indexOf(header.getField(i));
+      }
+    }
+    return header;
+  }
+
+  @Override
+  protected Batch compute(Batch batch) throws PhysicalException {
+    Header header = getHeader();
+    ColumnVector[] columns = new ColumnVector[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      columns[i] = batch.getColumn(indices[i]);
+    }
+
+    // 与逐行执行保持一致：投影后全为空值的行被丢弃
+    int size = batch.getRowCount();
+    int[] selection = new int[size];
+    int selected = 0;
+    for (int row = 0; row < size; row++) {
+      for (ColumnVector column : columns) {
+        if (!column.isNull(row)) {
+          selection[selected++] = row;
+          break;
+        }
+      }
+    }
+    Batch projected = batch.withColumns(header, columns);
+    return projected.select(selection, selected);
+  }
+}
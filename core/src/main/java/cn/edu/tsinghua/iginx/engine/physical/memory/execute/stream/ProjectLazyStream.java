@@ -48,30 +48,33 @@ public class ProjectLazyStream extends UnaryLazyStream {
   @Override
   public Header getHeader() throws PhysicalException {
     if (header == null) {
-      List<String> patterns = project.getPatterns();
-      Header header = stream.getHeader();
-      List<Field> targetFields = new ArrayList<>();
+      header = projectHeader(project, stream.getHeader());
+    }
+    return header;
+  }
 
-      for (Field field : header.getFields()) {
-        if (project.isRemainKey() && field.getName().endsWith(KEY)) {
-          targetFields.add(field);
-          continue;
-        }
-        for (String pattern : patterns) {
-          if (!StringUtils.isPattern(pattern)) {
-            if (pattern.equals(field.getFullName())) {
-              targetFields.add(field);
-            }
-          } else {
-            if (Pattern.matches(StringUtils.reformatPath(pattern), field.getFullName())) {
-              targetFields.add(field);
-            }
+  static Header projectHeader(Project project, Header header) {
+    List<String> patterns = project.getPatterns();
+    List<Field> targetFields = new ArrayList<>();
+
+    for (Field field : header.getFields()) {
+      if (project.isRemainKey() && field.getName().endsWith(KEY)) {
+        targetFields.add(field);
+        continue;
+      }
+      for (String pattern : patterns) {
+        if (!StringUtils.isPattern(pattern)) {
+          if (pattern.equals(field.getFullName())) {
+            targetFields.add(field);
+          }
+        } else {
+          if (Pattern.matches(StringUtils.reformatPath(pattern), field.getFullName())) {
+            targetFields.add(field);
           }
         }
       }
-      this.header = new Header(header.getKey(), targetFields);
     }
-    return header;
+    return new Header(header.getKey(), targetFields);
   }
 
   @Override
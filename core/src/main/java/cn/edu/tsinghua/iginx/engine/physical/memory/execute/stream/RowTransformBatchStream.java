@@ -0,0 +1,100 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.BatchExprUtils;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Expression;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.ArithmeticExpr;
+import cn.edu.tsinghua.iginx.engine.shared.operator.RowTransform;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.List;
+
+/** RowTransformLazyStream的向量化版本，目前仅支持全部由算术表达式组成的RowTransform。 */
+public class RowTransformBatchStream extends UnaryBatchStream {
+
+  private final List<Expression> expressions;
+
+  private Header header;
+
+  public RowTransformBatchStream(RowTransform rowTransform, BatchStream stream) {
+    super(stream);
+    this.expressions = new ArrayList<>();
+    for (FunctionCall functionCall : rowTransform.getFunctionCallList()) {
+      expressions.add(functionCall.getParams().getExpression(0));
+    }
+  }
+
+  /**
+   * 判断RowTransform能否在给定的输入表头下按列计算
+   *
+   * @param rowTransform RowTransform算子
+   * @param header 输入表头
+   * @return 所有函数均为参数可按列计算的算术表达式时返回true
+   */
+  public static boolean canVectorize(RowTransform rowTransform, Header header) {
+    if (rowTransform.getFunctionCallList().isEmpty()) {
+      return false;
+    }
+    for (FunctionCall functionCall : rowTransform.getFunctionCallList()) {
+      if (functionCall == null
+          || !(functionCall.getFunction() instanceof ArithmeticExpr)
+          || functionCall.isNeedPreRowTransform()
+          || functionCall.getParams().getExpressions().size() != 1) {
+        return false;
+      }
+      if (BatchExprUtils.inferType(functionCall.getParams().getExpression(0), header) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    if (header == null) {
+      Header inputHeader = stream.getHeader();
+      List<Field> fields = new ArrayList<>();
+      for (Expression expr : expressions) {
+        DataType type = BatchExprUtils.inferType(expr, inputHeader);
+        fields.add(new Field(expr.getColumnName(), type));
+      }
+      header = inputHeader.hasKey() ? new Header(Field.KEY, fields) : new Header(fields);
+    }
+    return header;
+  }
+
+  @Override
+  protected Batch compute(Batch batch) throws PhysicalException {
+    Header header = getHeader();
+    ColumnVector[] columns = new ColumnVector[expressions.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = BatchExprUtils.calculateExpr(batch, expressions.get(i));
+    }
+    return batch.withColumns(header, columns);
+  }
+}
@@ -21,22 +21,31 @@ package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import static cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils.combineMultipleColumns;
 
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchToRowStreamWrapper;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionParams;
 import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.VectorizedSetMappingFunction;
 import cn.edu.tsinghua.iginx.engine.shared.operator.SetTransform;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SetTransformLazyStream extends UnaryLazyStream {
 
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
   private final List<FunctionCall> functionCallList;
 
   private Row nextRow;
@@ -47,6 +56,8 @@ public class SetTransformLazyStream extends UnaryLazyStream {
 
   private boolean hasConsumed = false;
 
+  private final Map<RowStream, Batch> batchCache = new IdentityHashMap<>(); // 同一输入只转换一次列式数据
+
   public SetTransformLazyStream(
       SetTransform setTransform,
       RowStream stream,
@@ -83,13 +94,19 @@ public class SetTransformLazyStream extends UnaryLazyStream {
       for (FunctionCall functionCall : functionCallList) {
         function = (SetMappingFunction) functionCall.getFunction();
         FunctionParams params = functionCall.getParams();
+        RowStream input;
         if (params.isDistinct()) {
-          rowList.add(function.transform((Table) distinctStreamMap.get(params.getPaths()), params));
+          input = distinctStreamMap.get(params.getPaths());
         } else if (functionCall.isNeedPreRowTransform()) {
-          rowList.add(
-              function.transform((Table) rowTransformStreamMap.get(params.getPaths()), params));
+          input = rowTransformStreamMap.get(params.getPaths());
+        } else {
+          input = stream;
+        }
+        if (config.isEnableVectorizedExecution()
+            && function instanceof VectorizedSetMappingFunction) {
+          rowList.add(((VectorizedSetMappingFunction) function).transform(batchOf(input), params));
         } else {
-          rowList.add(function.transform((Table) stream, params));
+          rowList.add(function.transform(tableOf(input), params));
         }
       }
 
@@ -106,6 +123,35 @@ public class SetTransformLazyStream extends UnaryLazyStream {
     return combineMultipleColumns(rowList);
   }
 
+  /** 输入本身是列式数据流时（如存储层直接返回的批数据），直接拼接各批数据，不经过行 */
+  private Batch batchOf(RowStream input) throws PhysicalException {
+    Batch batch = batchCache.get(input);
+    if (batch == null) {
+      if (input instanceof BatchToRowStreamWrapper) {
+        BatchStream batchStream = ((BatchToRowStreamWrapper) input).getBatchStream();
+        List<Batch> batches = new ArrayList<>();
+        while (batchStream.hasNext()) {
+          batches.add(batchStream.nextBatch());
+        }
+        batch = Batch.concat(batchStream.getHeader(), batches);
+      } else {
+        Table table = (Table) input;
+        batch = Batch.fromRows(table.getHeader(), table.getRows());
+      }
+      batchCache.put(input, batch);
+    }
+    return batch;
+  }
+
+  private Table tableOf(RowStream input) throws PhysicalException {
+    if (input instanceof Table) {
+      return (Table) input;
+    }
+    // 列式数据流只能读取一次，先转换为批数据，以便与向量化的函数共用
+    Batch batch = batchOf(input);
+    return new Table(batch.getHeader(), batch.toRows());
+  }
+
   @Override
   public Row next() throws PhysicalException {
     if (!hasNext()) {
@@ -20,6 +20,8 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.ExternalSorter;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
@@ -40,6 +42,12 @@ public class SortLazyStream extends UnaryLazyStream {
 
   private int cur = 0;
 
+  private MemoryTracker memory;
+
+  private ExternalSorter sorter;
+
+  private RowStream sortedStream; // 发生溢写时的归并结果
+
   public SortLazyStream(Sort sort, RowStream stream) {
     super(stream);
     this.sort = sort;
@@ -55,20 +63,63 @@ public class SortLazyStream extends UnaryLazyStream {
   @Override
   public boolean hasNext() throws PhysicalException {
     if (!hasSorted) {
-      while (stream.hasNext()) {
-        rows.add(stream.next());
+      this.memory = MemoryTracker.create(context);
+      if (memory.isLimited()) {
+        sortWithSpill();
+      } else {
+        while (stream.hasNext()) {
+          rows.add(stream.next());
+        }
+        RowUtils.sortRows(rows, ascendingList, sort.getSortByCols());
       }
-      RowUtils.sortRows(rows, ascendingList, sort.getSortByCols());
       hasSorted = true;
     }
+    if (sortedStream != null) {
+      return sortedStream.hasNext();
+    }
     return cur < rows.size();
   }
 
+  /** 缓存的数据超过内存预算时，将有序段溢写到磁盘，最后进行外排序归并 */
+  private void sortWithSpill() throws PhysicalException {
+    while (stream.hasNext()) {
+      Row row = stream.next();
+      if (sorter == null) {
+        sorter =
+            new ExternalSorter(
+                getHeader(),
+                RowUtils.buildRowComparator(getHeader(), ascendingList, sort.getSortByCols()),
+                memory);
+      }
+      sorter.add(row);
+    }
+    if (sorter != null) {
+      sortedStream = sorter.sort();
+    }
+  }
+
   @Override
   public Row next() throws PhysicalException {
     if (!hasNext()) {
       throw new IllegalStateException("row stream doesn't have more data!");
     }
+    if (sortedStream != null) {
+      return sortedStream.next();
+    }
     return rows.get(cur++);
   }
+
+  @Override
+  public void close() throws PhysicalException {
+    super.close();
+    if (sortedStream != null) {
+      sortedStream.close();
+    }
+    if (sorter != null) {
+      sorter.close();
+    }
+    if (memory != null) {
+      memory.close();
+    }
+  }
 }
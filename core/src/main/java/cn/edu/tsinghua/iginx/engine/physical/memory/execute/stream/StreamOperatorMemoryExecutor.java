@@ -21,6 +21,8 @@ package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import static cn.edu.tsinghua.iginx.engine.shared.function.FunctionUtils.isCanUseSetQuantifierFunction;
 
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.InvalidOperatorParameterException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorException;
@@ -30,7 +32,10 @@ import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.HeaderUtils;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.Constants;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchToRowStreamWrapper;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowToBatchStreamWrapper;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionParams;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionUtils;
@@ -73,6 +78,8 @@ import java.util.Map;
 
 public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
 
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
   private StreamOperatorMemoryExecutor() {}
 
   public static StreamOperatorMemoryExecutor getInstance() {
@@ -184,6 +191,10 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
     switch (source.getType()) {
       case Operator:
       case Empty:
+        if (config.isEnableVectorizedExecution()) {
+          return new BatchToRowStreamWrapper(
+              new ProjectBatchStream(project, toBatchStream(stream)));
+        }
         return new ProjectLazyStream(project, stream);
       case Constant:
         ConstantSource constantSource = (ConstantSource) source;
@@ -195,6 +206,9 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
   }
 
   private RowStream executeSelect(Select select, RowStream stream) {
+    if (config.isEnableVectorizedExecution()) {
+      return new BatchToRowStreamWrapper(new SelectBatchStream(select, toBatchStream(stream)));
+    }
     return new SelectLazyStream(select, stream);
   }
 
@@ -220,7 +234,13 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
     return new DownsampleLazyStream(downsample, stream);
   }
 
-  private RowStream executeRowTransform(RowTransform rowTransform, RowStream stream) {
+  private RowStream executeRowTransform(RowTransform rowTransform, RowStream stream)
+      throws PhysicalException {
+    if (config.isEnableVectorizedExecution()
+        && RowTransformBatchStream.canVectorize(rowTransform, stream.getHeader())) {
+      return new BatchToRowStreamWrapper(
+          new RowTransformBatchStream(rowTransform, toBatchStream(stream)));
+    }
     return new RowTransformLazyStream(rowTransform, stream);
   }
 
@@ -457,6 +477,14 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
     return new IntersectLazyStream(intersect, streamA, streamB);
   }
 
+  /** 将输入转换为列式数据流，若输入本身由向量化算子产生，则直接复用，避免行列之间的来回转换 */
+  private static BatchStream toBatchStream(RowStream stream) {
+    if (stream instanceof BatchToRowStreamWrapper) {
+      return ((BatchToRowStreamWrapper) stream).getBatchStream();
+    }
+    return new RowToBatchStreamWrapper(stream, config.getVectorizedBatchSize());
+  }
+
   private static class StreamOperatorMemoryExecutorHolder {
 
     private static final StreamOperatorMemoryExecutor INSTANCE = new StreamOperatorMemoryExecutor();
@@ -0,0 +1,83 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchStream;
+
+/** 向量化的一元算子，子类只需实现对单个批数据的计算，结果为空的批会被跳过。 */
+public abstract class UnaryBatchStream implements BatchStream {
+
+  protected final BatchStream stream;
+
+  protected RequestContext context;
+
+  private Batch nextBatch;
+
+  public UnaryBatchStream(BatchStream stream) {
+    this.stream = stream;
+  }
+
+  /**
+   * 计算单个批数据
+   *
+   * @param batch 输入批数据
+   * @return 输出批数据，可以为空
+   */
+  protected abstract Batch compute(Batch batch) throws PhysicalException;
+
+  @Override
+  public boolean hasNext() throws PhysicalException {
+    while (nextBatch == null && stream.hasNext()) {
+      Batch batch = compute(stream.nextBatch());
+      if (!batch.isEmpty()) {
+        nextBatch = batch;
+      }
+    }
+    return nextBatch != null;
+  }
+
+  @Override
+  public Batch nextBatch() throws PhysicalException {
+    if (!hasNext()) {
+      throw new IllegalStateException("batch stream doesn't have more data!");
+    }
+    Batch batch = nextBatch;
+    nextBatch = null;
+    return batch;
+  }
+
+  @Override
+  public void close() throws PhysicalException {
+    stream.close();
+  }
+
+  @Override
+  public void setContext(RequestContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public RequestContext getContext() {
+    return context;
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BaseExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BinaryExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BracketExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.ConstantExpression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Expression;
+import cn.edu.tsinghua.iginx.engine.shared.expr.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.expr.UnaryExpression;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
+
+/**
+ * 在列式批数据上计算算术表达式。仅支持由列、数值常量、括号、正负号和四则运算/取模组成的表达式，类型推导规则与ExprUtils保持一致；不支持的表达式由调用方退化为逐行计算。
+ */
+public class BatchExprUtils {
+
+  private BatchExprUtils() {}
+
+  /**
+   * 推导表达式在给定表头下的结果类型
+   *
+   * @return 结果类型；表达式无法按列计算时返回null
+   */
+  public static DataType inferType(Expression expr, Header header) {
+    switch (expr.getType()) {
+      case Constant:
+        return numericTypeOf(((ConstantExpression) expr).getValue());
+      case Base:
+        int index = header.indexOf(expr.getColumnName());
+        if (index == -1) {
+          return null;
+        }
+        DataType type = header.getField(index).getType();
+        return DataTypeUtils.isNumber(type) ? type : null;
+      case Bracket:
+        return inferType(((BracketExpression) expr).getExpression(), header);
+      case Unary:
+        return inferType(((UnaryExpression) expr).getExpression(), header);
+      case Binary:
+        BinaryExpression binaryExpr = (BinaryExpression) expr;
+        DataType left = inferType(binaryExpr.getLeftExpression(), header);
+        DataType right = inferType(binaryExpr.getRightExpression(), header);
+        if (left == null || right == null) {
+          return null;
+        }
+        DataType operandType = left;
+        if (left != right) {
+          // FLOAT转换为double时需要经过十进制字符串，交由逐行计算保证结果一致
+          if (left == DataType.FLOAT || right == DataType.FLOAT) {
+            return null;
+          }
+          operandType = DataType.DOUBLE;
+        }
+        if (binaryExpr.getOp() == Operator.DIV
+            && (operandType == DataType.INTEGER || operandType == DataType.LONG)) {
+          return DataType.DOUBLE;
+        }
+        return operandType;
+      default:
+        return null;
+    }
+  }
+
+  /** 计算表达式，调用方需先通过inferType确认表达式可以按列计算 */
+  public static ColumnVector calculateExpr(Batch batch, Expression expr) throws PhysicalException {
+    int size = batch.getRowCount();
+    switch (expr.getType()) {
+      case Constant:
+        Object value = ((ConstantExpression) expr).getValue();
+        ColumnVector constant = ColumnVector.allocate(numericTypeOf(value), size);
+        for (int i = 0; i < size; i++) {
+          constant.putObject(i, value);
+        }
+        return constant;
+      case Base:
+        return batch.getColumn(batch.getHeader().indexOf(expr.getColumnName()));
+      case Bracket:
+        return calculateExpr(batch, ((BracketExpression) expr).getExpression());
+      case Unary:
+        UnaryExpression unaryExpr = (UnaryExpression) expr;
+        ColumnVector child = calculateExpr(batch, unaryExpr.getExpression());
+        if (unaryExpr.getOperator() == Operator.PLUS) {
+          return child;
+        }
+        return negate(child, size);
+      case Binary:
+        BinaryExpression binaryExpr = (BinaryExpression) expr;
+        ColumnVector left = calculateExpr(batch, binaryExpr.getLeftExpression());
+        ColumnVector right = calculateExpr(batch, binaryExpr.getRightExpression());
+        try {
+          return calculateBinary(binaryExpr.getOp(), left, right, size);
+        } catch (ArithmeticException e) {
+          throw new PhysicalTaskExecuteFailureException(
+              "encounter error when calculate expression " + expr.getColumnName(), e);
+        }
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unsupported vectorized expr type: %s", expr.getType()));
+    }
+  }
+
+  private static DataType numericTypeOf(Object value) {
+    if (value instanceof Integer) {
+      return DataType.INTEGER;
+    } else if (value instanceof Long) {
+      return DataType.LONG;
+    } else if (value instanceof Float) {
+      return DataType.FLOAT;
+    } else if (value instanceof Double) {
+      return DataType.DOUBLE;
+    }
+    return null;
+  }
+
+  private static ColumnVector negate(ColumnVector child, int size) {
+    ColumnVector result = ColumnVector.allocate(child.getType(), size);
+    for (int i = 0; i < size; i++) {
+      if (child.isNull(i)) {
+        continue;
+      }
+      switch (child.getType()) {
+        case INTEGER:
+          result.putInt(i, -child.getInt(i));
+          break;
+        case LONG:
+          result.putLong(i, -child.getLong(i));
+          break;
+        case FLOAT:
+          result.putFloat(i, -child.getFloat(i));
+          break;
+        case DOUBLE:
+          result.putDouble(i, -child.getDouble(i));
+          break;
+        default:
+          throw new IllegalStateException("Unexpected data type: " + child.getType());
+      }
+    }
+    return result;
+  }
+
+  private static ColumnVector calculateBinary(
+      Operator op, ColumnVector left, ColumnVector right, int size) {
+    DataType type = left.getType() == right.getType() ? left.getType() : DataType.DOUBLE;
+    switch (type) {
+      case INTEGER:
+        return op == Operator.DIV
+            ? calculateDoubleBinary(op, left, right, size)
+            : calculateIntBinary(op, left, right, size);
+      case LONG:
+        return op == Operator.DIV
+            ? calculateDoubleBinary(op, left, right, size)
+            : calculateLongBinary(op, left, right, size);
+      case FLOAT:
+        return calculateFloatBinary(op, left, right, size);
+      case DOUBLE:
+        return calculateDoubleBinary(op, left, right, size);
+      default:
+        throw new IllegalStateException("Unexpected data type: " + type);
+    }
+  }
+
+  private static ColumnVector calculateIntBinary(
+      Operator op, ColumnVector left, ColumnVector right, int size) {
+    ColumnVector result = ColumnVector.allocate(DataType.INTEGER, size);
+    for (int i = 0; i < size; i++) {
+      if (left.isNull(i) || right.isNull(i)) {
+        continue;
+      }
+      int a = left.getInt(i);
+      int b = right.getInt(i);
+      switch (op) {
+        case PLUS:
+          result.putInt(i, a + b);
+          break;
+        case MINUS:
+          result.putInt(i, a - b);
+          break;
+        case STAR:
+          result.putInt(i, a * b);
+          break;
+        case MOD:
+          result.putInt(i, a % b);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown operator type: %s", op));
+      }
+    }
+    return result;
+  }
+
+  private static ColumnVector calculateLongBinary(
+      Operator op, ColumnVector left, ColumnVector right, int size) {
+    ColumnVector result = ColumnVector.allocate(DataType.LONG, size);
+    for (int i = 0; i < size; i++) {
+      if (left.isNull(i) || right.isNull(i)) {
+        continue;
+      }
+      long a = left.getLong(i);
+      long b = right.getLong(i);
+      switch (op) {
+        case PLUS:
+          result.putLong(i, a + b);
+          break;
+        case MINUS:
+          result.putLong(i, a - b);
+          break;
+        case STAR:
+          result.putLong(i, a * b);
+          break;
+        case MOD:
+          result.putLong(i, a % b);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown operator type: %s", op));
+      }
+    }
+    return result;
+  }
+
+  private static ColumnVector calculateFloatBinary(
+      Operator op, ColumnVector left, ColumnVector right, int size) {
+    ColumnVector result = ColumnVector.allocate(DataType.FLOAT, size);
+    for (int i = 0; i < size; i++) {
+      if (left.isNull(i) || right.isNull(i)) {
+        continue;
+      }
+      float a = left.getFloat(i);
+      float b = right.getFloat(i);
+      switch (op) {
+        case PLUS:
+          result.putFloat(i, a + b);
+          break;
+        case MINUS:
+          result.putFloat(i, a - b);
+          break;
+        case STAR:
+          result.putFloat(i, a * b);
+          break;
+        case DIV:
+          result.putFloat(i, a / b);
+          break;
+        case MOD:
+          result.putFloat(i, a % b);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown operator type: %s", op));
+      }
+    }
+    return result;
+  }
+
+  private static ColumnVector calculateDoubleBinary(
+      Operator op, ColumnVector left, ColumnVector right, int size) {
+    ColumnVector result = ColumnVector.allocate(DataType.DOUBLE, size);
+    for (int i = 0; i < size; i++) {
+      if (left.isNull(i) || right.isNull(i)) {
+        continue;
+      }
+      double a = left.getAsDouble(i);
+      double b = right.getAsDouble(i);
+      switch (op) {
+        case PLUS:
+          result.putDouble(i, a + b);
+          break;
+        case MINUS:
+          result.putDouble(i, a - b);
+          break;
+        case STAR:
+          result.putDouble(i, a * b);
+          break;
+        case DIV:
+          result.putDouble(i, a / b);
+          break;
+        case MOD:
+          result.putDouble(i, a % b);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown operator type: %s", op));
+      }
+    }
+    return result;
+  }
+}
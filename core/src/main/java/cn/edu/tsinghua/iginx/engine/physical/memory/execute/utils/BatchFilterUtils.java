@@ -0,0 +1,290 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.*;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 在列式批数据上计算过滤条件。Key过滤和数值列与常量的比较按列直接在原始类型数组上完成，其余过滤条件逐行物化后交给FilterUtils计算，保证与行式执行的结果一致。
+ */
+public class BatchFilterUtils {
+
+  private BatchFilterUtils() {}
+
+  /**
+   * 计算批数据中每一行是否满足过滤条件
+   *
+   * @param filter 过滤条件
+   * @param batch 批数据
+   * @return 长度为行数的布尔数组，true表示该行满足条件
+   */
+  public static boolean[] validate(Filter filter, Batch batch) throws PhysicalException {
+    int size = batch.getRowCount();
+    boolean[] result;
+    switch (filter.getType()) {
+      case Or:
+        result = new boolean[size];
+        for (Filter child : ((OrFilter) filter).getChildren()) {
+          boolean[] childResult = validate(child, batch);
+          for (int i = 0; i < size; i++) {
+            result[i] |= childResult[i];
+          }
+        }
+        return result;
+      case And:
+        result = new boolean[size];
+        Arrays.fill(result, true);
+        for (Filter child : ((AndFilter) filter).getChildren()) {
+          boolean[] childResult = validate(child, batch);
+          for (int i = 0; i < size; i++) {
+            result[i] &= childResult[i];
+          }
+        }
+        return result;
+      case Not:
+        result = validate(((NotFilter) filter).getChild(), batch);
+        for (int i = 0; i < size; i++) {
+          result[i] = !result[i];
+        }
+        return result;
+      case Bool:
+        result = new boolean[size];
+        Arrays.fill(result, ((BoolFilter) filter).isTrue());
+        return result;
+      case Key:
+        return validateKeyFilter((KeyFilter) filter, batch);
+      case Value:
+        result = validateValueFilter((ValueFilter) filter, batch);
+        if (result != null) {
+          return result;
+        }
+        return validateByRow(filter, batch);
+      default:
+        return validateByRow(filter, batch);
+    }
+  }
+
+  /**
+   * 根据计算结果生成选择向量
+   *
+   * @return 选择向量，其中有效下标的数量为返回数组的长度
+   */
+  public static int[] toSelection(boolean[] result) {
+    int count = 0;
+    for (boolean b : result) {
+      if (b) {
+        count++;
+      }
+    }
+    int[] selection = new int[count];
+    int j = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (result[i]) {
+        selection[j++] = i;
+      }
+    }
+    return selection;
+  }
+
+  private static boolean[] validateByRow(Filter filter, Batch batch) throws PhysicalException {
+    int size = batch.getRowCount();
+    boolean[] result = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = FilterUtils.validate(filter, batch.getRow(i));
+    }
+    return result;
+  }
+
+  private static boolean[] validateKeyFilter(KeyFilter keyFilter, Batch batch) {
+    int size = batch.getRowCount();
+    boolean[] result = new boolean[size];
+    long[] keys = batch.getKeys();
+    if (keys == null) {
+      return result;
+    }
+    long target = keyFilter.getValue();
+    switch (keyFilter.getOp()) {
+      case E:
+      case E_AND:
+        for (int i = 0; i < size; i++) {
+          result[i] = keys[i] == target;
+        }
+        break;
+      case G:
+      case G_AND:
+        for (int i = 0; i < size; i++) {
+          result[i] = keys[i] > target;
+        }
+        break;
+      case L:
+      case L_AND:
+        for (int i = 0; i < size; i++) {
+          result[i] = keys[i] < target;
+        }
+        break;
+      case GE:
+      case GE_AND:
+        for (int i = 0; i < size; i++) {
+          result[i] = keys[i] >= target;
+        }
+        break;
+      case LE:
+      case LE_AND:
+        for (int i = 0; i < size; i++) {
+          result[i] = keys[i] <= target;
+        }
+        break;
+      case NE:
+      case NE_AND:
+        for (int i = 0; i < size; i++) {
+          result[i] = keys[i] != target;
+        }
+        break;
+      default:
+        break;
+    }
+    for (int i = 0; i < size; i++) {
+      if (keys[i] == Row.NON_EXISTED_KEY) {
+        result[i] = false;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 按列计算值过滤条件
+   *
+   * @return 计算结果；如果该过滤条件无法按列计算（带通配符匹配多列、非数值类型、LIKE等），返回null
+   */
+  private static boolean[] validateValueFilter(ValueFilter valueFilter, Batch batch) {
+    int size = batch.getRowCount();
+    Value target = valueFilter.getValue();
+    if (target.isNull()) { // targetValue是空值，则认为不可比较
+      return new boolean[size];
+    }
+    List<Integer> indices = batch.getHeader().patternIndexOf(valueFilter.getPath());
+    if (indices.isEmpty()) {
+      return new boolean[size];
+    }
+    if (indices.size() != 1 || !isComparableOp(valueFilter.getOp())) {
+      return null;
+    }
+    ColumnVector column = batch.getColumn(indices.get(0));
+    DataType columnType = column.getType();
+    DataType targetType = target.getDataType();
+
+    boolean[] result = new boolean[size];
+    Op op = valueFilter.getOp();
+    if (columnType == targetType) {
+      switch (columnType) {
+        case INTEGER:
+          int intTarget = target.getIntV();
+          for (int i = 0; i < size; i++) {
+            result[i] =
+                !column.isNull(i) && matches(op, Integer.compare(column.getInt(i), intTarget));
+          }
+          return result;
+        case LONG:
+          long longTarget = target.getLongV();
+          for (int i = 0; i < size; i++) {
+            result[i] =
+                !column.isNull(i) && matches(op, Long.compare(column.getLong(i), longTarget));
+          }
+          return result;
+        case FLOAT:
+          float floatTarget = target.getFloatV();
+          for (int i = 0; i < size; i++) {
+            result[i] =
+                !column.isNull(i) && matches(op, Float.compare(column.getFloat(i), floatTarget));
+          }
+          return result;
+        case DOUBLE:
+          double doubleTarget = target.getDoubleV();
+          for (int i = 0; i < size; i++) {
+            result[i] =
+                !column.isNull(i)
+                    && matches(op, Double.compare(column.getDouble(i), doubleTarget));
+          }
+          return result;
+        default:
+          return null;
+      }
+    }
+    // FLOAT转换为double时需要经过十进制字符串，交由逐行计算保证结果一致
+    if (!isIntegralOrDouble(columnType) || !isIntegralOrDouble(targetType)) {
+      return null;
+    }
+    double doubleTarget = ((Number) target.getValue()).doubleValue();
+    for (int i = 0; i < size; i++) {
+      result[i] =
+          !column.isNull(i) && matches(op, Double.compare(column.getAsDouble(i), doubleTarget));
+    }
+    return result;
+  }
+
+  private static boolean isIntegralOrDouble(DataType type) {
+    return type == DataType.INTEGER || type == DataType.LONG || type == DataType.DOUBLE;
+  }
+
+  private static boolean isComparableOp(Op op) {
+    switch (op) {
+      case LIKE:
+      case LIKE_AND:
+      case NOT_LIKE:
+      case NOT_LIKE_AND:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  private static boolean matches(Op op, int cmp) {
+    switch (op) {
+      case E:
+      case E_AND:
+        return cmp == 0;
+      case G:
+      case G_AND:
+        return cmp > 0;
+      case L:
+      case L_AND:
+        return cmp < 0;
+      case GE:
+      case GE_AND:
+        return cmp >= 0;
+      case LE:
+      case LE_AND:
+        return cmp <= 0;
+      case NE:
+      case NE_AND:
+        return cmp != 0;
+      default:
+        return false;
+    }
+  }
+}
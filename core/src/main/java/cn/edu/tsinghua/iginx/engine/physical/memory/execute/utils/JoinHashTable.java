@@ -0,0 +1,333 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 哈希连接使用的哈希表，由各个哈希连接算子共享。连接列的值被编码为原始类型的键（整数、浮点数的位表示或字节数组），以开放寻址的方式存放在数组中，
+ * 键相同的行通过行号链表按插入顺序串联。建表与探测均不创建Value对象，且探测时比较完整的键，不会因哈希冲突产生误匹配。
+ *
+ * <p>键相同的若干行称为一组，组号按照首次出现的顺序从0开始分配。该类不是线程安全的。
+ */
+public final class JoinHashTable {
+
+  private static final int NONE = -1;
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private static final byte KIND_BOOLEAN = 0;
+
+  private static final byte KIND_INTEGRAL = 1;
+
+  private static final byte KIND_FLOATING = 2;
+
+  private static final byte KIND_BINARY = 3;
+
+  private final boolean needTypeCast;
+
+  // 建表侧的行，行号即插入顺序
+  private Row[] rows;
+
+  private int[] nextRows;
+
+  private int rowCount;
+
+  // 各组的键及其行链表
+  private byte[] groupKinds;
+
+  private long[] groupBits;
+
+  private byte[][] groupBinaries;
+
+  private int[] groupHashes;
+
+  private int[] groupHeads;
+
+  private int[] groupTails;
+
+  private int[] groupSizes;
+
+  private int groupCount;
+
+  // 开放寻址的槽位，存放组号+1，0表示空槽
+  private int[] slots;
+
+  private int mask;
+
+  // 当前正在处理的键，避免每次编码创建对象
+  private byte keyKind;
+
+  private long keyBits;
+
+  private byte[] keyBinary;
+
+  private int keyHash;
+
+  /**
+   * @param needTypeCast 连接列为不同的数值类型时为true，此时所有值均转换为double后比较
+   */
+  public JoinHashTable(boolean needTypeCast) {
+    this(needTypeCast, DEFAULT_CAPACITY);
+  }
+
+  public JoinHashTable(boolean needTypeCast, int expectedRows) {
+    this.needTypeCast = needTypeCast;
+    int rowCapacity = Math.max(expectedRows, DEFAULT_CAPACITY);
+    this.rows = new Row[rowCapacity];
+    this.nextRows = new int[rowCapacity];
+    int groupCapacity = DEFAULT_CAPACITY;
+    this.groupKinds = new byte[groupCapacity];
+    this.groupBits = new long[groupCapacity];
+    this.groupBinaries = new byte[groupCapacity][];
+    this.groupHashes = new int[groupCapacity];
+    this.groupHeads = new int[groupCapacity];
+    this.groupTails = new int[groupCapacity];
+    this.groupSizes = new int[groupCapacity];
+    this.slots = new int[groupCapacity * 2];
+    this.mask = slots.length - 1;
+  }
+
+  /**
+   * 使用给定的行建立哈希表，行号与行在列表中的下标一致
+   *
+   * @param rows 建表侧的行，需要具有相同的header
+   * @param joinPath 连接列
+   * @param needTypeCast 是否需要将连接列转换为double后比较
+   */
+  public static JoinHashTable build(List<Row> rows, String joinPath, boolean needTypeCast) {
+    JoinHashTable table = new JoinHashTable(needTypeCast, rows.size());
+    if (rows.isEmpty()) {
+      return table;
+    }
+    int keyIndex = rows.get(0).getHeader().indexOf(joinPath);
+    for (Row row : rows) {
+      table.put(row, keyIndex);
+    }
+    return table;
+  }
+
+  /**
+   * 向哈希表中插入一行。连接列为空值的行会被保存并分配行号，但不属于任何组，因此不会被探测到
+   *
+   * @param row 待插入的行
+   * @param keyIndex 连接列在行中的下标
+   * @return 分配的行号
+   */
+  public int put(Row row, int keyIndex) {
+    if (rowCount == rows.length) {
+      int newCapacity = rows.length * 2;
+      rows = Arrays.copyOf(rows, newCapacity);
+      nextRows = Arrays.copyOf(nextRows, newCapacity);
+    }
+    int rowId = rowCount++;
+    rows[rowId] = row;
+    nextRows[rowId] = NONE;
+    if (!encode(row, keyIndex)) {
+      return rowId;
+    }
+    int pos = findSlot();
+    int group = slots[pos] - 1;
+    if (group == NONE) {
+      group = addGroup(pos);
+      groupHeads[group] = rowId;
+    } else {
+      nextRows[groupTails[group]] = rowId;
+    }
+    groupTails[group] = rowId;
+    groupSizes[group]++;
+    return rowId;
+  }
+
+  /**
+   * 使用另一侧的行探测哈希表
+   *
+   * @param row 探测侧的行
+   * @param keyIndex 连接列在行中的下标
+   * @return 键相同的组号；连接列为空值或不存在相同的键时返回-1
+   */
+  public int probe(Row row, int keyIndex) {
+    if (groupCount == 0 || !encode(row, keyIndex)) {
+      return NONE;
+    }
+    return slots[findSlot()] - 1;
+  }
+
+  /**
+   * 计算行的连接列的哈希值，与建表和探测时使用的编码一致，用于溢写时对两侧进行分区
+   *
+   * @return 哈希值；连接列为空值时返回0
+   */
+  public int hash(Row row, int keyIndex) {
+    return encode(row, keyIndex) ? keyHash : 0;
+  }
+
+  /** 组内的第一行的行号 */
+  public int firstRow(int group) {
+    return groupHeads[group];
+  }
+
+  /** 同一组内下一行的行号，没有下一行时返回-1 */
+  public int nextRow(int rowId) {
+    return nextRows[rowId];
+  }
+
+  public Row getRow(int rowId) {
+    return rows[rowId];
+  }
+
+  public int getGroupSize(int group) {
+    return groupSizes[group];
+  }
+
+  public int getGroupCount() {
+    return groupCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /** 将行的连接列编码为当前键，空值返回false */
+  private boolean encode(Row row, int keyIndex) {
+    Object value = row.getValue(keyIndex);
+    if (value == null) {
+      return false;
+    }
+    DataType type = row.getType(keyIndex);
+    keyBinary = null;
+    if (needTypeCast) {
+      keyKind = KIND_FLOATING;
+      keyBits = Double.doubleToLongBits(toDouble(value, type));
+    } else {
+      switch (type) {
+        case BOOLEAN:
+          keyKind = KIND_BOOLEAN;
+          keyBits = (Boolean) value ? 1L : 0L;
+          break;
+        case INTEGER:
+        case LONG:
+          keyKind = KIND_INTEGRAL;
+          keyBits = ((Number) value).longValue();
+          break;
+        case FLOAT:
+        case DOUBLE:
+          keyKind = KIND_FLOATING;
+          keyBits = Double.doubleToLongBits(((Number) value).doubleValue());
+          break;
+        case BINARY:
+          keyKind = KIND_BINARY;
+          keyBinary = (byte[]) value;
+          keyBits = Arrays.hashCode(keyBinary);
+          break;
+        default:
+          throw new IllegalArgumentException("unexpected data type: " + type);
+      }
+    }
+    keyHash = mix(keyBits + keyKind);
+    return true;
+  }
+
+  private static double toDouble(Object value, DataType type) {
+    switch (type) {
+      case INTEGER:
+        return (Integer) value;
+      case LONG:
+        return (Long) value;
+      case DOUBLE:
+        return (Double) value;
+      default:
+        // FLOAT需要经过十进制字符串转换，与ValueUtils.transformToDouble保持一致
+        return ValueUtils.transformToDouble(new Value(type, value)).getDoubleV();
+    }
+  }
+
+  private static int mix(long bits) {
+    long h = bits * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** 查找当前键所在的槽位；不存在时返回应插入的空槽 */
+  private int findSlot() {
+    int pos = keyHash & mask;
+    while (true) {
+      int group = slots[pos] - 1;
+      if (group == NONE || (groupHashes[group] == keyHash && keyEquals(group))) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+  }
+
+  private boolean keyEquals(int group) {
+    if (groupKinds[group] != keyKind || groupBits[group] != keyBits) {
+      return false;
+    }
+    return keyKind != KIND_BINARY || Arrays.equals(groupBinaries[group], keyBinary);
+  }
+
+  private int addGroup(int pos) {
+    if (groupCount == groupHeads.length) {
+      growGroups();
+    }
+    int group = groupCount++;
+    groupKinds[group] = keyKind;
+    groupBits[group] = keyBits;
+    groupBinaries[group] = keyBinary;
+    groupHashes[group] = keyHash;
+    groupSizes[group] = 0;
+    slots[pos] = group + 1;
+    // 负载因子超过0.5时扩容并重新散列
+    if (groupCount * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    return group;
+  }
+
+  private void growGroups() {
+    int newCapacity = groupHeads.length * 2;
+    groupKinds = Arrays.copyOf(groupKinds, newCapacity);
+    groupBits = Arrays.copyOf(groupBits, newCapacity);
+    groupBinaries = Arrays.copyOf(groupBinaries, newCapacity);
+    groupHashes = Arrays.copyOf(groupHashes, newCapacity);
+    groupHeads = Arrays.copyOf(groupHeads, newCapacity);
+    groupTails = Arrays.copyOf(groupTails, newCapacity);
+    groupSizes = Arrays.copyOf(groupSizes, newCapacity);
+  }
+
+  private void rehash(int newSlotCount) {
+    int[] newSlots = new int[newSlotCount];
+    int newMask = newSlotCount - 1;
+    for (int group = 0; group < groupCount; group++) {
+      int pos = groupHashes[group] & newMask;
+      while (newSlots[pos] != 0) {
+        pos = (pos + 1) & newMask;
+      }
+      newSlots[pos] = group + 1;
+    }
+    slots = newSlots;
+    mask = newMask;
+  }
+}
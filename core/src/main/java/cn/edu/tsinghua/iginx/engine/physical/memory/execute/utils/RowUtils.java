@@ -20,7 +20,6 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
 
 import static cn.edu.tsinghua.iginx.engine.shared.function.FunctionUtils.isCanUseSetQuantifierFunction;
-import static cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils.getHash;
 import static cn.edu.tsinghua.iginx.sql.SQLConstant.DOT;
 
 import cn.edu.tsinghua.iginx.conf.Config;
@@ -192,20 +191,9 @@ public class RowUtils {
     return false;
   }
 
-  public static HashMap<Integer, List<Row>> establishHashMap(
+  public static JoinHashTable establishHashTable(
       List<Row> rows, String joinPath, boolean needTypeCast) {
-    HashMap<Integer, List<Row>> hashMap = new HashMap<>();
-    for (Row row : rows) {
-      Value value = row.getAsValue(joinPath);
-      if (value == null || value.getValue() == null) {
-        continue;
-      }
-      int hash = getHash(value, needTypeCast);
-
-      List<Row> l = hashMap.computeIfAbsent(hash, k -> new ArrayList<>());
-      l.add(row);
-    }
-    return hashMap;
+    return JoinHashTable.build(rows, joinPath, needTypeCast);
   }
 
   /**
@@ -927,8 +915,13 @@ public class RowUtils {
     if (sortByCols == null || sortByCols.isEmpty()) {
       return;
     }
-    Header header = rows.get(0).getHeader();
+    rows.sort(buildRowComparator(rows.get(0).getHeader(), ascendingList, sortByCols));
+  }
 
+  /** 构造按照排序列比较两行的比较器，sortRows与外排序共用 */
+  public static Comparator<Row> buildRowComparator(
+      Header header, List<Boolean> ascendingList, List<String> sortByCols)
+      throws PhysicalTaskExecuteFailureException {
     List<Integer> indexList = new ArrayList<>();
     List<DataType> typeList = new ArrayList<>();
     boolean hasKey = false;
@@ -947,33 +940,30 @@ public class RowUtils {
     }
 
     boolean finalHasKey = hasKey;
-    rows.sort(
-        (a, b) -> {
-          if (finalHasKey) {
-            int cmp =
-                ascendingList.get(0)
-                    ? Long.compare(a.getKey(), b.getKey())
-                    : Long.compare(b.getKey(), a.getKey());
-            if (cmp != 0) {
-              return cmp;
-            }
-          }
-          for (int i = 0; i < indexList.size(); i++) {
-            boolean asc = finalHasKey ? ascendingList.get(i + 1) : ascendingList.get(i);
-            int cmp =
-                asc
-                    ? ValueUtils.compare(
-                        a.getValue(indexList.get(i)), b.getValue(indexList.get(i)), typeList.get(i))
-                    : ValueUtils.compare(
-                        b.getValue(indexList.get(i)),
-                        a.getValue(indexList.get(i)),
-                        typeList.get(i));
-            if (cmp != 0) {
-              return cmp;
-            }
-          }
-          return 0;
-        });
+    return (a, b) -> {
+      if (finalHasKey) {
+        int cmp =
+            ascendingList.get(0)
+                ? Long.compare(a.getKey(), b.getKey())
+                : Long.compare(b.getKey(), a.getKey());
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      for (int i = 0; i < indexList.size(); i++) {
+        boolean asc = finalHasKey ? ascendingList.get(i + 1) : ascendingList.get(i);
+        int cmp =
+            asc
+                ? ValueUtils.compare(
+                    a.getValue(indexList.get(i)), b.getValue(indexList.get(i)), typeList.get(i))
+                : ValueUtils.compare(
+                    b.getValue(indexList.get(i)), a.getValue(indexList.get(i)), typeList.get(i));
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    };
   }
 
   public static Table project(Header header, List<Row> rows, List<String> patterns) {
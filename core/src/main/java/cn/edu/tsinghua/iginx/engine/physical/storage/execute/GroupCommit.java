@@ -0,0 +1,281 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
+
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.type.OperatorType;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 写入的组提交：同一存储单元、同一分片上并发的若干小批量写入，在一个时间窗口内合并为一次写入，合并后的写入完成后再向每个任务返回结果。
+ *
+ * <p>路径与标签都相同的数据属于同一序列，同一序列在同一 key 上的值以后加入的任务为准。任务中序列的数据类型与已加入的任务冲突时，该任务不参与合并。
+ */
+class GroupCommit {
+
+  private final String key;
+
+  private final StoragePhysicalTask leader;
+
+  private final int maxPoints;
+
+  private final Map<String, DataType> types = new HashMap<>();
+
+  private final List<StoragePhysicalTask> tasks = new ArrayList<>();
+
+  private long points;
+
+  private boolean closed;
+
+  GroupCommit(String key, StoragePhysicalTask leader, int maxPoints) {
+    this.key = key;
+    this.leader = leader;
+    this.maxPoints = maxPoints;
+  }
+
+  /**
+   * 计算任务的组提交键，键相同的任务可以合并为一次写入
+   *
+   * @return 任务不能参与组提交时返回 null
+   */
+  static String keyOf(StoragePhysicalTask task) {
+    List<Operator> operators = task.getOperators();
+    if (operators.size() != 1
+        || operators.get(0).getType() != OperatorType.Insert
+        || task.isDummyStorageUnit()) {
+      return null;
+    }
+    Insert insert = (Insert) operators.get(0);
+    return task.getStorageUnit()
+        + '|'
+        + task.getTargetFragment().getKeyInterval()
+        + '|'
+        + task.getTargetFragment().getColumnsInterval()
+        + '|'
+        + insert.getData().getRawDataType();
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  StoragePhysicalTask getLeader() {
+    return leader;
+  }
+
+  /**
+   * 尝试加入一个写入任务
+   *
+   * @return 已提交、已达到点数上限或者数据类型冲突时返回 false
+   */
+  synchronized boolean join(StoragePhysicalTask task) {
+    if (closed || isFull()) {
+      return false;
+    }
+    DataView data = getData(task);
+    for (int i = 0; i < data.getPathNum(); i++) {
+      DataType type = types.get(seriesKey(data, i));
+      if (type != null && type != data.getDataType(i)) {
+        return false;
+      }
+    }
+    for (int i = 0; i < data.getPathNum(); i++) {
+      types.put(seriesKey(data, i), data.getDataType(i));
+    }
+    tasks.add(task);
+    points += (long) data.getPathNum() * data.getKeySize();
+    return true;
+  }
+
+  synchronized boolean isFull() {
+    return points >= maxPoints;
+  }
+
+  synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * 提交，此后不再接受新的任务
+   *
+   * @return 已加入的任务；若已经提交过，返回 null
+   */
+  synchronized List<StoragePhysicalTask> close() {
+    if (closed) {
+      return null;
+    }
+    closed = true;
+    return Collections.unmodifiableList(tasks);
+  }
+
+  /** 合并后的写入算子，数据为所有任务数据的并集，分片与第一个任务相同 */
+  synchronized List<Operator> getMergedOperators() {
+    Insert insert = (Insert) leader.getOperators().get(0);
+    DataView merged = merge(insert.getData().getRawDataType());
+    return Collections.singletonList(new Insert((FragmentSource) insert.getSource(), merged));
+  }
+
+  private DataView merge(RawDataType rawDataType) {
+    // 序列按路径排序，路径相同时按标签排序
+    TreeMap<String, Series> seriesMap = new TreeMap<>();
+    TreeSet<Long> keySet = new TreeSet<>();
+    for (StoragePhysicalTask task : tasks) {
+      DataView data = getData(task);
+      Series[] series = new Series[data.getPathNum()];
+      for (int i = 0; i < series.length; i++) {
+        String seriesKey = seriesKey(data, i);
+        Series current = seriesMap.get(seriesKey);
+        if (current == null) {
+          current = new Series(data.getPath(i), data.getTags(i), data.getDataType(i));
+          seriesMap.put(seriesKey, current);
+        }
+        series[i] = current;
+      }
+      if (data.isColumnData()) {
+        for (int i = 0; i < data.getPathNum(); i++) {
+          BitmapView bitmapView = data.getBitmapView(i);
+          int index = 0;
+          for (int j = 0; j < data.getKeySize(); j++) {
+            if (bitmapView.get(j)) {
+              series[i].values.put(data.getKey(j), data.getValue(i, index++));
+            }
+          }
+        }
+      } else {
+        for (int i = 0; i < data.getKeySize(); i++) {
+          BitmapView bitmapView = data.getBitmapView(i);
+          int index = 0;
+          for (int j = 0; j < data.getPathNum(); j++) {
+            if (bitmapView.get(j)) {
+              series[j].values.put(data.getKey(i), data.getValue(i, index++));
+            }
+          }
+        }
+      }
+      for (int j = 0; j < data.getKeySize(); j++) {
+        keySet.add(data.getKey(j));
+      }
+    }
+
+    long[] keys = new long[keySet.size()];
+    int k = 0;
+    for (long time : keySet) {
+      keys[k++] = time;
+    }
+    List<String> paths = new ArrayList<>(seriesMap.size());
+    List<Map<String, String>> tagsList = new ArrayList<>(seriesMap.size());
+    List<DataType> dataTypeList = new ArrayList<>(seriesMap.size());
+    for (Series series : seriesMap.values()) {
+      paths.add(series.path);
+      tagsList.add(series.tags);
+      dataTypeList.add(series.type);
+    }
+
+    List<Bitmap> bitmaps = new ArrayList<>();
+    Object[] valuesList;
+    if (rawDataType == RawDataType.Column || rawDataType == RawDataType.NonAlignedColumn) {
+      valuesList = new Object[paths.size()];
+      int i = 0;
+      for (Series series : seriesMap.values()) {
+        Bitmap bitmap = new Bitmap(keys.length);
+        Object[] values = new Object[series.values.size()];
+        int index = 0;
+        for (Map.Entry<Long, Object> entry : series.values.entrySet()) {
+          bitmap.mark(Arrays.binarySearch(keys, entry.getKey()));
+          values[index++] = entry.getValue();
+        }
+        bitmaps.add(bitmap);
+        valuesList[i++] = values;
+      }
+      RawData rawData =
+          new RawData(paths, tagsList, keys, valuesList, dataTypeList, bitmaps, rawDataType);
+      return new ColumnDataView(rawData, 0, paths.size(), 0, keys.length);
+    }
+
+    List<List<Object>> rows = new ArrayList<>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      rows.add(new ArrayList<>());
+      bitmaps.add(new Bitmap(paths.size()));
+    }
+    int j = 0;
+    for (Series series : seriesMap.values()) {
+      for (Map.Entry<Long, Object> entry : series.values.entrySet()) {
+        int i = Arrays.binarySearch(keys, entry.getKey());
+        rows.get(i).add(entry.getValue());
+        bitmaps.get(i).mark(j);
+      }
+      j++;
+    }
+    valuesList = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      valuesList[i] = rows.get(i).toArray();
+    }
+    RawData rawData =
+        new RawData(paths, tagsList, keys, valuesList, dataTypeList, bitmaps, rawDataType);
+    return new RowDataView(rawData, 0, paths.size(), 0, keys.length);
+  }
+
+  private static DataView getData(StoragePhysicalTask task) {
+    return ((Insert) task.getOperators().get(0)).getData();
+  }
+
+  private static String seriesKey(DataView data, int index) {
+    Map<String, String> tags = data.getTags(index);
+    if (tags == null || tags.isEmpty()) {
+      return data.getPath(index);
+    }
+    return data.getPath(index) + '\u0000' + new TreeMap<>(tags);
+  }
+
+  private static class Series {
+
+    private final String path;
+
+    private final Map<String, String> tags;
+
+    private final DataType type;
+
+    private final TreeMap<Long, Object> values = new TreeMap<>();
+
+    private Series(String path, Map<String, String> tags, DataType type) {
+      this.path = path;
+      this.tags = tags;
+      this.type = type;
+    }
+  }
+}
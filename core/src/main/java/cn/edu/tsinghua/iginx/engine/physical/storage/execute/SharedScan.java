@@ -0,0 +1,219 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
+import cn.edu.tsinghua.iginx.engine.shared.operator.type.OperatorType;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * 共享扫描：同一存储单元、同一 key 区间上并发的若干 Project 任务合并为一次扫描，扫描的列为各任务列的并集，扫描结果按各任务自身的列投影后分发给每个任务。
+ *
+ * <p>带有 Select 下推的任务只与列完全相同的任务合并，因为过滤条件中的通配符路径在不同的列集合上可能匹配到不同的列。
+ */
+class SharedScan {
+
+  private final String key;
+
+  private final StoragePhysicalTask leader;
+
+  private final Set<String> patterns = new LinkedHashSet<>();
+
+  private final List<StoragePhysicalTask> tasks = new ArrayList<>();
+
+  private boolean closed;
+
+  SharedScan(String key, List<StoragePhysicalTask> tasks) {
+    this.key = key;
+    this.leader = tasks.get(0);
+    for (StoragePhysicalTask task : tasks) {
+      this.tasks.add(task);
+      this.patterns.addAll(getProject(task).getPatterns());
+    }
+  }
+
+  /**
+   * 计算任务的共享扫描键，键相同的任务可以合并为一次扫描
+   *
+   * @return 任务不能参与共享扫描时返回 null
+   */
+  static String keyOf(StoragePhysicalTask task) {
+    List<Operator> operators = task.getOperators();
+    if (operators.isEmpty() || operators.get(0).getType() != OperatorType.Project) {
+      return null;
+    }
+    Project project = (Project) operators.get(0);
+    StringBuilder builder = new StringBuilder();
+    builder
+        .append(task.getStorageUnit())
+        .append('|')
+        .append(task.isDummyStorageUnit())
+        .append('|')
+        .append(task.getTargetFragment().getKeyInterval().getStartKey())
+        .append('-')
+        .append(task.getTargetFragment().getKeyInterval().getEndKey())
+        .append('|')
+        .append(project.getTagFilter());
+    if (operators.size() == 2) {
+      if (operators.get(1).getType() != OperatorType.Select) {
+        return null;
+      }
+      Select select = (Select) operators.get(1);
+      builder
+          .append('|')
+          .append(select.getFilter())
+          .append('|')
+          .append(select.getTagFilter())
+          .append('|')
+          .append(new TreeSet<>(project.getPatterns()));
+    } else if (operators.size() != 1) {
+      return null;
+    }
+    return builder.toString();
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  StoragePhysicalTask getLeader() {
+    return leader;
+  }
+
+  /** 合并后的扫描算子，列为所有任务列的并集，其余参数与第一个任务相同 */
+  List<Operator> getMergedOperators() {
+    List<Operator> operators = new ArrayList<>(leader.getOperators());
+    Project project = getProject(leader);
+    operators.set(
+        0,
+        new Project(
+            project.getSource(),
+            new ArrayList<>(patterns),
+            project.getTagFilter(),
+            project.isNeedSelectedPath(),
+            project.isRemainKey()));
+    return operators;
+  }
+
+  /**
+   * 尝试加入一个尚未下发到存储的扫描
+   *
+   * @return 扫描已开始或者扫描的列不能覆盖该任务的列时返回 false
+   */
+  synchronized boolean join(StoragePhysicalTask task) {
+    if (closed || !patterns.containsAll(getProject(task).getPatterns())) {
+      return false;
+    }
+    tasks.add(task);
+    return true;
+  }
+
+  /**
+   * 扫描即将下发到存储，此后不再接受新的任务。已经开始的扫描看不到之后才完成的写入，晚到的任务若加入会读不到自己已经确认的写入
+   */
+  synchronized List<StoragePhysicalTask> close() {
+    closed = true;
+    return Collections.unmodifiableList(tasks);
+  }
+
+  /**
+   * 将扫描结果全部读入内存，以便分发给多个任务。缓存的行计入内存预算
+   *
+   * @return 超出内存预算时返回 null，此时扫描结果已关闭，由调用方释放已占用的内存并让各任务单独执行
+   */
+  static Table materialize(RowStream stream, MemoryTracker memory) throws PhysicalException {
+    try {
+      List<Row> rows = new ArrayList<>();
+      while (stream.hasNext()) {
+        Row row = stream.next();
+        if (!memory.tryReserve(row)) {
+          return null;
+        }
+        rows.add(row);
+      }
+      return new Table(stream.getHeader(), rows);
+    } finally {
+      stream.close();
+    }
+  }
+
+  /** 按任务自身的列投影扫描结果，去掉投影后全为空值的行 */
+  static Table project(Table table, StoragePhysicalTask task) {
+    Project project = getProject(task);
+    Header header = table.getHeader();
+    List<Field> targetFields = new ArrayList<>();
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < header.getFieldSize(); i++) {
+      Field field = header.getField(i);
+      if (matches(field.getName(), project.getPatterns())) {
+        targetFields.add(field);
+        indices.add(i);
+      }
+    }
+    Header targetHeader = new Header(header.getKey(), targetFields);
+    List<Row> targetRows = new ArrayList<>();
+    for (Row row : table.getRows()) {
+      Object[] values = new Object[indices.size()];
+      boolean allNull = true;
+      for (int j = 0; j < values.length; j++) {
+        values[j] = row.getValue(indices.get(j));
+        allNull &= values[j] == null;
+      }
+      if (!allNull) {
+        targetRows.add(new Row(targetHeader, row.getKey(), values));
+      }
+    }
+    return new Table(targetHeader, targetRows);
+  }
+
+  private static boolean matches(String name, List<String> patterns) {
+    for (String pattern : patterns) {
+      if (StringUtils.isPattern(pattern)) {
+        if (Pattern.matches(StringUtils.reformatPath(pattern), name)) {
+          return true;
+        }
+      } else if (pattern.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Project getProject(StoragePhysicalTask task) {
+    return (Project) task.getOperators().get(0);
+  }
+}
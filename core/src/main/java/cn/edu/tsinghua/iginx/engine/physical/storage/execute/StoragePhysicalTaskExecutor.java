@@ -28,12 +28,15 @@ import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorExcepti
 import cn.edu.tsinghua.iginx.engine.physical.memory.MemoryPhysicalTaskDispatcher;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutor;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutorFactory;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.ReplicaDispatcher;
 import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
 import cn.edu.tsinghua.iginx.engine.physical.storage.StorageManager;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.Column;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.DataArea;
 import cn.edu.tsinghua.iginx.engine.physical.storage.queue.StoragePhysicalTaskQueue;
+import cn.edu.tsinghua.iginx.engine.physical.storage.queue.StoragePhysicalTaskScheduler;
 import cn.edu.tsinghua.iginx.engine.physical.task.GlobalPhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.MemoryPhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
@@ -52,11 +55,13 @@ import cn.edu.tsinghua.iginx.monitor.HotSpotMonitor;
 import cn.edu.tsinghua.iginx.monitor.RequestsMonitor;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import cn.edu.tsinghua.iginx.utils.StringUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,10 +77,6 @@ public class StoragePhysicalTaskExecutor {
   private final StorageManager storageManager =
       new StorageManager(metaManager.getStorageEngineList());
 
-  private final Map<String, StoragePhysicalTaskQueue> storageTaskQueues = new ConcurrentHashMap<>();
-
-  private final Map<String, ExecutorService> dispatchers = new ConcurrentHashMap<>();
-
   private ReplicaDispatcher replicaDispatcher;
 
   private MemoryPhysicalTaskDispatcher memoryTaskExecutor;
@@ -83,211 +84,45 @@ public class StoragePhysicalTaskExecutor {
   private final int maxCachedPhysicalTaskPerStorage =
       ConfigDescriptor.getInstance().getConfig().getMaxCachedPhysicalTaskPerStorage();
 
+  private final boolean enableSharedScan =
+      ConfigDescriptor.getInstance().getConfig().isEnableSharedScan();
+
+  private final Map<String, SharedScan> runningSharedScans = new ConcurrentHashMap<>();
+
+  private final boolean enableInsertGroupCommit =
+      ConfigDescriptor.getInstance().getConfig().isEnableInsertGroupCommit();
+
+  private final long insertGroupCommitWindowMs =
+      ConfigDescriptor.getInstance().getConfig().getInsertGroupCommitWindowMs();
+
+  private final int insertGroupCommitMaxPoints =
+      ConfigDescriptor.getInstance().getConfig().getInsertGroupCommitMaxPoints();
+
+  private final Map<String, GroupCommit> pendingGroupCommits = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService groupCommitTimer =
+      enableInsertGroupCommit
+          ? Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("insert-group-commit-%d")
+                  .setDaemon(true)
+                  .build())
+          : null;
+
+  private final StoragePhysicalTaskScheduler scheduler =
+      new StoragePhysicalTaskScheduler(
+          ConfigDescriptor.getInstance().getConfig().getStorageTaskDispatcherPoolSize(),
+          ConfigDescriptor.getInstance().getConfig().getStorageTaskDispatchBatchSize(),
+          storageId -> storageManager.getStorage(storageId) != null,
+          this::dispatch);
+
   private StoragePhysicalTaskExecutor() {
     StorageUnitHook storageUnitHook =
         (before, after) -> {
           if (before == null && after != null) { // 新增加 du，处理这种事件，其他事件暂时不处理
             LOGGER.info("new storage unit {} come!", after.getId());
-            String id = after.getId();
-            boolean isDummy = after.isDummy();
-            if (storageTaskQueues.containsKey(id)) {
-              return;
-            }
-            storageTaskQueues.put(id, new StoragePhysicalTaskQueue());
-            // 为拥有该分片的存储创建一个调度线程，用于调度任务执行
-            ExecutorService dispatcher = Executors.newSingleThreadExecutor();
-            long storageId = after.getStorageEngineId();
-            dispatchers.put(id, dispatcher);
-            dispatcher.submit(
-                () -> {
-                  try {
-                    StoragePhysicalTaskQueue taskQueue = storageTaskQueues.get(id);
-                    Pair<IStorage, ThreadPoolExecutor> p = storageManager.getStorage(storageId);
-                    while (p == null) {
-                      p = storageManager.getStorage(storageId);
-                      LOGGER.info("spinning for IStorage!");
-                      try {
-                        Thread.sleep(5);
-                      } catch (InterruptedException e) {
-                        LOGGER.error("encounter error when spinning: ", e);
-                      }
-                    }
-                    Pair<IStorage, ThreadPoolExecutor> pair = p;
-                    while (true) {
-                      StoragePhysicalTask task = taskQueue.getTask();
-                      task.setStorageUnit(id);
-                      task.setDummyStorageUnit(isDummy);
-                      if (pair.v.getQueue().size() > maxCachedPhysicalTaskPerStorage) {
-                        task.setResult(
-                            new TaskExecuteResult(new TooManyPhysicalTasksException(storageId)));
-                        continue;
-                      }
-                      if (isCancelled(task.getSessionId())) {
-                        LOGGER.warn(
-                            "StoragePhysicalTask[sessionId={}] is cancelled.", task.getSessionId());
-                        continue;
-                      }
-                      pair.v.submit(
-                          () -> {
-                            TaskExecuteResult result = null;
-                            long taskId = System.nanoTime();
-                            long startTime = System.currentTimeMillis();
-                            try {
-                              List<Operator> operators = task.getOperators();
-                              if (operators.size() < 1) {
-                                result =
-                                    new TaskExecuteResult(
-                                        new NonExecutablePhysicalTaskException(
-                                            "storage physical task should have one more operators"));
-                                return;
-                              }
-
-                              Operator op = operators.get(0);
-                              String storageUnit = task.getStorageUnit();
-                              FragmentMeta fragmentMeta = task.getTargetFragment();
-                              boolean isDummyStorageUnit = task.isDummyStorageUnit();
-                              DataArea dataArea =
-                                  new DataArea(storageUnit, fragmentMeta.getKeyInterval());
-
-                              switch (op.getType()) {
-                                case Project:
-                                  boolean needSelectPushDown =
-                                      pair.k.isSupportProjectWithSelect()
-                                          && operators.size() == 2
-                                          && operators.get(1).getType() == OperatorType.Select;
-                                  boolean needSetTransformPushDown =
-                                      operators.size() == 2
-                                          && operators.get(1).getType()
-                                              == OperatorType.SetTransform;
-                                  boolean canSetTransformPushDown =
-                                      needSetTransformPushDown
-                                          && pair.k.isSupportProjectWithSetTransform(
-                                              (SetTransform) operators.get(1), dataArea);
-                                  if (isDummyStorageUnit) {
-                                    if (needSelectPushDown) {
-                                      result =
-                                          pair.k.executeProjectDummyWithSelect(
-                                              (Project) op, (Select) operators.get(1), dataArea);
-                                    } else if (needSetTransformPushDown) {
-                                      throw new IllegalStateException();
-                                    } else {
-                                      result = pair.k.executeProjectDummy((Project) op, dataArea);
-                                    }
-                                  } else {
-                                    if (needSelectPushDown) {
-                                      result =
-                                          pair.k.executeProjectWithSelect(
-                                              (Project) op, (Select) operators.get(1), dataArea);
-                                    } else if (needSetTransformPushDown) {
-                                      if (canSetTransformPushDown) {
-                                        result =
-                                            pair.k.executeProjectWithSetTransform(
-                                                (Project) op,
-                                                (SetTransform) operators.get(1),
-                                                dataArea);
-                                      } else {
-                                        TaskExecuteResult tempResult =
-                                            pair.k.executeProject((Project) op, dataArea);
-                                        if (tempResult.getException() != null) {
-                                          result = tempResult;
-                                        } else {
-                                          // set transform push down is not supported, execute set
-                                          // transform in memory
-                                          OperatorMemoryExecutor executor =
-                                              OperatorMemoryExecutorFactory.getInstance()
-                                                  .getMemoryExecutor();
-                                          try {
-                                            RowStream rowStream =
-                                                executor.executeUnaryOperator(
-                                                    (SetTransform) operators.get(1),
-                                                    tempResult.getRowStream(),
-                                                    task.getContext());
-                                            result = new TaskExecuteResult(rowStream);
-                                          } catch (PhysicalException e) {
-                                            result = new TaskExecuteResult(e);
-                                          }
-                                        }
-                                      }
-                                    } else {
-                                      result = pair.k.executeProject((Project) op, dataArea);
-                                    }
-                                  }
-                                  break;
-                                case Insert:
-                                  result = pair.k.executeInsert((Insert) op, dataArea);
-                                  break;
-                                case Delete:
-                                  result = pair.k.executeDelete((Delete) op, dataArea);
-                                  break;
-                                default:
-                                  result =
-                                      new TaskExecuteResult(
-                                          new NonExecutablePhysicalTaskException(
-                                              "unsupported physical task"));
-                              }
-                            } catch (Exception e) {
-                              LOGGER.error("execute task error: ", e);
-                              result = new TaskExecuteResult(new PhysicalException(e));
-                            }
-                            try {
-                              HotSpotMonitor.getInstance()
-                                  .recordAfter(
-                                      taskId,
-                                      task.getTargetFragment(),
-                                      task.getOperators().get(0).getType());
-                              RequestsMonitor.getInstance()
-                                  .record(task.getTargetFragment(), task.getOperators().get(0));
-                            } catch (Exception e) {
-                              LOGGER.error("Monitor catch error:", e);
-                            }
-                            long span = System.currentTimeMillis() - startTime;
-                            task.setSpan(span);
-                            task.setResult(result);
-                            if (task.getFollowerTask() != null
-                                && task.isSync()) { // 只有同步任务才会影响后续任务的执行
-                              MemoryPhysicalTask followerTask =
-                                  (MemoryPhysicalTask) task.getFollowerTask();
-                              boolean isFollowerTaskReady = followerTask.notifyParentReady();
-                              if (isFollowerTaskReady) {
-                                memoryTaskExecutor.addMemoryTask(followerTask);
-                              }
-                            }
-                            if (task.isNeedBroadcasting()) { // 需要传播
-                              if (result.getException() != null) {
-                                LOGGER.error(
-                                    "task "
-                                        + task
-                                        + " will not broadcasting to replicas for the sake of exception",
-                                    result.getException());
-                                task.setResult(new TaskExecuteResult(result.getException()));
-                              } else {
-                                StorageUnitMeta masterStorageUnit =
-                                    task.getTargetFragment().getMasterStorageUnit();
-                                List<String> replicaIds =
-                                    masterStorageUnit.getReplicas().stream()
-                                        .map(StorageUnitMeta::getId)
-                                        .collect(Collectors.toList());
-                                replicaIds.add(masterStorageUnit.getId());
-                                for (String replicaId : replicaIds) {
-                                  if (replicaId.equals(task.getStorageUnit())) {
-                                    continue;
-                                  }
-                                  StoragePhysicalTask replicaTask =
-                                      new StoragePhysicalTask(
-                                          task.getOperators(), false, false, task.getContext());
-                                  storageTaskQueues.get(replicaId).addTask(replicaTask);
-                                  LOGGER.info("broadcasting task {} to {}", task, replicaId);
-                                }
-                              }
-                            }
-                          });
-                    }
-                  } catch (Exception e) {
-                    LOGGER.error(
-                        "unexpected exception during dispatcher storage task, please contact developer to check: ",
-                        e);
-                  }
-                });
+            // 存储单元的任务由共享的调度线程池派发，不再为其单独创建调度线程
+            scheduler.register(after.getId(), after.getStorageEngineId(), after.isDummy());
             LOGGER.info("process for new storage unit finished!");
           }
         };
@@ -319,6 +154,336 @@ public class StoragePhysicalTaskExecutor {
         storageUnitHook.onChange(null, storage.getDummyStorageUnit());
       }
     }
+    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+  }
+
+  /** 关闭组提交的定时器，尚未到期的组立即提交，避免其中的写入任务一直等待；随后停止存储任务的调度线程 */
+  public void shutdown() {
+    if (groupCommitTimer != null) {
+      for (Runnable flush : groupCommitTimer.shutdownNow()) {
+        flush.run();
+      }
+    }
+    scheduler.shutdown();
+  }
+
+  /** 将存储单元队列中按提交顺序取出的一批任务提交到对应存储引擎的执行线程池 */
+  private void dispatch(StoragePhysicalTaskQueue queue, List<StoragePhysicalTask> tasks) {
+    String id = queue.getStorageUnitId();
+    long storageId = queue.getStorageEngineId();
+    Pair<IStorage, ThreadPoolExecutor> pair = storageManager.getStorage(storageId);
+    // 同一批中可以共享扫描的任务按共享扫描键分组，保持组间的提交顺序
+    Map<String, List<StoragePhysicalTask>> sharedScanGroups = new LinkedHashMap<>();
+    for (StoragePhysicalTask task : tasks) {
+      task.setStorageUnit(id);
+      task.setDummyStorageUnit(queue.isDummy());
+      if (pair.v.getQueue().size() > maxCachedPhysicalTaskPerStorage) {
+        task.setResult(new TaskExecuteResult(new TooManyPhysicalTasksException(storageId)));
+        continue;
+      }
+      if (isCancelled(task.getSessionId())) {
+        LOGGER.warn("StoragePhysicalTask[sessionId={}] is cancelled.", task.getSessionId());
+        continue;
+      }
+      // 定时器关闭后不再组提交，写入任务直接执行
+      String groupCommitKey =
+          enableInsertGroupCommit && !groupCommitTimer.isShutdown()
+              ? GroupCommit.keyOf(task)
+              : null;
+      if (groupCommitKey != null) {
+        groupCommit(groupCommitKey, task, pair);
+        continue;
+      }
+      String key = enableSharedScan ? SharedScan.keyOf(task) : null;
+      if (key == null) {
+        pair.v.submit(() -> execute(task, pair.k));
+      } else {
+        sharedScanGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(task);
+      }
+    }
+    for (Map.Entry<String, List<StoragePhysicalTask>> entry : sharedScanGroups.entrySet()) {
+      List<StoragePhysicalTask> group = entry.getValue();
+      if (group.size() == 1) {
+        // 尝试加入正在执行的、列能够覆盖该任务的扫描
+        SharedScan running = runningSharedScans.get(entry.getKey());
+        if (running != null && running.join(group.get(0))) {
+          continue;
+        }
+      }
+      SharedScan scan = new SharedScan(entry.getKey(), group);
+      runningSharedScans.put(scan.getKey(), scan);
+      pair.v.submit(() -> executeSharedScan(scan, pair));
+    }
+  }
+
+  /** 将写入任务加入同一分片上等待提交的组，组在时间窗口结束或者点数达到上限时提交 */
+  private void groupCommit(
+      String key, StoragePhysicalTask task, Pair<IStorage, ThreadPoolExecutor> pair) {
+    while (true) {
+      GroupCommit group =
+          pendingGroupCommits.computeIfAbsent(
+              key,
+              k -> {
+                GroupCommit created = new GroupCommit(k, task, insertGroupCommitMaxPoints);
+                groupCommitTimer.schedule(
+                    () -> flushGroupCommit(created, pair),
+                    insertGroupCommitWindowMs,
+                    TimeUnit.MILLISECONDS);
+                return created;
+              });
+      if (group.join(task)) {
+        if (group.isFull()) {
+          flushGroupCommit(group, pair);
+        }
+        return;
+      }
+      if (!group.isClosed() && !group.isFull()) { // 数据类型与组内已有的写入冲突，单独执行
+        pair.v.submit(() -> execute(task, pair.k));
+        return;
+      }
+      flushGroupCommit(group, pair);
+    }
+  }
+
+  private void flushGroupCommit(GroupCommit group, Pair<IStorage, ThreadPoolExecutor> pair) {
+    List<StoragePhysicalTask> tasks = group.close();
+    if (tasks == null) {
+      return;
+    }
+    pendingGroupCommits.remove(group.getKey(), group);
+    if (tasks.isEmpty()) {
+      return;
+    }
+    pair.v.submit(() -> executeGroupCommit(group, tasks, pair.k));
+  }
+
+  /** 执行合并后的写入，并将结果返回给组内的每个任务 */
+  private void executeGroupCommit(
+      GroupCommit group, List<StoragePhysicalTask> tasks, IStorage storage) {
+    if (tasks.size() == 1) {
+      execute(tasks.get(0), storage);
+      return;
+    }
+    long taskId = System.nanoTime();
+    long startTime = System.currentTimeMillis();
+    TaskExecuteResult result;
+    try {
+      result = executeOperators(group.getLeader(), group.getMergedOperators(), storage);
+    } catch (Exception e) {
+      LOGGER.error("merge group commit error: ", e);
+      result = new TaskExecuteResult(new PhysicalException(e));
+    }
+    LOGGER.debug("group commit {} merges {} inserts", group.getKey(), tasks.size());
+    for (StoragePhysicalTask task : tasks) {
+      if (result.getException() != null) {
+        complete(task, new TaskExecuteResult(result.getException()), taskId, startTime);
+      } else {
+        complete(task, new TaskExecuteResult(), taskId, startTime);
+      }
+    }
+  }
+
+  private void execute(StoragePhysicalTask task, IStorage storage) {
+    long taskId = System.nanoTime();
+    long startTime = System.currentTimeMillis();
+    TaskExecuteResult result = executeOperators(task, task.getOperators(), storage);
+    complete(task, result, taskId, startTime);
+  }
+
+  /** 执行合并后的扫描，并将结果按各任务自身的列分发 */
+  private void executeSharedScan(SharedScan scan, Pair<IStorage, ThreadPoolExecutor> pair) {
+    // 先停止接受新任务再访问存储，保证加入的任务都在扫描开始之前提交
+    List<StoragePhysicalTask> tasks = scan.close();
+    runningSharedScans.remove(scan.getKey(), scan);
+    if (tasks.size() == 1) { // 没有其他任务合并或加入，扫描的列即为该任务的列，直接返回扫描结果
+      execute(tasks.get(0), pair.k);
+      return;
+    }
+    long taskId = System.nanoTime();
+    long startTime = System.currentTimeMillis();
+    TaskExecuteResult result =
+        executeOperators(scan.getLeader(), scan.getMergedOperators(), pair.k);
+    LOGGER.debug("shared scan {} serves {} tasks", scan.getKey(), tasks.size());
+    List<TaskExecuteResult> results = projectSharedScanResult(scan.getLeader(), result, tasks);
+    if (results == null) {
+      LOGGER.debug("shared scan {} exceeds the memory budget, execute separately", scan.getKey());
+      for (StoragePhysicalTask task : tasks) {
+        pair.v.submit(() -> execute(task, pair.k));
+      }
+      return;
+    }
+    for (int i = 0; i < tasks.size(); i++) {
+      complete(tasks.get(i), results.get(i), taskId, startTime);
+    }
+  }
+
+  /**
+   * 物化扫描结果并按各任务的列投影，物化的行计入第一个任务所属查询的内存预算
+   *
+   * @return 扫描结果超出内存预算时返回 null
+   */
+  private List<TaskExecuteResult> projectSharedScanResult(
+      StoragePhysicalTask leader, TaskExecuteResult result, List<StoragePhysicalTask> tasks) {
+    List<TaskExecuteResult> results = new ArrayList<>(tasks.size());
+    if (result.getException() != null) {
+      for (int i = 0; i < tasks.size(); i++) {
+        results.add(new TaskExecuteResult(result.getException()));
+      }
+      return results;
+    }
+    try (MemoryTracker memory = MemoryTracker.create(leader.getContext())) {
+      Table table = SharedScan.materialize(result.getRowStream(), memory);
+      if (table == null) {
+        return null;
+      }
+      for (StoragePhysicalTask task : tasks) {
+        results.add(new TaskExecuteResult(SharedScan.project(table, task)));
+      }
+    } catch (PhysicalException e) {
+      LOGGER.error("read shared scan result error: ", e);
+      results.clear();
+      for (int i = 0; i < tasks.size(); i++) {
+        results.add(new TaskExecuteResult(e));
+      }
+    }
+    return results;
+  }
+
+  private TaskExecuteResult executeOperators(
+      StoragePhysicalTask task, List<Operator> operators, IStorage storage) {
+    TaskExecuteResult result;
+    try {
+      if (operators.size() < 1) {
+        return new TaskExecuteResult(
+            new NonExecutablePhysicalTaskException(
+                "storage physical task should have one more operators"));
+      }
+
+      Operator op = operators.get(0);
+      String storageUnit = task.getStorageUnit();
+      FragmentMeta fragmentMeta = task.getTargetFragment();
+      boolean isDummyStorageUnit = task.isDummyStorageUnit();
+      DataArea dataArea = new DataArea(storageUnit, fragmentMeta.getKeyInterval());
+
+      switch (op.getType()) {
+        case Project:
+          boolean needSelectPushDown =
+              storage.isSupportProjectWithSelect()
+                  && operators.size() == 2
+                  && operators.get(1).getType() == OperatorType.Select;
+          boolean needSetTransformPushDown =
+              operators.size() == 2 && operators.get(1).getType() == OperatorType.SetTransform;
+          boolean canSetTransformPushDown =
+              needSetTransformPushDown
+                  && storage.isSupportProjectWithSetTransform(
+                      (SetTransform) operators.get(1), dataArea);
+          if (isDummyStorageUnit) {
+            if (needSelectPushDown) {
+              result =
+                  storage.executeProjectDummyWithSelect(
+                      (Project) op, (Select) operators.get(1), dataArea);
+            } else if (needSetTransformPushDown) {
+              throw new IllegalStateException();
+            } else {
+              result = storage.executeProjectDummy((Project) op, dataArea);
+            }
+          } else {
+            if (needSelectPushDown) {
+              result =
+                  storage.executeProjectWithSelect(
+                      (Project) op, (Select) operators.get(1), dataArea);
+            } else if (needSetTransformPushDown) {
+              if (canSetTransformPushDown) {
+                result =
+                    storage.executeProjectWithSetTransform(
+                        (Project) op, (SetTransform) operators.get(1), dataArea);
+              } else {
+                TaskExecuteResult tempResult = storage.executeProject((Project) op, dataArea);
+                if (tempResult.getException() != null) {
+                  result = tempResult;
+                } else {
+                  // set transform push down is not supported, execute set
+                  // transform in memory
+                  OperatorMemoryExecutor executor =
+                      OperatorMemoryExecutorFactory.getInstance().getMemoryExecutor();
+                  try {
+                    RowStream rowStream =
+                        executor.executeUnaryOperator(
+                            (SetTransform) operators.get(1),
+                            tempResult.getRowStream(),
+                            task.getContext());
+                    result = new TaskExecuteResult(rowStream);
+                  } catch (PhysicalException e) {
+                    result = new TaskExecuteResult(e);
+                  }
+                }
+              }
+            } else {
+              result = storage.executeProject((Project) op, dataArea);
+            }
+          }
+          break;
+        case Insert:
+          result = storage.executeInsert((Insert) op, dataArea);
+          break;
+        case Delete:
+          result = storage.executeDelete((Delete) op, dataArea);
+          break;
+        default:
+          result =
+              new TaskExecuteResult(
+                  new NonExecutablePhysicalTaskException("unsupported physical task"));
+      }
+    } catch (Exception e) {
+      LOGGER.error("execute task error: ", e);
+      result = new TaskExecuteResult(new PhysicalException(e));
+    }
+    return result;
+  }
+
+  private void complete(
+      StoragePhysicalTask task, TaskExecuteResult result, long taskId, long startTime) {
+    try {
+      HotSpotMonitor.getInstance()
+          .recordAfter(taskId, task.getTargetFragment(), task.getOperators().get(0).getType());
+      RequestsMonitor.getInstance().record(task.getTargetFragment(), task.getOperators().get(0));
+    } catch (Exception e) {
+      LOGGER.error("Monitor catch error:", e);
+    }
+    long span = System.currentTimeMillis() - startTime;
+    task.setSpan(span);
+    task.setResult(result);
+    if (task.getFollowerTask() != null && task.isSync()) { // 只有同步任务才会影响后续任务的执行
+      MemoryPhysicalTask followerTask = (MemoryPhysicalTask) task.getFollowerTask();
+      boolean isFollowerTaskReady = followerTask.notifyParentReady();
+      if (isFollowerTaskReady) {
+        memoryTaskExecutor.addMemoryTask(followerTask);
+      }
+    }
+    if (task.isNeedBroadcasting()) { // 需要传播
+      if (result.getException() != null) {
+        LOGGER.error(
+            "task " + task + " will not broadcasting to replicas for the sake of exception",
+            result.getException());
+        task.setResult(new TaskExecuteResult(result.getException()));
+      } else {
+        StorageUnitMeta masterStorageUnit = task.getTargetFragment().getMasterStorageUnit();
+        List<String> replicaIds =
+            masterStorageUnit.getReplicas().stream()
+                .map(StorageUnitMeta::getId)
+                .collect(Collectors.toList());
+        replicaIds.add(masterStorageUnit.getId());
+        for (String replicaId : replicaIds) {
+          if (replicaId.equals(task.getStorageUnit())) {
+            continue;
+          }
+          StoragePhysicalTask replicaTask =
+              new StoragePhysicalTask(task.getOperators(), false, false, task.getContext());
+          scheduler.addTask(replicaId, replicaTask);
+          LOGGER.info("broadcasting task {} to {}", task, replicaId);
+        }
+      }
+    }
   }
 
   private boolean isCancelled(long sessionId) {
@@ -337,7 +502,7 @@ public class StoragePhysicalTaskExecutor {
   }
 
   public void commitWithTargetStorageUnitId(StoragePhysicalTask task, String storageUnitId) {
-    storageTaskQueues.get(storageUnitId).addTask(task);
+    scheduler.addTask(storageUnitId, task);
   }
 
   public TaskExecuteResult executeGlobalTask(GlobalPhysicalTask task) {
@@ -428,13 +593,11 @@ public class StoragePhysicalTaskExecutor {
   public void commit(List<StoragePhysicalTask> tasks) {
     for (StoragePhysicalTask task : tasks) {
       if (replicaDispatcher == null) {
-        storageTaskQueues
-            .get(task.getTargetFragment().getMasterStorageUnitId())
-            .addTask(task); // 默认情况下，异步写备，查询只查主
+        scheduler.addTask(
+            task.getTargetFragment().getMasterStorageUnitId(), task); // 默认情况下，异步写备，查询只查主
       } else {
-        storageTaskQueues
-            .get(replicaDispatcher.chooseReplica(task))
-            .addTask(task); // 在优化策略提供了选择器的情况下，利用选择器提供的结果
+        scheduler.addTask(
+            replicaDispatcher.chooseReplica(task), task); // 在优化策略提供了选择器的情况下，利用选择器提供的结果
       }
     }
   }
@@ -448,4 +611,18 @@ public class StoragePhysicalTaskExecutor {
   public StorageManager getStorageManager() {
     return storageManager;
   }
+
+  /** 各存储单元队列中等待派发的任务数 */
+  public Map<String, Integer> getStorageUnitQueueDepths() {
+    return scheduler.getQueueDepths();
+  }
+
+  /** 所有存储单元队列中等待派发的任务总数 */
+  public int getPendingStorageTaskCount() {
+    return scheduler.getPendingTaskCount();
+  }
+
+  public StoragePhysicalTaskScheduler getScheduler() {
+    return scheduler;
+  }
 }
@@ -20,35 +20,72 @@
 package cn.edu.tsinghua.iginx.engine.physical.storage.queue;
 
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/** 单个存储单元的任务队列，由 StoragePhysicalTaskScheduler 统一调度，同一时刻至多被一个调度线程处理，以保证任务按提交顺序派发。 */
 public class StoragePhysicalTaskQueue {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(StoragePhysicalTaskQueue.class);
+  private final String storageUnitId;
 
-  private final BlockingQueue<StoragePhysicalTask> tasks;
+  private final long storageEngineId;
 
-  public StoragePhysicalTaskQueue() {
-    tasks = new LinkedBlockingQueue<>();
+  private final boolean dummy;
+
+  private final Queue<StoragePhysicalTask> tasks;
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private boolean scheduled; // 由调度器的锁保护
+
+  public StoragePhysicalTaskQueue(String storageUnitId, long storageEngineId, boolean dummy) {
+    this.storageUnitId = storageUnitId;
+    this.storageEngineId = storageEngineId;
+    this.dummy = dummy;
+    this.tasks = new ConcurrentLinkedQueue<>();
+  }
+
+  public String getStorageUnitId() {
+    return storageUnitId;
+  }
+
+  public long getStorageEngineId() {
+    return storageEngineId;
+  }
+
+  public boolean isDummy() {
+    return dummy;
   }
 
   public void addTask(StoragePhysicalTask task) {
-    try {
-      tasks.put(task);
-    } catch (InterruptedException e) {
-      LOGGER.error("add task to physical task queue error: ", e);
-    }
+    tasks.offer(task);
+    size.incrementAndGet();
   }
 
-  public StoragePhysicalTask getTask() {
-    try {
-      return tasks.take();
-    } catch (Exception e) {
-      LOGGER.error("encounter error when get memory task: ", e);
+  /** 取出队首任务，队列为空时返回 null */
+  public StoragePhysicalTask pollTask() {
+    StoragePhysicalTask task = tasks.poll();
+    if (task != null) {
+      size.decrementAndGet();
     }
-    return null;
+    return task;
+  }
+
+  public boolean isEmpty() {
+    return tasks.isEmpty();
+  }
+
+  /** 队列中等待派发的任务数 */
+  public int size() {
+    return size.get();
+  }
+
+  boolean isScheduled() {
+    return scheduled;
+  }
+
+  void setScheduled(boolean scheduled) {
+    this.scheduled = scheduled;
   }
 }
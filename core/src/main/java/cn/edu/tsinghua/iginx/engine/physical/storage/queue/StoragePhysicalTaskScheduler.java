@@ -0,0 +1,279 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.queue;
+
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 存储任务调度器。所有存储单元的任务队列共享固定数量的调度线程，不再为每个存储单元创建一个调度线程。
+ *
+ * <p>有待派发任务的存储单元按所属存储引擎分组，调度线程先在存储引擎之间轮转，再在同一引擎的存储单元之间轮转，每次至多派发 batchSize
+ * 个任务后让出，避免拥有大量存储单元的引擎挤占其他引擎。同一存储单元同一时刻只会被一个调度线程处理，保证单元内任务按提交顺序派发。
+ */
+public class StoragePhysicalTaskScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StoragePhysicalTaskScheduler.class);
+
+  private static final long STORAGE_NOT_READY_RETRY_INTERVAL_MS = 5;
+
+  private final Map<String, StoragePhysicalTaskQueue> queues = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  // 以下两个结构由 lock 保护：每个存储引擎下待调度的存储单元，以及有待调度存储单元的存储引擎
+  private final Map<Long, Deque<StoragePhysicalTaskQueue>> readyQueues = new HashMap<>();
+
+  private final Deque<Long> readyEngines = new ArrayDeque<>();
+
+  private final AtomicInteger activeDispatchers = new AtomicInteger();
+
+  private final int batchSize;
+
+  private final LongPredicate isStorageReady;
+
+  private final BiConsumer<StoragePhysicalTaskQueue, List<StoragePhysicalTask>> dispatcher;
+
+  private final ExecutorService dispatcherPool;
+
+  private final ScheduledExecutorService retryTimer;
+
+  /**
+   * @param poolSize 调度线程数
+   * @param batchSize 调度线程每次处理一个存储单元时至多派发的任务数
+   * @param isStorageReady 判断存储引擎是否已完成初始化，未就绪的存储单元会稍后重试
+   * @param dispatcher 派发同一存储单元中按提交顺序取出的一批任务，不应长时间阻塞
+   */
+  public StoragePhysicalTaskScheduler(
+      int poolSize,
+      int batchSize,
+      LongPredicate isStorageReady,
+      BiConsumer<StoragePhysicalTaskQueue, List<StoragePhysicalTask>> dispatcher) {
+    this.batchSize = Math.max(batchSize, 1);
+    this.isStorageReady = isStorageReady;
+    this.dispatcher = dispatcher;
+    this.dispatcherPool =
+        Executors.newFixedThreadPool(
+            Math.max(poolSize, 1),
+            new ThreadFactoryBuilder()
+                .setNameFormat("storage-task-dispatcher-%d")
+                .setDaemon(true)
+                .build());
+    this.retryTimer =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("storage-task-retry-%d")
+                .setDaemon(true)
+                .build());
+    for (int i = 0; i < Math.max(poolSize, 1); i++) {
+      dispatcherPool.submit(this::dispatchLoop);
+    }
+  }
+
+  /**
+   * 注册一个存储单元
+   *
+   * @return 若该存储单元已注册，返回 false
+   */
+  public boolean register(String storageUnitId, long storageEngineId, boolean dummy) {
+    return queues.putIfAbsent(
+            storageUnitId, new StoragePhysicalTaskQueue(storageUnitId, storageEngineId, dummy))
+        == null;
+  }
+
+  public boolean contains(String storageUnitId) {
+    return queues.containsKey(storageUnitId);
+  }
+
+  public void addTask(String storageUnitId, StoragePhysicalTask task) {
+    StoragePhysicalTaskQueue queue = queues.get(storageUnitId);
+    if (queue == null) {
+      throw new IllegalArgumentException("unknown storage unit: " + storageUnitId);
+    }
+    queue.addTask(task);
+    lock.lock();
+    try {
+      if (!queue.isScheduled()) {
+        queue.setScheduled(true);
+        makeReady(queue);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** 各存储单元队列中等待派发的任务数 */
+  public Map<String, Integer> getQueueDepths() {
+    Map<String, Integer> depths = new HashMap<>();
+    queues.forEach((id, queue) -> depths.put(id, queue.size()));
+    return Collections.unmodifiableMap(depths);
+  }
+
+  public int getQueueDepth(String storageUnitId) {
+    StoragePhysicalTaskQueue queue = queues.get(storageUnitId);
+    return queue == null ? 0 : queue.size();
+  }
+
+  /** 所有存储单元队列中等待派发的任务总数 */
+  public int getPendingTaskCount() {
+    int count = 0;
+    for (StoragePhysicalTaskQueue queue : queues.values()) {
+      count += queue.size();
+    }
+    return count;
+  }
+
+  /** 有任务等待调度线程处理的存储单元数 */
+  public int getReadyStorageUnitCount() {
+    lock.lock();
+    try {
+      int count = 0;
+      for (Deque<StoragePhysicalTaskQueue> deque : readyQueues.values()) {
+        count += deque.size();
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** 正在派发任务的调度线程数 */
+  public int getActiveDispatcherCount() {
+    return activeDispatchers.get();
+  }
+
+  public void shutdown() {
+    dispatcherPool.shutdownNow();
+    retryTimer.shutdownNow();
+  }
+
+  private void dispatchLoop() {
+    while (!Thread.currentThread().isInterrupted()) {
+      StoragePhysicalTaskQueue queue;
+      try {
+        queue = takeReady();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (!isStorageReady.test(queue.getStorageEngineId())) {
+        LOGGER.debug("storage {} is not ready, retry later", queue.getStorageEngineId());
+        retryTimer.schedule(
+            () -> reschedule(queue), STORAGE_NOT_READY_RETRY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        continue;
+      }
+      activeDispatchers.incrementAndGet();
+      try {
+        List<StoragePhysicalTask> tasks = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+          StoragePhysicalTask task = queue.pollTask();
+          if (task == null) {
+            break;
+          }
+          tasks.add(task);
+        }
+        if (!tasks.isEmpty()) {
+          dispatcher.accept(queue, tasks);
+        }
+      } catch (Exception e) {
+        LOGGER.error(
+            "unexpected exception during dispatcher storage task, please contact developer to check: ",
+            e);
+      } finally {
+        activeDispatchers.decrementAndGet();
+        release(queue);
+      }
+    }
+  }
+
+  private StoragePhysicalTaskQueue takeReady() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (readyEngines.isEmpty()) {
+        notEmpty.await();
+      }
+      Long storageEngineId = readyEngines.pollFirst();
+      Deque<StoragePhysicalTaskQueue> deque = readyQueues.get(storageEngineId);
+      StoragePhysicalTaskQueue queue = deque.pollFirst();
+      if (deque.isEmpty()) {
+        readyQueues.remove(storageEngineId);
+      } else {
+        readyEngines.addLast(storageEngineId);
+      }
+      return queue;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(StoragePhysicalTaskQueue queue) {
+    lock.lock();
+    try {
+      if (queue.isEmpty()) {
+        queue.setScheduled(false);
+      } else {
+        makeReady(queue);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void reschedule(StoragePhysicalTaskQueue queue) {
+    lock.lock();
+    try {
+      makeReady(queue);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** 调用方需持有 lock */
+  private void makeReady(StoragePhysicalTaskQueue queue) {
+    Deque<StoragePhysicalTaskQueue> deque =
+        readyQueues.computeIfAbsent(queue.getStorageEngineId(), k -> new ArrayDeque<>());
+    if (deque.isEmpty()) {
+      readyEngines.addLast(queue.getStorageEngineId());
+    }
+    deque.addLast(queue);
+    notEmpty.signal();
+  }
+}
@@ -20,6 +20,7 @@
 package cn.edu.tsinghua.iginx.engine.shared;
 
 import cn.edu.tsinghua.iginx.engine.physical.task.PhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 import cn.edu.tsinghua.iginx.sql.statement.Statement;
 import cn.edu.tsinghua.iginx.thrift.SqlType;
 import cn.edu.tsinghua.iginx.thrift.Status;
@@ -56,6 +57,14 @@ public class RequestContext {
 
   private boolean useStream;
 
+  private int fetchSize; // 大于0表示客户端支持分页拉取executeSql的查询结果
+
+  private boolean columnarResult; // 查询结果是否以列式编码（QueryDataSetV3）返回
+
+  private String planCacheKey; // 非空表示该语句生成的逻辑计划可以放入计划缓存
+
+  private Operator logicalPlan; // 命中计划缓存时复用的逻辑计划
+
   private PhysicalTask physicalTree;
 
   private String loadCSVFileName;
@@ -122,6 +131,7 @@ public class RequestContext {
     this.result = result;
     if (this.result != null) {
       this.result.setQueryId(id);
+      this.result.setColumnarResult(columnarResult);
     }
     this.endTime = System.currentTimeMillis();
   }
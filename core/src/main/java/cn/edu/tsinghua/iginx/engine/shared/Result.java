@@ -30,6 +30,7 @@ import cn.edu.tsinghua.iginx.exception.StatusCode;
 import cn.edu.tsinghua.iginx.thrift.*;
 import cn.edu.tsinghua.iginx.utils.Bitmap;
 import cn.edu.tsinghua.iginx.utils.ByteUtils;
+import cn.edu.tsinghua.iginx.utils.ColumnarEncoding;
 import cn.edu.tsinghua.iginx.utils.RpcUtils;
 import java.nio.ByteBuffer;
 import java.util.*;
@@ -64,6 +65,9 @@ public class Result {
   private long queryId;
   private JobState jobState;
   private RowStream resultStream;
+  private boolean hasMoreResults; // executeSql的结果是否还有剩余页，剩余部分保留在resultStream中
+  private boolean columnarResult; // 是否以列式编码（QueryDataSetV3）返回查询结果
+  private QueryDataSetV3 queryDataSetV3;
 
   private long jobId;
   private Map<JobState, List<Long>> jobStateMap;
@@ -174,7 +178,9 @@ public class Result {
     resp.setTagsList(tagsList);
     resp.setDataTypeList(dataTypes);
 
-    if (valuesList != null) {
+    if (queryDataSetV3 != null) {
+      resp.setQueryDataSetV3(queryDataSetV3);
+    } else if (valuesList != null) {
       if (keys != null) {
         ByteBuffer keyBuffer = ByteUtils.getByteBufferFromLongArray(keys);
         resp.setKeys(keyBuffer);
@@ -183,6 +189,10 @@ public class Result {
         resp.setQueryDataSet(new QueryDataSet(ByteBuffer.allocate(0), valuesList, bitmapList));
       }
     }
+    if (hasMoreResults) {
+      resp.setQueryId(queryId);
+      resp.setHasMoreResults(true);
+    }
 
     resp.setIginxInfos(iginxInfos);
     resp.setStorageEngineInfos(storageEngineInfos);
@@ -241,36 +251,40 @@ public class Result {
                 }
               });
 
-      List<ByteBuffer> valuesList = new ArrayList<>();
-      List<ByteBuffer> bitmapList = new ArrayList<>();
-
-      int cnt = 0;
-      boolean hasKey = resultStream.getHeader().hasKey();
-      while (resultStream.hasNext() && cnt < fetchSize) {
-        Row row = resultStream.next();
-
-        Object[] rawValues = row.getValues();
-        Object[] rowValues = rawValues;
-        if (hasKey) {
-          rowValues = new Object[rawValues.length + 1];
-          rowValues[0] = row.getKey();
-          System.arraycopy(rawValues, 0, rowValues, 1, rawValues.length);
-        }
-        valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
+      resp.setColumns(paths);
+      resp.setTagsList(tagsList);
+      resp.setDataTypeList(types);
+      if (columnarResult) {
+        resp.setQueryDataSetV3(toQueryDataSetV3(header, nextRows(fetchSize)));
+      } else {
+        List<ByteBuffer> valuesList = new ArrayList<>();
+        List<ByteBuffer> bitmapList = new ArrayList<>();
+
+        int cnt = 0;
+        boolean hasKey = resultStream.getHeader().hasKey();
+        while (resultStream.hasNext() && cnt < fetchSize) {
+          Row row = resultStream.next();
+
+          Object[] rawValues = row.getValues();
+          Object[] rowValues = rawValues;
+          if (hasKey) {
+            rowValues = new Object[rawValues.length + 1];
+            rowValues[0] = row.getKey();
+            System.arraycopy(rawValues, 0, rowValues, 1, rawValues.length);
+          }
+          valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
 
-        Bitmap bitmap = new Bitmap(rowValues.length);
-        for (int i = 0; i < rowValues.length; i++) {
-          if (rowValues[i] != null) {
-            bitmap.mark(i);
+          Bitmap bitmap = new Bitmap(rowValues.length);
+          for (int i = 0; i < rowValues.length; i++) {
+            if (rowValues[i] != null) {
+              bitmap.mark(i);
+            }
           }
+          bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+          cnt++;
         }
-        bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
-        cnt++;
+        resp.setQueryDataSet(new QueryDataSetV2(valuesList, bitmapList));
       }
-      resp.setColumns(paths);
-      resp.setTagsList(tagsList);
-      resp.setDataTypeList(types);
-      resp.setQueryDataSet(new QueryDataSetV2(valuesList, bitmapList));
 
       // OUTFILE AS STREAM
       resp.setExportStreamDir(exportByteStreamDir);
@@ -334,38 +348,72 @@ public class Result {
 
       resultStream.getHeader().getFields().forEach(field -> types.add(field.getType()));
 
-      List<ByteBuffer> valuesList = new ArrayList<>();
-      List<ByteBuffer> bitmapList = new ArrayList<>();
-
-      int cnt = 0;
-      boolean hasKey = resultStream.getHeader().hasKey();
-      while (resultStream.hasNext() && cnt < fetchSize) {
-        Row row = resultStream.next();
-
-        Object[] rawValues = row.getValues();
-        Object[] rowValues = rawValues;
-        if (hasKey) {
-          rowValues = new Object[rawValues.length + 1];
-          rowValues[0] = row.getKey();
-          System.arraycopy(rawValues, 0, rowValues, 1, rawValues.length);
-        }
-        valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
+      if (columnarResult) {
+        resp.setQueryDataSetV3(toQueryDataSetV3(header, nextRows(fetchSize)));
+        resp.setHasMoreResults(resultStream.hasNext());
+      } else {
+        List<ByteBuffer> valuesList = new ArrayList<>();
+        List<ByteBuffer> bitmapList = new ArrayList<>();
+
+        int cnt = 0;
+        boolean hasKey = resultStream.getHeader().hasKey();
+        while (resultStream.hasNext() && cnt < fetchSize) {
+          Row row = resultStream.next();
+
+          Object[] rawValues = row.getValues();
+          Object[] rowValues = rawValues;
+          if (hasKey) {
+            rowValues = new Object[rawValues.length + 1];
+            rowValues[0] = row.getKey();
+            System.arraycopy(rawValues, 0, rowValues, 1, rawValues.length);
+          }
+          valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
 
-        Bitmap bitmap = new Bitmap(rowValues.length);
-        for (int i = 0; i < rowValues.length; i++) {
-          if (rowValues[i] != null) {
-            bitmap.mark(i);
+          Bitmap bitmap = new Bitmap(rowValues.length);
+          for (int i = 0; i < rowValues.length; i++) {
+            if (rowValues[i] != null) {
+              bitmap.mark(i);
+            }
           }
+          bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+          cnt++;
         }
-        bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
-        cnt++;
+        resp.setHasMoreResults(resultStream.hasNext());
+        resp.setQueryDataSet(new QueryDataSetV2(valuesList, bitmapList));
       }
-      resp.setHasMoreResults(resultStream.hasNext());
-      resp.setQueryDataSet(new QueryDataSetV2(valuesList, bitmapList));
     } catch (PhysicalException e) {
       LOGGER.error("unexpected error when load row stream: ", e);
       resp.setStatus(RpcUtils.FAILURE);
     }
     return resp;
   }
+
+  private List<Row> nextRows(int fetchSize) throws PhysicalException {
+    List<Row> rows = new ArrayList<>();
+    while (rows.size() < fetchSize && resultStream.hasNext()) {
+      rows.add(resultStream.next());
+    }
+    return rows;
+  }
+
+  /** 将若干行按列编码为QueryDataSetV3，key单独编码，不作为第一列 */
+  public static QueryDataSetV3 toQueryDataSetV3(Header header, List<Row> rows) {
+    int rowCount = rows.size();
+    int fieldSize = header.getFieldSize();
+    List<DataType> types = new ArrayList<>(fieldSize);
+    header.getFields().forEach(field -> types.add(field.getType()));
+    long[] keys = header.hasKey() ? new long[rowCount] : null;
+    Object[][] columns = new Object[fieldSize][rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      Row row = rows.get(i);
+      if (keys != null) {
+        keys[i] = row.getKey();
+      }
+      Object[] values = row.getValues();
+      for (int j = 0; j < fieldSize; j++) {
+        columns[j][i] = values[j];
+      }
+    }
+    return ColumnarEncoding.encode(keys, types, columns, rowCount);
+  }
 }
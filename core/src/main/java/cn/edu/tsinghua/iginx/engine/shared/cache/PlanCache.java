@@ -0,0 +1,227 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.cache;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.metadata.DefaultMetaManager;
+import cn.edu.tsinghua.iginx.metadata.IMetaManager;
+import cn.edu.tsinghua.iginx.sql.statement.Statement;
+import cn.edu.tsinghua.iginx.thrift.SqlType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+/**
+ * 逻辑计划缓存，缓存 SQL 解析得到的语句与优化后的逻辑计划，命中时跳过语法解析、逻辑计划生成与优化。
+ *
+ * <p>缓存分为两级，键都由 {@link SqlTemplate} 的词法分析得到。优化后的计划中已经折叠了常量（过滤条件下推、按 key 区间裁剪分片等），
+ * 因此只有模板与常量都相同的语句才能复用同一个计划；语法树只与模板有关，常量不同的语句将常量绑定到按模板缓存的语法树上重新生成语句，跳过语法解析，
+ * 之后照常生成并优化逻辑计划。分片、存储单元、存储引擎或 schema mapping 发生变化，以及优化规则被修改时，清空全部计划；语法树不受影响。
+ * 包含 NOW() 的语句在生成语句时取当前时间，只缓存语法树，不缓存计划。
+ */
+public class PlanCache {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private final int capacity = config.getPlanCacheCapacity();
+
+  private final LinkedHashMap<String, CachedPlan> plans =
+      new LinkedHashMap<String, CachedPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+          if (size() > capacity) {
+            evictionCount.incrementAndGet();
+            return true;
+          }
+          return false;
+        }
+      };
+
+  private final LinkedHashMap<String, ParseTree> parseTrees =
+      new LinkedHashMap<String, ParseTree>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParseTree> eldest) {
+          return size() > capacity;
+        }
+      };
+
+  // 每次失效递增，生成计划期间元数据发生过变化的计划不放入缓存
+  private final AtomicLong version = new AtomicLong();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+  private static class PlanCacheHolder {
+
+    private static final PlanCache INSTANCE = new PlanCache();
+  }
+
+  private PlanCache() {
+    IMetaManager metaManager = DefaultMetaManager.getInstance();
+    metaManager.registerFragmentChangeHook((create, fragment) -> invalidateAll());
+    metaManager.registerStorageUnitHook((before, after) -> invalidateAll());
+    metaManager.registerStorageEngineChangeHook((before, after) -> invalidateAll());
+    metaManager.registerSchemaMappingChangeHook((schema, schemaMapping) -> invalidateAll());
+  }
+
+  public static PlanCache getInstance() {
+    return PlanCacheHolder.INSTANCE;
+  }
+
+  public static boolean isEnabled() {
+    return config.isEnablePlanCache();
+  }
+
+  /** 当前版本号，需在生成逻辑计划前获取并在放入缓存时传入 */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * 查询缓存
+   *
+   * @return 命中时返回计划的副本，否则返回 null
+   */
+  public CachedPlan get(String key) {
+    CachedPlan plan;
+    synchronized (this) {
+      plan = plans.get(key);
+    }
+    if (plan == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return new CachedPlan(plan.statement, plan.sqlType, plan.root.copy());
+  }
+
+  /**
+   * 放入缓存
+   *
+   * @param version 生成逻辑计划前获取的版本号
+   */
+  public void put(String key, Statement statement, SqlType sqlType, Operator root, long version) {
+    CachedPlan plan = new CachedPlan(statement, sqlType, root.copy());
+    synchronized (this) {
+      if (version == this.version.get()) {
+        plans.put(key, plan);
+      }
+    }
+  }
+
+  /**
+   * 查询按模板缓存的语法树，语法树在多个请求间共享，只能在 {@link SqlTemplate#bind} 期间遍历
+   *
+   * @return 未命中时返回 null
+   */
+  public synchronized ParseTree getParseTree(String template) {
+    return parseTrees.get(template);
+  }
+
+  public synchronized void putParseTree(String template, ParseTree tree) {
+    parseTrees.put(template, tree);
+  }
+
+  public synchronized void invalidateAll() {
+    version.incrementAndGet();
+    invalidationCount.addAndGet(plans.size());
+    plans.clear();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public double getHitRatio() {
+    long hit = hitCount.get();
+    long total = hit + missCount.get();
+    return total == 0 ? 0 : (double) hit / total;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  public long getInvalidationCount() {
+    return invalidationCount.get();
+  }
+
+  public synchronized int getEntryCount() {
+    return plans.size();
+  }
+
+  public synchronized int getParseTreeCount() {
+    return parseTrees.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "PlanCache{entries=%d, parseTrees=%d, hit=%d, miss=%d, hitRatio=%.4f, eviction=%d,"
+            + " invalidation=%d}",
+        getEntryCount(),
+        getParseTreeCount(),
+        getHitCount(),
+        getMissCount(),
+        getHitRatio(),
+        getEvictionCount(),
+        getInvalidationCount());
+  }
+
+  /** 缓存的语句与逻辑计划。语句在多个请求间共享，只能读取 */
+  public static class CachedPlan {
+
+    private final Statement statement;
+
+    private final SqlType sqlType;
+
+    private final Operator root;
+
+    CachedPlan(Statement statement, SqlType sqlType, Operator root) {
+      this.statement = statement;
+      this.sqlType = sqlType;
+      this.root = root;
+    }
+
+    public Statement getStatement() {
+      return statement;
+    }
+
+    public SqlType getSqlType() {
+      return sqlType;
+    }
+
+    public Operator getRoot() {
+      return root;
+    }
+  }
+}
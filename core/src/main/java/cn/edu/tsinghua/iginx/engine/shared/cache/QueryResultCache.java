@@ -0,0 +1,498 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.cache;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.PrefetchedRowStreamWrapper;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.BinaryOperator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.MultipleOperator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.UnaryOperator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.type.OperatorType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.visitor.OperatorVisitor;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+import cn.edu.tsinghua.iginx.engine.shared.source.SourceType;
+import cn.edu.tsinghua.iginx.metadata.DefaultMetaManager;
+import cn.edu.tsinghua.iginx.metadata.entity.ColumnsInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.KeyInterval;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 查询结果缓存。
+ *
+ * <p>缓存键为优化后的逻辑计划的规范化表示，其中包含查询涉及的每个分片的列区间、key 区间与存储单元，分片发生变化后旧的缓存项自然不再命中。写入与删除时，按写入涉及的分片区间精确失效与之相交的缓存项；
+ * 分片元数据变化时同样按区间失效。缓存项按读取的分片区间建立索引，失效时只需遍历不同的分片区间，无需逐个检查缓存项，且不与查询竞争锁。缓存按估算的内存占用与过期时间淘汰。其他 IGinX 节点上的写入以及绕过 IGinX 直接写入存储的数据无法感知，只能依赖过期时间。
+ */
+public class QueryResultCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private static final long ROW_OVERHEAD = 48;
+
+  private static final long VALUE_OVERHEAD = 24;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  // 分片区间 -> 读取了该区间的缓存键
+  private final Map<Region, Set<String>> keysByRegion = new ConcurrentHashMap<>();
+
+  private final long capacity;
+
+  private final long ttl;
+
+  private final int maxRows;
+
+  // 每次失效递增，执行期间发生过失效的查询结果不放入缓存，避免缓存写入前的旧数据
+  private final AtomicLong version = new AtomicLong();
+
+  private long memoryUsage = 0;
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+  private static class QueryResultCacheHolder {
+
+    private static final QueryResultCache INSTANCE = create();
+  }
+
+  QueryResultCache(long capacity, long ttl, int maxRows) {
+    this.capacity = capacity;
+    this.ttl = ttl;
+    this.maxRows = maxRows;
+  }
+
+  private static QueryResultCache create() {
+    QueryResultCache cache =
+        new QueryResultCache(
+            config.getQueryResultCacheCapacity(),
+            config.getQueryResultCacheTTL(),
+            config.getQueryResultCacheMaxRows());
+    DefaultMetaManager.getInstance()
+        .registerFragmentChangeHook(
+            (create, fragment) -> {
+              if (fragment != null) {
+                cache.invalidate(fragment.getColumnsInterval(), fragment.getKeyInterval());
+              }
+            });
+    return cache;
+  }
+
+  public static QueryResultCache getInstance() {
+    return QueryResultCacheHolder.INSTANCE;
+  }
+
+  public static boolean isEnabled() {
+    return config.isEnableQueryResultCache();
+  }
+
+  /**
+   * 计算逻辑计划的缓存键
+   *
+   * @return 计划中含有无法缓存的算子时返回 null
+   */
+  public static String keyOf(Operator root) {
+    CanonicalPlanVisitor visitor = new CanonicalPlanVisitor();
+    root.accept(visitor);
+    return visitor.isCacheable() ? visitor.toString() : null;
+  }
+
+  /** 收集逻辑计划读取的分片 */
+  public static List<FragmentMeta> fragmentsOf(Operator root) {
+    CanonicalPlanVisitor visitor = new CanonicalPlanVisitor();
+    root.accept(visitor);
+    return visitor.getFragments();
+  }
+
+  /** 收集逻辑计划中的写入与删除算子涉及的分片 */
+  public static List<FragmentMeta> writtenFragmentsOf(Operator root) {
+    List<FragmentMeta> fragments = new ArrayList<>();
+    root.accept(
+        new OperatorVisitor() {
+          @Override
+          public void visit(UnaryOperator unaryOperator) {
+            OperatorType type = unaryOperator.getType();
+            Source source = unaryOperator.getSource();
+            if ((type == OperatorType.Insert || type == OperatorType.Delete)
+                && source.getType() == SourceType.Fragment) {
+              fragments.add(((FragmentSource) source).getFragment());
+            }
+          }
+
+          @Override
+          public void visit(BinaryOperator binaryOperator) {}
+
+          @Override
+          public void visit(MultipleOperator multipleOperator) {}
+        });
+    return fragments;
+  }
+
+  /** 当前版本号，需在执行查询前获取并在放入缓存时传入 */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * 查询缓存
+   *
+   * @return 命中时返回可独立读取的结果，否则返回 null
+   */
+  public synchronized RowStream get(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null && System.currentTimeMillis() - entry.createTime > ttl) {
+      remove(key);
+      evictionCount.incrementAndGet();
+      entry = null;
+    }
+    if (entry == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return new Table(entry.header, entry.rows);
+  }
+
+  /**
+   * 读取查询结果并尝试放入缓存。结果超过 maxRows 行时不缓存，返回的行流仍包含全部结果。
+   *
+   * @param version 执行查询前获取的版本号
+   * @return 供调用方继续读取的查询结果
+   */
+  public RowStream put(String key, List<FragmentMeta> fragments, long version, RowStream stream)
+      throws PhysicalException {
+    List<Row> rows = new ArrayList<>();
+    while (rows.size() <= maxRows && stream.hasNext()) {
+      rows.add(stream.next());
+    }
+    if (rows.size() > maxRows) {
+      return new PrefetchedRowStreamWrapper(stream, rows);
+    }
+    Header header = stream.getHeader();
+    stream.close();
+    rows = Collections.unmodifiableList(rows);
+    long size = estimateSize(key, rows);
+    synchronized (this) {
+      if (version == this.version.get() && size <= capacity) {
+        remove(key);
+        Entry entry = new Entry(header, rows, fragments, size);
+        entries.put(key, entry);
+        memoryUsage += size;
+        for (Region region : entry.regions) {
+          keysByRegion.computeIfAbsent(region, r -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        // 先登记索引再检查版本号：此后开始的失效一定能在索引中找到该缓存项
+        if (version != this.version.get()) {
+          remove(key);
+        } else {
+          evictIfNecessary();
+        }
+      }
+    }
+    return new Table(header, rows);
+  }
+
+  /** 失效与给定列区间和 key 区间都相交的缓存项 */
+  public void invalidate(ColumnsInterval columnsInterval, KeyInterval keyInterval) {
+    version.incrementAndGet();
+    Set<String> keys = new HashSet<>();
+    for (Map.Entry<Region, Set<String>> entry : keysByRegion.entrySet()) {
+      Region region = entry.getKey();
+      if (region.columnsInterval.isIntersect(columnsInterval)
+          && region.keyInterval.isIntersect(keyInterval)) {
+        keys.addAll(entry.getValue());
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      for (String key : keys) {
+        if (remove(key)) {
+          invalidationCount.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  public void invalidate(List<FragmentMeta> fragments) {
+    for (FragmentMeta fragment : fragments) {
+      invalidate(fragment.getColumnsInterval(), fragment.getKeyInterval());
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    version.incrementAndGet();
+    invalidationCount.addAndGet(entries.size());
+    entries.clear();
+    keysByRegion.clear();
+    memoryUsage = 0;
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public double getHitRatio() {
+    long hit = hitCount.get();
+    long total = hit + missCount.get();
+    return total == 0 ? 0 : (double) hit / total;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  public long getInvalidationCount() {
+    return invalidationCount.get();
+  }
+
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /** 缓存结果估算的内存占用，单位为字节 */
+  public synchronized long getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "QueryResultCache{entries=%d, memoryUsage=%d, hit=%d, miss=%d, hitRatio=%.4f, eviction=%d, invalidation=%d}",
+        getEntryCount(),
+        getMemoryUsage(),
+        getHitCount(),
+        getMissCount(),
+        getHitRatio(),
+        getEvictionCount(),
+        getInvalidationCount());
+  }
+
+  private boolean remove(String key) {
+    Entry entry = entries.remove(key);
+    if (entry == null) {
+      return false;
+    }
+    memoryUsage -= entry.size;
+    unindex(key, entry);
+    return true;
+  }
+
+  private void unindex(String key, Entry entry) {
+    for (Region region : entry.regions) {
+      Set<String> keys = keysByRegion.get(region);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByRegion.remove(region);
+        }
+      }
+    }
+  }
+
+  private void evictIfNecessary() {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (memoryUsage > capacity && it.hasNext()) {
+      Map.Entry<String, Entry> next = it.next();
+      Entry entry = next.getValue();
+      it.remove();
+      memoryUsage -= entry.size;
+      unindex(next.getKey(), entry);
+      evictionCount.incrementAndGet();
+    }
+    LOGGER.debug("{}", this);
+  }
+
+  private static long estimateSize(String key, List<Row> rows) {
+    long size = 2L * key.length();
+    for (Row row : rows) {
+      size += ROW_OVERHEAD;
+      for (Object value : row.getValues()) {
+        if (value instanceof byte[]) {
+          size += VALUE_OVERHEAD + ((byte[]) value).length;
+        } else if (value != null) {
+          size += VALUE_OVERHEAD;
+        }
+      }
+    }
+    return size;
+  }
+
+  private static class Entry {
+
+    private final Header header;
+
+    private final List<Row> rows;
+
+    private final Set<Region> regions = new HashSet<>();
+
+    private final long size;
+
+    private final long createTime = System.currentTimeMillis();
+
+    Entry(Header header, List<Row> rows, List<FragmentMeta> fragments, long size) {
+      this.header = header;
+      this.rows = rows;
+      for (FragmentMeta fragment : fragments) {
+        regions.add(new Region(fragment.getColumnsInterval(), fragment.getKeyInterval()));
+      }
+      this.size = size;
+    }
+  }
+
+  /** 分片区间的快照，分片元数据中的区间可能被修改，不能直接作为索引的键 */
+  private static class Region {
+
+    private final ColumnsInterval columnsInterval;
+
+    private final KeyInterval keyInterval;
+
+    Region(ColumnsInterval columnsInterval, KeyInterval keyInterval) {
+      this.columnsInterval =
+          new ColumnsInterval(
+              columnsInterval.getStartColumn(),
+              columnsInterval.getEndColumn(),
+              columnsInterval.getSchemaPrefix());
+      this.keyInterval = new KeyInterval(keyInterval.getStartKey(), keyInterval.getEndKey());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Region that = (Region) o;
+      return columnsInterval.equals(that.columnsInterval) && keyInterval.equals(that.keyInterval);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(columnsInterval, keyInterval);
+    }
+  }
+
+  /** 生成逻辑计划的规范化表示，同时收集计划涉及的分片 */
+  private static class CanonicalPlanVisitor implements OperatorVisitor {
+
+    private final StringBuilder builder = new StringBuilder();
+
+    private final List<FragmentMeta> fragments = new ArrayList<>();
+
+    private boolean cacheable = true;
+
+    private int depth = -1;
+
+    @Override
+    public void enter() {
+      depth++;
+    }
+
+    @Override
+    public void leave() {
+      depth--;
+    }
+
+    @Override
+    public void visit(UnaryOperator unaryOperator) {
+      append(unaryOperator);
+      Source source = unaryOperator.getSource();
+      if (source.getType() == SourceType.Fragment) {
+        FragmentMeta fragment = ((FragmentSource) source).getFragment();
+        fragments.add(fragment);
+        builder
+            .append("{")
+            .append(fragment.getColumnsInterval())
+            .append(",")
+            .append(fragment.getKeyInterval())
+            .append(",")
+            .append(fragment.getMasterStorageUnitId())
+            .append("}");
+      }
+    }
+
+    @Override
+    public void visit(BinaryOperator binaryOperator) {
+      append(binaryOperator);
+    }
+
+    @Override
+    public void visit(MultipleOperator multipleOperator) {
+      append(multipleOperator);
+    }
+
+    private void append(Operator op) {
+      OperatorType type = op.getType();
+      if (OperatorType.isGlobalOperator(type)
+          || type == OperatorType.Insert
+          || type == OperatorType.Delete) {
+        cacheable = false;
+      }
+      builder.append('\n').append(depth).append(':').append(op.getType());
+      builder.append('[').append(op.getInfo()).append(']');
+    }
+
+    List<FragmentMeta> getFragments() {
+      return fragments;
+    }
+
+    boolean isCacheable() {
+      return cacheable;
+    }
+
+    @Override
+    public String toString() {
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.cache;
+
+import cn.edu.tsinghua.iginx.sql.SQLParseError;
+import cn.edu.tsinghua.iginx.sql.SqlLexer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 查询语句的模板，由词法分析得到：去掉空白与注释，常量替换为带有词法类型的占位符。模板相同的语句语法树相同，只有常量不同，因此语法树可以按模板缓存，
+ * 换上新的常量后重新生成语句。
+ *
+ * <p>只处理以 SELECT、WITH 或 EXPLAIN 开头的语句，其余语句（尤其是可能很长的 INSERT）不做词法分析。
+ */
+public class SqlTemplate {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SqlTemplate.class);
+
+  private static final Set<String> QUERY_KEYWORDS =
+      new HashSet<>(Arrays.asList("select", "with", "explain"));
+
+  // 当前线程绑定到缓存语法树上的常量，按出现顺序排列
+  private static final ThreadLocal<List<String>> BOUND_LITERALS = new ThreadLocal<>();
+
+  private final String template;
+
+  private final List<String> literals;
+
+  private final List<Token> tokens;
+
+  private final boolean planCacheable;
+
+  private SqlTemplate(
+      String template, List<String> literals, List<Token> tokens, boolean planCacheable) {
+    this.template = template;
+    this.literals = literals;
+    this.tokens = tokens;
+    this.planCacheable = planCacheable;
+  }
+
+  /**
+   * 对查询语句做词法分析
+   *
+   * @return 不是查询语句或者词法分析失败时返回 null，交由语法解析处理
+   */
+  @Nullable
+  public static SqlTemplate of(String sql) {
+    if (sql == null || !startsWithQuery(sql)) {
+      return null;
+    }
+    StringBuilder template = new StringBuilder();
+    List<String> literals = new ArrayList<>();
+    List<Token> tokens = new ArrayList<>();
+    boolean planCacheable = true;
+    try {
+      SqlLexer lexer = new SqlLexer(CharStreams.fromString(sql));
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(SQLParseError.INSTANCE);
+      for (Token token = lexer.nextToken();
+          token.getType() != Token.EOF;
+          token = lexer.nextToken()) {
+        if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+          continue;
+        }
+        if (token.getType() == SqlLexer.NOW) {
+          planCacheable = false;
+        }
+        String text = token.getText();
+        CommonToken copy;
+        if (isLiteral(token.getType())) {
+          template.append('?').append(token.getType());
+          copy = new LiteralToken(token.getType(), text, literals.size());
+          literals.add(text);
+        } else {
+          template.append(text);
+          copy = new CommonToken(token.getType(), text);
+        }
+        copy.setLine(token.getLine());
+        copy.setCharPositionInLine(token.getCharPositionInLine());
+        tokens.add(copy);
+        template.append(' ');
+      }
+    } catch (Exception e) {
+      LOGGER.debug("failed to tokenize sql: {}", sql, e);
+      return null;
+    }
+    return new SqlTemplate(
+        template.toString(), Collections.unmodifiableList(literals), tokens, planCacheable);
+  }
+
+  private static boolean startsWithQuery(String sql) {
+    int i = 0;
+    while (i < sql.length() && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(')) {
+      i++;
+    }
+    int start = i;
+    while (i < sql.length() && Character.isLetter(sql.charAt(i))) {
+      i++;
+    }
+    return QUERY_KEYWORDS.contains(sql.substring(start, i).toLowerCase());
+  }
+
+  private static boolean isLiteral(int tokenType) {
+    switch (tokenType) {
+      case SqlLexer.INT:
+      case SqlLexer.EXPONENT:
+      case SqlLexer.TIME_WITH_UNIT:
+      case SqlLexer.DATETIME:
+      case SqlLexer.SINGLE_QUOTE_STRING_LITERAL:
+      case SqlLexer.DOUBLE_QUOTE_STRING_LITERAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** 语句模板，用作语法树的缓存键 */
+  public String getTemplate() {
+    return template;
+  }
+
+  /** 按出现顺序排列的常量 */
+  public List<String> getLiterals() {
+    return literals;
+  }
+
+  /** 模板与常量都相同的语句才能复用优化后的逻辑计划，因此计划的缓存键同时包含两者 */
+  public String getKey() {
+    StringBuilder key = new StringBuilder(template).append('\0');
+    for (String literal : literals) {
+      key.append(literal.length()).append(':').append(literal);
+    }
+    return key.toString();
+  }
+
+  /** NOW() 在生成语句时就求值为当前时间，包含它的语句不能复用逻辑计划，但语法树仍然可以按模板缓存 */
+  public boolean isPlanCacheable() {
+    return planCacheable;
+  }
+
+  /** 供语法解析使用的词法单元，常量会随 bind 替换 */
+  public TokenSource newTokenSource() {
+    return new ListTokenSource(tokens);
+  }
+
+  /**
+   * 将本语句的常量绑定到由相同模板解析得到的语法树上，在绑定期间生成语句
+   *
+   * @param generator 遍历语法树生成语句
+   */
+  public <T> T bind(Supplier<T> generator) {
+    List<String> previous = BOUND_LITERALS.get();
+    BOUND_LITERALS.set(literals);
+    try {
+      return generator.get();
+    } finally {
+      if (previous == null) {
+        BOUND_LITERALS.remove();
+      } else {
+        BOUND_LITERALS.set(previous);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return template;
+  }
+
+  /** 常量的词法单元，文本取当前线程绑定的常量，没有绑定时为解析时的原文 */
+  private static class LiteralToken extends CommonToken {
+
+    private final int slot;
+
+    LiteralToken(int type, String text, int slot) {
+      super(type, text);
+      this.slot = slot;
+    }
+
+    @Override
+    public String getText() {
+      List<String> literals = BOUND_LITERALS.get();
+      if (literals == null) {
+        return super.getText();
+      }
+      return literals.get(slot);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 列式的一批数据，key列以long数组存储，其余每列为一个ColumnVector。 */
+public final class Batch {
+
+  private final Header header;
+
+  private final long[] keys; // header没有key时为null
+
+  private final ColumnVector[] columns;
+
+  private final int rowCount;
+
+  public Batch(Header header, long[] keys, ColumnVector[] columns, int rowCount) {
+    if (columns.length != header.getFieldSize()) {
+      throw new IllegalArgumentException(
+          "column count " + columns.length + " doesn't match header " + header);
+    }
+    if (header.hasKey() && keys == null) {
+      throw new IllegalArgumentException("keys are required when header has key");
+    }
+    this.header = header;
+    this.keys = header.hasKey() ? keys : null;
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  /** 将若干行转换为列式的批数据 */
+  public static Batch fromRows(Header header, List<Row> rows) {
+    int size = rows.size();
+    int fieldSize = header.getFieldSize();
+    long[] keys = header.hasKey() ? new long[size] : null;
+    ColumnVector[] columns = new ColumnVector[fieldSize];
+    for (int j = 0; j < fieldSize; j++) {
+      columns[j] = ColumnVector.allocate(header.getField(j).getType(), size);
+    }
+    for (int i = 0; i < size; i++) {
+      Row row = rows.get(i);
+      if (keys != null) {
+        keys[i] = row.getKey();
+      }
+      Object[] values = row.getValues();
+      for (int j = 0; j < fieldSize; j++) {
+        columns[j].putObject(i, values[j]);
+      }
+    }
+    return new Batch(header, keys, columns, size);
+  }
+
+  /**
+   * 将表头相同的若干批数据按顺序拼接为一批，按列复制原始类型数组，不物化行
+   *
+   * @param header 各批数据共同的表头
+   * @param batches 待拼接的批数据
+   * @return 拼接后的批数据；只有一批时直接返回该批
+   */
+  public static Batch concat(Header header, List<Batch> batches) {
+    if (batches.size() == 1) {
+      return batches.get(0);
+    }
+    int size = 0;
+    for (Batch batch : batches) {
+      size += batch.getRowCount();
+    }
+    int fieldSize = header.getFieldSize();
+    long[] keys = header.hasKey() ? new long[size] : null;
+    ColumnVector[] columns = new ColumnVector[fieldSize];
+    for (int j = 0; j < fieldSize; j++) {
+      columns[j] = ColumnVector.allocate(header.getField(j).getType(), size);
+    }
+    int offset = 0;
+    for (Batch batch : batches) {
+      int rowCount = batch.getRowCount();
+      if (keys != null) {
+        System.arraycopy(batch.getKeys(), 0, keys, offset, rowCount);
+      }
+      for (int j = 0; j < fieldSize; j++) {
+        columns[j].copyFrom(batch.getColumn(j), rowCount, offset);
+      }
+      offset += rowCount;
+    }
+    return new Batch(header, keys, columns, size);
+  }
+
+  public Header getHeader() {
+    return header;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public boolean isEmpty() {
+    return rowCount == 0;
+  }
+
+  public long[] getKeys() {
+    return keys;
+  }
+
+  public long getKey(int i) {
+    return keys == null ? Row.NON_EXISTED_KEY : keys[i];
+  }
+
+  public ColumnVector[] getColumns() {
+    return columns;
+  }
+
+  public ColumnVector getColumn(int index) {
+    return columns[index];
+  }
+
+  /** 物化第i行，仅用于与行式算子交互 */
+  public Row getRow(int i) {
+    Object[] values = new Object[columns.length];
+    for (int j = 0; j < columns.length; j++) {
+      values[j] = columns[j].getObject(i);
+    }
+    return new Row(header, getKey(i), values);
+  }
+
+  public List<Row> toRows() {
+    List<Row> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      rows.add(getRow(i));
+    }
+    return rows;
+  }
+
+  /**
+   * 按照选择向量取出若干行，组成新的批数据
+   *
+   * @param selection 被选中的行下标，需要递增
+   * @param size 选择向量中有效下标的数量
+   * @return 新的批数据；若全部行都被选中，直接返回自身
+   */
+  public Batch select(int[] selection, int size) {
+    if (size == rowCount) {
+      return this;
+    }
+    long[] newKeys = null;
+    if (keys != null) {
+      newKeys = new long[size];
+      for (int j = 0; j < size; j++) {
+        newKeys[j] = keys[selection[j]];
+      }
+    }
+    ColumnVector[] newColumns = new ColumnVector[columns.length];
+    for (int j = 0; j < columns.length; j++) {
+      newColumns[j] = columns[j].select(selection, size);
+    }
+    return new Batch(header, newKeys, newColumns, size);
+  }
+
+  /** 仅替换表头与列，复用key，不拷贝数据 */
+  public Batch withColumns(Header newHeader, ColumnVector[] newColumns) {
+    return new Batch(newHeader, keys, newColumns, rowCount);
+  }
+
+  @Override
+  public String toString() {
+    return "Batch{" + "header=" + header + ", rowCount=" + rowCount + '}';
+  }
+}
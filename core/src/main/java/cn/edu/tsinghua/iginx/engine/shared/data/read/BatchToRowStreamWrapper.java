@@ -0,0 +1,81 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+
+/** 将列式的BatchStream适配为逐行的RowStream，使下游尚未向量化的算子可以继续工作。 */
+public class BatchToRowStreamWrapper implements RowStream {
+
+  private final BatchStream batchStream;
+
+  private Batch batch;
+
+  private int index;
+
+  public BatchToRowStreamWrapper(BatchStream batchStream) {
+    this.batchStream = batchStream;
+  }
+
+  public BatchStream getBatchStream() {
+    return batchStream;
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    return batchStream.getHeader();
+  }
+
+  @Override
+  public void close() throws PhysicalException {
+    batchStream.close();
+  }
+
+  @Override
+  public boolean hasNext() throws PhysicalException {
+    while (batch == null || index >= batch.getRowCount()) {
+      if (!batchStream.hasNext()) {
+        return false;
+      }
+      batch = batchStream.nextBatch();
+      index = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public Row next() throws PhysicalException {
+    if (!hasNext()) {
+      throw new IllegalStateException("row stream doesn't have more data!");
+    }
+    return batch.getRow(index++);
+  }
+
+  @Override
+  public void setContext(RequestContext context) {
+    batchStream.setContext(context);
+  }
+
+  @Override
+  public RequestContext getContext() {
+    return batchStream.getContext();
+  }
+}
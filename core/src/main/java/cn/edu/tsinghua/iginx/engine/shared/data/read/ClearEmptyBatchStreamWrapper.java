@@ -0,0 +1,55 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.UnaryBatchStream;
+
+/** ClearEmptyRowStreamWrapper的列式版本，去掉所有列均为空值的行 */
+public class ClearEmptyBatchStreamWrapper extends UnaryBatchStream {
+
+  public ClearEmptyBatchStreamWrapper(BatchStream stream) {
+    super(stream);
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    return stream.getHeader();
+  }
+
+  @Override
+  protected Batch compute(Batch batch) {
+    int rowCount = batch.getRowCount();
+    boolean[] nonEmpty = new boolean[rowCount];
+    for (ColumnVector column : batch.getColumns()) {
+      for (int i = 0; i < rowCount; i++) {
+        nonEmpty[i] |= !column.isNull(i);
+      }
+    }
+    int[] selection = new int[rowCount];
+    int size = 0;
+    for (int i = 0; i < rowCount; i++) {
+      if (nonEmpty[i]) {
+        selection[size++] = i;
+      }
+    }
+    return batch.select(selection, size);
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.Arrays;
+
+/** 列式批处理中的单列数据，数值类型使用原始类型数组存储，空值通过位图标记，避免逐值装箱。 */
+public final class ColumnVector {
+
+  private final DataType type;
+
+  private final int capacity;
+
+  private final long[] nulls; // 置位表示该行为空值
+
+  private boolean[] booleans;
+
+  private int[] ints;
+
+  private long[] longs;
+
+  private float[] floats;
+
+  private double[] doubles;
+
+  private byte[][] binaries;
+
+  private ColumnVector(DataType type, int capacity) {
+    this.type = type;
+    this.capacity = capacity;
+    this.nulls = new long[(capacity + 63) >>> 6];
+    switch (type) {
+      case BOOLEAN:
+        booleans = new boolean[capacity];
+        break;
+      case INTEGER:
+        ints = new int[capacity];
+        break;
+      case LONG:
+        longs = new long[capacity];
+        break;
+      case FLOAT:
+        floats = new float[capacity];
+        break;
+      case DOUBLE:
+        doubles = new double[capacity];
+        break;
+      case BINARY:
+        binaries = new byte[capacity][];
+        break;
+      default:
+        throw new IllegalArgumentException("unsupported data type: " + type);
+    }
+  }
+
+  /** 分配一个所有行均为空值的列 */
+  public static ColumnVector allocate(DataType type, int capacity) {
+    ColumnVector vector = new ColumnVector(type, capacity);
+    vector.setAllNull();
+    return vector;
+  }
+
+  public DataType getType() {
+    return type;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public boolean isNull(int i) {
+    return (nulls[i >>> 6] & (1L << i)) != 0;
+  }
+
+  public void setNull(int i) {
+    nulls[i >>> 6] |= 1L << i;
+    if (binaries != null) {
+      binaries[i] = null;
+    }
+  }
+
+  private void setNotNull(int i) {
+    nulls[i >>> 6] &= ~(1L << i);
+  }
+
+  private void setAllNull() {
+    Arrays.fill(nulls, -1L);
+  }
+
+  /** 前size行中的空值数量 */
+  public int nullCount(int size) {
+    int count = 0;
+    int words = size >>> 6;
+    for (int i = 0; i < words; i++) {
+      count += Long.bitCount(nulls[i]);
+    }
+    int remain = size & 63;
+    if (remain != 0) {
+      count += Long.bitCount(nulls[words] & ((1L << remain) - 1));
+    }
+    return count;
+  }
+
+  public boolean getBoolean(int i) {
+    return booleans[i];
+  }
+
+  public int getInt(int i) {
+    return ints[i];
+  }
+
+  public long getLong(int i) {
+    return longs[i];
+  }
+
+  public float getFloat(int i) {
+    return floats[i];
+  }
+
+  public double getDouble(int i) {
+    return doubles[i];
+  }
+
+  public byte[] getBinary(int i) {
+    return binaries[i];
+  }
+
+  /** 将数值类型的值读取为double，调用方需保证该列为数值类型且该行非空 */
+  public double getAsDouble(int i) {
+    switch (type) {
+      case INTEGER:
+        return ints[i];
+      case LONG:
+        return longs[i];
+      case FLOAT:
+        return floats[i];
+      case DOUBLE:
+        return doubles[i];
+      default:
+        throw new IllegalStateException("column of type " + type + " is not numeric");
+    }
+  }
+
+  public void putBoolean(int i, boolean value) {
+    booleans[i] = value;
+    setNotNull(i);
+  }
+
+  public void putInt(int i, int value) {
+    ints[i] = value;
+    setNotNull(i);
+  }
+
+  public void putLong(int i, long value) {
+    longs[i] = value;
+    setNotNull(i);
+  }
+
+  public void putFloat(int i, float value) {
+    floats[i] = value;
+    setNotNull(i);
+  }
+
+  public void putDouble(int i, double value) {
+    doubles[i] = value;
+    setNotNull(i);
+  }
+
+  public void putBinary(int i, byte[] value) {
+    if (value == null) {
+      setNull(i);
+      return;
+    }
+    binaries[i] = value;
+    setNotNull(i);
+  }
+
+  /** 读取装箱后的值，仅用于与行式算子交互 */
+  public Object getObject(int i) {
+    if (isNull(i)) {
+      return null;
+    }
+    switch (type) {
+      case BOOLEAN:
+        return booleans[i];
+      case INTEGER:
+        return ints[i];
+      case LONG:
+        return longs[i];
+      case FLOAT:
+        return floats[i];
+      case DOUBLE:
+        return doubles[i];
+      case BINARY:
+        return binaries[i];
+      default:
+        throw new IllegalStateException("unsupported data type: " + type);
+    }
+  }
+
+  /** 写入装箱后的值，仅用于与行式算子交互 */
+  public void putObject(int i, Object value) {
+    if (value == null) {
+      setNull(i);
+      return;
+    }
+    switch (type) {
+      case BOOLEAN:
+        putBoolean(i, (Boolean) value);
+        break;
+      case INTEGER:
+        putInt(i, ((Number) value).intValue());
+        break;
+      case LONG:
+        putLong(i, ((Number) value).longValue());
+        break;
+      case FLOAT:
+        putFloat(i, ((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        putDouble(i, ((Number) value).doubleValue());
+        break;
+      case BINARY:
+        putBinary(i, (byte[]) value);
+        break;
+      default:
+        throw new IllegalStateException("unsupported data type: " + type);
+    }
+  }
+
+  /**
+   * 将另一列的前length行复制到本列从offset开始的位置，两列的类型需要相同
+   *
+   * @param source 被复制的列
+   * @param length 复制的行数
+   * @param offset 本列中的起始位置
+   */
+  public void copyFrom(ColumnVector source, int length, int offset) {
+    if (source.type != type) {
+      throw new IllegalArgumentException("can't copy " + source.type + " column into " + type);
+    }
+    switch (type) {
+      case BOOLEAN:
+        System.arraycopy(source.booleans, 0, booleans, offset, length);
+        break;
+      case INTEGER:
+        System.arraycopy(source.ints, 0, ints, offset, length);
+        break;
+      case LONG:
+        System.arraycopy(source.longs, 0, longs, offset, length);
+        break;
+      case FLOAT:
+        System.arraycopy(source.floats, 0, floats, offset, length);
+        break;
+      case DOUBLE:
+        System.arraycopy(source.doubles, 0, doubles, offset, length);
+        break;
+      case BINARY:
+        System.arraycopy(source.binaries, 0, binaries, offset, length);
+        break;
+      default:
+        throw new IllegalStateException("unsupported data type: " + type);
+    }
+    for (int i = 0; i < length; i++) {
+      if (source.isNull(i)) {
+        setNull(offset + i);
+      } else {
+        setNotNull(offset + i);
+      }
+    }
+  }
+
+  /**
+   * 按照选择向量取出若干行，组成新的列
+   *
+   * @param selection 被选中的行下标，需要递增
+   * @param size 选择向量中有效下标的数量
+   * @return 新的列
+   */
+  public ColumnVector select(int[] selection, int size) {
+    ColumnVector result = new ColumnVector(type, size);
+    for (int j = 0; j < size; j++) {
+      int i = selection[j];
+      if (isNull(i)) {
+        result.setNull(j);
+        continue;
+      }
+      switch (type) {
+        case BOOLEAN:
+          result.booleans[j] = booleans[i];
+          break;
+        case INTEGER:
+          result.ints[j] = ints[i];
+          break;
+        case LONG:
+          result.longs[j] = longs[i];
+          break;
+        case FLOAT:
+          result.floats[j] = floats[i];
+          break;
+        case DOUBLE:
+          result.doubles[j] = doubles[i];
+          break;
+        case BINARY:
+          result.binaries[j] = binaries[i];
+          break;
+        default:
+          throw new IllegalStateException("unsupported data type: " + type);
+      }
+    }
+    return result;
+  }
+}
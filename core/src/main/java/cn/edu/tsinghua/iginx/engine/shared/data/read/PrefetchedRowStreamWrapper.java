@@ -0,0 +1,61 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import java.util.List;
+
+/** 先返回已经预读的若干行，再返回原始行流中剩余的行 */
+public class PrefetchedRowStreamWrapper implements RowStream {
+
+  private final RowStream stream;
+
+  private final List<Row> prefetchedRows;
+
+  private int index = 0;
+
+  public PrefetchedRowStreamWrapper(RowStream stream, List<Row> prefetchedRows) {
+    this.stream = stream;
+    this.prefetchedRows = prefetchedRows;
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    return stream.getHeader();
+  }
+
+  @Override
+  public void close() throws PhysicalException {
+    stream.close();
+  }
+
+  @Override
+  public boolean hasNext() throws PhysicalException {
+    return index < prefetchedRows.size() || stream.hasNext();
+  }
+
+  @Override
+  public Row next() throws PhysicalException {
+    if (index < prefetchedRows.size()) {
+      return prefetchedRows.get(index++);
+    }
+    return stream.next();
+  }
+}
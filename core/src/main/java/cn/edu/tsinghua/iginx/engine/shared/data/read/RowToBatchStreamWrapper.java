@@ -0,0 +1,82 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import java.util.ArrayList;
+import java.util.List;
+
+/** 将逐行的RowStream适配为列式的BatchStream，供尚未向量化的算子和存储层的数据流使用。 */
+public class RowToBatchStreamWrapper implements BatchStream {
+
+  private final RowStream rowStream;
+
+  private final int batchSize;
+
+  public RowToBatchStreamWrapper(RowStream rowStream, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batch size should be positive: " + batchSize);
+    }
+    this.rowStream = rowStream;
+    this.batchSize = batchSize;
+  }
+
+  public RowStream getRowStream() {
+    return rowStream;
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    return rowStream.getHeader();
+  }
+
+  @Override
+  public void close() throws PhysicalException {
+    rowStream.close();
+  }
+
+  @Override
+  public boolean hasNext() throws PhysicalException {
+    return rowStream.hasNext();
+  }
+
+  @Override
+  public Batch nextBatch() throws PhysicalException {
+    if (!hasNext()) {
+      throw new IllegalStateException("batch stream doesn't have more data!");
+    }
+    List<Row> rows = new ArrayList<>(batchSize);
+    while (rows.size() < batchSize && rowStream.hasNext()) {
+      rows.add(rowStream.next());
+    }
+    return Batch.fromRows(getHeader(), rows);
+  }
+
+  @Override
+  public void setContext(RequestContext context) {
+    rowStream.setContext(context);
+  }
+
+  @Override
+  public RequestContext getContext() {
+    return rowStream.getContext();
+  }
+}
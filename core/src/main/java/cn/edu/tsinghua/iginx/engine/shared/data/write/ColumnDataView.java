@@ -31,11 +31,7 @@ public final class ColumnDataView extends DataView {
     this.biases = new int[this.endPathIndex - this.startPathIndex];
     for (int i = this.startPathIndex; i < this.endPathIndex; i++) {
       Bitmap bitmap = data.getBitmaps().get(i);
-      for (int j = 0; j < this.startKeyIndex; j++) {
-        if (bitmap.get(j)) {
-          biases[i - this.startPathIndex]++;
-        }
-      }
+      biases[i - this.startPathIndex] = bitmap.count(0, this.startKeyIndex);
     }
   }
 
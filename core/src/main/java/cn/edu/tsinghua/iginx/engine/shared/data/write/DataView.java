@@ -82,8 +82,19 @@ public abstract class DataView {
     return data.isColumnData();
   }
 
+  /** 写入数据的路径有序，在视图范围内二分查找。只有标签不同的序列路径相同，返回其中的第一个 */
   public int getPathIndex(String path) {
-    return data.getPaths().contains(path) ? data.getPaths().indexOf(path) - startPathIndex : -1;
+    List<String> paths = data.getPaths();
+    int low = startPathIndex, high = endPathIndex;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (paths.get(mid).compareTo(path) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < endPathIndex && paths.get(low).equals(path) ? low - startPathIndex : -1;
   }
 
   public List<String> getPaths() {
@@ -104,15 +115,24 @@ public abstract class DataView {
     return data.getDataTypeList().get(startPathIndex + index);
   }
 
+  /** 写入数据的key有序，在视图范围内二分查找，返回第一个等于 timestamp 的下标 */
   public int getKeyIndex(long timestamp) {
-    return data.getKeys().contains(timestamp)
-        ? data.getKeys().indexOf(timestamp) - startKeyIndex
-        : -1;
+    long[] keys = data.getKeyArray();
+    int low = startKeyIndex, high = endKeyIndex;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid] < timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < endKeyIndex && keys[low] == timestamp ? low - startKeyIndex : -1;
   }
 
-  public Long getKey(int index) {
+  public long getKey(int index) {
     checkTimeIndexRange(index);
-    return data.getKeys().get(startKeyIndex + index);
+    return data.getKeyArray()[startKeyIndex + index];
   }
 
   public abstract Object getValue(int index1, int index2);
@@ -21,6 +21,7 @@ package cn.edu.tsinghua.iginx.engine.shared.data.write;
 
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Bitmap;
+import com.google.common.primitives.Longs;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +31,9 @@ public class RawData {
 
   private final List<Map<String, String>> tagsList;
 
-  private final List<Long> keys;
+  private final long[] keyArray; // 有序的key，切分分片与读取key时直接使用，避免拆箱
+
+  private final List<Long> keys; // keyArray 的视图
 
   private final Object[] valuesList;
 
@@ -48,9 +51,21 @@ public class RawData {
       List<DataType> dataTypeList,
       List<Bitmap> bitmaps,
       RawDataType type) {
+    this(paths, tagsList, Longs.toArray(keys), valuesList, dataTypeList, bitmaps, type);
+  }
+
+  public RawData(
+      List<String> paths,
+      List<Map<String, String>> tagsList,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Bitmap> bitmaps,
+      RawDataType type) {
     this.paths = paths;
     this.tagsList = tagsList;
-    this.keys = keys;
+    this.keyArray = keys;
+    this.keys = Longs.asList(keys);
     this.valuesList = valuesList;
     this.dataTypeList = dataTypeList;
     this.bitmaps = bitmaps;
@@ -69,6 +84,10 @@ public class RawData {
     return keys;
   }
 
+  public long[] getKeyArray() {
+    return keyArray;
+  }
+
   public Object[] getValuesList() {
     return valuesList;
   }
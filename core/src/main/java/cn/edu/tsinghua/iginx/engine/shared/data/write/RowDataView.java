@@ -31,11 +31,7 @@ public class RowDataView extends DataView {
     this.biases = new int[this.endKeyIndex - this.startKeyIndex];
     for (int i = this.startKeyIndex; i < this.endKeyIndex; i++) {
       Bitmap bitmap = data.getBitmaps().get(i);
-      for (int j = 0; j < this.startPathIndex; j++) {
-        if (bitmap.get(j)) {
-          biases[i - this.startKeyIndex]++;
-        }
-      }
+      biases[i - this.startKeyIndex] = bitmap.count(0, this.startPathIndex);
     }
   }
 
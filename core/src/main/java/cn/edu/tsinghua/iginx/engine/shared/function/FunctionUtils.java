@@ -194,7 +194,12 @@ public class FunctionUtils {
    */
   public static Pair<List<Field>, List<Integer>> getFieldAndIndices(
       Table table, FunctionParams params, SetMappingFunction function) {
-    List<Field> fields = table.getHeader().getFields();
+    return getFieldAndIndices(table.getHeader(), params, function);
+  }
+
+  public static Pair<List<Field>, List<Integer>> getFieldAndIndices(
+      Header header, FunctionParams params, SetMappingFunction function) {
+    List<Field> fields = header.getFields();
     List<String> pathParams = params.getPaths();
 
     if (pathParams == null || pathParams.size() != 1) {
@@ -20,6 +20,8 @@
 package cn.edu.tsinghua.iginx.engine.shared.function.system;
 
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
@@ -28,7 +30,7 @@ import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import java.util.List;
 
-public class Avg implements SetMappingFunction {
+public class Avg implements VectorizedSetMappingFunction {
 
   public static final String AVG = "avg";
 
@@ -105,4 +107,36 @@ public class Avg implements SetMappingFunction {
     }
     return new Row(new Header(targetFields), targetValues);
   }
+
+  @Override
+  public Row transform(Batch batch, FunctionParams params) throws Exception {
+    Pair<List<Field>, List<Integer>> pair =
+        FunctionUtils.getFieldAndIndices(batch.getHeader(), params, this);
+    List<Field> targetFields = pair.k;
+    List<Integer> indices = pair.v;
+
+    for (Field field : targetFields) {
+      if (!DataTypeUtils.isNumber(field.getType())) {
+        throw new IllegalArgumentException("only number can calculate average");
+      }
+    }
+
+    int rowCount = batch.getRowCount();
+    Object[] targetValues = new Object[targetFields.size()];
+    for (int i = 0; i < indices.size(); i++) {
+      ColumnVector column = batch.getColumn(indices.get(i));
+      long count = 0;
+      double sum = 0.0D;
+      for (int j = 0; j < rowCount; j++) {
+        if (!column.isNull(j)) {
+          sum += column.getAsDouble(j);
+          count++;
+        }
+      }
+      if (count != 0) {
+        targetValues[i] = sum / count;
+      }
+    }
+    return new Row(new Header(targetFields), targetValues);
+  }
 }
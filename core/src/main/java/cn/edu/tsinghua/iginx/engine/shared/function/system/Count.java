@@ -20,6 +20,8 @@
 package cn.edu.tsinghua.iginx.engine.shared.function.system;
 
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
@@ -29,7 +31,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class Count implements SetMappingFunction {
+public class Count implements VectorizedSetMappingFunction {
 
   @SuppressWarnings("unused")
   private static final Logger LOGGER = LoggerFactory.getLogger(Count.class);
@@ -81,4 +83,20 @@ public class Count implements SetMappingFunction {
     }
     return new Row(new Header(targetFields), targetValues);
   }
+
+  @Override
+  public Row transform(Batch batch, FunctionParams params) throws Exception {
+    Pair<List<Field>, List<Integer>> pair =
+        FunctionUtils.getFieldAndIndices(batch.getHeader(), params, this);
+    List<Field> targetFields = pair.k;
+    List<Integer> indices = pair.v;
+
+    int rowCount = batch.getRowCount();
+    Object[] targetValues = new Object[targetFields.size()];
+    for (int i = 0; i < indices.size(); i++) {
+      ColumnVector column = batch.getColumn(indices.get(i));
+      targetValues[i] = (long) (rowCount - column.nullCount(rowCount));
+    }
+    return new Row(new Header(targetFields), targetValues);
+  }
 }
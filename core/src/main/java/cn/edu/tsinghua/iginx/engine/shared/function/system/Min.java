@@ -20,15 +20,17 @@
 package cn.edu.tsinghua.iginx.engine.shared.function.system;
 
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.function.*;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.BatchAggregateUtils;
 import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import java.util.List;
 
-public class Min implements SetMappingFunction {
+public class Min implements VectorizedSetMappingFunction {
 
   public static final String MIN = "min";
 
@@ -77,4 +79,20 @@ public class Min implements SetMappingFunction {
     }
     return new Row(new Header(targetFields), targetValues);
   }
+
+  @Override
+  public Row transform(Batch batch, FunctionParams params) throws Exception {
+    Pair<List<Field>, List<Integer>> pair =
+        FunctionUtils.getFieldAndIndices(batch.getHeader(), params, this);
+    List<Field> targetFields = pair.k;
+    List<Integer> indices = pair.v;
+
+    Object[] targetValues = new Object[targetFields.size()];
+    for (int i = 0; i < indices.size(); i++) {
+      targetValues[i] =
+          BatchAggregateUtils.extreme(
+              batch.getColumn(indices.get(i)), batch.getRowCount(), false);
+    }
+    return new Row(new Header(targetFields), targetValues);
+  }
 }
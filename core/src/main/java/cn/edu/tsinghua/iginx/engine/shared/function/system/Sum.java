@@ -20,6 +20,8 @@
 package cn.edu.tsinghua.iginx.engine.shared.function.system;
 
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
@@ -29,7 +31,7 @@ import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import java.util.List;
 
-public class Sum implements SetMappingFunction {
+public class Sum implements VectorizedSetMappingFunction {
 
   public static final String SUM = "sum";
 
@@ -113,4 +115,68 @@ public class Sum implements SetMappingFunction {
     }
     return new Row(new Header(targetFields), targetValues);
   }
+
+  @Override
+  public Row transform(Batch batch, FunctionParams params) throws Exception {
+    Pair<List<Field>, List<Integer>> pair =
+        FunctionUtils.getFieldAndIndices(batch.getHeader(), params, this);
+    List<Field> targetFields = pair.k;
+    List<Integer> indices = pair.v;
+
+    for (Field field : targetFields) {
+      if (!DataTypeUtils.isNumber(field.getType())) {
+        throw new IllegalArgumentException("only number can calculate sum");
+      }
+    }
+
+    int rowCount = batch.getRowCount();
+    Object[] targetValues = new Object[targetFields.size()];
+    for (int i = 0; i < indices.size(); i++) {
+      ColumnVector column = batch.getColumn(indices.get(i));
+      long count = 0;
+      long longSum = 0L;
+      double doubleSum = 0.0D;
+      switch (column.getType()) {
+        case INTEGER:
+          for (int j = 0; j < rowCount; j++) {
+            if (!column.isNull(j)) {
+              longSum += column.getInt(j);
+              count++;
+            }
+          }
+          break;
+        case LONG:
+          for (int j = 0; j < rowCount; j++) {
+            if (!column.isNull(j)) {
+              longSum += column.getLong(j);
+              count++;
+            }
+          }
+          break;
+        case FLOAT:
+          for (int j = 0; j < rowCount; j++) {
+            if (!column.isNull(j)) {
+              doubleSum += column.getFloat(j);
+              count++;
+            }
+          }
+          break;
+        case DOUBLE:
+          for (int j = 0; j < rowCount; j++) {
+            if (!column.isNull(j)) {
+              doubleSum += column.getDouble(j);
+              count++;
+            }
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unexpected field type: " + column.getType().toString());
+      }
+      if (count != 0) {
+        targetValues[i] =
+            targetFields.get(i).getType() == DataType.LONG ? (Object) longSum : (Object) doubleSum;
+      }
+    }
+    return new Row(new Header(targetFields), targetValues);
+  }
 }
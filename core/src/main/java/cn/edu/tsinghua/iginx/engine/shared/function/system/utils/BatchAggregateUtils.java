@@ -0,0 +1,92 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.function.system.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+
+/** 系统聚合函数在列式批数据上的公共计算逻辑 */
+public class BatchAggregateUtils {
+
+  private BatchAggregateUtils() {}
+
+  /**
+   * 计算一列中前size行的最大值或最小值，空值被忽略
+   *
+   * @param column 输入列
+   * @param size 行数
+   * @param max true表示计算最大值，false表示计算最小值
+   * @return 装箱后的结果，全为空值时返回null
+   */
+  public static Object extreme(ColumnVector column, int size, boolean max) {
+    int sign = max ? 1 : -1;
+    int target = -1;
+    switch (column.getType()) {
+      case INTEGER:
+        for (int i = 0; i < size; i++) {
+          if (!column.isNull(i)
+              && (target == -1
+                  || sign * Integer.compare(column.getInt(i), column.getInt(target)) > 0)) {
+            target = i;
+          }
+        }
+        break;
+      case LONG:
+        for (int i = 0; i < size; i++) {
+          if (!column.isNull(i)
+              && (target == -1
+                  || sign * Long.compare(column.getLong(i), column.getLong(target)) > 0)) {
+            target = i;
+          }
+        }
+        break;
+      case FLOAT:
+        for (int i = 0; i < size; i++) {
+          if (!column.isNull(i)
+              && (target == -1
+                  || sign * Float.compare(column.getFloat(i), column.getFloat(target)) > 0)) {
+            target = i;
+          }
+        }
+        break;
+      case DOUBLE:
+        for (int i = 0; i < size; i++) {
+          if (!column.isNull(i)
+              && (target == -1
+                  || sign * Double.compare(column.getDouble(i), column.getDouble(target)) > 0)) {
+            target = i;
+          }
+        }
+        break;
+      default:
+        for (int i = 0; i < size; i++) {
+          if (!column.isNull(i)
+              && (target == -1
+                  || sign
+                          * ValueUtils.compare(
+                              column.getObject(i), column.getObject(target), column.getType())
+                      > 0)) {
+            target = i;
+          }
+        }
+        break;
+    }
+    return target == -1 ? null : column.getObject(target);
+  }
+}
@@ -32,6 +32,8 @@ import cn.edu.tsinghua.iginx.metadata.cache.DefaultMetaCache;
 import cn.edu.tsinghua.iginx.metadata.cache.IMetaCache;
 import cn.edu.tsinghua.iginx.metadata.entity.*;
 import cn.edu.tsinghua.iginx.metadata.exception.MetaStorageException;
+import cn.edu.tsinghua.iginx.metadata.hook.FragmentChangeHook;
+import cn.edu.tsinghua.iginx.metadata.hook.SchemaMappingChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
 import cn.edu.tsinghua.iginx.metadata.storage.IMetaStorage;
@@ -65,6 +67,8 @@ public class DefaultMetaManager implements IMetaManager {
   private final IMetaStorage storage;
   private final List<StorageEngineChangeHook> storageEngineChangeHooks;
   private final List<StorageUnitHook> storageUnitHooks;
+  private final List<FragmentChangeHook> fragmentChangeHooks;
+  private final List<SchemaMappingChangeHook> schemaMappingChangeHooks;
   private long id;
 
   // 当前活跃的最大的结束时间
@@ -106,6 +110,8 @@ public class DefaultMetaManager implements IMetaManager {
 
     storageEngineChangeHooks = Collections.synchronizedList(new ArrayList<>());
     storageUnitHooks = Collections.synchronizedList(new ArrayList<>());
+    fragmentChangeHooks = Collections.synchronizedList(new ArrayList<>());
+    schemaMappingChangeHooks = Collections.synchronizedList(new ArrayList<>());
 
     try {
       initIginx();
@@ -328,6 +334,7 @@ public class DefaultMetaManager implements IMetaManager {
           } else {
             cache.updateFragment(fragment);
           }
+          notifyFragmentChange(create, fragment);
         });
   }
 
@@ -339,6 +346,7 @@ public class DefaultMetaManager implements IMetaManager {
           } else {
             cache.addOrUpdateSchemaMapping(schema, schemaMapping);
           }
+          notifySchemaMappingChange(schema, schemaMapping);
         });
     for (Map.Entry<String, Map<String, Integer>> schemaEntry :
         storage.loadSchemaMapping().entrySet()) {
@@ -751,6 +759,7 @@ public class DefaultMetaManager implements IMetaManager {
         fragmentMeta.setUpdatedBy(id);
         cache.updateFragment(fragmentMeta);
         storage.updateFragment(fragmentMeta);
+        notifyFragmentChange(false, fragmentMeta);
       }
 
       for (FragmentMeta fragmentMeta : fragments) {
@@ -764,6 +773,7 @@ public class DefaultMetaManager implements IMetaManager {
         }
         cache.addFragment(fragmentMeta);
         storage.addFragment(fragmentMeta);
+        notifyFragmentChange(true, fragmentMeta);
       }
       return true;
     } catch (MetaStorageException e) {
@@ -816,6 +826,7 @@ public class DefaultMetaManager implements IMetaManager {
       cache.addFragment(fragment);
       fragment.setUpdatedBy(id);
       storage.updateFragment(fragment);
+      notifyFragmentChange(false, fragment);
 
       // 更新新分片
       toAddFragment.setCreatedBy(id);
@@ -827,6 +838,7 @@ public class DefaultMetaManager implements IMetaManager {
       }
       cache.addFragment(toAddFragment);
       storage.addFragment(toAddFragment);
+      notifyFragmentChange(true, toAddFragment);
     } catch (MetaStorageException e) {
       LOGGER.error("create fragment error: ", e);
     } finally {
@@ -847,6 +859,7 @@ public class DefaultMetaManager implements IMetaManager {
       storage.lockFragment();
       cache.deleteFragmentByColumnsInterval(fragmentMeta.getColumnsInterval(), fragmentMeta);
       storage.removeFragment(fragmentMeta);
+      notifyFragmentChange(false, fragmentMeta);
     } catch (MetaStorageException e) {
       LOGGER.error("remove fragment error: ", e);
     } finally {
@@ -864,6 +877,7 @@ public class DefaultMetaManager implements IMetaManager {
       storage.lockFragment();
       cache.addFragment(fragmentMeta);
       storage.addFragment(fragmentMeta);
+      notifyFragmentChange(true, fragmentMeta);
     } catch (MetaStorageException e) {
       LOGGER.error("add fragment error: ", e);
     } finally {
@@ -887,6 +901,7 @@ public class DefaultMetaManager implements IMetaManager {
       fragmentMeta.getColumnsInterval().setEndColumn(endColumn);
       cache.addFragment(fragmentMeta);
       storage.updateFragmentByColumnsInterval(sourceColumnsInterval, fragmentMeta);
+      notifyFragmentChange(false, fragmentMeta);
     } catch (MetaStorageException e) {
       LOGGER.error("end fragment by time series interval error: ", e);
     } finally {
@@ -905,6 +920,7 @@ public class DefaultMetaManager implements IMetaManager {
       storage.lockFragment();
       cache.updateFragmentByColumnsInterval(columnsInterval, fragmentMeta);
       storage.updateFragmentByColumnsInterval(columnsInterval, fragmentMeta);
+      notifyFragmentChange(false, fragmentMeta);
     } catch (Exception e) {
       LOGGER.error("update fragment error: ", e);
     } finally {
@@ -1169,6 +1185,7 @@ public class DefaultMetaManager implements IMetaManager {
       } else {
         cache.addOrUpdateSchemaMapping(schema, schemaMapping);
       }
+      notifySchemaMappingChange(schema, schemaMapping);
     } catch (MetaStorageException e) {
       LOGGER.error("update schema mapping error: ", e);
     }
@@ -1192,6 +1209,7 @@ public class DefaultMetaManager implements IMetaManager {
       } else {
         cache.addOrUpdateSchemaMappingItem(schema, key, value);
       }
+      notifySchemaMappingChange(schema, schemaMapping);
     } catch (MetaStorageException e) {
       LOGGER.error("update schema mapping error: ", e);
     }
@@ -1400,6 +1418,28 @@ public class DefaultMetaManager implements IMetaManager {
     this.storageUnitHooks.add(hook);
   }
 
+  @Override
+  public void registerFragmentChangeHook(FragmentChangeHook hook) {
+    this.fragmentChangeHooks.add(hook);
+  }
+
+  private void notifyFragmentChange(boolean create, FragmentMeta fragment) {
+    for (FragmentChangeHook hook : fragmentChangeHooks) {
+      hook.onChange(create, fragment);
+    }
+  }
+
+  @Override
+  public void registerSchemaMappingChangeHook(SchemaMappingChangeHook hook) {
+    this.schemaMappingChangeHooks.add(hook);
+  }
+
+  private void notifySchemaMappingChange(String schema, Map<String, Integer> schemaMapping) {
+    for (SchemaMappingChangeHook hook : schemaMappingChangeHooks) {
+      hook.onChange(schema, schemaMapping);
+    }
+  }
+
   @Override
   public boolean election() {
     return storage.election();
@@ -21,6 +21,8 @@ package cn.edu.tsinghua.iginx.metadata;
 
 import cn.edu.tsinghua.iginx.metadata.entity.*;
 import cn.edu.tsinghua.iginx.metadata.exception.MetaStorageException;
+import cn.edu.tsinghua.iginx.metadata.hook.FragmentChangeHook;
+import cn.edu.tsinghua.iginx.metadata.hook.SchemaMappingChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
 import cn.edu.tsinghua.iginx.policy.simple.ColumnCalDO;
@@ -190,6 +192,12 @@ public interface IMetaManager {
 
   void registerStorageUnitHook(StorageUnitHook hook);
 
+  /** 注册分片变化的回调，本地与其他节点对分片的创建、更新和删除都会触发 */
+  void registerFragmentChangeHook(FragmentChangeHook hook);
+
+  /** 注册 schema mapping 变化的回调 */
+  void registerSchemaMappingChangeHook(SchemaMappingChangeHook hook);
+
   boolean election();
 
   void saveColumnsData(InsertStatement statement);
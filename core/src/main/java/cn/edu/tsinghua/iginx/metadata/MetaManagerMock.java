@@ -21,6 +21,8 @@ package cn.edu.tsinghua.iginx.metadata;
 
 import cn.edu.tsinghua.iginx.metadata.entity.*;
 import cn.edu.tsinghua.iginx.metadata.exception.MetaStorageException;
+import cn.edu.tsinghua.iginx.metadata.hook.FragmentChangeHook;
+import cn.edu.tsinghua.iginx.metadata.hook.SchemaMappingChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
 import cn.edu.tsinghua.iginx.policy.simple.ColumnCalDO;
@@ -282,6 +284,12 @@ public class MetaManagerMock implements IMetaManager {
   @Override
   public void registerStorageUnitHook(StorageUnitHook hook) {}
 
+  @Override
+  public void registerFragmentChangeHook(FragmentChangeHook hook) {}
+
+  @Override
+  public void registerSchemaMappingChangeHook(SchemaMappingChangeHook hook) {}
+
   @Override
   public boolean election() {
     return false;
@@ -22,6 +22,8 @@ package cn.edu.tsinghua.iginx.metadata;
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.metadata.entity.*;
 import cn.edu.tsinghua.iginx.metadata.exception.MetaStorageException;
+import cn.edu.tsinghua.iginx.metadata.hook.FragmentChangeHook;
+import cn.edu.tsinghua.iginx.metadata.hook.SchemaMappingChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
 import cn.edu.tsinghua.iginx.policy.simple.ColumnCalDO;
@@ -285,6 +287,16 @@ public class MetaManagerWrapper implements IMetaManager {
     metaManager.registerStorageUnitHook(hook);
   }
 
+  @Override
+  public void registerFragmentChangeHook(FragmentChangeHook hook) {
+    metaManager.registerFragmentChangeHook(hook);
+  }
+
+  @Override
+  public void registerSchemaMappingChangeHook(SchemaMappingChangeHook hook) {
+    metaManager.registerSchemaMappingChangeHook(hook);
+  }
+
   @Override
   public boolean election() {
     return metaManager.election();
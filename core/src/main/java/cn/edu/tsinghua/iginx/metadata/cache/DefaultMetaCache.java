@@ -29,10 +29,11 @@ import cn.edu.tsinghua.iginx.policy.simple.ColumnCalDO;
 import cn.edu.tsinghua.iginx.sql.statement.InsertStatement;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.transform.pojo.TriggerDescriptor;
-import cn.edu.tsinghua.iginx.utils.Pair;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -46,12 +47,11 @@ public class DefaultMetaCache implements IMetaCache {
 
   private static DefaultMetaCache INSTANCE = null;
 
-  // 分片列表的缓存
-  private final List<Pair<ColumnsInterval, List<FragmentMeta>>> sortedFragmentMetaLists;
+  // 分片的路由索引，写入时复制，读取无需加锁
+  private volatile FragmentIndex fragmentIndex;
 
-  private final Map<ColumnsInterval, List<FragmentMeta>> fragmentMetaListMap;
-
-  private final List<FragmentMeta> dummyFragments;
+  // 已有数据对应的分片，写入时复制
+  private volatile List<FragmentMeta> dummyFragments;
 
   private int fragmentCacheSize;
 
@@ -61,7 +61,8 @@ public class DefaultMetaCache implements IMetaCache {
 
   private long minKey = 0L;
 
-  private final ReadWriteLock fragmentLock;
+  // 只用于串行化分片的修改
+  private final Lock fragmentLock;
 
   // 数据单元的缓存
   private final Map<String, StorageUnitMeta> storageUnitMetaMap;
@@ -108,10 +109,9 @@ public class DefaultMetaCache implements IMetaCache {
     }
 
     // 分片相关
-    sortedFragmentMetaLists = new ArrayList<>();
-    fragmentMetaListMap = new HashMap<>();
-    dummyFragments = new ArrayList<>();
-    fragmentLock = new ReentrantReadWriteLock();
+    fragmentIndex = FragmentIndex.EMPTY;
+    dummyFragments = Collections.emptyList();
+    fragmentLock = new ReentrantLock();
     // 数据单元相关
     storageUnitMetaMap = new HashMap<>();
     dummyStorageUnitMetaMap = new HashMap<>();
@@ -153,39 +153,25 @@ public class DefaultMetaCache implements IMetaCache {
     return minKey;
   }
 
-  private static List<Pair<ColumnsInterval, List<FragmentMeta>>> searchFragmentSeriesList(
-      List<Pair<ColumnsInterval, List<FragmentMeta>>> fragmentSeriesList,
-      ColumnsInterval columnsInterval) {
-    List<Pair<ColumnsInterval, List<FragmentMeta>>> resultList = new ArrayList<>();
-    if (fragmentSeriesList.isEmpty()) {
-      return resultList;
-    }
-    int index = 0;
-    while (index < fragmentSeriesList.size()
-        && !fragmentSeriesList.get(index).k.isCompletelyAfter(columnsInterval)) {
-      if (fragmentSeriesList.get(index).k.isIntersect(columnsInterval)) {
-        resultList.add(fragmentSeriesList.get(index));
-      }
-      index++;
+  private static Map<ColumnsInterval, List<FragmentMeta>> toFragmentMap(
+      List<FragmentIndex.FragmentSeries> seriesList) {
+    Map<ColumnsInterval, List<FragmentMeta>> resultMap = new HashMap<>();
+    for (FragmentIndex.FragmentSeries series : seriesList) {
+      resultMap.put(series.getColumnsInterval(), new ArrayList<>(series.getFragments()));
     }
-    return resultList;
+    return resultMap;
   }
 
-  private static List<Pair<ColumnsInterval, List<FragmentMeta>>> searchFragmentSeriesList(
-      List<Pair<ColumnsInterval, List<FragmentMeta>>> fragmentSeriesList, String columnName) {
-    List<Pair<ColumnsInterval, List<FragmentMeta>>> resultList = new ArrayList<>();
-    if (fragmentSeriesList.isEmpty()) {
-      return resultList;
-    }
-    int index = 0;
-    while (index < fragmentSeriesList.size()
-        && !fragmentSeriesList.get(index).k.isAfter(columnName)) {
-      if (fragmentSeriesList.get(index).k.isContain(columnName)) {
-        resultList.add(fragmentSeriesList.get(index));
+  private static Map<ColumnsInterval, FragmentMeta> toLatestFragmentMap(
+      List<FragmentIndex.FragmentSeries> seriesList) {
+    Map<ColumnsInterval, FragmentMeta> latestFragmentMap = new HashMap<>();
+    for (FragmentIndex.FragmentSeries series : seriesList) {
+      FragmentMeta latest = series.getLatest();
+      if (latest.getKeyInterval().getEndKey() == Long.MAX_VALUE) {
+        latestFragmentMap.put(latest.getColumnsInterval(), latest);
       }
-      index++;
     }
-    return resultList;
+    return latestFragmentMap;
   }
 
   private static List<FragmentMeta> searchFragmentList(
@@ -234,234 +220,130 @@ public class DefaultMetaCache implements IMetaCache {
     } finally {
       storageUnitLock.readLock().unlock();
     }
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
-      sortedFragmentMetaLists.addAll(
-          fragmentListMap.entrySet().stream()
-              .sorted(Map.Entry.comparingByKey())
-              .map(e -> new Pair<>(e.getKey(), e.getValue()))
-              .collect(Collectors.toList()));
-      fragmentListMap.forEach(fragmentMetaListMap::put);
+      FragmentIndex index = FragmentIndex.build(fragmentListMap);
       if (enableFragmentCacheControl) {
         // 统计分片总数
-        fragmentCacheSize = sortedFragmentMetaLists.stream().mapToInt(e -> e.v.size()).sum();
+        fragmentCacheSize = index.size();
         while (fragmentCacheSize > fragmentCacheMaxSize) {
-          kickOffHistoryFragment();
+          index = kickOffHistoryFragment(index);
         }
       }
+      fragmentIndex = index;
     } finally {
-      fragmentLock.writeLock().unlock();
+      fragmentLock.unlock();
     }
   }
 
-  private void kickOffHistoryFragment() {
+  private FragmentIndex kickOffHistoryFragment(FragmentIndex index) {
     long nextMinKey = 0L;
-    for (List<FragmentMeta> fragmentList : fragmentMetaListMap.values()) {
-      FragmentMeta fragment = fragmentList.get(0);
+    for (FragmentIndex.FragmentSeries series : index.getSeriesList()) {
+      FragmentMeta fragment = series.getFragments().get(0);
       if (fragment.getKeyInterval().getStartKey() == minKey) {
-        fragmentList.remove(0);
         nextMinKey = fragment.getKeyInterval().getEndKey();
-        fragmentCacheSize--;
       }
     }
     if (nextMinKey == 0L || nextMinKey == Long.MAX_VALUE) {
       LOGGER.error("unexpected next min key {}!", nextMinKey);
       System.exit(-1);
     }
+    FragmentIndex newIndex = index.evict(minKey);
+    fragmentCacheSize -= index.size() - newIndex.size();
     minKey = nextMinKey;
+    return newIndex;
   }
 
   @Override
   public void addFragment(FragmentMeta fragmentMeta) {
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
-      // 更新 fragmentMetaListMap
-      List<FragmentMeta> fragmentMetaList =
-          fragmentMetaListMap.computeIfAbsent(
-              fragmentMeta.getColumnsInterval(), v -> new ArrayList<>());
-      if (fragmentMetaList.size() == 0) {
-        // 更新 sortedFragmentMetaLists
-        updateSortedFragmentsList(fragmentMeta.getColumnsInterval(), fragmentMetaList);
-      }
-      fragmentMetaList.add(fragmentMeta);
+      FragmentIndex index = fragmentIndex.add(fragmentMeta);
       if (enableFragmentCacheControl) {
         if (fragmentMeta.getKeyInterval().getStartKey() < minKey) {
           minKey = fragmentMeta.getKeyInterval().getStartKey();
         }
         fragmentCacheSize++;
         while (fragmentCacheSize > fragmentCacheMaxSize) {
-          kickOffHistoryFragment();
+          index = kickOffHistoryFragment(index);
         }
       }
+      fragmentIndex = index;
     } finally {
-      fragmentLock.writeLock().unlock();
-    }
-  }
-
-  private void updateSortedFragmentsList(
-      ColumnsInterval columnsInterval, List<FragmentMeta> fragmentMetas) {
-    Pair<ColumnsInterval, List<FragmentMeta>> pair = new Pair<>(columnsInterval, fragmentMetas);
-    if (sortedFragmentMetaLists.size() == 0) {
-      sortedFragmentMetaLists.add(pair);
-      return;
-    }
-    int left = 0, right = sortedFragmentMetaLists.size() - 1;
-    while (left <= right) {
-      int mid = (left + right) / 2;
-      ColumnsInterval midColumnsInterval = sortedFragmentMetaLists.get(mid).k;
-      if (columnsInterval.compareTo(midColumnsInterval) < 0) {
-        right = mid - 1;
-      } else if (columnsInterval.compareTo(midColumnsInterval) > 0) {
-        left = mid + 1;
-      } else {
-        throw new RuntimeException("unexpected fragment");
-      }
-    }
-    if (left == sortedFragmentMetaLists.size()) {
-      sortedFragmentMetaLists.add(pair);
-    } else {
-      sortedFragmentMetaLists.add(left, pair);
+      fragmentLock.unlock();
     }
   }
 
   @Override
   public void updateFragment(FragmentMeta fragmentMeta) {
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
-      // 更新 fragmentMetaListMap
-      List<FragmentMeta> fragmentMetaList =
-          fragmentMetaListMap.get(fragmentMeta.getColumnsInterval());
-      fragmentMetaList.set(fragmentMetaList.size() - 1, fragmentMeta);
+      fragmentIndex = fragmentIndex.replaceLast(fragmentMeta.getColumnsInterval(), fragmentMeta);
     } finally {
-      fragmentLock.writeLock().unlock();
+      fragmentLock.unlock();
     }
   }
 
   @Override
   public void updateFragmentByColumnsInterval(
       ColumnsInterval columnsInterval, FragmentMeta fragmentMeta) {
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
-      // 更新 fragmentMetaListMap
-      List<FragmentMeta> fragmentMetaList = fragmentMetaListMap.get(columnsInterval);
-      fragmentMetaList.set(fragmentMetaList.size() - 1, fragmentMeta);
-      fragmentMetaListMap.put(fragmentMeta.getColumnsInterval(), fragmentMetaList);
-      fragmentMetaListMap.remove(columnsInterval);
-
-      for (Pair<ColumnsInterval, List<FragmentMeta>> columnsIntervalListPair :
-          sortedFragmentMetaLists) {
-        if (columnsIntervalListPair.getK().equals(columnsInterval)) {
-          columnsIntervalListPair.k = fragmentMeta.getColumnsInterval();
-        }
-      }
+      fragmentIndex = fragmentIndex.replaceLast(columnsInterval, fragmentMeta);
     } finally {
-      fragmentLock.writeLock().unlock();
+      fragmentLock.unlock();
     }
   }
 
   @Override
   public void deleteFragmentByColumnsInterval(
       ColumnsInterval columnsInterval, FragmentMeta fragmentMeta) {
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
-      // 更新 fragmentMetaListMap
-      List<FragmentMeta> fragmentMetaList = fragmentMetaListMap.get(columnsInterval);
-      fragmentMetaList.remove(fragmentMeta);
-      if (fragmentMetaList.size() == 0) {
-        fragmentMetaListMap.remove(columnsInterval);
-      }
-      for (int index = 0; index < sortedFragmentMetaLists.size(); index++) {
-        if (sortedFragmentMetaLists.get(index).getK().equals(columnsInterval)) {
-          sortedFragmentMetaLists.get(index).getV().remove(fragmentMeta);
-          if (sortedFragmentMetaLists.get(index).getV().isEmpty()) {
-            sortedFragmentMetaLists.remove(index);
-          }
-          break;
-        }
-      }
+      fragmentIndex = fragmentIndex.remove(columnsInterval, fragmentMeta);
     } finally {
-      fragmentLock.writeLock().unlock();
+      fragmentLock.unlock();
     }
   }
 
   @Override
   public Map<ColumnsInterval, List<FragmentMeta>> getFragmentMapByColumnsInterval(
       ColumnsInterval columnsInterval) {
-    Map<ColumnsInterval, List<FragmentMeta>> resultMap = new HashMap<>();
-    fragmentLock.readLock().lock();
-    try {
-      searchFragmentSeriesList(sortedFragmentMetaLists, columnsInterval)
-          .forEach(e -> resultMap.put(e.k, e.v));
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return resultMap;
+    return toFragmentMap(fragmentIndex.search(columnsInterval));
   }
 
   @Override
   public List<FragmentMeta> getDummyFragmentsByColumnsInterval(ColumnsInterval columnsInterval) {
     List<FragmentMeta> results = new ArrayList<>();
-    fragmentLock.readLock().lock();
-    try {
-      for (FragmentMeta fragmentMeta : dummyFragments) {
-        if (fragmentMeta.isValid()
-            && fragmentMeta.getColumnsInterval().isIntersect(columnsInterval)) {
-          results.add(fragmentMeta);
-        }
+    for (FragmentMeta fragmentMeta : dummyFragments) {
+      if (fragmentMeta.isValid()
+          && fragmentMeta.getColumnsInterval().isIntersect(columnsInterval)) {
+        results.add(fragmentMeta);
       }
-    } finally {
-      fragmentLock.readLock().unlock();
     }
     return results;
   }
 
   @Override
   public Map<ColumnsInterval, FragmentMeta> getLatestFragmentMap() {
-    Map<ColumnsInterval, FragmentMeta> latestFragmentMap = new HashMap<>();
-    fragmentLock.readLock().lock();
-    try {
-      sortedFragmentMetaLists.stream()
-          .map(e -> e.v.get(e.v.size() - 1))
-          .filter(e -> e.getKeyInterval().getEndKey() == Long.MAX_VALUE)
-          .forEach(e -> latestFragmentMap.put(e.getColumnsInterval(), e));
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return latestFragmentMap;
+    return toLatestFragmentMap(fragmentIndex.getSeriesList());
   }
 
   @Override
   public Map<ColumnsInterval, FragmentMeta> getLatestFragmentMapByColumnsInterval(
       ColumnsInterval columnsInterval) {
-    Map<ColumnsInterval, FragmentMeta> latestFragmentMap = new HashMap<>();
-    fragmentLock.readLock().lock();
-    try {
-      searchFragmentSeriesList(sortedFragmentMetaLists, columnsInterval).stream()
-          .map(e -> e.v.get(e.v.size() - 1))
-          .filter(e -> e.getKeyInterval().getEndKey() == Long.MAX_VALUE)
-          .forEach(e -> latestFragmentMap.put(e.getColumnsInterval(), e));
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return latestFragmentMap;
+    return toLatestFragmentMap(fragmentIndex.search(columnsInterval));
   }
 
   @Override
   public Map<ColumnsInterval, List<FragmentMeta>> getFragmentMapByColumnsIntervalAndKeyInterval(
       ColumnsInterval columnsInterval, KeyInterval keyInterval) {
     Map<ColumnsInterval, List<FragmentMeta>> resultMap = new HashMap<>();
-    fragmentLock.readLock().lock();
-    try {
-      searchFragmentSeriesList(sortedFragmentMetaLists, columnsInterval)
-          .forEach(
-              e -> {
-                List<FragmentMeta> fragmentMetaList = searchFragmentList(e.v, keyInterval);
-                if (!fragmentMetaList.isEmpty()) {
-                  resultMap.put(e.k, fragmentMetaList);
-                }
-              });
-    } finally {
-      fragmentLock.readLock().unlock();
+    for (FragmentIndex.FragmentSeries series : fragmentIndex.search(columnsInterval)) {
+      List<FragmentMeta> fragmentMetaList = series.search(keyInterval);
+      if (!fragmentMetaList.isEmpty()) {
+        resultMap.put(series.getColumnsInterval(), fragmentMetaList);
+      }
     }
     return resultMap;
   }
@@ -470,120 +352,86 @@ public class DefaultMetaCache implements IMetaCache {
   public List<FragmentMeta> getDummyFragmentsByColumnsIntervalAndKeyInterval(
       ColumnsInterval columnsInterval, KeyInterval keyInterval) {
     List<FragmentMeta> results = new ArrayList<>();
-    fragmentLock.readLock().lock();
-    try {
-      for (FragmentMeta fragmentMeta : dummyFragments) {
-        if (fragmentMeta.isValid()
-            && fragmentMeta.getColumnsInterval().isIntersect(columnsInterval)
-            && fragmentMeta.getKeyInterval().isIntersect(keyInterval)) {
-          results.add(fragmentMeta);
-        }
+    for (FragmentMeta fragmentMeta : dummyFragments) {
+      if (fragmentMeta.isValid()
+          && fragmentMeta.getColumnsInterval().isIntersect(columnsInterval)
+          && fragmentMeta.getKeyInterval().isIntersect(keyInterval)) {
+        results.add(fragmentMeta);
       }
-    } finally {
-      fragmentLock.readLock().unlock();
     }
     return results;
   }
 
   @Override
   public List<FragmentMeta> getFragmentListByColumnName(String columnName) {
-    List<FragmentMeta> resultList;
-    fragmentLock.readLock().lock();
-    try {
-      resultList =
-          searchFragmentSeriesList(sortedFragmentMetaLists, columnName).stream()
-              .map(e -> e.v)
-              .flatMap(List::stream)
-              .sorted(
-                  (o1, o2) -> {
-                    if (o1.getColumnsInterval().getStartColumn() == null
-                        && o2.getColumnsInterval().getStartColumn() == null) return 0;
-                    else if (o1.getColumnsInterval().getStartColumn() == null) return -1;
-                    else if (o2.getColumnsInterval().getStartColumn() == null) return 1;
-                    return o1.getColumnsInterval()
-                        .getStartColumn()
-                        .compareTo(o2.getColumnsInterval().getStartColumn());
-                  })
-              .collect(Collectors.toList());
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return resultList;
+    return fragmentIndex.search(columnName).stream()
+        .map(FragmentIndex.FragmentSeries::getFragments)
+        .flatMap(List::stream)
+        .sorted(
+            (o1, o2) -> {
+              if (o1.getColumnsInterval().getStartColumn() == null
+                  && o2.getColumnsInterval().getStartColumn() == null) return 0;
+              else if (o1.getColumnsInterval().getStartColumn() == null) return -1;
+              else if (o2.getColumnsInterval().getStartColumn() == null) return 1;
+              return o1.getColumnsInterval()
+                  .getStartColumn()
+                  .compareTo(o2.getColumnsInterval().getStartColumn());
+            })
+        .collect(Collectors.toList());
   }
 
   @Override
   public FragmentMeta getLatestFragmentByColumnName(String columnName) {
-    FragmentMeta result;
-    fragmentLock.readLock().lock();
-    try {
-      result =
-          searchFragmentSeriesList(sortedFragmentMetaLists, columnName).stream()
-              .map(e -> e.v)
-              .flatMap(List::stream)
-              .filter(e -> e.getKeyInterval().getEndKey() == Long.MAX_VALUE)
-              .findFirst()
-              .orElse(null);
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return result;
+    return fragmentIndex.search(columnName).stream()
+        .map(FragmentIndex.FragmentSeries::getFragments)
+        .flatMap(List::stream)
+        .filter(e -> e.getKeyInterval().getEndKey() == Long.MAX_VALUE)
+        .findFirst()
+        .orElse(null);
   }
 
   @Override
   public List<FragmentMeta> getFragmentMapByExactColumnsInterval(ColumnsInterval columnsInterval) {
-    List<FragmentMeta> res = fragmentMetaListMap.getOrDefault(columnsInterval, new ArrayList<>());
+    FragmentIndex index = fragmentIndex;
+    FragmentIndex.FragmentSeries series = index.getSeries(columnsInterval);
+    if (series != null) {
+      return new ArrayList<>(series.getFragments());
+    }
     // 对象不匹配的情况需要手动匹配（?）
-    if (res.size() == 0) {
-      for (Map.Entry<ColumnsInterval, List<FragmentMeta>> fragmentMetaListEntry :
-          fragmentMetaListMap.entrySet()) {
-        if (fragmentMetaListEntry.getKey().toString().equals(columnsInterval.toString())) {
-          return fragmentMetaListEntry.getValue();
-        }
+    for (FragmentIndex.FragmentSeries s : index.getSeriesList()) {
+      if (s.getColumnsInterval().toString().equals(columnsInterval.toString())) {
+        return new ArrayList<>(s.getFragments());
       }
     }
-    return res;
+    return new ArrayList<>();
   }
 
   @Override
   public List<FragmentMeta> getFragmentListByColumnNameAndKeyInterval(
       String columnName, KeyInterval keyInterval) {
-    List<FragmentMeta> resultList;
-    fragmentLock.readLock().lock();
-    try {
-      List<FragmentMeta> fragmentMetas =
-          searchFragmentSeriesList(sortedFragmentMetaLists, columnName).stream()
-              .map(e -> e.v)
-              .flatMap(List::stream)
-              .sorted(Comparator.comparingLong(o -> o.getKeyInterval().getStartKey()))
-              .collect(Collectors.toList());
-      resultList = searchFragmentList(fragmentMetas, keyInterval);
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return resultList;
+    List<FragmentMeta> fragmentMetas =
+        fragmentIndex.search(columnName).stream()
+            .map(FragmentIndex.FragmentSeries::getFragments)
+            .flatMap(List::stream)
+            .sorted(Comparator.comparingLong(o -> o.getKeyInterval().getStartKey()))
+            .collect(Collectors.toList());
+    return searchFragmentList(fragmentMetas, keyInterval);
   }
 
   @Override
   public List<FragmentMeta> getFragmentListByStorageUnitId(String storageUnitId) {
-    List<FragmentMeta> resultList;
-    fragmentLock.readLock().lock();
-    try {
-      List<FragmentMeta> fragmentMetas =
-          sortedFragmentMetaLists.stream()
-              .map(e -> e.v)
-              .flatMap(List::stream)
-              .sorted(Comparator.comparingLong(o -> o.getKeyInterval().getStartKey()))
-              .collect(Collectors.toList());
-      resultList = searchFragmentList(fragmentMetas, storageUnitId);
-    } finally {
-      fragmentLock.readLock().unlock();
-    }
-    return resultList;
+    List<FragmentMeta> fragmentMetas =
+        fragmentIndex.getSeriesList().stream()
+            .map(FragmentIndex.FragmentSeries::getFragments)
+            .flatMap(List::stream)
+            .sorted(Comparator.comparingLong(o -> o.getKeyInterval().getStartKey()))
+            .collect(Collectors.toList());
+    return searchFragmentList(fragmentMetas, storageUnitId);
   }
 
   @Override
   public boolean hasFragment() {
-    return !sortedFragmentMetaLists.isEmpty() || (enableFragmentCacheControl && minKey != 0L);
+    return !fragmentIndex.isEmpty() || (enableFragmentCacheControl && minKey != 0L);
   }
 
   @Override
@@ -692,7 +540,7 @@ public class DefaultMetaCache implements IMetaCache {
   @Override
   public void addStorageEngine(StorageEngineMeta storageEngineMeta) {
     storageUnitLock.writeLock().lock();
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
       if (!storageEngineMetaMap.containsKey(storageEngineMeta.getId())) {
         storageEngineMetaMap.put(storageEngineMeta.getId(), storageEngineMeta);
@@ -701,11 +549,13 @@ public class DefaultMetaCache implements IMetaCache {
           FragmentMeta dummyFragment = storageEngineMeta.getDummyFragment();
           dummyFragment.setMasterStorageUnit(dummyStorageUnit);
           dummyStorageUnitMetaMap.put(dummyStorageUnit.getId(), dummyStorageUnit);
-          dummyFragments.add(dummyFragment);
+          List<FragmentMeta> newDummyFragments = new ArrayList<>(dummyFragments);
+          newDummyFragments.add(dummyFragment);
+          dummyFragments = Collections.unmodifiableList(newDummyFragments);
         }
       }
     } finally {
-      fragmentLock.writeLock().unlock();
+      fragmentLock.unlock();
       storageUnitLock.writeLock().unlock();
     }
   }
@@ -713,7 +563,7 @@ public class DefaultMetaCache implements IMetaCache {
   @Override
   public boolean removeDummyStorageEngine(long storageEngineId) {
     storageUnitLock.writeLock().lock();
-    fragmentLock.writeLock().lock();
+    fragmentLock.lock();
     try {
       if (!storageEngineMetaMap.containsKey(storageEngineId)) {
         LOGGER.error("unexpected dummy storage engine {} to be removed", storageEngineId);
@@ -722,11 +572,13 @@ public class DefaultMetaCache implements IMetaCache {
       String dummyStorageUnitId = generateDummyStorageUnitId(storageEngineId);
       StorageEngineMeta oldStorageEngineMeta = storageEngineMetaMap.get(storageEngineId);
       assert oldStorageEngineMeta.isHasData();
-      dummyFragments.removeIf(e -> e.getMasterStorageUnitId().equals(dummyStorageUnitId));
+      List<FragmentMeta> newDummyFragments = new ArrayList<>(dummyFragments);
+      newDummyFragments.removeIf(e -> e.getMasterStorageUnitId().equals(dummyStorageUnitId));
+      dummyFragments = Collections.unmodifiableList(newDummyFragments);
       dummyStorageUnitMetaMap.remove(dummyStorageUnitId);
       storageEngineMetaMap.remove(storageEngineId);
     } finally {
-      fragmentLock.writeLock().unlock();
+      fragmentLock.unlock();
       storageUnitLock.writeLock().unlock();
     }
     return true;
@@ -745,13 +597,8 @@ public class DefaultMetaCache implements IMetaCache {
   @Override
   public List<FragmentMeta> getFragments() {
     List<FragmentMeta> fragments = new ArrayList<>();
-    fragmentLock.readLock().lock();
-    try {
-      for (Pair<ColumnsInterval, List<FragmentMeta>> pair : sortedFragmentMetaLists) {
-        fragments.addAll(pair.v);
-      }
-    } finally {
-      fragmentLock.readLock().unlock();
+    for (FragmentIndex.FragmentSeries series : fragmentIndex.getSeriesList()) {
+      fragments.addAll(series.getFragments());
     }
     return fragments;
   }
@@ -0,0 +1,305 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.metadata.cache;
+
+import cn.edu.tsinghua.iginx.metadata.entity.ColumnsInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.KeyInterval;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+import java.util.*;
+
+/**
+ * 分片路由索引的不可变快照，按列区间 × key 区间两个维度组织分片。
+ *
+ * <p>列区间按 compareTo 排序，同时记录结束列的前缀最大值，查询时二分定位第一个可能相交的列区间，再向后扫描到起始列超出查询范围为止；
+ * 每个列区间内的分片按加入顺序（即 key 递增）保存，同样记录结束 key 的前缀最大值，二分定位后顺序扫描。因此单次查询的代价是对数级加上命中的分片数。
+ *
+ * <p>修改操作不改变当前快照，而是复制受影响的部分生成新的快照，读者拿到快照后无需加锁。
+ */
+final class FragmentIndex {
+
+  static final FragmentIndex EMPTY = new FragmentIndex(new FragmentSeries[0]);
+
+  private final FragmentSeries[] seriesArray; // 按列区间排序
+
+  private final String[] maxEndColumns; // 结束列的前缀最大值，null 表示没有上界
+
+  private final Map<ColumnsInterval, FragmentSeries> seriesMap;
+
+  private final int fragmentCount;
+
+  private FragmentIndex(FragmentSeries[] seriesArray) {
+    this.seriesArray = seriesArray;
+    this.maxEndColumns = new String[seriesArray.length];
+    this.seriesMap = new HashMap<>();
+    int count = 0;
+    String maxEnd = "";
+    for (int i = 0; i < seriesArray.length; i++) {
+      FragmentSeries series = seriesArray[i];
+      String end = series.columnsInterval.getRealEndColumn();
+      if (maxEnd != null && (end == null || end.compareTo(maxEnd) > 0)) {
+        maxEnd = end;
+      }
+      maxEndColumns[i] = maxEnd;
+      seriesMap.put(series.columnsInterval, series);
+      count += series.size();
+    }
+    this.fragmentCount = count;
+  }
+
+  static FragmentIndex build(Map<ColumnsInterval, List<FragmentMeta>> fragmentListMap) {
+    FragmentSeries[] seriesArray =
+        fragmentListMap.entrySet().stream()
+            .filter(e -> !e.getValue().isEmpty())
+            .sorted(Map.Entry.comparingByKey())
+            .map(e -> new FragmentSeries(e.getKey(), e.getValue().toArray(new FragmentMeta[0])))
+            .toArray(FragmentSeries[]::new);
+    return new FragmentIndex(seriesArray);
+  }
+
+  boolean isEmpty() {
+    return seriesArray.length == 0;
+  }
+
+  /** 分片总数 */
+  int size() {
+    return fragmentCount;
+  }
+
+  List<FragmentSeries> getSeriesList() {
+    return Collections.unmodifiableList(Arrays.asList(seriesArray));
+  }
+
+  FragmentSeries getSeries(ColumnsInterval columnsInterval) {
+    return seriesMap.get(columnsInterval);
+  }
+
+  /** 与给定列区间相交的各组分片，按列区间排序 */
+  List<FragmentSeries> search(ColumnsInterval columnsInterval) {
+    List<FragmentSeries> resultList = new ArrayList<>();
+    for (int i = lowerBound(columnsInterval.getStartColumn()); i < seriesArray.length; i++) {
+      ColumnsInterval current = seriesArray[i].columnsInterval;
+      if (current.isCompletelyAfter(columnsInterval)) {
+        break;
+      }
+      if (current.isIntersect(columnsInterval)) {
+        resultList.add(seriesArray[i]);
+      }
+    }
+    return resultList;
+  }
+
+  /** 包含给定列的各组分片，按列区间排序 */
+  List<FragmentSeries> search(String columnName) {
+    List<FragmentSeries> resultList = new ArrayList<>();
+    for (int i = lowerBound(columnName); i < seriesArray.length; i++) {
+      ColumnsInterval current = seriesArray[i].columnsInterval;
+      if (current.isAfter(columnName)) {
+        break;
+      }
+      if (current.isContain(columnName)) {
+        resultList.add(seriesArray[i]);
+      }
+    }
+    return resultList;
+  }
+
+  /** 第一个结束列前缀最大值大于 column 的位置，在此之前的列区间都不可能与 column 及其之后的列相交 */
+  private int lowerBound(String column) {
+    if (column == null) {
+      return 0;
+    }
+    int left = 0, right = seriesArray.length;
+    while (left < right) {
+      int mid = (left + right) >>> 1;
+      String maxEnd = maxEndColumns[mid];
+      if (maxEnd == null || StringUtils.compare(column, maxEnd, false) < 0) {
+        right = mid;
+      } else {
+        left = mid + 1;
+      }
+    }
+    return left;
+  }
+
+  /** 在对应列区间的末尾追加分片，列区间不存在时新建 */
+  FragmentIndex add(FragmentMeta fragment) {
+    ColumnsInterval columnsInterval = fragment.getColumnsInterval();
+    FragmentSeries series = seriesMap.get(columnsInterval);
+    if (series != null) {
+      return replace(series, series.append(fragment));
+    }
+    int insertion = 0, right = seriesArray.length;
+    while (insertion < right) {
+      int mid = (insertion + right) >>> 1;
+      int cmp = columnsInterval.compareTo(seriesArray[mid].columnsInterval);
+      if (cmp < 0) {
+        right = mid;
+      } else if (cmp > 0) {
+        insertion = mid + 1;
+      } else {
+        throw new RuntimeException("unexpected fragment");
+      }
+    }
+    FragmentSeries[] newSeriesArray = new FragmentSeries[seriesArray.length + 1];
+    System.arraycopy(seriesArray, 0, newSeriesArray, 0, insertion);
+    newSeriesArray[insertion] = new FragmentSeries(columnsInterval, new FragmentMeta[] {fragment});
+    System.arraycopy(
+        seriesArray, insertion, newSeriesArray, insertion + 1, seriesArray.length - insertion);
+    return new FragmentIndex(newSeriesArray);
+  }
+
+  /**
+   * 替换某个列区间的最后一个分片，新分片的列区间可以与原列区间不同
+   *
+   * @param columnsInterval 原列区间
+   * @param fragment 新的分片
+   */
+  FragmentIndex replaceLast(ColumnsInterval columnsInterval, FragmentMeta fragment) {
+    FragmentSeries series = seriesMap.get(columnsInterval);
+    if (series == null) {
+      throw new RuntimeException("unexpected fragment " + fragment);
+    }
+    FragmentMeta[] fragments = series.fragments.clone();
+    fragments[fragments.length - 1] = fragment;
+    FragmentSeries newSeries = new FragmentSeries(fragment.getColumnsInterval(), fragments);
+    if (newSeries.columnsInterval.equals(columnsInterval)) {
+      return replace(series, newSeries);
+    }
+    List<FragmentSeries> newSeriesList = new ArrayList<>(Arrays.asList(seriesArray));
+    newSeriesList.remove(series);
+    newSeriesList.add(newSeries);
+    newSeriesList.sort((o1, o2) -> o1.columnsInterval.compareTo(o2.columnsInterval));
+    return new FragmentIndex(newSeriesList.toArray(new FragmentSeries[0]));
+  }
+
+  /** 删除某个列区间中的分片，列区间中不再有分片时一并删除 */
+  FragmentIndex remove(ColumnsInterval columnsInterval, FragmentMeta fragment) {
+    FragmentSeries series = seriesMap.get(columnsInterval);
+    if (series == null) {
+      return this;
+    }
+    List<FragmentMeta> fragments = new ArrayList<>(Arrays.asList(series.fragments));
+    if (!fragments.remove(fragment)) {
+      return this;
+    }
+    if (!fragments.isEmpty()) {
+      return replace(
+          series, new FragmentSeries(columnsInterval, fragments.toArray(new FragmentMeta[0])));
+    }
+    List<FragmentSeries> newSeriesList = new ArrayList<>(Arrays.asList(seriesArray));
+    newSeriesList.remove(series);
+    return new FragmentIndex(newSeriesList.toArray(new FragmentSeries[0]));
+  }
+
+  /** 逐出各列区间中起始 key 为 minKey 的第一个分片，列区间中不再有分片时一并删除 */
+  FragmentIndex evict(long minKey) {
+    List<FragmentSeries> newSeriesList = new ArrayList<>(seriesArray.length);
+    for (FragmentSeries series : seriesArray) {
+      if (series.fragments[0].getKeyInterval().getStartKey() != minKey) {
+        newSeriesList.add(series);
+      } else if (series.size() > 1) {
+        FragmentMeta[] fragments =
+            Arrays.copyOfRange(series.fragments, 1, series.fragments.length);
+        newSeriesList.add(new FragmentSeries(series.columnsInterval, fragments));
+      }
+    }
+    return new FragmentIndex(newSeriesList.toArray(new FragmentSeries[0]));
+  }
+
+  private FragmentIndex replace(FragmentSeries oldSeries, FragmentSeries newSeries) {
+    FragmentSeries[] newSeriesArray = seriesArray.clone();
+    for (int i = 0; i < newSeriesArray.length; i++) {
+      if (newSeriesArray[i] == oldSeries) {
+        newSeriesArray[i] = newSeries;
+        break;
+      }
+    }
+    return new FragmentIndex(newSeriesArray);
+  }
+
+  /** 同一列区间下的一组分片，按加入顺序保存 */
+  static final class FragmentSeries {
+
+    private final ColumnsInterval columnsInterval;
+
+    private final FragmentMeta[] fragments;
+
+    private final long[] maxEndKeys; // 结束 key 的前缀最大值
+
+    private FragmentSeries(ColumnsInterval columnsInterval, FragmentMeta[] fragments) {
+      this.columnsInterval = columnsInterval;
+      this.fragments = fragments;
+      this.maxEndKeys = new long[fragments.length];
+      long maxEnd = Long.MIN_VALUE;
+      for (int i = 0; i < fragments.length; i++) {
+        maxEnd = Math.max(maxEnd, fragments[i].getKeyInterval().getEndKey());
+        maxEndKeys[i] = maxEnd;
+      }
+    }
+
+    private FragmentSeries append(FragmentMeta fragment) {
+      FragmentMeta[] newFragments = Arrays.copyOf(fragments, fragments.length + 1);
+      newFragments[fragments.length] = fragment;
+      return new FragmentSeries(columnsInterval, newFragments);
+    }
+
+    ColumnsInterval getColumnsInterval() {
+      return columnsInterval;
+    }
+
+    int size() {
+      return fragments.length;
+    }
+
+    /** 只读视图，需要修改时由调用方复制 */
+    List<FragmentMeta> getFragments() {
+      return Collections.unmodifiableList(Arrays.asList(fragments));
+    }
+
+    FragmentMeta getLatest() {
+      return fragments[fragments.length - 1];
+    }
+
+    /** 与给定 key 区间相交的分片 */
+    List<FragmentMeta> search(KeyInterval keyInterval) {
+      List<FragmentMeta> resultList = new ArrayList<>();
+      int left = 0, right = fragments.length;
+      while (left < right) {
+        int mid = (left + right) >>> 1;
+        if (keyInterval.getStartKey() < maxEndKeys[mid]) {
+          right = mid;
+        } else {
+          left = mid + 1;
+        }
+      }
+      for (int i = left; i < fragments.length; i++) {
+        KeyInterval current = fragments[i].getKeyInterval();
+        if (current.isAfter(keyInterval)) {
+          break;
+        }
+        if (current.isIntersect(keyInterval)) {
+          resultList.add(fragments[i]);
+        }
+      }
+      return resultList;
+    }
+  }
+}
@@ -87,6 +87,11 @@ public final class ColumnsInterval implements Comparable<ColumnsInterval> {
     return startColumn + "-" + endColumn;
   }
 
+  /** 加上 schemaPrefix 之后的结束列，null 表示没有上界 */
+  public String getRealEndColumn() {
+    return realColumn(endColumn);
+  }
+
   public String getSchemaPrefix() {
     return schemaPrefix;
   }
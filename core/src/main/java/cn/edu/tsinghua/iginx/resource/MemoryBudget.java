@@ -0,0 +1,86 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.resource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** 单个查询在执行器中可以使用的内存预算，由同一查询内的所有算子共享。 */
+public class MemoryBudget {
+
+  private final long queryId;
+
+  private final long limit;
+
+  private final AtomicLong used = new AtomicLong();
+
+  private int holders; // 由QueryResourceManager在同步块内维护
+
+  MemoryBudget(long queryId, long limit) {
+    this.queryId = queryId;
+    this.limit = limit;
+  }
+
+  public long getQueryId() {
+    return queryId;
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  public long getUsed() {
+    return used.get();
+  }
+
+  /**
+   * 尝试占用内存
+   *
+   * @return 占用后是否仍在预算之内；返回false时不会占用任何内存
+   */
+  public boolean tryReserve(long bytes) {
+    while (true) {
+      long current = used.get();
+      if (current + bytes > limit) {
+        return false;
+      }
+      if (used.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  public void release(long bytes) {
+    used.addAndGet(-bytes);
+  }
+
+  void retain() {
+    holders++;
+  }
+
+  /** @return 是否已没有算子持有该预算 */
+  boolean unretain() {
+    return --holders <= 0;
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryBudget{" + "queryId=" + queryId + ", used=" + used + ", limit=" + limit + '}';
+  }
+}
@@ -19,16 +19,52 @@
  */
 package cn.edu.tsinghua.iginx.resource;
 
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class QueryResourceManager {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryResourceManager.class);
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
   private final ConcurrentMap<Long, RequestContext> queries;
 
+  // 各查询最近一次被访问的时间，客户端放弃拉取的查询在空闲超时后释放
+  private final ConcurrentMap<Long, Long> lastAccessTimes;
+
+  private final ConcurrentMap<Long, MemoryBudget> memoryBudgets;
+
   private QueryResourceManager() {
     this.queries = new ConcurrentHashMap<>();
+    this.lastAccessTimes = new ConcurrentHashMap<>();
+    this.memoryBudgets = new ConcurrentHashMap<>();
+
+    long timeout = config.getQueryIdleTimeout();
+    if (timeout > 0) {
+      ThreadFactory factory =
+          new ThreadFactoryBuilder().setNameFormat("idle-query-cleaner-%d").setDaemon(true).build();
+      ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(factory);
+      long period = Math.max(timeout / 2, 1);
+      cleaner.scheduleWithFixedDelay(
+          () -> releaseIdleQueries(System.currentTimeMillis() - timeout),
+          period,
+          period,
+          TimeUnit.MILLISECONDS);
+    }
   }
 
   public static QueryResourceManager getInstance() {
@@ -36,15 +72,77 @@ public class QueryResourceManager {
   }
 
   public void registerQuery(long queryId, RequestContext context) {
+    lastAccessTimes.put(queryId, System.currentTimeMillis());
     queries.put(queryId, context);
   }
 
+  /** 获取查询并刷新其访问时间。拉取结果时需要对返回的上下文加锁，避免与释放并发 */
   public RequestContext getQuery(long queryId) {
+    lastAccessTimes.computeIfPresent(queryId, (id, time) -> System.currentTimeMillis());
     return queries.get(queryId);
   }
 
   public void releaseQuery(long queryId) {
-    queries.remove(queryId);
+    lastAccessTimes.remove(queryId);
+    RequestContext context = queries.remove(queryId);
+    if (context == null) {
+      return;
+    }
+    synchronized (context) {
+      if (context.getResult() == null) {
+        return;
+      }
+      RowStream stream = context.getResult().getResultStream();
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (PhysicalException e) {
+          LOGGER.error("failed to close result stream of query {}: ", queryId, e);
+        }
+      }
+    }
+  }
+
+  /** 会话关闭时释放其尚未关闭的查询 */
+  public void releaseSessionQueries(long sessionId) {
+    for (Map.Entry<Long, RequestContext> entry : queries.entrySet()) {
+      if (entry.getValue().getSessionId() == sessionId) {
+        releaseQuery(entry.getKey());
+      }
+    }
+  }
+
+  /** 释放最近一次访问早于 deadline 的查询 */
+  void releaseIdleQueries(long deadline) {
+    for (Map.Entry<Long, Long> entry : lastAccessTimes.entrySet()) {
+      if (entry.getValue() < deadline) {
+        LOGGER.info("release query {} idle since {}", entry.getKey(), entry.getValue());
+        releaseQuery(entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * 获取查询的内存预算，同一查询内的算子共享同一个预算。需要与releaseMemoryBudget成对调用
+   *
+   * @param queryId 查询id
+   */
+  public MemoryBudget acquireMemoryBudget(long queryId) {
+    return memoryBudgets.compute(
+        queryId,
+        (id, budget) -> {
+          if (budget == null) {
+            budget = new MemoryBudget(id, config.getQueryMemoryLimit());
+          }
+          budget.retain();
+          return budget;
+        });
+  }
+
+  /** 归还查询的内存预算，当查询内所有算子都归还后移除该预算 */
+  public void releaseMemoryBudget(MemoryBudget budget) {
+    memoryBudgets.computeIfPresent(
+        budget.getQueryId(), (id, current) -> current.unretain() ? null : current);
   }
 
   private static class QueryManagerHolder {
@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iginx.sql.statement;
 import cn.edu.tsinghua.iginx.conf.Config;
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.cache.PlanCache;
 import cn.edu.tsinghua.iginx.engine.shared.Result;
 import cn.edu.tsinghua.iginx.engine.shared.exception.StatementExecutionException;
 import cn.edu.tsinghua.iginx.utils.RpcUtils;
@@ -54,6 +55,7 @@ public class SetConfigStatement extends SystemStatement {
       Object oldVal = field.get(config);
       Object newVal = transformConfigValueStrToSameType(oldVal, configValue);
       field.set(config, newVal);
+      PlanCache.getInstance().invalidateAll();
       ctx.setResult(new Result(RpcUtils.SUCCESS));
     } catch (NoSuchFieldException e) {
       String errMsg = String.format("no such field, field=%s", configName);
@@ -0,0 +1,127 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.session.Session;
+import cn.edu.tsinghua.iginx.thrift.IService;
+import cn.edu.tsinghua.iginx.thrift.OpenSessionResp;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import org.apache.thrift.server.TServer;
+import org.junit.Test;
+
+/** 按各种 thriftServerType 启动服务端，并用对应传输方式的 Session 打开、关闭会话 */
+public class IginxServerTest {
+
+  private static final long SESSION_ID = 42L;
+
+  private static IService.Iface createService() {
+    return (IService.Iface)
+        Proxy.newProxyInstance(
+            IService.Iface.class.getClassLoader(),
+            new Class<?>[] {IService.Iface.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "openSession":
+                  OpenSessionResp resp = new OpenSessionResp(RpcUtils.SUCCESS);
+                  resp.setSessionId(SESSION_ID);
+                  return resp;
+                case "closeSession":
+                  return RpcUtils.SUCCESS;
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+
+  private static int findFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static void checkServer(String serverType, String protocol, boolean framed)
+      throws Exception {
+    Config config = new Config();
+    config.setPort(findFreePort());
+    config.setThriftServerType(serverType);
+    config.setThriftProtocol(protocol);
+    config.setThriftSelectorThreadNum(2);
+    config.setThriftSelectorWorkerThreadNum(4);
+    config.setMinThriftWorkerThreadNum(1);
+    config.setMaxThriftWrokerThreadNum(4);
+
+    TServer server = Iginx.createServer(new IService.Processor<>(createService()), config);
+    Thread serveThread = new Thread(server::serve, "iginx-server-test");
+    serveThread.setDaemon(true);
+    serveThread.start();
+    try {
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!server.isServing()) {
+        assertTrue(serverType + " didn't start in time", System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+
+      Session session = new Session("127.0.0.1", config.getPort());
+      session.setUseFramedTransport(framed);
+      session.setUseCompactProtocol("compact".equals(protocol));
+      session.openSession();
+      assertFalse(session.isClosed());
+      assertEquals(SESSION_ID, session.getSessionId());
+      session.closeSession();
+      assertTrue(session.isClosed());
+    } finally {
+      server.stop();
+      serveThread.join(10000);
+    }
+  }
+
+  @Test
+  public void testThreadPoolServer() throws Exception {
+    checkServer("threadPool", "binary", false);
+  }
+
+  @Test
+  public void testHsHaServer() throws Exception {
+    checkServer("hsha", "binary", true);
+  }
+
+  @Test
+  public void testThreadedSelectorServer() throws Exception {
+    checkServer("threadedSelector", "binary", true);
+  }
+
+  @Test
+  public void testCompactProtocol() throws Exception {
+    checkServer("threadedSelector", "compact", true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownServerType() throws Exception {
+    Config config = new Config();
+    config.setThriftServerType("unknown");
+    Iginx.createServer(new IService.Processor<>(createService()), config);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.logical.generator;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class InsertGeneratorTest {
+
+  /** 按列组织的写入数据，所有值都非空，第 i 列第 j 个值为 i * 100 + j */
+  private static RawData columnData(
+      long[] keys, List<String> paths, List<Map<String, String>> tagsList) {
+    Object[] valuesList = new Object[paths.size()];
+    List<DataType> dataTypeList = new ArrayList<>();
+    List<Bitmap> bitmaps = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      Object[] values = new Object[keys.length];
+      Bitmap bitmap = new Bitmap(keys.length);
+      for (int j = 0; j < keys.length; j++) {
+        values[j] = i * 100L + j;
+        bitmap.mark(j);
+      }
+      valuesList[i] = values;
+      dataTypeList.add(DataType.LONG);
+      bitmaps.add(bitmap);
+    }
+    return new RawData(
+        paths, tagsList, keys, valuesList, dataTypeList, bitmaps, RawDataType.Column);
+  }
+
+  private static RawData columnData(long[] keys, String... paths) {
+    return columnData(keys, Arrays.asList(paths), Collections.emptyList());
+  }
+
+  @Test
+  public void testExclusiveEndKey() {
+    RawData data = columnData(new long[] {1, 2, 3, 4}, "a.a");
+    DataView view = InsertGenerator.getDataSection(new FragmentMeta(null, null, 2, 4), data);
+    assertTrue(view instanceof ColumnDataView);
+    assertEquals(2, view.getKeySize());
+    assertEquals(2, view.getKey(0));
+    assertEquals(3, view.getKey(1));
+    assertEquals(1L, view.getValue(0, 0));
+
+    // 分片的结束key不包含在分片内
+    assertNull(InsertGenerator.getDataSection(new FragmentMeta(null, null, 0, 1), data));
+    assertEquals(
+        1,
+        InsertGenerator.getDataSection(new FragmentMeta(null, null, 4, 5), data).getKeySize());
+  }
+
+  @Test
+  public void testMaxEndKey() {
+    RawData data = columnData(new long[] {1, Long.MAX_VALUE - 1}, "a.a");
+    DataView all =
+        InsertGenerator.getDataSection(new FragmentMeta(null, null, 0, Long.MAX_VALUE), data);
+    assertEquals(2, all.getKeySize());
+    assertEquals(Long.MAX_VALUE - 1, all.getKey(1));
+
+    DataView last =
+        InsertGenerator.getDataSection(
+            new FragmentMeta(null, null, Long.MAX_VALUE - 1, Long.MAX_VALUE), data);
+    assertEquals(1, last.getKeySize());
+    assertEquals(Long.MAX_VALUE - 1, last.getKey(0));
+    assertEquals(1L, last.getValue(0, 0));
+  }
+
+  @Test
+  public void testOverlapWithoutData() {
+    // 分片的区间与写入数据的范围相交，但没有落在分片内的key或路径
+    RawData data = columnData(new long[] {1, 2, 10, 11}, "a.a", "a.c");
+    assertNull(InsertGenerator.getDataSection(new FragmentMeta(null, null, 5, 8), data));
+    assertNull(InsertGenerator.getDataSection(new FragmentMeta("a.b", "a.bz", 0, 20), data));
+  }
+
+  @Test
+  public void testNullColumns() {
+    RawData data = columnData(new long[] {1}, "a.a", "a.b", "a.c");
+    DataView head = InsertGenerator.getDataSection(new FragmentMeta(null, "a.b", 0, 2), data);
+    assertEquals(Collections.singletonList("a.a"), head.getPaths());
+
+    DataView tail = InsertGenerator.getDataSection(new FragmentMeta("a.b", null, 0, 2), data);
+    assertEquals(Arrays.asList("a.b", "a.c"), tail.getPaths());
+    assertEquals(100L, tail.getValue(0, 0));
+
+    DataView all = InsertGenerator.getDataSection(new FragmentMeta(null, null, 0, 2), data);
+    assertEquals(3, all.getPathNum());
+  }
+
+  @Test
+  public void testRepeatedPaths() {
+    // 路径相同、只有标签不同的序列必须落在同一个分片内
+    List<Map<String, String>> tagsList =
+        Arrays.asList(
+            Collections.emptyMap(),
+            Collections.singletonMap("t", "1"),
+            Collections.singletonMap("t", "2"),
+            Collections.emptyMap());
+    RawData data =
+        columnData(new long[] {1, 2}, Arrays.asList("a.a", "a.b", "a.b", "a.c"), tagsList);
+
+    DataView view = InsertGenerator.getDataSection(new FragmentMeta("a.b", "a.c", 0, 3), data);
+    assertEquals(Arrays.asList("a.b", "a.b"), view.getPaths());
+    assertEquals(Collections.singletonMap("t", "1"), view.getTags(0));
+    assertEquals(Collections.singletonMap("t", "2"), view.getTags(1));
+    assertEquals(0, view.getPathIndex("a.b"));
+    assertEquals(201L, view.getValue(1, 1));
+
+    DataView before = InsertGenerator.getDataSection(new FragmentMeta("a.a", "a.b", 0, 3), data);
+    assertEquals(Collections.singletonList("a.a"), before.getPaths());
+  }
+}
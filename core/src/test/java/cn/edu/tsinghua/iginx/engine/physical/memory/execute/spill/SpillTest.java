@@ -0,0 +1,186 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.HashInnerJoinLazyStream;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.SortLazyStream;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.expr.BaseExpression;
+import cn.edu.tsinghua.iginx.engine.shared.operator.InnerJoin;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Sort;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.PathFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.type.JoinAlgType;
+import cn.edu.tsinghua.iginx.engine.shared.source.EmptySource;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillTest {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private boolean enableSpill;
+
+  private long queryMemoryLimit;
+
+  private String spillDir;
+
+  private File tempDir;
+
+  @Before
+  public void setUp() throws IOException {
+    enableSpill = config.isEnableSpill();
+    queryMemoryLimit = config.getQueryMemoryLimit();
+    spillDir = config.getSpillDir();
+    tempDir = Files.createTempDirectory("iginx-spill").toFile();
+    config.setEnableSpill(true);
+    // 使用很小的内存预算，保证发生溢写
+    config.setQueryMemoryLimit(4096);
+    config.setSpillDir(tempDir.getAbsolutePath());
+  }
+
+  @After
+  public void tearDown() {
+    config.setEnableSpill(enableSpill);
+    config.setQueryMemoryLimit(queryMemoryLimit);
+    config.setSpillDir(spillDir);
+    File[] files = tempDir.listFiles();
+    assertTrue(files == null || files.length == 0);
+    tempDir.delete();
+  }
+
+  private static List<Row> generateRows(Header header, int size, long seed) {
+    Random random = new Random(seed);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      Object value = random.nextInt(10) == 0 ? null : random.nextInt(100);
+      Object binary = random.nextInt(10) == 0 ? null : ("v" + random.nextInt(50)).getBytes();
+      rows.add(new Row(header, i, new Object[] {value, binary, random.nextDouble()}));
+    }
+    return rows;
+  }
+
+  private static Header generateHeader(String prefix) {
+    return new Header(
+        Field.KEY,
+        Arrays.asList(
+            new Field(prefix + ".a", DataType.INTEGER),
+            new Field(prefix + ".b", DataType.BINARY),
+            new Field(prefix + ".c", DataType.DOUBLE)));
+  }
+
+  private static List<String> collect(RowStream stream) throws PhysicalException {
+    List<String> result = new ArrayList<>();
+    while (stream.hasNext()) {
+      result.add(format(stream.next()));
+    }
+    stream.close();
+    return result;
+  }
+
+  private static String format(Row row) {
+    StringBuilder builder = new StringBuilder().append(row.getKey());
+    for (Object value : row.getValues()) {
+      builder.append(',').append(value instanceof byte[] ? new String((byte[]) value) : value);
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void testExternalSort() throws PhysicalException {
+    Header header = generateHeader("t");
+    List<Row> rows = generateRows(header, 1000, 1);
+    Sort sort =
+        new Sort(
+            EmptySource.EMPTY_SOURCE,
+            Collections.singletonList(new BaseExpression("t.c")),
+            Collections.singletonList(Sort.SortType.DESC));
+
+    List<Row> expected = new ArrayList<>(rows);
+    RowUtils.sortRows(expected, sort.getAscendingList(), sort.getSortByCols());
+
+    SortLazyStream stream = new SortLazyStream(sort, new Table(header, rows));
+    stream.setContext(new RequestContext());
+    List<String> actual = collect(stream);
+
+    List<String> target = new ArrayList<>();
+    for (Row row : expected) {
+      target.add(format(row));
+    }
+    assertEquals(target, actual);
+  }
+
+  @Test
+  public void testGraceHashJoin() throws PhysicalException {
+    Header headerA = generateHeader("a");
+    Header headerB = generateHeader("b");
+    List<Row> rowsA = generateRows(headerA, 300, 2);
+    List<Row> rowsB = generateRows(headerB, 300, 3);
+    InnerJoin innerJoin =
+        new InnerJoin(
+            EmptySource.EMPTY_SOURCE,
+            EmptySource.EMPTY_SOURCE,
+            "a",
+            "b",
+            new PathFilter("a.a", Op.E, "b.a"),
+            Collections.emptyList(),
+            false,
+            JoinAlgType.HashJoin);
+
+    List<String> expected =
+        collect(
+            new HashInnerJoinLazyStream(
+                innerJoin, new Table(headerA, rowsA), new Table(headerB, rowsB)));
+
+    HashInnerJoinLazyStream stream =
+        new HashInnerJoinLazyStream(
+            innerJoin, new Table(headerA, rowsA), new Table(headerB, rowsB));
+    stream.setContext(new RequestContext());
+    List<String> actual = collect(stream);
+
+    // 分区连接的输出顺序与内存中连接不同
+    Collections.sort(expected);
+    Collections.sort(actual);
+    assertTrue(expected.size() > 0);
+    assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.AbstractOperatorMemoryExecutorTest;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutor;
+import org.junit.After;
+import org.junit.Before;
+
+public class VectorizedStreamOperatorMemoryExecutorTest extends AbstractOperatorMemoryExecutorTest {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private final StreamOperatorMemoryExecutor executor;
+
+  private boolean enableVectorizedExecution;
+
+  private int vectorizedBatchSize;
+
+  public VectorizedStreamOperatorMemoryExecutorTest() {
+    this.executor = StreamOperatorMemoryExecutor.getInstance();
+  }
+
+  @Before
+  public void enableVectorizedExecution() {
+    enableVectorizedExecution = config.isEnableVectorizedExecution();
+    vectorizedBatchSize = config.getVectorizedBatchSize();
+    config.setEnableVectorizedExecution(true);
+    // 使用较小的批大小，覆盖跨批次的情况
+    config.setVectorizedBatchSize(3);
+  }
+
+  @After
+  public void restoreConfig() {
+    config.setEnableVectorizedExecution(enableVectorizedExecution);
+    config.setVectorizedBatchSize(vectorizedBatchSize);
+  }
+
+  @Override
+  protected OperatorMemoryExecutor getExecutor() {
+    return executor;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class JoinHashTableTest {
+
+  private static Row row(DataType type, Object value) {
+    Header header = new Header(Field.KEY, Collections.singletonList(new Field("t.k", type)));
+    return new Row(header, 0, new Object[] {value});
+  }
+
+  private static List<Row> group(JoinHashTable table, int group) {
+    List<Row> rows = new ArrayList<>();
+    for (int rowId = table.firstRow(group); rowId != -1; rowId = table.nextRow(rowId)) {
+      rows.add(table.getRow(rowId));
+    }
+    assertEquals(table.getGroupSize(group), rows.size());
+    return rows;
+  }
+
+  @Test
+  public void testRehashKeepsGroups() {
+    // 远超初始容量的键，多次扩容后每个键仍能探测到，组内的行保持插入顺序
+    int n = 10000;
+    JoinHashTable table = new JoinHashTable(false);
+    List<Row> inserted = new ArrayList<>();
+    for (int round = 0; round < 3; round++) {
+      for (long key = 0; key < n; key++) {
+        Row row = row(DataType.LONG, key * 7919);
+        inserted.add(row);
+        table.put(row, 0);
+      }
+    }
+    assertEquals(n, table.getGroupCount());
+    assertEquals(3 * n, table.getRowCount());
+    for (long key = 0; key < n; key++) {
+      int group = table.probe(row(DataType.LONG, key * 7919), 0);
+      assertEquals(key, group);
+      int i = (int) key;
+      assertEquals(
+          Arrays.asList(inserted.get(i), inserted.get(i + n), inserted.get(i + 2 * n)),
+          group(table, group));
+    }
+    assertEquals(-1, table.probe(row(DataType.LONG, 1L), 0));
+  }
+
+  @Test
+  public void testBinaryHashCollision() {
+    // "Aa" 与 "BB" 的哈希值相同，必须比较完整的键
+    byte[] aa = "Aa".getBytes();
+    byte[] bb = "BB".getBytes();
+    assertEquals(Arrays.hashCode(aa), Arrays.hashCode(bb));
+
+    JoinHashTable table = new JoinHashTable(false);
+    Row first = row(DataType.BINARY, aa);
+    Row second = row(DataType.BINARY, bb);
+    Row third = row(DataType.BINARY, "Aa".getBytes());
+    table.put(first, 0);
+    table.put(second, 0);
+    table.put(third, 0);
+    assertEquals(2, table.getGroupCount());
+    assertEquals(table.hash(first, 0), table.hash(second, 0));
+
+    int group = table.probe(row(DataType.BINARY, "Aa".getBytes()), 0);
+    assertEquals(Arrays.asList(first, third), group(table, group));
+    group = table.probe(row(DataType.BINARY, "BB".getBytes()), 0);
+    assertEquals(Collections.singletonList(second), group(table, group));
+    assertEquals(-1, table.probe(row(DataType.BINARY, "AB".getBytes()), 0));
+  }
+
+  @Test
+  public void testCollisionChains() {
+    // 以下每对键的哈希值完全相同，落在同一个槽位上，依靠线性探测与完整的键区分
+    Row[][] collisions = {
+      {row(DataType.LONG, 119576L), row(DataType.LONG, 132608L)},
+      {row(DataType.LONG, 20572L), row(DataType.LONG, 146537L)},
+      {row(DataType.LONG, 107900L), row(DataType.LONG, 219233L)},
+      {row(DataType.LONG, 0L), row(DataType.BOOLEAN, true)},
+      {row(DataType.LONG, -1L), row(DataType.BOOLEAN, false)},
+    };
+    JoinHashTable table = new JoinHashTable(false);
+    for (Row[] pair : collisions) {
+      assertEquals(table.hash(pair[0], 0), table.hash(pair[1], 0));
+      table.put(pair[0], 0);
+      table.put(pair[1], 0);
+    }
+    // 继续插入触发多次扩容，冲突的键在重新散列后仍然可以区分
+    for (long key = 1; key <= 1000; key++) {
+      table.put(row(DataType.LONG, -key - 1), 0);
+    }
+    assertEquals(collisions.length * 2 + 1000, table.getGroupCount());
+    for (int i = 0; i < collisions.length; i++) {
+      for (int j = 0; j < 2; j++) {
+        int group = table.probe(collisions[i][j], 0);
+        assertEquals(2 * i + j, group);
+        assertEquals(Collections.singletonList(collisions[i][j]), group(table, group));
+      }
+    }
+  }
+
+  @Test
+  public void testKindsAreDistinct() {
+    // 位表示相同但类型不同的键不能互相匹配
+    JoinHashTable table = new JoinHashTable(false);
+    table.put(row(DataType.LONG, 1L), 0);
+    table.put(row(DataType.BOOLEAN, true), 0);
+    table.put(row(DataType.DOUBLE, Double.longBitsToDouble(1L)), 0);
+    table.put(row(DataType.INTEGER, 1), 0);
+    assertEquals(3, table.getGroupCount());
+    assertEquals(0, table.probe(row(DataType.INTEGER, 1), 0));
+    assertEquals(1, table.probe(row(DataType.BOOLEAN, true), 0));
+    assertEquals(2, table.probe(row(DataType.DOUBLE, Double.longBitsToDouble(1L)), 0));
+    assertEquals(-1, table.probe(row(DataType.BOOLEAN, false), 0));
+  }
+
+  @Test
+  public void testTypeCast() {
+    JoinHashTable table = new JoinHashTable(true);
+    table.put(row(DataType.INTEGER, 1), 0);
+    table.put(row(DataType.FLOAT, 0.1f), 0);
+    assertEquals(0, table.probe(row(DataType.LONG, 1L), 0));
+    assertEquals(0, table.probe(row(DataType.DOUBLE, 1.0), 0));
+    // FLOAT 按十进制字符串转换为 double，0.1f 与 0.1 相等
+    assertEquals(1, table.probe(row(DataType.DOUBLE, 0.1), 0));
+  }
+
+  @Test
+  public void testNulls() {
+    JoinHashTable table = new JoinHashTable(false);
+    assertEquals(0, table.put(row(DataType.LONG, null), 0));
+    assertEquals(1, table.put(row(DataType.LONG, 1L), 0));
+    assertEquals(2, table.getRowCount());
+    assertEquals(1, table.getGroupCount());
+    assertEquals(-1, table.probe(row(DataType.LONG, null), 0));
+    assertEquals(0, table.hash(row(DataType.LONG, null), 0));
+  }
+}
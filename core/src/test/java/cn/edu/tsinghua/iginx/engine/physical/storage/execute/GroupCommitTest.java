@@ -0,0 +1,286 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class GroupCommitTest {
+
+  private static final FragmentMeta FRAGMENT = new FragmentMeta("a", "z", 0, 100);
+
+  /**
+   * 构造写入任务
+   *
+   * @param values 第一个维度为序列，第二个维度为 key，null 表示没有值
+   */
+  private static StoragePhysicalTask task(
+      RawDataType type,
+      DataType dataType,
+      List<String> paths,
+      List<Map<String, String>> tagsList,
+      long[] keys,
+      Object[][] values,
+      int startPath,
+      int startKey) {
+    List<DataType> types = new ArrayList<>();
+    List<Bitmap> bitmaps = new ArrayList<>();
+    Object[] valuesList;
+    boolean column = type == RawDataType.Column || type == RawDataType.NonAlignedColumn;
+    if (column) {
+      valuesList = new Object[paths.size()];
+      for (int i = 0; i < paths.size(); i++) {
+        Bitmap bitmap = new Bitmap(keys.length);
+        List<Object> list = new ArrayList<>();
+        for (int j = 0; j < keys.length; j++) {
+          if (values[i][j] != null) {
+            bitmap.mark(j);
+            list.add(values[i][j]);
+          }
+        }
+        bitmaps.add(bitmap);
+        valuesList[i] = list.toArray();
+      }
+    } else {
+      valuesList = new Object[keys.length];
+      for (int j = 0; j < keys.length; j++) {
+        Bitmap bitmap = new Bitmap(paths.size());
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+          if (values[i][j] != null) {
+            bitmap.mark(i);
+            list.add(values[i][j]);
+          }
+        }
+        bitmaps.add(bitmap);
+        valuesList[j] = list.toArray();
+      }
+    }
+    for (int i = 0; i < paths.size(); i++) {
+      types.add(dataType);
+    }
+    RawData rawData = new RawData(paths, tagsList, keys, valuesList, types, bitmaps, type);
+    DataView view =
+        column
+            ? new ColumnDataView(rawData, startPath, paths.size(), startKey, keys.length)
+            : new RowDataView(rawData, startPath, paths.size(), startKey, keys.length);
+    List<Operator> operators = new ArrayList<>();
+    operators.add(new Insert(new FragmentSource(FRAGMENT), view));
+    StoragePhysicalTask task = new StoragePhysicalTask(operators, new RequestContext());
+    task.setStorageUnit("unit0000000000");
+    return task;
+  }
+
+  private static StoragePhysicalTask task(
+      RawDataType type, List<String> paths, long[] keys, Object[][] values) {
+    return task(type, DataType.LONG, paths, Collections.emptyList(), keys, values, 0, 0);
+  }
+
+  private static DataView merge(StoragePhysicalTask... tasks) {
+    GroupCommit group =
+        new GroupCommit(GroupCommit.keyOf(tasks[0]), tasks[0], Integer.MAX_VALUE);
+    for (StoragePhysicalTask task : tasks) {
+      assertEquals(group.getKey(), GroupCommit.keyOf(task));
+      assertTrue(group.join(task));
+    }
+    assertNotNull(group.close());
+    return ((Insert) group.getMergedOperators().get(0)).getData();
+  }
+
+  /** 按序列读出写入的数据，序列名中包含标签 */
+  private static Map<String, Map<Long, Object>> read(DataView data) {
+    String[] names = new String[data.getPathNum()];
+    Map<String, Map<Long, Object>> result = new TreeMap<>();
+    for (int i = 0; i < names.length; i++) {
+      Map<String, String> tags = data.getTags(i);
+      names[i] = data.getPath(i) + (tags == null || tags.isEmpty() ? "" : new TreeMap<>(tags));
+      result.put(names[i], new TreeMap<>());
+    }
+    if (data.isColumnData()) {
+      for (int i = 0; i < data.getPathNum(); i++) {
+        BitmapView bitmapView = data.getBitmapView(i);
+        int index = 0;
+        for (int j = 0; j < data.getKeySize(); j++) {
+          if (bitmapView.get(j)) {
+            result.get(names[i]).put(data.getKey(j), data.getValue(i, index++));
+          }
+        }
+      }
+    } else {
+      for (int i = 0; i < data.getKeySize(); i++) {
+        BitmapView bitmapView = data.getBitmapView(i);
+        int index = 0;
+        for (int j = 0; j < data.getPathNum(); j++) {
+          if (bitmapView.get(j)) {
+            result.get(names[j]).put(data.getKey(i), data.getValue(i, index++));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static Map<Long, Object> series(Object... keyValues) {
+    Map<Long, Object> result = new TreeMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      result.put(((Number) keyValues[i]).longValue(), keyValues[i + 1]);
+    }
+    return result;
+  }
+
+  private void testLastWriterWins(RawDataType type) {
+    StoragePhysicalTask first =
+        task(
+            type,
+            Arrays.asList("a.b", "a.c"),
+            new long[] {1, 2, 3},
+            new Object[][] {{1L, 2L, null}, {null, 20L, 30L}});
+    StoragePhysicalTask second =
+        task(
+            type,
+            Arrays.asList("a.b", "a.d"),
+            new long[] {2, 4},
+            new Object[][] {{200L, 400L}, {null, 4000L}});
+    DataView merged = merge(first, second);
+    assertEquals(type, merged.getRawDataType());
+    assertEquals(Arrays.asList("a.b", "a.c", "a.d"), merged.getPaths());
+    assertEquals(4, merged.getKeySize());
+
+    Map<String, Map<Long, Object>> data = read(merged);
+    assertEquals(series(1, 1L, 2, 200L, 4, 400L), data.get("a.b"));
+    assertEquals(series(2, 20L, 3, 30L), data.get("a.c"));
+    assertEquals(series(4, 4000L), data.get("a.d"));
+  }
+
+  @Test
+  public void testColumnLayout() {
+    testLastWriterWins(RawDataType.Column);
+    testLastWriterWins(RawDataType.NonAlignedColumn);
+  }
+
+  @Test
+  public void testRowLayout() {
+    testLastWriterWins(RawDataType.Row);
+    testLastWriterWins(RawDataType.NonAlignedRow);
+  }
+
+  @Test
+  public void testViewOffsets() {
+    // 任务的数据可能是原始数据的一部分，位图与值数组都要从视图的起始位置开始读
+    for (RawDataType type : Arrays.asList(RawDataType.Column, RawDataType.Row)) {
+      StoragePhysicalTask task =
+          task(
+              type,
+              DataType.LONG,
+              Arrays.asList("a.a", "a.b", "a.c"),
+              Collections.emptyList(),
+              new long[] {1, 2, 3},
+              new Object[][] {{1L, 2L, 3L}, {10L, null, 30L}, {100L, 200L, null}},
+              1,
+              1);
+      Map<String, Map<Long, Object>> data = read(merge(task));
+      assertEquals(2, data.size());
+      assertEquals(series(3, 30L), data.get("a.b"));
+      assertEquals(series(2, 200L), data.get("a.c"));
+    }
+  }
+
+  @Test
+  public void testTagsInSeriesKey() {
+    Map<String, String> tags1 = new HashMap<>();
+    tags1.put("host", "1");
+    tags1.put("dc", "x");
+    Map<String, String> tags2 = new HashMap<>();
+    tags2.put("host", "2");
+    Map<String, String> sameAsTags1 = new TreeMap<>(Collections.reverseOrder());
+    sameAsTags1.putAll(tags1);
+
+    StoragePhysicalTask first =
+        task(
+            RawDataType.Column,
+            DataType.LONG,
+            Arrays.asList("a.b", "a.b"),
+            Arrays.asList(tags1, tags2),
+            new long[] {1},
+            new Object[][] {{1L}, {2L}},
+            0,
+            0);
+    StoragePhysicalTask second =
+        task(
+            RawDataType.Column,
+            DataType.LONG,
+            Collections.singletonList("a.b"),
+            Collections.singletonList(sameAsTags1),
+            new long[] {1},
+            new Object[][] {{100L}},
+            0,
+            0);
+    DataView merged = merge(first, second);
+    assertEquals(2, merged.getPathNum());
+
+    Map<String, Map<Long, Object>> data = read(merged);
+    assertEquals(series(1, 100L), data.get("a.b" + new TreeMap<>(tags1)));
+    assertEquals(series(1, 2L), data.get("a.b" + new TreeMap<>(tags2)));
+  }
+
+  @Test
+  public void testTypeConflict() {
+    List<String> paths = Collections.singletonList("a.b");
+    StoragePhysicalTask first =
+        task(RawDataType.Column, paths, new long[] {1}, new Object[][] {{1L}});
+    StoragePhysicalTask second =
+        task(
+            RawDataType.Column,
+            DataType.DOUBLE,
+            paths,
+            Collections.emptyList(),
+            new long[] {2},
+            new Object[][] {{1.0}},
+            0,
+            0);
+
+    GroupCommit group = new GroupCommit(GroupCommit.keyOf(first), first, Integer.MAX_VALUE);
+    assertTrue(group.join(first));
+    assertFalse(group.join(second));
+    assertEquals(1, group.close().size());
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.spill.MemoryTracker;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.BoolFilter;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.resource.MemoryBudget;
+import cn.edu.tsinghua.iginx.resource.QueryResourceManager;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class SharedScanTest {
+
+  private static final FragmentMeta FRAGMENT = new FragmentMeta("a", "z", 0, 100);
+
+  private static StoragePhysicalTask task(FragmentMeta fragment, String... patterns) {
+    List<Operator> operators = new ArrayList<>();
+    operators.add(new Project(new FragmentSource(fragment), Arrays.asList(patterns), null));
+    return withUnit(new StoragePhysicalTask(operators, new RequestContext()));
+  }
+
+  private static StoragePhysicalTask selectTask(String... patterns) {
+    List<Operator> operators = new ArrayList<>();
+    FragmentSource source = new FragmentSource(FRAGMENT);
+    operators.add(new Project(source, Arrays.asList(patterns), null));
+    operators.add(new Select(source, new BoolFilter(true), null));
+    return withUnit(new StoragePhysicalTask(operators, new RequestContext()));
+  }
+
+  private static StoragePhysicalTask withUnit(StoragePhysicalTask task) {
+    task.setStorageUnit("unit0000000000");
+    return task;
+  }
+
+  private static Table table() {
+    Header header =
+        new Header(
+            Field.KEY,
+            Arrays.asList(
+                new Field("a.b", DataType.LONG),
+                new Field("a.c", DataType.LONG),
+                new Field("x.y", DataType.LONG)));
+    List<Row> rows = new ArrayList<>();
+    rows.add(new Row(header, 1, new Object[] {1L, null, null}));
+    rows.add(new Row(header, 2, new Object[] {null, null, 3L}));
+    rows.add(new Row(header, 3, new Object[] {null, 4L, 5L}));
+    return new Table(header, rows);
+  }
+
+  @Test
+  public void testKeyOf() {
+    String key = SharedScan.keyOf(task(FRAGMENT, "a.b"));
+    assertNotNull(key);
+    assertEquals(key, SharedScan.keyOf(task(FRAGMENT, "x.*")));
+    // 起始相同、结束不同的 key 区间不能合并
+    assertNotEquals(key, SharedScan.keyOf(task(new FragmentMeta("a", "z", 0, 50), "a.b")));
+    assertNotEquals(key, SharedScan.keyOf(task(new FragmentMeta("a", "z", 100, 200), "a.b")));
+
+    // 带过滤条件的任务只与列相同的任务合并
+    String selectKey = SharedScan.keyOf(selectTask("a.b", "a.c"));
+    assertNotNull(selectKey);
+    assertNotEquals(key, selectKey);
+    assertEquals(selectKey, SharedScan.keyOf(selectTask("a.c", "a.b")));
+    assertNotEquals(selectKey, SharedScan.keyOf(selectTask("a.b")));
+  }
+
+  @Test
+  public void testMerge() {
+    StoragePhysicalTask first = task(FRAGMENT, "a.b", "a.c");
+    StoragePhysicalTask second = task(FRAGMENT, "a.c", "x.*");
+    SharedScan scan = new SharedScan(SharedScan.keyOf(first), Arrays.asList(first, second));
+    assertSame(first, scan.getLeader());
+    Project merged = (Project) scan.getMergedOperators().get(0);
+    assertEquals(Arrays.asList("a.b", "a.c", "x.*"), merged.getPatterns());
+    // 合并不应修改原任务的算子
+    assertEquals(
+        Arrays.asList("a.b", "a.c"), ((Project) first.getOperators().get(0)).getPatterns());
+  }
+
+  @Test
+  public void testProject() {
+    Table table = table();
+    Table projected = SharedScan.project(table, task(FRAGMENT, "a.*"));
+    assertEquals(2, projected.getHeader().getFieldSize());
+    assertEquals("a.b", projected.getHeader().getField(0).getName());
+    assertEquals("a.c", projected.getHeader().getField(1).getName());
+    // 第 2 行在 a.* 上全为空值，投影后被去掉
+    assertEquals(2, projected.getRowSize());
+    assertEquals(1, projected.getRow(0).getKey());
+    assertArrayEquals(new Object[] {1L, null}, projected.getRow(0).getValues());
+    assertEquals(3, projected.getRow(1).getKey());
+    assertArrayEquals(new Object[] {null, 4L}, projected.getRow(1).getValues());
+
+    projected = SharedScan.project(table, task(FRAGMENT, "x.y"));
+    assertEquals(1, projected.getHeader().getFieldSize());
+    assertEquals(2, projected.getRowSize());
+  }
+
+  @Test
+  public void testJoinCutOff() {
+    StoragePhysicalTask first = task(FRAGMENT, "a.b", "a.c");
+    SharedScan scan = new SharedScan(SharedScan.keyOf(first), Arrays.asList(first));
+    assertTrue(scan.join(task(FRAGMENT, "a.b")));
+    // 扫描的列不能覆盖任务的列
+    assertFalse(scan.join(task(FRAGMENT, "x.y")));
+
+    List<StoragePhysicalTask> tasks = scan.close();
+    assertEquals(2, tasks.size());
+    // 扫描下发到存储之后到达的任务不能再加入
+    assertFalse(scan.join(task(FRAGMENT, "a.b")));
+    assertEquals(2, scan.close().size());
+  }
+
+  @Test
+  public void testMaterialize() throws Exception {
+    Table table = SharedScan.materialize(table(), new MemoryTracker(null));
+    assertNotNull(table);
+    assertEquals(3, table.getRowSize());
+
+    MemoryBudget budget = QueryResourceManager.getInstance().acquireMemoryBudget(-1L);
+    long occupied = budget.getLimit() - MemoryTracker.estimateSize(table.getRow(0));
+    assertTrue(budget.tryReserve(occupied));
+    MemoryTracker memory = new MemoryTracker(budget);
+    try {
+      // 预算只够缓存一行，超出后放弃物化
+      assertNull(SharedScan.materialize(table(), memory));
+      memory.releaseAll();
+      assertEquals(occupied, budget.getUsed());
+    } finally {
+      budget.release(occupied);
+      memory.close();
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.queue;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import org.junit.After;
+import org.junit.Test;
+
+public class StoragePhysicalTaskSchedulerTest {
+
+  private StoragePhysicalTaskScheduler scheduler;
+
+  @After
+  public void tearDown() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testTasksDispatchedInSubmitOrder() throws InterruptedException {
+    int units = 8;
+    int tasksPerUnit = 200;
+    Map<String, List<StoragePhysicalTask>> dispatched = new ConcurrentHashMap<>();
+    Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    AtomicBoolean overlapped = new AtomicBoolean();
+    CountDownLatch done = new CountDownLatch(units * tasksPerUnit);
+    scheduler =
+        new StoragePhysicalTaskScheduler(
+            4,
+            3,
+            storageEngineId -> true,
+            (queue, tasks) -> {
+              // 同一存储单元不应同时被两个调度线程处理
+              if (!inFlight.add(queue.getStorageUnitId())) {
+                overlapped.set(true);
+              }
+              dispatched
+                  .computeIfAbsent(
+                      queue.getStorageUnitId(),
+                      k -> Collections.synchronizedList(new ArrayList<>()))
+                  .addAll(tasks);
+              inFlight.remove(queue.getStorageUnitId());
+              tasks.forEach(task -> done.countDown());
+            });
+
+    Map<String, List<StoragePhysicalTask>> submitted = new HashMap<>();
+    for (int i = 0; i < units; i++) {
+      assertTrue(scheduler.register("unit" + i, i % 3, false));
+      submitted.put("unit" + i, new ArrayList<>());
+    }
+    assertFalse(scheduler.register("unit0", 0, false));
+    for (int j = 0; j < tasksPerUnit; j++) {
+      for (int i = 0; i < units; i++) {
+        StoragePhysicalTask task = task();
+        submitted.get("unit" + i).add(task);
+        scheduler.addTask("unit" + i, task);
+      }
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertFalse(overlapped.get());
+    assertEquals(submitted, dispatched);
+    assertEquals(0, scheduler.getPendingTaskCount());
+  }
+
+  @Test
+  public void testStorageEnginesTakeTurns() throws InterruptedException {
+    // 单个调度线程、每次派发一个任务：引擎 1 有 10 个存储单元，引擎 2 只有 1 个，两者仍应交替派发
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch gateEntered = new CountDownLatch(1);
+    CountDownLatch gateReleased = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1 + 10 * 10 + 10);
+    scheduler =
+        new StoragePhysicalTaskScheduler(
+            1,
+            1,
+            storageEngineId -> true,
+            (queue, tasks) -> {
+              if (queue.getStorageUnitId().equals("gate")) {
+                gateEntered.countDown();
+                await(gateReleased);
+              } else {
+                order.add(queue.getStorageUnitId());
+              }
+              done.countDown();
+            });
+
+    // 先占住唯一的调度线程，使后续任务全部就绪后再开始派发
+    scheduler.register("gate", 0, false);
+    scheduler.addTask("gate", task());
+    assertTrue(gateEntered.await(10, TimeUnit.SECONDS));
+
+    for (int i = 0; i < 10; i++) {
+      scheduler.register("a" + i, 1, false);
+    }
+    scheduler.register("b", 2, false);
+    for (int j = 0; j < 10; j++) {
+      for (int i = 0; i < 10; i++) {
+        scheduler.addTask("a" + i, task());
+      }
+      scheduler.addTask("b", task());
+    }
+    assertEquals(11, scheduler.getReadyStorageUnitCount());
+    gateReleased.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    assertEquals(110, order.size());
+    for (int k = 0; k < 20; k++) {
+      // 引擎之间轮转
+      assertEquals(k % 2 == 0, order.get(k).startsWith("a"));
+    }
+    // 同一引擎的存储单元之间轮转
+    Set<String> firstRound = new HashSet<>();
+    for (int k = 0; k < 20; k += 2) {
+      firstRound.add(order.get(k));
+    }
+    assertEquals(10, firstRound.size());
+  }
+
+  @Test
+  public void testStorageNotReadyDoesNotBlockOthers() throws InterruptedException {
+    AtomicBoolean ready = new AtomicBoolean();
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch otherDispatched = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(3);
+    BiConsumer<StoragePhysicalTaskQueue, List<StoragePhysicalTask>> dispatcher =
+        (queue, tasks) -> {
+          for (StoragePhysicalTask task : tasks) {
+            order.add(queue.getStorageUnitId());
+            if (queue.getStorageUnitId().equals("other")) {
+              otherDispatched.countDown();
+            }
+            done.countDown();
+          }
+        };
+    scheduler =
+        new StoragePhysicalTaskScheduler(
+            1, 4, storageEngineId -> storageEngineId != 1 || ready.get(), dispatcher);
+    scheduler.register("pending", 1, false);
+    scheduler.register("other", 2, false);
+
+    scheduler.addTask("pending", task());
+    scheduler.addTask("pending", task());
+    scheduler.addTask("other", task());
+    assertTrue(otherDispatched.await(10, TimeUnit.SECONDS));
+    assertEquals(2, scheduler.getQueueDepth("pending"));
+
+    // 存储引擎就绪后，重试的存储单元按提交顺序派发
+    ready.set(true);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals("other", order.get(0));
+    assertEquals(0, scheduler.getQueueDepth("pending"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownStorageUnit() {
+    scheduler = new StoragePhysicalTaskScheduler(1, 1, storageEngineId -> true, (q, t) -> {});
+    scheduler.addTask("unknown", task());
+  }
+
+  private static StoragePhysicalTask task() {
+    return new StoragePhysicalTask(
+        Collections.emptyList(), null, true, false, new RequestContext());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
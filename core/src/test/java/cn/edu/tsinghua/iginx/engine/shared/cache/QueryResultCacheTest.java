@@ -0,0 +1,142 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.cache;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.metadata.entity.ColumnsInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.KeyInterval;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class QueryResultCacheTest {
+
+  private static final Header HEADER =
+      new Header(Field.KEY, Collections.singletonList(new Field("a.b", DataType.LONG)));
+
+  private static RowStream rows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(new Row(HEADER, i, new Object[] {(long) i}));
+    }
+    return new Table(HEADER, rows);
+  }
+
+  private static int count(RowStream stream) throws PhysicalException {
+    int count = 0;
+    while (stream.hasNext()) {
+      stream.next();
+      count++;
+    }
+    return count;
+  }
+
+  private static QueryResultCache newCache() {
+    return new QueryResultCache(1024 * 1024, Long.MAX_VALUE, 100);
+  }
+
+  @Test
+  public void testInvalidateByRegion() throws PhysicalException {
+    QueryResultCache cache = newCache();
+    FragmentMeta first = new FragmentMeta("a", "c", 0, 100);
+    FragmentMeta second = new FragmentMeta("c", "e", 0, 100);
+    cache.put("q1", Collections.singletonList(first), cache.getVersion(), rows(3));
+    cache.put("q2", Collections.singletonList(second), cache.getVersion(), rows(3));
+    cache.put("q3", Arrays.asList(first, second), cache.getVersion(), rows(3));
+    assertEquals(3, count(cache.get("q1")));
+
+    // key 区间不相交时不失效
+    cache.invalidate(new ColumnsInterval("a.b", "a.c"), new KeyInterval(200, 300));
+    assertEquals(3, cache.getEntryCount());
+
+    cache.invalidate(new ColumnsInterval("a.b", "a.c"), new KeyInterval(50, 60));
+    assertNull(cache.get("q1"));
+    assertNull(cache.get("q3"));
+    assertNotNull(cache.get("q2"));
+    assertEquals(2, cache.getInvalidationCount());
+
+    cache.invalidate(Collections.singletonList(second));
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(0, cache.getMemoryUsage());
+  }
+
+  @Test
+  public void testIndexSnapshotsRegion() throws PhysicalException {
+    QueryResultCache cache = newCache();
+    FragmentMeta fragment = new FragmentMeta("a", "c", 0, Long.MAX_VALUE);
+    cache.put("q", Collections.singletonList(fragment), cache.getVersion(), rows(1));
+
+    // 分片分裂时会修改原分片的区间，索引中保留的是放入缓存时的区间
+    fragment.getKeyInterval().setEndKey(100);
+    cache.invalidate(new ColumnsInterval("a", "c"), new KeyInterval(200, 300));
+    assertNull(cache.get("q"));
+  }
+
+  @Test
+  public void testInvalidatedDuringExecution() throws PhysicalException {
+    QueryResultCache cache = newCache();
+    FragmentMeta fragment = new FragmentMeta("a", "c", 0, 100);
+    long version = cache.getVersion();
+    cache.invalidate(new ColumnsInterval("x", "y"), new KeyInterval(0, 1));
+
+    // 执行期间发生过失效的结果仍然完整返回，但不放入缓存
+    assertEquals(3, count(cache.put("q", Collections.singletonList(fragment), version, rows(3))));
+    assertNull(cache.get("q"));
+  }
+
+  @Test
+  public void testTooManyRows() throws PhysicalException {
+    QueryResultCache cache = new QueryResultCache(1024 * 1024, Long.MAX_VALUE, 10);
+    FragmentMeta fragment = new FragmentMeta("a", "c", 0, 100);
+    RowStream stream = cache.put("q", Collections.singletonList(fragment), 0, rows(25));
+    assertEquals(25, count(stream));
+    assertNull(cache.get("q"));
+  }
+
+  @Test
+  public void testEvictionUnindexes() throws PhysicalException {
+    QueryResultCache cache = newCache();
+    FragmentMeta fragment = new FragmentMeta("a", "c", 0, 100);
+    cache.put("q1", Collections.singletonList(fragment), 0, rows(1));
+    long size = cache.getMemoryUsage();
+
+    QueryResultCache small = new QueryResultCache(size, Long.MAX_VALUE, 100);
+    small.put("q1", Collections.singletonList(fragment), 0, rows(1));
+    small.put("q2", Collections.singletonList(fragment), 0, rows(1));
+    assertEquals(1, small.getEntryCount());
+    assertEquals(1, small.getEvictionCount());
+    assertNull(small.get("q1"));
+
+    small.invalidate(Collections.singletonList(fragment));
+    assertEquals(0, small.getEntryCount());
+    assertEquals(1, small.getInvalidationCount());
+  }
+}
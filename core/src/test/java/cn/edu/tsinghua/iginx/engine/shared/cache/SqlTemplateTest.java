@@ -0,0 +1,106 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.cache;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.sql.IginXSqlVisitor;
+import cn.edu.tsinghua.iginx.sql.SQLParseError;
+import cn.edu.tsinghua.iginx.sql.SqlParser;
+import cn.edu.tsinghua.iginx.sql.statement.select.UnarySelectStatement;
+import java.util.Arrays;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.Test;
+
+public class SqlTemplateTest {
+
+  private static ParseTree parse(SqlTemplate template) {
+    SqlParser parser = new SqlParser(new CommonTokenStream(template.newTokenSource()));
+    parser.removeErrorListeners();
+    parser.addErrorListener(SQLParseError.INSTANCE);
+    return parser.sqlStatement();
+  }
+
+  private static UnarySelectStatement visit(SqlTemplate template, ParseTree tree) {
+    return (UnarySelectStatement) template.bind(() -> new IginXSqlVisitor().visit(tree));
+  }
+
+  @Test
+  public void testTemplate() {
+    SqlTemplate template = SqlTemplate.of("SELECT a FROM test WHERE a > 100 LIMIT 10;");
+    assertNotNull(template);
+    assertEquals(Arrays.asList("100", "10"), template.getLiterals());
+
+    // 空白与注释不影响模板，常量不同时模板相同而计划的缓存键不同
+    SqlTemplate other = SqlTemplate.of("SELECT a  FROM test /* x */ WHERE a > 200 LIMIT 5;");
+    assertEquals(template.getTemplate(), other.getTemplate());
+    assertNotEquals(template.getKey(), other.getKey());
+
+    // 词法类型不同的常量对应不同的语法树
+    SqlTemplate string = SqlTemplate.of("SELECT a FROM test WHERE a > \"100\" LIMIT 10;");
+    assertNotEquals(template.getTemplate(), string.getTemplate());
+  }
+
+  @Test
+  public void testOnlyQueriesTokenized() {
+    assertNull(SqlTemplate.of(null));
+    assertNull(SqlTemplate.of("INSERT INTO a.b (key, c) VALUES (1, 2);"));
+    assertNull(SqlTemplate.of("SHOW COLUMNS;"));
+    assertNotNull(SqlTemplate.of("  explain SELECT a FROM test;"));
+    assertNotNull(SqlTemplate.of("WITH t AS (SELECT a FROM test) SELECT a FROM t;"));
+    assertNotNull(SqlTemplate.of("(SELECT a FROM test) UNION (SELECT b FROM test);"));
+  }
+
+  @Test
+  public void testLexerError() {
+    // 词法错误交由语法解析报告，不能因为跳过了非法字符而命中其他语句的计划
+    assertNull(SqlTemplate.of("SELECT a FROM test WHERE a > 1 ? ;"));
+  }
+
+  @Test
+  public void testBindLiterals() {
+    SqlTemplate first = SqlTemplate.of("SELECT a FROM test WHERE a > 100 LIMIT 10;");
+    ParseTree tree = parse(first);
+
+    SqlTemplate second = SqlTemplate.of("SELECT a FROM test WHERE a > 200 LIMIT 5;");
+    UnarySelectStatement statement = visit(second, tree);
+    assertEquals(5, statement.getLimit());
+    assertEquals("test.a > 200", statement.getFilter().toString());
+
+    // 绑定只在生成语句期间有效
+    assertEquals(10, visit(first, tree).getLimit());
+  }
+
+  @Test
+  public void testNowNotPlanCacheable() {
+    assertTrue(SqlTemplate.of("SELECT a FROM test WHERE key > 100;").isPlanCacheable());
+
+    SqlTemplate template = SqlTemplate.of("SELECT a FROM test WHERE key > now();");
+    assertNotNull(template);
+    assertFalse(template.isPlanCacheable());
+
+    // 语法树仍然按模板复用，每次生成语句时重新取当前时间
+    ParseTree tree = parse(template);
+    String first = visit(template, tree).getFilter().toString();
+    String second = visit(template, tree).getFilter().toString();
+    assertNotEquals(first, second);
+  }
+}
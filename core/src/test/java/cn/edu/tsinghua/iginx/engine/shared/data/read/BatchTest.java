@@ -0,0 +1,179 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.KeyFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class BatchTest {
+
+  private static final Header HEADER =
+      new Header(
+          Field.KEY,
+          Arrays.asList(new Field("a", DataType.LONG), new Field("b", DataType.BINARY)));
+
+  /** a 在 key 为 3 的倍数时为空，b 在 key 为 5 的倍数时为空，key 为 15 的倍数时整行为空 */
+  private static List<Row> rows(Header header, int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Object a = i % 3 == 0 ? null : (long) i;
+      Object b = i % 5 == 0 ? null : String.valueOf(i).getBytes();
+      rows.add(new Row(header, i, new Object[] {a, b}));
+    }
+    return rows;
+  }
+
+  private static void assertRowsEqual(List<Row> expected, List<Row> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+      assertTrue(Arrays.deepEquals(expected.get(i).getValues(), actual.get(i).getValues()));
+    }
+  }
+
+  private static List<Row> collect(BatchStream stream) throws PhysicalException {
+    List<Row> rows = new ArrayList<>();
+    while (stream.hasNext()) {
+      Batch batch = stream.nextBatch();
+      assertFalse(batch.isEmpty());
+      rows.addAll(batch.toRows());
+    }
+    return rows;
+  }
+
+  @Test
+  public void testConcatAcrossBatchBoundaries() {
+    // 各批的行数不是 64 的整数倍，空值位图需要在拼接时按偏移写入
+    List<Row> rows = rows(HEADER, 150);
+    List<Batch> batches =
+        Arrays.asList(
+            Batch.fromRows(HEADER, rows.subList(0, 63)),
+            Batch.fromRows(HEADER, Collections.emptyList()),
+            Batch.fromRows(HEADER, rows.subList(63, 133)),
+            Batch.fromRows(HEADER, rows.subList(133, 150)));
+
+    Batch batch = Batch.concat(HEADER, batches);
+    assertEquals(150, batch.getRowCount());
+    assertEquals(50, batch.getColumn(0).nullCount(150));
+    assertEquals(30, batch.getColumn(1).nullCount(150));
+    assertRowsEqual(rows, batch.toRows());
+  }
+
+  @Test
+  public void testConcatWithoutKey() {
+    Header header = new Header(HEADER.getFields());
+    List<Row> rows = rows(header, 10);
+    Batch batch =
+        Batch.concat(
+            header,
+            Arrays.asList(
+                Batch.fromRows(header, rows.subList(0, 4)),
+                Batch.fromRows(header, rows.subList(4, 10))));
+    assertNull(batch.getKeys());
+    assertEquals(Row.NON_EXISTED_KEY, batch.getKey(0));
+    assertEquals(10, batch.getRowCount());
+    assertNull(batch.getColumn(0).getObject(9));
+    assertEquals(8L, batch.getColumn(0).getObject(8));
+  }
+
+  @Test
+  public void testConcatEmpty() {
+    assertTrue(Batch.concat(HEADER, Collections.emptyList()).isEmpty());
+    Batch empty = Batch.fromRows(HEADER, Collections.emptyList());
+    assertSame(empty, Batch.concat(HEADER, Collections.singletonList(empty)));
+    assertTrue(Batch.concat(HEADER, Arrays.asList(empty, empty)).isEmpty());
+  }
+
+  @Test
+  public void testCopyFromOverwritesValues() {
+    ColumnVector source = ColumnVector.allocate(DataType.LONG, 3);
+    source.putLong(1, 7);
+    ColumnVector target = ColumnVector.allocate(DataType.LONG, 5);
+    for (int i = 0; i < 5; i++) {
+      target.putLong(i, -1);
+    }
+
+    target.copyFrom(source, 3, 2);
+    assertEquals(-1L, target.getObject(0));
+    assertEquals(-1L, target.getObject(1));
+    assertTrue(target.isNull(2));
+    assertEquals(7L, target.getObject(3));
+    assertTrue(target.isNull(4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyFromDifferentType() {
+    ColumnVector.allocate(DataType.LONG, 1)
+        .copyFrom(ColumnVector.allocate(DataType.INTEGER, 1), 1, 0);
+  }
+
+  @Test
+  public void testFilterSkipsEmptyBatches() throws PhysicalException {
+    List<Row> rows = rows(HEADER, 10);
+    // 每批 4 行，前两批全部被过滤掉
+    BatchStream stream =
+        new FilterBatchStreamWrapper(
+            new RowToBatchStreamWrapper(new Table(HEADER, rows), 4), new KeyFilter(Op.GE, 8));
+    assertRowsEqual(rows.subList(8, 10), collect(stream));
+
+    BatchStream nothing =
+        new FilterBatchStreamWrapper(
+            new RowToBatchStreamWrapper(new Table(HEADER, rows), 4), new KeyFilter(Op.G, 100));
+    assertFalse(nothing.hasNext());
+
+    // 行式的适配器同样不会因空批提前结束
+    RowStream rowStream =
+        new BatchToRowStreamWrapper(
+            new FilterBatchStreamWrapper(
+                new RowToBatchStreamWrapper(new Table(HEADER, rows), 3), new KeyFilter(Op.E, 7)));
+    assertTrue(rowStream.hasNext());
+    assertEquals(7, rowStream.next().getKey());
+    assertFalse(rowStream.hasNext());
+  }
+
+  @Test
+  public void testClearEmptyRows() throws PhysicalException {
+    // 第一批只有 key 为 0 的一行，整行为空，整批都应被跳过
+    List<Row> rows = rows(HEADER, 31);
+    List<Row> expected = new ArrayList<>();
+    for (Row row : rows) {
+      if (row.getKey() % 15 != 0) {
+        expected.add(row);
+      }
+    }
+    BatchStream stream =
+        new ClearEmptyBatchStreamWrapper(new RowToBatchStreamWrapper(new Table(HEADER, rows), 1));
+    assertRowsEqual(expected, collect(stream));
+
+    stream =
+        new ClearEmptyBatchStreamWrapper(new RowToBatchStreamWrapper(new Table(HEADER, rows), 16));
+    assertRowsEqual(expected, collect(stream));
+  }
+}
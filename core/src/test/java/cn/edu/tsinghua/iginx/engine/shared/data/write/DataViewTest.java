@@ -0,0 +1,100 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.write;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class DataViewTest {
+
+  private static final long[] KEYS = {1, 3, 5, 7, 9};
+
+  private static final List<String> PATHS = Arrays.asList("a", "b", "b", "c");
+
+  /** 第 0 列全部有值，第 i 列只在下标不是 i + 1 的倍数处有值，按顺序存放 i * 100 + 下标 */
+  private static RawData columnData() {
+    Object[] valuesList = new Object[PATHS.size()];
+    List<DataType> dataTypeList = new ArrayList<>();
+    List<Bitmap> bitmaps = new ArrayList<>();
+    for (int i = 0; i < PATHS.size(); i++) {
+      List<Object> values = new ArrayList<>();
+      Bitmap bitmap = new Bitmap(KEYS.length);
+      for (int j = 0; j < KEYS.length; j++) {
+        if (i == 0 || j % (i + 1) != 0) {
+          values.add(i * 100L + j);
+          bitmap.mark(j);
+        }
+      }
+      valuesList[i] = values.toArray();
+      dataTypeList.add(DataType.LONG);
+      bitmaps.add(bitmap);
+    }
+    return new RawData(
+        PATHS,
+        Collections.emptyList(),
+        KEYS,
+        valuesList,
+        dataTypeList,
+        bitmaps,
+        RawDataType.Column);
+  }
+
+  @Test
+  public void testKeyIndexNearEdges() {
+    DataView view = new ColumnDataView(columnData(), 0, PATHS.size(), 1, 4);
+    assertEquals(-1, view.getKeyIndex(1));
+    assertEquals(0, view.getKeyIndex(3));
+    assertEquals(2, view.getKeyIndex(7));
+    // 结束下标处的key不在视图内
+    assertEquals(-1, view.getKeyIndex(9));
+    assertEquals(-1, view.getKeyIndex(4));
+    assertEquals(-1, view.getKeyIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testPathIndexNearEdges() {
+    DataView view = new ColumnDataView(columnData(), 1, PATHS.size(), 0, KEYS.length);
+    assertEquals(-1, view.getPathIndex("a"));
+    assertEquals(0, view.getPathIndex("b"));
+    assertEquals(2, view.getPathIndex("c"));
+    assertEquals(-1, view.getPathIndex("d"));
+
+    // 重复的路径被切开时，返回视图内的第一个
+    DataView second = new ColumnDataView(columnData(), 2, 3, 0, KEYS.length);
+    assertEquals(0, second.getPathIndex("b"));
+    assertEquals(-1, new ColumnDataView(columnData(), 0, 1, 0, KEYS.length).getPathIndex("b"));
+  }
+
+  @Test
+  public void testValueOffsetNearEdges() {
+    // 列 "b" 在下标 1、3 处有值，视图从下标 2 开始时第一个值来自下标 3
+    DataView view = new ColumnDataView(columnData(), 1, 2, 2, KEYS.length);
+    assertFalse(view.getBitmapView(0).get(0));
+    assertTrue(view.getBitmapView(0).get(1));
+    assertEquals(103L, view.getValue(0, 0));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.metadata.cache;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.metadata.entity.ColumnsInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.KeyInterval;
+import java.util.*;
+import org.junit.Test;
+
+public class FragmentIndexTest {
+
+  private static final String[] BOUNDS = {null, "a.b", "c.d", "e.f", null};
+
+  private static List<FragmentMeta> createFragments() {
+    List<FragmentMeta> fragments = new ArrayList<>();
+    for (int k = 0; k < 3; k++) {
+      for (int i = 0; i + 1 < BOUNDS.length; i++) {
+        long endKey = k == 2 ? Long.MAX_VALUE : (k + 1) * 100L;
+        fragments.add(new FragmentMeta(BOUNDS[i], BOUNDS[i + 1], k * 100L, endKey));
+      }
+    }
+    return fragments;
+  }
+
+  private static FragmentIndex buildIndex(List<FragmentMeta> fragments) {
+    FragmentIndex index = FragmentIndex.EMPTY;
+    for (FragmentMeta fragment : fragments) {
+      index = index.add(fragment);
+    }
+    return index;
+  }
+
+  private static Set<FragmentMeta> search(
+      FragmentIndex index, ColumnsInterval columnsInterval, KeyInterval keyInterval) {
+    Set<FragmentMeta> result = new HashSet<>();
+    for (FragmentIndex.FragmentSeries series : index.search(columnsInterval)) {
+      result.addAll(series.search(keyInterval));
+    }
+    return result;
+  }
+
+  @Test
+  public void testSearch() {
+    FragmentIndex index = buildIndex(createFragments());
+    assertEquals(12, index.size());
+    assertEquals(4, index.getSeriesList().size());
+
+    List<FragmentIndex.FragmentSeries> seriesList = index.search("c.d.x");
+    assertEquals(1, seriesList.size());
+    assertEquals(new ColumnsInterval("c.d", "e.f"), seriesList.get(0).getColumnsInterval());
+    assertEquals(Long.MAX_VALUE, seriesList.get(0).getLatest().getKeyInterval().getEndKey());
+
+    Set<FragmentMeta> result =
+        search(index, new ColumnsInterval("a.c", "c.e"), new KeyInterval(150, 250));
+    assertEquals(4, result.size());
+    for (FragmentMeta fragment : result) {
+      assertTrue(fragment.getKeyInterval().getStartKey() >= 100);
+    }
+    result = search(index, new ColumnsInterval(null, null), new KeyInterval(0, 500));
+    assertEquals(12, result.size());
+  }
+
+  @Test
+  public void testSearchMatchesScan() {
+    Random random = new Random(0);
+    List<FragmentMeta> fragments = new ArrayList<>();
+    FragmentIndex index = FragmentIndex.EMPTY;
+    for (int i = 0; i < 200; i++) {
+      String start = random.nextInt(5) == 0 ? null : String.format("c%03d", random.nextInt(1000));
+      String end = random.nextInt(5) == 0 ? null : String.format("c%03d", random.nextInt(1000));
+      if (start != null && end != null && start.compareTo(end) > 0) {
+        String tmp = start;
+        start = end;
+        end = tmp;
+      }
+      long startKey = random.nextInt(1000);
+      FragmentMeta fragment = new FragmentMeta(start, end, startKey, startKey + 100);
+      if (index.getSeries(fragment.getColumnsInterval()) != null) {
+        continue;
+      }
+      index = index.add(fragment);
+      fragments.add(fragment);
+    }
+    for (int i = 0; i < 1000; i++) {
+      String start = random.nextBoolean() ? null : String.format("c%03d", random.nextInt(1000));
+      String end = random.nextBoolean() ? null : String.format("c%03d", random.nextInt(1000));
+      if (start != null && random.nextInt(4) == 0) {
+        start = start.substring(0, 3) + "*";
+      }
+      ColumnsInterval columnsInterval = new ColumnsInterval(start, end);
+      long startKey = random.nextInt(1200);
+      KeyInterval keyInterval = new KeyInterval(startKey, startKey + random.nextInt(300));
+
+      Set<FragmentMeta> expected = new HashSet<>();
+      for (FragmentMeta fragment : fragments) {
+        if (fragment.getColumnsInterval().isIntersect(columnsInterval)
+            && fragment.getKeyInterval().isIntersect(keyInterval)) {
+          expected.add(fragment);
+        }
+      }
+      assertEquals(expected, search(index, columnsInterval, keyInterval));
+    }
+  }
+
+  @Test
+  public void testCopyOnWrite() {
+    List<FragmentMeta> fragments = createFragments();
+    FragmentIndex index = buildIndex(fragments);
+
+    FragmentMeta first = fragments.get(0);
+    FragmentIndex removed = index.remove(first.getColumnsInterval(), first);
+    assertEquals(12, index.size());
+    assertEquals(11, removed.size());
+
+    FragmentIndex evicted = index.evict(0L);
+    assertEquals(8, evicted.size());
+    assertEquals(4, evicted.getSeriesList().size());
+
+    FragmentMeta latest = index.getSeries(new ColumnsInterval("a.b", "c.d")).getLatest();
+    FragmentMeta replacement = new FragmentMeta("a.b", "b.b", 200L, Long.MAX_VALUE);
+    FragmentIndex replaced = index.replaceLast(latest.getColumnsInterval(), replacement);
+    assertNull(replaced.getSeries(new ColumnsInterval("a.b", "c.d")));
+    assertSame(replacement, replaced.getSeries(new ColumnsInterval("a.b", "b.b")).getLatest());
+    assertSame(latest, index.getSeries(new ColumnsInterval("a.b", "c.d")).getLatest());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.resource;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.Result;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class QueryResourceManagerTest {
+
+  private final QueryResourceManager manager = QueryResourceManager.getInstance();
+
+  @Test
+  public void testReleaseSessionQueries() {
+    RequestContext first = new RequestContext(101L, "select * from a;");
+    RequestContext second = new RequestContext(101L, "select * from b;");
+    RequestContext other = new RequestContext(102L, "select * from c;");
+    AtomicBoolean firstClosed = attach(first);
+    AtomicBoolean secondClosed = attach(second);
+    AtomicBoolean otherClosed = attach(other);
+
+    manager.releaseSessionQueries(101L);
+
+    assertTrue(firstClosed.get());
+    assertTrue(secondClosed.get());
+    assertNull(manager.getQuery(first.getId()));
+    assertNull(manager.getQuery(second.getId()));
+    assertFalse(otherClosed.get());
+    assertSame(other, manager.getQuery(other.getId()));
+
+    manager.releaseQuery(other.getId());
+    assertTrue(otherClosed.get());
+  }
+
+  @Test
+  public void testReleaseIdleQueries() throws InterruptedException {
+    RequestContext idle = new RequestContext(201L, "select * from a;");
+    RequestContext active = new RequestContext(201L, "select * from b;");
+    AtomicBoolean idleClosed = attach(idle);
+    AtomicBoolean activeClosed = attach(active);
+
+    Thread.sleep(5);
+    long deadline = System.currentTimeMillis();
+    Thread.sleep(5);
+    // 拉取结果会刷新访问时间，只有在截止时间之前最后一次被访问的查询会被释放
+    assertSame(active, manager.getQuery(active.getId()));
+    manager.releaseIdleQueries(deadline);
+
+    assertTrue(idleClosed.get());
+    assertNull(manager.getQuery(idle.getId()));
+    assertFalse(activeClosed.get());
+
+    manager.releaseQuery(active.getId());
+    assertTrue(activeClosed.get());
+  }
+
+  /** 为查询设置一个尚未读完的结果流并注册，返回的标志在结果流关闭时置位 */
+  private AtomicBoolean attach(RequestContext context) {
+    AtomicBoolean closed = new AtomicBoolean(false);
+    Result result = new Result(RpcUtils.SUCCESS);
+    result.setResultStream(
+        new Table(Header.EMPTY_HEADER, Collections.emptyList()) {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        });
+    context.setResult(result);
+    manager.registerQuery(context.getId(), context);
+    return closed;
+  }
+}
@@ -239,7 +239,7 @@ public class FileSystemStorage implements IStorage {
       return false;
     }
 
-    // just push down count(*) for now
+    // push down a single system aggregate, answered from parquet statistics where possible
     List<FunctionCall> functionCalls = setTransform.getFunctionCallList();
     if (functionCalls.size() != 1) {
       return false;
@@ -250,14 +250,33 @@ public class FileSystemStorage implements IStorage {
     if (function.getFunctionType() != FunctionType.System) {
       return false;
     }
-    if (!function.getIdentifier().equals("count")) {
+    if (aggregateTypeOf(function.getIdentifier()) == null) {
       return false;
     }
-    if (params.getPaths().size() != 1) {
-      return false;
+    // the aggregated columns are given by the project, which matches the single path param
+    return !params.isDistinct() && params.getPaths().size() == 1;
+  }
+
+  @Nullable
+  private static AggregateType aggregateTypeOf(String identifier) {
+    switch (identifier) {
+      case "count":
+        return AggregateType.COUNT;
+      case "min":
+        return AggregateType.MIN;
+      case "max":
+        return AggregateType.MAX;
+      case "sum":
+        return AggregateType.SUM;
+      case "avg":
+        return AggregateType.AVG;
+      case "first_value":
+        return AggregateType.FIRST_VALUE;
+      case "last_value":
+        return AggregateType.LAST_VALUE;
+      default:
+        return null;
     }
-    String path = params.getPaths().get(0);
-    return path.equals("*") || path.equals("*.*");
   }
 
   @Override
@@ -270,8 +289,9 @@ public class FileSystemStorage implements IStorage {
     DataArea reshapedDataArea =
         new DataArea(dataArea.getStorageUnit(), KeyInterval.getDefaultKeyInterval());
 
+    String identifier = setTransform.getFunctionCallList().get(0).getFunction().getIdentifier();
     return executeQuery(
-        unitOf(dataArea), getDataTargetOf(project, reshapedDataArea), AggregateType.COUNT);
+        unitOf(dataArea), getDataTargetOf(project, reshapedDataArea), aggregateTypeOf(identifier));
   }
 
   @Override
@@ -19,29 +19,70 @@
  */
 package cn.edu.tsinghua.iginx.filesystem.format.parquet;
 
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.FilterType;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.KeyFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.OrFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Pair;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import shaded.iginx.org.apache.parquet.filter2.predicate.FilterApi;
 import shaded.iginx.org.apache.parquet.filter2.predicate.FilterPredicate;
 import shaded.iginx.org.apache.parquet.filter2.predicate.Operators;
+import shaded.iginx.org.apache.parquet.io.api.Binary;
+import shaded.iginx.org.apache.parquet.schema.PrimitiveType;
+import shaded.iginx.org.apache.parquet.schema.Type;
 
 class FilterUtils {
 
   public static Pair<FilterPredicate, Boolean> toFilterPredicate(Filter filter) {
+    return toFilterPredicate(
+        filter,
+        leaf -> {
+          if (leaf.getType() == FilterType.Key) {
+            return toFilterPredicate((KeyFilter) leaf);
+          }
+          return new Pair<>(null, true);
+        });
+  }
+
+  /**
+   * 将值过滤条件转换为parquet谓词，只用于根据列统计信息跳过行组和页面。
+   *
+   * <p>只有路径精确对应某一列、且常量类型与列类型一致的比较才会被转换，其余条件视为恒真，因此得到的谓词是原条件的超集，读出的数据仍需按原条件过滤。
+   *
+   * @param filter 过滤条件
+   * @param columns 完整路径到parquet列的映射
+   * @return 转换结果，含义与{@link #toFilterPredicate(Filter)}相同
+   */
+  public static Pair<FilterPredicate, Boolean> toValuePredicate(
+      Filter filter, Map<String, PrimitiveType> columns) {
+    return toFilterPredicate(
+        filter,
+        leaf -> {
+          if (leaf.getType() == FilterType.Value) {
+            return toFilterPredicate((ValueFilter) leaf, columns);
+          }
+          return new Pair<>(null, true);
+        });
+  }
+
+  private static Pair<FilterPredicate, Boolean> toFilterPredicate(
+      Filter filter, Function<Filter, Pair<FilterPredicate, Boolean>> leafConverter) {
     switch (filter.getType()) {
-      case Key:
-        return toFilterPredicate((KeyFilter) filter);
       case And:
-        return toFilterPredicate((AndFilter) filter);
+        return toFilterPredicate((AndFilter) filter, leafConverter);
       case Or:
-        return toFilterPredicate((OrFilter) filter);
+        return toFilterPredicate((OrFilter) filter, leafConverter);
       default:
-        return new Pair<>(null, true);
+        return leafConverter.apply(filter);
     }
   }
 
@@ -82,16 +123,93 @@ class FilterUtils {
     return FilterApi.longColumn(Constants.KEY_FIELD_NAME);
   }
 
-  private static Pair<FilterPredicate, Boolean> toFilterPredicate(AndFilter filter) {
+  private static Pair<FilterPredicate, Boolean> toFilterPredicate(
+      ValueFilter filter, Map<String, PrimitiveType> columns) {
+    PrimitiveType column = columns.get(filter.getPath());
+    Value value = filter.getValue();
+    if (column == null
+        || value.isNull()
+        || column.getRepetition() == Type.Repetition.REPEATED
+        || column.getLogicalTypeAnnotation() != null
+        || column.getName().contains(".")) {
+      return new Pair<>(null, true);
+    }
+    if (IParquetReader.toIginxType(column) != value.getDataType()) {
+      return new Pair<>(null, true);
+    }
+
+    String name = column.getName();
+    Op op = filter.getOp();
+    FilterPredicate predicate;
+    switch (value.getDataType()) {
+      case INTEGER:
+        predicate = compare(FilterApi.intColumn(name), value.getIntV(), op);
+        break;
+      case LONG:
+        predicate = compare(FilterApi.longColumn(name), value.getLongV(), op);
+        break;
+      case BOOLEAN:
+        predicate = equal(FilterApi.booleanColumn(name), value.getBoolV(), op);
+        break;
+      case BINARY:
+        // 字节序与字符串比较的顺序不一定一致，只下推等值比较
+        Binary binary = Binary.fromConstantByteArray(value.getBinaryV());
+        predicate = equal(FilterApi.binaryColumn(name), binary, op);
+        break;
+      default:
+        // 浮点数的NaN与正负零在统计信息中的处理与IGinX不同，不下推
+        predicate = null;
+    }
+    return new Pair<>(predicate, predicate == null ? true : null);
+  }
+
+  private static <
+          T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+      FilterPredicate compare(C column, T value, Op op) {
+    switch (op) {
+      case GE:
+      case GE_AND:
+        return FilterApi.gtEq(column, value);
+      case G:
+      case G_AND:
+        return FilterApi.gt(column, value);
+      case LE:
+      case LE_AND:
+        return FilterApi.ltEq(column, value);
+      case L:
+      case L_AND:
+        return FilterApi.lt(column, value);
+      default:
+        return equal(column, value, op);
+    }
+  }
+
+  private static <
+          T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsEqNotEq>
+      FilterPredicate equal(C column, T value, Op op) {
+    switch (op) {
+      case E:
+      case E_AND:
+        return FilterApi.eq(column, value);
+      case NE:
+      case NE_AND:
+        return FilterApi.notEq(column, value);
+      default:
+        return null;
+    }
+  }
+
+  private static Pair<FilterPredicate, Boolean> toFilterPredicate(
+      AndFilter filter, Function<Filter, Pair<FilterPredicate, Boolean>> leafConverter) {
     if (filter.getChildren().stream()
-        .map(FilterUtils::toFilterPredicate)
+        .map(child -> toFilterPredicate(child, leafConverter))
         .map(Pair::getV)
         .filter(Objects::nonNull)
         .anyMatch(v -> !v)) {
       return new Pair<>(null, false);
     }
     return filter.getChildren().stream()
-        .map(FilterUtils::toFilterPredicate)
+        .map(child -> toFilterPredicate(child, leafConverter))
         .map(Pair::getK)
         .filter(Objects::nonNull)
         .reduce(FilterApi::and)
@@ -99,19 +217,20 @@ class FilterUtils {
         .orElseGet(() -> new Pair<>(null, true));
   }
 
-  private static Pair<FilterPredicate, Boolean> toFilterPredicate(OrFilter filter) {
+  private static Pair<FilterPredicate, Boolean> toFilterPredicate(
+      OrFilter filter, Function<Filter, Pair<FilterPredicate, Boolean>> leafConverter) {
     if (filter.getChildren().stream()
-        .map(FilterUtils::toFilterPredicate)
+        .map(child -> toFilterPredicate(child, leafConverter))
         .map(Pair::getV)
         .filter(Objects::nonNull)
         .anyMatch(v -> v)) {
       return new Pair<>(null, true);
     }
     return filter.getChildren().stream()
-        .map(FilterUtils::toFilterPredicate)
+        .map(child -> toFilterPredicate(child, leafConverter))
         .map(Pair::getK)
         .filter(Objects::nonNull)
-        .reduce(FilterApi::and)
+        .reduce(FilterApi::or)
         .map(filterPredicate -> new Pair<FilterPredicate, Boolean>(filterPredicate, null))
         .orElseGet(() -> new Pair<>(null, false));
   }
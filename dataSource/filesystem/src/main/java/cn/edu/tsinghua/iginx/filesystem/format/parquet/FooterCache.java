@@ -0,0 +1,80 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.format.parquet;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import shaded.iginx.org.apache.parquet.hadoop.metadata.BlockMetaData;
+import shaded.iginx.org.apache.parquet.hadoop.metadata.ParquetMetadata;
+
+/** parquet文件footer的缓存。以文件路径为键，命中时用修改时间和文件大小校验，文件被改写后重新读取。 */
+class FooterCache {
+
+  private static final long CAPACITY = 64L << 20;
+
+  private final Cache<Path, Entry> cache =
+      Caffeine.newBuilder()
+          .weigher((Path path, Entry entry) -> entry.weight)
+          .maximumWeight(CAPACITY)
+          .build();
+
+  ParquetMetadata get(Path path, IParquetReader.Builder builder) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    FileTime lastModified = attributes.lastModifiedTime();
+    long size = attributes.size();
+
+    Path key = path.toAbsolutePath().normalize();
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null && entry.size == size && entry.lastModified.equals(lastModified)) {
+      return entry.footer;
+    }
+    ParquetMetadata footer = builder.readFooter();
+    cache.put(key, new Entry(lastModified, size, footer));
+    return footer;
+  }
+
+  private static class Entry {
+    private final FileTime lastModified;
+    private final long size;
+    private final ParquetMetadata footer;
+    private final int weight;
+
+    Entry(FileTime lastModified, long size, ParquetMetadata footer) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.footer = footer;
+      this.weight = weightOf(footer);
+    }
+
+    /** 粗略估计footer占用的内存，与ParquetTableMeta的估计方式一致 */
+    private static int weightOf(ParquetMetadata footer) {
+      long weight = 256L * footer.getFileMetaData().getSchema().getFieldCount();
+      for (BlockMetaData block : footer.getBlocks()) {
+        weight += 512L * block.getColumns().size();
+      }
+      return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import shaded.iginx.org.apache.parquet.ParquetReadOptions;
@@ -206,12 +207,18 @@ public class IParquetReader implements Closeable {
 
     public IParquetReader build() throws IOException {
       ParquetReadOptions options = optionsBuilder.build();
-      ParquetMetadata footer;
+      return build(readFooter(options), options);
+    }
+
+    /** 只读取文件的footer，不打开记录读取器 */
+    public ParquetMetadata readFooter() throws IOException {
+      return readFooter(optionsBuilder.build());
+    }
+
+    private ParquetMetadata readFooter(ParquetReadOptions options) throws IOException {
       try (SeekableInputStream in = localInputfile.newStream()) {
-        footer = ParquetFileReader.readFooter(localInputfile, options, in);
+        return ParquetFileReader.readFooter(localInputfile, options, in);
       }
-
-      return build(footer, options);
     }
 
     public IParquetReader build(ParquetMetadata footer) throws IOException {
@@ -271,6 +278,22 @@ public class IParquetReader implements Closeable {
       return this;
     }
 
+    /**
+     * 只用谓词和行组统计信息、页面索引跳过不满足条件的行组和页面，不在记录级别过滤，读出的记录仍需由调用方过滤
+     *
+     * @param predicate 谓词，为null时不跳过
+     * @return this builder
+     */
+    public Builder prune(@Nullable FilterPredicate predicate) {
+      optionsBuilder.useRecordFilter(false);
+      if (predicate == null) {
+        optionsBuilder.withRecordFilter(FilterCompat.NOOP);
+      } else {
+        optionsBuilder.withRecordFilter(FilterCompat.get(predicate));
+      }
+      return this;
+    }
+
     public Builder withCodecFactory(int lz4BufferSize) {
       optionsBuilder.withCodecFactory(
           new CodecFactory(
@@ -34,6 +34,8 @@ public class ParquetFormat implements FileFormat {
 
   public static final String NAME = "Parquet";
 
+  private static final FooterCache FOOTERS = new FooterCache();
+
   @Override
   public String getName() {
     return NAME;
@@ -52,11 +54,7 @@ public class ParquetFormat implements FileFormat {
   @Override
   public Reader newReader(@Nullable String prefix, Path path, Config config) throws IOException {
     IParquetReader.Builder builder = IParquetReader.builder(path);
-    ParquetMetadata footer;
-    try (IParquetReader reader = builder.build()) {
-      footer = reader.getMeta();
-    }
-
+    ParquetMetadata footer = FOOTERS.get(path, builder);
     return new ParquetFormatReader(prefix, builder, footer);
   }
 }
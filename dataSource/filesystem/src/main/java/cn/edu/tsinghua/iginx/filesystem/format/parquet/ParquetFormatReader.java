@@ -22,15 +22,24 @@ package cn.edu.tsinghua.iginx.filesystem.format.parquet;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.filesystem.common.Filters;
 import cn.edu.tsinghua.iginx.filesystem.common.IginxPaths;
 import cn.edu.tsinghua.iginx.filesystem.common.Patterns;
 import cn.edu.tsinghua.iginx.filesystem.common.RowStreams;
 import cn.edu.tsinghua.iginx.filesystem.format.FileFormat;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data.FilterRangeUtils;
 import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
 import java.io.IOException;
 import java.util.*;
 import javax.annotation.Nullable;
+import shaded.iginx.org.apache.parquet.filter2.predicate.FilterPredicate;
+import shaded.iginx.org.apache.parquet.hadoop.metadata.BlockMetaData;
 import shaded.iginx.org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import shaded.iginx.org.apache.parquet.schema.PrimitiveType;
+import shaded.iginx.org.apache.parquet.schema.Type;
 
 public class ParquetFormatReader implements FileFormat.Reader {
 
@@ -40,6 +49,7 @@ public class ParquetFormatReader implements FileFormat.Reader {
   private final Map<String, DataType> fields = new HashMap<>();
   private final Map<String, String> fieldToRawName = new HashMap<>();
   private final Map<String, String> rawNameToField = new HashMap<>();
+  private final Map<String, PrimitiveType> columns = new HashMap<>();
 
   public ParquetFormatReader(
       @Nullable String prefix, IParquetReader.Builder builder, ParquetMetadata footer)
@@ -59,6 +69,9 @@ public class ParquetFormatReader implements FileFormat.Reader {
       this.fieldToRawName.put(fullName, rawName);
       this.rawNameToField.put(rawName, fullName);
     }
+    for (Type type : footer.getFileMetaData().getSchema().getFields()) {
+      columns.put(IginxPaths.join(prefix, type.getName()), type.asPrimitiveType());
+    }
   }
 
   @Override
@@ -87,9 +100,37 @@ public class ParquetFormatReader implements FileFormat.Reader {
       rawFields.add(fieldToRawName.get(field));
     }
 
-    IParquetReader reader = builder.project(rawFields, false).build(footer);
+    ParquetMetadata prunedFooter = footer;
+    FilterPredicate predicate = null;
+    if (!Filters.isTrue(filter)) {
+      prunedFooter = pruneRowGroups(FilterRangeUtils.rangeSetOf(filter));
+      Pair<FilterPredicate, Boolean> valuePredicate = FilterUtils.toValuePredicate(filter, columns);
+      predicate = valuePredicate.k;
+    }
+
+    IParquetReader reader = builder.project(rawFields, false).prune(predicate).build(prunedFooter);
 
     RowStream rowStream = new ParquetFormatRowStream(reader, rawNameToField::get);
     return RowStreams.filtered(rowStream, filter);
   }
+
+  /** 文件中的key即行号，根据key范围去掉不相交的行组，保留的行组仍带有原来的起始行号 */
+  private ParquetMetadata pruneRowGroups(RangeSet<Long> ranges) {
+    List<BlockMetaData> blocks = new ArrayList<>();
+    long rowIndexOffset = 0;
+    for (BlockMetaData block : footer.getBlocks()) {
+      long rowCount = block.getRowCount();
+      if (rowCount > 0) {
+        Range<Long> rowRange = Range.closedOpen(rowIndexOffset, rowIndexOffset + rowCount);
+        if (!ranges.subRangeSet(rowRange).isEmpty()) {
+          blocks.add(block);
+        }
+      }
+      rowIndexOffset += rowCount;
+    }
+    if (blocks.size() == footer.getBlocks().size()) {
+      return footer;
+    }
+    return new ParquetMetadata(footer.getFileMetaData(), blocks);
+  }
 }
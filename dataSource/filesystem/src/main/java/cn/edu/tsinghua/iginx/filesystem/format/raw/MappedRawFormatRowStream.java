@@ -0,0 +1,262 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.format.raw;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.filesystem.common.FileSystemException;
+import cn.edu.tsinghua.iginx.filesystem.common.FileSystemRowStream;
+import cn.edu.tsinghua.iginx.filesystem.common.Ranges;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于内存映射的原始文件读取流。按key区间把文件切分为若干读取任务，每个任务只映射自身覆盖的文件区域，并直接从映射区域拷贝出各页的数据；
+ * 多个任务在后台线程中并行执行，按key顺序输出结果。
+ *
+ * <p>所有读取流共享的后台线程数不超过 {@link #MAX_READERS}，线程用尽时任务由读取流在当前线程执行。每个任务拷贝完数据后立即解除映射；关闭时等待正在执行的任务结束，
+ * 因此关闭后不会残留映射区域。
+ */
+public class MappedRawFormatRowStream extends FileSystemRowStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedRawFormatRowStream.class);
+
+  /** 单个读取任务覆盖的最大字节数，同时决定了每个任务映射的区域大小 */
+  static final long TASK_BYTES = 4L << 20;
+
+  static final int MAX_READERS = Runtime.getRuntime().availableProcessors() * 2;
+
+  private static final ExecutorService READERS =
+      new ThreadPoolExecutor(
+          0,
+          MAX_READERS,
+          60L,
+          TimeUnit.SECONDS,
+          new SynchronousQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat("raw-reader-%d").setDaemon(true).build(),
+          new ThreadPoolExecutor.DiscardPolicy());
+
+  private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+  private final Header header;
+  private final FileChannel channel;
+  private final long pageSize;
+  private final long fileSize;
+  private final int parallelism;
+  private final Queue<Range<Long>> tasks = new ArrayDeque<>();
+  private final Queue<FutureTask<List<Row>>> pending = new ArrayDeque<>();
+  private Iterator<Row> current = Collections.emptyIterator();
+  // 读取任务持有读锁，关闭时获取写锁以等待正在映射文件的任务结束
+  private final ReadWriteLock mappingLock = new ReentrantReadWriteLock();
+  private volatile boolean closed;
+
+  public MappedRawFormatRowStream(
+      Header header, Path path, long pageSize, RangeSet<Long> keyRanges, int parallelism)
+      throws IOException {
+    this.header = header;
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.pageSize = pageSize;
+    this.parallelism = parallelism;
+    try {
+      this.fileSize = channel.size();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+
+    long lastKey = (fileSize + pageSize - 1) / pageSize - 1;
+    long pagesPerTask = Math.max(1, TASK_BYTES / pageSize);
+    for (Range<Long> range : keyRanges.asRanges()) {
+      Range<Long> closedRange = Ranges.toClosedLongRange(range);
+      if (closedRange.isEmpty() || closedRange.lowerEndpoint() > lastKey) {
+        continue;
+      }
+      long upper = Math.min(closedRange.upperEndpoint(), lastKey);
+      if (upper < 0) {
+        continue;
+      }
+      for (long lower = Math.max(0, closedRange.lowerEndpoint());
+          lower <= upper;
+          lower += pagesPerTask) {
+        tasks.add(Range.closed(lower, Math.min(upper, lower + pagesPerTask - 1)));
+      }
+    }
+
+    submit();
+  }
+
+  @Override
+  public Header getHeader() throws FileSystemException {
+    return header;
+  }
+
+  @Override
+  public void close() throws FileSystemException {
+    closed = true;
+    tasks.clear();
+    pending.forEach(task -> task.cancel(false));
+    pending.clear();
+    mappingLock.writeLock().lock();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new FileSystemException(e);
+    } finally {
+      mappingLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean hasNext() throws FileSystemException {
+    while (!current.hasNext()) {
+      FutureTask<List<Row>> task = pending.poll();
+      if (task == null) {
+        return false;
+      }
+      // 若后台线程尚未开始执行该任务，则直接在当前线程执行，避免等待
+      task.run();
+      try {
+        current = task.get().iterator();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new FileSystemException("interrupted while reading raw file", e);
+      } catch (ExecutionException | CancellationException e) {
+        throw new FileSystemException("failed to read raw file", e);
+      }
+      submit();
+    }
+    return true;
+  }
+
+  @Override
+  public Row next() throws FileSystemException {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  private void submit() {
+    while (pending.size() < parallelism && !tasks.isEmpty()) {
+      Range<Long> keys = tasks.poll();
+      FutureTask<List<Row>> task = new FutureTask<>(() -> read(keys));
+      if (parallelism > 1) {
+        READERS.execute(task);
+      }
+      pending.add(task);
+    }
+  }
+
+  private List<Row> read(Range<Long> keys) throws IOException {
+    mappingLock.readLock().lock();
+    try {
+      if (closed) {
+        return Collections.emptyList();
+      }
+      long firstKey = keys.lowerEndpoint();
+      long lastKey = keys.upperEndpoint();
+      long position = firstKey * pageSize;
+      long size = Math.min((lastKey + 1) * pageSize, fileSize) - position;
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      try {
+        List<Row> rows = new ArrayList<>(Math.toIntExact(lastKey - firstKey + 1));
+        for (long key = firstKey; key <= lastKey; key++) {
+          int offset = Math.toIntExact((key - firstKey) * pageSize);
+          int length = (int) Math.min(pageSize, size - offset);
+          byte[] data = new byte[length];
+          ByteBuffer page = mapped.duplicate();
+          page.position(offset);
+          page.get(data);
+          rows.add(new Row(header, key, new Object[] {data}));
+        }
+        return rows;
+      } finally {
+        UNMAPPER.accept(mapped);
+      }
+    } finally {
+      mappingLock.readLock().unlock();
+    }
+  }
+
+  /** 数据已经拷贝出映射区域，立即解除映射而不必等待 GC；不支持时退化为由 GC 回收 */
+  private static Consumer<ByteBuffer> unmapper() {
+    try {
+      // Java 9 及以上
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      return buffer -> invoke(invokeCleaner, unsafe, buffer);
+    } catch (ReflectiveOperationException | RuntimeException ignored) {
+    }
+    try {
+      // Java 8
+      Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      return buffer -> {
+        try {
+          invoke(clean, cleaner.invoke(buffer));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+          LOGGER.debug("failed to unmap buffer", e);
+        }
+      };
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.warn("unmapping is not supported, mapped buffers are released by GC", e);
+      return buffer -> {};
+    }
+  }
+
+  private static void invoke(Method method, Object target, Object... args) {
+    try {
+      method.invoke(target, args);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.debug("failed to unmap buffer", e);
+    }
+  }
+}
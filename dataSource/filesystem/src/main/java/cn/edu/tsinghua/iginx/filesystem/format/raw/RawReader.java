@@ -79,8 +79,14 @@ public class RawReader implements FileFormat.Reader {
 
     Filter keyRangeFilter = Filters.superSet(filter, removeNonKeyFilter);
     RangeSet<Long> keyRanges = Filters.toRangeSet(keyRangeFilter);
-    RowStream rowStream =
-        new RawFormatRowStream(header, path, config.getPageSize().toBytes(), keyRanges);
+    long pageSize = config.getPageSize().toBytes();
+    RowStream rowStream;
+    if (config.isMmap()) {
+      rowStream =
+          new MappedRawFormatRowStream(header, path, pageSize, keyRanges, config.getParallelism());
+    } else {
+      rowStream = new RawFormatRowStream(header, path, pageSize, keyRanges);
+    }
 
     if (!Filters.match(filter, removeNonKeyFilter)) {
       rowStream = RowStreams.filtered(rowStream, filter);
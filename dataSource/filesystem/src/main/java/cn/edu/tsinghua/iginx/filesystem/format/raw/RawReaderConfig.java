@@ -20,10 +20,11 @@
 package cn.edu.tsinghua.iginx.filesystem.format.raw;
 
 import cn.edu.tsinghua.iginx.filesystem.common.AbstractConfig;
+import com.google.common.collect.Range;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigMemorySize;
 import com.typesafe.config.Optional;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -36,9 +37,18 @@ public class RawReaderConfig extends AbstractConfig {
 
   @Optional ConfigMemorySize pageSize = ConfigMemorySize.ofBytes(4096);
 
+  @Optional boolean mmap = true;
+
+  @Optional int parallelism = 4;
+
   @Override
   public List<ValidationProblem> validate() {
-    return Collections.emptyList();
+    List<ValidationProblem> problems = new ArrayList<>();
+    if (validateNotNull(problems, Fields.pageSize, pageSize)) {
+      validateInRange(problems, Fields.pageSize, Range.atLeast(1L), pageSize.toBytes());
+    }
+    validateInRange(problems, Fields.parallelism, Range.atLeast(1), parallelism);
+    return problems;
   }
 
   public static RawReaderConfig of(Config config) {
@@ -21,9 +21,10 @@ package cn.edu.tsinghua.iginx.filesystem.service.rpc.client;
 
 import cn.edu.tsinghua.iginx.filesystem.common.AbstractConfig;
 import cn.edu.tsinghua.iginx.filesystem.service.rpc.client.pool.TTransportPoolConfig;
+import com.google.common.collect.Range;
 import com.typesafe.config.Optional;
 import java.time.Duration;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -37,13 +38,15 @@ public class ClientConfig extends AbstractConfig {
   @Optional Duration socketTimeout = Duration.ZERO;
   @Optional Duration connectTimeout = Duration.ZERO;
   @Optional TTransportPoolConfig connectPool = new TTransportPoolConfig();
+  @Optional int fetchSize = 4096;
 
   @Override
   public List<ValidationProblem> validate() {
-    List<ValidationProblem> problems = Collections.emptyList();
+    List<ValidationProblem> problems = new ArrayList<>();
     validateNotNull(problems, Fields.socketTimeout, socketTimeout);
     validateNotNull(problems, Fields.connectTimeout, connectTimeout);
     validateSubConfig(problems, Fields.connectPool, connectPool);
+    validateInRange(problems, Fields.fetchSize, Range.atLeast(1), fetchSize);
     return problems;
   }
 }
@@ -313,6 +313,41 @@ public class ClientObjectMappingUtils {
     return new Table(header, rowList);
   }
 
+  public static List<Row> constructRows(RawBatch batch, Header header) {
+    int rowCount = batch.getRowCount();
+    int fieldSize = header.getFieldSize();
+    Object[][] values = new Object[rowCount][fieldSize];
+    for (int j = 0; j < fieldSize; j++) {
+      DataType type = header.getField(j).getType();
+      Bitmap bitmap = new Bitmap(rowCount, toBytes(batch.getBitmapList().get(j)));
+      ByteBuffer valuesBuffer = batch.getValuesList().get(j).duplicate();
+      for (int i = 0; i < rowCount; i++) {
+        if (bitmap.get(i)) {
+          values[i][j] = ByteUtils.getValueFromByteBufferByDataType(valuesBuffer, type);
+        }
+      }
+    }
+
+    List<Row> rowList = new ArrayList<>(rowCount);
+    if (header.hasKey()) {
+      long[] keys = ByteUtils.getLongArrayFromByteArray(batch.getKeys());
+      for (int i = 0; i < rowCount; i++) {
+        rowList.add(new Row(header, keys[i], values[i]));
+      }
+    } else {
+      for (int i = 0; i < rowCount; i++) {
+        rowList.add(new Row(header, values[i]));
+      }
+    }
+    return rowList;
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
   private static List<Row> constructRows(List<RawRow> rows, Header header) {
     List<Row> rowList = new ArrayList<>();
     for (RawRow rawRow : rows) {
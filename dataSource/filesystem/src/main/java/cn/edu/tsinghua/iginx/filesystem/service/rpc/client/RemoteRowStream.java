@@ -0,0 +1,144 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.service.rpc.client;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.filesystem.common.FileSystemException;
+import cn.edu.tsinghua.iginx.filesystem.thrift.RawBatch;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** 远端查询结果的行流。通过服务端游标分批拉取数据，在上层消费当前批次的同时预取并解码下一批。 */
+class RemoteRowStream implements RowStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteRowStream.class);
+
+  private final RemoteService service;
+  private final long cursorId;
+  private final Header header;
+
+  private CompletableFuture<Batch> pending;
+  private List<Row> rows = Collections.emptyList();
+  private int index = 0;
+  private boolean hasMore = true;
+  private boolean closed = false;
+
+  RemoteRowStream(RemoteService service, long cursorId, Header header) {
+    this.service = service;
+    this.cursorId = cursorId;
+    this.header = header;
+    this.pending = prefetch();
+  }
+
+  private CompletableFuture<Batch> prefetch() {
+    return service.fetchAsync(cursorId).thenApply(this::decode);
+  }
+
+  private Batch decode(RawBatch batch) {
+    return new Batch(ClientObjectMappingUtils.constructRows(batch, header), batch.isHasMore());
+  }
+
+  @Override
+  public Header getHeader() {
+    return header;
+  }
+
+  @Override
+  public boolean hasNext() throws PhysicalException {
+    while (index >= rows.size()) {
+      if (!hasMore) {
+        return false;
+      }
+      Batch batch = awaitPending();
+      hasMore = batch.hasMore;
+      pending = hasMore ? prefetch() : null;
+      rows = batch.rows;
+      index = 0;
+    }
+    return true;
+  }
+
+  private Batch awaitPending() throws PhysicalException {
+    try {
+      return pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PhysicalException("interrupted while fetching cursor " + cursorId, e);
+    } catch (ExecutionException e) {
+      // 服务端读取出错时会关闭游标，但连接异常等情况下服务端并不知道拉取失败，这里总是尝试关闭
+      hasMore = false;
+      closeQuietly();
+      throw new PhysicalException("failed to fetch cursor " + cursorId, e.getCause());
+    }
+  }
+
+  @Override
+  public Row next() throws PhysicalException {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return rows.get(index++);
+  }
+
+  @Override
+  public void close() throws PhysicalException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    rows = Collections.emptyList();
+    if (hasMore) {
+      // 提前结束读取，通知服务端释放游标，正在进行的预取结果直接丢弃
+      hasMore = false;
+      pending.cancel(false);
+      try {
+        service.closeQuery(cursorId);
+      } catch (FileSystemException e) {
+        throw new PhysicalException(e);
+      }
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      service.closeQuery(cursorId);
+    } catch (FileSystemException | RuntimeException e) {
+      LOGGER.warn("failed to close cursor {}, it will be released after idle timeout", cursorId, e);
+    }
+  }
+
+  private static class Batch {
+    private final List<Row> rows;
+    private final boolean hasMore;
+
+    Batch(List<Row> rows, boolean hasMore) {
+      this.rows = rows;
+      this.hasMore = hasMore;
+    }
+  }
+}
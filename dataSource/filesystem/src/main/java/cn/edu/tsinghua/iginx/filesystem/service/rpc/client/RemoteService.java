@@ -21,6 +21,7 @@ package cn.edu.tsinghua.iginx.filesystem.service.rpc.client;
 
 import cn.edu.tsinghua.iginx.engine.logical.utils.LogicalFilterUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.FilterRowStreamWrapper;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
@@ -30,8 +31,15 @@ import cn.edu.tsinghua.iginx.filesystem.service.rpc.client.pool.PooledTTransport
 import cn.edu.tsinghua.iginx.filesystem.struct.DataTarget;
 import cn.edu.tsinghua.iginx.filesystem.thrift.*;
 import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.net.InetSocketAddress;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.transport.TTransport;
@@ -44,9 +52,31 @@ public class RemoteService implements Service {
 
   protected final TSocketPool pool;
 
+  private final int fetchSize;
+
+  private final ExecutorService prefetcher;
+
   public RemoteService(InetSocketAddress address, ClientConfig config) {
     LOGGER.info("will connect to file store server at {}", address);
     this.pool = new TSocketPool(address, config);
+    this.fetchSize = config.getFetchSize();
+    // 每次预取都要占用一个连接，预取线程数与连接池大小一致，超出的预取排队等待
+    int maxTotal = config.getConnectPool().getMaxTotal();
+    int prefetchThreads =
+        maxTotal > 0 ? maxTotal : Runtime.getRuntime().availableProcessors() * 2;
+    ThreadPoolExecutor prefetcher =
+        new ThreadPoolExecutor(
+            prefetchThreads,
+            prefetchThreads,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("RemoteService(" + address + ")-prefetch-%d")
+                .setDaemon(true)
+                .build());
+    prefetcher.allowCoreThreadTimeOut(true);
+    this.prefetcher = prefetcher;
   }
 
   private FileSystemRpc.Client wrapClient(TTransport transport) {
@@ -97,15 +127,11 @@ public class RemoteService implements Service {
     RawDataTarget rawTarget = ClientObjectMappingUtils.constructRawDataTarget(removeNotTarget);
     Filter postFilter = ClientObjectMappingUtils.constructPostFilter(removeNotTarget.getFilter());
     RawAggregate rawAggregate = ClientObjectMappingUtils.constructRawAggregate(aggregate);
+    RawCursor cursor;
     try (PooledTTransport transport = pool.borrowObject()) {
       FileSystemRpc.Client client = wrapClient(transport);
       try {
-        RawDataSet dataSet = client.query(unit, rawTarget, rawAggregate);
-        RowStream stream = ClientObjectMappingUtils.constructRowStream(dataSet);
-        if (postFilter != null) {
-          stream = new FilterRowStreamWrapper(stream, postFilter);
-        }
-        return stream;
+        cursor = client.openQuery(unit, rawTarget, rawAggregate);
       } catch (Exception e) {
         transport.destroy();
         throw e;
@@ -118,6 +144,62 @@ public class RemoteService implements Service {
     } catch (Exception e) {
       throw new IllegalStateException("failed to query", e);
     }
+    Header header = ClientObjectMappingUtils.constructHeader(cursor.getHeader());
+    RowStream stream = new RemoteRowStream(this, cursor.getId(), header);
+    if (postFilter != null) {
+      stream = new FilterRowStreamWrapper(stream, postFilter);
+    }
+    return stream;
+  }
+
+  CompletableFuture<RawBatch> fetchAsync(long cursorId) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return fetch(cursorId);
+          } catch (FileSystemException e) {
+            throw new CompletionException(e);
+          }
+        },
+        prefetcher);
+  }
+
+  private RawBatch fetch(long cursorId) throws FileSystemException {
+    try (PooledTTransport transport = pool.borrowObject()) {
+      FileSystemRpc.Client client = wrapClient(transport);
+      try {
+        return client.fetch(cursorId, fetchSize);
+      } catch (Exception e) {
+        transport.destroy();
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (RpcException e) {
+      handleRpcException("fetch", e);
+      throw new IllegalStateException("unreachable", e);
+    } catch (Exception e) {
+      throw new RemoteFileSystemException("failed to fetch", e);
+    }
+  }
+
+  void closeQuery(long cursorId) throws FileSystemException {
+    try (PooledTTransport transport = pool.borrowObject()) {
+      FileSystemRpc.Client client = wrapClient(transport);
+      try {
+        client.closeQuery(cursorId);
+      } catch (Exception e) {
+        transport.destroy();
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (RpcException e) {
+      handleRpcException("close query", e);
+      throw new IllegalStateException("unreachable", e);
+    } catch (Exception e) {
+      throw new RemoteFileSystemException("failed to close query", e);
+    }
   }
 
   @Override
@@ -164,6 +246,7 @@ public class RemoteService implements Service {
 
   @Override
   public void close() {
+    prefetcher.shutdownNow();
     pool.close();
   }
 }
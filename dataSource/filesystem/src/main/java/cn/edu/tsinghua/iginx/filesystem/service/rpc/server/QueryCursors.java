@@ -0,0 +1,174 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.service.rpc.server;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.filesystem.common.FileSystemException;
+import cn.edu.tsinghua.iginx.filesystem.thrift.RawBatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** 服务端打开的查询游标。客户端分批拉取结果，数据读完或者拉取出错后游标自动关闭，长时间没有访问的游标会被回收。 */
+class QueryCursors implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryCursors.class);
+
+  // 客户端异常退出时不会关闭游标，超时后由服务端回收
+  private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+  private final AtomicLong idGenerator = new AtomicLong();
+
+  private final ConcurrentMap<Long, Cursor> cursors = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService cleaner;
+
+  QueryCursors(String name) {
+    this.cleaner =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat(name + "-cursor-cleaner")
+                .setDaemon(true)
+                .build());
+    long period = IDLE_TIMEOUT.toMillis() / 2;
+    cleaner.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  public Cursor open(RowStream rowStream) throws FileSystemException {
+    Header header;
+    try {
+      header = rowStream.getHeader();
+    } catch (PhysicalException e) {
+      closeQuietly(rowStream);
+      throw new FileSystemException(e);
+    }
+    long id = idGenerator.incrementAndGet();
+    Cursor cursor = new Cursor(id, rowStream, header);
+    cursors.put(id, cursor);
+    return cursor;
+  }
+
+  public RawBatch fetch(long id, int fetchSize) throws FileSystemException {
+    Cursor cursor = cursors.get(id);
+    if (cursor == null) {
+      throw new FileSystemException("cursor " + id + " is closed or expired");
+    }
+    RawBatch batch;
+    try {
+      batch = cursor.fetch(fetchSize);
+    } catch (Throwable e) {
+      // 出错后的游标无法继续读取，无论异常类型都立即释放
+      close(id);
+      throw e;
+    }
+    if (!batch.isHasMore()) {
+      close(id);
+    }
+    return batch;
+  }
+
+  public void close(long id) {
+    Cursor cursor = cursors.remove(id);
+    if (cursor != null) {
+      cursor.close();
+    }
+  }
+
+  private void closeIdle() {
+    long deadline = System.currentTimeMillis() - IDLE_TIMEOUT.toMillis();
+    for (Map.Entry<Long, Cursor> entry : cursors.entrySet()) {
+      if (entry.getValue().lastAccess < deadline) {
+        LOGGER.warn("close cursor {} idle for more than {}", entry.getKey(), IDLE_TIMEOUT);
+        if (cursors.remove(entry.getKey(), entry.getValue())) {
+          entry.getValue().close();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    cleaner.shutdownNow();
+    for (Long id : cursors.keySet()) {
+      close(id);
+    }
+  }
+
+  private static void closeQuietly(RowStream rowStream) {
+    try {
+      rowStream.close();
+    } catch (PhysicalException e) {
+      LOGGER.error("failed to close row stream", e);
+    }
+  }
+
+  static class Cursor {
+    private final long id;
+    private final RowStream rowStream;
+    private final Header header;
+    private volatile long lastAccess = System.currentTimeMillis();
+    private boolean closed = false;
+
+    Cursor(long id, RowStream rowStream, Header header) {
+      this.id = id;
+      this.rowStream = rowStream;
+      this.header = header;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public Header getHeader() {
+      return header;
+    }
+
+    synchronized RawBatch fetch(int fetchSize) throws FileSystemException {
+      if (closed) {
+        throw new FileSystemException("cursor " + id + " is closed or expired");
+      }
+      lastAccess = System.currentTimeMillis();
+      try {
+        return ServerObjectMappingUtils.constructRawBatch(rowStream, header, fetchSize);
+      } catch (PhysicalException e) {
+        throw new FileSystemException(e);
+      } finally {
+        lastAccess = System.currentTimeMillis();
+      }
+    }
+
+    synchronized void close() {
+      if (!closed) {
+        closed = true;
+        closeQuietly(rowStream);
+      }
+    }
+  }
+}
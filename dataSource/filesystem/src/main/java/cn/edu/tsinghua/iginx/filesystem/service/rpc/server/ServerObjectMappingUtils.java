@@ -322,6 +322,52 @@ public class ServerObjectMappingUtils {
     return rawRows;
   }
 
+  /**
+   * 从行流中读取至多fetchSize行，按列编码为一个批次
+   *
+   * @param rowStream 行流
+   * @param header 行流的表头
+   * @param fetchSize 批次的最大行数
+   * @return 编码后的批次，hasMore表示行流中是否还有剩余数据
+   */
+  public static RawBatch constructRawBatch(RowStream rowStream, Header header, int fetchSize)
+      throws PhysicalException {
+    List<Row> rows = new ArrayList<>(Math.min(fetchSize, 4096));
+    while (rows.size() < fetchSize && rowStream.hasNext()) {
+      rows.add(rowStream.next());
+    }
+    int rowCount = rows.size();
+
+    RawBatch batch = new RawBatch();
+    batch.setRowCount(rowCount);
+    if (header.hasKey()) {
+      long[] keys = new long[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        keys[i] = rows.get(i).getKey();
+      }
+      batch.setKeys(ByteUtils.getByteArrayFromLongArray(keys));
+    }
+
+    List<ByteBuffer> valuesList = new ArrayList<>(header.getFieldSize());
+    List<ByteBuffer> bitmapList = new ArrayList<>(header.getFieldSize());
+    for (int j = 0; j < header.getFieldSize(); j++) {
+      Object[] values = new Object[rowCount];
+      Bitmap bitmap = new Bitmap(rowCount);
+      for (int i = 0; i < rowCount; i++) {
+        values[i] = rows.get(i).getValue(j);
+        if (values[i] != null) {
+          bitmap.mark(i);
+        }
+      }
+      valuesList.add(ByteUtils.getColumnByteBuffer(values, header.getField(j).getType()));
+      bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+    }
+    batch.setValuesList(valuesList);
+    batch.setBitmapList(bitmapList);
+    batch.setHasMore(rowStream.hasNext());
+    return batch;
+  }
+
   public static DataView resolveRawInserted(RawInserted rawInserted) {
     RawDataType rawDataType =
         ServerObjectMappingUtils.resolveRawDataType(rawInserted.getRawDataType());
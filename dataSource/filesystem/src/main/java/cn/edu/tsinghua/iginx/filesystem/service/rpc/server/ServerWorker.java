@@ -26,19 +26,23 @@ import cn.edu.tsinghua.iginx.filesystem.service.Service;
 import cn.edu.tsinghua.iginx.filesystem.struct.DataTarget;
 import cn.edu.tsinghua.iginx.filesystem.thrift.*;
 import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import cn.edu.tsinghua.iginx.thrift.RawHeader;
 import java.util.HashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ServerWorker implements FileSystemRpc.Iface {
+public class ServerWorker implements FileSystemRpc.Iface, AutoCloseable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ServerWorker.class);
 
   private final Service service;
 
-  public ServerWorker(Service service) {
+  private final QueryCursors cursors;
+
+  public ServerWorker(String name, Service service) {
     this.service = service;
+    this.cursors = new QueryCursors(name);
   }
 
   @Override
@@ -73,6 +77,37 @@ public class ServerWorker implements FileSystemRpc.Iface {
     }
   }
 
+  @Override
+  public RawCursor openQuery(DataUnit unit, RawDataTarget target, RawAggregate aggregate)
+      throws RpcException {
+    DataTarget dataTarget = ServerObjectMappingUtils.resolveRawDataTarget(target);
+    AggregateType aggregateType = ServerObjectMappingUtils.resolveRawAggregate(aggregate);
+    try {
+      RowStream rowStream = service.query(unit, dataTarget, aggregateType);
+      QueryCursors.Cursor cursor = cursors.open(rowStream);
+      RawHeader rawHeader = ServerObjectMappingUtils.constructRawHeader(cursor.getHeader());
+      return new RawCursor(cursor.getId(), rawHeader);
+    } catch (FileSystemException e) {
+      LOGGER.error("failed to openQuery({}, {}, {})", unit, target, aggregate, e);
+      throw new RpcException(Status.FileSystemException, e.getMessage());
+    }
+  }
+
+  @Override
+  public RawBatch fetch(long cursorId, int fetchSize) throws RpcException {
+    try {
+      return cursors.fetch(cursorId, fetchSize);
+    } catch (FileSystemException e) {
+      LOGGER.error("failed to fetch({}, {})", cursorId, fetchSize, e);
+      throw new RpcException(Status.FileSystemException, e.getMessage());
+    }
+  }
+
+  @Override
+  public void closeQuery(long cursorId) {
+    cursors.close(cursorId);
+  }
+
   @Override
   public void delete(DataUnit unit, RawDataTarget target) throws RpcException {
     DataTarget dataTarget = ServerObjectMappingUtils.resolveRawDataTarget(target);
@@ -94,4 +129,9 @@ public class ServerWorker implements FileSystemRpc.Iface {
       throw new RpcException(Status.FileSystemException, e.getMessage());
     }
   }
+
+  @Override
+  public void close() {
+    cursors.close();
+  }
 }
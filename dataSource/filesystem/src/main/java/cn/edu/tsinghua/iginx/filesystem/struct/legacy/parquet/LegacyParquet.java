@@ -97,9 +97,37 @@ public class LegacyParquet implements FileStructure {
     if (config.hasPath(StorageProperties.Builder.CACHE_VALUE_SOFT)) {
       builder.setCacheSoftValues(config.getBoolean(StorageProperties.Builder.CACHE_VALUE_SOFT));
     }
+    if (config.hasPath(StorageProperties.Builder.CACHE_PAGE_CAPACITY)) {
+      builder.setPageCacheCapacity(config.getBytes(StorageProperties.Builder.CACHE_PAGE_CAPACITY));
+    }
+    if (config.hasPath(StorageProperties.Builder.SCAN_BATCH_SIZE)) {
+      builder.setScanBatchSize(config.getInt(StorageProperties.Builder.SCAN_BATCH_SIZE));
+    }
     if (config.hasPath(StorageProperties.Builder.COMPACT_PERMITS)) {
       builder.setCompactorPermits(config.getInt(StorageProperties.Builder.COMPACT_PERMITS));
     }
+    if (config.hasPath(StorageProperties.Builder.COMPACT_INTERVAL)) {
+      builder.setCompactInterval(
+          Duration.ofMillis(
+              config.getDuration(StorageProperties.Builder.COMPACT_INTERVAL).toMillis()));
+    }
+    if (config.hasPath(StorageProperties.Builder.COMPACT_TRIGGER)) {
+      builder.setCompactTrigger(config.getInt(StorageProperties.Builder.COMPACT_TRIGGER));
+    }
+    if (config.hasPath(StorageProperties.Builder.WAL_ENABLED)) {
+      builder.setWalEnabled(config.getBoolean(StorageProperties.Builder.WAL_ENABLED));
+    }
+    if (config.hasPath(StorageProperties.Builder.WAL_SYNC)) {
+      builder.setWalSyncMode(config.getString(StorageProperties.Builder.WAL_SYNC));
+    }
+    if (config.hasPath(StorageProperties.Builder.WAL_SYNC_INTERVAL)) {
+      builder.setWalSyncInterval(
+          Duration.ofMillis(
+              config.getDuration(StorageProperties.Builder.WAL_SYNC_INTERVAL).toMillis()));
+    }
+    if (config.hasPath(StorageProperties.Builder.WAL_SEGMENT_SIZE)) {
+      builder.setWalSegmentSize(config.getBytes(StorageProperties.Builder.WAL_SEGMENT_SIZE));
+    }
     if (config.hasPath(StorageProperties.Builder.PARQUET_BLOCK_SIZE)) {
       builder.setParquetRowGroupSize(config.getBytes(StorageProperties.Builder.PARQUET_BLOCK_SIZE));
     }
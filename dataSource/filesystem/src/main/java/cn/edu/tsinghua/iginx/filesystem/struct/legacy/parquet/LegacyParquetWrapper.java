@@ -129,7 +129,7 @@ public class LegacyParquetWrapper implements FileManager {
         if (!Filters.isTrue(filter)) {
           throw new UnsupportedOperationException("Filter is not supported for aggregation");
         }
-        return delegate.aggregation(patterns, tagFilter, null);
+        return delegate.aggregation(patterns, tagFilter, aggregate);
       } else {
         if (Filters.isFalse(target.getFilter())) {
           List<Column> columns = delegate.getColumns(patterns, tagFilter);
@@ -138,6 +138,15 @@ public class LegacyParquetWrapper implements FileManager {
           return new Table(header, Collections.emptyList());
         }
         RowStream rowStream = delegate.project(patterns, tagFilter, filter);
+        if (rowStream instanceof BatchToRowStreamWrapper) {
+          // 保持列式，避免在存储层物化行
+          BatchStream batchStream = ((BatchToRowStreamWrapper) rowStream).getBatchStream();
+          batchStream = new ClearEmptyBatchStreamWrapper(batchStream);
+          if (!Filters.isTrue(filter)) {
+            batchStream = new FilterBatchStreamWrapper(batchStream, filter);
+          }
+          return new BatchToRowStreamWrapper(batchStream);
+        }
         rowStream = new ClearEmptyRowStreamWrapper(rowStream);
         if (!Filters.isTrue(filter)) {
           rowStream = new FilterRowStreamWrapper(rowStream, filter);
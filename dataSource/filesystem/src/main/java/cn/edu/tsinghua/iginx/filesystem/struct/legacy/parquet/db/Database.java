@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import com.google.common.collect.RangeSet;
 import java.io.IOException;
@@ -38,6 +39,9 @@ public interface Database extends AutoCloseable {
   Map<String, Long> count(Set<Field> strings)
       throws InterruptedException, IOException, StorageException;
 
+  Map<String, Object> aggregate(Set<Field> fields, AggregateType type)
+      throws InterruptedException, IOException, StorageException;
+
   Set<Field> schema() throws StorageException;
 
   void upsertRows(Scanner<Long, Scanner<String, Object>> scanner, Map<String, DataType> schema)
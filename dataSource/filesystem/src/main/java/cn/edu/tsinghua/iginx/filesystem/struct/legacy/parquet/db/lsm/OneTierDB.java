@@ -22,34 +22,46 @@ package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.Database;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.ReadWriter;
-import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.DataBuffer;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.MemTableQueue;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.chunk.Chunk;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact.Compactor;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact.Flusher;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table.TableStorage;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.wal.WalRecords;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.wal.WriteAheadLog;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.WriteBatches;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.BatchPlaneScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.RowUnionScanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.utils.TagKVUtils;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.NoexceptAutoCloseable;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.NoexceptAutoCloseables;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowFields;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowTypes;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageRuntimeException;
-import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.TypeConflictedException;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
 import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeSet;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.annotation.WillClose;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.util.AutoCloseables;
@@ -60,21 +72,81 @@ import org.slf4j.LoggerFactory;
 public class OneTierDB implements Database {
   private static final Logger LOGGER = LoggerFactory.getLogger(OneTierDB.class);
 
-  private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+  /** 查询期间遇到删除时乐观重试的次数，超过后等待删除完成 */
+  private static final int OPTIMISTIC_QUERY_ATTEMPTS = 3;
+
+  /** 写入、查询和删除都只持有读锁，互不阻塞；只有 clear 和 close 需要独占 */
+  private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+
+  /**
+   * 删除需要先后作用于内存表和文件表，删除之间通过写锁串行执行。查询以乐观读的方式检查构造过程中是否有删除发生，有则重新构造，
+   * 避免看到只删除了一半的数据。写入在追加预写日志和写入内存表期间持有读锁，写入之间互不阻塞，但不会与删除交错，
+   * 保证数据作用的顺序与日志序号一致，重放结果与运行时相同。文件表在读到时才打开，因此构造时同时对内存表和文件表的删除标记取快照，
+   * 两者都在同一次校验的范围内
+   */
+  private final StampedLock deleteLock = new StampedLock();
+
   private final String name;
   private final Shared shared;
   private final BufferAllocator allocator;
   private final TableStorage tableStorage;
   private final MemTableQueue memTableQueue;
   private final Flusher flusher;
+  private final Compactor compactor;
+  @Nullable private final WriteAheadLog wal;
 
-  public OneTierDB(String name, Shared shared, ReadWriter readerWriter) throws IOException {
+  public OneTierDB(String name, Shared shared, ReadWriter readerWriter, Path walDir)
+      throws IOException {
     this.name = name;
     this.shared = shared;
     this.allocator = shared.getAllocator().newChildAllocator(name, 0, Long.MAX_VALUE);
     this.tableStorage = new TableStorage(shared, readerWriter);
     this.memTableQueue = new MemTableQueue(shared, allocator);
     this.flusher = new Flusher(name, shared, allocator, memTableQueue, tableStorage);
+    this.compactor = new Compactor(name, shared, tableStorage);
+    if (shared.getStorageProperties().isWalEnabled()) {
+      this.wal = new WriteAheadLog(name, shared, walDir, memTableQueue::minLsn);
+      recover();
+    } else {
+      this.wal = null;
+    }
+  }
+
+  /** 回放预写日志，重建宕机前尚未刷写的内存表。刷写线程已经启动，回放的数据超过写缓冲大小时可以正常归档 */
+  private void recover() throws IOException {
+    try {
+      wal.replay(
+          new WalRecords.Handler() {
+            @Override
+            public void insert(
+                long lsn,
+                Map<String, DataType> schema,
+                Scanner<String, Scanner<Long, Object>> data)
+                throws StorageException, InterruptedException {
+              Iterable<Chunk.Snapshot> chunks =
+                  WriteBatches.recordOfColumns(data, schema, allocator);
+              try (NoexceptAutoCloseable guarder = NoexceptAutoCloseables.all(chunks)) {
+                tableStorage.declareFields(schema);
+                memTableQueue.store(chunks, lsn);
+              }
+            }
+
+            @Override
+            public void delete(long lsn, AreaSet<Long, Field> areas) throws StorageException {
+              memTableQueue.delete(areas);
+              try {
+                tableStorage.delete(ArrowFields.toInnerAreas(areas));
+              } catch (IOException e) {
+                throw new StorageException(e);
+              }
+            }
+          });
+    } catch (StorageException e) {
+      throw new IOException("failed to replay wal of " + name, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while replaying wal of " + name, e);
+    }
   }
 
   @Override
@@ -86,29 +158,57 @@ public class OneTierDB implements Database {
             .map(field -> TagKVUtils.toFullName(ArrowFields.toColumnKey(field)))
             .collect(Collectors.toSet());
 
-    lock.readLock().lock();
+    lifecycleLock.readLock().lock();
     try {
-      List<Scanner<Long, Scanner<String, Object>>> inMemories =
-          memTableQueue.scan(new ArrayList<>(fields), ranges, allocator);
-      try (AutoCloseable c = AutoCloseables.all(inMemories)) {
-        DataBuffer<Long, String, Object> readBuffer =
-            tableStorage.query(innerFields, ranges, filter);
-        for (Scanner<Long, Scanner<String, Object>> scanner : inMemories) {
-          readBuffer.putRows(scanner);
+      for (int i = 0; i < OPTIMISTIC_QUERY_ATTEMPTS; i++) {
+        long stamp = deleteLock.tryOptimisticRead();
+        if (stamp == 0) {
+          continue;
         }
-        return readBuffer.scanRows(innerFields, Range.all());
-      } catch (Exception e) {
-        throw new IllegalStateException(e);
+        Scanner<Long, Scanner<String, Object>> scanner = scan(fields, innerFields, ranges, filter);
+        if (deleteLock.validate(stamp)) {
+          return scanner;
+        }
+        scanner.close();
+      }
+      long stamp = deleteLock.readLock();
+      try {
+        return scan(fields, innerFields, ranges, filter);
+      } finally {
+        deleteLock.unlockRead(stamp);
       }
     } finally {
-      lock.readLock().unlock();
+      lifecycleLock.readLock().unlock();
     }
   }
 
+  private Scanner<Long, Scanner<String, Object>> scan(
+      Set<Field> fields, Set<String> innerFields, RangeSet<Long> ranges, Filter filter)
+      throws IOException {
+    // 先取内存表的快照再查找文件表，刷写过程中的数据至多出现在两侧，不会遗漏
+    List<Scanner<Long, Scanner<String, Object>>> inMemories =
+        memTableQueue.scan(new ArrayList<>(fields), ranges, allocator);
+    List<Scanner<Long, Scanner<String, Object>>> scanners = new ArrayList<>();
+    try {
+      scanners.addAll(tableStorage.query(innerFields, ranges, filter));
+    } catch (IOException | RuntimeException e) {
+      try {
+        AutoCloseables.close(inMemories);
+      } catch (Exception ex) {
+        e.addSuppressed(ex);
+      }
+      throw e;
+    }
+    scanners.addAll(inMemories);
+    // RowUnionScanner 中靠前的扫描器优先，因此按从新到旧的顺序排列
+    Collections.reverse(scanners);
+    return new RowUnionScanner<>(scanners);
+  }
+
   @Override
   public Map<String, Long> count(Set<Field> fields)
       throws InterruptedException, IOException, StorageException {
-    lock.readLock().lock();
+    lifecycleLock.readLock().lock();
     try {
       // to simplify the implementation, we flush the memTableQueue before counting
       memTableQueue.compact();
@@ -119,18 +219,63 @@ public class OneTierDB implements Database {
               .collect(Collectors.toSet());
       return tableStorage.count(innerFields);
     } finally {
-      lock.readLock().unlock();
+      lifecycleLock.readLock().unlock();
     }
   }
 
+  @Override
+  public Map<String, Object> aggregate(Set<Field> fields, AggregateType type)
+      throws InterruptedException, IOException, StorageException {
+    Map<String, Object> results = new HashMap<>();
+    lifecycleLock.readLock().lock();
+    try {
+      // 统计信息在读取时才扣除删除标记，因此整个聚合过程都排除删除，而不是像查询那样乐观重试
+      long stamp = deleteLock.readLock();
+      try {
+        for (Field field : fields) {
+          String innerField = ArrowFields.toFullName(field);
+          DataType dataType = ArrowTypes.toIginxType(field.getType());
+          // 与查询相同，先取内存表的快照再查找文件表
+          NavigableMap<Long, Object> inMemory = readInMemory(field);
+          results.put(innerField, tableStorage.aggregate(innerField, dataType, type, inMemory));
+        }
+      } finally {
+        deleteLock.unlockRead(stamp);
+      }
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
+    return results;
+  }
+
+  /** 读出内存表中字段的全部值，同一key以较新的内存表为准。内存表的大小受写缓冲限制，逐个字段读取 */
+  private NavigableMap<Long, Object> readInMemory(Field field)
+      throws IOException, StorageException {
+    List<Scanner<Long, Scanner<String, Object>>> inMemories =
+        memTableQueue.scan(
+            Collections.singletonList(field), ImmutableRangeSet.of(Range.all()), allocator);
+    // RowUnionScanner 中靠前的扫描器优先，因此按从新到旧的顺序排列
+    Collections.reverse(inMemories);
+    NavigableMap<Long, Object> values = new TreeMap<>();
+    try (Scanner<Long, Scanner<String, Object>> scanner = new RowUnionScanner<>(inMemories)) {
+      while (scanner.iterate()) {
+        Scanner<String, Object> row = scanner.value();
+        while (row.iterate()) {
+          values.put(scanner.key(), row.value());
+        }
+      }
+    }
+    return values;
+  }
+
   @Override
   public Set<Field> schema() throws StorageException {
-    lock.readLock().lock();
+    lifecycleLock.readLock().lock();
     try {
       Map<String, DataType> types = tableStorage.schema();
       return ArrowFields.of(types);
     } finally {
-      lock.readLock().unlock();
+      lifecycleLock.readLock().unlock();
     }
   }
 
@@ -163,42 +308,79 @@ public class OneTierDB implements Database {
   }
 
   private void putAll(@WillClose Iterable<Chunk.Snapshot> chunks, Map<String, DataType> schema)
-      throws TypeConflictedException, InterruptedException {
-    lock.readLock().lock();
+      throws StorageException, InterruptedException {
+    lifecycleLock.readLock().lock();
     try (NoexceptAutoCloseable guarder = NoexceptAutoCloseables.all(chunks)) {
       tableStorage.declareFields(schema);
-      memTableQueue.store(chunks);
+      long stamp = deleteLock.readLock();
+      try {
+        if (wal == null) {
+          memTableQueue.store(chunks);
+        } else {
+          long lsn = wal.append(WalRecords.insert(chunks));
+          try {
+            memTableQueue.store(chunks, lsn);
+          } finally {
+            wal.applied(lsn);
+          }
+        }
+      } finally {
+        deleteLock.unlockRead(stamp);
+      }
       if (shared.getStorageProperties().getWriteBufferTimeout().toMillis() <= 0) {
         memTableQueue.flush();
       }
+    } catch (IOException e) {
+      throw new StorageException(e);
     } finally {
-      lock.readLock().unlock();
+      lifecycleLock.readLock().unlock();
     }
   }
 
   @Override
   public void delete(AreaSet<Long, Field> range) throws StorageException {
     AreaSet<Long, String> innerAreas = ArrowFields.toInnerAreas(range);
-    lock.writeLock().lock();
+    lifecycleLock.readLock().lock();
+    long stamp = deleteLock.writeLock();
     try {
       LOGGER.debug("start to delete {} in {}", range, name);
-      memTableQueue.delete(range);
-      tableStorage.delete(innerAreas);
+      // 先删除内存表：刷写中的内存表会记录删除范围并在提交时作用到新文件上，之后再删除文件表，不会有数据被刷写“复活”
+      if (wal == null) {
+        memTableQueue.delete(range);
+        tableStorage.delete(innerAreas);
+      } else {
+        long lsn = wal.append(WalRecords.delete(range));
+        try {
+          memTableQueue.delete(range);
+          tableStorage.delete(innerAreas);
+        } finally {
+          wal.applied(lsn);
+        }
+      }
     } catch (IOException e) {
       throw new StorageRuntimeException(e);
     } finally {
-      lock.writeLock().unlock();
+      deleteLock.unlockWrite(stamp);
+      lifecycleLock.readLock().unlock();
     }
   }
 
   @Override
   public void clear() throws StorageException {
-    lock.writeLock().lock();
+    lifecycleLock.writeLock().lock();
     try {
       LOGGER.debug("start to clear {}", name);
+      compactor.stop();
       flusher.stop();
       memTableQueue.clear();
       tableStorage.clear();
+      if (wal != null) {
+        try {
+          wal.clear();
+        } catch (IOException e) {
+          throw new StorageException(e);
+        }
+      }
       if (allocator.getAllocatedMemory() > 0) {
         throw new IllegalStateException("allocator is not empty: " + allocator.toVerboseString());
       }
@@ -206,24 +388,33 @@ public class OneTierDB implements Database {
         LOGGER.debug("cleared {}, allocator: {}", name, allocator);
       }
       flusher.start();
+      compactor.start();
     } finally {
-      lock.writeLock().unlock();
+      lifecycleLock.writeLock().unlock();
     }
   }
 
   @Override
   public void close() throws Exception {
-    lock.writeLock().lock();
+    lifecycleLock.writeLock().lock();
     try {
       if (shared.getStorageProperties().toFlushOnClose()) {
         memTableQueue.flush();
+        // 内存表已全部刷写，日志不再需要回放
+        if (wal != null) {
+          wal.clear();
+        }
+      }
+      if (wal != null) {
+        wal.close();
       }
+      compactor.close();
       flusher.close();
       memTableQueue.close();
       tableStorage.close();
       allocator.close();
     } finally {
-      lock.writeLock().unlock();
+      lifecycleLock.writeLock().unlock();
     }
   }
 }
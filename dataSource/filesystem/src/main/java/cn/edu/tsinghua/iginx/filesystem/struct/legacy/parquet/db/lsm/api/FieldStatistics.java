@@ -0,0 +1,75 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api;
+
+import com.google.common.collect.RangeSet;
+import javax.annotation.Nullable;
+
+/** 单个字段在一张表中的统计信息，只统计被查询范围完整覆盖的数据块，其余部分记录在 uncovered 中，需要解码数据得到 */
+public class FieldStatistics {
+  private final long count;
+  @Nullable private final Object min;
+  @Nullable private final Object max;
+  private final RangeSet<Long> uncovered;
+
+  public FieldStatistics(
+      long count, @Nullable Object min, @Nullable Object max, RangeSet<Long> uncovered) {
+    this.count = count;
+    this.min = min;
+    this.max = max;
+    this.uncovered = uncovered;
+  }
+
+  /** 非空值的数量 */
+  public long getCount() {
+    return count;
+  }
+
+  /** 最小值，没有非空值或者无法得出时为 null */
+  @Nullable
+  public Object getMin() {
+    return min;
+  }
+
+  /** 最大值，没有非空值或者无法得出时为 null */
+  @Nullable
+  public Object getMax() {
+    return max;
+  }
+
+  /** 未被统计信息覆盖、需要解码数据的key范围 */
+  public RangeSet<Long> getUncovered() {
+    return uncovered;
+  }
+
+  @Override
+  public String toString() {
+    return "FieldStatistics{"
+        + "count="
+        + count
+        + ", min="
+        + min
+        + ", max="
+        + max
+        + ", uncovered="
+        + uncovered
+        + '}';
+  }
+}
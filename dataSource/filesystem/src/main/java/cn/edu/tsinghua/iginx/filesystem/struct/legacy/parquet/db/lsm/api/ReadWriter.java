@@ -35,8 +35,22 @@ public interface ReadWriter {
 
   TableMeta readMeta(String name) throws IOException;
 
+  default Scanner<Long, Scanner<String, Object>> scanData(
+      String name, Set<String> fields, RangeSet<Long> ranges, Filter predicate) throws IOException {
+    return scanData(name, fields, ranges, predicate, readTombstone(name));
+  }
+
+  /** 按给定的删除标记过滤表中的数据，而不是读取时表上的删除标记 */
   Scanner<Long, Scanner<String, Object>> scanData(
-      String name, Set<String> fields, RangeSet<Long> ranges, Filter predicate) throws IOException;
+      String name,
+      Set<String> fields,
+      RangeSet<Long> ranges,
+      Filter predicate,
+      AreaSet<Long, String> tombstone)
+      throws IOException;
+
+  /** 读取表当前的删除标记。之后的删除不会修改返回的集合，因此可以作为快照稍后传给 scanData */
+  AreaSet<Long, String> readTombstone(String name) throws IOException;
 
   void delete(String name, AreaSet<Long, String> areas) throws IOException;
 
@@ -21,6 +21,7 @@ package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api;
 
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -44,4 +45,16 @@ public interface TableMeta {
 
   @Nullable
   Long getValueCount(String field);
+
+  /**
+   * 根据元数据统计字段在给定key范围内的值，用于聚合下推
+   *
+   * @param field 字段名
+   * @param ranges 查询的key范围
+   * @return 统计信息，不支持时返回 null
+   */
+  @Nullable
+  default FieldStatistics getStatistics(String field, RangeSet<Long> ranges) {
+    return null;
+  }
 }
@@ -32,6 +32,7 @@ import com.google.common.collect.RangeSet;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
@@ -41,8 +42,9 @@ import org.apache.arrow.vector.types.pojo.Field;
 
 public class ActiveMemTable {
 
-  private final ReentrantReadWriteLock switchTableLock = new ReentrantReadWriteLock(true);
-  private final ReentrantLock createLock = new ReentrantLock(true);
+  // 写入方持有读锁，只有切换活跃表时需要写锁，非公平锁避免写入方之间相互排队
+  private final ReentrantReadWriteLock switchTableLock = new ReentrantReadWriteLock();
+  private final ReentrantLock createLock = new ReentrantLock();
   private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock(true);
 
   private final Shared shared;
@@ -50,8 +52,9 @@ public class ActiveMemTable {
   private final ConflictResolver resolver;
 
   private long activeId = 0;
-  private BufferAllocator activeAllocator = null;
-  private MemTable activeTable = null;
+  private volatile BufferAllocator activeAllocator = null;
+  private volatile MemTable activeTable = null;
+  private final AtomicLong activeMinLsn = new AtomicLong(Long.MAX_VALUE);
   private final NavigableMap<Long, CountDownLatch> awaiting = new TreeMap<>();
 
   ActiveMemTable(Shared shared, BufferAllocator allocator) {
@@ -61,20 +64,16 @@ public class ActiveMemTable {
   }
 
   public boolean isOverloaded() {
-    switchTableLock.readLock().lock();
-    try {
-      return activeAllocator != null
-          && activeAllocator.getAllocatedMemory()
-              >= shared.getStorageProperties().getWriteBufferSize();
-    } finally {
-      switchTableLock.readLock().unlock();
-    }
+    BufferAllocator current = activeAllocator;
+    return current != null
+        && current.getAllocatedMemory() >= shared.getStorageProperties().getWriteBufferSize();
   }
 
-  public void store(Iterable<Chunk.Snapshot> data) {
+  public void store(Iterable<Chunk.Snapshot> data, long lsn) {
     switchTableLock.readLock().lock();
     try {
       createMemtableIfNotExist();
+      activeMinLsn.accumulateAndGet(lsn, Math::min);
       resolver.append(activeTable, data);
     } finally {
       switchTableLock.readLock().unlock();
@@ -82,6 +81,9 @@ public class ActiveMemTable {
   }
 
   private void createMemtableIfNotExist() {
+    if (activeTable != null) {
+      return;
+    }
     createLock.lock();
     try {
       if (activeTable == null) {
@@ -135,7 +137,8 @@ public class ActiveMemTable {
       awaiting.values().forEach(latch -> onClose.add(latch::countDown));
       onClose.add(activeAllocator::close);
       onClose.add(() -> shared.getMemTablePermits().release());
-      result.put(activeId++, new ArchivedMemTable(activeTable, onClose));
+      long minLsn = activeMinLsn.getAndSet(Long.MAX_VALUE);
+      result.put(activeId++, new ArchivedMemTable(activeTable, minLsn, onClose));
       awaiting.clear();
       activeTable = null;
       activeAllocator = null;
@@ -201,6 +204,10 @@ public class ActiveMemTable {
     return latch != null;
   }
 
+  public long minLsn() {
+    return activeMinLsn.get();
+  }
+
   public void delete(AreaSet<Long, Field> areas) {
     switchTableLock.readLock().lock();
     try {
@@ -222,6 +229,7 @@ public class ActiveMemTable {
         activeAllocator.close();
       }
       activeId = 0;
+      activeMinLsn.set(Long.MAX_VALUE);
       activeTable = null;
       activeAllocator = null;
       awaiting.values().forEach(CountDownLatch::countDown);
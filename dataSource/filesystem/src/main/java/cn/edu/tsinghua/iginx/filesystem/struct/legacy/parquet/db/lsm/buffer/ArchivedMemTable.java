@@ -34,6 +34,7 @@ import org.apache.arrow.vector.types.pojo.Field;
 
 public class ArchivedMemTable implements NoexceptAutoCloseable {
   private final MemTable memTable;
+  private final long minLsn;
   private final Collection<NoexceptAutoCloseable> onClose;
   private final AreaSet<Long, Field> deleted = new AreaSet<>();
   private final CountDownLatch latch = new CountDownLatch(1);
@@ -41,8 +42,10 @@ public class ArchivedMemTable implements NoexceptAutoCloseable {
 
   public ArchivedMemTable(
       @WillCloseWhenClosed MemTable memTable,
+      long minLsn,
       @WillCloseWhenClosed Collection<NoexceptAutoCloseable> onClose) {
     this.memTable = Preconditions.checkNotNull(memTable);
+    this.minLsn = minLsn;
     this.onClose = new ArrayList<>(onClose);
   }
 
@@ -59,6 +62,11 @@ public class ArchivedMemTable implements NoexceptAutoCloseable {
     return memTable.snapshot(fields, ranges, allocator);
   }
 
+  /** 表中数据对应的最小预写日志序号，没有记录日志时为 Long.MAX_VALUE */
+  public long getMinLsn() {
+    return minLsn;
+  }
+
   public synchronized AreaSet<Long, Field> getDeleted() {
     return AreaSet.create(deleted);
   }
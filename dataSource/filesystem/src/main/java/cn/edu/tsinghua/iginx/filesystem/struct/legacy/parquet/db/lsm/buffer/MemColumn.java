@@ -141,11 +141,16 @@ public class MemColumn implements AutoCloseable {
     }
   }
 
-  @Override
-  public synchronized void close() {
+  /** 释放所有数据，之后仍然可以继续写入。已经取出的快照持有各自的引用，不受影响 */
+  public synchronized void clear() {
     compactedChunkSnapshots.forEach(ChunkSnapshotHolder::close);
     compactedChunkSnapshots.clear();
-    active.close();
+    active.reset();
+  }
+
+  @Override
+  public synchronized void close() {
+    clear();
   }
 
   public synchronized void compact() {
@@ -211,6 +216,10 @@ public class MemColumn implements AutoCloseable {
       return iterators;
     }
 
+    public boolean isEmpty() {
+      return snapshots.isEmpty();
+    }
+
     public RangeSet<Long> getRanges() {
       RangeSet<Long> range = TreeRangeSet.create();
       snapshots.forEach(snapshot -> range.add(snapshot.getKeyRange()));
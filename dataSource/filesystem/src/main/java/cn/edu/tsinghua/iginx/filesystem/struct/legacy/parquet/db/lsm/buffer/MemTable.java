@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.chun
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.chunk.IndexedChunk;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table.MemoryTable;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
+import com.google.common.collect.Range;
 import com.google.common.collect.RangeSet;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -85,7 +86,7 @@ public class MemTable implements AutoCloseable {
         }
         MemColumn column = this.columns.get(field);
         if (column != null) {
-          columns.put(field, column.snapshot(ranges, allocator));
+          putIfNotEmpty(columns, field, column.snapshot(ranges, allocator));
         }
       }
     } finally {
@@ -99,7 +100,7 @@ public class MemTable implements AutoCloseable {
     lock.readLock().lock();
     try {
       for (Map.Entry<Field, MemColumn> entry : this.columns.entrySet()) {
-        columns.put(entry.getKey(), entry.getValue().snapshot(allocator));
+        putIfNotEmpty(columns, entry.getKey(), entry.getValue().snapshot(allocator));
       }
     } finally {
       lock.readLock().unlock();
@@ -107,6 +108,16 @@ public class MemTable implements AutoCloseable {
     return new MemoryTable(columns);
   }
 
+  /** 整列被删除后数据立即释放，但列本身仍然保留到刷写为止，快照中跳过这样的空列，避免已删除的列出现在结果和文件中 */
+  private static void putIfNotEmpty(
+      Map<Field, MemColumn.Snapshot> columns, Field field, MemColumn.Snapshot snapshot) {
+    if (snapshot.isEmpty()) {
+      snapshot.close();
+    } else {
+      columns.put(field, snapshot);
+    }
+  }
+
   public void store(Chunk.Snapshot data) {
     lock.readLock().lock();
     try {
@@ -132,22 +143,23 @@ public class MemTable implements AutoCloseable {
     }
   }
 
+  /**
+   * 删除部分范围时只在各列上标记被删除的范围，删除整列时释放该列的数据。与写入一样只持有读锁，不会阻塞其他列的写入；列对象保留在原处，
+   * 并发写入的数据要么在释放之前写入而被删除，要么写入释放后的空列。
+   */
   public void delete(AreaSet<Long, Field> areas) {
-    lock.writeLock().lock();
+    lock.readLock().lock();
     try {
       for (Field field : areas.getFields()) {
-        MemColumn column = columns.remove(field);
+        MemColumn column = columns.get(field);
         if (column != null) {
-          column.close();
+          column.clear();
         }
       }
-      lock.readLock().lock();
-    } finally {
-      lock.writeLock().unlock();
-    }
-    try {
       RangeSet<Long> keys = areas.getKeys();
-      if (!keys.isEmpty()) {
+      if (keys.encloses(Range.all())) {
+        columns.values().forEach(MemColumn::clear);
+      } else if (!keys.isEmpty()) {
         columns.values().forEach(column -> column.delete(keys));
       }
       for (Map.Entry<Field, RangeSet<Long>> entry : areas.getSegments().entrySet()) {
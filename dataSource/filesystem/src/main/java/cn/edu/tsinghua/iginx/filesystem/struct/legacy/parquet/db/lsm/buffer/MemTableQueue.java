@@ -64,15 +64,28 @@ public class MemTableQueue implements NoexceptAutoCloseable {
   }
 
   public void store(Iterable<Chunk.Snapshot> data) throws InterruptedException {
-    checkSizeLock.lock();
-    try {
-      if (active.isOverloaded()) {
-        compact();
+    store(data, Long.MAX_VALUE);
+  }
+
+  /**
+   * store data which has been written to write ahead log
+   *
+   * @param data the data to store
+   * @param lsn the sequence number of the log record
+   */
+  public void store(Iterable<Chunk.Snapshot> data, long lsn) throws InterruptedException {
+    // 只有活跃表超过大小时才需要加锁归档，正常写入不经过这把全局锁
+    if (active.isOverloaded()) {
+      checkSizeLock.lock();
+      try {
+        if (active.isOverloaded()) {
+          compact();
+        }
+      } finally {
+        checkSizeLock.unlock();
       }
-    } finally {
-      checkSizeLock.unlock();
     }
-    active.store(data);
+    active.store(data, lsn);
   }
 
   public void compact() throws InterruptedException {
@@ -112,6 +125,30 @@ public class MemTableQueue implements NoexceptAutoCloseable {
     }
   }
 
+  /**
+   * get the min log sequence number of data that has not been flushed
+   *
+   * @return the min log sequence number, or Long.MAX_VALUE if there is no logged data
+   */
+  public long minLsn() {
+    // 归档过程中内存表既不在活跃表也不在队列中，持有 checkSizeLock 避免漏掉
+    checkSizeLock.lock();
+    try {
+      queueLock.readLock().lock();
+      try {
+        long minLsn = active.minLsn();
+        for (ArchivedMemTable archived : archives.values()) {
+          minLsn = Math.min(minLsn, archived.getMinLsn());
+        }
+        return minLsn;
+      } finally {
+        queueLock.readLock().unlock();
+      }
+    } finally {
+      checkSizeLock.unlock();
+    }
+  }
+
   public void delete(AreaSet<Long, Field> areas) {
     queueLock.readLock().lock();
     try {
@@ -0,0 +1,127 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table.TableStorage;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.NoexceptAutoCloseable;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.arrow.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 后台合并文件表。每隔 compact.interval 检查一次，按照 {@link SizeTieredCompactionPolicy} 反复合并，直到没有需要合并的表为止。
+ *
+ * <p>所有数据库共享 compact.permits 个合并许可，没有空闲许可时跳过本轮检查，不阻塞刷写。
+ */
+@NotThreadSafe
+public class Compactor implements NoexceptAutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Compactor.class);
+
+  /** 一次合并的表数量上限相对触发数量的倍数 */
+  private static final int MAX_TABLES_FACTOR = 4;
+
+  private final String name;
+  private final Shared shared;
+  private final TableStorage tableStorage;
+  private final SizeTieredCompactionPolicy policy;
+
+  private ScheduledExecutorService scheduler;
+  private boolean running = false;
+
+  public Compactor(String name, Shared shared, TableStorage tableStorage) {
+    this.name = name;
+    this.shared = shared;
+    this.tableStorage = tableStorage;
+    int trigger = shared.getStorageProperties().getCompactTrigger();
+    this.policy = new SizeTieredCompactionPolicy(trigger, trigger * MAX_TABLES_FACTOR);
+    start();
+  }
+
+  @Override
+  public void close() {
+    stop();
+  }
+
+  public void start() {
+    Preconditions.checkState(!running, "compactor is already running");
+
+    long interval = shared.getStorageProperties().getCompactInterval().toMillis();
+    if (interval > 0) {
+      ThreadFactory factory =
+          new ThreadFactoryBuilder().setNameFormat("compactor-" + name + "-%d").build();
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(factory);
+      LOGGER.info("compactor {} start to check every {} ms", name, interval);
+      scheduler.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    running = true;
+  }
+
+  public void stop() {
+    Preconditions.checkState(running, "compactor is not running");
+
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      try {
+        if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+          throw new IllegalStateException("compactor is not terminated");
+        }
+      } catch (InterruptedException e) {
+        LOGGER.debug("compactor is interrupted:", e);
+        Thread.currentThread().interrupt();
+      }
+      scheduler = null;
+    }
+    running = false;
+  }
+
+  private void compact() {
+    Semaphore permits = shared.getCompactorPermits();
+    while (!Thread.currentThread().isInterrupted()) {
+      if (!permits.tryAcquire()) {
+        LOGGER.debug("no compaction permit available, skip compaction of {}", name);
+        return;
+      }
+      try {
+        if (!tableStorage.compact(policy)) {
+          return;
+        }
+      } catch (Exception e) {
+        if (Thread.currentThread().isInterrupted()) {
+          LOGGER.debug("compaction of {} is cancelled", name, e);
+        } else {
+          LOGGER.error("failed to compact {}", name, e);
+        }
+        return;
+      } finally {
+        permits.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 大小分层的合并策略。字段集合相同、且序号相邻的表按值的数量分层，同一层中连续的表达到 trigger 张时，选出其中最旧的若干张进行合并。
+ *
+ * <p>合并结果沿用输入中最新一张表的序号，因此输入之间不能夹着与其字段有交集的其他表，否则合并后会改变同一字段上新旧数据的覆盖关系。
+ */
+public class SizeTieredCompactionPolicy {
+
+  /** 相邻两层之间值数量的倍数 */
+  private static final int TIER_RATIO = 4;
+
+  private final int trigger;
+
+  private final int maxTables;
+
+  /**
+   * @param trigger 同一层中触发合并的表数量，至少为 2
+   * @param maxTables 一次合并的最大表数量，不小于 trigger
+   */
+  public SizeTieredCompactionPolicy(int trigger, int maxTables) {
+    if (trigger < 2 || maxTables < trigger) {
+      throw new IllegalArgumentException(
+          "invalid compaction policy, trigger: " + trigger + ", maxTables: " + maxTables);
+    }
+    this.trigger = trigger;
+    this.maxTables = maxTables;
+  }
+
+  /**
+   * 选出一组需要合并的表
+   *
+   * @param metas 所有表的元数据，按表名（即序号）从旧到新排列
+   * @return 需要合并的表名，按从旧到新排列；没有需要合并的表时返回空列表
+   */
+  public List<String> select(LinkedHashMap<String, TableMeta> metas) {
+    Map<Set<String>, List<String>> groups = new LinkedHashMap<>();
+    for (Map.Entry<String, TableMeta> entry : metas.entrySet()) {
+      Set<String> fields = entry.getValue().getSchema().keySet();
+      if (!fields.isEmpty()) {
+        groups.computeIfAbsent(fields, k -> new ArrayList<>()).add(entry.getKey());
+      }
+    }
+
+    for (Set<String> fields : groups.keySet()) {
+      List<String> selected = selectInGroup(fields, metas);
+      if (!selected.isEmpty()) {
+        return selected;
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  private List<String> selectInGroup(Set<String> fields, LinkedHashMap<String, TableMeta> metas) {
+    List<String> window = new ArrayList<>();
+    int windowTier = -1;
+    for (Map.Entry<String, TableMeta> entry : metas.entrySet()) {
+      Set<String> tableFields = entry.getValue().getSchema().keySet();
+      if (Collections.disjoint(tableFields, fields)) {
+        continue;
+      }
+      int tier = tableFields.equals(fields) ? tierOf(entry.getValue()) : -1;
+      if (tier < 0 || tier != windowTier) {
+        // 字段集合不同的表或者不同层的表打断了连续性
+        if (window.size() >= trigger) {
+          break;
+        }
+        window.clear();
+        windowTier = tier;
+      }
+      if (tier >= 0) {
+        window.add(entry.getKey());
+      }
+    }
+    if (window.size() < trigger) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(window.subList(0, Math.min(window.size(), maxTables)));
+  }
+
+  /** 根据表中值的总数计算所在的层，值的数量未知（例如存在删除标记）时视为最低层 */
+  private static int tierOf(TableMeta meta) {
+    long count = 0;
+    for (String field : meta.getSchema().keySet()) {
+      Long fieldCount = meta.getValueCount(field);
+      if (fieldCount != null) {
+        count += fieldCount;
+      }
+    }
+    int tier = 0;
+    while (count >= TIER_RATIO) {
+      count /= TIER_RATIO;
+      tier++;
+    }
+    return tier;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
 
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.thrift.DataType;
@@ -32,11 +33,15 @@ import java.util.NoSuchElementException;
 import javax.annotation.Nullable;
 
 public class DeletedTableMeta implements TableMeta {
+  private final TableMeta tableMeta;
+  private final AreaSet<Long, String> tombstone;
   private final Map<String, DataType> schema;
   private final Map<String, Range<Long>> ranges;
   private final Map<String, Long> counts;
 
   public DeletedTableMeta(TableMeta tableMeta, AreaSet<Long, String> tombstone) {
+    this.tableMeta = tableMeta;
+    this.tombstone = tombstone;
     this.schema = new HashMap<>(tableMeta.getSchema());
     schema.keySet().removeAll(tombstone.getFields());
 
@@ -102,4 +107,20 @@ public class DeletedTableMeta implements TableMeta {
     }
     return counts.get(field);
   }
+
+  /** 从查询范围中去掉被删除的key后交给原表统计，与删除范围相交的数据块会被视为未覆盖，由调用方解码后过滤 */
+  @Override
+  @Nullable
+  public FieldStatistics getStatistics(String field, RangeSet<Long> ranges) {
+    if (!schema.containsKey(field)) {
+      throw new NoSuchElementException();
+    }
+    RangeSet<Long> remaining = TreeRangeSet.create(ranges);
+    remaining.removeAll(tombstone.getKeys());
+    RangeSet<Long> deletedSegments = tombstone.getSegments().get(field);
+    if (deletedSegments != null) {
+      remaining.removeAll(deletedSegments);
+    }
+    return tableMeta.getStatistics(field, remaining);
+  }
 }
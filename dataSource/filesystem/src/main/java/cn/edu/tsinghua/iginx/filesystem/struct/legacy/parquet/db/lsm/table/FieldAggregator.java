@@ -0,0 +1,168 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
+
+import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
+import javax.annotation.Nullable;
+
+/** 单个字段上的聚合状态，既可以合并元数据中的统计信息，也可以逐个接收解码出的值。结果的类型与计算层中对应的系统函数一致。 */
+class FieldAggregator {
+  private final AggregateType type;
+  private final DataType dataType;
+
+  private long count = 0;
+  private long longSum = 0;
+  private double doubleSum = 0;
+  @Nullable private Object value = null;
+
+  FieldAggregator(AggregateType type, DataType dataType) {
+    switch (type) {
+      case SUM:
+      case AVG:
+        if (!DataTypeUtils.isNumber(dataType)) {
+          throw new IllegalArgumentException(
+              "only number can calculate " + type.name().toLowerCase());
+        }
+        break;
+      case COUNT:
+      case MIN:
+      case MAX:
+      case FIRST_VALUE:
+      case LAST_VALUE:
+        break;
+      default:
+        throw new UnsupportedOperationException("unsupported aggregate type: " + type);
+    }
+    this.type = type;
+    this.dataType = dataType;
+  }
+
+  /** 是否可以使用统计信息，非数值类型的最值需要解码后比较 */
+  boolean acceptsStatistics() {
+    switch (type) {
+      case COUNT:
+        return true;
+      case MIN:
+      case MAX:
+        return DataTypeUtils.isNumber(dataType);
+      default:
+        return false;
+    }
+  }
+
+  /** 是否需要按key从大到小的顺序访问数据 */
+  boolean isBackward() {
+    return type == AggregateType.LAST_VALUE;
+  }
+
+  /** 结果是否已经确定，不需要再访问剩余的数据 */
+  boolean isDone() {
+    return (type == AggregateType.FIRST_VALUE || type == AggregateType.LAST_VALUE)
+        && value != null;
+  }
+
+  void accept(FieldStatistics statistics) {
+    count += statistics.getCount();
+    if (type == AggregateType.MIN && statistics.getMin() != null) {
+      acceptExtreme(statistics.getMin(), false);
+    } else if (type == AggregateType.MAX && statistics.getMax() != null) {
+      acceptExtreme(statistics.getMax(), true);
+    }
+  }
+
+  /**
+   * 接收一个非空值，同一区域内的值需要按key从小到大的顺序给出
+   *
+   * @return 是否还需要继续接收该区域内的值
+   */
+  boolean accept(Object v) {
+    count++;
+    switch (type) {
+      case SUM:
+      case AVG:
+        switch (dataType) {
+          case INTEGER:
+            longSum += (int) v;
+            break;
+          case LONG:
+            longSum += (long) v;
+            break;
+          case FLOAT:
+            doubleSum += (float) v;
+            break;
+          case DOUBLE:
+            doubleSum += (double) v;
+            break;
+          default:
+            throw new IllegalStateException("Unexpected field type: " + dataType);
+        }
+        return true;
+      case MIN:
+        acceptExtreme(v, false);
+        return true;
+      case MAX:
+        acceptExtreme(v, true);
+        return true;
+      case FIRST_VALUE:
+        value = v;
+        return false;
+      case LAST_VALUE:
+        value = v;
+        return true;
+      default:
+        return true;
+    }
+  }
+
+  private void acceptExtreme(Object v, boolean max) {
+    if (value == null) {
+      value = v;
+      return;
+    }
+    int cmp = ValueUtils.compare(v, value, dataType);
+    if (max ? cmp > 0 : cmp < 0) {
+      value = v;
+    }
+  }
+
+  @Nullable
+  Object getResult() {
+    switch (type) {
+      case COUNT:
+        return count;
+      case SUM:
+        if (count == 0) {
+          return null;
+        }
+        return DataTypeUtils.isWholeNumber(dataType) ? longSum : doubleSum;
+      case AVG:
+        if (count == 0) {
+          return null;
+        }
+        return (longSum + doubleSum) / count;
+      default:
+        return value;
+    }
+  }
+}
@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.ReadWriter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
 import com.google.common.collect.RangeSet;
 import java.io.IOException;
@@ -37,9 +38,18 @@ public class FileTable implements Table {
 
   private final ReadWriter readWriter;
 
+  // 构造时的删除标记快照，为空时在打开文件时读取最新的删除标记
+  @Nullable private final AreaSet<Long, String> tombstone;
+
   public FileTable(String tableName, ReadWriter readWriter) {
+    this(tableName, readWriter, null);
+  }
+
+  public FileTable(
+      String tableName, ReadWriter readWriter, @Nullable AreaSet<Long, String> tombstone) {
     this.tableName = tableName;
     this.readWriter = readWriter;
+    this.tombstone = tombstone;
   }
 
   @Override
@@ -52,7 +62,10 @@ public class FileTable implements Table {
       Set<String> fields, RangeSet<Long> ranges, @Nullable Filter superSetPredicate)
       throws IOException {
     LOGGER.debug("read {} where {} & {} from {}", fields, ranges, superSetPredicate, tableName);
-    return readWriter.scanData(tableName, fields, ranges, superSetPredicate);
+    if (tombstone == null) {
+      return readWriter.scanData(tableName, fields, ranges, superSetPredicate);
+    }
+    return readWriter.scanData(tableName, fields, ranges, superSetPredicate, tombstone);
   }
 
   @Override
@@ -20,36 +20,62 @@
 package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
 
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.ReadWriter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
-import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.DataBuffer;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact.SizeTieredCompactionPolicy;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.ConcatScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.DelegateScanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.EmtpyHeadRowScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.ListenCloseScanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.RowUnionScanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowFields;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.TypeConflictedException;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import com.google.common.collect.*;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TableStorage implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(TableStorage.class);
+  private static final String COMPACTED_SUFFIX = "-c";
+  private static final Pattern COMPACTED_TABLE_NAME = Pattern.compile("^(.*)-c(\\d+)$");
 
   private final TableIndex tableIndex;
   private final ReadWriter readWriter;
   private long sqnBase;
 
+  // 以下字段由 compactionLock 保护
+  private final Object compactionLock = new Object();
+  // 合并过程中发生的删除，合并完成后需要补充到新表上；没有正在进行的合并时为 null
+  @Nullable private AreaSet<Long, String> deletedDuringCompaction = null;
+  // 已被合并替换、但可能仍有查询在读取的表，在该表没有进行中的读取时删除
+  private final List<String> obsoleteTables = new ArrayList<>();
+  // 各表进行中的读取数，没有读取的表不在其中
+  private final Map<String, Integer> tableRefs = new HashMap<>();
+
+  // 合并全程持有，clear 借此等待进行中的合并退出
+  private final ReentrantLock compactionMutex = new ReentrantLock();
+  // 每次 clear 时递增，进行中的合并发现变化后放弃，不再修改索引
+  private volatile long epoch = 0;
+
   public TableStorage(Shared shared, ReadWriter readWriter) throws IOException {
     this.readWriter = readWriter;
 
@@ -110,12 +136,22 @@ public class TableStorage implements AutoCloseable {
   }
 
   public void clear() {
-    sqnBase = 0;
-    tableIndex.clear();
+    epoch++;
+    compactionMutex.lock();
     try {
-      readWriter.clear();
-    } catch (IOException e) {
-      LOGGER.error("clear failed", e);
+      sqnBase = 0;
+      synchronized (compactionLock) {
+        obsoleteTables.clear();
+        tableRefs.clear();
+      }
+      tableIndex.clear();
+      try {
+        readWriter.clear();
+      } catch (IOException e) {
+        LOGGER.error("clear failed", e);
+      }
+    } finally {
+      compactionMutex.unlock();
     }
   }
 
@@ -124,10 +160,15 @@ public class TableStorage implements AutoCloseable {
   }
 
   public void delete(AreaSet<Long, String> areas) throws IOException {
-    Set<String> tables = tableIndex.find(areas);
-    tableIndex.delete(areas);
-    for (String tableName : tables) {
-      readWriter.delete(tableName, areas);
+    synchronized (compactionLock) {
+      if (deletedDuringCompaction != null) {
+        deletedDuringCompaction.addAll(areas);
+      }
+      Set<String> tables = tableIndex.find(areas);
+      tableIndex.delete(areas);
+      for (String tableName : tables) {
+        readWriter.delete(tableName, areas);
+      }
     }
   }
 
@@ -136,7 +177,12 @@ public class TableStorage implements AutoCloseable {
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    synchronized (compactionLock) {
+      tableRefs.clear();
+      purgeObsoleteTables();
+    }
+  }
 
   public Map<String, DataType> schema() {
     return tableIndex.getType();
@@ -146,46 +192,236 @@ public class TableStorage implements AutoCloseable {
     tableIndex.declareFields(schema);
   }
 
-  public DataBuffer<Long, String, Object> query(
-      Set<String> fields, RangeSet<Long> ranges, Filter filter)
-      throws StorageException, IOException {
-
+  /**
+   * 查询落在给定字段与范围内的所有表，不物化数据
+   *
+   * <p>返回的扫描器按表的序号从旧到新排列，同一扫描器内的各表互不重叠，并在读到时才打开对应的文件。调用方需要自行合并各扫描器，对同一 key
+   * 的同一字段，较新的表优先。
+   *
+   * <p>各表的删除标记在调用时取快照，之后才打开的文件也不会看到调用之后的删除。
+   */
+  public List<Scanner<Long, Scanner<String, Object>>> query(
+      Set<String> fields, RangeSet<Long> ranges, Filter filter) throws IOException {
     AreaSet<Long, String> areas = new AreaSet<>();
     areas.add(fields, ranges);
-    DataBuffer<Long, String, Object> buffer = new DataBuffer<>();
 
-    Set<String> tables = tableIndex.find(areas);
-    List<String> sortedTableNames = new ArrayList<>(tables);
-    sortedTableNames.sort(Comparator.naturalOrder());
+    // 查找的同时登记读取，保证查到的表在扫描结束前不会因合并而被删除
+    Set<String> tables = acquireTables(areas);
+    try {
+      List<String> sortedTableNames = new ArrayList<>(tables);
+      sortedTableNames.sort(Comparator.naturalOrder());
+
+      List<FileTable> fileTables = new ArrayList<>();
+      for (String tableName : sortedTableNames) {
+        fileTables.add(new FileTable(tableName, readWriter, readWriter.readTombstone(tableName)));
+      }
+      return releaseOnClose(getOverlapScannerList(fields, ranges, fileTables), tables);
+    } catch (IOException | RuntimeException e) {
+      releaseTables(tables);
+      throw e;
+    }
+  }
+
+  /** 所有扫描器都关闭后释放对各表的登记，扫描器列表为空时立即释放 */
+  private List<Scanner<Long, Scanner<String, Object>>> releaseOnClose(
+      List<Scanner<Long, Scanner<String, Object>>> scanners, Set<String> tables) {
+    if (scanners.isEmpty()) {
+      releaseTables(tables);
+      return scanners;
+    }
+    AtomicInteger remaining = new AtomicInteger(scanners.size());
+    List<Scanner<Long, Scanner<String, Object>>> result = new ArrayList<>(scanners.size());
+    for (Scanner<Long, Scanner<String, Object>> scanner : scanners) {
+      AtomicBoolean closed = new AtomicBoolean(false);
+      result.add(
+          new ListenCloseScanner<>(
+              scanner,
+              () -> {
+                if (closed.compareAndSet(false, true) && remaining.decrementAndGet() == 0) {
+                  releaseTables(tables);
+                }
+              }));
+    }
+    return result;
+  }
+
+  /** 查找覆盖给定区域的表并登记读取，这些表在 releaseTables 之前不会因合并而被删除 */
+  private Set<String> acquireTables(AreaSet<Long, String> areas) {
+    synchronized (compactionLock) {
+      Set<String> tables = tableIndex.find(areas);
+      for (String tableName : tables) {
+        tableRefs.merge(tableName, 1, Integer::sum);
+      }
+      return tables;
+    }
+  }
 
+  private void releaseTables(Collection<String> tables) {
+    synchronized (compactionLock) {
+      for (String tableName : tables) {
+        tableRefs.computeIfPresent(tableName, (name, refs) -> refs == 1 ? null : refs - 1);
+      }
+      purgeObsoleteTables();
+    }
+  }
+
+  /** 删除已被替换且没有读取的表 */
+  private void purgeObsoleteTables() {
+    assert Thread.holdsLock(compactionLock);
+    Iterator<String> iterator = obsoleteTables.iterator();
+    while (iterator.hasNext()) {
+      String tableName = iterator.next();
+      if (tableRefs.containsKey(tableName)) {
+        continue;
+      }
+      try {
+        readWriter.delete(tableName);
+      } catch (RuntimeException e) {
+        LOGGER.error("failed to remove compacted table {}", tableName, e);
+      }
+      iterator.remove();
+    }
+  }
+
+  /**
+   * 按照合并策略选出一组表，合并为一张新表并替换原有的表
+   *
+   * <p>合并时逐行归并输入，同一 key 的同一字段保留最新的值，已被删除标记覆盖的数据不会写入新表。新表的值数量等元数据由写出的文件重新统计。
+   *
+   * <p>合并所在的线程被中断或者期间发生了 clear 时放弃合并，不修改索引。
+   *
+   * @return 是否进行了合并
+   */
+  public boolean compact(SizeTieredCompactionPolicy policy) throws IOException, StorageException {
+    compactionMutex.lock();
+    try {
+      return compact(policy, epoch);
+    } finally {
+      compactionMutex.unlock();
+    }
+  }
+
+  private boolean compact(SizeTieredCompactionPolicy policy, long startEpoch)
+      throws IOException, StorageException {
+    List<String> sortedTableNames = new ArrayList<>(tableIndex.find(AreaSet.all()));
+    sortedTableNames.sort(Comparator.naturalOrder());
+    LinkedHashMap<String, TableMeta> metas = new LinkedHashMap<>();
     for (String tableName : sortedTableNames) {
-      try (Scanner<Long, Scanner<String, Object>> scanner = scan(tableName, fields, ranges)) {
-        buffer.putRows(scanner);
+      metas.put(tableName, readWriter.readMeta(tableName));
+    }
+    List<String> inputs = policy.select(metas);
+    if (inputs.isEmpty()) {
+      return false;
+    }
+
+    String output = getCompactedTableName(inputs.get(inputs.size() - 1));
+    Map<String, DataType> schema = new HashMap<>();
+    Map<String, Range<Long>> ranges = new HashMap<>();
+    for (String input : inputs) {
+      TableMeta meta = metas.get(input);
+      schema.putAll(meta.getSchema());
+      for (String field : meta.getSchema().keySet()) {
+        ranges.merge(field, meta.getRange(field), Range::span);
+      }
+    }
+    TableMeta outputMeta =
+        new MemoryTable.MemoryTableMeta(schema, ranges, Collections.emptyMap());
+
+    LOGGER.debug("start to compact {} into {}", inputs, output);
+    synchronized (compactionLock) {
+      deletedDuringCompaction = new AreaSet<>();
+    }
+    try {
+      long rows = write(output, outputMeta, inputs, startEpoch);
+      synchronized (compactionLock) {
+        if (epoch != startEpoch) {
+          readWriter.delete(output);
+          throw new StorageException("compaction into " + output + " is cancelled by clear");
+        }
+        if (rows > 0) {
+          if (!deletedDuringCompaction.isEmpty()) {
+            readWriter.delete(output, deletedDuringCompaction);
+          }
+          tableIndex.addTable(output, readWriter.readMeta(output));
+        } else {
+          readWriter.delete(output);
+        }
+        for (String input : inputs) {
+          tableIndex.removeTable(input);
+        }
+        obsoleteTables.addAll(inputs);
+        purgeObsoleteTables();
+      }
+    } finally {
+      synchronized (compactionLock) {
+        deletedDuringCompaction = null;
       }
     }
+    LOGGER.debug("compacted {} into {}", inputs, output);
+    return true;
+  }
 
-    return buffer;
+  /** 将输入的表归并写入新表，返回写入的行数 */
+  private long write(String output, TableMeta meta, List<String> inputs, long startEpoch)
+      throws IOException, StorageException {
+    Set<String> fields = meta.getSchema().keySet();
+    RangeSet<Long> all = ImmutableRangeSet.of(Range.all());
+    List<Scanner<Long, Scanner<String, Object>>> scanners = new ArrayList<>();
+    for (String input : inputs) {
+      scanners.add(new FileTable(input, readWriter).lazyScan(fields, all));
+    }
+    // RowUnionScanner 中靠前的扫描器优先，因此按从新到旧的顺序排列
+    Collections.reverse(scanners);
+    AtomicLong rows = new AtomicLong();
+    try (Scanner<Long, Scanner<String, Object>> counted =
+        new DelegateScanner<Long, Scanner<String, Object>>(new RowUnionScanner<>(scanners)) {
+          @Override
+          public boolean iterate() throws StorageException {
+            if (epoch != startEpoch || Thread.currentThread().isInterrupted()) {
+              throw new StorageException("compaction into " + output + " is cancelled");
+            }
+            boolean hasNext = super.iterate();
+            if (hasNext) {
+              rows.incrementAndGet();
+            }
+            return hasNext;
+          }
+        }) {
+      readWriter.flush(output, meta, counted);
+    }
+    return rows.get();
   }
 
-  private Scanner<Long, Scanner<String, Object>> scan(
-      String tableName, Set<String> fields, RangeSet<Long> ranges) throws IOException {
-    return new FileTable(tableName, readWriter).scan(fields, ranges);
+  /** 合并结果沿用最新一张输入表的名称，并在末尾记录合并的代数，如 {@code <seq>-3} 合并为 {@code <seq>-3-c1} */
+  static String getCompactedTableName(String newestInput) {
+    Matcher matcher = COMPACTED_TABLE_NAME.matcher(newestInput);
+    if (matcher.matches()) {
+      long generation = Long.parseLong(matcher.group(2));
+      return matcher.group(1) + COMPACTED_SUFFIX + (generation + 1);
+    }
+    return newestInput + COMPACTED_SUFFIX + 1;
   }
 
   public Map<String, Long> count(Set<String> innerFields) throws StorageException, IOException {
     Map<String, Long> counts = new HashMap<>();
-
     for (String field : innerFields) {
       long count = count(field);
       counts.put(field, count);
     }
-
     return counts;
   }
 
   public long count(String field) throws StorageException, IOException {
-    RangeMap<Long, List<String>> regionTableLists = getTablesGroupByRegion(field);
+    Set<String> acquired = acquireTables(fieldArea(field));
+    try {
+      return count(field, getTablesGroupByRegion(field, acquired));
+    } finally {
+      releaseTables(acquired);
+    }
+  }
 
+  private long count(String field, RangeMap<Long, List<String>> regionTableLists)
+      throws StorageException, IOException {
     long totalCount = 0;
     for (List<String> tables : regionTableLists.asMapOfRanges().values()) {
       if (tables.isEmpty()) {
@@ -203,6 +439,129 @@ public class TableStorage implements AutoCloseable {
     return totalCount;
   }
 
+  /**
+   * 聚合字段的全部值
+   *
+   * <p>按照表的key范围将字段划分为若干区域。只有一张表的区域优先使用元数据中的统计信息，只解码统计信息覆盖不到的边界部分；多张表重叠的区域需要合并后逐行计算。
+   * 内存表中的数据比所有文件表都新：落在某个区域内的与该区域的表合并计算，同一key以内存表为准；不在任何区域内的直接计入。
+   *
+   * @param field 字段名
+   * @param dataType 字段类型
+   * @param type 聚合类型
+   * @param inMemory 内存表中该字段的值，按key排列
+   * @return 聚合结果，没有值时为 null（计数为0）
+   */
+  @Nullable
+  public Object aggregate(
+      String field, DataType dataType, AggregateType type, NavigableMap<Long, Object> inMemory)
+      throws StorageException, IOException {
+    FieldAggregator aggregator = new FieldAggregator(type, dataType);
+    Set<String> acquired = acquireTables(fieldArea(field));
+    try {
+      RangeMap<Long, List<String>> regions = getTablesGroupByRegion(field, acquired);
+      aggregate(field, getSegments(regions, inMemory.navigableKeySet()), inMemory, aggregator);
+    } finally {
+      releaseTables(acquired);
+    }
+    return aggregator.getResult();
+  }
+
+  private void aggregate(
+      String field,
+      List<Map.Entry<Range<Long>, List<String>>> segments,
+      NavigableMap<Long, Object> inMemory,
+      FieldAggregator aggregator)
+      throws StorageException, IOException {
+    if (aggregator.isBackward()) {
+      Collections.reverse(segments);
+    }
+
+    for (Map.Entry<Range<Long>, List<String>> segment : segments) {
+      if (aggregator.isDone()) {
+        return;
+      }
+      Range<Long> range = normalize(segment.getKey());
+      NavigableMap<Long, Object> memory =
+          inMemory.subMap(range.lowerEndpoint(), true, range.upperEndpoint(), true);
+      List<String> tables = segment.getValue();
+      RangeSet<Long> selected = ImmutableRangeSet.of(range);
+      if (memory.isEmpty() && tables.size() == 1 && aggregator.acceptsStatistics()) {
+        TableMeta meta = readWriter.readMeta(tables.get(0));
+        FieldStatistics statistics = meta.getStatistics(field, selected);
+        if (statistics != null) {
+          aggregator.accept(statistics);
+          selected = statistics.getUncovered();
+          if (selected.isEmpty()) {
+            continue;
+          }
+        }
+      }
+      // RowUnionScanner 中靠前的扫描器优先，内存表在前
+      List<Scanner<Long, Scanner<String, Object>>> scanners = new ArrayList<>();
+      if (!memory.isEmpty()) {
+        scanners.add(scanValues(field, memory));
+      }
+      if (!tables.isEmpty()) {
+        scanners.add(scan(tables, Collections.singleton(field), selected));
+      }
+      try (Scanner<Long, Scanner<String, Object>> scanner = new RowUnionScanner<>(scanners)) {
+        boolean more = true;
+        while (more && scanner.iterate()) {
+          Scanner<String, Object> row = scanner.value();
+          while (more && row.iterate()) {
+            more = aggregator.accept(row.value());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * 将区域与落在区域之间的内存表 key 一起按 key 排列为若干段，只有内存数据的段对应的表为空
+   *
+   * <p>区域不再拆分，含有内存表 key 的区域整体与内存数据合并计算
+   */
+  private static List<Map.Entry<Range<Long>, List<String>>> getSegments(
+      RangeMap<Long, List<String>> regions, NavigableSet<Long> inMemoryKeys) {
+    List<Map.Entry<Range<Long>, List<String>>> segments =
+        new ArrayList<>(regions.asMapOfRanges().entrySet());
+    Long gapStart = null;
+    Long gapEnd = null;
+    for (long key : inMemoryKeys) {
+      if (regions.get(key) != null) {
+        continue;
+      }
+      if (gapEnd != null
+          && regions.subRangeMap(Range.open(gapEnd, key)).asMapOfRanges().isEmpty()) {
+        gapEnd = key;
+        continue;
+      }
+      if (gapStart != null) {
+        segments.add(Maps.immutableEntry(Range.closed(gapStart, gapEnd), Collections.emptyList()));
+      }
+      gapStart = key;
+      gapEnd = key;
+    }
+    if (gapStart != null) {
+      segments.add(Maps.immutableEntry(Range.closed(gapStart, gapEnd), Collections.emptyList()));
+    }
+    segments.sort(Comparator.comparing(segment -> normalize(segment.getKey()).lowerEndpoint()));
+    return segments;
+  }
+
+  private static Scanner<Long, Scanner<String, Object>> scanValues(
+      String field, NavigableMap<Long, Object> values) {
+    Iterator<Map.Entry<Long, Scanner<String, Object>>> rows =
+        Iterators.transform(
+            values.entrySet().iterator(),
+            entry -> {
+              Map<String, Object> row = Collections.singletonMap(field, entry.getValue());
+              Scanner<String, Object> rowScanner = new IteratorScanner<>(row.entrySet().iterator());
+              return Maps.immutableEntry(entry.getKey(), rowScanner);
+            });
+    return new IteratorScanner<>(rows);
+  }
+
   private static Range<Long> normalize(Range<Long> range) {
     if (range.isEmpty()) {
       return range;
@@ -218,10 +577,15 @@ public class TableStorage implements AutoCloseable {
     return Range.closed(lower, upper);
   }
 
-  private RangeMap<Long, List<String>> getTablesGroupByRegion(String field) throws IOException {
+  private static AreaSet<Long, String> fieldArea(String field) {
     AreaSet<Long, String> areas = new AreaSet<>();
     areas.add(Collections.singleton(field), ImmutableRangeSet.of(Range.all()));
-    Set<String> tables = tableIndex.find(areas);
+    return areas;
+  }
+
+  /** 按 key 范围将登记过的表划分为若干区域，同一区域内的表两两重叠 */
+  private RangeMap<Long, List<String>> getTablesGroupByRegion(String field, Set<String> tables)
+      throws IOException {
     List<String> sortedTableNames = new ArrayList<>(tables);
     sortedTableNames.sort(Comparator.naturalOrder());
 
@@ -253,7 +617,8 @@ public class TableStorage implements AutoCloseable {
     Set<String> fields = Collections.singleton(field);
 
     long count = 0;
-    try (Scanner<Long, Scanner<String, Object>> scanner = scan(sortedTableNames, fields)) {
+    RangeSet<Long> all = ImmutableRangeSet.of(Range.all());
+    try (Scanner<Long, Scanner<String, Object>> scanner = scan(sortedTableNames, fields, all)) {
       while (scanner.iterate()) {
         Scanner<String, Object> row = scanner.value();
         while (row.iterate()) {
@@ -265,25 +630,31 @@ public class TableStorage implements AutoCloseable {
     return count;
   }
 
-  private Scanner<Long, Scanner<String, Object>> scan(List<String> tableNames, Set<String> fields)
+  private Scanner<Long, Scanner<String, Object>> scan(
+      List<String> tableNames, Set<String> fields, RangeSet<Long> ranges)
       throws IOException, StorageException {
     List<FileTable> tables = new ArrayList<>();
     for (String tableName : tableNames) {
       tables.add(new FileTable(tableName, readWriter));
     }
-    List<Scanner<Long, Scanner<String, Object>>> overlaps = getOverlapScannerList(fields, tables);
+    List<Scanner<Long, Scanner<String, Object>>> overlaps =
+        getOverlapScannerList(fields, ranges, tables);
 
     Collections.reverse(overlaps);
     return new RowUnionScanner<>(overlaps);
   }
 
+  /**
+   * 将按序号从旧到新排列的表划分为若干组，每组内的表两两不重叠，组内按 key 的顺序拼接为一个扫描器
+   *
+   * <p>每张表的扫描器以一个位于其起始 key 的空行开头，只有合并到该表时才会真正打开文件。
+   */
   private static List<Scanner<Long, Scanner<String, Object>>> getOverlapScannerList(
-      Set<String> fields, List<FileTable> tables) throws IOException {
-    RangeSet<Long> ranges = ImmutableRangeSet.of(Range.all());
+      Set<String> fields, RangeSet<Long> ranges, List<FileTable> tables) throws IOException {
     List<Scanner<Long, Scanner<String, Object>>> overlaps = new ArrayList<>();
 
     RangeSet<Long> tableRanges = TreeRangeSet.create();
-    List<Scanner<Long, Scanner<String, Object>>> noOverlaps = new ArrayList<>();
+    NavigableMap<Long, Scanner<Long, Scanner<String, Object>>> noOverlaps = new TreeMap<>();
     for (FileTable table : tables) {
       TableMeta meta = table.getMeta();
       Range<Long> range = normalize(meta.getRange(fields));
@@ -291,8 +662,8 @@ public class TableStorage implements AutoCloseable {
         continue;
       }
       if (tableRanges.intersects(range)) {
-        overlaps.add(new ConcatScanner<>(noOverlaps.iterator()));
-        noOverlaps = new ArrayList<>();
+        overlaps.add(new ConcatScanner<>(noOverlaps.values().iterator()));
+        noOverlaps = new TreeMap<>();
         tableRanges = TreeRangeSet.create();
       }
       long head = range.lowerEndpoint();
@@ -300,11 +671,11 @@ public class TableStorage implements AutoCloseable {
       Scanner<Long, Scanner<String, Object>> emptyHead = new EmtpyHeadRowScanner<>(head);
       Scanner<Long, Scanner<String, Object>> concat =
           new ConcatScanner<>(Iterators.forArray(emptyHead, lazy));
-      noOverlaps.add(concat);
+      noOverlaps.put(head, concat);
       tableRanges.add(range);
     }
     if (!noOverlaps.isEmpty()) {
-      overlaps.add(new ConcatScanner<>(noOverlaps.iterator()));
+      overlaps.add(new ConcatScanner<>(noOverlaps.values().iterator()));
     }
 
     return overlaps;
@@ -0,0 +1,284 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.wal;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.chunk.Chunk;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.utils.TagKVUtils;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowFields;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowTypes;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.arrow.vector.types.pojo.Field;
+
+/** 预写日志记录的编解码。写入记录按列保存，删除记录保存删除区域。 */
+public class WalRecords {
+
+  private static final byte TYPE_INSERT = 1;
+  private static final byte TYPE_DELETE = 2;
+
+  private static final int HAS_LOWER = 1;
+  private static final int LOWER_CLOSED = 1 << 1;
+  private static final int HAS_UPPER = 1 << 2;
+  private static final int UPPER_CLOSED = 1 << 3;
+
+  /** 回放日志时按记录顺序回调 */
+  public interface Handler {
+    void insert(
+        long lsn, Map<String, DataType> schema, Scanner<String, Scanner<Long, Object>> data)
+        throws StorageException, InterruptedException;
+
+    void delete(long lsn, AreaSet<Long, Field> areas) throws StorageException;
+  }
+
+  private WalRecords() {}
+
+  public static byte[] insert(Iterable<Chunk.Snapshot> chunks) throws IOException {
+    List<Chunk.Snapshot> columns = new ArrayList<>();
+    chunks.forEach(columns::add);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(TYPE_INSERT);
+    out.writeInt(columns.size());
+    for (Chunk.Snapshot column : columns) {
+      DataType type = writeField(out, column.getField());
+      out.writeInt(column.getValueCount());
+      for (Map.Entry<Long, Object> entry : column) {
+        out.writeLong(entry.getKey());
+        writeValue(out, type, entry.getValue());
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  public static byte[] delete(AreaSet<Long, Field> areas) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(TYPE_DELETE);
+    writeRangeSet(out, areas.getKeys());
+    out.writeInt(areas.getFields().size());
+    for (Field field : areas.getFields()) {
+      writeField(out, field);
+    }
+    out.writeInt(areas.getSegments().size());
+    for (Map.Entry<Field, RangeSet<Long>> entry : areas.getSegments().entrySet()) {
+      writeField(out, entry.getKey());
+      writeRangeSet(out, entry.getValue());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  public static void replay(long lsn, byte[] record, Handler handler)
+      throws IOException, StorageException, InterruptedException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_INSERT:
+        replayInsert(lsn, in, handler);
+        break;
+      case TYPE_DELETE:
+        replayDelete(lsn, in, handler);
+        break;
+      default:
+        throw new IOException("unknown wal record type: " + type);
+    }
+  }
+
+  private static void replayInsert(long lsn, DataInputStream in, Handler handler)
+      throws IOException, StorageException, InterruptedException {
+    Map<String, DataType> schema = new LinkedHashMap<>();
+    Map<String, Scanner<Long, Object>> columns = new LinkedHashMap<>();
+    int columnCount = in.readInt();
+    for (int i = 0; i < columnCount; i++) {
+      String name = in.readUTF();
+      DataType type = readType(in);
+      int valueCount = in.readInt();
+      List<Map.Entry<Long, Object>> values = new ArrayList<>(valueCount);
+      for (int j = 0; j < valueCount; j++) {
+        long key = in.readLong();
+        values.add(new AbstractMap.SimpleImmutableEntry<>(key, readValue(in, type)));
+      }
+      schema.put(name, type);
+      columns.put(name, new IteratorScanner<>(values.iterator()));
+    }
+    try (Scanner<String, Scanner<Long, Object>> data =
+        new IteratorScanner<>(columns.entrySet().iterator())) {
+      handler.insert(lsn, schema, data);
+    }
+  }
+
+  private static void replayDelete(long lsn, DataInputStream in, Handler handler)
+      throws IOException, StorageException {
+    AreaSet<Long, Field> areas = new AreaSet<>();
+    areas.add(readRangeSet(in));
+    int fieldCount = in.readInt();
+    Set<Field> fields = new HashSet<>();
+    for (int i = 0; i < fieldCount; i++) {
+      fields.add(readField(in));
+    }
+    areas.add(fields);
+    int segmentCount = in.readInt();
+    for (int i = 0; i < segmentCount; i++) {
+      Field field = readField(in);
+      areas.add(Collections.singleton(field), readRangeSet(in));
+    }
+    handler.delete(lsn, areas);
+  }
+
+  private static DataType writeField(DataOutputStream out, Field field) throws IOException {
+    DataType type = ArrowTypes.toIginxType(field.getType());
+    out.writeUTF(ArrowFields.toFullName(field));
+    out.writeInt(type.getValue());
+    return type;
+  }
+
+  private static Field readField(DataInputStream in) throws IOException {
+    String name = in.readUTF();
+    DataType type = readType(in);
+    return ArrowFields.of(TagKVUtils.splitFullName(name), type);
+  }
+
+  private static DataType readType(DataInputStream in) throws IOException {
+    int value = in.readInt();
+    DataType type = DataType.findByValue(value);
+    if (type == null) {
+      throw new IOException("unknown data type in wal record: " + value);
+    }
+    return type;
+  }
+
+  private static void writeValue(DataOutputStream out, DataType type, Object value)
+      throws IOException {
+    switch (type) {
+      case BOOLEAN:
+        out.writeBoolean((Boolean) value);
+        break;
+      case INTEGER:
+        out.writeInt((Integer) value);
+        break;
+      case LONG:
+        out.writeLong((Long) value);
+        break;
+      case FLOAT:
+        out.writeFloat((Float) value);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case BINARY:
+        byte[] bytes = (byte[]) value;
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type: " + type);
+    }
+  }
+
+  private static Object readValue(DataInputStream in, DataType type) throws IOException {
+    switch (type) {
+      case BOOLEAN:
+        return in.readBoolean();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case BINARY:
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type: " + type);
+    }
+  }
+
+  private static void writeRangeSet(DataOutputStream out, RangeSet<Long> rangeSet)
+      throws IOException {
+    Set<Range<Long>> ranges = rangeSet.asRanges();
+    out.writeInt(ranges.size());
+    for (Range<Long> range : ranges) {
+      int flags = 0;
+      if (range.hasLowerBound()) {
+        flags |= HAS_LOWER;
+        if (range.lowerBoundType() == BoundType.CLOSED) {
+          flags |= LOWER_CLOSED;
+        }
+      }
+      if (range.hasUpperBound()) {
+        flags |= HAS_UPPER;
+        if (range.upperBoundType() == BoundType.CLOSED) {
+          flags |= UPPER_CLOSED;
+        }
+      }
+      out.writeByte(flags);
+      if (range.hasLowerBound()) {
+        out.writeLong(range.lowerEndpoint());
+      }
+      if (range.hasUpperBound()) {
+        out.writeLong(range.upperEndpoint());
+      }
+    }
+  }
+
+  private static RangeSet<Long> readRangeSet(DataInputStream in) throws IOException {
+    RangeSet<Long> rangeSet = TreeRangeSet.create();
+    int rangeCount = in.readInt();
+    for (int i = 0; i < rangeCount; i++) {
+      int flags = in.readByte();
+      Range<Long> range = Range.all();
+      if ((flags & HAS_LOWER) != 0) {
+        BoundType type = (flags & LOWER_CLOSED) != 0 ? BoundType.CLOSED : BoundType.OPEN;
+        range = range.intersection(Range.downTo(in.readLong(), type));
+      }
+      if ((flags & HAS_UPPER) != 0) {
+        BoundType type = (flags & UPPER_CLOSED) != 0 ? BoundType.CLOSED : BoundType.OPEN;
+        range = range.intersection(Range.upTo(in.readLong(), type));
+      }
+      rangeSet.add(range);
+    }
+    return rangeSet;
+  }
+}
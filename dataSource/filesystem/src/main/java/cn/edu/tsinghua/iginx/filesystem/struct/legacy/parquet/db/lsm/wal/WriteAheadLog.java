@@ -0,0 +1,464 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.wal;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.FileSyncUtils;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.arrow.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 数据库的预写日志。日志由若干以首条记录序号命名的段文件组成，只追加写入，写满 wal.segment.size 后切换到新段。
+ *
+ * <p>并发的写入在内存中排队，由其中一个写入线程合并写出（group commit），BATCH 模式下写出后立即 fsync。
+ *
+ * <p>调用方在记录写入内存表后调用 {@link #applied(long)}。后台线程定期回收段文件：当一个段之后的段的首个序号不大于仍需保留的最小序号
+ * （排队或尚未写入内存表的记录，以及内存表中尚未刷写的数据）时，该段的全部记录都已持久化，可以删除。
+ *
+ * <p>每条记录的格式为：记录长度(int)、校验和(int)、序号(long)、记录内容。回放时遇到不完整或校验失败的记录即停止，截断该段并丢弃之后的段。
+ */
+@ThreadSafe
+public class WriteAheadLog implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+  private static final String CORRUPTED_SUFFIX = ".corrupted";
+
+  private final String name;
+  private final Path dir;
+  private final WalSyncMode syncMode;
+  private final long segmentSize;
+  private final long syncInterval;
+  private final LongSupplier retainedLsn;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final Condition written = appendLock.newCondition();
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private final DataOutputStream pendingOut = new DataOutputStream(pending);
+  private final NavigableSet<Long> inFlight = new TreeSet<>();
+  private long pendingFirstLsn;
+  private long nextLsn = 0;
+  private long writtenLsn = -1;
+  private boolean writing = false;
+  private IOException failure = null;
+
+  private final ReentrantLock segmentLock = new ReentrantLock();
+  private final NavigableMap<Long, Path> segments = new TreeMap<>();
+  private FileChannel channel = null;
+  private long channelSize = 0;
+  private boolean dirty = false;
+
+  private ScheduledExecutorService scheduler = null;
+  private boolean closed = false;
+
+  /**
+   * @param name 所属数据库的名称
+   * @param shared 共享配置
+   * @param dir 日志目录
+   * @param retainedLsn 内存表中尚未持久化的数据的最小序号，没有时返回 Long.MAX_VALUE
+   */
+  public WriteAheadLog(String name, Shared shared, Path dir, LongSupplier retainedLsn)
+      throws IOException {
+    this.name = name;
+    this.dir = dir;
+    this.syncMode = shared.getStorageProperties().getWalSyncMode();
+    this.segmentSize = shared.getStorageProperties().getWalSegmentSize();
+    this.syncInterval = shared.getStorageProperties().getWalSyncInterval().toMillis();
+    this.retainedLsn = retainedLsn;
+
+    Files.createDirectories(dir);
+    try (Stream<Path> files = Files.list(dir)) {
+      files
+          .filter(path -> path.getFileName().toString().endsWith(Constants.SUFFIX_FILE_WAL))
+          .forEach(path -> segments.put(firstLsnOf(path), path));
+    }
+  }
+
+  private static long firstLsnOf(Path segment) {
+    String fileName = segment.getFileName().toString();
+    String lsn = fileName.substring(0, fileName.length() - Constants.SUFFIX_FILE_WAL.length());
+    return Long.parseLong(lsn);
+  }
+
+  private Path segmentOf(long firstLsn) {
+    return dir.resolve(String.format("%020d%s", firstLsn, Constants.SUFFIX_FILE_WAL));
+  }
+
+  /**
+   * 按顺序回放已有的日志，完成后开始接受写入。必须在 {@link #append(byte[])} 之前调用且只能调用一次。
+   *
+   * @param handler 回放记录的处理器
+   */
+  public void replay(WalRecords.Handler handler)
+      throws IOException, StorageException, InterruptedException {
+    Preconditions.checkState(scheduler == null, "wal %s has been replayed", name);
+
+    long records = 0;
+    long maxLsn = -1;
+    Iterator<Map.Entry<Long, Path>> iterator = segments.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Path segment = iterator.next().getValue();
+      // 段名占用的序号不再分配，避免新段与已有的空段重名
+      maxLsn = Math.max(maxLsn, firstLsnOf(segment));
+      byte[] content = Files.readAllBytes(segment);
+      ByteBuffer buffer = ByteBuffer.wrap(content);
+      boolean complete = true;
+      while (buffer.hasRemaining()) {
+        int offset = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE) {
+          complete = false;
+          break;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        long lsn = buffer.getLong();
+        if (length < 0 || length > buffer.remaining()) {
+          buffer.position(offset);
+          complete = false;
+          break;
+        }
+        byte[] record = new byte[length];
+        buffer.get(record);
+        if (checksum != checksumOf(lsn, record)) {
+          buffer.position(offset);
+          complete = false;
+          break;
+        }
+        WalRecords.replay(lsn, record, handler);
+        maxLsn = Math.max(maxLsn, lsn);
+        records++;
+      }
+      if (!complete) {
+        LOGGER.warn(
+            "wal segment {} is truncated at {} of {} bytes, later segments are discarded",
+            segment,
+            buffer.position(),
+            content.length);
+        try (FileChannel truncated = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+          truncated.truncate(buffer.position());
+          truncated.force(true);
+        }
+        while (iterator.hasNext()) {
+          Path discarded = iterator.next().getValue();
+          Path target = discarded.resolveSibling(discarded.getFileName() + CORRUPTED_SUFFIX);
+          Files.move(discarded, target);
+          iterator.remove();
+        }
+      }
+    }
+    if (!segments.isEmpty()) {
+      LOGGER.info("replayed {} records from {} wal segments of {}", records, segments.size(), name);
+    }
+
+    appendLock.lock();
+    try {
+      nextLsn = maxLsn + 1;
+      writtenLsn = maxLsn;
+    } finally {
+      appendLock.unlock();
+    }
+
+    ThreadFactory factory =
+        new ThreadFactoryBuilder().setNameFormat("wal-" + name + "-%d").build();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(factory);
+    scheduler.scheduleWithFixedDelay(
+        this::maintain, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 追加一条记录，返回时记录已写入日志文件，BATCH 模式下已经落盘。成功后调用方必须调用 {@link #applied(long)}。
+   *
+   * @param record 记录内容
+   * @return 记录的序号
+   */
+  public long append(byte[] record) throws IOException {
+    appendLock.lock();
+    try {
+      Preconditions.checkState(scheduler != null, "wal %s has not been replayed", name);
+      if (closed) {
+        throw new IOException("wal " + name + " is closed");
+      }
+      if (failure != null) {
+        throw new IOException("wal " + name + " has failed", failure);
+      }
+      long lsn = nextLsn++;
+      if (pending.size() == 0) {
+        pendingFirstLsn = lsn;
+      }
+      pendingOut.writeInt(record.length);
+      pendingOut.writeInt(checksumOf(lsn, record));
+      pendingOut.writeLong(lsn);
+      pendingOut.write(record);
+      inFlight.add(lsn);
+      try {
+        awaitWritten(lsn);
+      } catch (IOException e) {
+        inFlight.remove(lsn);
+        throw e;
+      }
+      return lsn;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /** 记录已写入内存表，之后由内存表负责保留 */
+  public void applied(long lsn) {
+    appendLock.lock();
+    try {
+      inFlight.remove(lsn);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  private void awaitWritten(long lsn) throws IOException {
+    while (writtenLsn < lsn) {
+      if (failure != null) {
+        throw new IOException("failed to write wal of " + name, failure);
+      }
+      if (writing) {
+        written.awaitUninterruptibly();
+        continue;
+      }
+      // 成为写出者，把排队的记录一次写出
+      writing = true;
+      long firstLsn = pendingFirstLsn;
+      long lastLsn = nextLsn - 1;
+      byte[] batch = pending.toByteArray();
+      pending.reset();
+      IOException error = null;
+      appendLock.unlock();
+      try {
+        write(firstLsn, batch);
+      } catch (IOException e) {
+        error = e;
+      } finally {
+        appendLock.lock();
+        writing = false;
+        if (error == null) {
+          writtenLsn = lastLsn;
+        } else {
+          failure = error;
+        }
+        written.signalAll();
+      }
+    }
+  }
+
+  private void write(long firstLsn, byte[] batch) throws IOException {
+    segmentLock.lock();
+    try {
+      if (channel == null) {
+        Path segment = segmentOf(firstLsn);
+        channel =
+            FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channelSize = 0;
+        segments.put(firstLsn, segment);
+        syncDirectory();
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(batch);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channelSize += batch.length;
+      if (syncMode == WalSyncMode.BATCH) {
+        channel.force(false);
+      } else {
+        dirty = true;
+      }
+      if (channelSize >= segmentSize) {
+        closeSegment();
+      }
+    } finally {
+      segmentLock.unlock();
+    }
+  }
+
+  private void closeSegment() throws IOException {
+    try {
+      if (dirty || syncMode == WalSyncMode.BATCH) {
+        channel.force(false);
+      }
+    } finally {
+      channel.close();
+      channel = null;
+      dirty = false;
+    }
+  }
+
+  private void syncDirectory() {
+    FileSyncUtils.forceDirectoryQuietly(dir);
+  }
+
+  private static int checksumOf(long lsn, byte[] record) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(Longs.toByteArray(lsn));
+    crc32.update(record);
+    return (int) crc32.getValue();
+  }
+
+  private void maintain() {
+    try {
+      sync();
+      recycle();
+    } catch (Exception e) {
+      LOGGER.error("failed to maintain wal of {}", name, e);
+    }
+  }
+
+  /** 将已写出的记录落盘 */
+  public void sync() throws IOException {
+    segmentLock.lock();
+    try {
+      if (dirty && channel != null) {
+        channel.force(false);
+        dirty = false;
+      }
+    } finally {
+      segmentLock.unlock();
+    }
+  }
+
+  /** 删除所有记录都已持久化的段 */
+  public void recycle() throws IOException {
+    segmentLock.lock();
+    try {
+      if (segments.size() < 2) {
+        return;
+      }
+    } finally {
+      segmentLock.unlock();
+    }
+
+    // 先取排队中的最小序号再取内存表中的，保证期间写入内存表的记录不会被漏掉
+    long retained;
+    appendLock.lock();
+    try {
+      retained = inFlight.isEmpty() ? nextLsn : inFlight.first();
+    } finally {
+      appendLock.unlock();
+    }
+    retained = Math.min(retained, retainedLsn.getAsLong());
+
+    List<Path> recycled = new ArrayList<>();
+    segmentLock.lock();
+    try {
+      Iterator<Map.Entry<Long, Path>> iterator = segments.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, Path> entry = iterator.next();
+        Long nextFirstLsn = segments.higherKey(entry.getKey());
+        if (nextFirstLsn == null || nextFirstLsn > retained) {
+          break;
+        }
+        recycled.add(entry.getValue());
+        iterator.remove();
+      }
+      for (Path segment : recycled) {
+        Files.deleteIfExists(segment);
+      }
+    } finally {
+      segmentLock.unlock();
+    }
+    if (!recycled.isEmpty()) {
+      LOGGER.debug("recycled wal segments {} of {}", recycled, name);
+    }
+  }
+
+  /** 删除所有的段，调用方需保证内存表中的数据已经持久化或已被丢弃，且期间没有写入 */
+  public void clear() throws IOException {
+    segmentLock.lock();
+    try {
+      if (channel != null) {
+        channel.close();
+        channel = null;
+        dirty = false;
+      }
+      for (Path segment : segments.values()) {
+        Files.deleteIfExists(segment);
+      }
+      segments.clear();
+    } finally {
+      segmentLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    appendLock.lock();
+    try {
+      closed = true;
+    } finally {
+      appendLock.unlock();
+    }
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      try {
+        if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+          throw new IllegalStateException("wal " + name + " is not terminated");
+        }
+      } catch (InterruptedException e) {
+        LOGGER.debug("wal is interrupted:", e);
+        Thread.currentThread().interrupt();
+      }
+    }
+    segmentLock.lock();
+    try {
+      if (channel != null) {
+        closeSegment();
+      }
+    } finally {
+      segmentLock.unlock();
+    }
+  }
+}
@@ -73,6 +73,10 @@ public class ConcatScanner<K extends Comparable<K>, V> implements Scanner<K, V>
 
   @Override
   public void close() throws StorageException {
+    if (currentScanner != null) {
+      currentScanner.close();
+      currentScanner = null;
+    }
     while (scannerIterator.hasNext()) {
       scannerIterator.next().close();
     }
@@ -31,26 +31,40 @@ public class RowUnionScanner<K extends Comparable<K>, F, V> implements Scanner<K
         Comparator.comparing(e -> e.getKey().key());
     this.queue = new PriorityQueue<>(comparing.thenComparing(Map.Entry::getValue));
 
-    StorageException exception = null;
+    Iterator<Scanner<K, Scanner<F, V>>> iterator = scanners.iterator();
+    Scanner<K, Scanner<F, V>> current = null;
     long i = 0;
-    for (Scanner<K, Scanner<F, V>> scanner : scanners) {
-      if (scanner.iterate()) {
-        queue.add(new AbstractMap.SimpleImmutableEntry<>(scanner, i));
-        i++;
-      } else {
-        try {
-          scanner.close();
-        } catch (StorageException e) {
-          if (exception == null) {
-            exception = e;
-          } else {
-            exception.addSuppressed(e);
-          }
+    try {
+      while (iterator.hasNext()) {
+        current = iterator.next();
+        if (current.iterate()) {
+          queue.add(new AbstractMap.SimpleImmutableEntry<>(current, i));
+          i++;
+        } else {
+          current.close();
         }
+        current = null;
+      }
+    } catch (StorageException | RuntimeException e) {
+      // 关闭出错的、已加入队列的以及尚未访问的扫描器，避免泄漏
+      if (current != null) {
+        closeQuietly(current, e);
       }
+      while (iterator.hasNext()) {
+        closeQuietly(iterator.next(), e);
+      }
+      for (Map.Entry<Scanner<K, Scanner<F, V>>, Long> entry : queue) {
+        closeQuietly(entry.getKey(), e);
+      }
+      throw e;
     }
-    if (exception != null) {
-      throw exception;
+  }
+
+  private static void closeQuietly(Scanner<?, ?> scanner, Exception e) {
+    try {
+      scanner.close();
+    } catch (StorageException | RuntimeException ex) {
+      e.addSuppressed(ex);
     }
   }
 
@@ -78,21 +92,26 @@ public class RowUnionScanner<K extends Comparable<K>, F, V> implements Scanner<K
   @Override
   public boolean iterate() throws StorageException {
     Map<F, V> row = new HashMap<>();
-    if (queue.isEmpty()) {
-      currentRow = null;
-      currentKey = null;
-      return false;
-    }
-    currentKey = queue.peek().getKey().key();
-    while (!queue.isEmpty() && currentKey.compareTo(queue.peek().getKey().key()) == 0) {
-      Map.Entry<Scanner<K, Scanner<F, V>>, Long> entry = queue.poll();
-      assert entry != null;
-      Scanner<F, V> scanner = entry.getKey().value();
-      while (scanner.iterate()) {
-        row.putIfAbsent(scanner.key(), scanner.value());
+    // 跳过合并后没有任何字段的行，例如 EmtpyHeadRowScanner 产生的占位行
+    while (row.isEmpty()) {
+      if (queue.isEmpty()) {
+        currentRow = null;
+        currentKey = null;
+        return false;
       }
-      if (entry.getKey().iterate()) {
-        queue.add(entry);
+      currentKey = queue.peek().getKey().key();
+      while (!queue.isEmpty() && currentKey.compareTo(queue.peek().getKey().key()) == 0) {
+        Map.Entry<Scanner<K, Scanner<F, V>>, Long> entry = queue.poll();
+        assert entry != null;
+        Scanner<F, V> scanner = entry.getKey().value();
+        while (scanner.iterate()) {
+          row.putIfAbsent(scanner.key(), scanner.value());
+        }
+        if (entry.getKey().iterate()) {
+          queue.add(entry);
+        } else {
+          entry.getKey().close();
+        }
       }
     }
     currentRow =
@@ -34,12 +34,17 @@ public class AggregatedRowStream implements RowStream {
   private final Row row;
   private boolean hasNext = true;
 
-  public AggregatedRowStream(Map<String, ?> values, String functionName) {
-    List<Field> fieldList = new ArrayList<>(values.size());
-    List<Object> valuesList = new ArrayList<>(values.size());
-    for (Map.Entry<String, ?> entry : values.entrySet()) {
-      Object value = entry.getValue();
-      valuesList.add(value);
+  /**
+   * @param values 各列的聚合结果，可以为 null
+   * @param types 各列聚合结果的类型，按此顺序输出
+   * @param functionName 聚合函数名
+   */
+  public AggregatedRowStream(
+      Map<String, ?> values, Map<String, DataType> types, String functionName) {
+    List<Field> fieldList = new ArrayList<>(types.size());
+    List<Object> valuesList = new ArrayList<>(types.size());
+    for (Map.Entry<String, DataType> entry : types.entrySet()) {
+      valuesList.add(values.get(entry.getKey()));
 
       Map.Entry<String, Map<String, String>> pathWithTags =
           DataViewWrapper.parseFieldName(entry.getKey());
@@ -47,21 +52,12 @@ public class AggregatedRowStream implements RowStream {
       Map<String, String> tags = pathWithTags.getValue();
       String pathWithFunctionName = functionName + "(" + path + ")";
 
-      DataType dataType = typeFromValue(value);
-      Field field = new Field(pathWithFunctionName, dataType, tags);
+      Field field = new Field(pathWithFunctionName, entry.getValue(), tags);
       fieldList.add(field);
     }
     row = new Row(new Header(fieldList), valuesList.toArray());
   }
 
-  private static DataType typeFromValue(Object value) {
-    if (value instanceof Long) {
-      return DataType.LONG;
-    } else {
-      throw new UnsupportedOperationException("Unsupported type: " + value.getClass().getName());
-    }
-  }
-
   @Override
   public Header getHeader() throws PhysicalException {
     return row.getHeader();
@@ -23,9 +23,9 @@ import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.Column;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.ColumnKey;
 import cn.edu.tsinghua.iginx.engine.shared.KeyRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchToRowStreamWrapper;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
-import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.tag.TagFilter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.Database;
@@ -39,7 +39,9 @@ import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowFields;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
 import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
 import com.google.common.collect.RangeSet;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -48,6 +50,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,7 +66,8 @@ public class DataManager implements Manager {
     this.shared = shared;
     Path dataDir = dir.resolve(Constants.DIR_NAME_TABLE);
     ReadWriter readWriter = new ParquetReadWriter(shared, dataDir);
-    this.db = new OneTierDB(dir.toString(), shared, readWriter);
+    Path walDir = dir.resolve(Constants.DIR_NAME_WAL);
+    this.db = new OneTierDB(dir.toString(), shared, readWriter, walDir);
   }
 
   @Override
@@ -79,27 +83,54 @@ public class DataManager implements Manager {
     try {
       Scanner<Long, Scanner<String, Object>> scanner =
           db.query(ArrowFields.of(projectedSchema), rangeSet, projectedFilter);
+      int batchSize = shared.getStorageProperties().getScanBatchSize();
+      if (batchSize > 0) {
+        return new BatchToRowStreamWrapper(
+            new ScannerBatchStream(projectedSchema, scanner, batchSize));
+      }
       return new ScannerRowStream(projectedSchema, scanner);
     } catch (IOException e) {
       throw new StorageException(e);
     }
   }
 
-  public RowStream aggregation(List<String> patterns, TagFilter tagFilter, List<FunctionCall> calls)
+  /**
+   * 聚合匹配的各列上的全部值
+   *
+   * @param patterns 列名模式
+   * @param tagFilter 标签过滤条件
+   * @param type 聚合类型
+   * @return 只有一行的结果，列名形如 {@code max(path)}
+   */
+  public RowStream aggregation(List<String> patterns, TagFilter tagFilter, AggregateType type)
       throws PhysicalException {
     Map<String, DataType> schema = ArrowFields.toIginxSchema(db.schema());
     Map<String, DataType> schemaMatchTags = ProjectUtils.project(schema, tagFilter);
     Map<String, DataType> projectedSchema = ProjectUtils.project(schemaMatchTags, patterns);
 
     try {
-      // TODO: just support count now
-      Map<String, Long> counts = db.count(ArrowFields.of(projectedSchema));
-      return new AggregatedRowStream(counts, "count");
+      Map<String, Object> values = db.aggregate(ArrowFields.of(projectedSchema), type);
+      Map<String, DataType> types = new TreeMap<>();
+      projectedSchema.forEach((name, dataType) -> types.put(name, resultTypeOf(type, dataType)));
+      return new AggregatedRowStream(values, types, type.name().toLowerCase());
     } catch (InterruptedException | IOException e) {
       throw new StorageException(e);
     }
   }
 
+  private static DataType resultTypeOf(AggregateType type, DataType dataType) {
+    switch (type) {
+      case COUNT:
+        return DataType.LONG;
+      case SUM:
+        return DataTypeUtils.isWholeNumber(dataType) ? DataType.LONG : DataType.DOUBLE;
+      case AVG:
+        return DataType.DOUBLE;
+      default:
+        return dataType;
+    }
+  }
+
   @Override
   public void insert(DataView data) throws PhysicalException {
     DataViewWrapper wrappedData = new DataViewWrapper(data);
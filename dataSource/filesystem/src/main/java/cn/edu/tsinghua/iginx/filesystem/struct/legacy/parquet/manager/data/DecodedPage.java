@@ -0,0 +1,224 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.CachePool;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.Arrays;
+
+/**
+ * 从parquet文件的一个行组中解码出的某一列数据，只保存非空值，按key升序排列。数值使用原始类型数组存储，缓存权重在构建时累加得到，避免写入缓存时反射计算对象大小。
+ */
+final class DecodedPage implements CachePool.Cacheable {
+
+  private static final int OBJECT_OVERHEAD = 16;
+
+  private static final int ARRAY_OVERHEAD = 16;
+
+  private final DataType type;
+  private final long[] keys;
+  private final Object values;
+  private final int size;
+  private final int weight;
+
+  private DecodedPage(DataType type, long[] keys, Object values, int size, int weight) {
+    this.type = type;
+    this.keys = keys;
+    this.values = values;
+    this.size = size;
+    this.weight = weight;
+  }
+
+  public DataType getType() {
+    return type;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getKey(int index) {
+    return keys[index];
+  }
+
+  public Object getValue(int index) {
+    switch (type) {
+      case BOOLEAN:
+        return ((boolean[]) values)[index];
+      case INTEGER:
+        return ((int[]) values)[index];
+      case LONG:
+        return ((long[]) values)[index];
+      case FLOAT:
+        return ((float[]) values)[index];
+      case DOUBLE:
+        return ((double[]) values)[index];
+      case BINARY:
+        return ((byte[][]) values)[index];
+      default:
+        throw new IllegalStateException("unsupported data type: " + type);
+    }
+  }
+
+  /**
+   * 二分查找第一个key不小于给定值的下标
+   *
+   * @param key 目标key
+   * @return 下标，若所有key都小于给定值则返回size
+   */
+  public int lowerBound(long key) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  @Override
+  public int getWeight() {
+    return weight;
+  }
+
+  public static Builder builder(DataType type) {
+    return new Builder(type);
+  }
+
+  public static final class Builder {
+    private final DataType type;
+    private long[] keys = new long[16];
+    private Object values;
+    private int size = 0;
+    private long valueBytes = 0;
+
+    private Builder(DataType type) {
+      this.type = type;
+      this.values = newArray(type, keys.length);
+    }
+
+    /**
+     * 追加一个值，key需要严格递增
+     *
+     * @param key key
+     * @param value 非空值，类型需与列类型一致
+     * @return this builder
+     */
+    public Builder append(long key, Object value) {
+      if (size == keys.length) {
+        grow();
+      }
+      keys[size] = key;
+      switch (type) {
+        case BOOLEAN:
+          ((boolean[]) values)[size] = (Boolean) value;
+          break;
+        case INTEGER:
+          ((int[]) values)[size] = (Integer) value;
+          break;
+        case LONG:
+          ((long[]) values)[size] = (Long) value;
+          break;
+        case FLOAT:
+          ((float[]) values)[size] = (Float) value;
+          break;
+        case DOUBLE:
+          ((double[]) values)[size] = (Double) value;
+          break;
+        case BINARY:
+          byte[] bytes = (byte[]) value;
+          ((byte[][]) values)[size] = bytes;
+          valueBytes += ARRAY_OVERHEAD + bytes.length;
+          break;
+        default:
+          throw new IllegalStateException("unsupported data type: " + type);
+      }
+      size++;
+      return this;
+    }
+
+    public DecodedPage build() {
+      long[] trimmedKeys = Arrays.copyOf(keys, size);
+      Object trimmedValues = copyOf(values, size);
+      long weight =
+          OBJECT_OVERHEAD
+              + ARRAY_OVERHEAD
+              + (long) Long.BYTES * size
+              + ARRAY_OVERHEAD
+              + (long) widthOf(type) * size
+              + valueBytes;
+      int cappedWeight = (int) Math.min(Integer.MAX_VALUE, weight);
+      return new DecodedPage(type, trimmedKeys, trimmedValues, size, cappedWeight);
+    }
+
+    private void grow() {
+      int capacity = keys.length * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      values = copyOf(values, capacity);
+    }
+  }
+
+  private static Object newArray(DataType type, int capacity) {
+    switch (type) {
+      case BOOLEAN:
+        return new boolean[capacity];
+      case INTEGER:
+        return new int[capacity];
+      case LONG:
+        return new long[capacity];
+      case FLOAT:
+        return new float[capacity];
+      case DOUBLE:
+        return new double[capacity];
+      case BINARY:
+        return new byte[capacity][];
+      default:
+        throw new IllegalArgumentException("unsupported data type: " + type);
+    }
+  }
+
+  private static Object copyOf(Object array, int length) {
+    if (array instanceof boolean[]) {
+      return Arrays.copyOf((boolean[]) array, length);
+    } else if (array instanceof int[]) {
+      return Arrays.copyOf((int[]) array, length);
+    } else if (array instanceof long[]) {
+      return Arrays.copyOf((long[]) array, length);
+    } else if (array instanceof float[]) {
+      return Arrays.copyOf((float[]) array, length);
+    } else if (array instanceof double[]) {
+      return Arrays.copyOf((double[]) array, length);
+    } else {
+      return Arrays.copyOf((byte[][]) array, length);
+    }
+  }
+
+  private static int widthOf(DataType type) {
+    switch (type) {
+      case BOOLEAN:
+        return 1;
+      case INTEGER:
+      case FLOAT:
+        return 4;
+      case LONG:
+      case DOUBLE:
+        return 8;
+      case BINARY:
+        return 4; // 引用
+      default:
+        throw new IllegalArgumentException("unsupported data type: " + type);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import java.util.*;
+import javax.annotation.Nullable;
+
+/** 按key升序合并同一行组中多个列的解码页面，逐行输出，可以只输出落在给定范围内的行 */
+class DecodedPageScanner implements Scanner<Long, Scanner<String, Object>> {
+
+  private final String[] columns;
+  private final DecodedPage[] pages;
+  private final int[] positions;
+  private final int[] limits;
+  private final Iterator<Range<Long>> rangeIterator;
+
+  private Long key;
+  private Scanner<String, Object> rowScanner;
+
+  /**
+   * @param pages 列名到解码页面的映射
+   * @param ranges 需要输出的key范围，为null时输出全部行
+   */
+  DecodedPageScanner(Map<String, DecodedPage> pages, @Nullable RangeSet<Long> ranges) {
+    int size = pages.size();
+    this.columns = new String[size];
+    this.pages = new DecodedPage[size];
+    this.positions = new int[size];
+    this.limits = new int[size];
+    int i = 0;
+    for (Map.Entry<String, DecodedPage> entry : pages.entrySet()) {
+      columns[i] = entry.getKey();
+      this.pages[i] = entry.getValue();
+      i++;
+    }
+    if (ranges == null) {
+      this.rangeIterator = Collections.singletonList(Range.<Long>all()).iterator();
+    } else {
+      this.rangeIterator = ranges.asRanges().iterator();
+    }
+  }
+
+  @Override
+  public Long key() throws NoSuchElementException {
+    if (key == null) {
+      throw new NoSuchElementException();
+    }
+    return key;
+  }
+
+  @Override
+  public Scanner<String, Object> value() throws NoSuchElementException {
+    if (rowScanner == null) {
+      throw new NoSuchElementException();
+    }
+    return rowScanner;
+  }
+
+  @Override
+  public boolean iterate() {
+    while (true) {
+      long min = Long.MAX_VALUE;
+      boolean found = false;
+      for (int i = 0; i < pages.length; i++) {
+        if (positions[i] < limits[i]) {
+          min = Math.min(min, pages[i].getKey(positions[i]));
+          found = true;
+        }
+      }
+      if (found) {
+        List<Map.Entry<String, Object>> row = new ArrayList<>(pages.length);
+        for (int i = 0; i < pages.length; i++) {
+          if (positions[i] < limits[i] && pages[i].getKey(positions[i]) == min) {
+            Object value = pages[i].getValue(positions[i]);
+            row.add(new AbstractMap.SimpleImmutableEntry<>(columns[i], value));
+            positions[i]++;
+          }
+        }
+        key = min;
+        rowScanner = new IteratorScanner<>(row.iterator());
+        return true;
+      }
+      if (!rangeIterator.hasNext()) {
+        key = null;
+        rowScanner = null;
+        return false;
+      }
+      seek(rangeIterator.next());
+    }
+  }
+
+  private void seek(Range<Long> range) {
+    for (int i = 0; i < pages.length; i++) {
+      DecodedPage page = pages[i];
+      int from = 0;
+      if (range.hasLowerBound()) {
+        long lower = range.lowerEndpoint();
+        if (range.lowerBoundType() == BoundType.CLOSED) {
+          from = page.lowerBound(lower);
+        } else {
+          from = lower == Long.MAX_VALUE ? page.size() : page.lowerBound(lower + 1);
+        }
+      }
+      int to = page.size();
+      if (range.hasUpperBound()) {
+        long upper = range.upperEndpoint();
+        if (range.upperBoundType() == BoundType.OPEN) {
+          to = page.lowerBound(upper);
+        } else if (upper != Long.MAX_VALUE) {
+          to = page.lowerBound(upper + 1);
+        }
+      }
+      positions[i] = from;
+      limits[i] = Math.max(from, to);
+    }
+  }
+
+  @Override
+  public void close() {}
+}
@@ -25,7 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-class FilterRangeUtils {
+public class FilterRangeUtils {
   private FilterRangeUtils() {}
 
   public static RangeSet<Long> rangeSetOf(Filter filter) {
@@ -24,28 +24,38 @@ import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.filesystem.format.parquet.IParquetReader;
 import cn.edu.tsinghua.iginx.filesystem.format.parquet.IParquetWriter;
 import cn.edu.tsinghua.iginx.filesystem.format.parquet.IRecord;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.ReadWriter;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table.DeletedTableMeta;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.AreaFilterScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.ConcatScanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.LazyRowScanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.dummy.Storer;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.CachePool;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.FileSyncUtils;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageRuntimeException;
 import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import shaded.iginx.org.apache.parquet.column.statistics.Statistics;
+import shaded.iginx.org.apache.parquet.hadoop.metadata.BlockMetaData;
+import shaded.iginx.org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import shaded.iginx.org.apache.parquet.hadoop.metadata.ColumnPath;
 import shaded.iginx.org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import shaded.iginx.org.apache.parquet.schema.MessageType;
@@ -93,7 +103,11 @@ public class ParquetReadWriter implements ReadWriter {
       throws IOException {
     Path path = getPath(tableName);
     Path tempPath = dir.resolve(tableName + Constants.SUFFIX_FILE_TEMP);
+    boolean created = Files.notExists(dir);
     Files.createDirectories(path.getParent());
+    if (created && dir.getParent() != null) {
+      FileSyncUtils.forceDirectory(dir.getParent());
+    }
 
     LOGGER.debug("flushing into {}", tempPath);
 
@@ -120,7 +134,11 @@ public class ParquetReadWriter implements ReadWriter {
     if (Files.exists(path)) {
       LOGGER.warn("file {} already exists, will be replaced", path);
     }
+    // 表提交后对应的预写日志就会被回收，因此文件内容和重命名都要在返回前落盘
+    FileSyncUtils.forceFile(tempPath);
     Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    FileSyncUtils.forceDirectory(dir);
+    shared.getCachePool().invalidatePages(path.toString());
   }
 
   private static MessageType getMessageType(Map<String, DataType> schema) {
@@ -173,7 +191,12 @@ public class ParquetReadWriter implements ReadWriter {
 
   @Override
   public Scanner<Long, Scanner<String, Object>> scanData(
-      String name, Set<String> fields, RangeSet<Long> ranges, Filter predicate) throws IOException {
+      String name,
+      Set<String> fields,
+      RangeSet<Long> ranges,
+      Filter predicate,
+      AreaSet<Long, String> tombstone)
+      throws IOException {
     Path path = getPath(name);
 
     Filter rangeFilter = FilterRangeUtils.filterOf(ranges);
@@ -185,22 +208,206 @@ public class ParquetReadWriter implements ReadWriter {
       unionFilter = new AndFilter(Arrays.asList(rangeFilter, predicate));
     }
 
-    IParquetReader.Builder builder = IParquetReader.builder(path);
-    builder.project(fields);
-    builder.filter(unionFilter);
-
     ParquetTableMeta parquetTableMeta = getParquetTableMeta(path.toString());
-    IParquetReader reader = builder.build(parquetTableMeta.getMeta());
 
-    Scanner<Long, Scanner<String, Object>> scanner = new ParquetScanner(reader);
+    Set<String> columns = new HashSet<>(fields);
+    columns.retainAll(parquetTableMeta.getSchema().keySet());
 
-    AreaSet<Long, String> tombstone = tombstoneStorage.get(name);
-    if (tombstone == null || tombstone.isEmpty()) {
+    Scanner<Long, Scanner<String, Object>> scanner;
+    if (columns.isEmpty() || shared.getStorageProperties().getPageCacheCapacity() == 0) {
+      scanner = scanRows(path, parquetTableMeta.getMeta(), fields, unionFilter);
+    } else {
+      scanner = scanRowGroups(path, parquetTableMeta.getMeta(), columns, ranges, unionFilter);
+    }
+
+    if (tombstone.isEmpty()) {
       return scanner;
     }
     return new AreaFilterScanner<>(scanner, tombstone);
   }
 
+  @Override
+  public AreaSet<Long, String> readTombstone(String name) {
+    // TombstoneStorage 每次删除都替换为新的集合，缓存中的集合本身不会被修改
+    AreaSet<Long, String> tombstone = tombstoneStorage.get(name);
+    return tombstone == null ? new AreaSet<>() : tombstone;
+  }
+
+  private static Scanner<Long, Scanner<String, Object>> scanRows(
+      Path path, ParquetMetadata footer, Set<String> fields, Filter filter) throws IOException {
+    IParquetReader.Builder builder = IParquetReader.builder(path);
+    builder.project(fields);
+    builder.filter(filter);
+    IParquetReader reader = builder.build(footer);
+    return new ParquetScanner(reader);
+  }
+
+  /**
+   * 逐个行组读取数据。与key范围不相交的行组直接跳过；被key范围完整覆盖的行组按列解码后放入页面缓存；只有部分行命中的行组，
+   * 如果所需列已经全部缓存则从缓存中二分查找，否则交给parquet按照页面索引过滤读取。
+   */
+  private Scanner<Long, Scanner<String, Object>> scanRowGroups(
+      Path path,
+      ParquetMetadata footer,
+      Set<String> columns,
+      RangeSet<Long> ranges,
+      Filter filter) {
+    String fileName = path.toString();
+    long pageCacheCapacity = shared.getStorageProperties().getPageCacheCapacity();
+
+    List<Scanner<Long, Scanner<String, Object>>> scanners = new ArrayList<>();
+    List<BlockMetaData> pending = new ArrayList<>();
+    List<BlockMetaData> blocks = footer.getBlocks();
+    for (int i = 0; i < blocks.size(); i++) {
+      BlockMetaData block = blocks.get(i);
+      if (block.getRowCount() == 0) {
+        continue;
+      }
+      Range<Long> keyRange = getKeyRangeOf(block);
+      if (keyRange == null) {
+        pending.add(block);
+        continue;
+      }
+      RangeSet<Long> selected = ranges.subRangeSet(keyRange);
+      if (selected.isEmpty()) {
+        continue;
+      }
+
+      boolean covered = ranges.encloses(keyRange);
+      long decodedSize = block.getRowCount() * (long) Long.BYTES * (columns.size() + 1);
+      boolean cacheable = covered && decodedSize <= pageCacheCapacity / 4;
+      Map<String, DecodedPage> cached = getCachedPages(fileName, i, columns);
+      if (!cacheable && cached.size() != columns.size()) {
+        pending.add(block);
+        continue;
+      }
+
+      if (!pending.isEmpty()) {
+        scanners.add(lazyScanRows(path, footer, pending, columns, filter));
+        pending = new ArrayList<>();
+      }
+      int rowGroup = i;
+      RangeSet<Long> rangesInRowGroup = covered ? null : selected;
+      scanners.add(
+          new LazyRowScanner<>(
+              () -> {
+                Map<String, DecodedPage> pages = new HashMap<>(cached);
+                if (pages.size() != columns.size()) {
+                  pages.putAll(loadPages(path, footer, rowGroup, columns, pages.keySet()));
+                }
+                return new DecodedPageScanner(pages, rangesInRowGroup);
+              }));
+    }
+    if (!pending.isEmpty()) {
+      scanners.add(lazyScanRows(path, footer, pending, columns, filter));
+    }
+    return new ConcatScanner<>(scanners.iterator());
+  }
+
+  private static Scanner<Long, Scanner<String, Object>> lazyScanRows(
+      Path path,
+      ParquetMetadata footer,
+      List<BlockMetaData> blocks,
+      Set<String> fields,
+      Filter filter) {
+    ParquetMetadata partialFooter = new ParquetMetadata(footer.getFileMetaData(), blocks);
+    return new LazyRowScanner<>(
+        () -> {
+          try {
+            return scanRows(path, partialFooter, fields, filter);
+          } catch (IOException e) {
+            throw new StorageException("failed to read " + path, e);
+          }
+        });
+  }
+
+  @Nullable
+  private static Range<Long> getKeyRangeOf(BlockMetaData block) {
+    for (ColumnChunkMetaData column : block.getColumns()) {
+      if (column.getPath().toDotString().equals(Constants.KEY_FIELD_NAME)) {
+        Statistics<?> statistics = column.getStatistics();
+        if (statistics == null || !statistics.hasNonNullValue()) {
+          return null;
+        }
+        return Range.closed((Long) statistics.genericGetMin(), (Long) statistics.genericGetMax());
+      }
+    }
+    return null;
+  }
+
+  private Map<String, DecodedPage> getCachedPages(
+      String fileName, int rowGroup, Set<String> columns) {
+    ConcurrentMap<CachePool.PageKey, CachePool.Cacheable> pages = shared.getCachePool().pages();
+    Map<String, DecodedPage> result = new HashMap<>();
+    for (String column : columns) {
+      CachePool.Cacheable cacheable = pages.get(new CachePool.PageKey(fileName, rowGroup, column));
+      if (cacheable instanceof DecodedPage) {
+        result.put(column, (DecodedPage) cacheable);
+      }
+    }
+    return result;
+  }
+
+  private Map<String, DecodedPage> loadPages(
+      Path path, ParquetMetadata footer, int rowGroup, Set<String> columns, Set<String> loaded)
+      throws StorageException {
+    Set<String> missing = new HashSet<>(columns);
+    missing.removeAll(loaded);
+
+    BlockMetaData block = footer.getBlocks().get(rowGroup);
+    ParquetMetadata rowGroupFooter =
+        new ParquetMetadata(footer.getFileMetaData(), Collections.singletonList(block));
+    IParquetReader.Builder builder = IParquetReader.builder(path);
+    builder.project(missing);
+
+    Map<String, DecodedPage> result = new HashMap<>();
+    try (IParquetReader reader = builder.build(rowGroupFooter)) {
+      MessageType schema = reader.getSchema();
+      int keyIndex = schema.getFieldIndex(Constants.KEY_FIELD_NAME);
+      DecodedPage.Builder[] builders = new DecodedPage.Builder[schema.getFieldCount()];
+      for (int i = 0; i < builders.length; i++) {
+        if (i != keyIndex) {
+          Type type = schema.getType(i);
+          builders[i] = DecodedPage.builder(IParquetReader.toIginxType(type.asPrimitiveType()));
+        }
+      }
+
+      Object[] values = new Object[builders.length];
+      IRecord record;
+      while ((record = reader.read()) != null) {
+        long key = 0;
+        Arrays.fill(values, null);
+        for (Map.Entry<Integer, Object> entry : record) {
+          if (entry.getKey() == keyIndex) {
+            key = (Long) entry.getValue();
+          } else {
+            values[entry.getKey()] = entry.getValue();
+          }
+        }
+        for (int i = 0; i < builders.length; i++) {
+          if (values[i] != null) {
+            builders[i].append(key, values[i]);
+          }
+        }
+      }
+
+      String fileName = path.toString();
+      ConcurrentMap<CachePool.PageKey, CachePool.Cacheable> pages = shared.getCachePool().pages();
+      for (int i = 0; i < builders.length; i++) {
+        if (builders[i] != null) {
+          String column = schema.getType(i).getName();
+          DecodedPage page = builders[i].build();
+          pages.put(new CachePool.PageKey(fileName, rowGroup, column), page);
+          result.put(column, page);
+        }
+      }
+    } catch (IOException e) {
+      throw new StorageException("failed to decode row group " + rowGroup + " of " + path, e);
+    }
+    LOGGER.debug("decoded {} of row group {} in {}", result.keySet(), rowGroup, path);
+    return result;
+  }
+
   @Override
   public void delete(String name, AreaSet<Long, String> areas) throws IOException {
     tombstoneStorage.delete(Collections.singleton(name), oldAreas -> oldAreas.addAll(areas));
@@ -212,6 +419,7 @@ public class ParquetReadWriter implements ReadWriter {
     try {
       Files.deleteIfExists(path);
       shared.getCachePool().asMap().remove(path.toString());
+      shared.getCachePool().invalidatePages(path.toString());
       tombstoneStorage.removeTable(name);
     } catch (IOException e) {
       throw new StorageRuntimeException(e);
@@ -225,6 +433,7 @@ public class ParquetReadWriter implements ReadWriter {
         Files.newDirectoryStream(dir, "*" + Constants.SUFFIX_FILE_PARQUET)) {
       for (Path path : stream) {
         shared.getCachePool().asMap().remove(path.toString());
+        shared.getCachePool().invalidatePages(path.toString());
         String fileName = path.getFileName().toString();
         String tableName = getTableName(fileName);
         names.add(tableName);
@@ -255,6 +464,7 @@ public class ParquetReadWriter implements ReadWriter {
           Files.deleteIfExists(path);
           String fileName = path.toString();
           shared.getCachePool().asMap().remove(fileName);
+          shared.getCachePool().invalidatePages(fileName);
         }
       }
       try (DirectoryStream<Path> stream =
@@ -336,10 +546,15 @@ public class ParquetReadWriter implements ReadWriter {
   }
 
   private static class ParquetTableMeta implements TableMeta, CachePool.Cacheable {
+    // 估算值：footer中每个列块的元数据和统计信息，以及schema中每个字段
+    private static final int COLUMN_CHUNK_WEIGHT = 512;
+    private static final int FIELD_WEIGHT = 256;
+
     private final Map<String, DataType> schemaDst;
     private final Map<String, Range<Long>> rangeMap;
     private final Map<String, Long> countMap;
     private final ParquetMetadata meta;
+    private final int weight;
 
     public static ParquetTableMeta of(ParquetMetadata meta) {
       Map<String, DataType> schemaDst = new HashMap<>();
@@ -382,6 +597,14 @@ public class ParquetReadWriter implements ReadWriter {
       this.rangeMap = rangeMap;
       this.countMap = countMap;
       this.meta = meta;
+      long columnChunks = meta.getBlocks().stream().mapToLong(b -> b.getColumns().size()).sum();
+      long weight = columnChunks * COLUMN_CHUNK_WEIGHT + (long) schemaDst.size() * FIELD_WEIGHT;
+      this.weight = (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    @Override
+    public int getWeight() {
+      return weight;
     }
 
     @Override
@@ -406,6 +629,73 @@ public class ParquetReadWriter implements ReadWriter {
       return countMap.get(field);
     }
 
+    /**
+     * 被查询范围完整覆盖的行组直接使用列块的统计信息，部分命中或缺少统计信息的行组记为未覆盖。只有数值类型的最值可以直接使用，其余类型的最值与
+     * IGinX 的比较方式不一致，不予统计。
+     */
+    @Override
+    public FieldStatistics getStatistics(String field, RangeSet<Long> ranges) {
+      DataType type = schemaDst.get(field);
+      if (type == null) {
+        throw new NoSuchElementException();
+      }
+      boolean withExtremes = DataTypeUtils.isNumber(type);
+
+      long count = 0;
+      Object min = null;
+      Object max = null;
+      RangeSet<Long> uncovered = TreeRangeSet.create();
+      for (BlockMetaData block : meta.getBlocks()) {
+        if (block.getRowCount() == 0) {
+          continue;
+        }
+        Range<Long> keyRange = getKeyRangeOf(block);
+        if (keyRange == null) {
+          uncovered.addAll(ranges);
+          continue;
+        }
+        RangeSet<Long> selected = ranges.subRangeSet(keyRange);
+        if (selected.isEmpty()) {
+          continue;
+        }
+        ColumnChunkMetaData column = getColumnOf(block, field);
+        if (column == null) {
+          continue;
+        }
+        Statistics<?> statistics = column.getStatistics();
+        if (!ranges.encloses(keyRange) || statistics == null || statistics.isEmpty()) {
+          uncovered.addAll(selected);
+          continue;
+        }
+        count += column.getValueCount() - statistics.getNumNulls();
+        if (withExtremes && statistics.hasNonNullValue()) {
+          min = extreme(min, statistics.genericGetMin(), false);
+          max = extreme(max, statistics.genericGetMax(), true);
+        }
+      }
+      return new FieldStatistics(count, min, max, uncovered);
+    }
+
+    @Nullable
+    private static ColumnChunkMetaData getColumnOf(BlockMetaData block, String field) {
+      for (ColumnChunkMetaData column : block.getColumns()) {
+        String[] path = column.getPath().toArray();
+        if (path.length == 1 && path[0].equals(field)) {
+          return column;
+        }
+      }
+      return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object extreme(@Nullable Object current, Object value, boolean max) {
+      if (current == null) {
+        return value;
+      }
+      int cmp = ((Comparable) value).compareTo(current);
+      return (max ? cmp > 0 : cmp < 0) ? value : current;
+    }
+
     public ParquetMetadata getMeta() {
       return meta;
     }
@@ -0,0 +1,122 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.RowFetchException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.BatchStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将合并后的扫描结果按批写入列式数据，每个值写入对应类型的数组，不构造行对象。
+ *
+ * <p>合并扫描结果的迭代器以装箱对象传递值，写入时才拆箱，因此这里省去的只是行对象，没有减少装箱
+ */
+class ScannerBatchStream implements BatchStream {
+
+  private final Map<String, Integer> indexes;
+
+  private final Header header;
+
+  private final Scanner<Long, Scanner<String, Object>> scanner;
+
+  private final int batchSize;
+
+  private boolean pending = false; // scanner 已前进到下一行，但还没有写入批数据
+
+  private boolean exhausted = false;
+
+  public ScannerBatchStream(
+      Map<String, DataType> projected,
+      Scanner<Long, Scanner<String, Object>> scanner,
+      int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batch size should be positive: " + batchSize);
+    }
+    this.indexes = new HashMap<>();
+    List<Field> fieldList = new ArrayList<>(projected.size());
+    for (Map.Entry<String, DataType> entry : projected.entrySet()) {
+      indexes.put(entry.getKey(), indexes.size());
+      Map.Entry<String, Map<String, String>> pathWithTags =
+          DataViewWrapper.parseFieldName(entry.getKey());
+      fieldList.add(new Field(pathWithTags.getKey(), entry.getValue(), pathWithTags.getValue()));
+    }
+    this.header = new Header(Field.KEY, fieldList);
+    this.scanner = scanner;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public Header getHeader() throws PhysicalException {
+    return header;
+  }
+
+  @Override
+  public void close() throws PhysicalException {
+    try {
+      scanner.close();
+    } catch (Exception e) {
+      throw new RowFetchException(e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() throws PhysicalException {
+    if (!pending && !exhausted) {
+      pending = scanner.iterate();
+      exhausted = !pending;
+    }
+    return pending;
+  }
+
+  @Override
+  public Batch nextBatch() throws PhysicalException {
+    if (!hasNext()) {
+      throw new IllegalStateException("batch stream doesn't have more data!");
+    }
+    long[] keys = new long[batchSize];
+    ColumnVector[] columns = new ColumnVector[header.getFieldSize()];
+    for (int j = 0; j < columns.length; j++) {
+      columns[j] = ColumnVector.allocate(header.getField(j).getType(), batchSize);
+    }
+    int size = 0;
+    while (size < batchSize && hasNext()) {
+      keys[size] = scanner.key();
+      Scanner<String, Object> row = scanner.value();
+      while (row.iterate()) {
+        Integer index = indexes.get(row.key());
+        assert index != null;
+        columns[index].putObject(size, row.value());
+      }
+      pending = false;
+      size++;
+    }
+    return new Batch(header, keys, columns, size);
+  }
+}
@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.CachePool;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.FileSyncUtils;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageRuntimeException;
 import java.io.*;
@@ -166,13 +167,20 @@ public class TombstoneStorage implements Closeable {
 
     LOGGER.debug("flush tombstone to temp file: {}", tempPath);
     try {
+      boolean created = Files.notExists(dir);
       Files.createDirectories(dir);
+      if (created && dir.getParent() != null) {
+        FileSyncUtils.forceDirectory(dir.getParent());
+      }
       try (FileWriter fw = new FileWriter(tempPath.toFile());
           BufferedWriter bw = new BufferedWriter(fw)) {
         bw.write(json);
       }
+      // 墓碑与刷写的表一样，落盘后才允许回收记录了这次删除的预写日志
+      FileSyncUtils.forceFile(tempPath);
       LOGGER.debug("rename temp file to file: {}", path);
       Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+      FileSyncUtils.forceDirectory(dir);
     } catch (IOException e) {
       throw new StorageRuntimeException(e);
     }
@@ -201,9 +209,11 @@ public class TombstoneStorage implements Closeable {
       implements CachePool.Cacheable {
 
     private final AreaSet<Long, String> areas;
+    private final int size;
 
     public CachedTombstone(AreaSet<Long, String> areas, int size) {
       this.areas = areas;
+      this.size = size;
     }
 
     public CachedTombstone(int length) {
@@ -213,5 +223,11 @@ public class TombstoneStorage implements Closeable {
     public AreaSet<Long, String> getTombstone() {
       return areas == null ? new AreaSet<>() : areas;
     }
+
+    @Override
+    public int getWeight() {
+      // 序列化后的长度与内存占用近似成正比
+      return size;
+    }
   }
 }
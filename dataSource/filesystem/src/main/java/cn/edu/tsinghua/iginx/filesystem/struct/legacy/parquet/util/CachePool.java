@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Scheduler;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import org.ehcache.sizeof.SizeOf;
@@ -30,26 +31,103 @@ public class CachePool {
 
   private final Cache<String, Cacheable> cache;
 
+  private final Cache<PageKey, Cacheable> pageCache;
+
   public CachePool(StorageProperties prop) {
+    Scheduler scheduler =
+        Scheduler.forScheduledExecutorService(Executors.newSingleThreadScheduledExecutor());
+
     Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder();
     cacheBuilder.weigher((String name, Cacheable cacheable) -> cacheable.getWeight());
     cacheBuilder.maximumWeight(prop.getCacheCapacity());
     prop.getCacheTimeout().ifPresent(cacheBuilder::expireAfterAccess);
-    cacheBuilder.scheduler(
-        Scheduler.forScheduledExecutorService(Executors.newSingleThreadScheduledExecutor()));
+    cacheBuilder.scheduler(scheduler);
     if (prop.getCacheSoftValues()) {
       cacheBuilder.softValues();
     }
     this.cache = cacheBuilder.build();
+
+    // 解码后的页面单独计算容量，避免大块数据把文件元数据挤出缓存
+    Caffeine<Object, Object> pageCacheBuilder = Caffeine.newBuilder();
+    pageCacheBuilder.weigher((PageKey key, Cacheable cacheable) -> cacheable.getWeight());
+    pageCacheBuilder.maximumWeight(prop.getPageCacheCapacity());
+    prop.getCacheTimeout().ifPresent(pageCacheBuilder::expireAfterAccess);
+    pageCacheBuilder.scheduler(scheduler);
+    this.pageCache = pageCacheBuilder.build();
   }
 
   public ConcurrentMap<String, Cacheable> asMap() {
     return cache.asMap();
   }
 
+  public ConcurrentMap<PageKey, Cacheable> pages() {
+    return pageCache.asMap();
+  }
+
+  public void invalidatePages(String fileName) {
+    pageCache.asMap().keySet().removeIf(key -> key.getFileName().equals(fileName));
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+    pageCache.invalidateAll();
+  }
+
   public interface Cacheable {
+    /**
+     * 缓存项占用的字节数。默认通过反射遍历对象图计算，开销较大，频繁写入的缓存项应当覆盖此方法并返回预先计算的值。
+     */
     default int getWeight() {
       return Math.toIntExact(SizeOf.newInstance().deepSizeOf(this));
     }
   }
+
+  /** 解码页面的缓存键，由文件名、行组序号和列名组成 */
+  public static final class PageKey {
+    private final String fileName;
+    private final int rowGroup;
+    private final String column;
+
+    public PageKey(String fileName, int rowGroup, String column) {
+      this.fileName = Objects.requireNonNull(fileName);
+      this.rowGroup = rowGroup;
+      this.column = Objects.requireNonNull(column);
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public int getRowGroup() {
+      return rowGroup;
+    }
+
+    public String getColumn() {
+      return column;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PageKey pageKey = (PageKey) o;
+      return rowGroup == pageKey.rowGroup
+          && fileName.equals(pageKey.fileName)
+          && column.equals(pageKey.column);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fileName, rowGroup, column);
+    }
+
+    @Override
+    public String toString() {
+      return fileName + "#" + rowGroup + "#" + column;
+    }
+  }
 }
@@ -0,0 +1,63 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** 刷写后的表文件和墓碑文件在预写日志回收前必须落盘，否则宕机后既没有日志也没有完整的文件 */
+public class FileSyncUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileSyncUtils.class);
+
+  private static final boolean IS_WINDOWS =
+      System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+  private FileSyncUtils() {}
+
+  /** 将文件的内容和元数据强制写入磁盘 */
+  public static void forceFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+
+  /** 将目录项强制写入磁盘，使重命名和新建的文件在宕机后仍然可见。Windows 上无法打开目录，由文件系统自行保证 */
+  public static void forceDirectory(Path dir) throws IOException {
+    if (IS_WINDOWS) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  /** 与 {@link #forceDirectory(Path)} 相同，但只记录失败，用于无法回滚的场景 */
+  public static void forceDirectoryQuietly(Path dir) {
+    try {
+      forceDirectory(dir);
+    } catch (IOException e) {
+      LOGGER.debug("failed to sync directory {}", dir, e);
+    }
+  }
+}
@@ -30,6 +30,8 @@ public class Shared implements Closeable {
 
   private final Semaphore flusherPermits;
 
+  private final Semaphore compactorPermits;
+
   private final Semaphore memTablePermits;
 
   private final CachePool cachePool;
@@ -39,11 +41,13 @@ public class Shared implements Closeable {
   public Shared(
       StorageProperties storageProperties,
       Semaphore flusherPermits,
+      Semaphore compactorPermits,
       Semaphore memTablePermits,
       CachePool cachePool,
       BufferAllocator allocator) {
     this.storageProperties = storageProperties;
     this.flusherPermits = flusherPermits;
+    this.compactorPermits = compactorPermits;
     this.memTablePermits = memTablePermits;
     this.cachePool = cachePool;
     this.allocator = allocator;
@@ -51,10 +55,13 @@ public class Shared implements Closeable {
 
   public static Shared of(StorageProperties storageProperties) {
     Semaphore flusherPermits = new Semaphore(storageProperties.getCompactPermits(), true);
+    // 后台合并与刷写使用相同的并发数，但各自计数，避免合并占满许可而阻塞刷写
+    Semaphore compactorPermits = new Semaphore(storageProperties.getCompactPermits(), true);
     Semaphore memTablePermits = new Semaphore(storageProperties.getWriteBufferPermits(), true);
     CachePool cachePool = new CachePool(storageProperties);
     BufferAllocator allocator = new RootAllocator();
-    return new Shared(storageProperties, flusherPermits, memTablePermits, cachePool, allocator);
+    return new Shared(
+        storageProperties, flusherPermits, compactorPermits, memTablePermits, cachePool, allocator);
   }
 
   public StorageProperties getStorageProperties() {
@@ -65,6 +72,10 @@ public class Shared implements Closeable {
     return flusherPermits;
   }
 
+  public Semaphore getCompactorPermits() {
+    return compactorPermits;
+  }
+
   public Semaphore getMemTablePermits() {
     return memTablePermits;
   }
@@ -79,7 +90,7 @@ public class Shared implements Closeable {
 
   @Override
   public void close() throws IOException {
-    cachePool.asMap().clear();
+    cachePool.clear();
     allocator.close();
   }
 }
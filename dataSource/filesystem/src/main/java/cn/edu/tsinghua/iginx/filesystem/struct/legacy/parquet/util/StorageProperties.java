@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.chunk.IndexedChunk;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.chunk.IndexedChunkType;
 import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.buffer.conflict.ConflictResolverType;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.wal.WalSyncMode;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
@@ -39,10 +40,18 @@ public class StorageProperties {
   private final Duration writeBufferTimeout;
   private final long writeBatchSize;
   private final int compactPermits;
+  private final Duration compactInterval;
+  private final int compactTrigger;
+  private final boolean walEnabled;
+  private final WalSyncMode walSyncMode;
+  private final Duration walSyncInterval;
+  private final long walSegmentSize;
   private final int writeBufferPermits;
   private final long cacheCapacity;
   private final Duration cacheTimeout;
   private final boolean cacheSoftValues;
+  private final long pageCacheCapacity;
+  private final int scanBatchSize;
   private final long parquetRowGroupSize;
   private final long parquetPageSize;
   private final int parquetOutputBufferMaxSize;
@@ -62,9 +71,17 @@ public class StorageProperties {
       Duration writeBufferTimeout,
       long writeBatchSize,
       int compactPermits,
+      Duration compactInterval,
+      int compactTrigger,
+      boolean walEnabled,
+      WalSyncMode walSyncMode,
+      Duration walSyncInterval,
+      long walSegmentSize,
       long cacheCapacity,
       Duration cacheTimeout,
       boolean cacheSoftValues,
+      long pageCacheCapacity,
+      int scanBatchSize,
       long parquetRowGroupSize,
       long parquetPageSize,
       int parquetOutputBufferMaxSize,
@@ -81,10 +98,18 @@ public class StorageProperties {
     this.writeBufferTimeout = writeBufferTimeout;
     this.writeBatchSize = writeBatchSize;
     this.compactPermits = compactPermits;
+    this.compactInterval = compactInterval;
+    this.compactTrigger = compactTrigger;
+    this.walEnabled = walEnabled;
+    this.walSyncMode = walSyncMode;
+    this.walSyncInterval = walSyncInterval;
+    this.walSegmentSize = walSegmentSize;
     this.writeBufferPermits = writeBufferPermits;
     this.cacheCapacity = cacheCapacity;
     this.cacheTimeout = cacheTimeout;
     this.cacheSoftValues = cacheSoftValues;
+    this.pageCacheCapacity = pageCacheCapacity;
+    this.scanBatchSize = scanBatchSize;
     this.parquetRowGroupSize = parquetRowGroupSize;
     this.parquetPageSize = parquetPageSize;
     this.parquetOutputBufferMaxSize = parquetOutputBufferMaxSize;
@@ -185,6 +210,61 @@ public class StorageProperties {
     return compactPermits;
   }
 
+  /**
+   * Get the interval of background compaction, zero means background compaction is disabled
+   *
+   * @return the interval of background compaction
+   */
+  public Duration getCompactInterval() {
+    return compactInterval;
+  }
+
+  /**
+   * Get the number of similar-sized tables that triggers a compaction
+   *
+   * @return the number of tables that triggers a compaction
+   */
+  public int getCompactTrigger() {
+    return compactTrigger;
+  }
+
+  /**
+   * Get whether to write ahead log before writing into write buffer
+   *
+   * @return whether to write ahead log
+   */
+  public boolean isWalEnabled() {
+    return walEnabled;
+  }
+
+  /**
+   * Get the sync mode of write ahead log
+   *
+   * @return the sync mode of write ahead log
+   */
+  public WalSyncMode getWalSyncMode() {
+    return walSyncMode;
+  }
+
+  /**
+   * Get the interval to sync write ahead log in INTERVAL mode, which is also the interval to
+   * recycle log segments that have been flushed
+   *
+   * @return the interval to sync write ahead log
+   */
+  public Duration getWalSyncInterval() {
+    return walSyncInterval;
+  }
+
+  /**
+   * Get the size of write ahead log segment in bytes
+   *
+   * @return the size of write ahead log segment, bytes
+   */
+  public long getWalSegmentSize() {
+    return walSegmentSize;
+  }
+
   /**
    * Get the capacity of cache in bytes
    *
@@ -212,6 +292,26 @@ public class StorageProperties {
     return cacheSoftValues;
   }
 
+  /**
+   * Get the capacity of decoded page cache in bytes
+   *
+   * @return the capacity of decoded page cache, bytes
+   */
+  public long getPageCacheCapacity() {
+    return pageCacheCapacity;
+  }
+
+  /**
+   * Get the number of rows in each columnar batch returned by scans, zero if scans return rows.
+   * Batches avoid building a row per key on the engine side, but values are still boxed by the
+   * merge iterators and only unboxed when copied into the batch.
+   *
+   * @return the number of rows in each columnar batch
+   */
+  public int getScanBatchSize() {
+    return scanBatchSize;
+  }
+
   /**
    * Get the size of parquet row group in bytes
    *
@@ -291,9 +391,17 @@ public class StorageProperties {
         .add("writeBufferTimeout=" + writeBufferTimeout)
         .add("writeBatchSize=" + writeBatchSize)
         .add("compactPermits=" + compactPermits)
+        .add("compactInterval=" + compactInterval)
+        .add("compactTrigger=" + compactTrigger)
+        .add("walEnabled=" + walEnabled)
+        .add("walSyncMode=" + walSyncMode)
+        .add("walSyncInterval=" + walSyncInterval)
+        .add("walSegmentSize=" + walSegmentSize)
         .add("cacheCapacity=" + cacheCapacity)
         .add("cacheTimeout=" + cacheTimeout)
         .add("cacheSoftValues=" + cacheSoftValues)
+        .add("pageCacheCapacity=" + pageCacheCapacity)
+        .add("scanBatchSize=" + scanBatchSize)
         .add("parquetRowGroupSize=" + parquetRowGroupSize)
         .add("parquetPageSize=" + parquetPageSize)
         .add("parquetOutputBufferMaxSize=" + parquetOutputBufferMaxSize)
@@ -316,9 +424,17 @@ public class StorageProperties {
     public static final String WRITE_BUFFER_TIMEOUT = "write.buffer.timeout";
     public static final String WRITE_BATCH_SIZE = "write.batch.size";
     public static final String COMPACT_PERMITS = "compact.permits";
+    public static final String COMPACT_INTERVAL = "compact.interval";
+    public static final String COMPACT_TRIGGER = "compact.trigger";
+    public static final String WAL_ENABLED = "wal.enabled";
+    public static final String WAL_SYNC = "wal.sync";
+    public static final String WAL_SYNC_INTERVAL = "wal.sync.interval";
+    public static final String WAL_SEGMENT_SIZE = "wal.segment.size";
     public static final String CACHE_CAPACITY = "cache.capacity";
     public static final String CACHE_TIMEOUT = "cache.timeout";
     public static final String CACHE_VALUE_SOFT = "cache.value.soft";
+    public static final String CACHE_PAGE_CAPACITY = "cache.page.capacity";
+    public static final String SCAN_BATCH_SIZE = "scan.batch.size";
     public static final String PARQUET_BLOCK_SIZE = "parquet.block.size";
     public static final String PARQUET_PAGE_SIZE = "parquet.page.size";
     public static final String PARQUET_OUTPUT_BUFFER_SIZE = "parquet.output.buffer.size";
@@ -339,7 +455,15 @@ public class StorageProperties {
     private long cacheCapacity = 16 * 1024 * 1024; // BYTE
     private Duration cacheTimeout = null;
     private boolean cacheSoftValues = false;
+    private long pageCacheCapacity = 64 * 1024 * 1024; // BYTE
+    private int scanBatchSize = 0;
     private int compactPermits = 2;
+    private Duration compactInterval = Duration.ofMinutes(1);
+    private int compactTrigger = 4;
+    private boolean walEnabled = true;
+    private WalSyncMode walSyncMode = WalSyncMode.INTERVAL;
+    private Duration walSyncInterval = Duration.ofSeconds(1);
+    private long walSegmentSize = 64 * 1024 * 1024; // BYTE
     private long parquetRowGroupSize = 128 * 1024 * 1024; // BYTE
     private long parquetPageSize = 8 * 1024; // BYTE
     private int parquetOutputBufferMaxSize = 256 * 1024; // BYTE
@@ -491,6 +615,30 @@ public class StorageProperties {
       return this;
     }
 
+    /**
+     * Set the capacity of decoded page cache in bytes, zero to disable the cache
+     *
+     * @param pageCacheCapacity the capacity of decoded page cache, bytes
+     * @return this builder
+     */
+    public Builder setPageCacheCapacity(long pageCacheCapacity) {
+      ParseUtils.checkNonNegative(pageCacheCapacity);
+      this.pageCacheCapacity = pageCacheCapacity;
+      return this;
+    }
+
+    /**
+     * Set the number of rows in each columnar batch returned by scans, zero to return rows
+     *
+     * @param scanBatchSize the number of rows in each columnar batch
+     * @return this builder
+     */
+    public Builder setScanBatchSize(int scanBatchSize) {
+      ParseUtils.checkNonNegative(scanBatchSize);
+      this.scanBatchSize = scanBatchSize;
+      return this;
+    }
+
     /**
      * Set the number of flusher permits
      *
@@ -503,6 +651,80 @@ public class StorageProperties {
       return this;
     }
 
+    /**
+     * Set the interval of background compaction, zero to disable background compaction
+     *
+     * @param compactInterval the interval of background compaction
+     * @return this builder
+     */
+    public Builder setCompactInterval(Duration compactInterval) {
+      ParseUtils.checkNonNegative(compactInterval);
+      this.compactInterval = compactInterval;
+      return this;
+    }
+
+    /**
+     * Set the number of similar-sized tables that triggers a compaction
+     *
+     * @param compactTrigger the number of tables that triggers a compaction, at least 2
+     * @return this builder
+     */
+    public Builder setCompactTrigger(int compactTrigger) {
+      if (compactTrigger < 2) {
+        throw new IllegalArgumentException(
+            "compact trigger should be at least 2, but got " + compactTrigger);
+      }
+      this.compactTrigger = compactTrigger;
+      return this;
+    }
+
+    /**
+     * Set whether to write ahead log before writing into write buffer
+     *
+     * @param walEnabled whether to write ahead log
+     * @return this builder
+     */
+    public Builder setWalEnabled(boolean walEnabled) {
+      this.walEnabled = walEnabled;
+      return this;
+    }
+
+    /**
+     * Set the sync mode of write ahead log
+     *
+     * @param walSyncModeName the sync mode name of write ahead log, BATCH or INTERVAL
+     * @return this builder
+     */
+    public Builder setWalSyncMode(String walSyncModeName) {
+      ParseUtils.in("BATCH", "INTERVAL").accept(walSyncModeName);
+      this.walSyncMode = WalSyncMode.valueOf(walSyncModeName);
+      return this;
+    }
+
+    /**
+     * Set the interval to sync write ahead log in INTERVAL mode
+     *
+     * @param walSyncInterval the interval to sync write ahead log
+     * @return this builder
+     */
+    public Builder setWalSyncInterval(Duration walSyncInterval) {
+      ParseUtils.checkPositive(walSyncInterval);
+      this.walSyncInterval = walSyncInterval;
+      return this;
+    }
+
+    /**
+     * Set the size of write ahead log segment in bytes
+     *
+     * @param walSegmentSize the size of write ahead log segment, bytes
+     * @return this builder
+     */
+    public Builder setWalSegmentSize(long walSegmentSize) {
+      ParseUtils.checkPositive(walSegmentSize);
+      this.walSegmentSize = walSegmentSize;
+      return this;
+    }
+
     /**
      * Set the size of parquet row group in bytes
      *
@@ -612,10 +834,21 @@ public class StorageProperties {
       ParseUtils.getOptionalLong(properties, WRITE_BATCH_SIZE).ifPresent(this::setWriteBatchSize);
       ParseUtils.getOptionalInteger(properties, COMPACT_PERMITS)
           .ifPresent(this::setCompactorPermits);
+      ParseUtils.getOptionalDuration(properties, COMPACT_INTERVAL)
+          .ifPresent(this::setCompactInterval);
+      ParseUtils.getOptionalInteger(properties, COMPACT_TRIGGER).ifPresent(this::setCompactTrigger);
+      ParseUtils.getOptionalBoolean(properties, WAL_ENABLED).ifPresent(this::setWalEnabled);
+      ParseUtils.getOptionalString(properties, WAL_SYNC).ifPresent(this::setWalSyncMode);
+      ParseUtils.getOptionalDuration(properties, WAL_SYNC_INTERVAL)
+          .ifPresent(this::setWalSyncInterval);
+      ParseUtils.getOptionalLong(properties, WAL_SEGMENT_SIZE).ifPresent(this::setWalSegmentSize);
       ParseUtils.getOptionalLong(properties, CACHE_CAPACITY).ifPresent(this::setCacheCapacity);
       ParseUtils.getOptionalDuration(properties, CACHE_TIMEOUT).ifPresent(this::setCacheTimeout);
       ParseUtils.getOptionalBoolean(properties, CACHE_VALUE_SOFT)
           .ifPresent(this::setCacheSoftValues);
+      ParseUtils.getOptionalLong(properties, CACHE_PAGE_CAPACITY)
+          .ifPresent(this::setPageCacheCapacity);
+      ParseUtils.getOptionalInteger(properties, SCAN_BATCH_SIZE).ifPresent(this::setScanBatchSize);
       ParseUtils.getOptionalLong(properties, PARQUET_BLOCK_SIZE)
           .ifPresent(this::setParquetRowGroupSize);
       ParseUtils.getOptionalLong(properties, PARQUET_PAGE_SIZE).ifPresent(this::setParquetPageSize);
@@ -647,9 +880,17 @@ public class StorageProperties {
           writeBufferTimeout,
           writeBatchSize,
           compactPermits,
+          compactInterval,
+          compactTrigger,
+          walEnabled,
+          walSyncMode,
+          walSyncInterval,
+          walSegmentSize,
           cacheCapacity,
           cacheTimeout,
           cacheSoftValues,
+          pageCacheCapacity,
+          scanBatchSize,
           parquetRowGroupSize,
           parquetPageSize,
           parquetOutputBufferMaxSize,
@@ -20,6 +20,7 @@
 package cn.edu.tsinghua.iginx.filesystem.struct.tree;
 
 import cn.edu.tsinghua.iginx.filesystem.common.AbstractConfig;
+import com.google.common.collect.Range;
 import com.typesafe.config.*;
 import com.typesafe.config.Optional;
 import java.util.*;
@@ -40,6 +41,8 @@ public class FileTreeConfig extends AbstractConfig {
 
   @Optional Map<String, Config> formats = Collections.emptyMap();
 
+  @Optional int parallelism = 8;
+
   @Override
   public List<ValidationProblem> validate() {
     List<ValidationProblem> problems = new ArrayList<>();
@@ -48,6 +51,7 @@ public class FileTreeConfig extends AbstractConfig {
         problems.add(new InvalidFieldValidationProblem(Fields.dot, "dot cannot contain '.'"));
       }
     }
+    validateInRange(problems, Fields.parallelism, Range.atLeast(1), parallelism);
     return problems;
   }
 
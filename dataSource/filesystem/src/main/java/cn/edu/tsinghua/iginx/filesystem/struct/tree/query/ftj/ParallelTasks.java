@@ -0,0 +1,122 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.tree.query.ftj;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以有限的并行度执行一组任务，并按任务顺序返回结果。
+ *
+ * <p>同时在执行的任务不超过并行度；若某个任务尚未被后台线程执行，调用方会直接在当前线程中执行它，因此嵌套目录在同一线程池中递归提交任务也不会死锁。
+ *
+ * <p>所有查询共享的后台线程数不超过 {@link #MAX_THREADS}，线程用尽时提交的任务被丢弃，由调用方自己执行。
+ */
+final class ParallelTasks {
+
+  static final int MAX_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+  private static final ExecutorService EXECUTOR =
+      new ThreadPoolExecutor(
+          0,
+          MAX_THREADS,
+          60L,
+          TimeUnit.SECONDS,
+          new SynchronousQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat("file-tree-querier-%d").setDaemon(true).build(),
+          new ThreadPoolExecutor.DiscardPolicy());
+
+  private ParallelTasks() {}
+
+  interface CleanUp<T> {
+    void cleanUp(List<T> results) throws IOException;
+  }
+
+  /**
+   * 执行所有任务
+   *
+   * @param tasks 任务
+   * @param parallelism 并行度，为1时所有任务都在当前线程中依次执行
+   * @param cleanUp 有任务失败时，用于释放其他已成功任务的结果
+   * @return 按任务顺序排列的结果
+   * @throws IOException 任意任务失败时抛出，其余任务的异常作为suppressed附加
+   */
+  static <T> List<T> invokeAll(
+      List<? extends Callable<T>> tasks, int parallelism, CleanUp<T> cleanUp)
+      throws IOException {
+    List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futures.add(new FutureTask<>(task));
+    }
+
+    List<T> results = new ArrayList<>(tasks.size());
+    Throwable failure = null;
+    int submitted = 0;
+    for (int i = 0; i < futures.size(); i++) {
+      while (failure == null && submitted < futures.size() && submitted - i < parallelism) {
+        if (parallelism > 1) {
+          EXECUTOR.execute(futures.get(submitted));
+        }
+        submitted++;
+      }
+      if (i >= submitted) {
+        break; // 已经失败，剩余任务不再执行
+      }
+      FutureTask<T> future = futures.get(i);
+      future.run();
+      try {
+        results.add(Uninterruptibles.getUninterruptibly(future));
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      }
+    }
+
+    if (failure == null) {
+      return results;
+    }
+    try {
+      cleanUp.cleanUp(results);
+    } catch (IOException e) {
+      failure.addSuppressed(e);
+    }
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    throw new IOException(failure);
+  }
+}
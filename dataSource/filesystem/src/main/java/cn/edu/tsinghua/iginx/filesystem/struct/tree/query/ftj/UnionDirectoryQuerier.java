@@ -25,19 +25,24 @@ import cn.edu.tsinghua.iginx.filesystem.common.Strings;
 import cn.edu.tsinghua.iginx.filesystem.struct.DataTarget;
 import cn.edu.tsinghua.iginx.filesystem.struct.tree.query.AbstractQuerier;
 import cn.edu.tsinghua.iginx.filesystem.struct.tree.query.Querier;
+import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 
 class UnionDirectoryQuerier extends AbstractQuerier {
 
   private final List<Querier> queriers;
+  private final int parallelism;
 
-  UnionDirectoryQuerier(Path path, String prefix, DataTarget target, List<Querier> subQueriers) {
+  UnionDirectoryQuerier(
+      Path path, String prefix, DataTarget target, List<Querier> subQueriers, int parallelism) {
     super(path, prefix, target);
-    queriers = Objects.requireNonNull(subQueriers);
+    this.queriers = Objects.requireNonNull(subQueriers);
+    this.parallelism = parallelism;
   }
 
   @Override
@@ -58,10 +63,19 @@ class UnionDirectoryQuerier extends AbstractQuerier {
 
   @Override
   public List<RowStream> query() throws IOException {
-    List<RowStream> rowStreams = new ArrayList<>();
+    List<Callable<List<RowStream>>> tasks = new ArrayList<>(queriers.size());
     for (Querier querier : queriers) {
-      rowStreams.addAll(querier.query());
+      tasks.add(querier::query);
     }
+    List<List<RowStream>> results =
+        ParallelTasks.invokeAll(tasks, parallelism, UnionDirectoryQuerier::closeAll);
+    List<RowStream> rowStreams = new ArrayList<>();
+    results.forEach(rowStreams::addAll);
     return rowStreams;
   }
+
+  private static void closeAll(List<List<RowStream>> rowStreams) throws IOException {
+    Iterable<RowStream> all = Iterables.concat(rowStreams);
+    Closeables.close(Iterables.transform(all, Closeables::closeAsIOException));
+  }
 }
@@ -34,6 +34,7 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,28 +81,28 @@ class UnionDirectoryQuerierBuilder implements Builder {
     Map<String, Path> matchedChildren = matchedChildren(target);
 
     boolean needPostFilter = false;
-    List<Querier> subQueriers = new ArrayList<>();
-    try {
-      for (Map.Entry<String, Path> entry : matchedChildren.entrySet()) {
-        String subPrefix = entry.getKey();
-        Path subPath = entry.getValue();
-
-        DataTarget subTarget = extractTarget(target, subPrefix);
-        try (Builder subBuilder = factory.create(subPrefix, subPath, config)) {
-          Querier subQuerier = subBuilder.build(subTarget);
-          subQueriers.add(subQuerier);
-        }
-        if (!Filters.match(target.getFilter(), Filters.startWith(subPrefix))) {
-          needPostFilter = true;
-        }
+    List<Callable<Querier>> tasks = new ArrayList<>(matchedChildren.size());
+    for (Map.Entry<String, Path> entry : matchedChildren.entrySet()) {
+      String subPrefix = entry.getKey();
+      Path subPath = entry.getValue();
+
+      DataTarget subTarget = extractTarget(target, subPrefix);
+      tasks.add(
+          () -> {
+            try (Builder subBuilder = factory.create(subPrefix, subPath, config)) {
+              return subBuilder.build(subTarget);
+            }
+          });
+      if (!Filters.match(target.getFilter(), Filters.startWith(subPrefix))) {
+        needPostFilter = true;
       }
-    } catch (IOException e) {
-      Closeables.close(subQueriers);
-      throw e;
     }
+    // 子节点的构建可能需要读取文件元数据（如parquet的footer），并行进行
+    List<Querier> subQueriers =
+        ParallelTasks.invokeAll(tasks, config.getParallelism(), Closeables::close);
 
     UnionDirectoryQuerier unionDirectoryQuerier =
-        new UnionDirectoryQuerier(path, prefix, target, subQueriers);
+        new UnionDirectoryQuerier(path, prefix, target, subQueriers, config.getParallelism());
     if (!needPostFilter) {
       return unionDirectoryQuerier;
     }
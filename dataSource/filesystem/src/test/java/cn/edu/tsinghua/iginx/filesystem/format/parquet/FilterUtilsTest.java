@@ -0,0 +1,166 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.format.parquet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.KeyFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.OrFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import shaded.iginx.org.apache.parquet.filter2.predicate.FilterApi;
+import shaded.iginx.org.apache.parquet.filter2.predicate.FilterPredicate;
+import shaded.iginx.org.apache.parquet.filter2.predicate.Operators;
+import shaded.iginx.org.apache.parquet.io.api.Binary;
+import shaded.iginx.org.apache.parquet.schema.PrimitiveType;
+import shaded.iginx.org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import shaded.iginx.org.apache.parquet.schema.Types;
+
+public class FilterUtilsTest {
+
+  private static final Operators.LongColumn KEY = FilterApi.longColumn(Constants.KEY_FIELD_NAME);
+
+  private static final Map<String, PrimitiveType> COLUMNS = new HashMap<>();
+
+  static {
+    COLUMNS.put("a.s1", Types.optional(PrimitiveTypeName.INT64).named("s1"));
+    COLUMNS.put("a.s2", Types.optional(PrimitiveTypeName.INT32).named("s2"));
+    COLUMNS.put("a.s3", Types.optional(PrimitiveTypeName.BINARY).named("s3"));
+    COLUMNS.put("a.s4", Types.optional(PrimitiveTypeName.DOUBLE).named("s4"));
+  }
+
+  private static Filter or(Filter... children) {
+    return new OrFilter(Arrays.asList(children));
+  }
+
+  private static Filter and(Filter... children) {
+    return new AndFilter(Arrays.asList(children));
+  }
+
+  private static Filter value(String path, Op op, Value value) {
+    return new ValueFilter(path, op, value);
+  }
+
+  private static void assertPredicate(
+      FilterPredicate expected, Pair<FilterPredicate, Boolean> actual) {
+    assertEquals(expected, actual.getK());
+    assertNull(actual.getV());
+  }
+
+  private static void assertAlwaysTrue(Pair<FilterPredicate, Boolean> actual) {
+    assertNull(actual.getK());
+    assertEquals(Boolean.TRUE, actual.getV());
+  }
+
+  @Test
+  public void testKeyFilters() {
+    assertPredicate(
+        FilterApi.gtEq(KEY, 10L), FilterUtils.toFilterPredicate(new KeyFilter(Op.GE, 10)));
+    assertPredicate(
+        FilterApi.and(FilterApi.gtEq(KEY, 0L), FilterApi.lt(KEY, 5L)),
+        FilterUtils.toFilterPredicate(and(new KeyFilter(Op.GE, 0), new KeyFilter(Op.L, 5))));
+  }
+
+  @Test
+  public void testDisjunctiveKeyFilters() {
+    // 析取的 key 条件需要用 or 连接，用 and 连接会丢掉满足其中一个条件的行
+    Filter filter = or(new KeyFilter(Op.L, 5), new KeyFilter(Op.GE, 10));
+    assertPredicate(
+        FilterApi.or(FilterApi.lt(KEY, 5L), FilterApi.gtEq(KEY, 10L)),
+        FilterUtils.toFilterPredicate(filter));
+
+    Filter nested =
+        or(
+            and(new KeyFilter(Op.GE, 0), new KeyFilter(Op.L, 5)),
+            and(new KeyFilter(Op.GE, 10), new KeyFilter(Op.L, 15)));
+    assertPredicate(
+        FilterApi.or(
+            FilterApi.and(FilterApi.gtEq(KEY, 0L), FilterApi.lt(KEY, 5L)),
+            FilterApi.and(FilterApi.gtEq(KEY, 10L), FilterApi.lt(KEY, 15L))),
+        FilterUtils.toFilterPredicate(nested));
+  }
+
+  @Test
+  public void testUnconvertibleChildren() {
+    Filter valueFilter = value("a.s1", Op.G, new Value(1L));
+    // 析取中有无法转换的条件时整体视为恒真
+    assertAlwaysTrue(FilterUtils.toFilterPredicate(or(new KeyFilter(Op.L, 5), valueFilter)));
+    // 合取中无法转换的条件被忽略
+    assertPredicate(
+        FilterApi.lt(KEY, 5L),
+        FilterUtils.toFilterPredicate(and(new KeyFilter(Op.L, 5), valueFilter)));
+    assertAlwaysTrue(FilterUtils.toFilterPredicate(valueFilter));
+  }
+
+  @Test
+  public void testValuePredicate() {
+    assertPredicate(
+        FilterApi.gt(FilterApi.longColumn("s1"), 10L),
+        FilterUtils.toValuePredicate(value("a.s1", Op.G, new Value(10L)), COLUMNS));
+    assertPredicate(
+        FilterApi.ltEq(FilterApi.intColumn("s2"), 3),
+        FilterUtils.toValuePredicate(value("a.s2", Op.LE_AND, new Value(3)), COLUMNS));
+    assertPredicate(
+        FilterApi.eq(FilterApi.binaryColumn("s3"), Binary.fromString("x")),
+        FilterUtils.toValuePredicate(value("a.s3", Op.E, new Value("x")), COLUMNS));
+    // key 条件不参与值谓词
+    assertPredicate(
+        FilterApi.notEq(FilterApi.longColumn("s1"), 1L),
+        FilterUtils.toValuePredicate(
+            and(new KeyFilter(Op.GE, 0), value("a.s1", Op.NE, new Value(1L))), COLUMNS));
+  }
+
+  @Test
+  public void testValuePredicateNotPushed() {
+    // 类型不一致、字符串的大小比较、浮点数、未知路径、空值与模糊匹配都不下推
+    assertAlwaysTrue(FilterUtils.toValuePredicate(value("a.s1", Op.G, new Value(10)), COLUMNS));
+    assertAlwaysTrue(FilterUtils.toValuePredicate(value("a.s3", Op.L, new Value("x")), COLUMNS));
+    assertAlwaysTrue(FilterUtils.toValuePredicate(value("a.s4", Op.E, new Value(1.0)), COLUMNS));
+    assertAlwaysTrue(FilterUtils.toValuePredicate(value("a.s5", Op.E, new Value(1L)), COLUMNS));
+    assertAlwaysTrue(
+        FilterUtils.toValuePredicate(value("a.s1", Op.E, new Value(DataType.LONG, null)), COLUMNS));
+    assertAlwaysTrue(
+        FilterUtils.toValuePredicate(value("a.s3", Op.LIKE, new Value("x.*")), COLUMNS));
+  }
+
+  @Test
+  public void testDisjunctiveValuePredicate() {
+    Filter filter = or(value("a.s1", Op.G, new Value(10L)), value("a.s2", Op.L, new Value(0)));
+    assertPredicate(
+        FilterApi.or(
+            FilterApi.gt(FilterApi.longColumn("s1"), 10L),
+            FilterApi.lt(FilterApi.intColumn("s2"), 0)),
+        FilterUtils.toValuePredicate(filter, COLUMNS));
+
+    // 任一分支无法下推时，不能根据另一分支跳过数据
+    Filter partial = or(value("a.s1", Op.G, new Value(10L)), value("a.s4", Op.L, new Value(0.0)));
+    assertAlwaysTrue(FilterUtils.toValuePredicate(partial, COLUMNS));
+  }
+}
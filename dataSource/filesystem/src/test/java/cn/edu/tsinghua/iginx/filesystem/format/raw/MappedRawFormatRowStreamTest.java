@@ -0,0 +1,152 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.format.raw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedRawFormatRowStreamTest {
+
+  private static final Header HEADER =
+      new Header(Field.KEY, Collections.singletonList(new Field("raw", DataType.BINARY)));
+
+  // 每个任务覆盖 4 页，最后一页不满
+  private static final int PAGE_SIZE = (int) (MappedRawFormatRowStream.TASK_BYTES / 4);
+
+  private static final int FILE_SIZE = PAGE_SIZE * 9 + 100;
+
+  @TempDir Path dir;
+
+  private Path createFile() throws Exception {
+    byte[] content = new byte[FILE_SIZE];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) (i / PAGE_SIZE + i);
+    }
+    return Files.write(dir.resolve("data.bin"), content);
+  }
+
+  private static void assertPage(Row row, long key) {
+    assertEquals(key, row.getKey());
+    byte[] data = (byte[]) row.getValue(0);
+    long offset = key * PAGE_SIZE;
+    assertEquals(Math.min(PAGE_SIZE, FILE_SIZE - offset), data.length);
+    for (int i = 0; i < data.length; i += 4099) {
+      assertEquals((byte) ((offset + i) / PAGE_SIZE + offset + i), data[i]);
+    }
+  }
+
+  private static List<Row> readAll(Path path, RangeSet<Long> keyRanges, int parallelism)
+      throws Exception {
+    MappedRawFormatRowStream stream =
+        new MappedRawFormatRowStream(HEADER, path, PAGE_SIZE, keyRanges, parallelism);
+    List<Row> rows = new ArrayList<>();
+    try {
+      while (stream.hasNext()) {
+        rows.add(stream.next());
+      }
+    } finally {
+      stream.close();
+    }
+    return rows;
+  }
+
+  @Test
+  public void testReadAll() throws Exception {
+    Path path = createFile();
+    // 没有 key 过滤条件时从第 0 页开始读
+    for (int parallelism : Arrays.asList(1, 4)) {
+      List<Row> rows = readAll(path, ImmutableRangeSet.of(Range.all()), parallelism);
+      assertEquals(10, rows.size());
+      for (int i = 0; i < rows.size(); i++) {
+        assertPage(rows.get(i), i);
+      }
+    }
+  }
+
+  @Test
+  public void testKeyRanges() throws Exception {
+    Path path = createFile();
+    RangeSet<Long> keyRanges = TreeRangeSet.create();
+    keyRanges.add(Range.lessThan(2L));
+    keyRanges.add(Range.openClosed(2L, 6L));
+    keyRanges.add(Range.atLeast(9L));
+    List<Row> rows = readAll(path, keyRanges, 2);
+    long[] expected = {0, 1, 3, 4, 5, 6, 9};
+    assertEquals(expected.length, rows.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertPage(rows.get(i), expected[i]);
+    }
+    assertTrue(readAll(path, ImmutableRangeSet.of(Range.atLeast(10L)), 2).isEmpty());
+  }
+
+  @Test
+  public void testCloseWhileReading() throws Exception {
+    Path path = createFile();
+    MappedRawFormatRowStream stream =
+        new MappedRawFormatRowStream(HEADER, path, PAGE_SIZE, ImmutableRangeSet.of(Range.all()), 4);
+    assertTrue(stream.hasNext());
+    assertPage(stream.next(), 0);
+    // 关闭时等待后台任务结束，之后文件不再被映射，可以删除
+    stream.close();
+    Files.delete(path);
+  }
+
+  @Test
+  public void testConcurrentStreams() throws Exception {
+    // 并发的读取流数量远超后台线程数时，任务由读取流自己执行
+    Path path = createFile();
+    int streams = MappedRawFormatRowStream.MAX_READERS * 2;
+    ExecutorService callers = Executors.newFixedThreadPool(streams);
+    try {
+      List<Future<List<Row>>> futures = new ArrayList<>();
+      for (int i = 0; i < streams; i++) {
+        futures.add(callers.submit(() -> readAll(path, ImmutableRangeSet.of(Range.all()), 8)));
+      }
+      for (Future<List<Row>> future : futures) {
+        List<Row> rows = future.get();
+        assertEquals(10, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+          assertPage(rows.get(i), i);
+        }
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+}
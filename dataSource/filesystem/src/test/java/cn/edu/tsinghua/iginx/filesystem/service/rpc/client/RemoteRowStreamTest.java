@@ -0,0 +1,154 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.service.rpc.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.filesystem.service.rpc.server.ServerObjectMappingUtils;
+import cn.edu.tsinghua.iginx.filesystem.thrift.RawBatch;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class RemoteRowStreamTest {
+
+  private static final Header HEADER =
+      new Header(Field.KEY, Arrays.asList(new Field("a.b", DataType.LONG)));
+
+  private static final long CURSOR = 1;
+
+  private final FakeService service = new FakeService();
+
+  /** 不连接服务端，按顺序返回预先准备的批次，并记录关闭游标的次数 */
+  private static class FakeService extends RemoteService {
+
+    private final Queue<CompletableFuture<RawBatch>> batches = new ArrayDeque<>();
+
+    private int fetchCount = 0;
+
+    private int closeCount = 0;
+
+    FakeService() {
+      super(new InetSocketAddress("127.0.0.1", 0), new ClientConfig());
+    }
+
+    @Override
+    CompletableFuture<RawBatch> fetchAsync(long cursorId) {
+      assertEquals(CURSOR, cursorId);
+      fetchCount++;
+      CompletableFuture<RawBatch> batch = batches.poll();
+      assertNotNull(batch, "fetch after the last batch");
+      return batch;
+    }
+
+    @Override
+    void closeQuery(long cursorId) {
+      assertEquals(CURSOR, cursorId);
+      closeCount++;
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    service.close();
+  }
+
+  private static RawBatch batch(long start, int count, boolean hasMore) throws PhysicalException {
+    List<Row> rows = new ArrayList<>();
+    for (long key = start; key < start + count; key++) {
+      rows.add(new Row(HEADER, key, new Object[] {key * 10}));
+    }
+    RawBatch batch =
+        ServerObjectMappingUtils.constructRawBatch(new Table(HEADER, rows), HEADER, count);
+    batch.setHasMore(hasMore);
+    return batch;
+  }
+
+  private void addBatch(RawBatch batch) {
+    service.batches.add(CompletableFuture.completedFuture(batch));
+  }
+
+  @Test
+  public void testReadAllBatches() throws PhysicalException {
+    addBatch(batch(0, 3, true));
+    addBatch(batch(3, 0, true)); // 过滤后为空的批次
+    addBatch(batch(3, 2, false));
+    RemoteRowStream stream = new RemoteRowStream(service, CURSOR, HEADER);
+    for (long key = 0; key < 5; key++) {
+      assertTrue(stream.hasNext());
+      Row row = stream.next();
+      assertEquals(key, row.getKey());
+      assertEquals(key * 10, row.getValue(0));
+    }
+    assertFalse(stream.hasNext());
+    stream.close();
+    // 读完后服务端已经自动关闭游标
+    assertEquals(3, service.fetchCount);
+    assertEquals(0, service.closeCount);
+  }
+
+  @Test
+  public void testCloseEarly() throws PhysicalException {
+    addBatch(batch(0, 2, true));
+    CompletableFuture<RawBatch> prefetching = new CompletableFuture<>();
+    service.batches.add(prefetching);
+    RemoteRowStream stream = new RemoteRowStream(service, CURSOR, HEADER);
+    assertTrue(stream.hasNext());
+    stream.next();
+    stream.close();
+    stream.close();
+    // 提前关闭时通知服务端释放游标，不再继续拉取
+    assertEquals(1, service.closeCount);
+    assertEquals(2, service.fetchCount);
+    assertFalse(stream.hasNext());
+  }
+
+  @Test
+  public void testFetchFailureClosesCursor() throws PhysicalException {
+    addBatch(batch(0, 1, true));
+    CompletableFuture<RawBatch> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("connection reset"));
+    service.batches.add(failed);
+    RemoteRowStream stream = new RemoteRowStream(service, CURSOR, HEADER);
+    assertTrue(stream.hasNext());
+    stream.next();
+
+    PhysicalException e = assertThrows(PhysicalException.class, stream::hasNext);
+    assertEquals("connection reset", e.getCause().getMessage());
+    // 连接异常时服务端并不知道拉取失败，客户端需要主动关闭游标，且只关闭一次
+    assertEquals(1, service.closeCount);
+    assertFalse(stream.hasNext());
+    stream.close();
+    assertEquals(1, service.closeCount);
+    assertTrue(service.batches.isEmpty());
+  }
+}
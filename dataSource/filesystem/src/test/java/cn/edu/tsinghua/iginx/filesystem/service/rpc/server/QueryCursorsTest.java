@@ -0,0 +1,135 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.service.rpc.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.filesystem.common.FileSystemException;
+import cn.edu.tsinghua.iginx.filesystem.thrift.RawBatch;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class QueryCursorsTest {
+
+  private static final Header HEADER =
+      new Header(Field.KEY, Collections.singletonList(new Field("a.b", DataType.LONG)));
+
+  private final QueryCursors cursors = new QueryCursors("test");
+
+  /** 依次产生 key 为 0 到 size - 1 的行，读到 failAt 时抛出异常 */
+  private static class CountingRowStream implements RowStream {
+
+    private final int size;
+
+    private final int failAt;
+
+    private int next = 0;
+
+    private boolean closed = false;
+
+    CountingRowStream(int size, int failAt) {
+      this.size = size;
+      this.failAt = failAt;
+    }
+
+    @Override
+    public Header getHeader() {
+      return HEADER;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < size;
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+      if (next == failAt) {
+        throw new IllegalStateException("broken at " + next);
+      }
+      long key = next++;
+      return new Row(HEADER, key, new Object[] {key});
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    cursors.close();
+  }
+
+  @Test
+  public void testFetchUntilExhausted() throws FileSystemException {
+    CountingRowStream rowStream = new CountingRowStream(5, -1);
+    long id = cursors.open(rowStream).getId();
+
+    RawBatch batch = cursors.fetch(id, 2);
+    assertEquals(2, batch.getRowCount());
+    assertTrue(batch.isHasMore());
+    assertEquals(2, cursors.fetch(id, 2).getRowCount());
+    assertFalse(rowStream.closed);
+
+    batch = cursors.fetch(id, 2);
+    assertEquals(1, batch.getRowCount());
+    assertFalse(batch.isHasMore());
+    // 读完后游标自动关闭
+    assertTrue(rowStream.closed);
+    assertThrows(FileSystemException.class, () -> cursors.fetch(id, 2));
+  }
+
+  @Test
+  public void testCloseOnAnyFetchFailure() throws FileSystemException {
+    CountingRowStream rowStream = new CountingRowStream(5, 3);
+    long id = cursors.open(rowStream).getId();
+    assertEquals(2, cursors.fetch(id, 2).getRowCount());
+
+    // 行流抛出的不是 FileSystemException 时同样释放游标
+    assertThrows(IllegalStateException.class, () -> cursors.fetch(id, 2));
+    assertTrue(rowStream.closed);
+    assertThrows(FileSystemException.class, () -> cursors.fetch(id, 2));
+  }
+
+  @Test
+  public void testCloseAll() throws FileSystemException {
+    CountingRowStream first = new CountingRowStream(5, -1);
+    CountingRowStream second = new CountingRowStream(5, -1);
+    long id = cursors.open(first).getId();
+    assertNotEquals(id, cursors.open(second).getId());
+
+    cursors.close(id);
+    assertTrue(first.closed);
+    assertFalse(second.closed);
+    cursors.close(id);
+
+    cursors.close();
+    assertTrue(second.closed);
+  }
+}
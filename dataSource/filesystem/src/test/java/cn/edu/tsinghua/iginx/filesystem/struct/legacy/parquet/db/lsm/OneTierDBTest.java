@@ -0,0 +1,327 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.storage.domain.ColumnKey;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.BoolFilter;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data.ParquetReadWriter;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.StorageProperties;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowFields;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OneTierDBTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final Map<String, DataType> SCHEMA = Collections.singletonMap("s1", DataType.LONG);
+
+  private static final Set<Field> FIELDS =
+      Collections.singleton(ArrowFields.of(new ColumnKey("s1"), DataType.LONG));
+
+  private static Scanner<Long, Scanner<String, Object>> rows(long from, long to) {
+    Map<Long, Scanner<String, Object>> rows = new TreeMap<>();
+    for (long key = from; key < to; key++) {
+      Map<String, Object> row = Collections.singletonMap("s1", key * 10);
+      rows.put(key, new IteratorScanner<>(row.entrySet().iterator()));
+    }
+    return new IteratorScanner<>(rows.entrySet().iterator());
+  }
+
+  private static Scanner<String, Object> row(Object value) {
+    Map<String, Object> row = Collections.singletonMap("s1", value);
+    return new IteratorScanner<>(row.entrySet().iterator());
+  }
+
+  private static Map<Long, Object> queryAll(OneTierDB db) throws Exception {
+    try (Scanner<Long, Scanner<String, Object>> scanner =
+        db.query(FIELDS, ImmutableRangeSet.of(Range.all()), new BoolFilter(true))) {
+      return readAll(scanner);
+    }
+  }
+
+  private static Map<Long, Object> readAll(Scanner<Long, Scanner<String, Object>> scanner)
+      throws Exception {
+    Map<Long, Object> result = new TreeMap<>();
+    while (scanner.iterate()) {
+      Scanner<String, Object> row = scanner.value();
+      while (row.iterate()) {
+        result.put(scanner.key(), row.value());
+      }
+    }
+    return result;
+  }
+
+  private static Map<Long, Object> expected(long from, long to) {
+    Map<Long, Object> expected = new TreeMap<>();
+    for (long key = from; key < to; key++) {
+      expected.put(key, key * 10);
+    }
+    return expected;
+  }
+
+  /** 前一半数据刷写为文件表，后一半留在内存表中 */
+  private static void fillHalfFlushed(OneTierDB db) throws Exception {
+    try (Scanner<Long, Scanner<String, Object>> rows = rows(0, 10)) {
+      db.upsertRows(rows, SCHEMA);
+    }
+    assertEquals(Collections.singletonMap("s1", 10L), db.count(FIELDS));
+    try (Scanner<Long, Scanner<String, Object>> rows = rows(10, 20)) {
+      db.upsertRows(rows, SCHEMA);
+    }
+  }
+
+  private OneTierDB openWithoutAutoFlush(Shared shared) throws Exception {
+    Path dataDir = folder.newFolder().toPath();
+    Path walDir = folder.newFolder().toPath();
+    return new OneTierDB("test", shared, new ParquetReadWriter(shared, dataDir), walDir);
+  }
+
+  private static StorageProperties withoutAutoFlush() {
+    return StorageProperties.builder().setWriteBufferTimeout(Duration.ofHours(1)).build();
+  }
+
+  private static AreaSet<Long, Field> wholeField() {
+    AreaSet<Long, Field> areas = new AreaSet<>();
+    areas.add(FIELDS);
+    return areas;
+  }
+
+  private static long countSegments(Path dir) throws Exception {
+    return countFiles(dir, Constants.SUFFIX_FILE_WAL);
+  }
+
+  private static long countFiles(Path dir, String suffix) throws Exception {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(path -> path.toString().endsWith(suffix)).count();
+    }
+  }
+
+  @Test
+  public void reopenAfterRecycle() throws Exception {
+    StorageProperties properties =
+        StorageProperties.builder()
+            .setFlushOnClose(false)
+            .setWalEnabled(true)
+            .setWalSyncMode("BATCH")
+            .setWalSyncInterval(Duration.ofMillis(10))
+            .setWalSegmentSize(64)
+            .build();
+    Path dataDir = folder.newFolder("data").toPath();
+    Path walDir = folder.newFolder("wal").toPath();
+
+    Map<Long, Object> expected = new TreeMap<>();
+    for (long key = 0; key < 10; key++) {
+      expected.put(key, key * 10);
+    }
+
+    try (Shared shared = Shared.of(properties)) {
+      try (OneTierDB db =
+          new OneTierDB("test", shared, new ParquetReadWriter(shared, dataDir), walDir)) {
+        for (long from = 0; from < 10; from += 2) {
+          try (Scanner<Long, Scanner<String, Object>> rows = rows(from, from + 2)) {
+            db.upsertRows(rows, SCHEMA);
+          }
+        }
+        assertTrue(countSegments(walDir) > 1);
+
+        // count 会将内存表刷写成文件表，随后后台线程回收已经落盘的日志段
+        assertEquals(Collections.singletonMap("s1", 10L), db.count(FIELDS));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (countSegments(walDir) > 1 && System.currentTimeMillis() < deadline) {
+          Thread.sleep(10);
+        }
+        assertEquals(1, countSegments(walDir));
+      }
+
+      // 不在关闭时刷写，重新打开后被回收的日志无法回放，数据只能来自已经落盘的文件表
+      try (OneTierDB db =
+          new OneTierDB("test", shared, new ParquetReadWriter(shared, dataDir), walDir)) {
+        assertEquals(expected, queryAll(db));
+      }
+    }
+  }
+
+  @Test
+  public void queryIgnoresLaterDelete() throws Exception {
+    try (Shared shared = Shared.of(withoutAutoFlush());
+        OneTierDB db = openWithoutAutoFlush(shared)) {
+      fillHalfFlushed(db);
+
+      // 文件表在读到时才打开，此时删除已经完成，查询仍然应当看到删除之前的全部数据
+      try (Scanner<Long, Scanner<String, Object>> scanner =
+          db.query(FIELDS, ImmutableRangeSet.of(Range.all()), new BoolFilter(true))) {
+        db.delete(wholeField());
+        assertEquals(expected(0, 20), readAll(scanner));
+      }
+      assertTrue(queryAll(db).isEmpty());
+
+      // 删除整列后内存表中的列不再持有数据，之后的写入不受影响
+      try (Scanner<Long, Scanner<String, Object>> rows = rows(30, 32)) {
+        db.upsertRows(rows, SCHEMA);
+      }
+      assertEquals(expected(30, 32), queryAll(db));
+    }
+  }
+
+  @Test
+  public void queryNeverSeesHalfAppliedDelete() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Shared shared = Shared.of(withoutAutoFlush());
+        OneTierDB db = openWithoutAutoFlush(shared)) {
+      for (int round = 0; round < 20; round++) {
+        fillHalfFlushed(db);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> deletion =
+            executor.submit(
+                () -> {
+                  started.await();
+                  db.delete(wholeField());
+                  return null;
+                });
+        started.countDown();
+        while (!deletion.isDone()) {
+          Map<Long, Object> result = queryAll(db);
+          assertTrue(
+              "round " + round + " saw " + result.keySet(),
+              result.isEmpty() || result.equals(expected(0, 20)));
+        }
+        deletion.get();
+        assertTrue(queryAll(db).isEmpty());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void replayMatchesConcurrentInsertsAndDeletes() throws Exception {
+    StorageProperties properties =
+        StorageProperties.builder()
+            .setFlushOnClose(false)
+            .setWalEnabled(true)
+            .setWriteBufferTimeout(Duration.ofHours(1))
+            .build();
+    Path dataDir = folder.newFolder("data").toPath();
+    Path walDir = folder.newFolder("wal").toPath();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (Shared shared = Shared.of(properties)) {
+      Map<Long, Object> beforeClose;
+      try (OneTierDB db =
+          new OneTierDB("test", shared, new ParquetReadWriter(shared, dataDir), walDir)) {
+        for (int round = 0; round < 20; round++) {
+          CountDownLatch started = new CountDownLatch(1);
+          Future<?> insertion =
+              executor.submit(
+                  () -> {
+                    started.await();
+                    for (long from = 0; from < 20; from += 2) {
+                      try (Scanner<Long, Scanner<String, Object>> rows = rows(from, from + 2)) {
+                        db.upsertRows(rows, SCHEMA);
+                      }
+                    }
+                    return null;
+                  });
+          Future<?> deletion =
+              executor.submit(
+                  () -> {
+                    started.await();
+                    for (int i = 0; i < 5; i++) {
+                      db.delete(wholeField());
+                    }
+                    return null;
+                  });
+          started.countDown();
+          insertion.get();
+          deletion.get();
+        }
+        beforeClose = queryAll(db);
+      }
+
+      // 关闭时不刷写，重新打开后内存表的内容全部来自日志回放，应当与关闭前看到的结果一致
+      try (OneTierDB db =
+          new OneTierDB("test", shared, new ParquetReadWriter(shared, dataDir), walDir)) {
+        assertEquals(beforeClose, queryAll(db));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void aggregateFoldsMemTables() throws Exception {
+    try (Shared shared = Shared.of(withoutAutoFlush())) {
+      Path dataDir = folder.newFolder().toPath();
+      Path walDir = folder.newFolder().toPath();
+      try (OneTierDB db =
+          new OneTierDB("test", shared, new ParquetReadWriter(shared, dataDir), walDir)) {
+        fillHalfFlushed(db);
+        // 覆盖文件表中 key 为 0 和 5 的值
+        Map<Long, Scanner<String, Object>> updates = new TreeMap<>();
+        updates.put(0L, row(7L));
+        updates.put(5L, row(500L));
+        try (Scanner<Long, Scanner<String, Object>> rows =
+            new IteratorScanner<>(updates.entrySet().iterator())) {
+          db.upsertRows(rows, SCHEMA);
+        }
+        long tables = countFiles(dataDir, Constants.SUFFIX_FILE_PARQUET);
+
+        assertEquals(
+            Collections.singletonMap("s1", 2357L), db.aggregate(FIELDS, AggregateType.SUM));
+        assertEquals(
+            Collections.singletonMap("s1", 20L), db.aggregate(FIELDS, AggregateType.COUNT));
+        assertEquals(Collections.singletonMap("s1", 7L), db.aggregate(FIELDS, AggregateType.MIN));
+        assertEquals(Collections.singletonMap("s1", 500L), db.aggregate(FIELDS, AggregateType.MAX));
+        assertEquals(
+            Collections.singletonMap("s1", 7L), db.aggregate(FIELDS, AggregateType.FIRST_VALUE));
+        assertEquals(
+            Collections.singletonMap("s1", 190L), db.aggregate(FIELDS, AggregateType.LAST_VALUE));
+
+        // 聚合直接读取内存表，不会将其刷写为文件表
+        assertEquals(tables, countFiles(dataDir, Constants.SUFFIX_FILE_PARQUET));
+      }
+    }
+  }
+}
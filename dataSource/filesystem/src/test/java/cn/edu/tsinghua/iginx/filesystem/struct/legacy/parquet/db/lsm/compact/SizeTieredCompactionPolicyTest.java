@@ -0,0 +1,108 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.Range;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class SizeTieredCompactionPolicyTest {
+
+  private final SizeTieredCompactionPolicy policy = new SizeTieredCompactionPolicy(4, 6);
+
+  @Test
+  public void selectSimilarTables() {
+    LinkedHashMap<String, TableMeta> metas = new LinkedHashMap<>();
+    for (int i = 0; i < 8; i++) {
+      metas.put(name(i), meta(100, "a"));
+    }
+    assertEquals(
+        Arrays.asList(name(0), name(1), name(2), name(3), name(4), name(5)), policy.select(metas));
+  }
+
+  @Test
+  public void notEnoughTables() {
+    LinkedHashMap<String, TableMeta> metas = new LinkedHashMap<>();
+    for (int i = 0; i < 3; i++) {
+      metas.put(name(i), meta(100, "a"));
+    }
+    metas.put(name(3), meta(100, "b"));
+    assertEquals(Collections.emptyList(), policy.select(metas));
+  }
+
+  @Test
+  public void interleavedTableBreaksRun() {
+    LinkedHashMap<String, TableMeta> metas = new LinkedHashMap<>();
+    metas.put(name(0), meta(100, "a"));
+    metas.put(name(1), meta(100, "a"));
+    metas.put(name(2), meta(100, "a", "b"));
+    metas.put(name(3), meta(100, "a"));
+    metas.put(name(4), meta(100, "a"));
+    metas.put(name(5), meta(100, "a"));
+    metas.put(name(6), meta(100, "a"));
+    assertEquals(Arrays.asList(name(3), name(4), name(5), name(6)), policy.select(metas));
+  }
+
+  @Test
+  public void differentTierBreaksRun() {
+    LinkedHashMap<String, TableMeta> metas = new LinkedHashMap<>();
+    metas.put(name(0), meta(100, "a"));
+    metas.put(name(1), meta(100, "a"));
+    metas.put(name(2), meta(100000, "a"));
+    metas.put(name(3), meta(100, "a"));
+    metas.put(name(4), meta(100, "a"));
+    assertEquals(Collections.emptyList(), policy.select(metas));
+  }
+
+  private static String name(int seq) {
+    return String.format("%019d-0", seq);
+  }
+
+  private static TableMeta meta(long count, String... fields) {
+    Map<String, DataType> schema = new HashMap<>();
+    for (String field : fields) {
+      schema.put(field, DataType.LONG);
+    }
+    return new TableMeta() {
+      @Override
+      public Map<String, DataType> getSchema() {
+        return schema;
+      }
+
+      @Override
+      public Range<Long> getRange(String field) {
+        return Range.closed(0L, count);
+      }
+
+      @Override
+      public Long getValueCount(String field) {
+        return count;
+      }
+    };
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.Test;
+
+public class DeletedTableMetaTest {
+
+  /** 原表中 s1、s2 都覆盖 [0, 100]，统计时把收到的查询范围原样作为未覆盖的部分返回 */
+  private static final TableMeta ORIGIN =
+      new TableMeta() {
+        @Override
+        public Map<String, DataType> getSchema() {
+          Map<String, DataType> schema = new HashMap<>();
+          schema.put("s1", DataType.LONG);
+          schema.put("s2", DataType.LONG);
+          return schema;
+        }
+
+        @Override
+        public Range<Long> getRange(String field) {
+          return Range.closed(0L, 100L);
+        }
+
+        @Override
+        public Long getValueCount(String field) {
+          return 101L;
+        }
+
+        @Override
+        public FieldStatistics getStatistics(String field, RangeSet<Long> ranges) {
+          return new FieldStatistics(0, null, null, ranges);
+        }
+      };
+
+  private static final RangeSet<Long> ALL = ImmutableRangeSet.of(Range.all());
+
+  @SafeVarargs
+  private static RangeSet<Long> rangeSet(Range<Long>... ranges) {
+    RangeSet<Long> rangeSet = TreeRangeSet.create();
+    for (Range<Long> range : ranges) {
+      rangeSet.add(range);
+    }
+    return rangeSet;
+  }
+
+  @Test
+  public void testDeletedKeysRemovedFromRanges() {
+    AreaSet<Long, String> tombstone = new AreaSet<>();
+    tombstone.add(ImmutableRangeSet.of(Range.closed(10L, 20L)));
+    tombstone.add(Collections.singleton("s1"), ImmutableRangeSet.of(Range.closed(50L, 60L)));
+    DeletedTableMeta meta = new DeletedTableMeta(ORIGIN, tombstone);
+
+    assertEquals(
+        rangeSet(Range.lessThan(10L), Range.open(20L, 50L), Range.greaterThan(60L)),
+        meta.getStatistics("s1", ALL).getUncovered());
+    assertEquals(
+        rangeSet(Range.lessThan(10L), Range.greaterThan(20L)),
+        meta.getStatistics("s2", ALL).getUncovered());
+    assertEquals(
+        rangeSet(Range.closedOpen(5L, 10L)),
+        meta.getStatistics("s2", ImmutableRangeSet.of(Range.closed(5L, 15L))).getUncovered());
+  }
+
+  @Test
+  public void testUntouchedRangesPassedThrough() {
+    AreaSet<Long, String> tombstone = new AreaSet<>();
+    tombstone.add(Collections.singleton("s1"), ImmutableRangeSet.of(Range.closed(50L, 60L)));
+    DeletedTableMeta meta = new DeletedTableMeta(ORIGIN, tombstone);
+
+    assertEquals(ALL, meta.getStatistics("s2", ALL).getUncovered());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testDeletedField() {
+    AreaSet<Long, String> tombstone = new AreaSet<>();
+    tombstone.add(Collections.singleton("s2"));
+    DeletedTableMeta meta = new DeletedTableMeta(ORIGIN, tombstone);
+
+    assertEquals(Collections.singleton("s1"), meta.getSchema().keySet());
+    meta.getStatistics("s2", ALL);
+  }
+}
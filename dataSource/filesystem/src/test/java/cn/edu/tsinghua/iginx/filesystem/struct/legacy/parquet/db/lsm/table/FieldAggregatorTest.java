@@ -0,0 +1,116 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import org.junit.Test;
+
+public class FieldAggregatorTest {
+
+  private static FieldStatistics statistics(long count, Object min, Object max) {
+    return new FieldStatistics(count, min, max, ImmutableRangeSet.of());
+  }
+
+  @Test
+  public void testSumAndAvg() {
+    FieldAggregator sum = new FieldAggregator(AggregateType.SUM, DataType.INTEGER);
+    FieldAggregator avg = new FieldAggregator(AggregateType.AVG, DataType.INTEGER);
+    for (int value : new int[] {1, 2, 6}) {
+      assertTrue(sum.accept(value));
+      assertTrue(avg.accept(value));
+    }
+    assertEquals(9L, sum.getResult());
+    assertEquals(3.0, avg.getResult());
+
+    FieldAggregator doubleSum = new FieldAggregator(AggregateType.SUM, DataType.DOUBLE);
+    doubleSum.accept(1.5);
+    doubleSum.accept(2.0);
+    assertEquals(3.5, doubleSum.getResult());
+  }
+
+  @Test
+  public void testStatisticsMergedWithValues() {
+    FieldAggregator count = new FieldAggregator(AggregateType.COUNT, DataType.LONG);
+    FieldAggregator min = new FieldAggregator(AggregateType.MIN, DataType.LONG);
+    FieldAggregator max = new FieldAggregator(AggregateType.MAX, DataType.LONG);
+    for (FieldAggregator aggregator : new FieldAggregator[] {count, min, max}) {
+      assertTrue(aggregator.acceptsStatistics());
+      aggregator.accept(statistics(2, 5L, 9L));
+      aggregator.accept(3L);
+      aggregator.accept(12L);
+      // 只含空值的数据块没有最值
+      aggregator.accept(statistics(4, null, null));
+    }
+    assertEquals(8L, count.getResult());
+    assertEquals(3L, min.getResult());
+    assertEquals(12L, max.getResult());
+  }
+
+  @Test
+  public void testStatisticsOnlyForNumbers() {
+    assertTrue(new FieldAggregator(AggregateType.COUNT, DataType.BINARY).acceptsStatistics());
+    assertFalse(new FieldAggregator(AggregateType.MAX, DataType.BINARY).acceptsStatistics());
+    assertFalse(new FieldAggregator(AggregateType.SUM, DataType.LONG).acceptsStatistics());
+    assertFalse(new FieldAggregator(AggregateType.FIRST_VALUE, DataType.LONG).acceptsStatistics());
+
+    FieldAggregator max = new FieldAggregator(AggregateType.MAX, DataType.BINARY);
+    max.accept("b".getBytes());
+    max.accept("c".getBytes());
+    max.accept("a".getBytes());
+    assertArrayEquals("c".getBytes(), (byte[]) max.getResult());
+  }
+
+  @Test
+  public void testFirstAndLastValue() {
+    FieldAggregator first = new FieldAggregator(AggregateType.FIRST_VALUE, DataType.LONG);
+    assertFalse(first.isBackward());
+    assertFalse(first.isDone());
+    assertFalse(first.accept(1L));
+    assertTrue(first.isDone());
+    assertEquals(1L, first.getResult());
+
+    // 区域按从后往前的顺序访问，区域内的值仍按key从小到大给出，最后一个值即为结果
+    FieldAggregator last = new FieldAggregator(AggregateType.LAST_VALUE, DataType.LONG);
+    assertTrue(last.isBackward());
+    assertTrue(last.accept(7L));
+    assertTrue(last.accept(8L));
+    assertTrue(last.isDone());
+    assertEquals(8L, last.getResult());
+  }
+
+  @Test
+  public void testEmptyResults() {
+    assertEquals(0L, new FieldAggregator(AggregateType.COUNT, DataType.LONG).getResult());
+    assertNull(new FieldAggregator(AggregateType.SUM, DataType.LONG).getResult());
+    assertNull(new FieldAggregator(AggregateType.AVG, DataType.DOUBLE).getResult());
+    assertNull(new FieldAggregator(AggregateType.MIN, DataType.LONG).getResult());
+    assertNull(new FieldAggregator(AggregateType.LAST_VALUE, DataType.LONG).getResult());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSumOfNonNumber() {
+    new FieldAggregator(AggregateType.SUM, DataType.BINARY);
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.table;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.BoolFilter;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.compact.SizeTieredCompactionPolicy;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.RowUnionScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data.ParquetReadWriter;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.StorageProperties;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TableStorageTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final Set<String> FIELDS = new HashSet<>(Arrays.asList("s1", "s2"));
+
+  private Shared shared;
+  private Path dir;
+  private ParquetReadWriter readWriter;
+
+  @Before
+  public void setUp() throws Exception {
+    shared = Shared.of(StorageProperties.builder().build());
+    dir = folder.newFolder("data").toPath();
+    readWriter = new ParquetReadWriter(shared, dir);
+  }
+
+  @After
+  public void tearDown() {
+    shared.close();
+  }
+
+  private static String tableName(long sqn) {
+    return String.format("%019d-%s", sqn, "test");
+  }
+
+  /** 写入一张包含 s1、s2 两列的表，rows 为 key 到 {s1, s2} 的映射，值为 null 表示该列缺失 */
+  private void flush(String name, Map<Long, Long[]> rows) throws Exception {
+    Map<String, DataType> schema = new HashMap<>();
+    Map<String, Range<Long>> ranges = new HashMap<>();
+    Map<String, Long> counts = new HashMap<>();
+    Map<Long, Scanner<String, Object>> scanners = new TreeMap<>();
+    for (Map.Entry<Long, Long[]> entry : rows.entrySet()) {
+      Map<String, Object> row = new TreeMap<>();
+      for (int i = 0; i < 2; i++) {
+        Long value = entry.getValue()[i];
+        if (value == null) {
+          continue;
+        }
+        String field = "s" + (i + 1);
+        row.put(field, value);
+        schema.put(field, DataType.LONG);
+        ranges.merge(field, Range.singleton(entry.getKey()), Range::span);
+        counts.merge(field, 1L, Long::sum);
+      }
+      scanners.put(entry.getKey(), new IteratorScanner<>(row.entrySet().iterator()));
+    }
+    MemoryTable.MemoryTableMeta meta = new MemoryTable.MemoryTableMeta(schema, ranges, counts);
+    try (Scanner<Long, Scanner<String, Object>> scanner =
+        new IteratorScanner<>(scanners.entrySet().iterator())) {
+      readWriter.flush(name, meta, scanner);
+    }
+  }
+
+  private static Map<Long, Long[]> rows(long... keyAndValues) {
+    Map<Long, Long[]> rows = new TreeMap<>();
+    for (int i = 0; i < keyAndValues.length; i += 3) {
+      rows.put(keyAndValues[i], new Long[] {keyAndValues[i + 1], keyAndValues[i + 2]});
+    }
+    return rows;
+  }
+
+  private static Map<Long, Map<String, Object>> readAll(
+      List<Scanner<Long, Scanner<String, Object>>> scanners) throws Exception {
+    Map<Long, Map<String, Object>> result = new TreeMap<>();
+    // 表按从旧到新排列，归并时后面的扫描器优先
+    List<Scanner<Long, Scanner<String, Object>>> reversed = new ArrayList<>(scanners);
+    Collections.reverse(reversed);
+    try (Scanner<Long, Scanner<String, Object>> scanner = new RowUnionScanner<>(reversed)) {
+      while (scanner.iterate()) {
+        Scanner<String, Object> row = scanner.value();
+        while (row.iterate()) {
+          result.computeIfAbsent(scanner.key(), k -> new TreeMap<>()).put(row.key(), row.value());
+        }
+      }
+    }
+    return result;
+  }
+
+  private static Map<String, Object> row(Object s1, Object s2) {
+    Map<String, Object> row = new TreeMap<>();
+    if (s1 != null) {
+      row.put("s1", s1);
+    }
+    if (s2 != null) {
+      row.put("s2", s2);
+    }
+    return row;
+  }
+
+  private static AreaSet<Long, String> area(String field, long from, long to) {
+    AreaSet<Long, String> areas = new AreaSet<>();
+    areas.add(Collections.singleton(field), ImmutableRangeSet.of(Range.closed(from, to)));
+    return areas;
+  }
+
+  private static Set<String> tablesOf(Path dir) throws Exception {
+    Set<String> tables = new TreeSet<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.parquet")) {
+      for (Path path : stream) {
+        String fileName = path.getFileName().toString();
+        tables.add(
+            fileName.substring(0, fileName.length() - Constants.SUFFIX_FILE_PARQUET.length()));
+      }
+    }
+    return tables;
+  }
+
+  @Test
+  public void testCompactNewerWinsAndTombstones() throws Exception {
+    flush(tableName(1), rows(1, 10, 100, 2, 20, 200, 3, 30, 300, 4, 40, 400));
+    flush(tableName(2), rows(2, 21, 201, 5, 50, 500));
+
+    try (TableStorage storage = new TableStorage(shared, readWriter)) {
+      storage.delete(area("s2", 3, 4));
+
+      assertTrue(storage.compact(new SizeTieredCompactionPolicy(2, 8)));
+      assertFalse(storage.compact(new SizeTieredCompactionPolicy(2, 8)));
+      assertEquals(Collections.singleton(tableName(2) + "-c1"), tablesOf(dir));
+
+      Map<Long, Map<String, Object>> expected = new TreeMap<>();
+      expected.put(1L, row(10L, 100L));
+      expected.put(2L, row(21L, 201L));
+      expected.put(3L, row(30L, null));
+      expected.put(4L, row(40L, null));
+      expected.put(5L, row(50L, 500L));
+      assertEquals(
+          expected,
+          readAll(storage.query(FIELDS, ImmutableRangeSet.of(Range.all()), new BoolFilter(true))));
+      assertEquals(5, storage.count("s1"));
+      assertEquals(3, storage.count("s2"));
+    }
+  }
+
+  @Test
+  public void testCompactedTablesKeptUntilScanClosed() throws Exception {
+    flush(tableName(1), rows(1, 10, 100));
+    flush(tableName(2), rows(2, 20, 200));
+
+    try (TableStorage storage = new TableStorage(shared, readWriter)) {
+      List<Scanner<Long, Scanner<String, Object>>> scanners =
+          storage.query(FIELDS, ImmutableRangeSet.of(Range.all()), new BoolFilter(true));
+      assertTrue(storage.compact(new SizeTieredCompactionPolicy(2, 8)));
+
+      // 合并前打开的扫描仍在读取旧表，旧表要等扫描关闭后才删除
+      Set<String> expectedTables =
+          new TreeSet<>(Arrays.asList(tableName(1), tableName(2), tableName(2) + "-c1"));
+      assertEquals(expectedTables, tablesOf(dir));
+
+      Map<Long, Map<String, Object>> expected = new TreeMap<>();
+      expected.put(1L, row(10L, 100L));
+      expected.put(2L, row(20L, 200L));
+      assertEquals(expected, readAll(scanners));
+      assertEquals(Collections.singleton(tableName(2) + "-c1"), tablesOf(dir));
+    }
+  }
+
+  @Test
+  public void testInterruptedCompactionKeepsInputs() throws Exception {
+    flush(tableName(1), rows(1, 10, 100));
+    flush(tableName(2), rows(2, 20, 200));
+
+    try (TableStorage storage = new TableStorage(shared, readWriter)) {
+      // Compactor.stop 通过中断取消进行中的合并，被取消的合并不能修改索引
+      Thread.currentThread().interrupt();
+      try {
+        storage.compact(new SizeTieredCompactionPolicy(2, 8));
+        fail("compaction should be cancelled");
+      } catch (StorageException | IOException e) {
+        assertTrue(Thread.interrupted());
+      }
+
+      assertFalse(tablesOf(dir).contains(tableName(2) + "-c1"));
+      Map<Long, Map<String, Object>> expected = new TreeMap<>();
+      expected.put(1L, row(10L, 100L));
+      expected.put(2L, row(20L, 200L));
+      assertEquals(
+          expected,
+          readAll(storage.query(FIELDS, ImmutableRangeSet.of(Range.all()), new BoolFilter(true))));
+
+      storage.clear();
+      assertFalse(storage.compact(new SizeTieredCompactionPolicy(2, 8)));
+      assertTrue(tablesOf(dir).isEmpty());
+    }
+  }
+
+  @Test
+  public void testAggregateFoldsInMemoryValues() throws Exception {
+    flush(tableName(1), rows(1, 10, 100, 2, 20, 200, 3, 30, 300, 4, 40, 400));
+    flush(tableName(2), rows(10, 100, 1000, 11, 110, 1100));
+
+    // 内存表覆盖了第一张表中 key 为 2 的值，另有两个不在任何表范围内的 key
+    NavigableMap<Long, Object> inMemory = new TreeMap<>();
+    inMemory.put(2L, 25L);
+    inMemory.put(6L, 60L);
+    inMemory.put(20L, 200L);
+
+    try (TableStorage storage = new TableStorage(shared, readWriter)) {
+      assertEquals(575L, storage.aggregate("s1", DataType.LONG, AggregateType.SUM, inMemory));
+      assertEquals(8L, storage.aggregate("s1", DataType.LONG, AggregateType.COUNT, inMemory));
+      assertEquals(10L, storage.aggregate("s1", DataType.LONG, AggregateType.MIN, inMemory));
+      assertEquals(200L, storage.aggregate("s1", DataType.LONG, AggregateType.MAX, inMemory));
+      assertEquals(
+          10L, storage.aggregate("s1", DataType.LONG, AggregateType.FIRST_VALUE, inMemory));
+      assertEquals(
+          200L, storage.aggregate("s1", DataType.LONG, AggregateType.LAST_VALUE, inMemory));
+
+      NavigableMap<Long, Object> empty = Collections.emptyNavigableMap();
+      assertEquals(6L, storage.aggregate("s1", DataType.LONG, AggregateType.COUNT, empty));
+      assertEquals(110L, storage.aggregate("s1", DataType.LONG, AggregateType.LAST_VALUE, empty));
+
+      storage.delete(area("s1", 3, 3));
+      assertEquals(545L, storage.aggregate("s1", DataType.LONG, AggregateType.SUM, inMemory));
+      assertEquals(7L, storage.aggregate("s1", DataType.LONG, AggregateType.COUNT, inMemory));
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.wal;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.storage.domain.ColumnKey;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.AreaSet;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Constants;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.StorageProperties;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.arrow.ArrowFields;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WriteAheadLogTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Shared shared =
+      new Shared(
+          StorageProperties.builder().setWalSyncMode("BATCH").setWalSegmentSize(64).build(),
+          null,
+          null,
+          null,
+          null,
+          null);
+
+  private static AreaSet<Long, Field> areas(long key) {
+    AreaSet<Long, Field> areas = new AreaSet<>();
+    Field field = ArrowFields.of(new ColumnKey("s" + key), DataType.LONG);
+    areas.add(Collections.singleton(field), ImmutableRangeSet.of(Range.closed(key, key + 10)));
+    areas.add(ImmutableRangeSet.of(Range.atLeast(key * 100)));
+    return areas;
+  }
+
+  private static List<AreaSet<Long, Field>> replay(WriteAheadLog wal) throws Exception {
+    List<AreaSet<Long, Field>> replayed = new ArrayList<>();
+    wal.replay(
+        new WalRecords.Handler() {
+          @Override
+          public void insert(
+              long lsn, Map<String, DataType> schema, Scanner<String, Scanner<Long, Object>> data) {
+            fail("unexpected insert record");
+          }
+
+          @Override
+          public void delete(long lsn, AreaSet<Long, Field> areas) {
+            replayed.add(areas);
+          }
+        });
+    return replayed;
+  }
+
+  private List<Path> segments(Path dir) throws Exception {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files
+          .filter(path -> path.toString().endsWith(Constants.SUFFIX_FILE_WAL))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  public void replayAfterRestart() throws Exception {
+    Path dir = folder.newFolder().toPath();
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> Long.MAX_VALUE)) {
+      assertTrue(replay(wal).isEmpty());
+      for (long i = 0; i < 5; i++) {
+        long lsn = wal.append(WalRecords.delete(areas(i)));
+        assertEquals(i, lsn);
+        wal.applied(lsn);
+      }
+    }
+    assertTrue(segments(dir).size() > 1);
+
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> Long.MAX_VALUE)) {
+      List<AreaSet<Long, Field>> replayed = replay(wal);
+      assertEquals(5, replayed.size());
+      for (int i = 0; i < 5; i++) {
+        assertEquals(areas(i), replayed.get(i));
+      }
+      assertTrue(wal.append(WalRecords.delete(areas(5))) > 4);
+    }
+  }
+
+  @Test
+  public void truncateTornTail() throws Exception {
+    Path dir = folder.newFolder().toPath();
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> Long.MAX_VALUE)) {
+      replay(wal);
+      wal.applied(wal.append(WalRecords.delete(areas(0))));
+    }
+    Path segment = segments(dir).get(0);
+    Files.write(segment, new byte[] {0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> Long.MAX_VALUE)) {
+      assertEquals(Collections.singletonList(areas(0)), replay(wal));
+      wal.applied(wal.append(WalRecords.delete(areas(1))));
+    }
+
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> Long.MAX_VALUE)) {
+      assertEquals(areas(1), replay(wal).get(1));
+    }
+  }
+
+  @Test
+  public void recycleFlushedSegments() throws Exception {
+    Path dir = folder.newFolder().toPath();
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> 3)) {
+      replay(wal);
+      for (long i = 0; i < 5; i++) {
+        wal.applied(wal.append(WalRecords.delete(areas(i))));
+      }
+      wal.recycle();
+    }
+    List<Path> segments = segments(dir);
+    assertFalse(segments.isEmpty());
+    try (WriteAheadLog wal = new WriteAheadLog("test", shared, dir, () -> Long.MAX_VALUE)) {
+      List<AreaSet<Long, Field>> replayed = replay(wal);
+      assertEquals(areas(3), replayed.get(0));
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.exception.StorageException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class RowUnionScannerTest {
+
+  private final Set<String> closed = new HashSet<>();
+
+  private static Map<String, Integer> fields(Object... fieldsAndValues) {
+    Map<String, Integer> fields = new TreeMap<>();
+    for (int i = 0; i < fieldsAndValues.length; i += 2) {
+      fields.put((String) fieldsAndValues[i], (Integer) fieldsAndValues[i + 1]);
+    }
+    return fields;
+  }
+
+  /** 由若干行构造扫描器，关闭时记录名字 */
+  private Scanner<Long, Scanner<String, Integer>> rows(
+      String name, Map<Long, Map<String, Integer>> rows) {
+    Map<Long, Scanner<String, Integer>> scanners = new TreeMap<>();
+    for (Map.Entry<Long, Map<String, Integer>> entry : rows.entrySet()) {
+      scanners.put(entry.getKey(), new IteratorScanner<>(entry.getValue().entrySet().iterator()));
+    }
+    return new ListenCloseScanner<>(
+        new IteratorScanner<>(scanners.entrySet().iterator()), () -> closed.add(name));
+  }
+
+  private Scanner<Long, Scanner<String, Integer>> rows(String name, long... keys) {
+    Map<Long, Map<String, Integer>> rows = new TreeMap<>();
+    for (long key : keys) {
+      rows.put(key, fields("s", (int) key));
+    }
+    return rows(name, rows);
+  }
+
+  private static Map<Long, Map<String, Integer>> readAll(
+      Scanner<Long, Scanner<String, Integer>> scanner) throws StorageException {
+    Map<Long, Map<String, Integer>> result = new TreeMap<>();
+    while (scanner.iterate()) {
+      Map<String, Integer> fields = new TreeMap<>();
+      Scanner<String, Integer> row = scanner.value();
+      while (row.iterate()) {
+        fields.put(row.key(), row.value());
+      }
+      result.put(scanner.key(), fields);
+    }
+    return result;
+  }
+
+  @Test
+  public void testNewestFirst() throws StorageException {
+    Map<Long, Map<String, Integer>> newer = new TreeMap<>();
+    newer.put(1L, fields("a", 10));
+    newer.put(3L, fields("a", 30));
+    Map<Long, Map<String, Integer>> older = new TreeMap<>();
+    older.put(1L, fields("a", 1, "b", 2));
+    older.put(2L, fields("a", 20));
+
+    // 靠前的扫描器较新，同一 key 的同一字段以较新的为准，其余字段合并
+    Map<Long, Map<String, Integer>> expected = new TreeMap<>();
+    expected.put(1L, fields("a", 10, "b", 2));
+    expected.put(2L, fields("a", 20));
+    expected.put(3L, fields("a", 30));
+    try (Scanner<Long, Scanner<String, Integer>> union =
+        new RowUnionScanner<>(Arrays.asList(rows("newer", newer), rows("older", older)))) {
+      assertEquals(expected, readAll(union));
+    }
+  }
+
+  @Test
+  public void testSkipEmptyRows() throws StorageException {
+    Map<Long, Map<String, Integer>> withEmpty = new TreeMap<>();
+    withEmpty.put(2L, fields());
+    withEmpty.put(3L, fields("s", 3));
+    try (Scanner<Long, Scanner<String, Integer>> union =
+        new RowUnionScanner<>(
+            Arrays.asList(new EmtpyHeadRowScanner<>(1L), rows("data", withEmpty)))) {
+      assertTrue(union.iterate());
+      assertEquals(Long.valueOf(3), union.key());
+      assertFalse(union.iterate());
+      try {
+        union.key();
+        fail();
+      } catch (NoSuchElementException ignored) {
+      }
+    }
+  }
+
+  @Test
+  public void testCloseExhaustedInputs() throws StorageException {
+    RowUnionScanner<Long, String, Integer> union =
+        new RowUnionScanner<>(Arrays.asList(rows("empty"), rows("short", 1), rows("long", 1, 2)));
+    // 构造时为空的扫描器立即关闭
+    assertEquals(Collections.singleton("empty"), closed);
+
+    assertTrue(union.iterate());
+    assertEquals(new HashSet<>(Arrays.asList("empty", "short")), closed);
+
+    assertTrue(union.iterate());
+    assertFalse(union.iterate());
+    assertEquals(new HashSet<>(Arrays.asList("empty", "short", "long")), closed);
+    union.close();
+  }
+
+  @Test
+  public void testCloseAllWhenConstructionFails() {
+    Scanner<Long, Scanner<String, Integer>> broken =
+        new ListenCloseScanner<>(
+            new EmptyScanner<Long, Scanner<String, Integer>>() {
+              @Override
+              public boolean iterate() throws StorageException {
+                throw new StorageException("broken");
+              }
+            },
+            () -> closed.add("broken"));
+    try {
+      new RowUnionScanner<>(Arrays.asList(rows("queued", 1), broken, rows("pending", 2)));
+      fail();
+    } catch (StorageException e) {
+      assertEquals("broken", e.getMessage());
+    }
+    assertEquals(new HashSet<>(Arrays.asList("queued", "broken", "pending")), closed);
+  }
+
+  @Test
+  public void testConcatClosesCurrentScanner() throws StorageException {
+    ConcatScanner<Long, Scanner<String, Integer>> concat =
+        new ConcatScanner<>(
+            Arrays.asList(rows("first", 1), rows("second", 2, 3), rows("third", 4)).iterator());
+    assertTrue(concat.iterate());
+    assertTrue(concat.iterate());
+    assertEquals(Long.valueOf(2), concat.key());
+    assertEquals(Collections.singleton("first"), closed);
+
+    // 关闭时同时关闭正在读取的和尚未读取的扫描器
+    concat.close();
+    assertEquals(new HashSet<>(Arrays.asList("first", "second", "third")), closed);
+  }
+}
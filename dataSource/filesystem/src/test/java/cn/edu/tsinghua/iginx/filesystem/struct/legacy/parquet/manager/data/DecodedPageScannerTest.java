@@ -0,0 +1,130 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class DecodedPageScannerTest {
+
+  /** s1 的 key 为 [0, 10)，值为 key * 10；s2 只在偶数 key 上有值 */
+  private static Map<String, DecodedPage> pages() {
+    DecodedPage.Builder s1 = DecodedPage.builder(DataType.LONG);
+    DecodedPage.Builder s2 = DecodedPage.builder(DataType.BINARY);
+    for (long key = 0; key < 10; key++) {
+      s1.append(key, key * 10);
+      if (key % 2 == 0) {
+        s2.append(key, String.valueOf(key).getBytes());
+      }
+    }
+    Map<String, DecodedPage> pages = new HashMap<>();
+    pages.put("s1", s1.build());
+    pages.put("s2", s2.build());
+    return pages;
+  }
+
+  private static Map<Long, Map<String, Object>> scan(
+      Map<String, DecodedPage> pages, RangeSet<Long> ranges) throws Exception {
+    Map<Long, Map<String, Object>> rows = new LinkedHashMap<>();
+    try (Scanner<Long, Scanner<String, Object>> scanner = new DecodedPageScanner(pages, ranges)) {
+      while (scanner.iterate()) {
+        Map<String, Object> row = new HashMap<>();
+        Scanner<String, Object> rowScanner = scanner.value();
+        while (rowScanner.iterate()) {
+          Object value = rowScanner.value();
+          row.put(rowScanner.key(), value instanceof byte[] ? new String((byte[]) value) : value);
+        }
+        rows.put(scanner.key(), row);
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  public void testScanAll() throws Exception {
+    Map<Long, Map<String, Object>> rows = scan(pages(), null);
+    assertEquals(10, rows.size());
+    for (long key = 0; key < 10; key++) {
+      Map<String, Object> row = rows.get(key);
+      assertEquals(key * 10, row.get("s1"));
+      if (key % 2 == 0) {
+        assertEquals(String.valueOf(key), row.get("s2"));
+      } else {
+        assertFalse(row.containsKey("s2"));
+      }
+    }
+  }
+
+  @Test
+  public void testPartiallySelectedPage() throws Exception {
+    RangeSet<Long> ranges = TreeRangeSet.create();
+    ranges.add(Range.closed(2L, 4L));
+    ranges.add(Range.open(5L, 7L));
+    ranges.add(Range.greaterThan(8L));
+
+    Map<Long, Map<String, Object>> rows = scan(pages(), ranges);
+    assertEquals(Arrays.asList(2L, 3L, 4L, 6L, 9L), new ArrayList<>(rows.keySet()));
+    assertEquals(30L, rows.get(3L).get("s1"));
+    assertEquals("4", rows.get(4L).get("s2"));
+    assertEquals("6", rows.get(6L).get("s2"));
+    assertFalse(rows.get(9L).containsKey("s2"));
+  }
+
+  @Test
+  public void testRangeOnlyHitsSparseColumnGap() throws Exception {
+    // s2 在 [3, 3] 上没有值，只输出 s1
+    Map<Long, Map<String, Object>> rows = scan(pages(), ImmutableRangeSet.of(Range.closed(3L, 3L)));
+    assertEquals(1, rows.size());
+    Map<String, Object> expected = new HashMap<>();
+    expected.put("s1", 30L);
+    assertEquals(expected, rows.get(3L));
+  }
+
+  @Test
+  public void testRangesOutsidePage() throws Exception {
+    RangeSet<Long> ranges = TreeRangeSet.create();
+    ranges.add(Range.lessThan(0L));
+    ranges.add(Range.openClosed(9L, Long.MAX_VALUE));
+    assertTrue(scan(pages(), ranges).isEmpty());
+  }
+
+  @Test
+  public void testBinarySearch() {
+    DecodedPage page = pages().get("s2");
+    assertEquals(5, page.size());
+    assertEquals(0, page.lowerBound(Long.MIN_VALUE));
+    assertEquals(1, page.lowerBound(1));
+    assertEquals(1, page.lowerBound(2));
+    assertEquals(5, page.lowerBound(9));
+  }
+}
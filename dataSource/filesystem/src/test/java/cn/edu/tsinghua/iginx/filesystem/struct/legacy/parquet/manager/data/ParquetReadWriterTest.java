@@ -0,0 +1,227 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.FieldStatistics;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.lsm.api.TableMeta;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.CachePool;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.Shared;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.util.StorageProperties;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParquetReadWriterTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final String TABLE = String.format("%019d-%s", 1, "test");
+
+  private Shared shared;
+  private ParquetReadWriter readWriter;
+
+  @Before
+  public void setUp() throws Exception {
+    shared = Shared.of(StorageProperties.builder().build());
+    readWriter = new ParquetReadWriter(shared, folder.newFolder("data").toPath());
+  }
+
+  @After
+  public void tearDown() {
+    shared.close();
+  }
+
+  /** 写入 key 为 [0, 10) 的一个行组，s1 为 key * 10，s2 只在偶数 key 上有值 */
+  private TableMeta flush() throws Exception {
+    Map<String, DataType> schema = new HashMap<>();
+    schema.put("s1", DataType.LONG);
+    schema.put("s2", DataType.BINARY);
+
+    Map<Long, Scanner<String, Object>> rows = new TreeMap<>();
+    for (long key = 0; key < 10; key++) {
+      Map<String, Object> row = new TreeMap<>();
+      row.put("s1", key * 10);
+      if (key % 2 == 0) {
+        row.put("s2", String.valueOf(key).getBytes());
+      }
+      rows.put(key, new IteratorScanner<>(row.entrySet().iterator()));
+    }
+    // 写入时只用到表结构
+    TableMeta meta =
+        new TableMeta() {
+          @Override
+          public Map<String, DataType> getSchema() {
+            return schema;
+          }
+
+          @Override
+          public Range<Long> getRange(String field) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public Long getValueCount(String field) {
+            throw new UnsupportedOperationException();
+          }
+        };
+    try (Scanner<Long, Scanner<String, Object>> scanner =
+        new IteratorScanner<>(rows.entrySet().iterator())) {
+      readWriter.flush(TABLE, meta, scanner);
+    }
+    return readWriter.readMeta(TABLE);
+  }
+
+  private Map<Long, Map<String, Object>> scan(RangeSet<Long> ranges) throws Exception {
+    Map<Long, Map<String, Object>> rows = new LinkedHashMap<>();
+    try (Scanner<Long, Scanner<String, Object>> scanner =
+        readWriter.scanData(TABLE, new HashSet<>(Arrays.asList("s1", "s2")), ranges, null)) {
+      while (scanner.iterate()) {
+        Map<String, Object> row = new HashMap<>();
+        Scanner<String, Object> rowScanner = scanner.value();
+        while (rowScanner.iterate()) {
+          Object value = rowScanner.value();
+          row.put(rowScanner.key(), value instanceof byte[] ? new String((byte[]) value) : value);
+        }
+        rows.put(scanner.key(), row);
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  public void testStatisticsOfEnclosedRowGroup() throws Exception {
+    TableMeta meta = flush();
+
+    FieldStatistics s1 = meta.getStatistics("s1", ImmutableRangeSet.of(Range.closed(0L, 9L)));
+    assertEquals(10, s1.getCount());
+    assertEquals(0L, s1.getMin());
+    assertEquals(90L, s1.getMax());
+    assertTrue(s1.getUncovered().isEmpty());
+
+    // 字符串的最值与 IGinX 的比较方式不一致，只统计数量
+    FieldStatistics s2 = meta.getStatistics("s2", ImmutableRangeSet.of(Range.all()));
+    assertEquals(5, s2.getCount());
+    assertNull(s2.getMin());
+    assertNull(s2.getMax());
+    assertTrue(s2.getUncovered().isEmpty());
+  }
+
+  @Test
+  public void testPartiallyCoveredRowGroup() throws Exception {
+    TableMeta meta = flush();
+
+    FieldStatistics partial = meta.getStatistics("s1", ImmutableRangeSet.of(Range.closed(3L, 20L)));
+    assertEquals(0, partial.getCount());
+    assertNull(partial.getMin());
+    assertEquals(ImmutableRangeSet.of(Range.closed(3L, 9L)), partial.getUncovered());
+
+    FieldStatistics outside =
+        meta.getStatistics("s1", ImmutableRangeSet.of(Range.closed(20L, 30L)));
+    assertEquals(0, outside.getCount());
+    assertTrue(outside.getUncovered().isEmpty());
+  }
+
+  @Test
+  public void testPartiallyPrunedRowGroupIsNotCached() throws Exception {
+    flush();
+    RangeSet<Long> ranges = TreeRangeSet.create();
+    ranges.add(Range.closed(1L, 2L));
+    ranges.add(Range.closedOpen(5L, 7L));
+
+    // 只命中行组的一部分，交给 parquet 按页面索引读取，不解码整个行组
+    Map<Long, Map<String, Object>> rows = scan(ranges);
+    assertEquals(Arrays.asList(1L, 2L, 5L, 6L), new ArrayList<>(rows.keySet()));
+    assertEquals(10L, rows.get(1L).get("s1"));
+    assertEquals(50L, rows.get(5L).get("s1"));
+    assertEquals("2", rows.get(2L).get("s2"));
+    assertEquals("6", rows.get(6L).get("s2"));
+    assertTrue(shared.getCachePool().pages().isEmpty());
+  }
+
+  @Test
+  public void testPartialScanReadsCachedPages() throws Exception {
+    flush();
+    assertEquals(10, scan(ImmutableRangeSet.of(Range.all())).size());
+    ConcurrentMap<CachePool.PageKey, CachePool.Cacheable> pages = shared.getCachePool().pages();
+    assertEquals(2, pages.size());
+
+    // 替换缓存中的 s1 页面，之后只命中部分行的扫描应当从缓存中二分查找，而不是重新读取文件
+    CachePool.PageKey s1 = null;
+    for (CachePool.PageKey key : pages.keySet()) {
+      if (key.getColumn().equals("s1")) {
+        s1 = key;
+      }
+    }
+    assertNotNull(s1);
+    DecodedPage.Builder builder = DecodedPage.builder(DataType.LONG);
+    for (long key = 0; key < 10; key++) {
+      builder.append(key, -key);
+    }
+    pages.put(s1, builder.build());
+
+    RangeSet<Long> ranges = TreeRangeSet.create();
+    ranges.add(Range.closed(2L, 3L));
+    ranges.add(Range.openClosed(6L, 8L));
+    Map<Long, Map<String, Object>> rows = scan(ranges);
+    assertEquals(Arrays.asList(2L, 3L, 7L, 8L), new ArrayList<>(rows.keySet()));
+    assertEquals(-3L, rows.get(3L).get("s1"));
+    assertEquals(-7L, rows.get(7L).get("s1"));
+    assertEquals("8", rows.get(8L).get("s2"));
+    assertFalse(rows.get(7L).containsKey("s2"));
+  }
+
+  @Test
+  public void testPageCacheDisabled() throws Exception {
+    shared.close();
+    shared = Shared.of(StorageProperties.builder().setPageCacheCapacity(0).build());
+    readWriter = new ParquetReadWriter(shared, folder.newFolder("uncached").toPath());
+    flush();
+
+    Map<Long, Map<String, Object>> rows = scan(ImmutableRangeSet.of(Range.all()));
+    assertEquals(10, rows.size());
+    assertEquals(90L, rows.get(9L).get("s1"));
+    assertTrue(shared.getCachePool().pages().isEmpty());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testStatisticsOfUnknownField() throws Exception {
+    flush().getStatistics("s3", ImmutableRangeSet.of(Range.all()));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.data;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Batch;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.IteratorScanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.db.util.iterator.Scanner;
+import cn.edu.tsinghua.iginx.filesystem.struct.legacy.parquet.manager.utils.TagKVUtils;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class ScannerBatchStreamTest {
+
+  private static final String TAGGED =
+      TagKVUtils.toFullName("b", Collections.singletonMap("t", "v"));
+
+  private static Map<String, DataType> projected() {
+    Map<String, DataType> projected = new LinkedHashMap<>();
+    projected.put("a", DataType.LONG);
+    projected.put(TAGGED, DataType.BINARY);
+    projected.put("c", DataType.DOUBLE);
+    return projected;
+  }
+
+  /** key 为 [0, count)，a 为 key，b 只在偶数 key 上有值，c 没有值 */
+  private static Scanner<Long, Scanner<String, Object>> scanner(int count) {
+    Map<Long, Scanner<String, Object>> rows = new TreeMap<>();
+    for (long key = 0; key < count; key++) {
+      Map<String, Object> row = new TreeMap<>();
+      row.put("a", key);
+      if (key % 2 == 0) {
+        row.put(TAGGED, String.valueOf(key).getBytes());
+      }
+      rows.put(key, new IteratorScanner<>(row.entrySet().iterator()));
+    }
+    return new IteratorScanner<>(rows.entrySet().iterator());
+  }
+
+  private static List<Batch> collect(ScannerBatchStream stream) throws PhysicalException {
+    List<Batch> batches = new ArrayList<>();
+    while (stream.hasNext()) {
+      batches.add(stream.nextBatch());
+    }
+    return batches;
+  }
+
+  @Test
+  public void testHeader() throws PhysicalException {
+    Header header = new ScannerBatchStream(projected(), scanner(0), 4).getHeader();
+    assertTrue(header.hasKey());
+    assertEquals(3, header.getFieldSize());
+    Field tagged = header.getField(1);
+    assertEquals("b", tagged.getName());
+    assertEquals(Collections.singletonMap("t", "v"), tagged.getTags());
+    assertEquals(DataType.BINARY, tagged.getType());
+  }
+
+  @Test
+  public void testBatchBoundaries() throws PhysicalException {
+    List<Batch> batches = collect(new ScannerBatchStream(projected(), scanner(10), 4));
+    assertEquals(3, batches.size());
+    assertEquals(4, batches.get(0).getRowCount());
+    assertEquals(4, batches.get(1).getRowCount());
+    assertEquals(2, batches.get(2).getRowCount());
+
+    long key = 0;
+    for (Batch batch : batches) {
+      ColumnVector a = batch.getColumn(0);
+      ColumnVector b = batch.getColumn(1);
+      ColumnVector c = batch.getColumn(2);
+      for (int i = 0; i < batch.getRowCount(); i++, key++) {
+        assertEquals(key, batch.getKey(i));
+        assertEquals(key, a.getLong(i));
+        if (key % 2 == 0) {
+          assertEquals(String.valueOf(key), new String(b.getBinary(i)));
+        } else {
+          assertTrue(b.isNull(i));
+        }
+      }
+      assertEquals(batch.getRowCount(), c.nullCount(batch.getRowCount()));
+    }
+    assertEquals(10, key);
+  }
+
+  @Test
+  public void testNoTrailingEmptyBatch() throws PhysicalException {
+    List<Batch> batches = collect(new ScannerBatchStream(projected(), scanner(10), 5));
+    assertEquals(2, batches.size());
+    assertEquals(5, batches.get(1).getRowCount());
+    assertEquals(9, batches.get(1).getKey(4));
+  }
+
+  @Test
+  public void testEmptyScanner() throws PhysicalException {
+    ScannerBatchStream stream = new ScannerBatchStream(projected(), scanner(0), 4);
+    assertFalse(stream.hasNext());
+    assertFalse(stream.hasNext());
+    try {
+      stream.nextBatch();
+      fail();
+    } catch (IllegalStateException expected) {
+      // 没有数据时不返回空批
+    }
+    stream.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveBatchSize() {
+    new ScannerBatchStream(projected(), scanner(1), 0);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.filesystem.struct.tree.query.ftj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ParallelTasksTest {
+
+  private static final String WORKER_PREFIX = "file-tree-querier-";
+
+  @Test
+  public void testResultsInOrder() throws IOException {
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      int value = i;
+      tasks.add(() -> value);
+      expected.add(value);
+    }
+    assertEquals(expected, ParallelTasks.invokeAll(tasks, 8, results -> fail()));
+  }
+
+  @Test
+  public void testSequentialInCurrentThread() throws IOException {
+    Thread current = Thread.currentThread();
+    List<Callable<Boolean>> tasks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      tasks.add(() -> Thread.currentThread() == current);
+    }
+    for (boolean inCurrentThread : ParallelTasks.invokeAll(tasks, 1, results -> fail())) {
+      assertTrue(inCurrentThread);
+    }
+  }
+
+  @Test
+  public void testBoundedWorkers() throws Exception {
+    // 多个查询同时以远超线程上限的并行度执行，后台线程数仍然受限，线程用尽时任务由调用方执行
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Callable<List<Integer>> query =
+        () -> {
+          List<Callable<Integer>> tasks = new ArrayList<>();
+          for (int i = 0; i < 64; i++) {
+            int value = i;
+            tasks.add(
+                () -> {
+                  if (Thread.currentThread().getName().startsWith(WORKER_PREFIX)) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                      Thread.sleep(5);
+                    } finally {
+                      running.decrementAndGet();
+                    }
+                  }
+                  return value;
+                });
+          }
+          return ParallelTasks.invokeAll(tasks, 64, results -> fail());
+        };
+
+    ExecutorService callers = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<Integer>>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(callers.submit(query));
+      }
+      for (Future<List<Integer>> future : futures) {
+        List<Integer> results = future.get();
+        assertEquals(64, results.size());
+        for (int i = 0; i < results.size(); i++) {
+          assertEquals(i, results.get(i));
+        }
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+    assertTrue(maxRunning.get() <= ParallelTasks.MAX_THREADS);
+  }
+
+  @Test
+  public void testFailureCleansUp() {
+    List<Integer> cleaned = new ArrayList<>();
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    tasks.add(() -> 1);
+    tasks.add(
+        () -> {
+          throw new IOException("first");
+        });
+    tasks.add(() -> 3);
+    tasks.add(
+        () -> {
+          throw new IllegalStateException("second");
+        });
+
+    IOException e =
+        assertThrows(IOException.class, () -> ParallelTasks.invokeAll(tasks, 4, cleaned::addAll));
+    assertEquals("first", e.getMessage());
+    // 失败前已经成功的结果交给 cleanUp 释放，并行执行时其余失败作为 suppressed 附加
+    assertTrue(cleaned.contains(1));
+    for (Throwable suppressed : e.getSuppressed()) {
+      assertEquals("second", suppressed.getMessage());
+    }
+  }
+}
@@ -43,6 +43,9 @@ public class IginXConnection implements Connection {
 
     this.session =
         new Session(params.getHost(), params.getPort(), params.getUsername(), params.getPassword());
+    this.session.setEnableColumnarResult(params.isColumnarResult());
+    this.session.setUseFramedTransport(params.isFramedTransport());
+    this.session.setUseCompactProtocol(params.isCompactProtocol());
     this.session.openSession();
 
     this.isClosed = false;
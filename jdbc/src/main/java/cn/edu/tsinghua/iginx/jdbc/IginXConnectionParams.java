@@ -27,6 +27,11 @@ public class IginXConnectionParams {
   private String username = Config.DEFAULT_USER;
   private String password = Config.DEFAULT_PASSWORD;
 
+  private boolean columnarResult = Config.DEFAULT_COLUMNAR_RESULT;
+
+  private boolean framedTransport = Config.DEFAULT_FRAMED_TRANSPORT;
+  private boolean compactProtocol = Config.DEFAULT_COMPACT_PROTOCOL;
+
   public IginXConnectionParams() {}
 
   public String getHost() {
@@ -60,4 +65,28 @@ public class IginXConnectionParams {
   public void setPassword(String password) {
     this.password = password;
   }
+
+  public boolean isColumnarResult() {
+    return columnarResult;
+  }
+
+  public void setColumnarResult(boolean columnarResult) {
+    this.columnarResult = columnarResult;
+  }
+
+  public boolean isFramedTransport() {
+    return framedTransport;
+  }
+
+  public void setFramedTransport(boolean framedTransport) {
+    this.framedTransport = framedTransport;
+  }
+
+  public boolean isCompactProtocol() {
+    return compactProtocol;
+  }
+
+  public void setCompactProtocol(boolean compactProtocol) {
+    this.compactProtocol = compactProtocol;
+  }
 }
@@ -78,6 +78,15 @@ public class Utils {
     if (info.containsKey(Config.PASSWORD)) {
       params.setPassword(info.getProperty(Config.PASSWORD));
     }
+    if (info.containsKey(Config.COLUMNAR_RESULT)) {
+      params.setColumnarResult(Boolean.parseBoolean(info.getProperty(Config.COLUMNAR_RESULT)));
+    }
+    if (info.containsKey(Config.FRAMED_TRANSPORT)) {
+      params.setFramedTransport(Boolean.parseBoolean(info.getProperty(Config.FRAMED_TRANSPORT)));
+    }
+    if (info.containsKey(Config.COMPACT_PROTOCOL)) {
+      params.setCompactProtocol(Boolean.parseBoolean(info.getProperty(Config.COMPACT_PROTOCOL)));
+    }
 
     return params;
   }
@@ -32,11 +32,29 @@ public class IginxInfo {
   /** iginx 的密码 */
   private final String password;
 
+  /** 是否使用分帧传输，iginx 为非阻塞服务模式时必须开启 */
+  private final boolean useFramedTransport;
+
+  /** 是否使用 TCompactProtocol */
+  private final boolean useCompactProtocol;
+
   IginxInfo(String host, int port, String user, String password) {
+    this(host, port, user, password, false, false);
+  }
+
+  IginxInfo(
+      String host,
+      int port,
+      String user,
+      String password,
+      boolean useFramedTransport,
+      boolean useCompactProtocol) {
     this.host = host;
     this.port = port;
     this.user = user;
     this.password = password;
+    this.useFramedTransport = useFramedTransport;
+    this.useCompactProtocol = useCompactProtocol;
   }
 
   public String getHost() {
@@ -55,11 +73,21 @@ public class IginxInfo {
     return password;
   }
 
+  public boolean isUseFramedTransport() {
+    return useFramedTransport;
+  }
+
+  public boolean isUseCompactProtocol() {
+    return useCompactProtocol;
+  }
+
   public static class Builder {
     private String host;
     private int port;
     private String user;
     private String password;
+    private boolean useFramedTransport;
+    private boolean useCompactProtocol;
 
     public IginxInfo.Builder host(String host) {
       this.host = host;
@@ -81,8 +109,18 @@ public class IginxInfo {
       return this;
     }
 
+    public IginxInfo.Builder framedTransport(boolean useFramedTransport) {
+      this.useFramedTransport = useFramedTransport;
+      return this;
+    }
+
+    public IginxInfo.Builder compactProtocol(boolean useCompactProtocol) {
+      this.useCompactProtocol = useCompactProtocol;
+      return this;
+    }
+
     public IginxInfo build() {
-      return new IginxInfo(host, port, user, password);
+      return new IginxInfo(host, port, user, password, useFramedTransport, useCompactProtocol);
     }
   }
 }
@@ -184,8 +184,12 @@ public class SessionPool {
 
   private Session constructSession(int index) {
     IginxInfo iginxInfo = iginxList.get(index);
-    return new Session(
-        iginxInfo.getHost(), iginxInfo.getPort(), iginxInfo.getUser(), iginxInfo.getPassword());
+    Session session =
+        new Session(
+            iginxInfo.getHost(), iginxInfo.getPort(), iginxInfo.getUser(), iginxInfo.getPassword());
+    session.setUseFramedTransport(iginxInfo.isUseFramedTransport());
+    session.setUseCompactProtocol(iginxInfo.isUseCompactProtocol());
+    return session;
   }
 
   private int getIndexOfIginx(int currentSize) {
@@ -212,11 +216,16 @@ public class SessionPool {
 
   private Session constructNewSession(Session oldSession) {
     // Construct custom Session
-    return new Session(
-        oldSession.getHost(),
-        oldSession.getPort(),
-        oldSession.getUsername(),
-        oldSession.getPassword());
+    Session session =
+        new Session(
+            oldSession.getHost(),
+            oldSession.getPort(),
+            oldSession.getUsername(),
+            oldSession.getPassword());
+    session.setUseFramedTransport(oldSession.isUseFramedTransport());
+    session.setUseCompactProtocol(oldSession.isUseCompactProtocol());
+    session.setMaxFrameSize(oldSession.getMaxFrameSize());
+    return session;
   }
 
   private Session getSessionFromQueue(int index) {
@@ -0,0 +1,518 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.session;
+
+import cn.edu.tsinghua.iginx.exception.SessionException;
+import cn.edu.tsinghua.iginx.thrift.*;
+import cn.edu.tsinghua.iginx.utils.StatusUtils;
+import cn.edu.tsinghua.iginx.utils.TransportUtils;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 异步会话。在若干条非阻塞连接上共享同一个会话，插入与查询接口立即返回 CompletableFuture，单个生产者线程即可让多个请求同时在途。
+ *
+ * <p>thrift 异步客户端的一条连接同一时刻只能承载一个请求，因此请求被分派到空闲连接上，没有空闲连接时在本地排队；
+ * 已提交但未完成的请求数达到 maxPendingRequests 时，提交请求的线程会被阻塞，以此实现客户端背压。
+ *
+ * <p>异步客户端总是使用分帧传输，服务端的 thriftServerType 需要为 hsha 或 threadedSelector，协议需要与 thriftProtocol
+ * 一致。异步会话不处理重定向，应直接连接目标节点。
+ *
+ * <p>返回的 Future 在 thrift 的 selector 线程上完成，不要在回调中同步等待其他请求，耗时的后续处理应使用 *Async 方法交给其他线程执行。
+ * 请求失败时 Future 以 SessionException 异常完成。
+ */
+public class AsyncSession {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSession.class);
+
+  private static final String USERNAME = "root";
+
+  private static final String PASSWORD = "root";
+
+  private static final int SQL_FETCH_SIZE = 10000;
+
+  private static final int DEFAULT_CONNECTION_NUM = 4;
+
+  private static final int DEFAULT_MAX_PENDING_REQUESTS = 64;
+
+  private static final TimePrecision timeUnit = TimePrecision.NS;
+
+  private final String host;
+  private final int port;
+  private final String username;
+  private final String password;
+  private int connectionNum;
+  private int maxPendingRequests;
+  private boolean useCompactProtocol;
+  private int maxFrameSize;
+  private boolean enableColumnarResult;
+  private long timeoutMs;
+
+  private final Deque<Connection> idleConnections;
+  private final Deque<Consumer<Connection>> waitingTasks;
+  private final List<Connection> connections;
+  private TAsyncClientManager clientManager;
+  private TProtocolFactory protocolFactory;
+  private Semaphore pendingPermits;
+  private long sessionId;
+  private volatile boolean isClosed;
+
+  public AsyncSession(String host, int port) {
+    this(host, port, USERNAME, PASSWORD);
+  }
+
+  public AsyncSession(String host, int port, String username, String password) {
+    this.host = host;
+    this.port = port;
+    this.username = username;
+    this.password = password;
+    this.connectionNum = DEFAULT_CONNECTION_NUM;
+    this.maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+    this.useCompactProtocol = false;
+    this.maxFrameSize = TransportUtils.DEFAULT_MAX_FRAME_SIZE;
+    this.enableColumnarResult = true;
+    this.timeoutMs = 0;
+    this.idleConnections = new ArrayDeque<>();
+    this.waitingTasks = new ArrayDeque<>();
+    this.connections = new ArrayList<>();
+    this.isClosed = true;
+  }
+
+  @FunctionalInterface
+  private interface AsyncCall<T> {
+    void exec(IService.AsyncClient client, AsyncMethodCallback<T> callback) throws TException;
+  }
+
+  private static class Connection {
+
+    private final TNonblockingTransport transport;
+
+    private final IService.AsyncClient client;
+
+    private Connection(TNonblockingTransport transport, IService.AsyncClient client) {
+      this.transport = transport;
+      this.client = client;
+    }
+  }
+
+  public long getSessionId() {
+    return sessionId;
+  }
+
+  public boolean isClosed() {
+    return isClosed;
+  }
+
+  /** 到服务端的连接数，即同时在途的请求数上限，需要在打开会话前设置 */
+  public void setConnectionNum(int connectionNum) {
+    if (connectionNum <= 0) {
+      throw new IllegalArgumentException("connectionNum should be positive");
+    }
+    this.connectionNum = connectionNum;
+  }
+
+  /** 已提交但尚未完成（包括在本地排队）的请求数上限，超过后提交请求的线程被阻塞，需要在打开会话前设置 */
+  public void setMaxPendingRequests(int maxPendingRequests) {
+    if (maxPendingRequests <= 0) {
+      throw new IllegalArgumentException("maxPendingRequests should be positive");
+    }
+    this.maxPendingRequests = maxPendingRequests;
+  }
+
+  /** 是否使用 TCompactProtocol，需要与服务端的 thriftProtocol 一致，需要在打开会话前设置 */
+  public void setUseCompactProtocol(boolean useCompactProtocol) {
+    this.useCompactProtocol = useCompactProtocol;
+  }
+
+  /** 最大帧长度，需要在打开会话前设置 */
+  public void setMaxFrameSize(int maxFrameSize) {
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  /** 是否请求服务端以列式编码返回查询结果，需要在打开会话前设置 */
+  public void setEnableColumnarResult(boolean enableColumnarResult) {
+    this.enableColumnarResult = enableColumnarResult;
+  }
+
+  /** 单个请求的超时时间，0表示不限制，需要在打开会话前设置 */
+  public void setTimeout(long timeoutMs) {
+    this.timeoutMs = timeoutMs;
+  }
+
+  public synchronized void openSession() throws SessionException {
+    if (!isClosed) {
+      return;
+    }
+    try {
+      clientManager = new TAsyncClientManager();
+    } catch (IOException e) {
+      throw new SessionException(e);
+    }
+    protocolFactory = TransportUtils.createProtocolFactory(useCompactProtocol);
+    pendingPermits = new Semaphore(maxPendingRequests);
+    try {
+      for (int i = 0; i < connectionNum; i++) {
+        Connection connection = connect();
+        connections.add(connection);
+        idleConnections.add(connection);
+      }
+
+      OpenSessionReq req = new OpenSessionReq();
+      req.setUsername(username);
+      req.setPassword(password);
+      req.setEnableColumnarResult(enableColumnarResult);
+      OpenSessionResp resp =
+          await(
+              dispatch(
+                  (client, callback) -> client.openSession(req, callback),
+                  (OpenSessionResp r) -> r.status));
+      sessionId = resp.getSessionId();
+    } catch (SessionException e) {
+      shutdown();
+      throw e;
+    }
+    isClosed = false;
+  }
+
+  /** 等待已提交的请求全部完成后关闭会话 */
+  public synchronized void closeSession() throws SessionException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    pendingPermits.acquireUninterruptibly(maxPendingRequests);
+    try {
+      CloseSessionReq req = new CloseSessionReq(sessionId);
+      await(dispatch((client, callback) -> client.closeSession(req, callback), (Status s) -> s));
+    } finally {
+      pendingPermits.release(maxPendingRequests);
+      shutdown();
+    }
+  }
+
+  public CompletableFuture<Void> insertColumnRecords(
+      List<String> paths, long[] keys, Object[] valuesList, List<DataType> dataTypeList) {
+    return insertColumnRecords(paths, keys, valuesList, dataTypeList, null, timeUnit);
+  }
+
+  public CompletableFuture<Void> insertColumnRecords(
+      List<String> paths,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Map<String, String>> tagsList) {
+    return insertColumnRecords(paths, keys, valuesList, dataTypeList, tagsList, timeUnit);
+  }
+
+  public CompletableFuture<Void> insertColumnRecords(
+      List<String> paths,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Map<String, String>> tagsList,
+      TimePrecision precision) {
+    InsertColumnRecordsReq req =
+        Session.buildInsertColumnRecordsReq(
+            sessionId, paths, keys, valuesList, dataTypeList, tagsList, precision);
+    if (req == null) {
+      return failedFuture(new SessionException("Invalid insert request!"));
+    }
+    return submit(
+        () ->
+            dispatch(
+                    (client, callback) -> client.insertColumnRecords(req, callback),
+                    (Status s) -> s)
+                .thenApply(s -> null));
+  }
+
+  public CompletableFuture<Void> insertRowRecords(
+      List<String> paths, long[] keys, Object[] valuesList, List<DataType> dataTypeList) {
+    return insertRowRecords(paths, keys, valuesList, dataTypeList, null, timeUnit);
+  }
+
+  public CompletableFuture<Void> insertRowRecords(
+      List<String> paths,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Map<String, String>> tagsList) {
+    return insertRowRecords(paths, keys, valuesList, dataTypeList, tagsList, timeUnit);
+  }
+
+  public CompletableFuture<Void> insertRowRecords(
+      List<String> paths,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Map<String, String>> tagsList,
+      TimePrecision precision) {
+    InsertRowRecordsReq req =
+        Session.buildInsertRowRecordsReq(
+            sessionId, paths, keys, valuesList, dataTypeList, tagsList, precision);
+    if (req == null) {
+      return failedFuture(new SessionException("Invalid insert request!"));
+    }
+    return submit(
+        () ->
+            dispatch((client, callback) -> client.insertRowRecords(req, callback), (Status s) -> s)
+                .thenApply(s -> null));
+  }
+
+  public CompletableFuture<SessionExecuteSqlResult> executeSql(String statement) {
+    return executeSql(statement, SQL_FETCH_SIZE);
+  }
+
+  /**
+   * 执行SQL语句。查询结果较大时，其余分页在同一个请求名额内依次拉取并合并，全部拉取完成后Future才会完成
+   *
+   * @param fetchSize 分页拉取时每页的行数，小于等于0表示要求服务端一次性返回全部结果
+   */
+  public CompletableFuture<SessionExecuteSqlResult> executeSql(String statement, int fetchSize) {
+    ExecuteSqlReq req = new ExecuteSqlReq(sessionId, statement);
+    if (fetchSize > 0) {
+      req.setFetchSize(fetchSize);
+    }
+    return submit(
+        () ->
+            dispatch(
+                    (client, callback) -> client.executeSql(req, callback),
+                    (ExecuteSqlResp r) -> r.status)
+                .thenCompose(resp -> collectResults(resp, fetchSize)));
+  }
+
+  /** 拉取查询的下一页结果 */
+  public CompletableFuture<FetchResultsResp> fetchResults(long queryId, int fetchSize) {
+    return submit(() -> fetch(queryId, fetchSize));
+  }
+
+  private CompletableFuture<SessionExecuteSqlResult> collectResults(
+      ExecuteSqlResp resp, int fetchSize) {
+    SessionExecuteSqlResult result = new SessionExecuteSqlResult(resp);
+    if (!resp.isHasMoreResults()) {
+      return CompletableFuture.completedFuture(result);
+    }
+    long queryId = resp.getQueryId();
+    List<FetchResultsResp> pages = new ArrayList<>();
+    return fetchAll(queryId, fetchSize, pages)
+        .thenApply(
+            v -> {
+              result.appendFetchResults(pages);
+              return result;
+            })
+        .whenComplete((r, e) -> closeQuery(queryId));
+  }
+
+  private CompletableFuture<Void> fetchAll(
+      long queryId, int fetchSize, List<FetchResultsResp> pages) {
+    return fetch(queryId, fetchSize)
+        .thenCompose(
+            page -> {
+              pages.add(page);
+              if (page.isHasMoreResults()) {
+                return fetchAll(queryId, fetchSize, pages);
+              }
+              return CompletableFuture.completedFuture(null);
+            });
+  }
+
+  private CompletableFuture<FetchResultsResp> fetch(long queryId, int fetchSize) {
+    FetchResultsReq req = new FetchResultsReq(sessionId, queryId);
+    req.setFetchSize(fetchSize);
+    return dispatch(
+        (client, callback) -> client.fetchResults(req, callback), (FetchResultsResp r) -> r.status);
+  }
+
+  private void closeQuery(long queryId) {
+    CloseStatementReq req = new CloseStatementReq(sessionId, queryId);
+    dispatch((client, callback) -> client.closeStatement(req, callback), (Status s) -> s)
+        .whenComplete(
+            (s, e) -> {
+              if (e != null) {
+                LOGGER.warn("close query {} failed", queryId, e);
+              }
+            });
+  }
+
+  /** 占用一个请求名额后发出请求，名额在请求（包括其后续分页）完成后、Future完成前归还 */
+  private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+    if (isClosed) {
+      return failedFuture(new SessionException("session is closed"));
+    }
+    try {
+      pendingPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return failedFuture(new SessionException(e));
+    }
+    CompletableFuture<T> future;
+    try {
+      future = request.get();
+    } catch (RuntimeException e) {
+      pendingPermits.release();
+      throw e;
+    }
+    return future.whenComplete((resp, e) -> pendingPermits.release());
+  }
+
+  /** 在空闲连接上发出请求，没有空闲连接时排队，等到有连接归还时再发出 */
+  private <T> CompletableFuture<T> dispatch(AsyncCall<T> call, Function<T, Status> statusOf) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Consumer<Connection> task = connection -> execute(connection, call, statusOf, future);
+    Connection connection;
+    synchronized (idleConnections) {
+      connection = idleConnections.pollFirst();
+      if (connection == null) {
+        waitingTasks.addLast(task);
+        return future;
+      }
+    }
+    task.accept(connection);
+    return future;
+  }
+
+  private <T> void execute(
+      Connection connection,
+      AsyncCall<T> call,
+      Function<T, Status> statusOf,
+      CompletableFuture<T> future) {
+    AsyncMethodCallback<T> callback =
+        new AsyncMethodCallback<T>() {
+          @Override
+          public void onComplete(T resp) {
+            release(connection);
+            try {
+              StatusUtils.verifySuccess(statusOf.apply(resp));
+              future.complete(resp);
+            } catch (SessionException e) {
+              future.completeExceptionally(e);
+            }
+          }
+
+          @Override
+          public void onError(Exception e) {
+            release(reconnect(connection));
+            future.completeExceptionally(new SessionException(e));
+          }
+        };
+    try {
+      call.exec(connection.client, callback);
+    } catch (TException | RuntimeException e) {
+      callback.onError(e);
+    }
+  }
+
+  /** 归还连接，有排队的请求时直接在该连接上发出 */
+  private void release(Connection connection) {
+    Consumer<Connection> task;
+    synchronized (idleConnections) {
+      task = waitingTasks.pollFirst();
+      if (task == null) {
+        idleConnections.addLast(connection);
+        return;
+      }
+    }
+    task.accept(connection);
+  }
+
+  /** 出错后异步客户端不可再用，替换为新的连接；重连失败时保留原连接，下次使用时再重试 */
+  private Connection reconnect(Connection connection) {
+    if (!clientManager.isRunning()) {
+      return connection;
+    }
+    Connection newConnection;
+    try {
+      newConnection = connect();
+    } catch (SessionException e) {
+      LOGGER.error("reconnect to {}:{} failed", host, port, e);
+      return connection;
+    }
+    connection.transport.close();
+    synchronized (connections) {
+      connections.remove(connection);
+      connections.add(newConnection);
+    }
+    return newConnection;
+  }
+
+  private Connection connect() throws SessionException {
+    try {
+      TNonblockingTransport transport =
+          TransportUtils.createNonblockingTransport(host, port, maxFrameSize);
+      IService.AsyncClient client =
+          new IService.AsyncClient(protocolFactory, clientManager, transport);
+      client.setTimeout(timeoutMs);
+      return new Connection(transport, client);
+    } catch (IOException | TTransportException e) {
+      throw new SessionException(e);
+    }
+  }
+
+  private void shutdown() {
+    synchronized (connections) {
+      for (Connection connection : connections) {
+        connection.transport.close();
+      }
+      connections.clear();
+    }
+    synchronized (idleConnections) {
+      idleConnections.clear();
+      waitingTasks.clear();
+    }
+    clientManager.stop();
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws SessionException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SessionException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SessionException) {
+        throw (SessionException) e.getCause();
+      }
+      throw new SessionException(e.getCause());
+    }
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(e);
+    return future;
+  }
+}
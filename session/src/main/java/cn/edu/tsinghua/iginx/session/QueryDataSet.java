@@ -19,15 +19,17 @@
  */
 package cn.edu.tsinghua.iginx.session;
 
+import static cn.edu.tsinghua.iginx.utils.ByteUtils.getByteBufferFromObjectByDataType;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getBytesFromByteBufferByDataType;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getValueFromByteBufferByDataType;
 
 import cn.edu.tsinghua.iginx.exception.SessionException;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.thrift.ExportCSV;
-import cn.edu.tsinghua.iginx.thrift.QueryDataSetV2;
+import cn.edu.tsinghua.iginx.thrift.FetchResultsResp;
+import cn.edu.tsinghua.iginx.thrift.QueryDataSetV3;
 import cn.edu.tsinghua.iginx.utils.Bitmap;
-import cn.edu.tsinghua.iginx.utils.Pair;
+import cn.edu.tsinghua.iginx.utils.ColumnarEncoding;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,6 +56,8 @@ public class QueryDataSet {
 
   private List<ByteBuffer> bitmapList;
 
+  private List<List<Object>> rows; // 列式编码的结果解码后按行存放，key为第一列
+
   private String exportStreamDir;
 
   private ExportCSV exportCSV;
@@ -93,33 +97,57 @@ public class QueryDataSet {
     session.closeQuery(queryId);
   }
 
-  private void fetch() throws SessionException {
-    if (bitmapList != null && index != bitmapList.size()) { // 只有之前的被消费完才有可能继续取数据
-      return;
+  void load(QueryDataSetV3 dataSetV3) {
+    List<DataType> types = dataTypeList;
+    if (dataSetV3.keys != null) {
+      types = dataTypeList.subList(1, dataTypeList.size());
     }
+    rows = ColumnarEncoding.decodeRows(dataSetV3, types, true);
+    bitmapList = null;
+    valuesList = null;
+    index = 0;
+  }
+
+  private boolean isLoaded() {
+    return valuesList != null || rows != null;
+  }
+
+  private int loadedSize() {
+    return rows != null ? rows.size() : valuesList.size();
+  }
+
+  private void clear() {
     bitmapList = null;
     valuesList = null;
+    rows = null;
     index = 0;
+  }
 
-    Pair<QueryDataSetV2, Boolean> pair = session.fetchResult(queryId, fetchSize);
-    if (pair.k != null) {
-      bitmapList = pair.k.bitmapList;
-      valuesList = pair.k.valuesList;
+  private void fetch() throws SessionException {
+    if (isLoaded() && index != loadedSize()) { // 只有之前的被消费完才有可能继续取数据
+      return;
+    }
+    clear();
+
+    FetchResultsResp resp = session.fetchResult(queryId, fetchSize);
+    if (resp.isSetQueryDataSetV3()) {
+      load(resp.getQueryDataSetV3());
+    } else if (resp.getQueryDataSet() != null) {
+      bitmapList = resp.getQueryDataSet().bitmapList;
+      valuesList = resp.getQueryDataSet().valuesList;
     }
-    state = pair.v ? State.HAS_MORE : State.NO_MORE;
+    state = resp.isHasMoreResults() ? State.HAS_MORE : State.NO_MORE;
   }
 
   public boolean hasMore() throws SessionException {
-    if (valuesList != null && index < valuesList.size()) {
+    if (isLoaded() && index < loadedSize()) {
       return true;
     }
-    bitmapList = null;
-    valuesList = null;
-    index = 0;
+    clear();
     if (state == State.HAS_MORE || state == State.UNKNOWN) {
       fetch();
     }
-    return valuesList != null;
+    return isLoaded() && index < loadedSize();
   }
 
   public Object[] nextRow() throws SessionException {
@@ -127,6 +155,9 @@ public class QueryDataSet {
       return null;
     }
     // nextRow 只会返回本地的 row，如果本地没有，在进行 hasMore 操作时候，就一定也已经取回来了
+    if (rows != null) {
+      return rows.get(index++).toArray();
+    }
     ByteBuffer valuesBuffer = valuesList.get(index);
     ByteBuffer bitmapBuffer = bitmapList.get(index);
     index++;
@@ -145,6 +176,20 @@ public class QueryDataSet {
       return null;
     }
     // nextRow 只会返回本地的 row，如果本地没有，在进行 hasMore 操作时候，就一定也已经取回来了
+    if (rows != null) {
+      List<Object> row = rows.get(index++);
+      List<byte[]> bytesValues = new ArrayList<>(row.size());
+      for (int i = 0; i < row.size(); i++) {
+        if (row.get(i) != null) {
+          DataType type = dataTypeList.get(i);
+          ByteBuffer buffer = getByteBufferFromObjectByDataType(row.get(i), type);
+          bytesValues.add(getBytesFromByteBufferByDataType(buffer, type));
+        } else {
+          bytesValues.add(new byte[0]);
+        }
+      }
+      return bytesValues;
+    }
     ByteBuffer valuesBuffer = valuesList.get(index);
     ByteBuffer bitmapBuffer = bitmapList.get(index);
     index++;
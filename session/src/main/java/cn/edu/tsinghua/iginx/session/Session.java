@@ -42,8 +42,6 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
@@ -59,6 +57,8 @@ public class Session {
 
   private static final String PASSWORD = "root";
 
+  private static final int SQL_FETCH_SIZE = 10000;
+
   private final String username;
   private final String password;
   private final ReadWriteLock lock;
@@ -69,6 +69,10 @@ public class Session {
   private TTransport transport;
   private boolean isClosed;
   private int redirectTimes;
+  private boolean enableColumnarResult;
+  private boolean useFramedTransport;
+  private boolean useCompactProtocol;
+  private int maxFrameSize;
 
   private static final TimePrecision timeUnit = TimePrecision.NS;
 
@@ -91,6 +95,10 @@ public class Session {
     this.password = password;
     this.isClosed = true;
     this.redirectTimes = 0;
+    this.enableColumnarResult = true;
+    this.useFramedTransport = false;
+    this.useCompactProtocol = false;
+    this.maxFrameSize = TransportUtils.DEFAULT_MAX_FRAME_SIZE;
     this.lock = new ReentrantReadWriteLock();
   }
 
@@ -102,6 +110,38 @@ public class Session {
     return isClosed;
   }
 
+  /** 是否请求服务端以列式编码（QueryDataSetV3）返回查询结果，需要在打开会话前设置 */
+  public void setEnableColumnarResult(boolean enableColumnarResult) {
+    this.enableColumnarResult = enableColumnarResult;
+  }
+
+  /** 是否使用分帧传输，服务端为非阻塞模式时必须开启，需要在打开会话前设置 */
+  public void setUseFramedTransport(boolean useFramedTransport) {
+    this.useFramedTransport = useFramedTransport;
+  }
+
+  public boolean isUseFramedTransport() {
+    return useFramedTransport;
+  }
+
+  /** 是否使用 TCompactProtocol，需要与服务端的 thriftProtocol 一致，需要在打开会话前设置 */
+  public void setUseCompactProtocol(boolean useCompactProtocol) {
+    this.useCompactProtocol = useCompactProtocol;
+  }
+
+  public boolean isUseCompactProtocol() {
+    return useCompactProtocol;
+  }
+
+  /** 分帧传输的最大帧长度，需要在打开会话前设置 */
+  public void setMaxFrameSize(int maxFrameSize) {
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  public int getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
   private synchronized boolean checkRedirect(Status status) throws SessionException, TException {
     if (StatusUtils.verifyNoRedirect(status)) {
       redirectTimes = 0;
@@ -151,20 +191,21 @@ public class Session {
   }
 
   private OpenSessionResp tryOpenSession() throws SessionException, TException {
-    transport = new TSocket(host, port);
-    if (!transport.isOpen()) {
-      try {
+    try {
+      transport = TransportUtils.createTransport(host, port, useFramedTransport, maxFrameSize);
+      if (!transport.isOpen()) {
         transport.open();
-      } catch (TTransportException e) {
-        throw new SessionException(e);
       }
+    } catch (TTransportException e) {
+      throw new SessionException(e);
     }
 
-    client = new IService.Client(new TBinaryProtocol(transport));
+    client = new IService.Client(TransportUtils.createProtocol(transport, useCompactProtocol));
 
     OpenSessionReq req = new OpenSessionReq();
     req.setUsername(username);
     req.setPassword(password);
+    req.setEnableColumnarResult(enableColumnarResult);
 
     return client.openSession(req);
   }
@@ -334,17 +375,35 @@ public class Session {
       List<Map<String, String>> tagsList,
       TimePrecision precision)
       throws SessionException {
+    InsertColumnRecordsReq req =
+        buildInsertColumnRecordsReq(
+            sessionId, paths, keys, valuesList, dataTypeList, tagsList, precision);
+    if (req == null) {
+      return;
+    }
+    executeWithCheck(() -> client.insertColumnRecords(req));
+  }
+
+  /** 对key和路径排序并编码为请求，参数不合法时返回null，同步与异步会话共用 */
+  static InsertColumnRecordsReq buildInsertColumnRecordsReq(
+      long sessionId,
+      List<String> paths,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Map<String, String>> tagsList,
+      TimePrecision precision) {
     if (paths.isEmpty() || keys.length == 0 || valuesList.length == 0 || dataTypeList.isEmpty()) {
       LOGGER.error("Invalid insert request!");
-      return;
+      return null;
     }
     if (paths.size() != valuesList.length || paths.size() != dataTypeList.size()) {
       LOGGER.error("The sizes of paths, valuesList and dataTypeList should be equal.");
-      return;
+      return null;
     }
     if (tagsList != null && !tagsList.isEmpty() && paths.size() != tagsList.size()) {
       LOGGER.error("The sizes of paths, valuesList, dataTypeList and tagsList should be equal.");
-      return;
+      return null;
     }
 
     long[] sortedKeys = Arrays.copyOf(keys, keys.length);
@@ -389,7 +448,7 @@ public class Session {
       Object[] values = (Object[]) sortedValuesList[i];
       if (values.length != sortedKeys.length) {
         LOGGER.error("The sizes of keys and the element of valuesList should be equal.");
-        return;
+        return null;
       }
       valueBufferList.add(ByteUtils.getColumnByteBuffer(values, sortedDataTypeList.get(i)));
       Bitmap bitmap = new Bitmap(sortedKeys.length);
@@ -410,8 +469,7 @@ public class Session {
     req.setDataTypeList(sortedDataTypeList);
     req.setTagsList(sortedTagsList);
     req.setTimePrecision(precision);
-
-    executeWithCheck(() -> client.insertColumnRecords(req));
+    return req;
   }
 
   public void insertNonAlignedColumnRecords(
@@ -536,21 +594,39 @@ public class Session {
       List<Map<String, String>> tagsList,
       TimePrecision precision)
       throws SessionException {
+    InsertRowRecordsReq req =
+        buildInsertRowRecordsReq(
+            sessionId, paths, keys, valuesList, dataTypeList, tagsList, precision);
+    if (req == null) {
+      return;
+    }
+    executeWithCheck(() -> client.insertRowRecords(req));
+  }
+
+  /** 按行编码的插入请求，参见 buildInsertColumnRecordsReq */
+  static InsertRowRecordsReq buildInsertRowRecordsReq(
+      long sessionId,
+      List<String> paths,
+      long[] keys,
+      Object[] valuesList,
+      List<DataType> dataTypeList,
+      List<Map<String, String>> tagsList,
+      TimePrecision precision) {
     if (paths.isEmpty() || keys.length == 0 || valuesList.length == 0 || dataTypeList.isEmpty()) {
       LOGGER.error("Invalid insert request!");
-      return;
+      return null;
     }
     if (paths.size() != dataTypeList.size()) {
       LOGGER.error("The sizes of paths and dataTypeList should be equal.");
-      return;
+      return null;
     }
     if (keys.length != valuesList.length) {
       LOGGER.error("The sizes of keys and valuesList should be equal.");
-      return;
+      return null;
     }
     if (tagsList != null && !tagsList.isEmpty() && paths.size() != tagsList.size()) {
       LOGGER.error("The sizes of paths, valuesList, dataTypeList and tagsList should be equal.");
-      return;
+      return null;
     }
 
     long[] sortedKeys = Arrays.copyOf(keys, keys.length);
@@ -597,7 +673,7 @@ public class Session {
       Object[] values = (Object[]) sortedValuesList[i];
       if (values.length != sortedPaths.size()) {
         LOGGER.error("The sizes of paths and the element of valuesList should be equal.");
-        return;
+        return null;
       }
       valueBufferList.add(ByteUtils.getRowByteBuffer(values, sortedDataTypeList));
       Bitmap bitmap = new Bitmap(values.length);
@@ -618,8 +694,7 @@ public class Session {
     req.setDataTypeList(sortedDataTypeList);
     req.setTagsList(sortedTagsList);
     req.setTimePrecision(precision);
-
-    executeWithCheck(() -> client.insertRowRecords(req));
+    return req;
   }
 
   public void insertNonAlignedRowRecords(
@@ -905,12 +980,45 @@ public class Session {
     return ref.resp.getReplicaNum();
   }
 
+  /**
+   * 执行SQL语句并返回全部结果，等价于以默认页大小调用 {@link #executeSqlAndFetchAll(String, int)}。结果会全部读入客户端内存，
+   * 需要逐行读取较大的查询结果时使用 {@link #executeQuery(String, int)}
+   */
   public SessionExecuteSqlResult executeSql(String statement) throws SessionException {
+    return executeSqlAndFetchAll(statement, SQL_FETCH_SIZE);
+  }
+
+  /**
+   * 执行SQL语句并拉取全部结果。查询结果较大时服务端只返回第一页，这里按fetchSize逐页拉取剩余的结果并合并到返回值中，
+   * 服务端每次只持有一页数据，客户端最终持有全部结果
+   *
+   * @param fetchSize 分页拉取时每页的行数，小于等于0表示要求服务端一次性返回全部结果
+   */
+  public SessionExecuteSqlResult executeSqlAndFetchAll(String statement, int fetchSize)
+      throws SessionException {
     ExecuteSqlReq req = new ExecuteSqlReq(sessionId, statement);
+    if (fetchSize > 0) {
+      req.setFetchSize(fetchSize);
+    }
     Reference<ExecuteSqlResp> ref = new Reference<>();
     executeWithCheck(() -> (ref.resp = client.executeSql(req)).status);
 
-    return new SessionExecuteSqlResult(ref.resp);
+    SessionExecuteSqlResult result = new SessionExecuteSqlResult(ref.resp);
+    if (ref.resp.isHasMoreResults()) {
+      long queryId = ref.resp.getQueryId();
+      try {
+        List<FetchResultsResp> pages = new ArrayList<>();
+        FetchResultsResp page;
+        do {
+          page = fetchResult(queryId, fetchSize);
+          pages.add(page);
+        } while (page.isHasMoreResults());
+        result.appendFetchResults(pages);
+      } finally {
+        closeQuery(queryId);
+      }
+    }
+    return result;
   }
 
   public SessionQueryDataSet queryLast(
@@ -1032,11 +1140,28 @@ public class Session {
     long queryId = ref.resp.getQueryId();
     List<String> columns = ref.resp.getColumns();
     List<DataType> dataTypes = ref.resp.getDataTypeList();
-    QueryDataSetV2 dataSetV2 = ref.resp.getQueryDataSet();
     String warningMessage = ref.resp.getWarningMsg();
     String dir = ref.resp.getExportStreamDir();
     ExportCSV exportCSV = ref.resp.getExportCSV();
 
+    if (ref.resp.isSetQueryDataSetV3()) {
+      QueryDataSet dataSet =
+          new QueryDataSet(
+              this,
+              queryId,
+              columns,
+              dataTypes,
+              fetchSize,
+              null,
+              null,
+              warningMessage,
+              dir,
+              exportCSV);
+      dataSet.load(ref.resp.getQueryDataSetV3());
+      return dataSet;
+    }
+
+    QueryDataSetV2 dataSetV2 = ref.resp.getQueryDataSet();
     return new QueryDataSet(
         this,
         queryId,
@@ -1050,13 +1175,13 @@ public class Session {
         exportCSV);
   }
 
-  Pair<QueryDataSetV2, Boolean> fetchResult(long queryId, int fetchSize) throws SessionException {
+  FetchResultsResp fetchResult(long queryId, int fetchSize) throws SessionException {
     FetchResultsReq req = new FetchResultsReq(sessionId, queryId);
     req.setFetchSize(fetchSize);
     Reference<FetchResultsResp> ref = new Reference<>();
     executeWithCheck(() -> (ref.resp = client.fetchResults(req)).status);
 
-    return new Pair<>(ref.resp.getQueryDataSet(), ref.resp.isHasMoreResults());
+    return ref.resp;
   }
 
   public void uploadFileChunk(FileChunk chunk) throws SessionException {
@@ -24,6 +24,7 @@ import static cn.edu.tsinghua.iginx.utils.ByteUtils.getValuesFromBufferAndBitmap
 
 import cn.edu.tsinghua.iginx.constant.GlobalConstant;
 import cn.edu.tsinghua.iginx.thrift.*;
+import cn.edu.tsinghua.iginx.utils.ColumnarEncoding;
 import cn.edu.tsinghua.iginx.utils.FormatUtils;
 import java.util.*;
 
@@ -138,6 +139,12 @@ public class SessionExecuteSqlResult {
     this.paths = resp.getPaths();
     this.dataTypeList = resp.getDataTypeList();
 
+    if (resp.isSetQueryDataSetV3()) {
+      this.keys = ColumnarEncoding.decodeKeys(resp.queryDataSetV3);
+      this.values = ColumnarEncoding.decodeRows(resp.queryDataSetV3, resp.dataTypeList, false);
+      return;
+    }
+
     if (resp.keys != null) {
       this.keys = getLongArrayFromByteBuffer(resp.keys);
     }
@@ -152,6 +159,40 @@ public class SessionExecuteSqlResult {
     }
   }
 
+  /** 追加通过fetchResults分页拉取的查询结果，分页数据中的key作为第一列 */
+  void appendFetchResults(List<FetchResultsResp> pages) {
+    boolean hasKey = keys != null;
+    List<DataType> types = dataTypeList;
+    if (hasKey) {
+      types = new ArrayList<>(dataTypeList.size() + 1);
+      types.add(DataType.LONG);
+      types.addAll(dataTypeList);
+    }
+    List<List<Object>> rows = new ArrayList<>();
+    for (FetchResultsResp page : pages) {
+      if (page.isSetQueryDataSetV3()) {
+        rows.addAll(ColumnarEncoding.decodeRows(page.queryDataSetV3, dataTypeList, hasKey));
+      } else if (page.queryDataSet != null) {
+        QueryDataSetV2 dataSet = page.queryDataSet;
+        rows.addAll(getValuesFromBufferAndBitmaps(types, dataSet.valuesList, dataSet.bitmapList));
+      }
+    }
+    if (values == null) {
+      values = new ArrayList<>();
+    }
+    if (!hasKey) {
+      values.addAll(rows);
+      return;
+    }
+    int offset = keys.length;
+    keys = Arrays.copyOf(keys, offset + rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      List<Object> row = rows.get(i);
+      keys[offset + i] = (Long) row.remove(0);
+      values.add(row);
+    }
+  }
+
   public List<List<String>> getResultInList(
       boolean needFormatTime, String timeFormat, String timePrecision) {
     List<List<String>> result = new ArrayList<>();
@@ -19,6 +19,8 @@
  */
 package cn.edu.tsinghua.iginx.session_v2;
 
+import cn.edu.tsinghua.iginx.utils.TransportUtils;
+
 public final class IginXClientOptions {
 
   private static final String DEFAULT_USERNAME = "root";
@@ -33,11 +35,20 @@ public final class IginXClientOptions {
 
   private final String password;
 
+  private final boolean useFramedTransport;
+
+  private final boolean useCompactProtocol;
+
+  private final int maxFrameSize;
+
   private IginXClientOptions(IginXClientOptions.Builder builder) {
     this.host = builder.host;
     this.port = builder.port;
     this.username = builder.username;
     this.password = builder.password;
+    this.useFramedTransport = builder.useFramedTransport;
+    this.useCompactProtocol = builder.useCompactProtocol;
+    this.maxFrameSize = builder.maxFrameSize;
   }
 
   public static IginXClientOptions.Builder builder() {
@@ -60,6 +71,18 @@ public final class IginXClientOptions {
     return password;
   }
 
+  public boolean isUseFramedTransport() {
+    return useFramedTransport;
+  }
+
+  public boolean isUseCompactProtocol() {
+    return useCompactProtocol;
+  }
+
+  public int getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
   public static class Builder {
 
     private String host;
@@ -70,6 +93,12 @@ public final class IginXClientOptions {
 
     private String password;
 
+    private boolean useFramedTransport = false;
+
+    private boolean useCompactProtocol = false;
+
+    private int maxFrameSize = TransportUtils.DEFAULT_MAX_FRAME_SIZE;
+
     private Builder() {}
 
     public IginXClientOptions.Builder url(String url) {
@@ -109,6 +138,26 @@ public final class IginXClientOptions {
       return this;
     }
 
+    /** 使用分帧传输，服务端为非阻塞模式（hsha、threadedSelector）时必须开启 */
+    public IginXClientOptions.Builder framedTransport(boolean useFramedTransport) {
+      this.useFramedTransport = useFramedTransport;
+      return this;
+    }
+
+    /** 使用 TCompactProtocol，需要与服务端的 thriftProtocol 一致 */
+    public IginXClientOptions.Builder compactProtocol(boolean useCompactProtocol) {
+      this.useCompactProtocol = useCompactProtocol;
+      return this;
+    }
+
+    public IginXClientOptions.Builder maxFrameSize(int maxFrameSize) {
+      if (maxFrameSize <= 0) {
+        throw new IllegalArgumentException("maxFrameSize should be positive");
+      }
+      this.maxFrameSize = maxFrameSize;
+      return this;
+    }
+
     public IginXClientOptions build() {
       if (this.host == null || this.port == 0) {
         throw new IllegalStateException("the host and port to connect to Iginx has to be defined.");
@@ -24,14 +24,13 @@ import cn.edu.tsinghua.iginx.session_v2.exception.IginXException;
 import cn.edu.tsinghua.iginx.thrift.CloseSessionReq;
 import cn.edu.tsinghua.iginx.thrift.IService;
 import cn.edu.tsinghua.iginx.thrift.OpenSessionReq;
+import cn.edu.tsinghua.iginx.utils.TransportUtils;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
@@ -65,9 +64,16 @@ public class IginXClientImpl implements IginXClient {
     resultMapper = new ResultMapper();
 
     try {
-      transport = new TSocket(options.getHost(), options.getPort());
+      transport =
+          TransportUtils.createTransport(
+              options.getHost(),
+              options.getPort(),
+              options.isUseFramedTransport(),
+              options.getMaxFrameSize());
       transport.open();
-      client = new IService.Client(new TBinaryProtocol(transport));
+      client =
+          new IService.Client(
+              TransportUtils.createProtocol(transport, options.isUseCompactProtocol()));
     } catch (TTransportException e) {
       throw new IginXException("Open socket error: ", e);
     }
@@ -0,0 +1,81 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.utils;
+
+import java.io.IOException;
+import org.apache.thrift.TConfiguration;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.apache.thrift.transport.TNonblockingTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.apache.thrift.transport.layered.TFramedTransport;
+
+/** 按客户端选项创建到 IGinX 的连接，需要与服务端的 thriftServerType、thriftProtocol 配置一致 */
+public class TransportUtils {
+
+  /** 默认的最大帧长度，与服务端 thriftMaxFrameSize 的默认值相同 */
+  public static final int DEFAULT_MAX_FRAME_SIZE = 268435456;
+
+  private TransportUtils() {}
+
+  /**
+   * 创建尚未打开的连接
+   *
+   * @param framed 是否使用分帧传输，服务端为非阻塞模式（hsha、threadedSelector）时必须开启
+   * @param maxFrameSize 最大帧长度，同时作为单条消息的长度上限
+   */
+  public static TTransport createTransport(String host, int port, boolean framed, int maxFrameSize)
+      throws TTransportException {
+    TConfiguration configuration =
+        new TConfiguration(
+            Math.max(maxFrameSize, TConfiguration.DEFAULT_MAX_MESSAGE_SIZE),
+            maxFrameSize,
+            TConfiguration.DEFAULT_RECURSION_DEPTH);
+    TTransport socket = new TSocket(configuration, host, port);
+    if (!framed) {
+      return socket;
+    }
+    return new TFramedTransport(socket, maxFrameSize);
+  }
+
+  public static TProtocol createProtocol(TTransport transport, boolean compact) {
+    return compact ? new TCompactProtocol(transport) : new TBinaryProtocol(transport);
+  }
+
+  /** 创建供异步客户端使用的非阻塞连接，异步客户端总是分帧传输，只能连接非阻塞模式的服务端 */
+  public static TNonblockingTransport createNonblockingTransport(
+      String host, int port, int maxFrameSize) throws IOException, TTransportException {
+    TNonblockingSocket socket = new TNonblockingSocket(host, port);
+    TConfiguration configuration = socket.getConfiguration();
+    configuration.setMaxMessageSize(
+        Math.max(maxFrameSize, TConfiguration.DEFAULT_MAX_MESSAGE_SIZE));
+    configuration.setMaxFrameSize(maxFrameSize);
+    return socket;
+  }
+
+  public static TProtocolFactory createProtocolFactory(boolean compact) {
+    return compact ? new TCompactProtocol.Factory() : new TBinaryProtocol.Factory();
+  }
+}
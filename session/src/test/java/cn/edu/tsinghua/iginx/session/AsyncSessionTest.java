@@ -0,0 +1,291 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.session;
+
+import static org.junit.Assert.*;
+
+import cn.edu.tsinghua.iginx.exception.SessionException;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.thrift.IService;
+import cn.edu.tsinghua.iginx.thrift.InsertRowRecordsReq;
+import cn.edu.tsinghua.iginx.thrift.OpenSessionResp;
+import cn.edu.tsinghua.iginx.thrift.Status;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.server.THsHaServer;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncSessionTest {
+
+  private static final long SESSION_ID = 42;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private volatile Function<InsertRowRecordsReq, Status> insertHandler = req -> RpcUtils.SUCCESS;
+
+  private TServer server;
+
+  private int port;
+
+  private AsyncSession session;
+
+  @Before
+  public void setUp() throws Exception {
+    IService.Iface service =
+        (IService.Iface)
+            Proxy.newProxyInstance(
+                IService.Iface.class.getClassLoader(),
+                new Class<?>[] {IService.Iface.class},
+                (proxy, method, args) -> handle(method, args));
+    TNonblockingServerSocket socket =
+        new TNonblockingServerSocket(new InetSocketAddress("127.0.0.1", 0));
+    port = socket.getPort();
+    THsHaServer.Args args = new THsHaServer.Args(socket).minWorkerThreads(8).maxWorkerThreads(8);
+    args.processor(new IService.Processor<>(service))
+        .protocolFactory(new TBinaryProtocol.Factory());
+    server = new THsHaServer(args);
+    Thread serverThread = new Thread(server::serve, "async-session-test-server");
+    serverThread.setDaemon(true);
+    serverThread.start();
+    waitUntil(server::isServing);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    release.countDown();
+    if (session != null) {
+      session.closeSession();
+    }
+    server.stop();
+  }
+
+  /** 模拟服务端：插入请求按路径记录到达顺序，并统计同时在处理的请求数 */
+  private Object handle(Method method, Object[] args) {
+    switch (method.getName()) {
+      case "openSession":
+        OpenSessionResp resp = new OpenSessionResp(RpcUtils.SUCCESS);
+        resp.setSessionId(SESSION_ID);
+        return resp;
+      case "closeSession":
+        return RpcUtils.SUCCESS;
+      case "insertRowRecords":
+        InsertRowRecordsReq req = (InsertRowRecordsReq) args[0];
+        assertEquals(SESSION_ID, req.getSessionId());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+          received.add(req.getPaths().get(0));
+          return insertHandler.apply(req);
+        } finally {
+          inFlight.decrementAndGet();
+        }
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  private void open(int connectionNum, int maxPendingRequests, long timeoutMs)
+      throws SessionException {
+    session = new AsyncSession("127.0.0.1", port);
+    session.setConnectionNum(connectionNum);
+    session.setMaxPendingRequests(maxPendingRequests);
+    session.setTimeout(timeoutMs);
+    session.openSession();
+    assertEquals(SESSION_ID, session.getSessionId());
+  }
+
+  private CompletableFuture<Void> insert(String path) {
+    return session.insertRowRecords(
+        Collections.singletonList(path),
+        new long[] {0},
+        new Object[] {new Object[] {1L}},
+        Collections.singletonList(DataType.LONG));
+  }
+
+  private Status blockUntilReleased() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return RpcUtils.SUCCESS;
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      assertTrue("condition not met in time", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private static void assertFailed(CompletableFuture<?> future) throws Exception {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof SessionException);
+    }
+  }
+
+  @Test
+  public void testQueuesWhenNoConnectionIsIdle() throws Exception {
+    insertHandler = req -> blockUntilReleased();
+    open(1, 8, 0);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(insert("s" + i));
+    }
+    // 唯一的连接被第一个请求占用，其余请求在本地排队，提交不会阻塞
+    waitUntil(() -> received.size() == 1);
+    Thread.sleep(100);
+    assertEquals(1, received.size());
+    for (CompletableFuture<Void> future : futures) {
+      assertFalse(future.isDone());
+    }
+
+    release.countDown();
+    for (CompletableFuture<Void> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertEquals(Arrays.asList("s0", "s1", "s2", "s3"), received);
+    assertEquals(1, maxInFlight.get());
+  }
+
+  @Test
+  public void testRequestsSpreadOverConnections() throws Exception {
+    insertHandler = req -> blockUntilReleased();
+    open(3, 8, 0);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      futures.add(insert("s" + i));
+    }
+    waitUntil(() -> inFlight.get() == 3);
+    Thread.sleep(100);
+    assertEquals(3, received.size());
+
+    release.countDown();
+    for (CompletableFuture<Void> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertEquals(6, received.size());
+    assertEquals(3, maxInFlight.get());
+  }
+
+  @Test
+  public void testBackPressure() throws Exception {
+    insertHandler = req -> blockUntilReleased();
+    open(1, 2, 0);
+
+    CompletableFuture<Void> first = insert("s0");
+    CompletableFuture<Void> second = insert("s1");
+    ExecutorService producer = Executors.newSingleThreadExecutor();
+    try {
+      // 名额用尽后，提交请求的线程阻塞，直到有请求完成
+      Future<CompletableFuture<Void>> third = producer.submit(() -> insert("s2"));
+      try {
+        third.get(200, TimeUnit.MILLISECONDS);
+        fail();
+      } catch (TimeoutException expected) {
+        // 仍在等待名额
+      }
+      assertEquals(1, received.size());
+
+      release.countDown();
+      first.get(10, TimeUnit.SECONDS);
+      second.get(10, TimeUnit.SECONDS);
+      third.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+    } finally {
+      producer.shutdownNow();
+    }
+    assertEquals(Arrays.asList("s0", "s1", "s2"), received);
+  }
+
+  @Test
+  public void testReconnectAfterTimeout() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    insertHandler =
+        req -> {
+          if (calls.getAndIncrement() == 0) {
+            try {
+              Thread.sleep(1000);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          return RpcUtils.SUCCESS;
+        };
+    open(1, 8, 300);
+
+    // 超时后原连接的异步客户端不可再用，后续请求应在重建的连接上成功
+    assertFailed(insert("s0"));
+    insert("s1").get(10, TimeUnit.SECONDS);
+    insert("s2").get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("s0", "s1", "s2"), received);
+  }
+
+  @Test
+  public void testErrorStatus() throws Exception {
+    insertHandler = req -> req.getPaths().get(0).equals("s0") ? RpcUtils.FAILURE : RpcUtils.SUCCESS;
+    open(1, 8, 0);
+
+    assertFailed(insert("s0"));
+    insert("s1").get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testClosedSession() throws Exception {
+    open(1, 8, 0);
+    insert("s0").get(10, TimeUnit.SECONDS);
+    session.closeSession();
+    assertTrue(session.isClosed());
+    assertFailed(insert("s1"));
+    assertEquals(Collections.singletonList("s0"), received);
+  }
+}
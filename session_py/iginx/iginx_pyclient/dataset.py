@@ -24,7 +24,8 @@ import pandas as pd
 
 from .thrift.rpc.ttypes import SqlType, AggregateType, ExecuteSqlResp
 from .utils.bitmap import Bitmap
-from .utils.byte_utils import get_long_array, get_values_by_data_type, BytesParser
+from .utils.byte_utils import get_long_array, get_values_by_data_type, BytesParser, value_to_bytes
+from .utils.columnar import decode_rows
 from .thrift.rpc.ttypes import DataType
 
 def map_dtype(dtype):
@@ -262,7 +263,7 @@ class StatementExecuteDataSet(object):
         UNKNOWN = 3
 
     def __init__(self, session, query_id, columns, types, fetch_size, values_list, bitmap_list, exportStreamDir=None,
-                 exportCSV=None):
+                 exportCSV=None, data_set_v3=None):
         self.__session = session
         self.__query_id = query_id
         self.__columns = columns
@@ -270,19 +271,32 @@ class StatementExecuteDataSet(object):
         self.__fetch_size = fetch_size
         self.__values_list = values_list
         self.__bitmap_list = bitmap_list
+        # 列式结果（QueryDataSetV3）在收到时即解码为行
+        self.__rows = decode_rows(data_set_v3, types) if data_set_v3 is not None else None
         self.__state = StatementExecuteDataSet.State.UNKNOWN
         self.__exportStreamDir = exportStreamDir
         self.__exportCSV = exportCSV
         self.__index = 0
 
-    def fetch(self):
-        if self.__bitmap_list and self.__index != len(self.__bitmap_list):
-            return
+    def __loaded_size(self):
+        if self.__rows is not None:
+            return len(self.__rows)
+        if self.__values_list:
+            return len(self.__values_list)
+        return 0
 
+    def __clear(self):
         self.__bitmap_list = None
         self.__values_list = None
+        self.__rows = None
         self.__index = 0
 
+    def fetch(self):
+        if self.__index < self.__loaded_size():
+            return
+
+        self.__clear()
+
         tp = self.__session._fetch(self.__query_id, self.__fetch_size)
 
         if tp[0]:
@@ -290,27 +304,32 @@ class StatementExecuteDataSet(object):
         else:
             self.__state = StatementExecuteDataSet.State.NO_MORE
 
-        if tp[1]:
+        if tp[2]:
+            self.__rows = decode_rows(tp[2], self.__types)
+        elif tp[1]:
             self.__bitmap_list = tp[1].bitmapList
             self.__values_list = tp[1].valuesList
 
     def has_more(self):
-        if self.__values_list and self.__index < len(self.__values_list):
+        if self.__index < self.__loaded_size():
             return True
 
-        self.__bitmap_list = None
-        self.__values_list = None
-        self.__index = 0
+        self.__clear()
 
         if self.__state == StatementExecuteDataSet.State.HAS_MORE or self.__state == StatementExecuteDataSet.State.UNKNOWN:
             self.fetch()
 
-        return self.__values_list
+        return self.__index < self.__loaded_size()
 
     def next(self):
         if not self.has_more():
             return None
 
+        if self.__rows is not None:
+            row = self.__rows[self.__index]
+            self.__index += 1
+            return row
+
         values_buffer = self.__values_list[self.__index]
         bitmap_buffer = self.__bitmap_list[self.__index]
         self.__index += 1
@@ -329,6 +348,14 @@ class StatementExecuteDataSet(object):
         if not self.has_more():
             return None
 
+        if self.__rows is not None:
+            row = self.__rows[self.__index]
+            self.__index += 1
+            bytes_list = [value_to_bytes(value, type) for value, type in zip(row, self.__types)]
+            if remove_key:
+                bytes_list = bytes_list[1:]
+            return bytes_list
+
         values_buffer = self.__values_list[self.__index]
         bitmap_buffer = self.__bitmap_list[self.__index]
         self.__index += 1
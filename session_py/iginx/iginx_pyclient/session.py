@@ -64,6 +64,7 @@ from .thrift.rpc.ttypes import (
 from .time_series import TimeSeries
 from .utils.bitmap import Bitmap
 from .utils.byte_utils import timestamps_to_bytes, row_values_to_bytes, column_values_to_bytes, bitmap_to_bytes
+from .utils.columnar import to_query_data_set, append_pages
 
 logger = logging.getLogger("IginX")
 
@@ -71,6 +72,9 @@ logger = logging.getLogger("IginX")
 MAX_KEY = 9223372036854775807
 MIN_KEY = -9223372036854775807
 
+# execute_sql 分页拉取结果时默认每页的行数，与 Java 客户端保持一致
+SQL_FETCH_SIZE = 10000
+
 
 def isPyReg(statement:str):
     statement = statement.strip().lower()
@@ -117,7 +121,7 @@ class Session(object):
 
         self.__client = Client(TBinaryProtocol.TBinaryProtocol(self.__transport))
 
-        req = OpenSessionReq(self.__user, self.__password)
+        req = OpenSessionReq(self.__user, self.__password, enableColumnarResult=True)
 
         try:
             resp = self.__client.openSession(req)
@@ -502,18 +506,44 @@ class Session(object):
         Session.verify_status(resp.status)
         return ClusterInfo(resp)
 
-    def execute_sql(self, statement):
+    def execute_sql(self, statement, fetch_size=SQL_FETCH_SIZE):
+        """
+        执行 SQL 并返回包含全部结果的响应。查询结果较大时服务端只返回第一页，这里按 fetch_size 逐页拉取剩余的结果并合并到响应中；
+        fetch_size 为 None 时要求服务端一次性返回全部结果。需要逐行读取较大的结果时使用 execute_statement。
+        """
         if isPyReg(statement):
             statement = process_py_reg(statement)
-        req = ExecuteSqlReq(sessionId=self.__session_id, statement=statement)
+        req = ExecuteSqlReq(sessionId=self.__session_id, statement=statement, fetchSize=fetch_size)
         resp = self.__client.executeSql(req)
         Session.verify_status(resp.status)
+        if resp.queryDataSetV3 is not None:
+            # 会话开启了列式结果，转换为按行编码的结果，与未开启时返回的响应保持一致
+            resp.queryDataSet = to_query_data_set(resp.queryDataSetV3, resp.dataTypeList)
+            if resp.queryDataSetV3.keys is not None:
+                resp.keys = resp.queryDataSet.keys
+            resp.queryDataSetV3 = None
+        if resp.hasMoreResults:
+            try:
+                pages = []
+                has_more = True
+                while has_more:
+                    has_more, data_set, data_set_v3 = self._fetch(resp.queryId, fetch_size or SQL_FETCH_SIZE)
+                    pages.append((data_set, data_set_v3))
+                resp.queryDataSet = append_pages(resp.queryDataSet, pages, resp.dataTypeList, resp.keys is not None)
+                if resp.keys is not None:
+                    resp.keys = resp.queryDataSet.keys
+            finally:
+                self._close_statement(resp.queryId)
+            resp.hasMoreResults = False
         return resp
 
     def execute_statement(self, statement, fetch_size=2147483647):
         req = ExecuteStatementReq(sessionId=self.__session_id, statement=statement, fetchSize=fetch_size)
         resp = self.__client.executeStatement(req)
         Session.verify_status(resp.status)
+        if resp.queryDataSetV3 is not None:
+            return StatementExecuteDataSet(self, resp.queryId, resp.columns, resp.dataTypeList, fetch_size, None, None,
+                                           resp.exportStreamDir, resp.exportCSV, resp.queryDataSetV3)
         return StatementExecuteDataSet(self, resp.queryId, resp.columns, resp.dataTypeList, fetch_size,
                                        resp.queryDataSet.valuesList, resp.queryDataSet.bitmapList, resp.exportStreamDir,
                                        resp.exportCSV)
@@ -750,7 +780,7 @@ class Session(object):
         req = FetchResultsReq(sessionId=self.__session_id, queryId=query_id, fetchSize=fetch_size)
         resp = self.__client.fetchResults(req)
         Session.verify_status(resp.status)
-        return (resp.hasMoreResults, resp.queryDataSet)
+        return (resp.hasMoreResults, resp.queryDataSet, resp.queryDataSetV3)
 
     def _close_statement(self, query_id):
         req = CloseStatementReq(sessionId=self.__session_id, queryId=query_id)
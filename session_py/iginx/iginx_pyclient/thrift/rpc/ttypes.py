@@ -632,13 +632,15 @@ class OpenSessionReq(object):
     Attributes:
      - username
      - password
+     - enableColumnarResult
 
     """
 
 
-    def __init__(self, username=None, password=None,):
+    def __init__(self, username=None, password=None, enableColumnarResult=None,):
         self.username = username
         self.password = password
+        self.enableColumnarResult = enableColumnarResult
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -659,6 +661,11 @@ class OpenSessionReq(object):
                     self.password = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
                 else:
                     iprot.skip(ftype)
+            elif fid == 3:
+                if ftype == TType.BOOL:
+                    self.enableColumnarResult = iprot.readBool()
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -677,6 +684,10 @@ class OpenSessionReq(object):
             oprot.writeFieldBegin('password', TType.STRING, 2)
             oprot.writeString(self.password.encode('utf-8') if sys.version_info[0] == 2 else self.password)
             oprot.writeFieldEnd()
+        if self.enableColumnarResult is not None:
+            oprot.writeFieldBegin('enableColumnarResult', TType.BOOL, 3)
+            oprot.writeBool(self.enableColumnarResult)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -700,13 +711,15 @@ class OpenSessionResp(object):
     Attributes:
      - status
      - sessionId
+     - columnarResult
 
     """
 
 
-    def __init__(self, status=None, sessionId=None,):
+    def __init__(self, status=None, sessionId=None, columnarResult=None,):
         self.status = status
         self.sessionId = sessionId
+        self.columnarResult = columnarResult
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -728,6 +741,11 @@ class OpenSessionResp(object):
                     self.sessionId = iprot.readI64()
                 else:
                     iprot.skip(ftype)
+            elif fid == 3:
+                if ftype == TType.BOOL:
+                    self.columnarResult = iprot.readBool()
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -746,6 +764,10 @@ class OpenSessionResp(object):
             oprot.writeFieldBegin('sessionId', TType.I64, 2)
             oprot.writeI64(self.sessionId)
             oprot.writeFieldEnd()
+        if self.columnarResult is not None:
+            oprot.writeFieldBegin('columnarResult', TType.BOOL, 3)
+            oprot.writeBool(self.columnarResult)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -3861,14 +3883,16 @@ class ExecuteSqlReq(object):
      - sessionId
      - statement
      - remoteSession
+     - fetchSize
 
     """
 
 
-    def __init__(self, sessionId=None, statement=None, remoteSession=None,):
+    def __init__(self, sessionId=None, statement=None, remoteSession=None, fetchSize=None,):
         self.sessionId = sessionId
         self.statement = statement
         self.remoteSession = remoteSession
+        self.fetchSize = fetchSize
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -3894,6 +3918,11 @@ class ExecuteSqlReq(object):
                     self.remoteSession = iprot.readBool()
                 else:
                     iprot.skip(ftype)
+            elif fid == 4:
+                if ftype == TType.I32:
+                    self.fetchSize = iprot.readI32()
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -3916,6 +3945,10 @@ class ExecuteSqlReq(object):
             oprot.writeFieldBegin('remoteSession', TType.BOOL, 3)
             oprot.writeBool(self.remoteSession)
             oprot.writeFieldEnd()
+        if self.fetchSize is not None:
+            oprot.writeFieldBegin('fetchSize', TType.I32, 4)
+            oprot.writeI32(self.fetchSize)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -3974,11 +4007,14 @@ class ExecuteSqlResp(object):
      - usernames
      - userTypes
      - auths
+     - queryId
+     - hasMoreResults
+     - queryDataSetV3
 
     """
 
 
-    def __init__(self, status=None, type=None, paths=None, tagsList=None, dataTypeList=None, queryDataSet=None, keys=None, valuesList=None, replicaNum=None, pointsNum=None, aggregateType=None, parseErrorMsg=None, limit=None, offset=None, orderByPath=None, ascending=None, iginxInfos=None, storageEngineInfos=None, metaStorageInfos=None, localMetaStorageInfo=None, registerTaskInfos=None, jobId=None, jobState=None, jobStateMap=None, jobYamlPath=None, configs=None, loadCsvPath=None, sessionIDList=None, rules=None, UDFModulePath=None, usernames=None, userTypes=None, auths=None,):
+    def __init__(self, status=None, type=None, paths=None, tagsList=None, dataTypeList=None, queryDataSet=None, keys=None, valuesList=None, replicaNum=None, pointsNum=None, aggregateType=None, parseErrorMsg=None, limit=None, offset=None, orderByPath=None, ascending=None, iginxInfos=None, storageEngineInfos=None, metaStorageInfos=None, localMetaStorageInfo=None, registerTaskInfos=None, jobId=None, jobState=None, jobStateMap=None, jobYamlPath=None, configs=None, loadCsvPath=None, sessionIDList=None, rules=None, UDFModulePath=None, usernames=None, userTypes=None, auths=None, queryId=None, hasMoreResults=None, queryDataSetV3=None,):
         self.status = status
         self.type = type
         self.paths = paths
@@ -4012,6 +4048,9 @@ class ExecuteSqlResp(object):
         self.usernames = usernames
         self.userTypes = userTypes
         self.auths = auths
+        self.queryId = queryId
+        self.hasMoreResults = hasMoreResults
+        self.queryDataSetV3 = queryDataSetV3
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -4283,6 +4322,22 @@ class ExecuteSqlResp(object):
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
+            elif fid == 34:
+                if ftype == TType.I64:
+                    self.queryId = iprot.readI64()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 35:
+                if ftype == TType.BOOL:
+                    self.hasMoreResults = iprot.readBool()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 36:
+                if ftype == TType.STRUCT:
+                    self.queryDataSetV3 = QueryDataSetV3()
+                    self.queryDataSetV3.read(iprot)
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -4480,6 +4535,18 @@ class ExecuteSqlResp(object):
                 oprot.writeSetEnd()
             oprot.writeListEnd()
             oprot.writeFieldEnd()
+        if self.queryId is not None:
+            oprot.writeFieldBegin('queryId', TType.I64, 34)
+            oprot.writeI64(self.queryId)
+            oprot.writeFieldEnd()
+        if self.hasMoreResults is not None:
+            oprot.writeFieldBegin('hasMoreResults', TType.BOOL, 35)
+            oprot.writeBool(self.hasMoreResults)
+            oprot.writeFieldEnd()
+        if self.queryDataSetV3 is not None:
+            oprot.writeFieldBegin('queryDataSetV3', TType.STRUCT, 36)
+            self.queryDataSetV3.write(oprot)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -5632,11 +5699,12 @@ class ExecuteStatementResp(object):
      - warningMsg
      - exportStreamDir
      - exportCSV
+     - queryDataSetV3
 
     """
 
 
-    def __init__(self, status=None, type=None, queryId=None, columns=None, tagsList=None, dataTypeList=None, queryDataSet=None, warningMsg=None, exportStreamDir=None, exportCSV=None,):
+    def __init__(self, status=None, type=None, queryId=None, columns=None, tagsList=None, dataTypeList=None, queryDataSet=None, warningMsg=None, exportStreamDir=None, exportCSV=None, queryDataSetV3=None,):
         self.status = status
         self.type = type
         self.queryId = queryId
@@ -5647,6 +5715,7 @@ class ExecuteStatementResp(object):
         self.warningMsg = warningMsg
         self.exportStreamDir = exportStreamDir
         self.exportCSV = exportCSV
+        self.queryDataSetV3 = queryDataSetV3
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -5731,6 +5800,12 @@ class ExecuteStatementResp(object):
                     self.exportCSV.read(iprot)
                 else:
                     iprot.skip(ftype)
+            elif fid == 11:
+                if ftype == TType.STRUCT:
+                    self.queryDataSetV3 = QueryDataSetV3()
+                    self.queryDataSetV3.read(iprot)
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -5794,6 +5869,10 @@ class ExecuteStatementResp(object):
             oprot.writeFieldBegin('exportCSV', TType.STRUCT, 10)
             self.exportCSV.write(oprot)
             oprot.writeFieldEnd()
+        if self.queryDataSetV3 is not None:
+            oprot.writeFieldBegin('queryDataSetV3', TType.STRUCT, 11)
+            self.queryDataSetV3.write(oprot)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -6041,6 +6120,118 @@ class QueryDataSetV2(object):
         return not (self == other)
 
 
+class QueryDataSetV3(object):
+    """
+    Attributes:
+     - rowCount
+     - keys
+     - columns
+     - bitmaps
+
+    """
+
+
+    def __init__(self, rowCount=None, keys=None, columns=None, bitmaps=None,):
+        self.rowCount = rowCount
+        self.keys = keys
+        self.columns = columns
+        self.bitmaps = bitmaps
+
+    def read(self, iprot):
+        if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
+            iprot._fast_decode(self, iprot, [self.__class__, self.thrift_spec])
+            return
+        iprot.readStructBegin()
+        while True:
+            (fname, ftype, fid) = iprot.readFieldBegin()
+            if ftype == TType.STOP:
+                break
+            if fid == 1:
+                if ftype == TType.I32:
+                    self.rowCount = iprot.readI32()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 2:
+                if ftype == TType.STRING:
+                    self.keys = iprot.readBinary()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 3:
+                if ftype == TType.LIST:
+                    self.columns = []
+                    (_etype796, _size793) = iprot.readListBegin()
+                    for _i797 in range(_size793):
+                        _elem798 = iprot.readBinary()
+                        self.columns.append(_elem798)
+                    iprot.readListEnd()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 4:
+                if ftype == TType.LIST:
+                    self.bitmaps = []
+                    (_etype802, _size799) = iprot.readListBegin()
+                    for _i803 in range(_size799):
+                        _elem804 = iprot.readBinary()
+                        self.bitmaps.append(_elem804)
+                    iprot.readListEnd()
+                else:
+                    iprot.skip(ftype)
+            else:
+                iprot.skip(ftype)
+            iprot.readFieldEnd()
+        iprot.readStructEnd()
+
+    def write(self, oprot):
+        if oprot._fast_encode is not None and self.thrift_spec is not None:
+            oprot.trans.write(oprot._fast_encode(self, [self.__class__, self.thrift_spec]))
+            return
+        oprot.writeStructBegin('QueryDataSetV3')
+        if self.rowCount is not None:
+            oprot.writeFieldBegin('rowCount', TType.I32, 1)
+            oprot.writeI32(self.rowCount)
+            oprot.writeFieldEnd()
+        if self.keys is not None:
+            oprot.writeFieldBegin('keys', TType.STRING, 2)
+            oprot.writeBinary(self.keys)
+            oprot.writeFieldEnd()
+        if self.columns is not None:
+            oprot.writeFieldBegin('columns', TType.LIST, 3)
+            oprot.writeListBegin(TType.STRING, len(self.columns))
+            for iter805 in self.columns:
+                oprot.writeBinary(iter805)
+            oprot.writeListEnd()
+            oprot.writeFieldEnd()
+        if self.bitmaps is not None:
+            oprot.writeFieldBegin('bitmaps', TType.LIST, 4)
+            oprot.writeListBegin(TType.STRING, len(self.bitmaps))
+            for iter806 in self.bitmaps:
+                oprot.writeBinary(iter806)
+            oprot.writeListEnd()
+            oprot.writeFieldEnd()
+        oprot.writeFieldStop()
+        oprot.writeStructEnd()
+
+    def validate(self):
+        if self.rowCount is None:
+            raise TProtocolException(message='Required field rowCount is unset!')
+        if self.columns is None:
+            raise TProtocolException(message='Required field columns is unset!')
+        if self.bitmaps is None:
+            raise TProtocolException(message='Required field bitmaps is unset!')
+        return
+
+    def __repr__(self):
+        L = ['%s=%r' % (key, value)
+             for key, value in self.__dict__.items()]
+        return '%s(%s)' % (self.__class__.__name__, ', '.join(L))
+
+    def __eq__(self, other):
+        return isinstance(other, self.__class__) and self.__dict__ == other.__dict__
+
+    def __ne__(self, other):
+        return not (self == other)
+
+
 class CloseStatementReq(object):
     """
     Attributes:
@@ -6213,14 +6404,16 @@ class FetchResultsResp(object):
      - status
      - hasMoreResults
      - queryDataSet
+     - queryDataSetV3
 
     """
 
 
-    def __init__(self, status=None, hasMoreResults=None, queryDataSet=None,):
+    def __init__(self, status=None, hasMoreResults=None, queryDataSet=None, queryDataSetV3=None,):
         self.status = status
         self.hasMoreResults = hasMoreResults
         self.queryDataSet = queryDataSet
+        self.queryDataSetV3 = queryDataSetV3
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -6248,6 +6441,12 @@ class FetchResultsResp(object):
                     self.queryDataSet.read(iprot)
                 else:
                     iprot.skip(ftype)
+            elif fid == 4:
+                if ftype == TType.STRUCT:
+                    self.queryDataSetV3 = QueryDataSetV3()
+                    self.queryDataSetV3.read(iprot)
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -6270,6 +6469,10 @@ class FetchResultsResp(object):
             oprot.writeFieldBegin('queryDataSet', TType.STRUCT, 3)
             self.queryDataSet.write(oprot)
             oprot.writeFieldEnd()
+        if self.queryDataSetV3 is not None:
+            oprot.writeFieldBegin('queryDataSetV3', TType.STRUCT, 4)
+            self.queryDataSetV3.write(oprot)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -6412,10 +6615,10 @@ class LoadCSVResp(object):
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.columns = []
-                    (_etype796, _size793) = iprot.readListBegin()
-                    for _i797 in range(_size793):
-                        _elem798 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
-                        self.columns.append(_elem798)
+                    (_etype810, _size807) = iprot.readListBegin()
+                    for _i811 in range(_size807):
+                        _elem812 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
+                        self.columns.append(_elem812)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -6446,8 +6649,8 @@ class LoadCSVResp(object):
         if self.columns is not None:
             oprot.writeFieldBegin('columns', TType.LIST, 2)
             oprot.writeListBegin(TType.STRING, len(self.columns))
-            for iter799 in self.columns:
-                oprot.writeString(iter799.encode('utf-8') if sys.version_info[0] == 2 else iter799)
+            for iter813 in self.columns:
+                oprot.writeString(iter813.encode('utf-8') if sys.version_info[0] == 2 else iter813)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.recordsNum is not None:
@@ -6702,10 +6905,10 @@ class TaskInfo(object):
             elif fid == 4:
                 if ftype == TType.LIST:
                     self.sqlList = []
-                    (_etype803, _size800) = iprot.readListBegin()
-                    for _i804 in range(_size800):
-                        _elem805 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
-                        self.sqlList.append(_elem805)
+                    (_etype817, _size814) = iprot.readListBegin()
+                    for _i818 in range(_size814):
+                        _elem819 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
+                        self.sqlList.append(_elem819)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -6739,8 +6942,8 @@ class TaskInfo(object):
         if self.sqlList is not None:
             oprot.writeFieldBegin('sqlList', TType.LIST, 4)
             oprot.writeListBegin(TType.STRING, len(self.sqlList))
-            for iter806 in self.sqlList:
-                oprot.writeString(iter806.encode('utf-8') if sys.version_info[0] == 2 else iter806)
+            for iter820 in self.sqlList:
+                oprot.writeString(iter820.encode('utf-8') if sys.version_info[0] == 2 else iter820)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.pyTaskName is not None:
@@ -6809,11 +7012,11 @@ class CommitTransformJobReq(object):
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.taskList = []
-                    (_etype810, _size807) = iprot.readListBegin()
-                    for _i811 in range(_size807):
-                        _elem812 = TaskInfo()
-                        _elem812.read(iprot)
-                        self.taskList.append(_elem812)
+                    (_etype824, _size821) = iprot.readListBegin()
+                    for _i825 in range(_size821):
+                        _elem826 = TaskInfo()
+                        _elem826.read(iprot)
+                        self.taskList.append(_elem826)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -6860,8 +7063,8 @@ class CommitTransformJobReq(object):
         if self.taskList is not None:
             oprot.writeFieldBegin('taskList', TType.LIST, 2)
             oprot.writeListBegin(TType.STRUCT, len(self.taskList))
-            for iter813 in self.taskList:
-                iter813.write(oprot)
+            for iter827 in self.taskList:
+                iter827.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.exportType is not None:
@@ -7024,10 +7227,10 @@ class Email(object):
             elif fid == 6:
                 if ftype == TType.LIST:
                     self.toAddrs = []
-                    (_etype817, _size814) = iprot.readListBegin()
-                    for _i818 in range(_size814):
-                        _elem819 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
-                        self.toAddrs.append(_elem819)
+                    (_etype831, _size828) = iprot.readListBegin()
+                    for _i832 in range(_size828):
+                        _elem833 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
+                        self.toAddrs.append(_elem833)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -7064,8 +7267,8 @@ class Email(object):
         if self.toAddrs is not None:
             oprot.writeFieldBegin('toAddrs', TType.LIST, 6)
             oprot.writeListBegin(TType.STRING, len(self.toAddrs))
-            for iter820 in self.toAddrs:
-                oprot.writeString(iter820.encode('utf-8') if sys.version_info[0] == 2 else iter820)
+            for iter834 in self.toAddrs:
+                oprot.writeString(iter834.encode('utf-8') if sys.version_info[0] == 2 else iter834)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -7417,16 +7620,16 @@ class ShowEligibleJobResp(object):
             elif fid == 2:
                 if ftype == TType.MAP:
                     self.jobStateMap = {}
-                    (_ktype822, _vtype823, _size821) = iprot.readMapBegin()
-                    for _i825 in range(_size821):
-                        _key826 = iprot.readI32()
-                        _val827 = []
-                        (_etype831, _size828) = iprot.readListBegin()
-                        for _i832 in range(_size828):
-                            _elem833 = iprot.readI64()
-                            _val827.append(_elem833)
+                    (_ktype836, _vtype837, _size835) = iprot.readMapBegin()
+                    for _i839 in range(_size835):
+                        _key840 = iprot.readI32()
+                        _val841 = []
+                        (_etype845, _size842) = iprot.readListBegin()
+                        for _i846 in range(_size842):
+                            _elem847 = iprot.readI64()
+                            _val841.append(_elem847)
                         iprot.readListEnd()
-                        self.jobStateMap[_key826] = _val827
+                        self.jobStateMap[_key840] = _val841
                     iprot.readMapEnd()
                 else:
                     iprot.skip(ftype)
@@ -7447,11 +7650,11 @@ class ShowEligibleJobResp(object):
         if self.jobStateMap is not None:
             oprot.writeFieldBegin('jobStateMap', TType.MAP, 2)
             oprot.writeMapBegin(TType.I32, TType.LIST, len(self.jobStateMap))
-            for kiter834, viter835 in self.jobStateMap.items():
-                oprot.writeI32(kiter834)
-                oprot.writeListBegin(TType.I64, len(viter835))
-                for iter836 in viter835:
-                    oprot.writeI64(iter836)
+            for kiter848, viter849 in self.jobStateMap.items():
+                oprot.writeI32(kiter848)
+                oprot.writeListBegin(TType.I64, len(viter849))
+                for iter850 in viter849:
+                    oprot.writeI64(iter850)
                 oprot.writeListEnd()
             oprot.writeMapEnd()
             oprot.writeFieldEnd()
@@ -7592,21 +7795,21 @@ class RegisterTaskReq(object):
             elif fid == 3:
                 if ftype == TType.LIST:
                     self.UDFClassPairs = []
-                    (_etype840, _size837) = iprot.readListBegin()
-                    for _i841 in range(_size837):
-                        _elem842 = UDFClassPair()
-                        _elem842.read(iprot)
-                        self.UDFClassPairs.append(_elem842)
+                    (_etype854, _size851) = iprot.readListBegin()
+                    for _i855 in range(_size851):
+                        _elem856 = UDFClassPair()
+                        _elem856.read(iprot)
+                        self.UDFClassPairs.append(_elem856)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
             elif fid == 4:
                 if ftype == TType.LIST:
                     self.types = []
-                    (_etype846, _size843) = iprot.readListBegin()
-                    for _i847 in range(_size843):
-                        _elem848 = iprot.readI32()
-                        self.types.append(_elem848)
+                    (_etype860, _size857) = iprot.readListBegin()
+                    for _i861 in range(_size857):
+                        _elem862 = iprot.readI32()
+                        self.types.append(_elem862)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -7641,15 +7844,15 @@ class RegisterTaskReq(object):
         if self.UDFClassPairs is not None:
             oprot.writeFieldBegin('UDFClassPairs', TType.LIST, 3)
             oprot.writeListBegin(TType.STRUCT, len(self.UDFClassPairs))
-            for iter849 in self.UDFClassPairs:
-                iter849.write(oprot)
+            for iter863 in self.UDFClassPairs:
+                iter863.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.types is not None:
             oprot.writeFieldBegin('types', TType.LIST, 4)
             oprot.writeListBegin(TType.I32, len(self.types))
-            for iter850 in self.types:
-                oprot.writeI32(iter850)
+            for iter864 in self.types:
+                oprot.writeI32(iter864)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.moduleFile is not None:
@@ -7939,11 +8142,11 @@ class RegisterTaskInfo(object):
             elif fid == 4:
                 if ftype == TType.LIST:
                     self.ipPortPair = []
-                    (_etype854, _size851) = iprot.readListBegin()
-                    for _i855 in range(_size851):
-                        _elem856 = IpPortPair()
-                        _elem856.read(iprot)
-                        self.ipPortPair.append(_elem856)
+                    (_etype868, _size865) = iprot.readListBegin()
+                    for _i869 in range(_size865):
+                        _elem870 = IpPortPair()
+                        _elem870.read(iprot)
+                        self.ipPortPair.append(_elem870)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -7977,8 +8180,8 @@ class RegisterTaskInfo(object):
         if self.ipPortPair is not None:
             oprot.writeFieldBegin('ipPortPair', TType.LIST, 4)
             oprot.writeListBegin(TType.STRUCT, len(self.ipPortPair))
-            for iter857 in self.ipPortPair:
-                iter857.write(oprot)
+            for iter871 in self.ipPortPair:
+                iter871.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.type is not None:
@@ -8044,11 +8247,11 @@ class GetRegisterTaskInfoResp(object):
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.registerTaskInfoList = []
-                    (_etype861, _size858) = iprot.readListBegin()
-                    for _i862 in range(_size858):
-                        _elem863 = RegisterTaskInfo()
-                        _elem863.read(iprot)
-                        self.registerTaskInfoList.append(_elem863)
+                    (_etype875, _size872) = iprot.readListBegin()
+                    for _i876 in range(_size872):
+                        _elem877 = RegisterTaskInfo()
+                        _elem877.read(iprot)
+                        self.registerTaskInfoList.append(_elem877)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -8069,8 +8272,8 @@ class GetRegisterTaskInfoResp(object):
         if self.registerTaskInfoList is not None:
             oprot.writeFieldBegin('registerTaskInfoList', TType.LIST, 2)
             oprot.writeListBegin(TType.STRUCT, len(self.registerTaskInfoList))
-            for iter864 in self.registerTaskInfoList:
-                iter864.write(oprot)
+            for iter878 in self.registerTaskInfoList:
+                iter878.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -8131,10 +8334,10 @@ class CurveMatchReq(object):
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.paths = []
-                    (_etype868, _size865) = iprot.readListBegin()
-                    for _i869 in range(_size865):
-                        _elem870 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
-                        self.paths.append(_elem870)
+                    (_etype882, _size879) = iprot.readListBegin()
+                    for _i883 in range(_size879):
+                        _elem884 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
+                        self.paths.append(_elem884)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -8151,10 +8354,10 @@ class CurveMatchReq(object):
             elif fid == 5:
                 if ftype == TType.LIST:
                     self.curveQuery = []
-                    (_etype874, _size871) = iprot.readListBegin()
-                    for _i875 in range(_size871):
-                        _elem876 = iprot.readDouble()
-                        self.curveQuery.append(_elem876)
+                    (_etype888, _size885) = iprot.readListBegin()
+                    for _i889 in range(_size885):
+                        _elem890 = iprot.readDouble()
+                        self.curveQuery.append(_elem890)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -8180,8 +8383,8 @@ class CurveMatchReq(object):
         if self.paths is not None:
             oprot.writeFieldBegin('paths', TType.LIST, 2)
             oprot.writeListBegin(TType.STRING, len(self.paths))
-            for iter877 in self.paths:
-                oprot.writeString(iter877.encode('utf-8') if sys.version_info[0] == 2 else iter877)
+            for iter891 in self.paths:
+                oprot.writeString(iter891.encode('utf-8') if sys.version_info[0] == 2 else iter891)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.startKey is not None:
@@ -8195,8 +8398,8 @@ class CurveMatchReq(object):
         if self.curveQuery is not None:
             oprot.writeFieldBegin('curveQuery', TType.LIST, 5)
             oprot.writeListBegin(TType.DOUBLE, len(self.curveQuery))
-            for iter878 in self.curveQuery:
-                oprot.writeDouble(iter878)
+            for iter892 in self.curveQuery:
+                oprot.writeDouble(iter892)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.curveUnit is not None:
@@ -8695,33 +8898,33 @@ class GetMetaResp(object):
             if fid == 1:
                 if ftype == TType.LIST:
                     self.fragments = []
-                    (_etype882, _size879) = iprot.readListBegin()
-                    for _i883 in range(_size879):
-                        _elem884 = Fragment()
-                        _elem884.read(iprot)
-                        self.fragments.append(_elem884)
+                    (_etype896, _size893) = iprot.readListBegin()
+                    for _i897 in range(_size893):
+                        _elem898 = Fragment()
+                        _elem898.read(iprot)
+                        self.fragments.append(_elem898)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.storages = []
-                    (_etype888, _size885) = iprot.readListBegin()
-                    for _i889 in range(_size885):
-                        _elem890 = Storage()
-                        _elem890.read(iprot)
-                        self.storages.append(_elem890)
+                    (_etype902, _size899) = iprot.readListBegin()
+                    for _i903 in range(_size899):
+                        _elem904 = Storage()
+                        _elem904.read(iprot)
+                        self.storages.append(_elem904)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
             elif fid == 3:
                 if ftype == TType.LIST:
                     self.storageUnits = []
-                    (_etype894, _size891) = iprot.readListBegin()
-                    for _i895 in range(_size891):
-                        _elem896 = StorageUnit()
-                        _elem896.read(iprot)
-                        self.storageUnits.append(_elem896)
+                    (_etype908, _size905) = iprot.readListBegin()
+                    for _i909 in range(_size905):
+                        _elem910 = StorageUnit()
+                        _elem910.read(iprot)
+                        self.storageUnits.append(_elem910)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -8738,22 +8941,22 @@ class GetMetaResp(object):
         if self.fragments is not None:
             oprot.writeFieldBegin('fragments', TType.LIST, 1)
             oprot.writeListBegin(TType.STRUCT, len(self.fragments))
-            for iter897 in self.fragments:
-                iter897.write(oprot)
+            for iter911 in self.fragments:
+                iter911.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.storages is not None:
             oprot.writeFieldBegin('storages', TType.LIST, 2)
             oprot.writeListBegin(TType.STRUCT, len(self.storages))
-            for iter898 in self.storages:
-                iter898.write(oprot)
+            for iter912 in self.storages:
+                iter912.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.storageUnits is not None:
             oprot.writeFieldBegin('storageUnits', TType.LIST, 3)
             oprot.writeListBegin(TType.STRUCT, len(self.storageUnits))
-            for iter899 in self.storageUnits:
-                iter899.write(oprot)
+            for iter913 in self.storageUnits:
+                iter913.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -9051,11 +9254,11 @@ class RemoveStorageEngineReq(object):
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.removedStorageEngineInfoList = []
-                    (_etype903, _size900) = iprot.readListBegin()
-                    for _i904 in range(_size900):
-                        _elem905 = RemovedStorageEngineInfo()
-                        _elem905.read(iprot)
-                        self.removedStorageEngineInfoList.append(_elem905)
+                    (_etype917, _size914) = iprot.readListBegin()
+                    for _i918 in range(_size914):
+                        _elem919 = RemovedStorageEngineInfo()
+                        _elem919.read(iprot)
+                        self.removedStorageEngineInfoList.append(_elem919)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -9076,8 +9279,8 @@ class RemoveStorageEngineReq(object):
         if self.removedStorageEngineInfoList is not None:
             oprot.writeFieldBegin('removedStorageEngineInfoList', TType.LIST, 2)
             oprot.writeListBegin(TType.STRUCT, len(self.removedStorageEngineInfoList))
-            for iter906 in self.removedStorageEngineInfoList:
-                iter906.write(oprot)
+            for iter920 in self.removedStorageEngineInfoList:
+                iter920.write(oprot)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -9192,10 +9395,10 @@ class ShowSessionIDResp(object):
             elif fid == 2:
                 if ftype == TType.LIST:
                     self.sessionIDList = []
-                    (_etype910, _size907) = iprot.readListBegin()
-                    for _i911 in range(_size907):
-                        _elem912 = iprot.readI64()
-                        self.sessionIDList.append(_elem912)
+                    (_etype924, _size921) = iprot.readListBegin()
+                    for _i925 in range(_size921):
+                        _elem926 = iprot.readI64()
+                        self.sessionIDList.append(_elem926)
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
@@ -9216,8 +9419,8 @@ class ShowSessionIDResp(object):
         if self.sessionIDList is not None:
             oprot.writeFieldBegin('sessionIDList', TType.LIST, 2)
             oprot.writeListBegin(TType.I64, len(self.sessionIDList))
-            for iter913 in self.sessionIDList:
-                oprot.writeI64(iter913)
+            for iter927 in self.sessionIDList:
+                oprot.writeI64(iter927)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -9332,11 +9535,11 @@ class ShowRulesResp(object):
             elif fid == 2:
                 if ftype == TType.MAP:
                     self.rules = {}
-                    (_ktype915, _vtype916, _size914) = iprot.readMapBegin()
-                    for _i918 in range(_size914):
-                        _key919 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
-                        _val920 = iprot.readBool()
-                        self.rules[_key919] = _val920
+                    (_ktype929, _vtype930, _size928) = iprot.readMapBegin()
+                    for _i932 in range(_size928):
+                        _key933 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
+                        _val934 = iprot.readBool()
+                        self.rules[_key933] = _val934
                     iprot.readMapEnd()
                 else:
                     iprot.skip(ftype)
@@ -9357,9 +9560,9 @@ class ShowRulesResp(object):
         if self.rules is not None:
             oprot.writeFieldBegin('rules', TType.MAP, 2)
             oprot.writeMapBegin(TType.STRING, TType.BOOL, len(self.rules))
-            for kiter921, viter922 in self.rules.items():
-                oprot.writeString(kiter921.encode('utf-8') if sys.version_info[0] == 2 else kiter921)
-                oprot.writeBool(viter922)
+            for kiter935, viter936 in self.rules.items():
+                oprot.writeString(kiter935.encode('utf-8') if sys.version_info[0] == 2 else kiter935)
+                oprot.writeBool(viter936)
             oprot.writeMapEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -9414,11 +9617,11 @@ class SetRulesReq(object):
             elif fid == 2:
                 if ftype == TType.MAP:
                     self.rulesChange = {}
-                    (_ktype924, _vtype925, _size923) = iprot.readMapBegin()
-                    for _i927 in range(_size923):
-                        _key928 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
-                        _val929 = iprot.readBool()
-                        self.rulesChange[_key928] = _val929
+                    (_ktype938, _vtype939, _size937) = iprot.readMapBegin()
+                    for _i941 in range(_size937):
+                        _key942 = iprot.readString().decode('utf-8', errors='replace') if sys.version_info[0] == 2 else iprot.readString()
+                        _val943 = iprot.readBool()
+                        self.rulesChange[_key942] = _val943
                     iprot.readMapEnd()
                 else:
                     iprot.skip(ftype)
@@ -9439,9 +9642,9 @@ class SetRulesReq(object):
         if self.rulesChange is not None:
             oprot.writeFieldBegin('rulesChange', TType.MAP, 2)
             oprot.writeMapBegin(TType.STRING, TType.BOOL, len(self.rulesChange))
-            for kiter930, viter931 in self.rulesChange.items():
-                oprot.writeString(kiter930.encode('utf-8') if sys.version_info[0] == 2 else kiter930)
-                oprot.writeBool(viter931)
+            for kiter944, viter945 in self.rulesChange.items():
+                oprot.writeString(kiter944.encode('utf-8') if sys.version_info[0] == 2 else kiter944)
+                oprot.writeBool(viter945)
             oprot.writeMapEnd()
             oprot.writeFieldEnd()
         oprot.writeFieldStop()
@@ -9713,12 +9916,14 @@ OpenSessionReq.thrift_spec = (
     None,  # 0
     (1, TType.STRING, 'username', 'UTF8', None, ),  # 1
     (2, TType.STRING, 'password', 'UTF8', None, ),  # 2
+    (3, TType.BOOL, 'enableColumnarResult', None, None, ),  # 3
 )
 all_structs.append(OpenSessionResp)
 OpenSessionResp.thrift_spec = (
     None,  # 0
     (1, TType.STRUCT, 'status', [Status, None], None, ),  # 1
     (2, TType.I64, 'sessionId', None, None, ),  # 2
+    (3, TType.BOOL, 'columnarResult', None, None, ),  # 3
 )
 all_structs.append(CloseSessionReq)
 CloseSessionReq.thrift_spec = (
@@ -9933,6 +10138,7 @@ ExecuteSqlReq.thrift_spec = (
     (1, TType.I64, 'sessionId', None, None, ),  # 1
     (2, TType.STRING, 'statement', 'UTF8', None, ),  # 2
     (3, TType.BOOL, 'remoteSession', None, None, ),  # 3
+    (4, TType.I32, 'fetchSize', None, None, ),  # 4
 )
 all_structs.append(ExecuteSqlResp)
 ExecuteSqlResp.thrift_spec = (
@@ -9970,6 +10176,9 @@ ExecuteSqlResp.thrift_spec = (
     (31, TType.LIST, 'usernames', (TType.STRING, 'UTF8', False), None, ),  # 31
     (32, TType.LIST, 'userTypes', (TType.I32, None, False), None, ),  # 32
     (33, TType.LIST, 'auths', (TType.SET, (TType.I32, None, False), False), None, ),  # 33
+    (34, TType.I64, 'queryId', None, None, ),  # 34
+    (35, TType.BOOL, 'hasMoreResults', None, None, ),  # 35
+    (36, TType.STRUCT, 'queryDataSetV3', [QueryDataSetV3, None], None, ),  # 36
 )
 all_structs.append(UpdateUserReq)
 UpdateUserReq.thrift_spec = (
@@ -10071,6 +10280,7 @@ ExecuteStatementResp.thrift_spec = (
     (8, TType.STRING, 'warningMsg', 'UTF8', None, ),  # 8
     (9, TType.STRING, 'exportStreamDir', 'UTF8', None, ),  # 9
     (10, TType.STRUCT, 'exportCSV', [ExportCSV, None], None, ),  # 10
+    (11, TType.STRUCT, 'queryDataSetV3', [QueryDataSetV3, None], None, ),  # 11
 )
 all_structs.append(ExportCSV)
 ExportCSV.thrift_spec = (
@@ -10089,6 +10299,14 @@ QueryDataSetV2.thrift_spec = (
     (1, TType.LIST, 'valuesList', (TType.STRING, 'BINARY', False), None, ),  # 1
     (2, TType.LIST, 'bitmapList', (TType.STRING, 'BINARY', False), None, ),  # 2
 )
+all_structs.append(QueryDataSetV3)
+QueryDataSetV3.thrift_spec = (
+    None,  # 0
+    (1, TType.I32, 'rowCount', None, None, ),  # 1
+    (2, TType.STRING, 'keys', 'BINARY', None, ),  # 2
+    (3, TType.LIST, 'columns', (TType.STRING, 'BINARY', False), None, ),  # 3
+    (4, TType.LIST, 'bitmaps', (TType.STRING, 'BINARY', False), None, ),  # 4
+)
 all_structs.append(CloseStatementReq)
 CloseStatementReq.thrift_spec = (
     None,  # 0
@@ -10109,6 +10327,7 @@ FetchResultsResp.thrift_spec = (
     (1, TType.STRUCT, 'status', [Status, None], None, ),  # 1
     (2, TType.BOOL, 'hasMoreResults', None, None, ),  # 2
     (3, TType.STRUCT, 'queryDataSet', [QueryDataSetV2, None], None, ),  # 3
+    (4, TType.STRUCT, 'queryDataSetV3', [QueryDataSetV3, None], None, ),  # 4
 )
 all_structs.append(LoadCSVReq)
 LoadCSVReq.thrift_spec = (
@@ -54,6 +54,26 @@ def get_values_by_data_type(bytes, types):
     return values
 
 
+def value_to_bytes(value, type):
+    """将单个值转换为与 BytesParser.get_bytes_from_types 相同格式的字节，空值返回 b''"""
+    if value is None:
+        return b''
+    if type == DataType.BOOLEAN:
+        return struct.pack(">?", value)
+    elif type == DataType.INTEGER:
+        return struct.pack(">i", value)
+    elif type == DataType.LONG:
+        return struct.pack(">q", value)
+    elif type == DataType.FLOAT:
+        return struct.pack(">f", value)
+    elif type == DataType.DOUBLE:
+        return struct.pack(">d", value)
+    elif type == DataType.BINARY:
+        return value
+    else:
+        raise RuntimeError("unknown data type " + type)
+
+
 def row_values_to_bytes(values, types):
     format_str_list = [">"]
     values_to_be_packed = []
@@ -0,0 +1,272 @@
+#
+# IGinX - the polystore system with high performance
+# Copyright (C) Tsinghua University
+# TSIGinX@gmail.com
+#
+# This program is free software; you can redistribute it and/or
+# modify it under the terms of the GNU Lesser General Public
+# License as published by the Free Software Foundation; either
+# version 3 of the License, or (at your option) any later version.
+#
+# This program is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+# Lesser General Public License for more details.
+#
+# You should have received a copy of the GNU Lesser General Public License
+# along with this program; if not, write to the Free Software Foundation,
+# Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+#
+
+"""
+列式结果集 QueryDataSetV3 的解码，与服务端 cn.edu.tsinghua.iginx.utils.ColumnarEncoding 的格式保持一致。
+"""
+
+import struct
+
+from .bitmap import Bitmap
+from .byte_utils import row_values_to_bytes, bitmap_to_bytes, timestamps_to_bytes, get_long_array, BytesParser
+from ..thrift.rpc.ttypes import DataType, QueryDataSet
+
+PLAIN = 0
+BIT_PACKED = 1
+GORILLA = 2
+DICTIONARY = 3
+
+_MASK64 = (1 << 64) - 1
+
+
+def _to_signed(value, bits):
+    value &= (1 << bits) - 1
+    if value >= 1 << (bits - 1):
+        value -= 1 << bits
+    return value
+
+
+class _BitInput(object):
+    """按位读取（高位在前），多字节整数为大端序"""
+
+    def __init__(self, data):
+        self.__data = data
+        self.__pos = 0
+
+    def read_bits(self, n):
+        result = 0
+        remaining = n
+        while remaining > 0:
+            b = self.__data[self.__pos >> 3]
+            available = 8 - (self.__pos & 7)
+            take = min(available, remaining)
+            chunk = (b >> (available - take)) & ((1 << take) - 1)
+            result = (result << take) | chunk
+            self.__pos += take
+            remaining -= take
+        return result
+
+    def read_byte(self):
+        return _to_signed(self.read_bits(8), 8)
+
+    def read_int(self):
+        return _to_signed(self.read_bits(32), 32)
+
+    def read_long(self):
+        return _to_signed(self.read_bits(64), 64)
+
+    def read_bytes(self, length):
+        self.__pos = (self.__pos + 7) & ~7
+        start = self.__pos >> 3
+        self.__pos += length * 8
+        return bytes(self.__data[start:start + length])
+
+
+def _read_packed(bit_input, size):
+    base = bit_input.read_long()
+    width = bit_input.read_byte()
+    return [_to_signed(base + bit_input.read_bits(width), 64) for _ in range(size)]
+
+
+def _plain_bits(data_type):
+    if data_type == DataType.BOOLEAN:
+        return 8
+    if data_type == DataType.INTEGER or data_type == DataType.FLOAT:
+        return 32
+    return 64
+
+
+def _from_floating_bits(bits, data_type):
+    if data_type == DataType.FLOAT:
+        return struct.unpack(">f", struct.pack(">I", bits & 0xFFFFFFFF))[0]
+    return struct.unpack(">d", struct.pack(">Q", bits & _MASK64))[0]
+
+
+def _read_gorilla(bit_input, size, data_type):
+    values = []
+    if size == 0:
+        return values
+    width = _plain_bits(data_type)
+    prev = bit_input.read_bits(width)
+    values.append(_from_floating_bits(prev, data_type))
+    prev_leading = 0
+    prev_trailing = 0
+    for _ in range(1, size):
+        if bit_input.read_bits(1):
+            if bit_input.read_bits(1):
+                prev_leading = bit_input.read_bits(6)
+                prev_trailing = width - prev_leading - (bit_input.read_bits(6) + 1)
+            length = width - prev_leading - prev_trailing
+            prev ^= bit_input.read_bits(length) << prev_trailing
+        values.append(_from_floating_bits(prev, data_type))
+    return values
+
+
+def _read_dictionary(bit_input, size):
+    entries = []
+    for _ in range(bit_input.read_int()):
+        entries.append(bit_input.read_bytes(bit_input.read_int()))
+    width = bit_input.read_byte()
+    return [entries[bit_input.read_bits(width)] for _ in range(size)]
+
+
+def _read_plain(bit_input, size, data_type):
+    values = []
+    for _ in range(size):
+        if data_type == DataType.BOOLEAN:
+            values.append(bit_input.read_byte() == 1)
+        elif data_type == DataType.INTEGER:
+            values.append(bit_input.read_int())
+        elif data_type == DataType.LONG:
+            values.append(bit_input.read_long())
+        elif data_type == DataType.FLOAT:
+            values.append(_from_floating_bits(bit_input.read_bits(32), data_type))
+        elif data_type == DataType.DOUBLE:
+            values.append(_from_floating_bits(bit_input.read_bits(64), data_type))
+        elif data_type == DataType.BINARY:
+            values.append(bit_input.read_bytes(bit_input.read_int()))
+        else:
+            raise RuntimeError("unknown data type " + str(data_type))
+    return values
+
+
+def _decode_column(data, bitmap, row_count, data_type):
+    size = 0
+    for i in range(row_count):
+        if bitmap.get(i):
+            size += 1
+    bit_input = _BitInput(data)
+    encoding = bit_input.read_byte()
+    if encoding == PLAIN:
+        values = _read_plain(bit_input, size, data_type)
+    elif encoding == BIT_PACKED:
+        values = _read_packed(bit_input, size)
+        if data_type == DataType.BOOLEAN:
+            values = [v != 0 for v in values]
+    elif encoding == GORILLA:
+        values = _read_gorilla(bit_input, size, data_type)
+    elif encoding == DICTIONARY:
+        values = _read_dictionary(bit_input, size)
+    else:
+        raise RuntimeError("unknown column encoding " + str(encoding))
+    column = []
+    index = 0
+    for i in range(row_count):
+        if bitmap.get(i):
+            column.append(values[index])
+            index += 1
+        else:
+            column.append(None)
+    return column
+
+
+def decode_keys(data_set):
+    """解码 key 列，结果没有 key 时返回 None"""
+    if data_set.keys is None:
+        return None
+    row_count = data_set.rowCount
+    if row_count == 0:
+        return []
+    bit_input = _BitInput(data_set.keys)
+    keys = [bit_input.read_long()]
+    for delta in _read_packed(bit_input, row_count - 1):
+        keys.append(_to_signed(keys[-1] + delta, 64))
+    return keys
+
+
+def decode_rows(data_set, types):
+    """
+    按行解码数据。结果含有 key 时，types 的第一项为 key 的类型，key 作为每行的第一列返回。
+    """
+    row_count = data_set.rowCount
+    keys = decode_keys(data_set)
+    column_types = types[1:] if keys is not None else types
+    columns = []
+    for j in range(len(data_set.columns)):
+        bitmap = Bitmap(row_count, bytearray(data_set.bitmaps[j]))
+        columns.append(_decode_column(bytearray(data_set.columns[j]), bitmap, row_count, column_types[j]))
+    rows = []
+    for i in range(row_count):
+        row = [keys[i]] if keys is not None else []
+        for column in columns:
+            row.append(column[i])
+        rows.append(row)
+    return rows
+
+
+def to_query_data_set(data_set, types):
+    """
+    将列式结果转换为按行编码的 QueryDataSet，types 只包含各列的类型，不含 key。
+    用于 execute_sql 这类直接返回响应的接口，调用方不需要关心会话是否开启了列式结果。
+    """
+    keys = decode_keys(data_set)
+    rows = decode_rows(data_set, [DataType.LONG] + list(types) if keys is not None else types)
+    values_list = []
+    bitmap_list = []
+    for row in rows:
+        values = row[1:] if keys is not None else row
+        values_list.append(row_values_to_bytes(values, types))
+        bitmap_list.append(_row_bitmap(values))
+    key_bytes = timestamps_to_bytes(keys) if keys is not None else b""
+    return QueryDataSet(keys=key_bytes, valuesList=values_list, bitmapList=bitmap_list)
+
+
+def _row_bitmap(values):
+    bitmap = Bitmap(len(values))
+    for j in range(len(values)):
+        if values[j] is not None:
+            bitmap.set(j)
+    return bitmap_to_bytes(bitmap.get_bytes())
+
+
+def _decode_row_pages(data_set, types):
+    """按位图解码按行编码的分页结果，空值为 None"""
+    rows = []
+    for values_buffer, bitmap_buffer in zip(data_set.valuesList, data_set.bitmapList):
+        bitmap = Bitmap(len(types), bitmap_buffer)
+        parser = BytesParser(values_buffer)
+        rows.append([parser.next(types[i]) if bitmap.get(i) else None for i in range(len(types))])
+    return rows
+
+
+def append_pages(data_set, pages, types, has_key):
+    """
+    将 fetchResults 分页拉取的结果追加到按行编码的 QueryDataSet 中，types 只包含各列的类型，不含 key。
+    pages 中每一项为一页的 (QueryDataSetV2, QueryDataSetV3)，按行编码的分页结果中 key 作为每行的第一列，追加时拆分到 keys 中。
+    """
+    page_types = [DataType.LONG] + list(types) if has_key else list(types)
+    keys = get_long_array(data_set.keys) if has_key else None
+    values_list = list(data_set.valuesList)
+    bitmap_list = list(data_set.bitmapList)
+    for row_page, columnar_page in pages:
+        if columnar_page is not None:
+            rows = decode_rows(columnar_page, page_types)
+        elif row_page is not None:
+            rows = _decode_row_pages(row_page, page_types)
+        else:
+            continue
+        for row in rows:
+            values = row[1:] if has_key else row
+            if has_key:
+                keys.append(row[0])
+            values_list.append(row_values_to_bytes(values, types))
+            bitmap_list.append(_row_bitmap(values))
+    key_bytes = timestamps_to_bytes(keys) if has_key else data_set.keys
+    return QueryDataSet(keys=key_bytes, valuesList=values_list, bitmapList=bitmap_list)
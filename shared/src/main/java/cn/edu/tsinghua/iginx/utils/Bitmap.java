@@ -49,6 +49,23 @@ public class Bitmap {
     return (bitmap[index] & (1 << indexWithinByte)) != 0;
   }
 
+  /** 统计 [from, to) 范围内被标记的位数，按字节计数，不逐位检查 */
+  public int count(int from, int to) {
+    if (from < 0 || to > size || from > to) throw new IllegalArgumentException("unexpected range");
+    int count = 0;
+    while (from < to && (from & 7) != 0) {
+      if (get(from++)) count++;
+    }
+    while (from + 8 <= to) {
+      count += Integer.bitCount(bitmap[from >>> 3] & 0xFF);
+      from += 8;
+    }
+    while (from < to) {
+      if (get(from++)) count++;
+    }
+    return count;
+  }
+
   public byte[] getBytes() {
     return this.bitmap;
   }
@@ -0,0 +1,607 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.utils;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.thrift.QueryDataSetV3;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式结果集 QueryDataSetV3 的编解码。
+ *
+ * <p>每列只存放非空值，并附带一个按行的空值位图（置位表示非空）。整数与布尔列使用 frame-of-reference 位压缩，浮点列使用 Gorilla XOR
+ * 编码，字符串列在重复值较多时使用字典编码；若编码后不比原始格式更小，则退回原始格式。key 列先差分再位压缩。
+ */
+public class ColumnarEncoding {
+
+  private static final byte PLAIN = 0;
+
+  private static final byte BIT_PACKED = 1;
+
+  private static final byte GORILLA = 2;
+
+  private static final byte DICTIONARY = 3;
+
+  private ColumnarEncoding() {}
+
+  /**
+   * 将按列组织的数据编码为 QueryDataSetV3
+   *
+   * @param keys 每行的 key，结果没有 key 时为 null
+   * @param dataTypes 每列的数据类型
+   * @param columns 按列组织的数据，columns[j][i] 为第 i 行第 j 列的值，空值为 null
+   * @param rowCount 行数
+   */
+  public static QueryDataSetV3 encode(
+      long[] keys, List<DataType> dataTypes, Object[][] columns, int rowCount) {
+    List<ByteBuffer> columnList = new ArrayList<>(columns.length);
+    List<ByteBuffer> bitmapList = new ArrayList<>(columns.length);
+    for (int j = 0; j < columns.length; j++) {
+      Bitmap bitmap = new Bitmap(rowCount);
+      for (int i = 0; i < rowCount; i++) {
+        if (columns[j][i] != null) {
+          bitmap.mark(i);
+        }
+      }
+      bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+      columnList.add(encodeColumn(columns[j], rowCount, dataTypes.get(j)));
+    }
+    QueryDataSetV3 dataSet = new QueryDataSetV3(rowCount, columnList, bitmapList);
+    if (keys != null) {
+      dataSet.setKeys(encodeKeys(keys, rowCount));
+    }
+    return dataSet;
+  }
+
+  /** 解码 key 列，结果没有 key 时返回 null */
+  public static long[] decodeKeys(QueryDataSetV3 dataSet) {
+    if (dataSet.keys == null) {
+      return null;
+    }
+    int rowCount = dataSet.rowCount;
+    long[] keys = new long[rowCount];
+    if (rowCount == 0) {
+      return keys;
+    }
+    BitInput in = new BitInput(dataSet.keys);
+    keys[0] = in.readLong();
+    long[] deltas = readPacked(in, rowCount - 1);
+    for (int i = 1; i < rowCount; i++) {
+      keys[i] = keys[i - 1] + deltas[i - 1];
+    }
+    return keys;
+  }
+
+  /**
+   * 按列解码数据
+   *
+   * @return columns[j][i] 为第 i 行第 j 列的值，空值为 null
+   */
+  public static Object[][] decodeColumns(QueryDataSetV3 dataSet, List<DataType> dataTypes) {
+    int rowCount = dataSet.rowCount;
+    Object[][] columns = new Object[dataSet.columns.size()][];
+    for (int j = 0; j < columns.length; j++) {
+      ByteBuffer bitmapBuffer = dataSet.bitmaps.get(j).duplicate();
+      byte[] bitmapBytes = new byte[bitmapBuffer.remaining()];
+      bitmapBuffer.get(bitmapBytes);
+      Bitmap bitmap = new Bitmap(rowCount, bitmapBytes);
+      columns[j] = decodeColumn(dataSet.columns.get(j), bitmap, rowCount, dataTypes.get(j));
+    }
+    return columns;
+  }
+
+  /**
+   * 按行解码数据
+   *
+   * @param dataTypes 除 key 以外每列的数据类型
+   * @param keyAsFirstColumn 是否将 key 作为每行的第一列返回
+   */
+  public static List<List<Object>> decodeRows(
+      QueryDataSetV3 dataSet, List<DataType> dataTypes, boolean keyAsFirstColumn) {
+    Object[][] columns = decodeColumns(dataSet, dataTypes);
+    long[] keys = keyAsFirstColumn ? decodeKeys(dataSet) : null;
+    int rowCount = dataSet.rowCount;
+    List<List<Object>> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      List<Object> row = new ArrayList<>(columns.length + 1);
+      if (keys != null) {
+        row.add(keys[i]);
+      }
+      for (Object[] column : columns) {
+        row.add(column[i]);
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static ByteBuffer encodeKeys(long[] keys, int rowCount) {
+    BitOutput out = new BitOutput();
+    if (rowCount == 0) {
+      return out.toByteBuffer();
+    }
+    out.writeLong(keys[0]);
+    long[] deltas = new long[rowCount - 1];
+    for (int i = 1; i < rowCount; i++) {
+      deltas[i - 1] = keys[i] - keys[i - 1];
+    }
+    writePacked(out, deltas, deltas.length);
+    return out.toByteBuffer();
+  }
+
+  private static ByteBuffer encodeColumn(Object[] column, int rowCount, DataType dataType) {
+    int size = 0;
+    Object[] values = new Object[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      if (column[i] != null) {
+        values[size++] = column[i];
+      }
+    }
+    BitOutput out = new BitOutput();
+    switch (dataType) {
+      case BOOLEAN:
+      case INTEGER:
+      case LONG:
+        long[] longs = new long[size];
+        for (int i = 0; i < size; i++) {
+          longs[i] = toLong(values[i], dataType);
+        }
+        long packedBits = 72 + (long) size * bitWidth(longs, size);
+        if (packedBits < (long) size * plainBits(dataType)) {
+          out.writeByte(BIT_PACKED);
+          writePacked(out, longs, size);
+          return out.toByteBuffer();
+        }
+        break;
+      case FLOAT:
+      case DOUBLE:
+        out.writeByte(GORILLA);
+        writeGorilla(out, values, size, dataType);
+        if (out.bitLength() < 8 + (long) size * plainBits(dataType)) {
+          return out.toByteBuffer();
+        }
+        out = new BitOutput();
+        break;
+      case BINARY:
+        if (writeDictionary(out, values, size)) {
+          return out.toByteBuffer();
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException(dataType.toString());
+    }
+    out.writeByte(PLAIN);
+    writePlain(out, values, size, dataType);
+    return out.toByteBuffer();
+  }
+
+  private static Object[] decodeColumn(
+      ByteBuffer buffer, Bitmap bitmap, int rowCount, DataType dataType) {
+    int size = 0;
+    for (int i = 0; i < rowCount; i++) {
+      if (bitmap.get(i)) {
+        size++;
+      }
+    }
+    BitInput in = new BitInput(buffer);
+    Object[] values;
+    byte encoding = in.readByte();
+    switch (encoding) {
+      case PLAIN:
+        values = readPlain(in, size, dataType);
+        break;
+      case BIT_PACKED:
+        long[] longs = readPacked(in, size);
+        values = new Object[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = fromLong(longs[i], dataType);
+        }
+        break;
+      case GORILLA:
+        values = readGorilla(in, size, dataType);
+        break;
+      case DICTIONARY:
+        values = readDictionary(in, size);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown column encoding: " + encoding);
+    }
+    Object[] column = new Object[rowCount];
+    int index = 0;
+    for (int i = 0; i < rowCount; i++) {
+      if (bitmap.get(i)) {
+        column[i] = values[index++];
+      }
+    }
+    return column;
+  }
+
+  private static int plainBits(DataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        return 8;
+      case INTEGER:
+      case FLOAT:
+        return 32;
+      case LONG:
+      case DOUBLE:
+        return 64;
+      default:
+        throw new UnsupportedOperationException(dataType.toString());
+    }
+  }
+
+  private static long toLong(Object value, DataType dataType) {
+    if (dataType == DataType.BOOLEAN) {
+      return (Boolean) value ? 1L : 0L;
+    }
+    return ((Number) value).longValue();
+  }
+
+  private static Object fromLong(long value, DataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        return value != 0;
+      case INTEGER:
+        return (int) value;
+      case LONG:
+        return value;
+      default:
+        throw new IllegalArgumentException("bit packing is not supported for " + dataType);
+    }
+  }
+
+  private static int bitWidth(long[] values, int size) {
+    if (size == 0) {
+      return 0;
+    }
+    long min = values[0];
+    long max = values[0];
+    for (int i = 1; i < size; i++) {
+      min = Math.min(min, values[i]);
+      max = Math.max(max, values[i]);
+    }
+    return 64 - Long.numberOfLeadingZeros(max - min);
+  }
+
+  /** frame-of-reference 位压缩：最小值 + 位宽 + 每个值与最小值之差 */
+  private static void writePacked(BitOutput out, long[] values, int size) {
+    long min = 0;
+    for (int i = 0; i < size; i++) {
+      min = i == 0 ? values[i] : Math.min(min, values[i]);
+    }
+    int width = bitWidth(values, size);
+    out.writeLong(min);
+    out.writeByte((byte) width);
+    for (int i = 0; i < size; i++) {
+      out.writeBits(values[i] - min, width);
+    }
+  }
+
+  private static long[] readPacked(BitInput in, int size) {
+    long min = in.readLong();
+    int width = in.readByte();
+    long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = min + in.readBits(width);
+    }
+    return values;
+  }
+
+  private static long floatingBits(Object value, DataType dataType) {
+    if (dataType == DataType.FLOAT) {
+      return Float.floatToRawIntBits((Float) value) & 0xFFFFFFFFL;
+    }
+    return Double.doubleToRawLongBits((Double) value);
+  }
+
+  private static Object fromFloatingBits(long bits, DataType dataType) {
+    if (dataType == DataType.FLOAT) {
+      return Float.intBitsToFloat((int) bits);
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  /**
+   * Gorilla XOR 编码：与前一个值相同只写 1 位；否则写出异或结果中有效位的部分，若有效位落在上一次的窗口内则复用窗口，不再写出前导零个数与有效位长度
+   */
+  private static void writeGorilla(BitOutput out, Object[] values, int size, DataType dataType) {
+    if (size == 0) {
+      return;
+    }
+    int width = plainBits(dataType);
+    long prev = floatingBits(values[0], dataType);
+    out.writeBits(prev, width);
+    int prevLeading = -1;
+    int prevTrailing = 0;
+    for (int i = 1; i < size; i++) {
+      long bits = floatingBits(values[i], dataType);
+      long xor = bits ^ prev;
+      prev = bits;
+      if (xor == 0) {
+        out.writeBits(0, 1);
+        continue;
+      }
+      out.writeBits(1, 1);
+      int leading = Long.numberOfLeadingZeros(xor) - (64 - width);
+      int trailing = Long.numberOfTrailingZeros(xor);
+      if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+        out.writeBits(0, 1);
+        out.writeBits(xor >>> prevTrailing, width - prevLeading - prevTrailing);
+        continue;
+      }
+      int length = width - leading - trailing;
+      out.writeBits(1, 1);
+      out.writeBits(leading, 6);
+      out.writeBits(length - 1, 6);
+      out.writeBits(xor >>> trailing, length);
+      prevLeading = leading;
+      prevTrailing = trailing;
+    }
+  }
+
+  private static Object[] readGorilla(BitInput in, int size, DataType dataType) {
+    Object[] values = new Object[size];
+    if (size == 0) {
+      return values;
+    }
+    int width = plainBits(dataType);
+    long prev = in.readBits(width);
+    values[0] = fromFloatingBits(prev, dataType);
+    int prevLeading = 0;
+    int prevTrailing = 0;
+    for (int i = 1; i < size; i++) {
+      if (in.readBits(1) != 0) {
+        if (in.readBits(1) != 0) {
+          prevLeading = (int) in.readBits(6);
+          prevTrailing = width - prevLeading - ((int) in.readBits(6) + 1);
+        }
+        int length = width - prevLeading - prevTrailing;
+        prev ^= in.readBits(length) << prevTrailing;
+      }
+      values[i] = fromFloatingBits(prev, dataType);
+    }
+    return values;
+  }
+
+  /**
+   * 字典编码：字典项 + 位压缩的字典下标
+   *
+   * @return 字典编码是否比原始格式更小，若否则不写出任何内容
+   */
+  private static boolean writeDictionary(BitOutput out, Object[] values, int size) {
+    Map<ByteBuffer, Integer> dictionary = new HashMap<>();
+    List<byte[]> entries = new ArrayList<>();
+    long[] indices = new long[size];
+    long plainBytes = 0;
+    long entryBytes = 0;
+    for (int i = 0; i < size; i++) {
+      byte[] bytes = (byte[]) values[i];
+      plainBytes += 4 + bytes.length;
+      Integer index = dictionary.get(ByteBuffer.wrap(bytes));
+      if (index == null) {
+        index = entries.size();
+        dictionary.put(ByteBuffer.wrap(bytes), index);
+        entries.add(bytes);
+        entryBytes += 4 + bytes.length;
+      }
+      indices[i] = index;
+    }
+    int width = 64 - Long.numberOfLeadingZeros(Math.max(entries.size() - 1, 0));
+    long dictionaryBytes = 4 + entryBytes + 1 + ((long) size * width + 7) / 8;
+    if (dictionaryBytes >= plainBytes) {
+      return false;
+    }
+    out.writeByte(DICTIONARY);
+    out.writeInt(entries.size());
+    for (byte[] entry : entries) {
+      out.writeInt(entry.length);
+      out.writeBytes(entry);
+    }
+    out.writeByte((byte) width);
+    for (int i = 0; i < size; i++) {
+      out.writeBits(indices[i], width);
+    }
+    return true;
+  }
+
+  private static Object[] readDictionary(BitInput in, int size) {
+    byte[][] entries = new byte[in.readInt()][];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = in.readBytes(in.readInt());
+    }
+    int width = in.readByte();
+    Object[] values = new Object[size];
+    for (int i = 0; i < size; i++) {
+      byte[] entry = entries[(int) in.readBits(width)];
+      values[i] = Arrays.copyOf(entry, entry.length);
+    }
+    return values;
+  }
+
+  private static void writePlain(BitOutput out, Object[] values, int size, DataType dataType) {
+    for (int i = 0; i < size; i++) {
+      switch (dataType) {
+        case BOOLEAN:
+          out.writeByte(ByteUtils.booleanToByte((Boolean) values[i]));
+          break;
+        case INTEGER:
+          out.writeInt((Integer) values[i]);
+          break;
+        case LONG:
+          out.writeLong((Long) values[i]);
+          break;
+        case FLOAT:
+          out.writeInt(Float.floatToRawIntBits((Float) values[i]));
+          break;
+        case DOUBLE:
+          out.writeLong(Double.doubleToRawLongBits((Double) values[i]));
+          break;
+        case BINARY:
+          byte[] bytes = (byte[]) values[i];
+          out.writeInt(bytes.length);
+          out.writeBytes(bytes);
+          break;
+        default:
+          throw new UnsupportedOperationException(dataType.toString());
+      }
+    }
+  }
+
+  private static Object[] readPlain(BitInput in, int size, DataType dataType) {
+    Object[] values = new Object[size];
+    for (int i = 0; i < size; i++) {
+      switch (dataType) {
+        case BOOLEAN:
+          values[i] = in.readByte() == 1;
+          break;
+        case INTEGER:
+          values[i] = in.readInt();
+          break;
+        case LONG:
+          values[i] = in.readLong();
+          break;
+        case FLOAT:
+          values[i] = Float.intBitsToFloat(in.readInt());
+          break;
+        case DOUBLE:
+          values[i] = Double.longBitsToDouble(in.readLong());
+          break;
+        case BINARY:
+          values[i] = in.readBytes(in.readInt());
+          break;
+        default:
+          throw new UnsupportedOperationException(dataType.toString());
+      }
+    }
+    return values;
+  }
+
+  /** 按位写出，多字节整数按大端序写出 */
+  private static class BitOutput {
+
+    private byte[] bytes = new byte[64];
+
+    private long bitPos;
+
+    void writeBits(long value, int n) {
+      ensureCapacity(bitPos + n);
+      int remaining = n;
+      while (remaining > 0) {
+        int free = 8 - (int) (bitPos & 7);
+        int take = Math.min(free, remaining);
+        int chunk = (int) (value >>> (remaining - take)) & ((1 << take) - 1);
+        bytes[(int) (bitPos >>> 3)] |= (byte) (chunk << (free - take));
+        bitPos += take;
+        remaining -= take;
+      }
+    }
+
+    void writeByte(byte value) {
+      writeBits(value, 8);
+    }
+
+    void writeInt(int value) {
+      writeBits(value, 32);
+    }
+
+    void writeLong(long value) {
+      writeBits(value, 64);
+    }
+
+    void writeBytes(byte[] value) {
+      bitPos = (bitPos + 7) & ~7L;
+      ensureCapacity(bitPos + value.length * 8L);
+      System.arraycopy(value, 0, bytes, (int) (bitPos >>> 3), value.length);
+      bitPos += value.length * 8L;
+    }
+
+    long bitLength() {
+      return bitPos;
+    }
+
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(bytes, 0, (int) ((bitPos + 7) >>> 3));
+    }
+
+    private void ensureCapacity(long bits) {
+      int required = (int) ((bits + 7) >>> 3);
+      if (required > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+      }
+    }
+  }
+
+  private static class BitInput {
+
+    private final ByteBuffer buffer;
+
+    private final int offset;
+
+    private long bitPos;
+
+    BitInput(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.offset = buffer.position();
+    }
+
+    long readBits(int n) {
+      long result = 0;
+      int remaining = n;
+      while (remaining > 0) {
+        int b = buffer.get(offset + (int) (bitPos >>> 3)) & 0xFF;
+        int available = 8 - (int) (bitPos & 7);
+        int take = Math.min(available, remaining);
+        int chunk = (b >>> (available - take)) & ((1 << take) - 1);
+        result = (result << take) | chunk;
+        bitPos += take;
+        remaining -= take;
+      }
+      return result;
+    }
+
+    byte readByte() {
+      return (byte) readBits(8);
+    }
+
+    int readInt() {
+      return (int) readBits(32);
+    }
+
+    long readLong() {
+      return readBits(64);
+    }
+
+    byte[] readBytes(int length) {
+      bitPos = (bitPos + 7) & ~7L;
+      byte[] value = new byte[length];
+      ByteBuffer slice = buffer.duplicate();
+      slice.position(offset + (int) (bitPos >>> 3));
+      slice.get(value);
+      bitPos += length * 8L;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class BitmapTest {
+
+  @Test
+  public void count() {
+    int size = 100;
+    Bitmap bitmap = new Bitmap(size);
+    Random random = new Random(0);
+    for (int i = 0; i < size; i++) {
+      if (random.nextBoolean()) {
+        bitmap.mark(i);
+      }
+    }
+    for (int from = 0; from <= size; from++) {
+      for (int to = from; to <= size; to++) {
+        int expected = 0;
+        for (int i = from; i < to; i++) {
+          if (bitmap.get(i)) {
+            expected++;
+          }
+        }
+        assertEquals(expected, bitmap.count(from, to));
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * IGinX - the polystore system with high performance
+ * Copyright (C) Tsinghua University
+ * TSIGinX@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package cn.edu.tsinghua.iginx.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.thrift.QueryDataSetV3;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class ColumnarEncodingTest {
+
+  private static final List<DataType> TYPES =
+      Arrays.asList(
+          DataType.BOOLEAN,
+          DataType.INTEGER,
+          DataType.LONG,
+          DataType.FLOAT,
+          DataType.DOUBLE,
+          DataType.BINARY);
+
+  @Test
+  public void testRoundTrip() {
+    Random random = new Random(0);
+    int rowCount = 1000;
+    long[] keys = new long[rowCount];
+    Object[][] columns = new Object[TYPES.size()][rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      keys[i] = 1700000000000L + i * 1000L + random.nextInt(3);
+      if (random.nextInt(10) == 0) {
+        continue; // 整行为空
+      }
+      columns[0][i] = random.nextBoolean();
+      columns[1][i] = 100 + random.nextInt(50);
+      columns[2][i] = random.nextLong();
+      columns[3][i] = random.nextInt(4) == 0 ? Float.NaN : 20.0f + random.nextInt(10) / 4.0f;
+      columns[4][i] = random.nextDouble();
+      columns[5][i] = ("tag" + random.nextInt(5)).getBytes();
+    }
+    columns[1][7] = Integer.MIN_VALUE;
+    columns[1][8] = Integer.MAX_VALUE;
+
+    QueryDataSetV3 dataSet = ColumnarEncoding.encode(keys, TYPES, columns, rowCount);
+    assertArrayEquals(keys, ColumnarEncoding.decodeKeys(dataSet));
+    Object[][] decoded = ColumnarEncoding.decodeColumns(dataSet, TYPES);
+    for (int j = 0; j < TYPES.size(); j++) {
+      for (int i = 0; i < rowCount; i++) {
+        if (TYPES.get(j) == DataType.BINARY && columns[j][i] != null) {
+          assertArrayEquals((byte[]) columns[j][i], (byte[]) decoded[j][i]);
+        } else {
+          assertEquals(columns[j][i], decoded[j][i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyAndAllNull() {
+    QueryDataSetV3 empty = ColumnarEncoding.encode(new long[0], TYPES, new Object[6][0], 0);
+    assertEquals(0, ColumnarEncoding.decodeKeys(empty).length);
+    assertEquals(0, ColumnarEncoding.decodeRows(empty, TYPES, true).size());
+
+    QueryDataSetV3 allNull = ColumnarEncoding.encode(null, TYPES, new Object[6][3], 3);
+    assertNull(ColumnarEncoding.decodeKeys(allNull));
+    for (List<Object> row : ColumnarEncoding.decodeRows(allNull, TYPES, false)) {
+      assertEquals(Arrays.asList(null, null, null, null, null, null), row);
+    }
+  }
+}
@@ -173,11 +173,13 @@ struct UDFClassPair {
 struct OpenSessionReq {
     1: optional string username
     2: optional string password
+    3: optional bool enableColumnarResult
 }
 
 struct OpenSessionResp {
     1: required Status status
     2: optional i64 sessionId
+    3: optional bool columnarResult
 }
 
 struct CloseSessionReq {
@@ -369,6 +371,7 @@ struct ExecuteSqlReq {
     1: required i64 sessionId
     2: required string statement
     3: optional bool remoteSession
+    4: optional i32 fetchSize
 }
 
 struct ExecuteSqlResp {
@@ -405,6 +408,9 @@ struct ExecuteSqlResp {
     31: optional list<string> usernames
     32: optional list<UserType> userTypes
     33: optional list<set<AuthType>> auths
+    34: optional i64 queryId
+    35: optional bool hasMoreResults
+    36: optional QueryDataSetV3 queryDataSetV3
 }
 
 struct UpdateUserReq {
@@ -493,6 +499,7 @@ struct ExecuteStatementResp {
     8: optional string warningMsg;
     9: optional string exportStreamDir
     10: optional ExportCSV exportCSV
+    11: optional QueryDataSetV3 queryDataSetV3
 }
 
 struct ExportCSV {
@@ -510,6 +517,13 @@ struct QueryDataSetV2 {
     2: required list<binary> bitmapList
 }
 
+struct QueryDataSetV3 {
+    1: required i32 rowCount
+    2: optional binary keys
+    3: required list<binary> columns
+    4: required list<binary> bitmaps
+}
+
 struct CloseStatementReq {
     1: required i64 sessionId
     2: required i64 queryId
@@ -526,6 +540,7 @@ struct FetchResultsResp {
     1: required Status status
     2: required bool hasMoreResults
     3: optional QueryDataSetV2 queryDataSet
+    4: optional QueryDataSetV3 queryDataSetV3
 }
 
 struct LoadCSVReq {